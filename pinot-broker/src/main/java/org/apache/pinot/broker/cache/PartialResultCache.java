@@ -0,0 +1,265 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pinot.common.datatable.DataTable;
+import org.apache.pinot.common.datatable.DataTableFactory;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.PinotQuery;
+import org.apache.pinot.common.utils.HashUtil;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.core.transport.ServerResponse;
+import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code PartialResultCache} caches the server responses for the offline tables on the broker. Each response is
+ * keyed by the normalized query, the server and the segments queried on the server, so that for the repeated queries
+ * the broker only needs to query the servers whose segments changed, and merge the cached responses with the new ones.
+ * <p>The cache is bounded by the total size of the serialized responses, and each entry expires after the TTL of the
+ * table. Because the key does not capture the content of the segments, all the entries for a table are invalidated
+ * when the segments of the table change (see {@link #invalidate(String)}). Each invalidation bumps the generation of
+ * the table, and the responses of the queries looked up before the invalidation are not cached, as they might be
+ * computed on the old segments.
+ */
+@ThreadSafe
+public class PartialResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartialResultCache.class);
+
+  private final BrokerMetrics _brokerMetrics;
+  private final Cache<CacheKey, CacheEntry> _cache;
+  private final Map<String, AtomicLong> _tableGenerations = new ConcurrentHashMap<>();
+
+  public PartialResultCache(long maxSizeBytes, BrokerMetrics brokerMetrics) {
+    _brokerMetrics = brokerMetrics;
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeBytes)
+        .weigher((CacheKey key, CacheEntry entry) -> entry._bytes.length).build();
+  }
+
+  /**
+   * Returns the fingerprint of the query, which excludes the query options that change across the executions of the
+   * same query (e.g. the remaining timeout).
+   */
+  public static String getQueryFingerprint(PinotQuery pinotQuery) {
+    PinotQuery normalizedQuery = pinotQuery.deepCopy();
+    Map<String, String> queryOptions = normalizedQuery.getQueryOptions();
+    if (queryOptions != null) {
+      // NOTE: Sort the query options so that the fingerprint does not depend on the iteration order of the map
+      Map<String, String> sortedQueryOptions = new TreeMap<>(queryOptions);
+      sortedQueryOptions.remove(QueryOptionKey.TIMEOUT_MS);
+      normalizedQuery.setQueryOptions(sortedQueryOptions);
+    }
+    return normalizedQuery.toString();
+  }
+
+  /**
+   * Looks up the cached responses for the servers within the routing table. The servers with cached responses are
+   * removed from the routing table, and their responses are put into the cached data table map. Returns the current
+   * generation of the table, which should be passed to {@link #put} when caching the responses of the query.
+   */
+  public long lookup(String offlineTableName, String queryFingerprint,
+      Map<ServerInstance, Pair<List<String>, List<String>>> routingTable,
+      Map<ServerRoutingInstance, DataTable> cachedDataTableMap) {
+    long generation = getGeneration(offlineTableName);
+    long currentTimeMs = System.currentTimeMillis();
+    String rawTableName = TableNameBuilder.extractRawTableName(offlineTableName);
+    long numHits = 0;
+    long numMisses = 0;
+    Iterator<Map.Entry<ServerInstance, Pair<List<String>, List<String>>>> iterator =
+        routingTable.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<ServerInstance, Pair<List<String>, List<String>>> entry = iterator.next();
+      ServerInstance serverInstance = entry.getKey();
+      DataTable dataTable =
+          get(new CacheKey(offlineTableName, queryFingerprint, serverInstance.getInstanceId(), entry.getValue()),
+              currentTimeMs);
+      if (dataTable != null) {
+        cachedDataTableMap.put(serverInstance.toServerRoutingInstance(TableType.OFFLINE, false), dataTable);
+        iterator.remove();
+        numHits++;
+      } else {
+        numMisses++;
+      }
+    }
+    _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.PARTIAL_RESULT_CACHE_HITS, numHits);
+    _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.PARTIAL_RESULT_CACHE_MISSES, numMisses);
+    return generation;
+  }
+
+  private long getGeneration(String tableNameWithType) {
+    AtomicLong generation = _tableGenerations.get(tableNameWithType);
+    return generation != null ? generation.get() : 0;
+  }
+
+  @Nullable
+  private DataTable get(CacheKey key, long currentTimeMs) {
+    CacheEntry entry = _cache.getIfPresent(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry._expirationTimeMs <= currentTimeMs) {
+      _cache.invalidate(key);
+      return null;
+    }
+    try {
+      // NOTE: Deserialize a new data table for each query because the reduce phase might modify the data table
+      return DataTableFactory.getDataTable(ByteBuffer.wrap(entry._bytes));
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while deserializing cached response for table: {}", key._tableNameWithType, e);
+      _cache.invalidate(key);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the successful responses from the servers queried with the routing table. The responses are not cached if
+   * the table is invalidated after the given generation is returned from {@link #lookup}.
+   */
+  public void put(String offlineTableName, String queryFingerprint, long generation,
+      Map<ServerInstance, Pair<List<String>, List<String>>> routingTable,
+      Map<ServerRoutingInstance, ServerResponse> responses, long ttlMs) {
+    if (getGeneration(offlineTableName) != generation) {
+      return;
+    }
+    Map<String, ServerResponse> instanceIdToResponseMap = new HashMap<>(HashUtil.getHashMapCapacity(responses.size()));
+    for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : responses.entrySet()) {
+      if (entry.getKey().getTableType() == TableType.OFFLINE) {
+        instanceIdToResponseMap.put(entry.getKey().getInstanceId(), entry.getValue());
+      }
+    }
+    long expirationTimeMs = System.currentTimeMillis() + ttlMs;
+    List<CacheKey> cachedKeys = new ArrayList<>(routingTable.size());
+    for (Map.Entry<ServerInstance, Pair<List<String>, List<String>>> entry : routingTable.entrySet()) {
+      ServerInstance serverInstance = entry.getKey();
+      ServerResponse response = instanceIdToResponseMap.get(serverInstance.getInstanceId());
+      if (response == null) {
+        continue;
+      }
+      DataTable dataTable = response.getDataTable();
+      if (dataTable == null || !dataTable.getExceptions().isEmpty()) {
+        continue;
+      }
+      try {
+        CacheKey key =
+            new CacheKey(offlineTableName, queryFingerprint, serverInstance.getInstanceId(), entry.getValue());
+        _cache.put(key, new CacheEntry(dataTable.toBytes(), expirationTimeMs));
+        cachedKeys.add(key);
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while caching response for table: {}", offlineTableName, e);
+      }
+    }
+    // The table might be invalidated while the responses are being cached, in which case the invalidation might miss
+    // the responses cached after it
+    if (getGeneration(offlineTableName) != generation) {
+      _cache.invalidateAll(cachedKeys);
+    }
+  }
+
+  /**
+   * Invalidates all the cached responses for the given table.
+   */
+  public void invalidate(String tableNameWithType) {
+    // NOTE: Bump the generation before removing the entries so that the concurrent put can detect the invalidation
+    _tableGenerations.computeIfAbsent(tableNameWithType, k -> new AtomicLong()).incrementAndGet();
+    _cache.asMap().keySet().removeIf(key -> key._tableNameWithType.equals(tableNameWithType));
+  }
+
+  @VisibleForTesting
+  long size() {
+    return _cache.size();
+  }
+
+  private static class CacheKey {
+    final String _tableNameWithType;
+    final String _queryFingerprint;
+    final String _instanceId;
+    final List<String> _segments;
+    final List<String> _optionalSegments;
+
+    CacheKey(String tableNameWithType, String queryFingerprint, String instanceId,
+        Pair<List<String>, List<String>> segments) {
+      _tableNameWithType = tableNameWithType;
+      _queryFingerprint = queryFingerprint;
+      _instanceId = instanceId;
+      _segments = sort(segments.getLeft());
+      _optionalSegments = sort(segments.getRight());
+    }
+
+    private static List<String> sort(@Nullable List<String> segments) {
+      if (segments == null || segments.isEmpty()) {
+        return Collections.emptyList();
+      }
+      List<String> sortedSegments = new ArrayList<>(segments);
+      Collections.sort(sortedSegments);
+      return sortedSegments;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return _tableNameWithType.equals(that._tableNameWithType) && _queryFingerprint.equals(that._queryFingerprint)
+          && _instanceId.equals(that._instanceId) && _segments.equals(that._segments) && _optionalSegments.equals(
+          that._optionalSegments);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_tableNameWithType, _queryFingerprint, _instanceId, _segments, _optionalSegments);
+    }
+  }
+
+  private static class CacheEntry {
+    final byte[] _bytes;
+    final long _expirationTimeMs;
+
+    CacheEntry(byte[] bytes, long expirationTimeMs) {
+      _bytes = bytes;
+      _expirationTimeMs = expirationTimeMs;
+    }
+  }
+}
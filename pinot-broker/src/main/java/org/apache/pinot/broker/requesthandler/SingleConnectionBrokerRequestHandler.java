@@ -20,6 +20,8 @@ package org.apache.pinot.broker.requesthandler;
 
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +29,7 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pinot.broker.broker.AccessControlFactory;
+import org.apache.pinot.broker.cache.PartialResultCache;
 import org.apache.pinot.broker.failuredetector.FailureDetector;
 import org.apache.pinot.broker.failuredetector.FailureDetectorFactory;
 import org.apache.pinot.broker.queryquota.QueryQuotaManager;
@@ -41,7 +44,9 @@ import org.apache.pinot.common.metrics.BrokerQueryPhase;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.response.broker.BrokerResponseNative;
 import org.apache.pinot.common.response.broker.QueryProcessingException;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.query.reduce.BrokerReduceService;
+import org.apache.pinot.core.query.reduce.IncrementalGroupByDataTableReducer;
 import org.apache.pinot.core.transport.AsyncQueryResponse;
 import org.apache.pinot.core.transport.QueryResponse;
 import org.apache.pinot.core.transport.QueryRouter;
@@ -52,6 +57,7 @@ import org.apache.pinot.core.transport.server.routing.stats.ServerRoutingStatsMa
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.trace.RequestContext;
 import org.apache.pinot.spi.utils.CommonConstants;
+import org.apache.pinot.spi.utils.DataSizeUtils;
 import org.apache.pinot.spi.utils.builder.TableNameBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,6 +75,8 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
   private final BrokerReduceService _brokerReduceService;
   private final QueryRouter _queryRouter;
   private final FailureDetector _failureDetector;
+  private final PartialResultCache _partialResultCache;
+  private final long _partialResultCacheTtlMs;
 
   public SingleConnectionBrokerRequestHandler(PinotConfiguration config, String brokerId,
       BrokerRoutingManager routingManager, AccessControlFactory accessControlFactory,
@@ -78,6 +86,21 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
     _brokerReduceService = new BrokerReduceService(_config);
     _queryRouter = new QueryRouter(_brokerId, _brokerMetrics, nettyConfig, tlsConfig, serverRoutingStatsManager);
     _failureDetector = FailureDetectorFactory.getFailureDetector(config, _brokerMetrics);
+    if (config.getProperty(CommonConstants.Broker.CONFIG_OF_ENABLE_PARTIAL_RESULT_CACHE,
+        CommonConstants.Broker.DEFAULT_ENABLE_PARTIAL_RESULT_CACHE)) {
+      long maxSizeBytes = DataSizeUtils.toBytes(
+          config.getProperty(CommonConstants.Broker.CONFIG_OF_PARTIAL_RESULT_CACHE_MAX_SIZE,
+              CommonConstants.Broker.DEFAULT_PARTIAL_RESULT_CACHE_MAX_SIZE));
+      _partialResultCache = new PartialResultCache(maxSizeBytes, _brokerMetrics);
+      _partialResultCacheTtlMs = config.getProperty(CommonConstants.Broker.CONFIG_OF_PARTIAL_RESULT_CACHE_TTL_MS,
+          CommonConstants.Broker.DEFAULT_PARTIAL_RESULT_CACHE_TTL_MS);
+      routingManager.registerSegmentChangeListener(_partialResultCache::invalidate);
+      LOGGER.info("Enabled partial result cache with max size: {} bytes, TTL: {}ms", maxSizeBytes,
+          _partialResultCacheTtlMs);
+    } else {
+      _partialResultCache = null;
+      _partialResultCacheTtlMs = 0;
+    }
   }
 
   @Override
@@ -110,23 +133,67 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
 
     String rawTableName = TableNameBuilder.extractRawTableName(serverBrokerRequest.getQuerySource().getTableName());
     long scatterGatherStartTimeNs = System.nanoTime();
-    AsyncQueryResponse asyncQueryResponse =
-        _queryRouter.submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable,
-            realtimeBrokerRequest, realtimeRoutingTable, timeoutMs);
-    _failureDetector.notifyQuerySubmitted(asyncQueryResponse);
-    Map<ServerRoutingInstance, ServerResponse> finalResponses = asyncQueryResponse.getFinalResponses();
-    if (asyncQueryResponse.getStatus() == QueryResponse.Status.TIMED_OUT) {
-      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.BROKER_RESPONSES_WITH_TIMEOUTS, 1);
+    // Merge the server responses into the result as they arrive when incremental reduce is enabled for the query
+    IncrementalGroupByDataTableReducer incrementalReducer =
+        _brokerReduceService.getIncrementalReducer(serverBrokerRequest, timeoutMs);
+
+    // Serve the offline servers with cached responses from the partial result cache, and only query the rest
+    Map<ServerRoutingInstance, DataTable> cachedDataTableMap = Collections.emptyMap();
+    String offlineTableName = null;
+    String queryFingerprint = null;
+    long partialResultCacheGeneration = 0;
+    long partialResultCacheTtlMs = getPartialResultCacheTtlMs(serverBrokerRequest, offlineBrokerRequest);
+    if (partialResultCacheTtlMs > 0) {
+      assert offlineBrokerRequest != null && offlineRoutingTable != null;
+      offlineTableName = offlineBrokerRequest.getQuerySource().getTableName();
+      queryFingerprint = PartialResultCache.getQueryFingerprint(offlineBrokerRequest.getPinotQuery());
+      cachedDataTableMap = new HashMap<>();
+      offlineRoutingTable = new HashMap<>(offlineRoutingTable);
+      partialResultCacheGeneration =
+          _partialResultCache.lookup(offlineTableName, queryFingerprint, offlineRoutingTable, cachedDataTableMap);
+      if (offlineRoutingTable.isEmpty()) {
+        offlineBrokerRequest = null;
+        offlineRoutingTable = null;
+      }
+      if (incrementalReducer != null) {
+        cachedDataTableMap.forEach(incrementalReducer::onDataTable);
+      }
+    }
+
+    Map<ServerRoutingInstance, ServerResponse> finalResponses;
+    AsyncQueryResponse asyncQueryResponse = null;
+    if (offlineBrokerRequest != null || realtimeBrokerRequest != null) {
+      asyncQueryResponse =
+          _queryRouter.submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable,
+              realtimeBrokerRequest, realtimeRoutingTable, timeoutMs,
+              incrementalReducer != null ? incrementalReducer::onDataTable : null);
+      _failureDetector.notifyQuerySubmitted(asyncQueryResponse);
+      finalResponses = asyncQueryResponse.getFinalResponses();
+      if (asyncQueryResponse.getStatus() == QueryResponse.Status.TIMED_OUT) {
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.BROKER_RESPONSES_WITH_TIMEOUTS, 1);
+      }
+      _failureDetector.notifyQueryFinished(asyncQueryResponse);
+      // TODO Use scatterGatherStats as serverStats
+      serverStats.setServerStats(asyncQueryResponse.getServerStats());
+      if (offlineBrokerRequest != null && queryFingerprint != null) {
+        _partialResultCache.put(offlineTableName, queryFingerprint, partialResultCacheGeneration, offlineRoutingTable,
+            finalResponses, partialResultCacheTtlMs);
+      }
+    } else {
+      // All the servers are served from the partial result cache
+      finalResponses = Collections.emptyMap();
+    }
+    if (incrementalReducer != null) {
+      // Stop merging the late responses so that the merged data tables are all included in the gathered data tables
+      incrementalReducer.close();
     }
-    _failureDetector.notifyQueryFinished(asyncQueryResponse);
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.SCATTER_GATHER,
         System.nanoTime() - scatterGatherStartTimeNs);
-    // TODO Use scatterGatherStats as serverStats
-    serverStats.setServerStats(asyncQueryResponse.getServerStats());
 
-    int numServersQueried = finalResponses.size();
+    int numServersQueried = finalResponses.size() + cachedDataTableMap.size();
     long totalResponseSize = 0;
     Map<ServerRoutingInstance, DataTable> dataTableMap = Maps.newHashMapWithExpectedSize(numServersQueried);
+    dataTableMap.putAll(cachedDataTableMap);
     List<ServerRoutingInstance> serversNotResponded = new ArrayList<>();
     for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : finalResponses.entrySet()) {
       ServerResponse serverResponse = entry.getValue();
@@ -144,7 +211,7 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
     long reduceTimeoutMs = timeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scatterGatherStartTimeNs);
     BrokerResponseNative brokerResponse =
         _brokerReduceService.reduceOnDataTable(originalBrokerRequest, serverBrokerRequest, dataTableMap,
-            reduceTimeoutMs, _brokerMetrics);
+            reduceTimeoutMs, _brokerMetrics, incrementalReducer);
     long reduceTimeNanos = System.nanoTime() - reduceStartTimeNs;
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.REDUCE, reduceTimeNanos);
 
@@ -152,7 +219,7 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
     brokerResponse.setNumServersResponded(numServersResponded);
     brokerResponse.setBrokerReduceTimeMs(TimeUnit.NANOSECONDS.toMillis(reduceTimeNanos));
 
-    Exception brokerRequestSendException = asyncQueryResponse.getException();
+    Exception brokerRequestSendException = asyncQueryResponse != null ? asyncQueryResponse.getException() : null;
     if (brokerRequestSendException != null) {
       String errorMsg = QueryException.getTruncatedStackTrace(brokerRequestSendException);
       brokerResponse.addException(
@@ -172,6 +239,25 @@ public class SingleConnectionBrokerRequestHandler extends BaseSingleStageBrokerR
     return brokerResponse;
   }
 
+  /**
+   * Returns the TTL of the responses cached in the partial result cache for the query, or 0 if the cache does not apply
+   * to the query. Only the offline table responses are cached because the real-time segments are still changing.
+   */
+  private long getPartialResultCacheTtlMs(BrokerRequest serverBrokerRequest,
+      @Nullable BrokerRequest offlineBrokerRequest) {
+    if (_partialResultCache == null || offlineBrokerRequest == null) {
+      return 0;
+    }
+    Map<String, String> queryOptions = serverBrokerRequest.getPinotQuery().getQueryOptions();
+    if (queryOptions != null && (QueryOptionsUtils.isSkipPartialResultCache(queryOptions) || Boolean.parseBoolean(
+        queryOptions.get(CommonConstants.Broker.Request.TRACE)))) {
+      return 0;
+    }
+    Long tableLevelTtlMs =
+        _routingManager.getPartialResultCacheTtlMs(offlineBrokerRequest.getQuerySource().getTableName());
+    return tableLevelTtlMs != null ? tableLevelTtlMs : _partialResultCacheTtlMs;
+  }
+
   @Override
   public void notifyUnhealthyServer(String instanceId, FailureDetector failureDetector) {
     _routingManager.excludeServerFromRouting(instanceId);
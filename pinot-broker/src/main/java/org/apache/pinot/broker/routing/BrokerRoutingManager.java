@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.helix.AccessOption;
@@ -46,6 +48,7 @@ import org.apache.pinot.broker.routing.instanceselector.InstanceSelector;
 import org.apache.pinot.broker.routing.instanceselector.InstanceSelectorFactory;
 import org.apache.pinot.broker.routing.segmentmetadata.SegmentZkMetadataFetchListener;
 import org.apache.pinot.broker.routing.segmentmetadata.SegmentZkMetadataFetcher;
+import org.apache.pinot.broker.routing.segmentmetadata.TableRowCountManager;
 import org.apache.pinot.broker.routing.segmentpartition.SegmentPartitionMetadataManager;
 import org.apache.pinot.broker.routing.segmentpreselector.SegmentPreSelector;
 import org.apache.pinot.broker.routing.segmentpreselector.SegmentPreSelectorFactory;
@@ -92,6 +95,7 @@ import org.slf4j.LoggerFactory;
  *   <li>{@link #getRoutingTable(BrokerRequest, long)}: Returns the routing table for a query</li>
  *   <li>{@link #getTimeBoundaryInfo(String)}: Returns the time boundary info for a table</li>
  *   <li>{@link #getQueryTimeoutMs(String)}: Returns the table-level query timeout in milliseconds for a table</li>
+ *   <li>{@link #getPartialResultCacheTtlMs(String)}: Returns the table-level partial result cache TTL for a table</li>
  * </ul>
  *
  * TODO: Expose RoutingEntry class to get a consistent view in the broker request handler and save the redundant map
@@ -107,6 +111,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
   private final Set<String> _excludedServers = new HashSet<>();
   private final ServerRoutingStatsManager _serverRoutingStatsManager;
   private final PinotConfiguration _pinotConfig;
+  private final List<Consumer<String>> _segmentChangeListeners = new CopyOnWriteArrayList<>();
 
   private BaseDataAccessor<ZNRecord> _zkDataAccessor;
   private String _externalViewPathPrefix;
@@ -133,6 +138,25 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     _propertyStore = helixManager.getHelixPropertyStore();
   }
 
+  /**
+   * Registers a listener to be notified with the table name with type when the segments of the table might have
+   * changed, i.e. the routing for the table is built or removed, the segment assignment of the table changes, or a
+   * segment of the table is refreshed.
+   */
+  public void registerSegmentChangeListener(Consumer<String> listener) {
+    _segmentChangeListeners.add(listener);
+  }
+
+  private void notifySegmentChange(String tableNameWithType) {
+    for (Consumer<String> listener : _segmentChangeListeners) {
+      try {
+        listener.accept(tableNameWithType);
+      } catch (Exception e) {
+        LOGGER.error("Caught exception while notifying segment change for table: {}", tableNameWithType, e);
+      }
+    }
+  }
+
   @Override
   public synchronized void processClusterChange(ChangeType changeType) {
     if (changeType == ChangeType.IDEAL_STATE || changeType == ChangeType.EXTERNAL_VIEW) {
@@ -191,6 +215,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
               continue;
             }
             routingEntry.onAssignmentChange(idealState, externalView);
+            notifySegmentChange(tableNameWithType);
           } catch (Exception e) {
             LOGGER.error(
                 "Caught unexpected exception while updating routing entry on segment assignment change for table: {}",
@@ -518,8 +543,15 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       }
     }
 
+    TableRowCountManager tableRowCountManager = null;
+    if (_pinotConfig.getProperty(CommonConstants.Broker.CONFIG_OF_ENABLE_TABLE_ROW_COUNT_MANAGER,
+        CommonConstants.Broker.DEFAULT_ENABLE_TABLE_ROW_COUNT_MANAGER)) {
+      tableRowCountManager = new TableRowCountManager();
+    }
+
     QueryConfig queryConfig = tableConfig.getQueryConfig();
     Long queryTimeoutMs = queryConfig != null ? queryConfig.getTimeoutMs() : null;
+    Long partialResultCacheTtlMs = queryConfig != null ? queryConfig.getPartialResultCacheTtlMs() : null;
 
     SegmentZkMetadataFetcher segmentZkMetadataFetcher = new SegmentZkMetadataFetcher(tableNameWithType, _propertyStore);
     for (SegmentZkMetadataFetchListener listener : segmentPruners) {
@@ -528,17 +560,22 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     if (partitionMetadataManager != null) {
       segmentZkMetadataFetcher.register(partitionMetadataManager);
     }
+    if (tableRowCountManager != null) {
+      segmentZkMetadataFetcher.register(tableRowCountManager);
+    }
     segmentZkMetadataFetcher.init(idealState, externalView, preSelectedOnlineSegments);
 
     RoutingEntry routingEntry =
         new RoutingEntry(tableNameWithType, idealStatePath, externalViewPath, segmentPreSelector, segmentSelector,
             segmentPruners, instanceSelector, idealStateVersion, externalViewVersion, segmentZkMetadataFetcher,
-            timeBoundaryManager, partitionMetadataManager, queryTimeoutMs);
+            timeBoundaryManager, partitionMetadataManager, tableRowCountManager, queryTimeoutMs,
+            partialResultCacheTtlMs);
     if (_routingEntryMap.put(tableNameWithType, routingEntry) == null) {
       LOGGER.info("Built routing for table: {}", tableNameWithType);
     } else {
       LOGGER.info("Rebuilt routing for table: {}", tableNameWithType);
     }
+    notifySegmentChange(tableNameWithType);
   }
 
   /**
@@ -579,6 +616,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     } else {
       LOGGER.warn("Routing does not exist for table: {}, skipping removing routing", tableNameWithType);
     }
+    notifySegmentChange(tableNameWithType);
   }
 
   /**
@@ -590,6 +628,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     if (routingEntry != null) {
       routingEntry.refreshSegment(segment);
       LOGGER.info("Refreshed segment: {} for table: {}", segment, tableNameWithType);
+      notifySegmentChange(tableNameWithType);
     } else {
       LOGGER.warn("Routing does not exist for table: {}, skipping refreshing segment", tableNameWithType);
     }
@@ -691,6 +730,17 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     return partitionMetadataManager != null ? partitionMetadataManager.getTablePartitionInfo() : null;
   }
 
+  @Nullable
+  @Override
+  public Long getTableRowCount(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    if (routingEntry == null) {
+      return null;
+    }
+    TableRowCountManager tableRowCountManager = routingEntry.getTableRowCountManager();
+    return tableRowCountManager != null ? tableRowCountManager.getTableRowCount() : null;
+  }
+
   @Nullable
   @Override
   public Set<String> getServingInstances(String tableNameWithType) {
@@ -711,6 +761,16 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     return routingEntry != null ? routingEntry.getQueryTimeoutMs() : null;
   }
 
+  /**
+   * Returns the table-level TTL in milliseconds of the responses cached in the broker partial result cache for the
+   * given table, or {@code null} if the TTL is not configured in the table config.
+   */
+  @Nullable
+  public Long getPartialResultCacheTtlMs(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    return routingEntry != null ? routingEntry.getPartialResultCacheTtlMs() : null;
+  }
+
   private static class RoutingEntry {
     final String _tableNameWithType;
     final String _idealStatePath;
@@ -719,8 +779,10 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     final SegmentSelector _segmentSelector;
     final List<SegmentPruner> _segmentPruners;
     final SegmentPartitionMetadataManager _partitionMetadataManager;
+    final TableRowCountManager _tableRowCountManager;
     final InstanceSelector _instanceSelector;
     final Long _queryTimeoutMs;
+    final Long _partialResultCacheTtlMs;
     final SegmentZkMetadataFetcher _segmentZkMetadataFetcher;
 
     // Cache IdealState and ExternalView version for the last update
@@ -733,7 +795,9 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
         SegmentPreSelector segmentPreSelector, SegmentSelector segmentSelector, List<SegmentPruner> segmentPruners,
         InstanceSelector instanceSelector, int lastUpdateIdealStateVersion, int lastUpdateExternalViewVersion,
         SegmentZkMetadataFetcher segmentZkMetadataFetcher, @Nullable TimeBoundaryManager timeBoundaryManager,
-        @Nullable SegmentPartitionMetadataManager partitionMetadataManager, @Nullable Long queryTimeoutMs) {
+        @Nullable SegmentPartitionMetadataManager partitionMetadataManager,
+        @Nullable TableRowCountManager tableRowCountManager, @Nullable Long queryTimeoutMs,
+        @Nullable Long partialResultCacheTtlMs) {
       _tableNameWithType = tableNameWithType;
       _idealStatePath = idealStatePath;
       _externalViewPath = externalViewPath;
@@ -745,7 +809,9 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       _lastUpdateExternalViewVersion = lastUpdateExternalViewVersion;
       _timeBoundaryManager = timeBoundaryManager;
       _partitionMetadataManager = partitionMetadataManager;
+      _tableRowCountManager = tableRowCountManager;
       _queryTimeoutMs = queryTimeoutMs;
+      _partialResultCacheTtlMs = partialResultCacheTtlMs;
       _segmentZkMetadataFetcher = segmentZkMetadataFetcher;
     }
 
@@ -775,10 +841,19 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       return _partitionMetadataManager;
     }
 
+    @Nullable
+    TableRowCountManager getTableRowCountManager() {
+      return _tableRowCountManager;
+    }
+
     Long getQueryTimeoutMs() {
       return _queryTimeoutMs;
     }
 
+    Long getPartialResultCacheTtlMs() {
+      return _partialResultCacheTtlMs;
+    }
+
     // NOTE: The change gets applied in sequence, and before change applied to all components, there could be some
     // inconsistency between components, which is fine because the inconsistency only exists for the newly changed
     // segments and only lasts for a very short time.
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentmetadata;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.spi.utils.CommonConstants;
+
+
+/**
+ * The {@code TableRowCountManager} tracks the total number of rows of the online segments of a table based on the
+ * total docs in the segment ZK metadata. The row count is used as the table statistics by the multi-stage query
+ * planner.
+ *
+ * <p>The consuming segments do not have the total docs in the segment ZK metadata, and are not counted.
+ */
+public class TableRowCountManager implements SegmentZkMetadataFetchListener {
+  private final Map<String, Long> _segmentRowCountMap = new HashMap<>();
+
+  private volatile long _tableRowCount;
+
+  @Override
+  public void init(IdealState idealState, ExternalView externalView, List<String> onlineSegments,
+      List<ZNRecord> znRecords) {
+    int numSegments = onlineSegments.size();
+    for (int i = 0; i < numSegments; i++) {
+      _segmentRowCountMap.put(onlineSegments.get(i), getRowCount(znRecords.get(i)));
+    }
+    computeTableRowCount();
+  }
+
+  private static long getRowCount(@Nullable ZNRecord znRecord) {
+    if (znRecord == null) {
+      return 0;
+    }
+    return Math.max(znRecord.getLongField(CommonConstants.Segment.TOTAL_DOCS, 0), 0);
+  }
+
+  private void computeTableRowCount() {
+    long tableRowCount = 0;
+    for (long rowCount : _segmentRowCountMap.values()) {
+      tableRowCount += rowCount;
+    }
+    _tableRowCount = tableRowCount;
+  }
+
+  @Override
+  public synchronized void onAssignmentChange(IdealState idealState, ExternalView externalView,
+      Set<String> onlineSegments, List<String> pulledSegments, List<ZNRecord> znRecords) {
+    int numSegments = pulledSegments.size();
+    for (int i = 0; i < numSegments; i++) {
+      _segmentRowCountMap.put(pulledSegments.get(i), getRowCount(znRecords.get(i)));
+    }
+    _segmentRowCountMap.keySet().retainAll(onlineSegments);
+    computeTableRowCount();
+  }
+
+  @Override
+  public synchronized void refreshSegment(String segment, @Nullable ZNRecord znRecord) {
+    _segmentRowCountMap.put(segment, getRowCount(znRecord));
+    computeTableRowCount();
+  }
+
+  public long getTableRowCount() {
+    return _tableRowCount;
+  }
+}
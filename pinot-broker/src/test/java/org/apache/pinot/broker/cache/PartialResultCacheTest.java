@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.cache;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.pinot.common.datatable.DataTable;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.PinotQuery;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.datatable.DataTableBuilder;
+import org.apache.pinot.core.common.datatable.DataTableBuilderFactory;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.core.transport.ServerResponse;
+import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.apache.pinot.sql.parsers.CalciteSqlParser;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class PartialResultCacheTest {
+  private static final String OFFLINE_TABLE_NAME = "testTable_OFFLINE";
+  private static final ServerInstance SERVER_1 = new ServerInstance(new InstanceConfig("Server_localhost_1"));
+  private static final ServerInstance SERVER_2 = new ServerInstance(new InstanceConfig("Server_localhost_2"));
+
+  @Test
+  public void testQueryFingerprint() {
+    PinotQuery pinotQuery = CalciteSqlParser.compileToPinotQuery("SELECT COUNT(*) FROM testTable WHERE a = 1");
+    pinotQuery.putToQueryOptions(QueryOptionKey.TIMEOUT_MS, "1000");
+    String fingerprint = PartialResultCache.getQueryFingerprint(pinotQuery);
+    // Timeout should not be part of the fingerprint, and the query should not be modified
+    pinotQuery.putToQueryOptions(QueryOptionKey.TIMEOUT_MS, "500");
+    assertEquals(PartialResultCache.getQueryFingerprint(pinotQuery), fingerprint);
+    assertEquals(pinotQuery.getQueryOptions().get(QueryOptionKey.TIMEOUT_MS), "500");
+
+    PinotQuery otherQuery = CalciteSqlParser.compileToPinotQuery("SELECT COUNT(*) FROM testTable WHERE a = 2");
+    assertNotEquals(PartialResultCache.getQueryFingerprint(otherQuery), fingerprint);
+  }
+
+  @Test
+  public void testLookupAndPut()
+      throws IOException {
+    PartialResultCache cache = new PartialResultCache(1024 * 1024, mock(BrokerMetrics.class));
+    String fingerprint = "fingerprint";
+    Map<ServerInstance, Pair<List<String>, List<String>>> routingTable = getRoutingTable();
+
+    // Nothing cached yet
+    Map<ServerRoutingInstance, DataTable> cachedDataTableMap = new HashMap<>();
+    long generation = cache.lookup(OFFLINE_TABLE_NAME, fingerprint, routingTable, cachedDataTableMap);
+    assertTrue(cachedDataTableMap.isEmpty());
+    assertEquals(routingTable.size(), 2);
+
+    // Response with exception should not be cached
+    Map<ServerRoutingInstance, ServerResponse> responses = new HashMap<>();
+    responses.put(SERVER_1.toServerRoutingInstance(TableType.OFFLINE, false), getServerResponse(getDataTable(1L)));
+    DataTable dataTableWithException = getDataTable(2L);
+    dataTableWithException.addException(QueryException.QUERY_EXECUTION_ERROR_CODE, "error");
+    responses.put(SERVER_2.toServerRoutingInstance(TableType.OFFLINE, false),
+        getServerResponse(dataTableWithException));
+    cache.put(OFFLINE_TABLE_NAME, fingerprint, generation, routingTable, responses, 60_000L);
+    assertEquals(cache.size(), 1);
+
+    cache.lookup(OFFLINE_TABLE_NAME, fingerprint, routingTable, cachedDataTableMap);
+    assertEquals(cachedDataTableMap.size(), 1);
+    DataTable cachedDataTable = cachedDataTableMap.get(SERVER_1.toServerRoutingInstance(TableType.OFFLINE, false));
+    assertEquals(cachedDataTable.getLong(0, 0), 1L);
+    assertEquals(routingTable.size(), 1);
+    assertTrue(routingTable.containsKey(SERVER_2));
+
+    // Different segments on the server should miss
+    cachedDataTableMap.clear();
+    routingTable = getRoutingTable();
+    routingTable.put(SERVER_1, Pair.of(List.of("segment0", "segment1", "segment4"), List.of()));
+    cache.lookup(OFFLINE_TABLE_NAME, fingerprint, routingTable, cachedDataTableMap);
+    assertTrue(cachedDataTableMap.isEmpty());
+
+    // Same segments in different order should hit
+    routingTable.put(SERVER_1, Pair.of(List.of("segment1", "segment0"), List.of()));
+    cache.lookup(OFFLINE_TABLE_NAME, fingerprint, routingTable, cachedDataTableMap);
+    assertEquals(cachedDataTableMap.size(), 1);
+
+    // Different query should miss
+    cachedDataTableMap.clear();
+    cache.lookup(OFFLINE_TABLE_NAME, "otherFingerprint", getRoutingTable(), cachedDataTableMap);
+    assertTrue(cachedDataTableMap.isEmpty());
+  }
+
+  @Test
+  public void testExpirationAndInvalidation()
+      throws IOException {
+    PartialResultCache cache = new PartialResultCache(1024 * 1024, mock(BrokerMetrics.class));
+    String fingerprint = "fingerprint";
+    Map<ServerRoutingInstance, ServerResponse> responses = new HashMap<>();
+    responses.put(SERVER_1.toServerRoutingInstance(TableType.OFFLINE, false), getServerResponse(getDataTable(1L)));
+    responses.put(SERVER_2.toServerRoutingInstance(TableType.OFFLINE, false), getServerResponse(getDataTable(2L)));
+
+    // Expired entries should not be returned
+    Map<ServerRoutingInstance, DataTable> cachedDataTableMap = new HashMap<>();
+    long generation = cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    cache.put(OFFLINE_TABLE_NAME, fingerprint, generation, getRoutingTable(), responses, -1L);
+    cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    assertTrue(cachedDataTableMap.isEmpty());
+    assertEquals(cache.size(), 0);
+
+    cache.put(OFFLINE_TABLE_NAME, fingerprint, generation, getRoutingTable(), responses, 60_000L);
+    long otherGeneration = cache.lookup("otherTable_OFFLINE", fingerprint, getRoutingTable(), cachedDataTableMap);
+    cache.put("otherTable_OFFLINE", fingerprint, otherGeneration, getRoutingTable(), responses, 60_000L);
+    assertEquals(cache.size(), 4);
+    cache.invalidate(OFFLINE_TABLE_NAME);
+    assertEquals(cache.size(), 2);
+    cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    assertTrue(cachedDataTableMap.isEmpty());
+    cache.lookup("otherTable_OFFLINE", fingerprint, getRoutingTable(), cachedDataTableMap);
+    assertEquals(cachedDataTableMap.size(), 2);
+  }
+
+  @Test
+  public void testInvalidationDuringQuery()
+      throws IOException {
+    PartialResultCache cache = new PartialResultCache(1024 * 1024, mock(BrokerMetrics.class));
+    String fingerprint = "fingerprint";
+    Map<ServerRoutingInstance, ServerResponse> responses = new HashMap<>();
+    responses.put(SERVER_1.toServerRoutingInstance(TableType.OFFLINE, false), getServerResponse(getDataTable(1L)));
+    responses.put(SERVER_2.toServerRoutingInstance(TableType.OFFLINE, false), getServerResponse(getDataTable(2L)));
+
+    // Table invalidated after the lookup and before the responses are returned, where the responses might be computed
+    // on the old segments and should not be cached
+    Map<ServerRoutingInstance, DataTable> cachedDataTableMap = new HashMap<>();
+    long generation = cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    cache.invalidate(OFFLINE_TABLE_NAME);
+    cache.put(OFFLINE_TABLE_NAME, fingerprint, generation, getRoutingTable(), responses, 60_000L);
+    assertEquals(cache.size(), 0);
+    cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    assertTrue(cachedDataTableMap.isEmpty());
+
+    // Invalidating other tables should not affect the query
+    generation = cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    cache.invalidate("otherTable_OFFLINE");
+    cache.put(OFFLINE_TABLE_NAME, fingerprint, generation, getRoutingTable(), responses, 60_000L);
+    assertEquals(cache.size(), 2);
+
+    // Query looked up before the invalidation should not be cached, while the one looked up after should be
+    long staleGeneration = cache.lookup(OFFLINE_TABLE_NAME, "otherFingerprint", getRoutingTable(), cachedDataTableMap);
+    cache.invalidate(OFFLINE_TABLE_NAME);
+    assertEquals(cache.size(), 0);
+    long newGeneration = cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    cache.put(OFFLINE_TABLE_NAME, "otherFingerprint", staleGeneration, getRoutingTable(), responses, 60_000L);
+    assertEquals(cache.size(), 0);
+    cache.put(OFFLINE_TABLE_NAME, fingerprint, newGeneration, getRoutingTable(), responses, 60_000L);
+    assertEquals(cache.size(), 2);
+    cache.lookup(OFFLINE_TABLE_NAME, fingerprint, getRoutingTable(), cachedDataTableMap);
+    assertEquals(cachedDataTableMap.size(), 2);
+  }
+
+  private static Map<ServerInstance, Pair<List<String>, List<String>>> getRoutingTable() {
+    Map<ServerInstance, Pair<List<String>, List<String>>> routingTable = new HashMap<>();
+    routingTable.put(SERVER_1, Pair.of(List.of("segment0", "segment1"), List.of()));
+    routingTable.put(SERVER_2, Pair.of(List.of("segment2", "segment3"), List.of()));
+    return routingTable;
+  }
+
+  private static DataTable getDataTable(long count)
+      throws IOException {
+    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(
+        new DataSchema(new String[]{"count(*)"}, new ColumnDataType[]{ColumnDataType.LONG}));
+    dataTableBuilder.startRow();
+    dataTableBuilder.setColumn(0, count);
+    dataTableBuilder.finishRow();
+    return dataTableBuilder.build();
+  }
+
+  private static ServerResponse getServerResponse(DataTable dataTable) {
+    ServerResponse serverResponse = mock(ServerResponse.class);
+    when(serverResponse.getDataTable()).thenReturn(dataTable);
+    return serverResponse;
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentmetadata;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+public class TableRowCountManagerTest {
+  private static final String TABLE_NAME_WITH_TYPE = "testTable_OFFLINE";
+
+  @Test
+  public void testTableRowCount() {
+    IdealState idealState = new IdealState(TABLE_NAME_WITH_TYPE);
+    ExternalView externalView = new ExternalView(TABLE_NAME_WITH_TYPE);
+    TableRowCountManager tableRowCountManager = new TableRowCountManager();
+
+    // Consuming segment (without total docs) and missing ZK metadata should not be counted
+    tableRowCountManager.init(idealState, externalView, List.of("seg0", "seg1", "seg2", "seg3"),
+        Arrays.asList(getZNRecord("seg0", 100), getZNRecord("seg1", 200), new ZNRecord("seg2"), null));
+    assertEquals(tableRowCountManager.getTableRowCount(), 300);
+
+    // Remove seg0, and add seg4
+    tableRowCountManager.onAssignmentChange(idealState, externalView, Set.of("seg1", "seg2", "seg3", "seg4"),
+        List.of("seg4"), List.of(getZNRecord("seg4", 50)));
+    assertEquals(tableRowCountManager.getTableRowCount(), 250);
+
+    // Refresh seg1
+    tableRowCountManager.refreshSegment("seg1", getZNRecord("seg1", 500));
+    assertEquals(tableRowCountManager.getTableRowCount(), 550);
+  }
+
+  private static ZNRecord getZNRecord(String segment, long totalDocs) {
+    ZNRecord znRecord = new ZNRecord(segment);
+    znRecord.setLongField(CommonConstants.Segment.TOTAL_DOCS, totalDocs);
+    return znRecord;
+  }
+}
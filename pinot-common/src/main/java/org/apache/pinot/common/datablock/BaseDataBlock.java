@@ -22,8 +22,10 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
@@ -439,6 +441,7 @@ public abstract class BaseDataBlock implements DataBlock {
     UnsynchronizedByteArrayOutputStream byteArrayOutputStream = new UnsynchronizedByteArrayOutputStream(8192);
     DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
     writeLeadingSections(dataOutputStream);
+    writeDataSections(dataOutputStream);
 
     // Write metadata: length followed by actual metadata bytes.
     // NOTE: We ignore metadata serialization time in "responseSerializationCpuTimeNs" as it's negligible while
@@ -448,6 +451,36 @@ public abstract class BaseDataBlock implements DataBlock {
     return byteArrayOutputStream.toByteArray();
   }
 
+  /**
+   * Serialize this data block into a list of byte buffers, which concatenated are the same as {@link #toBytes()}.
+   * <p>
+   * Unlike {@link #toBytes()}, the fixed size and variable size data sections (usually the bulk of the block) are not
+   * copied: the returned buffers wrap the arrays backing this block, and must not be modified.
+   */
+  @Override
+  public List<ByteBuffer> serialize()
+      throws IOException {
+    List<ByteBuffer> buffers = new ArrayList<>(4);
+    UnsynchronizedByteArrayOutputStream byteArrayOutputStream = new UnsynchronizedByteArrayOutputStream(8192);
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    writeLeadingSections(dataOutputStream);
+    buffers.add(ByteBuffer.wrap(byteArrayOutputStream.toByteArray()));
+    if (_fixedSizeDataBytes != null && _fixedSizeDataBytes.length != 0) {
+      buffers.add(ByteBuffer.wrap(_fixedSizeDataBytes));
+    }
+    if (_variableSizeDataBytes != null && _variableSizeDataBytes.length != 0) {
+      buffers.add(ByteBuffer.wrap(_variableSizeDataBytes));
+    }
+    byteArrayOutputStream = new UnsynchronizedByteArrayOutputStream(1024);
+    dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    serializeMetadata(dataOutputStream);
+    buffers.add(ByteBuffer.wrap(byteArrayOutputStream.toByteArray()));
+    return buffers;
+  }
+
+  /**
+   * Writes the header, and the exceptions, dictionary and data schema sections.
+   */
   private void writeLeadingSections(DataOutputStream dataOutputStream)
       throws IOException {
     dataOutputStream.writeInt(getDataBlockVersionType());
@@ -512,6 +545,13 @@ public abstract class BaseDataBlock implements DataBlock {
     if (dataSchemaBytes != null) {
       dataOutputStream.write(dataSchemaBytes);
     }
+  }
+
+  /**
+   * Writes the fixed size and variable size data sections.
+   */
+  private void writeDataSections(DataOutputStream dataOutputStream)
+      throws IOException {
     // Write fixed size data bytes.
     if (_fixedSizeDataBytes != null) {
       dataOutputStream.write(_fixedSizeDataBytes);
@@ -20,6 +20,9 @@ package org.apache.pinot.common.datablock;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.CustomObject;
@@ -45,6 +48,16 @@ public interface DataBlock {
   byte[] toBytes()
       throws IOException;
 
+  /**
+   * Serializes the data block into a list of byte buffers, which concatenated are the same as {@link #toBytes()}.
+   * Implementations can avoid copying the data by wrapping their internal buffers, so the returned buffers must not be
+   * modified.
+   */
+  default List<ByteBuffer> serialize()
+      throws IOException {
+    return Collections.singletonList(ByteBuffer.wrap(toBytes()));
+  }
+
   // --------------------------------------------------------------------------
   // The following APIs are copied from {@link DataTable} and will be deprecated soon.
   // --------------------------------------------------------------------------
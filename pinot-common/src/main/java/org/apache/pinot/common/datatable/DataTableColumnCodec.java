@@ -0,0 +1,534 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.common.datatable;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.spi.utils.BigDecimalUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * Encodes and decodes the values of a single column of {@link DataTableImplV5}.
+ *
+ * The in-memory values of a column are kept in a Java array based on the stored type of the column:
+ * <ul>
+ *   <li>INT: int[], LONG: long[], FLOAT: float[], DOUBLE: double[], BIG_DECIMAL: BigDecimal[]</li>
+ *   <li>STRING: String[], BYTES: byte[][], OBJECT/UNKNOWN: CustomObject[] (null for null values)</li>
+ *   <li>INT_ARRAY: int[][], LONG_ARRAY: long[][], FLOAT_ARRAY: float[][], DOUBLE_ARRAY: double[][],
+ *   STRING_ARRAY: String[][]</li>
+ * </ul>
+ *
+ * Encodings:
+ * <ul>
+ *   <li>INT/LONG values are bit-packed, either as the offsets to the min value, or as the offsets of the deltas
+ *   between consecutive values to the min delta, whichever takes fewer bits.</li>
+ *   <li>STRING values are dictionary encoded with a per-column dictionary, and the dictionary ids are bit-packed.</li>
+ *   <li>FLOAT/DOUBLE values are stored as is.</li>
+ *   <li>Variable size values (BIG_DECIMAL, BYTES, OBJECT) and arrays store the bit-packed lengths followed by the
+ *   concatenated values.</li>
+ * </ul>
+ */
+final class DataTableColumnCodec {
+  private DataTableColumnCodec() {
+  }
+
+  private static final byte BIT_PACKED = 0;
+  private static final byte DELTA_BIT_PACKED = 1;
+
+  // --------------------------------------------------------------------------
+  // Encoding
+  // --------------------------------------------------------------------------
+
+  static byte[] encode(ColumnDataType storedType, Object values, int numRows)
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    switch (storedType) {
+      case INT:
+        writeInts(dataOutputStream, (int[]) values, numRows);
+        break;
+      case LONG:
+        writeLongs(dataOutputStream, (long[]) values, numRows);
+        break;
+      case FLOAT:
+        writeFloats(dataOutputStream, (float[]) values, numRows);
+        break;
+      case DOUBLE:
+        writeDoubles(dataOutputStream, (double[]) values, numRows);
+        break;
+      case BIG_DECIMAL: {
+        BigDecimal[] bigDecimals = (BigDecimal[]) values;
+        byte[][] bytes = new byte[numRows][];
+        for (int i = 0; i < numRows; i++) {
+          bytes[i] = BigDecimalUtils.serialize(bigDecimals[i]);
+        }
+        writeBytes(dataOutputStream, bytes, numRows);
+        break;
+      }
+      case STRING:
+        writeStrings(dataOutputStream, (String[]) values, numRows);
+        break;
+      case BYTES:
+        writeBytes(dataOutputStream, (byte[][]) values, numRows);
+        break;
+      case OBJECT:
+      case UNKNOWN:
+        writeCustomObjects(dataOutputStream, (CustomObject[]) values, numRows);
+        break;
+      case INT_ARRAY: {
+        int[][] intArrays = (int[][]) values;
+        int numValues = writeLengths(dataOutputStream, intArrays, numRows);
+        int[] flattened = new int[numValues];
+        int offset = 0;
+        for (int i = 0; i < numRows; i++) {
+          System.arraycopy(intArrays[i], 0, flattened, offset, intArrays[i].length);
+          offset += intArrays[i].length;
+        }
+        writeInts(dataOutputStream, flattened, numValues);
+        break;
+      }
+      case LONG_ARRAY: {
+        long[][] longArrays = (long[][]) values;
+        int numValues = writeLengths(dataOutputStream, longArrays, numRows);
+        long[] flattened = new long[numValues];
+        int offset = 0;
+        for (int i = 0; i < numRows; i++) {
+          System.arraycopy(longArrays[i], 0, flattened, offset, longArrays[i].length);
+          offset += longArrays[i].length;
+        }
+        writeLongs(dataOutputStream, flattened, numValues);
+        break;
+      }
+      case FLOAT_ARRAY: {
+        float[][] floatArrays = (float[][]) values;
+        writeLengths(dataOutputStream, floatArrays, numRows);
+        for (int i = 0; i < numRows; i++) {
+          writeFloats(dataOutputStream, floatArrays[i], floatArrays[i].length);
+        }
+        break;
+      }
+      case DOUBLE_ARRAY: {
+        double[][] doubleArrays = (double[][]) values;
+        writeLengths(dataOutputStream, doubleArrays, numRows);
+        for (int i = 0; i < numRows; i++) {
+          writeDoubles(dataOutputStream, doubleArrays[i], doubleArrays[i].length);
+        }
+        break;
+      }
+      case STRING_ARRAY: {
+        String[][] stringArrays = (String[][]) values;
+        int numValues = writeLengths(dataOutputStream, stringArrays, numRows);
+        String[] flattened = new String[numValues];
+        int offset = 0;
+        for (int i = 0; i < numRows; i++) {
+          System.arraycopy(stringArrays[i], 0, flattened, offset, stringArrays[i].length);
+          offset += stringArrays[i].length;
+        }
+        writeStrings(dataOutputStream, flattened, numValues);
+        break;
+      }
+      case BYTES_ARRAY:
+        // TODO: Support MV BYTES
+        break;
+      default:
+        throw new IllegalStateException("Unsupported stored type: " + storedType);
+    }
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  private static void writeInts(DataOutputStream dataOutputStream, int[] values, int numValues)
+      throws IOException {
+    long[] longValues = new long[numValues];
+    for (int i = 0; i < numValues; i++) {
+      longValues[i] = values[i];
+    }
+    writeLongs(dataOutputStream, longValues, numValues);
+  }
+
+  private static void writeLongs(DataOutputStream dataOutputStream, long[] values, int numValues)
+      throws IOException {
+    if (numValues == 0) {
+      return;
+    }
+    long minValue = values[0];
+    long maxValue = values[0];
+    for (int i = 1; i < numValues; i++) {
+      minValue = Math.min(minValue, values[i]);
+      maxValue = Math.max(maxValue, values[i]);
+    }
+    int numBits = numBitsRequired(maxValue - minValue);
+    if (numValues > 1 && numBits > 0) {
+      // NOTE: Deltas might overflow, but the wrapped values are still decoded correctly
+      long[] deltas = new long[numValues - 1];
+      long minDelta = Long.MAX_VALUE;
+      long maxDelta = Long.MIN_VALUE;
+      for (int i = 1; i < numValues; i++) {
+        long delta = values[i] - values[i - 1];
+        deltas[i - 1] = delta;
+        minDelta = Math.min(minDelta, delta);
+        maxDelta = Math.max(maxDelta, delta);
+      }
+      int numBitsForDeltas = numBitsRequired(maxDelta - minDelta);
+      if (numBitsForDeltas < numBits) {
+        dataOutputStream.writeByte(DELTA_BIT_PACKED);
+        dataOutputStream.writeLong(values[0]);
+        dataOutputStream.writeLong(minDelta);
+        dataOutputStream.writeByte(numBitsForDeltas);
+        writeBitPacked(dataOutputStream, deltas, numValues - 1, minDelta, numBitsForDeltas);
+        return;
+      }
+    }
+    dataOutputStream.writeByte(BIT_PACKED);
+    dataOutputStream.writeLong(minValue);
+    dataOutputStream.writeByte(numBits);
+    writeBitPacked(dataOutputStream, values, numValues, minValue, numBits);
+  }
+
+  /**
+   * Returns the number of bits required to store the given unsigned value.
+   */
+  private static int numBitsRequired(long unsignedValue) {
+    return Long.SIZE - Long.numberOfLeadingZeros(unsignedValue);
+  }
+
+  private static void writeBitPacked(DataOutputStream dataOutputStream, long[] values, int numValues, long base,
+      int numBits)
+      throws IOException {
+    if (numBits == 0) {
+      return;
+    }
+    long[] words = new long[(int) (((long) numValues * numBits + Long.SIZE - 1) >>> 6)];
+    long bitOffset = 0;
+    for (int i = 0; i < numValues; i++) {
+      long value = values[i] - base;
+      int wordIndex = (int) (bitOffset >>> 6);
+      int shift = (int) (bitOffset & 63);
+      words[wordIndex] |= value << shift;
+      if (shift + numBits > Long.SIZE) {
+        words[wordIndex + 1] |= value >>> (Long.SIZE - shift);
+      }
+      bitOffset += numBits;
+    }
+    for (long word : words) {
+      dataOutputStream.writeLong(word);
+    }
+  }
+
+  private static void writeFloats(DataOutputStream dataOutputStream, float[] values, int numValues)
+      throws IOException {
+    for (int i = 0; i < numValues; i++) {
+      dataOutputStream.writeFloat(values[i]);
+    }
+  }
+
+  private static void writeDoubles(DataOutputStream dataOutputStream, double[] values, int numValues)
+      throws IOException {
+    for (int i = 0; i < numValues; i++) {
+      dataOutputStream.writeDouble(values[i]);
+    }
+  }
+
+  private static void writeStrings(DataOutputStream dataOutputStream, String[] values, int numValues)
+      throws IOException {
+    if (numValues == 0) {
+      return;
+    }
+    Object2IntOpenHashMap<String> dictionary = new Object2IntOpenHashMap<>();
+    List<String> dictionaryValues = new ArrayList<>();
+    int[] dictIds = new int[numValues];
+    for (int i = 0; i < numValues; i++) {
+      dictIds[i] = dictionary.computeIntIfAbsent(values[i], k -> {
+        dictionaryValues.add(k);
+        return dictionaryValues.size() - 1;
+      });
+    }
+    dataOutputStream.writeInt(dictionaryValues.size());
+    for (String value : dictionaryValues) {
+      byte[] valueBytes = value.getBytes(UTF_8);
+      dataOutputStream.writeInt(valueBytes.length);
+      dataOutputStream.write(valueBytes);
+    }
+    writeInts(dataOutputStream, dictIds, numValues);
+  }
+
+  private static void writeBytes(DataOutputStream dataOutputStream, byte[][] values, int numValues)
+      throws IOException {
+    int[] lengths = new int[numValues];
+    for (int i = 0; i < numValues; i++) {
+      lengths[i] = values[i].length;
+    }
+    writeInts(dataOutputStream, lengths, numValues);
+    for (int i = 0; i < numValues; i++) {
+      dataOutputStream.write(values[i]);
+    }
+  }
+
+  private static void writeCustomObjects(DataOutputStream dataOutputStream, CustomObject[] values, int numValues)
+      throws IOException {
+    int[] types = new int[numValues];
+    byte[][] bytes = new byte[numValues][];
+    for (int i = 0; i < numValues; i++) {
+      CustomObject customObject = values[i];
+      if (customObject == null) {
+        types[i] = CustomObject.NULL_TYPE_VALUE;
+        bytes[i] = new byte[0];
+      } else {
+        types[i] = customObject.getType();
+        ByteBuffer buffer = customObject.getBuffer().duplicate();
+        bytes[i] = new byte[buffer.remaining()];
+        buffer.get(bytes[i]);
+      }
+    }
+    writeInts(dataOutputStream, types, numValues);
+    writeBytes(dataOutputStream, bytes, numValues);
+  }
+
+  /**
+   * Writes the lengths of the given arrays, and returns the total number of values within the arrays.
+   */
+  private static int writeLengths(DataOutputStream dataOutputStream, Object[] arrays, int numRows)
+      throws IOException {
+    int[] lengths = new int[numRows];
+    int numValues = 0;
+    for (int i = 0; i < numRows; i++) {
+      lengths[i] = Array.getLength(arrays[i]);
+      numValues += lengths[i];
+    }
+    writeInts(dataOutputStream, lengths, numRows);
+    return numValues;
+  }
+
+  // --------------------------------------------------------------------------
+  // Decoding
+  // --------------------------------------------------------------------------
+
+  static Object decode(ColumnDataType storedType, ByteBuffer buffer, int numRows) {
+    switch (storedType) {
+      case INT:
+        return readInts(buffer, numRows);
+      case LONG:
+        return readLongs(buffer, numRows);
+      case FLOAT:
+        return readFloats(buffer, numRows);
+      case DOUBLE:
+        return readDoubles(buffer, numRows);
+      case BIG_DECIMAL: {
+        byte[][] bytes = readBytes(buffer, numRows);
+        BigDecimal[] bigDecimals = new BigDecimal[numRows];
+        for (int i = 0; i < numRows; i++) {
+          bigDecimals[i] = BigDecimalUtils.deserialize(bytes[i]);
+        }
+        return bigDecimals;
+      }
+      case STRING:
+        return readStrings(buffer, numRows);
+      case BYTES:
+        return readBytes(buffer, numRows);
+      case OBJECT:
+      case UNKNOWN: {
+        int[] types = readInts(buffer, numRows);
+        byte[][] bytes = readBytes(buffer, numRows);
+        CustomObject[] customObjects = new CustomObject[numRows];
+        for (int i = 0; i < numRows; i++) {
+          if (types[i] != CustomObject.NULL_TYPE_VALUE) {
+            customObjects[i] = new CustomObject(types[i], ByteBuffer.wrap(bytes[i]));
+          }
+        }
+        return customObjects;
+      }
+      case INT_ARRAY: {
+        int[] lengths = readInts(buffer, numRows);
+        int[] flattened = readInts(buffer, sum(lengths));
+        int[][] intArrays = new int[numRows][];
+        int offset = 0;
+        for (int i = 0; i < numRows; i++) {
+          intArrays[i] = new int[lengths[i]];
+          System.arraycopy(flattened, offset, intArrays[i], 0, lengths[i]);
+          offset += lengths[i];
+        }
+        return intArrays;
+      }
+      case LONG_ARRAY: {
+        int[] lengths = readInts(buffer, numRows);
+        long[] flattened = readLongs(buffer, sum(lengths));
+        long[][] longArrays = new long[numRows][];
+        int offset = 0;
+        for (int i = 0; i < numRows; i++) {
+          longArrays[i] = new long[lengths[i]];
+          System.arraycopy(flattened, offset, longArrays[i], 0, lengths[i]);
+          offset += lengths[i];
+        }
+        return longArrays;
+      }
+      case FLOAT_ARRAY: {
+        int[] lengths = readInts(buffer, numRows);
+        float[][] floatArrays = new float[numRows][];
+        for (int i = 0; i < numRows; i++) {
+          floatArrays[i] = readFloats(buffer, lengths[i]);
+        }
+        return floatArrays;
+      }
+      case DOUBLE_ARRAY: {
+        int[] lengths = readInts(buffer, numRows);
+        double[][] doubleArrays = new double[numRows][];
+        for (int i = 0; i < numRows; i++) {
+          doubleArrays[i] = readDoubles(buffer, lengths[i]);
+        }
+        return doubleArrays;
+      }
+      case STRING_ARRAY: {
+        int[] lengths = readInts(buffer, numRows);
+        String[] flattened = readStrings(buffer, sum(lengths));
+        String[][] stringArrays = new String[numRows][];
+        int offset = 0;
+        for (int i = 0; i < numRows; i++) {
+          stringArrays[i] = new String[lengths[i]];
+          System.arraycopy(flattened, offset, stringArrays[i], 0, lengths[i]);
+          offset += lengths[i];
+        }
+        return stringArrays;
+      }
+      case BYTES_ARRAY:
+        // TODO: Support MV BYTES
+        return null;
+      default:
+        throw new IllegalStateException("Unsupported stored type: " + storedType);
+    }
+  }
+
+  private static int sum(int[] lengths) {
+    int sum = 0;
+    for (int length : lengths) {
+      sum += length;
+    }
+    return sum;
+  }
+
+  private static int[] readInts(ByteBuffer buffer, int numValues) {
+    long[] longValues = readLongs(buffer, numValues);
+    int[] values = new int[numValues];
+    for (int i = 0; i < numValues; i++) {
+      values[i] = (int) longValues[i];
+    }
+    return values;
+  }
+
+  private static long[] readLongs(ByteBuffer buffer, int numValues) {
+    long[] values = new long[numValues];
+    if (numValues == 0) {
+      return values;
+    }
+    byte encoding = buffer.get();
+    if (encoding == DELTA_BIT_PACKED) {
+      long firstValue = buffer.getLong();
+      long minDelta = buffer.getLong();
+      int numBits = buffer.get();
+      values[0] = firstValue;
+      readBitPacked(buffer, values, 1, numValues - 1, minDelta, numBits);
+      for (int i = 1; i < numValues; i++) {
+        values[i] += values[i - 1];
+      }
+    } else {
+      long minValue = buffer.getLong();
+      int numBits = buffer.get();
+      readBitPacked(buffer, values, 0, numValues, minValue, numBits);
+    }
+    return values;
+  }
+
+  private static void readBitPacked(ByteBuffer buffer, long[] values, int startIndex, int numValues, long base,
+      int numBits) {
+    if (numBits == 0) {
+      for (int i = 0; i < numValues; i++) {
+        values[startIndex + i] = base;
+      }
+      return;
+    }
+    long[] words = new long[(int) (((long) numValues * numBits + Long.SIZE - 1) >>> 6)];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = buffer.getLong();
+    }
+    long mask = numBits == Long.SIZE ? -1L : (1L << numBits) - 1;
+    long bitOffset = 0;
+    for (int i = 0; i < numValues; i++) {
+      int wordIndex = (int) (bitOffset >>> 6);
+      int shift = (int) (bitOffset & 63);
+      long value = words[wordIndex] >>> shift;
+      if (shift + numBits > Long.SIZE) {
+        value |= words[wordIndex + 1] << (Long.SIZE - shift);
+      }
+      values[startIndex + i] = base + (value & mask);
+      bitOffset += numBits;
+    }
+  }
+
+  private static float[] readFloats(ByteBuffer buffer, int numValues) {
+    float[] values = new float[numValues];
+    for (int i = 0; i < numValues; i++) {
+      values[i] = buffer.getFloat();
+    }
+    return values;
+  }
+
+  private static double[] readDoubles(ByteBuffer buffer, int numValues) {
+    double[] values = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      values[i] = buffer.getDouble();
+    }
+    return values;
+  }
+
+  private static String[] readStrings(ByteBuffer buffer, int numValues) {
+    if (numValues == 0) {
+      return new String[0];
+    }
+    int dictionarySize = buffer.getInt();
+    String[] dictionary = new String[dictionarySize];
+    for (int i = 0; i < dictionarySize; i++) {
+      dictionary[i] = DataTableUtils.decodeString(buffer);
+    }
+    int[] dictIds = readInts(buffer, numValues);
+    String[] values = new String[numValues];
+    for (int i = 0; i < numValues; i++) {
+      values[i] = dictionary[dictIds[i]];
+    }
+    return values;
+  }
+
+  private static byte[][] readBytes(ByteBuffer buffer, int numValues) {
+    int[] lengths = readInts(buffer, numValues);
+    byte[][] values = new byte[numValues][];
+    for (int i = 0; i < numValues; i++) {
+      values[i] = new byte[lengths[i]];
+      buffer.get(values[i]);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,559 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.common.datatable;
+
+import com.github.luben.zstd.Zstd;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4Factory;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.response.ProcessingException;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.HashUtil;
+import org.apache.pinot.common.utils.RoaringBitmapUtils;
+import org.apache.pinot.spi.accounting.ThreadResourceUsageProvider;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.roaringbitmap.RoaringBitmap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * Datatable V5 implementation.
+ *
+ * Unlike V4 which stores the values row by row, V5 stores the values column by column, where each column is encoded
+ * based on its data type (see {@link DataTableColumnCodec}), and can be optionally compressed with LZ4 or ZSTD. Each
+ * column is compressed separately and only decompressed and decoded when it is accessed for the first time, so that
+ * the reader doesn't pay for the columns it doesn't read.
+ *
+ * The layout of serialized V5 datatable looks like:
+ * +-----------------------------------------------+
+ * | 4 integers of header:                         |
+ * | VERSION                                       |
+ * | NUM_ROWS                                      |
+ * | NUM_COLUMNS                                   |
+ * | COMPRESSION TYPE ID                           |
+ * +-----------------------------------------------+
+ * | EXCEPTIONS SECTION LENGTH                     |
+ * | EXCEPTIONS SECTION                            |
+ * +-----------------------------------------------+
+ * | DATA_SCHEMA SECTION LENGTH                    |
+ * | DATA_SCHEMA SECTION                           |
+ * +-----------------------------------------------+
+ * | For each column:                              |
+ * | COLUMN LENGTH                                 |
+ * | UNCOMPRESSED COLUMN LENGTH                    |
+ * | NULL BITMAP LENGTH                            |
+ * | COLUMN SECTION                                |
+ * | NULL BITMAP SECTION                           |
+ * +-----------------------------------------------+
+ * | METADATA LENGTH                               |
+ * | METADATA SECTION                              |
+ * +-----------------------------------------------+
+ * A column is stored uncompressed when the compressed column is not smaller than the uncompressed one.
+ */
+public class DataTableImplV5 implements DataTable {
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+  /**
+   * Block compression applied to each column when serializing the data table.
+   */
+  public enum CompressionType {
+    NONE(0), LZ4(1), ZSTD(2);
+
+    private final int _id;
+
+    CompressionType(int id) {
+      _id = id;
+    }
+
+    public int getId() {
+      return _id;
+    }
+
+    public static CompressionType fromId(int id) {
+      for (CompressionType compressionType : values()) {
+        if (compressionType._id == id) {
+          return compressionType;
+        }
+      }
+      throw new IllegalArgumentException("Unsupported compression type id: " + id);
+    }
+  }
+
+  // _errCodeToExceptionMap stores exceptions as a map of errorCode->errorMessage
+  protected final Map<Integer, String> _errCodeToExceptionMap;
+  protected final Map<String, String> _metadata;
+  protected final int _numRows;
+  protected final DataSchema _dataSchema;
+  protected final DataSchema.ColumnDataType[] _storedTypes;
+  // Decoded column values, lazily filled from the serialized columns on the reader side
+  protected final Object[] _columnValues;
+  protected final RoaringBitmap[] _nullRowIds;
+  protected final byte[][] _serializedColumns;
+  protected final int[] _uncompressedColumnSizes;
+  protected final CompressionType _serializedCompressionType;
+  protected CompressionType _compressionType = CompressionType.NONE;
+
+  public DataTableImplV5() {
+    _errCodeToExceptionMap = new HashMap<>();
+    _metadata = new HashMap<>();
+    _numRows = 0;
+    _dataSchema = null;
+    _storedTypes = null;
+    _columnValues = null;
+    _nullRowIds = null;
+    _serializedColumns = null;
+    _uncompressedColumnSizes = null;
+    _serializedCompressionType = CompressionType.NONE;
+  }
+
+  /**
+   * Constructs the data table from the decoded column values (see {@link DataTableColumnCodec} for the value format).
+   */
+  public DataTableImplV5(int numRows, DataSchema dataSchema, Object[] columnValues, RoaringBitmap[] nullRowIds) {
+    _errCodeToExceptionMap = new HashMap<>();
+    _metadata = new HashMap<>();
+    _numRows = numRows;
+    _dataSchema = dataSchema;
+    _storedTypes = dataSchema.getStoredColumnDataTypes();
+    _columnValues = columnValues;
+    _nullRowIds = nullRowIds;
+    _serializedColumns = null;
+    _uncompressedColumnSizes = null;
+    _serializedCompressionType = CompressionType.NONE;
+  }
+
+  public DataTableImplV5(ByteBuffer byteBuffer)
+      throws IOException {
+    // Read header.
+    _numRows = byteBuffer.getInt();
+    int numColumns = byteBuffer.getInt();
+    _serializedCompressionType = CompressionType.fromId(byteBuffer.getInt());
+
+    // Read exceptions.
+    int exceptionsLength = byteBuffer.getInt();
+    if (exceptionsLength != 0) {
+      _errCodeToExceptionMap = deserializeExceptions(byteBuffer);
+    } else {
+      _errCodeToExceptionMap = new HashMap<>();
+    }
+
+    // Read data schema.
+    int dataSchemaLength = byteBuffer.getInt();
+    if (dataSchemaLength != 0) {
+      int dataSchemaEnd = byteBuffer.position() + dataSchemaLength;
+      _dataSchema = DataSchema.fromBytes(byteBuffer);
+      byteBuffer.position(dataSchemaEnd);
+      _storedTypes = _dataSchema.getStoredColumnDataTypes();
+      _columnValues = new Object[numColumns];
+      _nullRowIds = new RoaringBitmap[numColumns];
+      _serializedColumns = new byte[numColumns][];
+      _uncompressedColumnSizes = new int[numColumns];
+    } else {
+      _dataSchema = null;
+      _storedTypes = null;
+      _columnValues = null;
+      _nullRowIds = null;
+      _serializedColumns = null;
+      _uncompressedColumnSizes = null;
+    }
+
+    // Read columns. Only copy the serialized bytes here because the buffer might be released after the data table is
+    // deserialized, and decode them on the first access.
+    for (int colId = 0; colId < numColumns; colId++) {
+      int columnLength = byteBuffer.getInt();
+      _uncompressedColumnSizes[colId] = byteBuffer.getInt();
+      int nullBitmapLength = byteBuffer.getInt();
+      _serializedColumns[colId] = new byte[columnLength];
+      byteBuffer.get(_serializedColumns[colId]);
+      if (nullBitmapLength > 0) {
+        byte[] nullBitmapBytes = new byte[nullBitmapLength];
+        byteBuffer.get(nullBitmapBytes);
+        _nullRowIds[colId] = RoaringBitmapUtils.deserialize(nullBitmapBytes);
+      }
+    }
+
+    // Read metadata.
+    int metadataLength = byteBuffer.getInt();
+    if (metadataLength != 0) {
+      _metadata = deserializeMetadata(byteBuffer);
+    } else {
+      _metadata = new HashMap<>();
+    }
+  }
+
+  @Override
+  public int getVersion() {
+    return DataTableFactory.VERSION_5;
+  }
+
+  /**
+   * Sets the compression applied to the columns when serializing the data table.
+   */
+  public void setCompressionType(CompressionType compressionType) {
+    _compressionType = compressionType;
+  }
+
+  @Override
+  public Map<String, String> getMetadata() {
+    return _metadata;
+  }
+
+  @Override
+  public DataSchema getDataSchema() {
+    return _dataSchema;
+  }
+
+  @Override
+  public int getNumberOfRows() {
+    return _numRows;
+  }
+
+  /**
+   * Returns the decoded values of the given column, where the column is decompressed and decoded on the first access.
+   */
+  protected Object getColumnValues(int colId) {
+    Object values = _columnValues[colId];
+    if (values == null && _serializedColumns != null && _serializedColumns[colId] != null) {
+      values = DataTableColumnCodec.decode(_storedTypes[colId], ByteBuffer.wrap(decompressColumn(colId)), _numRows);
+      _columnValues[colId] = values;
+      _serializedColumns[colId] = null;
+    }
+    return values;
+  }
+
+  private byte[] decompressColumn(int colId) {
+    byte[] serializedColumn = _serializedColumns[colId];
+    int uncompressedSize = _uncompressedColumnSizes[colId];
+    if (serializedColumn.length == uncompressedSize) {
+      return serializedColumn;
+    }
+    switch (_serializedCompressionType) {
+      case LZ4:
+        return LZ4_FACTORY.fastDecompressor().decompress(serializedColumn, uncompressedSize);
+      case ZSTD:
+        return Zstd.decompress(serializedColumn, uncompressedSize);
+      default:
+        throw new IllegalStateException("Unsupported compression type: " + _serializedCompressionType);
+    }
+  }
+
+  @Override
+  public int getInt(int rowId, int colId) {
+    return ((int[]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public long getLong(int rowId, int colId) {
+    return ((long[]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public float getFloat(int rowId, int colId) {
+    return ((float[]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public double getDouble(int rowId, int colId) {
+    return ((double[]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(int rowId, int colId) {
+    return ((BigDecimal[]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public String getString(int rowId, int colId) {
+    return ((String[]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public ByteArray getBytes(int rowId, int colId) {
+    return new ByteArray(((byte[][]) getColumnValues(colId))[rowId]);
+  }
+
+  @Override
+  public int[] getIntArray(int rowId, int colId) {
+    return ((int[][]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public long[] getLongArray(int rowId, int colId) {
+    return ((long[][]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public float[] getFloatArray(int rowId, int colId) {
+    return ((float[][]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public double[] getDoubleArray(int rowId, int colId) {
+    return ((double[][]) getColumnValues(colId))[rowId];
+  }
+
+  @Override
+  public String[] getStringArray(int rowId, int colId) {
+    return ((String[][]) getColumnValues(colId))[rowId];
+  }
+
+  @Nullable
+  @Override
+  public CustomObject getCustomObject(int rowId, int colId) {
+    CustomObject customObject = ((CustomObject[]) getColumnValues(colId))[rowId];
+    if (customObject == null) {
+      return null;
+    }
+    // Duplicate the buffer so that the value can be read multiple times
+    return new CustomObject(customObject.getType(), customObject.getBuffer().duplicate());
+  }
+
+  @Nullable
+  @Override
+  public RoaringBitmap getNullRowIds(int colId) {
+    return _nullRowIds != null ? _nullRowIds[colId] : null;
+  }
+
+  @Override
+  public void addException(ProcessingException processingException) {
+    _errCodeToExceptionMap.put(processingException.getErrorCode(), processingException.getMessage());
+  }
+
+  @Override
+  public void addException(int errCode, String errMsg) {
+    _errCodeToExceptionMap.put(errCode, errMsg);
+  }
+
+  @Override
+  public Map<Integer, String> getExceptions() {
+    return _errCodeToExceptionMap;
+  }
+
+  // --------------------------------------------------------------------------
+  // Ser/De
+  // --------------------------------------------------------------------------
+
+  @Override
+  public byte[] toBytes()
+      throws IOException {
+    ThreadResourceUsageProvider threadTimer = new ThreadResourceUsageProvider();
+
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    int numColumns = _dataSchema != null ? _dataSchema.size() : 0;
+    dataOutputStream.writeInt(getVersion());
+    dataOutputStream.writeInt(_numRows);
+    dataOutputStream.writeInt(numColumns);
+    dataOutputStream.writeInt(_compressionType.getId());
+
+    // Write exceptions.
+    byte[] exceptionsBytes = serializeExceptions();
+    dataOutputStream.writeInt(exceptionsBytes.length);
+    dataOutputStream.write(exceptionsBytes);
+
+    // Write data schema.
+    if (_dataSchema != null) {
+      byte[] dataSchemaBytes = _dataSchema.toBytes();
+      dataOutputStream.writeInt(dataSchemaBytes.length);
+      dataOutputStream.write(dataSchemaBytes);
+    } else {
+      dataOutputStream.writeInt(0);
+    }
+
+    // Write columns.
+    for (int colId = 0; colId < numColumns; colId++) {
+      byte[] columnBytes = DataTableColumnCodec.encode(_storedTypes[colId], getColumnValues(colId), _numRows);
+      byte[] compressedColumnBytes = compressColumn(columnBytes);
+      RoaringBitmap nullRowIds = getNullRowIds(colId);
+      byte[] nullBitmapBytes =
+          nullRowIds != null && !nullRowIds.isEmpty() ? RoaringBitmapUtils.serialize(nullRowIds) : null;
+      dataOutputStream.writeInt(compressedColumnBytes.length);
+      dataOutputStream.writeInt(columnBytes.length);
+      dataOutputStream.writeInt(nullBitmapBytes != null ? nullBitmapBytes.length : 0);
+      dataOutputStream.write(compressedColumnBytes);
+      if (nullBitmapBytes != null) {
+        dataOutputStream.write(nullBitmapBytes);
+      }
+    }
+
+    // Add table serialization time metadata if thread timer is enabled.
+    if (ThreadResourceUsageProvider.isThreadCpuTimeMeasurementEnabled()) {
+      long responseSerializationCpuTimeNs = threadTimer.getThreadTimeNs();
+      getMetadata().put(MetadataKey.RESPONSE_SER_CPU_TIME_NS.getName(), String.valueOf(responseSerializationCpuTimeNs));
+    }
+
+    // Write metadata: length followed by actual metadata bytes.
+    byte[] metadataBytes = serializeMetadata();
+    dataOutputStream.writeInt(metadataBytes.length);
+    dataOutputStream.write(metadataBytes);
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * Compresses the column with the configured compression type, or returns the column as is when compression does not
+   * reduce its size.
+   */
+  private byte[] compressColumn(byte[] columnBytes) {
+    byte[] compressedColumnBytes;
+    switch (_compressionType) {
+      case NONE:
+        return columnBytes;
+      case LZ4:
+        compressedColumnBytes = LZ4_FACTORY.fastCompressor().compress(columnBytes);
+        break;
+      case ZSTD:
+        compressedColumnBytes = Zstd.compress(columnBytes);
+        break;
+      default:
+        throw new IllegalStateException("Unsupported compression type: " + _compressionType);
+    }
+    return compressedColumnBytes.length < columnBytes.length ? compressedColumnBytes : columnBytes;
+  }
+
+  /**
+   * Serializes the metadata in the same format as {@link DataTableImplV4}.
+   */
+  private byte[] serializeMetadata()
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+
+    dataOutputStream.writeInt(_metadata.size());
+
+    for (Map.Entry<String, String> entry : _metadata.entrySet()) {
+      MetadataKey key = MetadataKey.getByName(entry.getKey());
+      // Ignore unknown keys.
+      if (key == null) {
+        continue;
+      }
+      String value = entry.getValue();
+      dataOutputStream.writeInt(key.getId());
+      if (key.getValueType() == MetadataValueType.INT) {
+        dataOutputStream.write(Ints.toByteArray(Integer.parseInt(value)));
+      } else if (key.getValueType() == MetadataValueType.LONG) {
+        dataOutputStream.write(Longs.toByteArray(Long.parseLong(value)));
+      } else {
+        byte[] valueBytes = value.getBytes(UTF_8);
+        dataOutputStream.writeInt(valueBytes.length);
+        dataOutputStream.write(valueBytes);
+      }
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  private Map<String, String> deserializeMetadata(ByteBuffer buffer)
+      throws IOException {
+    int numEntries = buffer.getInt();
+    Map<String, String> metadata = new HashMap<>();
+    for (int i = 0; i < numEntries; i++) {
+      int keyId = buffer.getInt();
+      MetadataKey key = MetadataKey.getById(keyId);
+      // Ignore unknown keys.
+      if (key == null) {
+        continue;
+      }
+      if (key.getValueType() == MetadataValueType.INT) {
+        metadata.put(key.getName(), Integer.toString(buffer.getInt()));
+      } else if (key.getValueType() == MetadataValueType.LONG) {
+        metadata.put(key.getName(), Long.toString(buffer.getLong()));
+      } else {
+        metadata.put(key.getName(), DataTableUtils.decodeString(buffer));
+      }
+    }
+    return metadata;
+  }
+
+  private byte[] serializeExceptions()
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+
+    dataOutputStream.writeInt(_errCodeToExceptionMap.size());
+
+    for (Map.Entry<Integer, String> entry : _errCodeToExceptionMap.entrySet()) {
+      byte[] valueBytes = entry.getValue().getBytes(UTF_8);
+      dataOutputStream.writeInt(entry.getKey());
+      dataOutputStream.writeInt(valueBytes.length);
+      dataOutputStream.write(valueBytes);
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  private Map<Integer, String> deserializeExceptions(ByteBuffer buffer)
+      throws IOException {
+    int numExceptions = buffer.getInt();
+    Map<Integer, String> exceptions = new HashMap<>(HashUtil.getHashMapCapacity(numExceptions));
+    for (int i = 0; i < numExceptions; i++) {
+      int errCode = buffer.getInt();
+      String errMessage = DataTableUtils.decodeString(buffer);
+      exceptions.put(errCode, errMessage);
+    }
+    return exceptions;
+  }
+
+  @Override
+  public DataTable toMetadataOnlyDataTable() {
+    DataTableImplV5 metadataOnlyDataTable = new DataTableImplV5();
+    metadataOnlyDataTable._metadata.putAll(_metadata);
+    metadataOnlyDataTable._errCodeToExceptionMap.putAll(_errCodeToExceptionMap);
+    return metadataOnlyDataTable;
+  }
+
+  @Override
+  public DataTable toDataOnlyDataTable() {
+    if (_dataSchema == null) {
+      return new DataTableImplV5();
+    }
+    int numColumns = _dataSchema.size();
+    Object[] columnValues = new Object[numColumns];
+    for (int colId = 0; colId < numColumns; colId++) {
+      columnValues[colId] = getColumnValues(colId);
+    }
+    DataTableImplV5 dataOnlyDataTable = new DataTableImplV5(_numRows, _dataSchema, columnValues, _nullRowIds);
+    dataOnlyDataTable._compressionType = _compressionType;
+    return dataOnlyDataTable;
+  }
+
+  @Override
+  public String toString() {
+    if (_dataSchema == null) {
+      return _metadata.toString();
+    } else {
+      StringBuilder stringBuilder = new StringBuilder();
+      stringBuilder.append("resultSchema:").append('\n');
+      stringBuilder.append(_dataSchema).append('\n');
+      stringBuilder.append("numRows: ").append(_numRows).append('\n');
+      stringBuilder.append("metadata: ").append(_metadata.toString()).append('\n');
+      return stringBuilder.toString();
+    }
+  }
+}
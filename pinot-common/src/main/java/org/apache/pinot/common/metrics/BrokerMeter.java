@@ -116,6 +116,10 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   GROUP_BY_SIZE("queries", false),
   TOTAL_SERVER_RESPONSE_SIZE("queries", false),
 
+  // Track the server responses served from and missed in the broker partial result cache
+  PARTIAL_RESULT_CACHE_HITS("responses", false),
+  PARTIAL_RESULT_CACHE_MISSES("responses", false),
+
   QUERY_QUOTA_EXCEEDED("exceptions", false),
 
   // tracks a case a segment is not hosted by any server
@@ -56,6 +56,9 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   METADATA_TTL_PRIMARY_KEYS_REMOVED("rows", false),
   UPSERT_MISSED_VALID_DOC_ID_SNAPSHOT_COUNT("segments", false),
   UPSERT_PRELOAD_FAILURE("count", false),
+  UPSERT_CHECKPOINT_RESTORED_SEGMENTS("segments", false),
+  UPSERT_CHECKPOINT_RESTORED_ROWS("rows", false),
+  UPSERT_CHECKPOINT_MISSED_SEGMENTS("segments", false),
   ROWS_WITH_ERRORS("rows", false),
   LLC_CONTROLLER_RESPONSE_NOT_SENT("messages", true),
   LLC_CONTROLLER_RESPONSE_COMMIT("messages", true),
@@ -119,6 +122,13 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   TOTAL_THREAD_CPU_TIME_MILLIS("millis", false),
   LARGE_QUERY_RESPONSE_SIZE_EXCEPTIONS("exceptions", false),
 
+  // Segment result cache metrics
+  SEGMENT_RESULT_CACHE_HITS("segments", false),
+  SEGMENT_RESULT_CACHE_MISSES("segments", false),
+
+  // Number of filter predicates not tracked by the adaptive filter reordering because of the max number of entries
+  FILTER_STATISTICS_ENTRIES_LIMIT_REACHED("predicates", true),
+
   // Multi-stage
   /**
    * Number of times the max number of rows in the hash table has been reached.
@@ -33,7 +33,15 @@ public enum ServerQueryPhase implements AbstractMetrics.QueryPhase {
   QUERY_PLAN_EXECUTION,
   RESPONSE_SERIALIZATION,
   QUERY_PROCESSING,
-  SCHEDULER_WAIT;
+  SCHEDULER_WAIT,
+  // Operator phases, where the time is summed across the query thread and the worker threads of the query
+  FILTER_EVALUATION,
+  // Projection and transform
+  PROJECTION,
+  // Aggregation, group-by, selection and distinct on top of the projection
+  AGGREGATION,
+  // Merging the segment results, including the time the query thread waits for the segment results
+  COMBINE;
 
   // NOTE: update query.context.TimerContext toString() method if you
   // time more phases of query execution
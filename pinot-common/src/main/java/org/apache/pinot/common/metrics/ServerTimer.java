@@ -55,6 +55,14 @@ public enum ServerTimer implements AbstractMetrics.Timer {
       "Total time taken to delete expired primary keys based on metadataTTL or deletedKeysTTL"),
   GRPC_QUERY_EXECUTION_MS("milliseconds", false, "Total execution time of a successful query over gRPC"),
   UPSERT_SNAPSHOT_TIME_MS("milliseconds", false, "Total time taken to take upsert table snapshot"),
+  UPSERT_CHECKPOINT_RESTORE_TIME_MS("milliseconds", false,
+      "Total time taken to restore upsert metadata of segments from the metadata checkpoint"),
+  REALTIME_CONSUMPTION_FETCH_TIME_MS("milliseconds", false,
+      "Time the consumer thread spent fetching (or waiting for prefetched) messages with pipelined consumption"),
+  REALTIME_CONSUMPTION_DECODE_TIME_MS("milliseconds", false,
+      "Time the worker threads spent decoding and transforming messages with pipelined consumption"),
+  REALTIME_CONSUMPTION_INDEX_TIME_MS("milliseconds", false,
+      "Time the consumer thread spent indexing rows into the consuming segment with pipelined consumption"),
 
   // Multi-stage
   /**
@@ -83,7 +91,23 @@ public enum ServerTimer implements AbstractMetrics.Timer {
    * Remember that each stage may have several workers and each one will have a receive mailbox for each worker it is
    * reading from. This is the sum of all time waiting.
    */
-  RECEIVE_UPSTREAM_WAIT_CPU_TIME_MS("millis", true);
+  RECEIVE_UPSTREAM_WAIT_CPU_TIME_MS("millis", true),
+  /**
+   * Time an OpChain waits in the queue of the fair OpChain scheduler before a time slice is executed.
+   */
+  MULTI_STAGE_OPCHAIN_QUEUE_WAIT_MS("millis", true),
+  /**
+   * Time an OpChain runs in a single time slice of the fair OpChain scheduler.
+   */
+  MULTI_STAGE_OPCHAIN_SLICE_RUN_TIME_MS("millis", true),
+  /**
+   * Total time the OpChains of a query wait in the queue of the fair OpChain scheduler on this server.
+   */
+  MULTI_STAGE_QUERY_OPCHAIN_QUEUE_WAIT_MS("millis", true),
+  /**
+   * Total time the OpChains of a query run in the fair OpChain scheduler on this server.
+   */
+  MULTI_STAGE_QUERY_OPCHAIN_RUN_TIME_MS("millis", true);
 
   private final String _timerName;
   private final boolean _global;
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.pinot.common.datatable.DataTableImplV5;
 import org.apache.pinot.spi.config.table.FieldConfig;
 import org.apache.pinot.spi.utils.CommonConstants;
 import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
@@ -135,6 +136,10 @@ public class QueryOptionsUtils {
     return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.AND_SCAN_REORDERING));
   }
 
+  public static boolean isAdaptiveFilterReorderingEnabled(Map<String, String> queryOptions) {
+    return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.ADAPTIVE_FILTER_REORDERING));
+  }
+
   public static boolean isSkipUpsert(Map<String, String> queryOptions) {
     return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.SKIP_UPSERT));
   }
@@ -273,10 +278,43 @@ public class QueryOptionsUtils {
     return groupByTrimThreshold != null ? Integer.parseInt(groupByTrimThreshold) : null;
   }
 
+  @Nullable
+  public static Integer getNumGroupByCombinePartitions(Map<String, String> queryOptions) {
+    String numGroupByCombinePartitions = queryOptions.get(QueryOptionKey.NUM_GROUP_BY_COMBINE_PARTITIONS);
+    return numGroupByCombinePartitions != null ? Integer.parseInt(numGroupByCombinePartitions) : null;
+  }
+
   public static boolean shouldDropResults(Map<String, String> queryOptions) {
     return Boolean.parseBoolean(queryOptions.get(CommonConstants.Broker.Request.QueryOptionKey.DROP_RESULTS));
   }
 
+  public static boolean isSkipPartialResultCache(Map<String, String> queryOptions) {
+    return "false".equalsIgnoreCase(queryOptions.get(QueryOptionKey.USE_PARTIAL_RESULT_CACHE));
+  }
+
+  public static boolean isSkipSegmentResultCache(Map<String, String> queryOptions) {
+    return "false".equalsIgnoreCase(queryOptions.get(QueryOptionKey.USE_SEGMENT_RESULT_CACHE));
+  }
+
+  @Nullable
+  public static Boolean isIncrementalReduce(Map<String, String> queryOptions) {
+    String incrementalReduce = queryOptions.get(QueryOptionKey.INCREMENTAL_REDUCE);
+    return incrementalReduce != null ? Boolean.parseBoolean(incrementalReduce) : null;
+  }
+
+  @Nullable
+  public static Integer getDataTableVersion(Map<String, String> queryOptions) {
+    String dataTableVersion = queryOptions.get(QueryOptionKey.DATA_TABLE_VERSION);
+    return dataTableVersion != null ? Integer.parseInt(dataTableVersion) : null;
+  }
+
+  @Nullable
+  public static DataTableImplV5.CompressionType getDataTableCompression(Map<String, String> queryOptions) {
+    String dataTableCompression = queryOptions.get(QueryOptionKey.DATA_TABLE_COMPRESSION);
+    return dataTableCompression != null ? DataTableImplV5.CompressionType.valueOf(dataTableCompression.toUpperCase())
+        : null;
+  }
+
   @Nullable
   public static Integer getMaxStreamingPendingBlocks(Map<String, String> queryOptions) {
     String maxStreamingPendingBlocks = queryOptions.get(QueryOptionKey.MAX_STREAMING_PENDING_BLOCKS);
@@ -295,6 +333,18 @@ public class QueryOptionsUtils {
     return joinOverflowModeStr != null ? JoinOverFlowMode.valueOf(joinOverflowModeStr) : null;
   }
 
+  @Nullable
+  public static Long getRuntimeFilterWaitMs(Map<String, String> queryOptions) {
+    String runtimeFilterWaitMs = queryOptions.get(QueryOptionKey.RUNTIME_FILTER_WAIT_MS);
+    return runtimeFilterWaitMs != null ? Long.parseLong(runtimeFilterWaitMs) : null;
+  }
+
+  @Nullable
+  public static Integer getOpChainSchedulingWeight(Map<String, String> queryOptions) {
+    String weight = queryOptions.get(QueryOptionKey.OPCHAIN_SCHEDULING_WEIGHT);
+    return weight != null ? Integer.parseInt(weight) : null;
+  }
+
   @Nullable
   public static Integer getMaxRowsInWindow(Map<String, String> queryOptions) {
     String maxRowsInWindow = queryOptions.get(QueryOptionKey.MAX_ROWS_IN_WINDOW);
@@ -307,6 +357,20 @@ public class QueryOptionsUtils {
     return windowOverflowModeStr != null ? WindowOverFlowMode.valueOf(windowOverflowModeStr) : null;
   }
 
+  @Nullable
+  public static Integer getMaxRowsInSort(Map<String, String> queryOptions) {
+    String maxRowsInSort = queryOptions.get(QueryOptionKey.MAX_ROWS_IN_SORT);
+    return maxRowsInSort != null ? Integer.parseInt(maxRowsInSort) : null;
+  }
+
+  public static boolean isOptimizeJoinOrder(Map<String, String> queryOptions) {
+    return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.OPTIMIZE_JOIN_ORDER));
+  }
+
+  public static boolean isInferPartitionHint(Map<String, String> queryOptions) {
+    return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.INFER_PARTITION_HINT));
+  }
+
   public static boolean isSkipUnavailableServers(Map<String, String> queryOptions) {
     return Boolean.parseBoolean(queryOptions.get(QueryOptionKey.SKIP_UNAVAILABLE_SERVERS));
   }
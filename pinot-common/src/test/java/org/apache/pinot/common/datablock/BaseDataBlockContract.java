@@ -38,5 +38,11 @@ public abstract class BaseDataBlockContract {
 
     assertEquals(byteBuffer.position(), bytes.length, "Buffer position should be at the end of the buffer");
     assertEquals(deserialize, dataBlock, "Deserialized data block should be the same as the original data block");
+
+    ByteBuffer concatenated = ByteBuffer.allocate(bytes.length);
+    for (ByteBuffer buffer : dataBlock.serialize()) {
+      concatenated.put(buffer.duplicate());
+    }
+    assertEquals(concatenated.array(), bytes, "Serialized buffers should be the same as the serialized bytes");
   }
 }
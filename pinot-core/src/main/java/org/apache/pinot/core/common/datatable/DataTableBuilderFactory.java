@@ -19,34 +19,106 @@
 package org.apache.pinot.core.common.datatable;
 
 import com.google.common.base.Preconditions;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.datatable.DataTableFactory;
 import org.apache.pinot.common.datatable.DataTableImplV4;
+import org.apache.pinot.common.datatable.DataTableImplV5;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 
 
+/**
+ * Factory of the data table builders.
+ *
+ * <p>The columnar data table (version 5) is only sent to the brokers requesting it with the "dataTableVersion" query
+ * option. Brokers before version 5 never send the option and cannot read it, so the server default version is capped
+ * at {@link #DEFAULT_VERSION} when the server starts.
+ */
 public class DataTableBuilderFactory {
   private DataTableBuilderFactory() {
   }
 
   public static final int DEFAULT_VERSION = DataTableFactory.VERSION_4;
 
+  private static int _version = DEFAULT_VERSION;
+
   public static int getDataTableVersion() {
-    return DEFAULT_VERSION;
+    return _version;
   }
 
   public static void setDataTableVersion(int version) {
-    Preconditions.checkArgument(version == DEFAULT_VERSION, "Unsupported version: " + version);
+    Preconditions.checkArgument(version == DataTableFactory.VERSION_4 || version == DataTableFactory.VERSION_5,
+        "Unsupported version: " + version);
+    _version = version;
   }
 
   public static DataTableBuilder getDataTableBuilder(DataSchema dataSchema) {
-    return new DataTableBuilderV4(dataSchema);
+    return getDataTableBuilder(dataSchema, _version);
+  }
+
+  public static DataTableBuilder getDataTableBuilder(DataSchema dataSchema, int version) {
+    return version == DataTableFactory.VERSION_5 ? new DataTableBuilderV5(dataSchema)
+        : new DataTableBuilderV4(dataSchema);
+  }
+
+  /**
+   * Returns the data table builder for the version requested by the query options (the server default version when
+   * not requested), so that the data table does not need to be converted before being sent to the broker.
+   */
+  public static DataTableBuilder getDataTableBuilderForQuery(DataSchema dataSchema,
+      @Nullable Map<String, String> queryOptions) {
+    return getDataTableBuilder(dataSchema, getDataTableVersion(queryOptions));
+  }
+
+  /**
+   * Returns the data table version requested by the query options, or the server default version when not requested.
+   */
+  public static int getDataTableVersion(@Nullable Map<String, String> queryOptions) {
+    Integer version = queryOptions != null ? QueryOptionsUtils.getDataTableVersion(queryOptions) : null;
+    if (version == null) {
+      return _version;
+    }
+    Preconditions.checkArgument(version == DataTableFactory.VERSION_4 || version == DataTableFactory.VERSION_5,
+        "Unsupported data table version: %s", version);
+    return version;
   }
 
   /**
    * Returns an empty data table without data.
    */
   public static DataTable getEmptyDataTable() {
-    return new DataTableImplV4();
+    return _version == DataTableFactory.VERSION_5 ? new DataTableImplV5() : new DataTableImplV4();
+  }
+
+  /**
+   * Returns the data table to be sent to the broker for a query, in the version requested by the query options (the
+   * server default version when not requested), and with the column compression requested by the query options.
+   *
+   * <p>The data tables with data are expected to be built with {@link #getDataTableBuilderForQuery}, so only the data
+   * tables without data schema (metadata and exceptions only) are converted here. A V4 data table is still converted
+   * to V5 when requested. A V5 data table with data cannot be sent when V4 is requested explicitly, and an exception
+   * is thrown instead of returning a data table the broker did not ask for.
+   */
+  public static DataTable getDataTableForQuery(DataTable dataTable, Map<String, String> queryOptions) {
+    int version = getDataTableVersion(queryOptions);
+    if (version == DataTableFactory.VERSION_5) {
+      dataTable = DataTableBuilderV5.convert(dataTable);
+      DataTableImplV5.CompressionType compressionType = QueryOptionsUtils.getDataTableCompression(queryOptions);
+      if (compressionType != null) {
+        ((DataTableImplV5) dataTable).setCompressionType(compressionType);
+      }
+    } else if (dataTable instanceof DataTableImplV5) {
+      Preconditions.checkState(dataTable.getDataSchema() == null,
+          "Cannot send data table of version: %s when version: %s is requested", DataTableFactory.VERSION_5, version);
+      DataTable convertedDataTable = new DataTableImplV4();
+      convertedDataTable.getMetadata().putAll(dataTable.getMetadata());
+      for (Map.Entry<Integer, String> entry : dataTable.getExceptions().entrySet()) {
+        convertedDataTable.addException(entry.getKey(), entry.getValue());
+      }
+      dataTable = convertedDataTable;
+    }
+    return dataTable;
   }
 }
@@ -0,0 +1,349 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.common.datatable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.datatable.DataTable;
+import org.apache.pinot.common.datatable.DataTableImplV5;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.ObjectSerDeUtils;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.roaringbitmap.RoaringBitmap;
+
+
+/**
+ * Column-major builder for {@link DataTableImplV5}. The values are buffered per column, and the columns are encoded
+ * when the data table is serialized.
+ */
+public class DataTableBuilderV5 implements DataTableBuilder {
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final DataSchema _dataSchema;
+  private final ColumnDataType[] _storedTypes;
+  private final Object[] _columnValues;
+  private final RoaringBitmap[] _nullRowIds;
+
+  private int _capacity;
+  private int _numRows;
+  private int _rowId = -1;
+  private int _nextNullRowIdsColId;
+
+  public DataTableBuilderV5(DataSchema dataSchema) {
+    _dataSchema = dataSchema;
+    _storedTypes = dataSchema.getStoredColumnDataTypes();
+    int numColumns = _storedTypes.length;
+    _columnValues = new Object[numColumns];
+    _nullRowIds = new RoaringBitmap[numColumns];
+    _capacity = INITIAL_CAPACITY;
+    for (int colId = 0; colId < numColumns; colId++) {
+      _columnValues[colId] = allocateValues(_storedTypes[colId], _capacity);
+    }
+  }
+
+  @Override
+  public void startRow() {
+    if (_numRows == _capacity) {
+      _capacity <<= 1;
+      for (int colId = 0; colId < _columnValues.length; colId++) {
+        _columnValues[colId] = copyValues(_columnValues[colId], _capacity);
+      }
+    }
+    _rowId = _numRows++;
+  }
+
+  @Override
+  public void setColumn(int colId, int value) {
+    ((int[]) _columnValues[colId])[_rowId] = value;
+  }
+
+  @Override
+  public void setColumn(int colId, long value) {
+    ((long[]) _columnValues[colId])[_rowId] = value;
+  }
+
+  @Override
+  public void setColumn(int colId, float value) {
+    ((float[]) _columnValues[colId])[_rowId] = value;
+  }
+
+  @Override
+  public void setColumn(int colId, double value) {
+    ((double[]) _columnValues[colId])[_rowId] = value;
+  }
+
+  @Override
+  public void setColumn(int colId, BigDecimal value) {
+    ((BigDecimal[]) _columnValues[colId])[_rowId] = value;
+  }
+
+  @Override
+  public void setColumn(int colId, String value) {
+    ((String[]) _columnValues[colId])[_rowId] = value;
+  }
+
+  @Override
+  public void setColumn(int colId, ByteArray value) {
+    ((byte[][]) _columnValues[colId])[_rowId] = value.getBytes();
+  }
+
+  @Override
+  public void setColumn(int colId, @Nullable Object value)
+      throws IOException {
+    CustomObject customObject = null;
+    if (value != null) {
+      int objectTypeValue = ObjectSerDeUtils.ObjectType.getObjectType(value).getValue();
+      byte[] bytes = ObjectSerDeUtils.serialize(value, objectTypeValue);
+      customObject = new CustomObject(objectTypeValue, ByteBuffer.wrap(bytes));
+    }
+    ((CustomObject[]) _columnValues[colId])[_rowId] = customObject;
+  }
+
+  @Override
+  public void setColumn(int colId, int[] values) {
+    ((int[][]) _columnValues[colId])[_rowId] = values;
+  }
+
+  @Override
+  public void setColumn(int colId, long[] values) {
+    ((long[][]) _columnValues[colId])[_rowId] = values;
+  }
+
+  @Override
+  public void setColumn(int colId, float[] values) {
+    ((float[][]) _columnValues[colId])[_rowId] = values;
+  }
+
+  @Override
+  public void setColumn(int colId, double[] values) {
+    ((double[][]) _columnValues[colId])[_rowId] = values;
+  }
+
+  @Override
+  public void setColumn(int colId, String[] values) {
+    ((String[][]) _columnValues[colId])[_rowId] = values;
+  }
+
+  @Override
+  public void finishRow() {
+  }
+
+  @Override
+  public void setNullRowIds(@Nullable RoaringBitmap nullRowIds) {
+    _nullRowIds[_nextNullRowIdsColId++] = nullRowIds;
+  }
+
+  @Override
+  public DataTable build() {
+    Object[] columnValues = new Object[_columnValues.length];
+    for (int colId = 0; colId < columnValues.length; colId++) {
+      Object values = copyValues(_columnValues[colId], _numRows);
+      fillDefaultValues(_storedTypes[colId], values);
+      columnValues[colId] = values;
+    }
+    return new DataTableImplV5(_numRows, _dataSchema, columnValues, _nullRowIds);
+  }
+
+  /**
+   * Converts the given data table into a {@link DataTableImplV5}, including the metadata and the exceptions.
+   */
+  public static DataTableImplV5 convert(DataTable dataTable) {
+    if (dataTable instanceof DataTableImplV5) {
+      return (DataTableImplV5) dataTable;
+    }
+    DataSchema dataSchema = dataTable.getDataSchema();
+    DataTableImplV5 convertedDataTable;
+    if (dataSchema == null) {
+      convertedDataTable = new DataTableImplV5();
+    } else {
+      int numRows = dataTable.getNumberOfRows();
+      ColumnDataType[] storedTypes = dataSchema.getStoredColumnDataTypes();
+      int numColumns = storedTypes.length;
+      Object[] columnValues = new Object[numColumns];
+      RoaringBitmap[] nullRowIds = new RoaringBitmap[numColumns];
+      for (int colId = 0; colId < numColumns; colId++) {
+        columnValues[colId] = readValues(dataTable, storedTypes[colId], colId, numRows);
+        nullRowIds[colId] = dataTable.getNullRowIds(colId);
+      }
+      convertedDataTable = new DataTableImplV5(numRows, dataSchema, columnValues, nullRowIds);
+    }
+    convertedDataTable.getMetadata().putAll(dataTable.getMetadata());
+    for (Map.Entry<Integer, String> entry : dataTable.getExceptions().entrySet()) {
+      convertedDataTable.addException(entry.getKey(), entry.getValue());
+    }
+    return convertedDataTable;
+  }
+
+  @Nullable
+  private static Object readValues(DataTable dataTable, ColumnDataType storedType, int colId, int numRows) {
+    Object values = allocateValues(storedType, numRows);
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      switch (storedType) {
+        case INT:
+          ((int[]) values)[rowId] = dataTable.getInt(rowId, colId);
+          break;
+        case LONG:
+          ((long[]) values)[rowId] = dataTable.getLong(rowId, colId);
+          break;
+        case FLOAT:
+          ((float[]) values)[rowId] = dataTable.getFloat(rowId, colId);
+          break;
+        case DOUBLE:
+          ((double[]) values)[rowId] = dataTable.getDouble(rowId, colId);
+          break;
+        case BIG_DECIMAL:
+          ((BigDecimal[]) values)[rowId] = dataTable.getBigDecimal(rowId, colId);
+          break;
+        case STRING:
+          ((String[]) values)[rowId] = dataTable.getString(rowId, colId);
+          break;
+        case BYTES:
+          ((byte[][]) values)[rowId] = dataTable.getBytes(rowId, colId).getBytes();
+          break;
+        case OBJECT:
+        case UNKNOWN:
+          ((CustomObject[]) values)[rowId] = dataTable.getCustomObject(rowId, colId);
+          break;
+        case INT_ARRAY:
+          ((int[][]) values)[rowId] = dataTable.getIntArray(rowId, colId);
+          break;
+        case LONG_ARRAY:
+          ((long[][]) values)[rowId] = dataTable.getLongArray(rowId, colId);
+          break;
+        case FLOAT_ARRAY:
+          ((float[][]) values)[rowId] = dataTable.getFloatArray(rowId, colId);
+          break;
+        case DOUBLE_ARRAY:
+          ((double[][]) values)[rowId] = dataTable.getDoubleArray(rowId, colId);
+          break;
+        case STRING_ARRAY:
+          ((String[][]) values)[rowId] = dataTable.getStringArray(rowId, colId);
+          break;
+        default:
+          // TODO: Support MV BYTES
+          return null;
+      }
+    }
+    return values;
+  }
+
+  @Nullable
+  private static Object allocateValues(ColumnDataType storedType, int capacity) {
+    switch (storedType) {
+      case INT:
+        return new int[capacity];
+      case LONG:
+        return new long[capacity];
+      case FLOAT:
+        return new float[capacity];
+      case DOUBLE:
+        return new double[capacity];
+      case BIG_DECIMAL:
+        return new BigDecimal[capacity];
+      case STRING:
+        return new String[capacity];
+      case BYTES:
+        return new byte[capacity][];
+      case OBJECT:
+      case UNKNOWN:
+        return new CustomObject[capacity];
+      case INT_ARRAY:
+        return new int[capacity][];
+      case LONG_ARRAY:
+        return new long[capacity][];
+      case FLOAT_ARRAY:
+        return new float[capacity][];
+      case DOUBLE_ARRAY:
+        return new double[capacity][];
+      case STRING_ARRAY:
+        return new String[capacity][];
+      default:
+        // TODO: Support MV BYTES
+        return null;
+    }
+  }
+
+  @Nullable
+  private static Object copyValues(@Nullable Object values, int length) {
+    if (values == null) {
+      return null;
+    }
+    if (values instanceof int[]) {
+      return Arrays.copyOf((int[]) values, length);
+    }
+    if (values instanceof long[]) {
+      return Arrays.copyOf((long[]) values, length);
+    }
+    if (values instanceof float[]) {
+      return Arrays.copyOf((float[]) values, length);
+    }
+    if (values instanceof double[]) {
+      return Arrays.copyOf((double[]) values, length);
+    }
+    return Arrays.copyOf((Object[]) values, length);
+  }
+
+  /**
+   * Fills the values not set for the rows with the same default values as {@link DataTableBuilderV4}.
+   */
+  private static void fillDefaultValues(ColumnDataType storedType, @Nullable Object values) {
+    Object defaultValue;
+    switch (storedType) {
+      case BIG_DECIMAL:
+        defaultValue = BigDecimal.ZERO;
+        break;
+      case STRING:
+        defaultValue = "";
+        break;
+      case BYTES:
+        defaultValue = ArrayUtils.EMPTY_BYTE_ARRAY;
+        break;
+      case INT_ARRAY:
+        defaultValue = ArrayUtils.EMPTY_INT_ARRAY;
+        break;
+      case LONG_ARRAY:
+        defaultValue = ArrayUtils.EMPTY_LONG_ARRAY;
+        break;
+      case FLOAT_ARRAY:
+        defaultValue = ArrayUtils.EMPTY_FLOAT_ARRAY;
+        break;
+      case DOUBLE_ARRAY:
+        defaultValue = ArrayUtils.EMPTY_DOUBLE_ARRAY;
+        break;
+      case STRING_ARRAY:
+        defaultValue = ArrayUtils.EMPTY_STRING_ARRAY;
+        break;
+      default:
+        return;
+    }
+    Object[] objectValues = (Object[]) values;
+    for (int i = 0; i < objectValues.length; i++) {
+      if (objectValues[i] == null) {
+        objectValues[i] = defaultValue;
+      }
+    }
+  }
+}
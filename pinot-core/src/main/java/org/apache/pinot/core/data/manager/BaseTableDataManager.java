@@ -58,6 +58,8 @@ import org.apache.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.pinot.common.utils.config.TierConfigUtils;
 import org.apache.pinot.common.utils.fetcher.SegmentFetcherFactory;
 import org.apache.pinot.core.data.manager.offline.ImmutableSegmentDataManager;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStatistics;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
 import org.apache.pinot.core.util.PeerServerSegmentFinder;
 import org.apache.pinot.segment.local.data.manager.SegmentDataManager;
 import org.apache.pinot.segment.local.data.manager.TableDataManager;
@@ -219,6 +221,8 @@ public abstract class BaseTableDataManager implements TableDataManager {
     _logger.info("Shutting down table data manager");
     _shutDown = true;
     doShutdown();
+    // Drop the runtime filter statistics of the table collected for adaptive filter reordering
+    FilterSelectivityStatistics.getInstance().removeTable(_tableNameWithType);
     _logger.info("Shut down table data manager");
   }
 
@@ -548,6 +552,11 @@ public abstract class BaseTableDataManager implements TableDataManager {
     _serverMetrics.addValueToTableGauge(_tableNameWithType, ServerGauge.DOCUMENT_COUNT,
         -segmentDataManager.getSegment().getSegmentMetadata().getTotalDocs());
     segmentDataManager.destroy();
+    // Drop the cached query results of the segment as it can no longer be queried
+    SegmentResultCache segmentResultCache = SegmentResultCache.get();
+    if (segmentResultCache != null) {
+      segmentResultCache.invalidate(_tableNameWithType, segmentName);
+    }
     _logger.info("Closed segment: {}", segmentName);
   }
 
@@ -45,6 +45,7 @@ import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
 import org.apache.pinot.common.metrics.ServerGauge;
 import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerTimer;
 import org.apache.pinot.common.protocols.SegmentCompletionProtocol;
 import org.apache.pinot.common.restlet.resources.SegmentErrorInfo;
 import org.apache.pinot.common.utils.LLCSegmentName;
@@ -76,7 +77,9 @@ import org.apache.pinot.spi.config.table.IndexingConfig;
 import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
 import org.apache.pinot.spi.config.table.SegmentZKPropsConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.ingestion.StreamIngestionConfig;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnarRecordBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.metrics.PinotMeter;
 import org.apache.pinot.spi.plugin.PluginManager;
@@ -230,6 +233,8 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
   private static final int MSG_COUNT_THRESHOLD_FOR_LOG = 100000;
   private static final int BUILD_TIME_LEASE_SECONDS = 30;
   private static final int MAX_CONSECUTIVE_ERROR_COUNT = 5;
+  // Max number of rows indexed as a columnar batch with pipelined consumption
+  private static final int MAX_COLUMNAR_BATCH_SIZE = 1000;
 
   private final SegmentZKMetadata _segmentZKMetadata;
   private final TableConfig _tableConfig;
@@ -285,6 +290,9 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
   final String _clientId;
   private final RecordEnricherPipeline _recordEnricherPipeline;
   private final TransformPipeline _transformPipeline;
+  // Workers to decode and transform the messages with pipelined consumption, null if pipelined consumption is disabled
+  private final List<StreamConsumptionPipeline.Worker> _consumptionPipelineWorkers;
+  private StreamConsumptionPipeline _consumptionPipeline;
   private PartitionGroupConsumer _partitionGroupConsumer = null;
   private StreamMetadataProvider _partitionMetadataProvider = null;
   private final File _resourceTmpDir;
@@ -433,90 +441,100 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
         .create(_currentOffset);  // so that we always update the metric when we enter this method.
 
     _segmentLogger.info("Starting consumption loop start offset {}, finalOffset {}", _currentOffset, _finalOffset);
-    while (!_shouldStop && !endCriteriaReached()) {
-      _serverMetrics.setValueOfTableGauge(_clientId, ServerGauge.LLC_PARTITION_CONSUMING, 1);
-      // Consume for the next readTime ms, or we get to final offset, whichever happens earlier,
-      // Update _currentOffset upon return from this method
-      MessageBatch messageBatch;
-      try {
-        messageBatch = _partitionGroupConsumer.fetchMessages(_currentOffset, _streamConfig.getFetchTimeoutMillis());
-        //track realtime rows fetched on a table level. This included valid + invalid rows
-        _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_FETCHED,
-            messageBatch.getUnfilteredMessageCount());
-        if (_segmentLogger.isDebugEnabled()) {
-          _segmentLogger.debug("message batch received. filtered={} unfiltered={} endOfPartitionGroup={}",
-              messageBatch.getMessageCount(), messageBatch.getUnfilteredMessageCount(),
-              messageBatch.isEndOfPartitionGroup());
+    if (_consumptionPipelineWorkers != null) {
+      _consumptionPipeline = new StreamConsumptionPipeline(_clientId, _consumptionPipelineWorkers);
+    }
+    try {
+      while (!_shouldStop && !endCriteriaReached()) {
+        _serverMetrics.setValueOfTableGauge(_clientId, ServerGauge.LLC_PARTITION_CONSUMING, 1);
+        // Consume for the next readTime ms, or we get to final offset, whichever happens earlier,
+        // Update _currentOffset upon return from this method
+        MessageBatch messageBatch;
+        try {
+          messageBatch = fetchMessages();
+          //track realtime rows fetched on a table level. This included valid + invalid rows
+          _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_FETCHED,
+              messageBatch.getUnfilteredMessageCount());
+          if (_segmentLogger.isDebugEnabled()) {
+            _segmentLogger.debug("message batch received. filtered={} unfiltered={} endOfPartitionGroup={}",
+                messageBatch.getMessageCount(), messageBatch.getUnfilteredMessageCount(),
+                messageBatch.isEndOfPartitionGroup());
+          }
+          _endOfPartitionGroup = messageBatch.isEndOfPartitionGroup();
+          _consecutiveErrorCount = 0;
+        } catch (PermanentConsumerException e) {
+          _serverMetrics.addMeteredGlobalValue(ServerMeter.REALTIME_CONSUMPTION_EXCEPTIONS, 1L);
+          _serverMetrics.addMeteredTableValue(_tableStreamName, ServerMeter.REALTIME_CONSUMPTION_EXCEPTIONS, 1L);
+          _segmentLogger.warn("Permanent exception from stream when fetching messages, stopping consumption", e);
+          throw e;
+        } catch (Exception e) {
+          //track realtime rows fetched on a table level. This included valid + invalid rows
+          // all exceptions but PermanentConsumerException are handled the same way
+          // can be a TimeoutException or TransientConsumerException routinely
+          // Unknown exception from stream. Treat as a transient exception.
+          // One such exception seen so far is java.net.SocketTimeoutException
+          handleTransientStreamErrors(e);
+          continue;
+        } catch (Throwable t) {
+          //track realtime rows fetched on a table level. This included valid + invalid rows
+          _segmentLogger.warn("Stream error when fetching messages, stopping consumption", t);
+          throw t;
         }
-        _endOfPartitionGroup = messageBatch.isEndOfPartitionGroup();
-        _consecutiveErrorCount = 0;
-      } catch (PermanentConsumerException e) {
-        _serverMetrics.addMeteredGlobalValue(ServerMeter.REALTIME_CONSUMPTION_EXCEPTIONS, 1L);
-        _serverMetrics.addMeteredTableValue(_tableStreamName, ServerMeter.REALTIME_CONSUMPTION_EXCEPTIONS, 1L);
-        _segmentLogger.warn("Permanent exception from stream when fetching messages, stopping consumption", e);
-        throw e;
-      } catch (Exception e) {
-        //track realtime rows fetched on a table level. This included valid + invalid rows
-        // all exceptions but PermanentConsumerException are handled the same way
-        // can be a TimeoutException or TransientConsumerException routinely
-        // Unknown exception from stream. Treat as a transient exception.
-        // One such exception seen so far is java.net.SocketTimeoutException
-        handleTransientStreamErrors(e);
-        continue;
-      } catch (Throwable t) {
-        //track realtime rows fetched on a table level. This included valid + invalid rows
-        _segmentLogger.warn("Stream error when fetching messages, stopping consumption", t);
-        throw t;
-      }
 
-      reportDataLoss(messageBatch);
+        reportDataLoss(messageBatch);
 
-      boolean endCriteriaReached = processStreamEvents(messageBatch, idlePipeSleepTimeMillis);
+        boolean endCriteriaReached = processStreamEvents(messageBatch, idlePipeSleepTimeMillis);
 
-      if (_currentOffset.compareTo(lastUpdatedOffset) != 0) {
-        _idleTimer.markEventConsumed();
-        // We consumed something. Update the highest stream offset as well as partition-consuming metric.
-        // TODO Issue 5359 Need to find a way to bump metrics without getting actual offset value.
-        if (_currentOffset instanceof LongMsgOffset) {
-          // TODO: only LongMsgOffset supplies long offset value.
-          _serverMetrics.setValueOfTableGauge(_clientId, ServerGauge.HIGHEST_STREAM_OFFSET_CONSUMED,
-              ((LongMsgOffset) _currentOffset).getOffset());
-        }
-        lastUpdatedOffset = _streamPartitionMsgOffsetFactory.create(_currentOffset);
-      } else if (endCriteriaReached) {
-        // At this point current offset has not moved because processStreamEvents() has exited before processing a
-        // single message
-        if (_segmentLogger.isDebugEnabled()) {
-          _segmentLogger.debug("No messages processed before end criteria was reached. Staying at offset {}",
-              _currentOffset);
-        }
-        // We check this flag again further down
-      } else if (messageBatch.getUnfilteredMessageCount() > 0) {
-        _idleTimer.markEventConsumed();
-        // we consumed something from the stream but filtered all the content out,
-        // so we need to advance the offsets to avoid getting stuck
-        StreamPartitionMsgOffset nextOffset = messageBatch.getOffsetOfNextBatch();
-        if (_segmentLogger.isDebugEnabled()) {
-          _segmentLogger.debug("Skipped empty batch. Advancing from {} to {}", _currentOffset, nextOffset);
+        if (_currentOffset.compareTo(lastUpdatedOffset) != 0) {
+          _idleTimer.markEventConsumed();
+          // We consumed something. Update the highest stream offset as well as partition-consuming metric.
+          // TODO Issue 5359 Need to find a way to bump metrics without getting actual offset value.
+          if (_currentOffset instanceof LongMsgOffset) {
+            // TODO: only LongMsgOffset supplies long offset value.
+            _serverMetrics.setValueOfTableGauge(_clientId, ServerGauge.HIGHEST_STREAM_OFFSET_CONSUMED,
+                ((LongMsgOffset) _currentOffset).getOffset());
+          }
+          lastUpdatedOffset = _streamPartitionMsgOffsetFactory.create(_currentOffset);
+        } else if (endCriteriaReached) {
+          // At this point current offset has not moved because processStreamEvents() has exited before processing a
+          // single message
+          if (_segmentLogger.isDebugEnabled()) {
+            _segmentLogger.debug("No messages processed before end criteria was reached. Staying at offset {}",
+                _currentOffset);
+          }
+          // We check this flag again further down
+        } else if (messageBatch.getUnfilteredMessageCount() > 0) {
+          _idleTimer.markEventConsumed();
+          // we consumed something from the stream but filtered all the content out,
+          // so we need to advance the offsets to avoid getting stuck
+          StreamPartitionMsgOffset nextOffset = messageBatch.getOffsetOfNextBatch();
+          if (_segmentLogger.isDebugEnabled()) {
+            _segmentLogger.debug("Skipped empty batch. Advancing from {} to {}", _currentOffset, nextOffset);
+          }
+          _currentOffset = nextOffset;
+          lastUpdatedOffset = _streamPartitionMsgOffsetFactory.create(nextOffset);
+        } else {
+          // We did not consume any rows.
+          long timeSinceStreamLastCreatedOrConsumedMs = _idleTimer.getTimeSinceStreamLastCreatedOrConsumedMs();
+
+          if (idleTimeoutMillis >= 0 && (timeSinceStreamLastCreatedOrConsumedMs > idleTimeoutMillis)) {
+            // Create a new stream consumer wrapper, in case we are stuck on something.
+            recreateStreamConsumer(
+                String.format("Total idle time: %d ms exceeded idle timeout: %d ms",
+                    timeSinceStreamLastCreatedOrConsumedMs, idleTimeoutMillis));
+            _idleTimer.markStreamCreated();
+          }
         }
-        _currentOffset = nextOffset;
-        lastUpdatedOffset = _streamPartitionMsgOffsetFactory.create(nextOffset);
-      } else {
-        // We did not consume any rows.
-        long timeSinceStreamLastCreatedOrConsumedMs = _idleTimer.getTimeSinceStreamLastCreatedOrConsumedMs();
-
-        if (idleTimeoutMillis >= 0 && (timeSinceStreamLastCreatedOrConsumedMs > idleTimeoutMillis)) {
-          // Create a new stream consumer wrapper, in case we are stuck on something.
-          recreateStreamConsumer(
-              String.format("Total idle time: %d ms exceeded idle timeout: %d ms",
-                  timeSinceStreamLastCreatedOrConsumedMs, idleTimeoutMillis));
-          _idleTimer.markStreamCreated();
+
+        if (endCriteriaReached) {
+          // check this flag to avoid calling endCriteriaReached() at the beginning of the loop
+          break;
         }
       }
-
-      if (endCriteriaReached) {
-        // check this flag to avoid calling endCriteriaReached() at the beginning of the loop
-        break;
+    } finally {
+      if (_consumptionPipeline != null) {
+        _consumptionPipeline.close();
+        _consumptionPipeline = null;
       }
     }
 
@@ -527,6 +545,31 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     return true;
   }
 
+  /**
+   * Fetches the next message batch from the current offset. With pipelined consumption, the batch prefetched while
+   * processing the previous batch is used if it starts from the current offset, and the following batch is prefetched
+   * before returning.
+   */
+  private MessageBatch fetchMessages()
+      throws Exception {
+    int fetchTimeoutMs = _streamConfig.getFetchTimeoutMillis();
+    if (_consumptionPipeline == null) {
+      return _partitionGroupConsumer.fetchMessages(_currentOffset, fetchTimeoutMs);
+    }
+    long startTimeMs = System.currentTimeMillis();
+    MessageBatch messageBatch = _consumptionPipeline.getPrefetchedBatch(_currentOffset);
+    if (messageBatch == null) {
+      messageBatch = _partitionGroupConsumer.fetchMessages(_currentOffset, fetchTimeoutMs);
+    }
+    _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.REALTIME_CONSUMPTION_FETCH_TIME_MS,
+        System.currentTimeMillis() - startTimeMs, TimeUnit.MILLISECONDS);
+    // Do not prefetch on empty batch to avoid hammering the stream
+    if (messageBatch.getMessageCount() > 0 && !messageBatch.isEndOfPartitionGroup()) {
+      _consumptionPipeline.prefetch(_partitionGroupConsumer, messageBatch.getOffsetOfNextBatch(), fetchTimeoutMs);
+    }
+    return messageBatch;
+  }
+
   /**
    * @param messageBatch batch of messages to process
    * @param idlePipeSleepTimeMillis wait time in case no messages were read
@@ -550,6 +593,19 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     TransformPipeline.Result reusedResult = new TransformPipeline.Result();
     boolean prematureExit = false;
 
+    // With pipelined consumption, decode and transform the messages in the background while indexing them
+    StreamConsumptionPipeline.DecodedBatch decodedBatch =
+        _consumptionPipeline != null && messageCount > 0 ? _consumptionPipeline.decode(messageBatch, messageCount)
+            : null;
+    long indexTimeNs = 0;
+    // With pipelined consumption, index the transformed rows of the consecutive messages together as a columnar batch
+    // when the segment supports it. The current offset is moved past the messages only after their rows are indexed,
+    // so batching is limited to INITIAL_CONSUMING state where the end criteria do not depend on the current offset.
+    List<GenericRow> pendingRows = decodedBatch != null && _state == State.INITIAL_CONSUMING
+        && _realtimeSegment.isColumnarBatchIndexingSupported() ? new ArrayList<>() : null;
+    RowMetadata pendingRowMetadata = null;
+    StreamPartitionMsgOffset pendingNextOffset = null;
+
     for (int index = 0; index < messageCount; index++) {
       prematureExit = _shouldStop || endCriteriaReached();
       if (prematureExit) {
@@ -582,7 +638,9 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
 
       // Decode message
       StreamMessage streamMessage = messageBatch.getStreamMessage(index);
-      StreamDataDecoderResult decodedRow = _streamDataDecoder.decode(streamMessage);
+      StreamConsumptionPipeline.DecodedMessage decodedMessage = decodedBatch != null ? decodedBatch.get(index) : null;
+      StreamDataDecoderResult decodedRow =
+          decodedMessage != null ? decodedMessage.getDecodedRow() : _streamDataDecoder.decode(streamMessage);
       StreamMessageMetadata metadata = streamMessage.getMetadata();
       StreamPartitionMsgOffset offset = null;
       StreamPartitionMsgOffset nextOffset = null;
@@ -602,38 +660,69 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
                 realtimeRowsDroppedMeter);
         _numRowsErrored++;
       } else {
-        try {
-          _recordEnricherPipeline.run(decodedRow.getResult());
-          _transformPipeline.processRow(decodedRow.getResult(), reusedResult);
-        } catch (Exception e) {
-          _numRowsErrored++;
+        TransformPipeline.Result result;
+        Exception transformException;
+        if (decodedMessage != null) {
+          result = decodedMessage.getResult();
+          transformException = decodedMessage.getTransformException();
+        } else {
+          result = reusedResult;
+          transformException = StreamConsumptionPipeline.transform(_recordEnricherPipeline, _transformPipeline,
+              decodedRow.getResult(), reusedResult);
+        }
+        if (transformException != null) {
           // when exception happens we prefer abandoning the whole batch and not partially indexing some rows
-          reusedResult.getTransformedRows().clear();
+          _numRowsErrored++;
           String errorMessage =
               String.format("Caught exception while transforming the record at offset: %s , row: %s", offset,
                   decodedRow.getResult());
-          _segmentLogger.error(errorMessage, e);
-          _realtimeTableDataManager.addSegmentError(_segmentNameStr, new SegmentErrorInfo(now(), errorMessage, e));
+          _segmentLogger.error(errorMessage, transformException);
+          _realtimeTableDataManager.addSegmentError(_segmentNameStr,
+              new SegmentErrorInfo(now(), errorMessage, transformException));
         }
-        if (reusedResult.getSkippedRowCount() > 0) {
+        if (result.getSkippedRowCount() > 0) {
           realtimeRowsDroppedMeter = _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_FILTERED,
-              reusedResult.getSkippedRowCount(), realtimeRowsDroppedMeter);
+              result.getSkippedRowCount(), realtimeRowsDroppedMeter);
           if (_trackFilteredMessageOffsets) {
             _filteredMessageOffsets.add(offset.toString());
           }
         }
-        if (reusedResult.getIncompleteRowCount() > 0) {
+        if (result.getIncompleteRowCount() > 0) {
           realtimeIncompleteRowsConsumedMeter =
               _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.INCOMPLETE_REALTIME_ROWS_CONSUMED,
-                  reusedResult.getIncompleteRowCount(), realtimeIncompleteRowsConsumedMeter);
+                  result.getIncompleteRowCount(), realtimeIncompleteRowsConsumedMeter);
         }
-        if (reusedResult.getSanitizedRowCount() > 0) {
+        if (result.getSanitizedRowCount() > 0) {
           realtimeRowsSanitizedMeter =
               _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_SANITIZED,
-                  reusedResult.getSanitizedRowCount(), realtimeRowsSanitizedMeter);
+                  result.getSanitizedRowCount(), realtimeRowsSanitizedMeter);
         }
-        List<GenericRow> transformedRows = reusedResult.getTransformedRows();
-        for (GenericRow transformedRow : transformedRows) {
+        List<GenericRow> transformedRows = result.getTransformedRows();
+        long indexStartTimeNs = decodedBatch != null ? System.nanoTime() : 0;
+        int numTransformedRows = transformedRows.size();
+        boolean indexRowByRow = true;
+        if (pendingRows != null) {
+          if (_numRowsIndexed + pendingRows.size() + numTransformedRows <= _segmentMaxRowCount) {
+            indexRowByRow = false;
+            if (numTransformedRows > 0) {
+              pendingRows.addAll(transformedRows);
+              pendingRowMetadata = metadata;
+              indexedMessageCount += numTransformedRows;
+              // Index the batch when it is large enough, or reaches the row limit so that the end criteria can be met
+              int numPendingRows = pendingRows.size();
+              if (numPendingRows >= MAX_COLUMNAR_BATCH_SIZE
+                  || _numRowsIndexed + numPendingRows >= _segmentMaxRowCount) {
+                canTakeMore = indexPendingRows(pendingRows, pendingRowMetadata);
+              }
+            }
+          } else if (!pendingRows.isEmpty()) {
+            // Index the pending rows first to keep the rows in order, then index the rows that do not fit in the
+            // segment row by row
+            canTakeMore = indexPendingRows(pendingRows, pendingRowMetadata);
+          }
+        }
+        for (int i = 0; indexRowByRow && i < numTransformedRows; i++) {
+          GenericRow transformedRow = transformedRows.get(i);
           try {
             canTakeMore = _realtimeSegment.index(transformedRow, metadata);
             indexedMessageCount++;
@@ -652,12 +741,34 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
             _realtimeTableDataManager.addSegmentError(_segmentNameStr, new SegmentErrorInfo(now(), errorMessage, e));
           }
         }
+        if (decodedBatch != null) {
+          indexTimeNs += System.nanoTime() - indexStartTimeNs;
+        }
+      }
+      if (pendingRows != null && !pendingRows.isEmpty()) {
+        pendingNextOffset = nextOffset;
+      } else {
+        _currentOffset = nextOffset;
+        _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
       }
-      _currentOffset = nextOffset;
-      _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
       _numRowsConsumed++;
       streamMessageCount++;
     }
+    if (pendingRows != null && !pendingRows.isEmpty()) {
+      long indexStartTimeNs = System.nanoTime();
+      indexPendingRows(pendingRows, pendingRowMetadata);
+      indexTimeNs += System.nanoTime() - indexStartTimeNs;
+      _currentOffset = pendingNextOffset;
+      _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
+    }
+
+    if (decodedBatch != null) {
+      // Wait for the remaining messages (if exiting early) so that the workers can be reused for the next batch
+      _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.REALTIME_CONSUMPTION_DECODE_TIME_MS,
+          decodedBatch.awaitCompletion(), TimeUnit.NANOSECONDS);
+      _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.REALTIME_CONSUMPTION_INDEX_TIME_MS,
+          indexTimeNs, TimeUnit.NANOSECONDS);
+    }
 
     updateCurrentDocumentCountMetrics();
     if (messageBatch.getUnfilteredMessageCount() > 0) {
@@ -679,6 +790,46 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     return prematureExit;
   }
 
+  /**
+   * Indexes the pending rows into the consuming segment as a columnar batch, and clears them. Returns whether the
+   * segment can take more rows.
+   * <p>The segment rejects a batch with invalid values before indexing any of its rows, in which case the rows are
+   * indexed one by one so that only the invalid rows are dropped.
+   */
+  private boolean indexPendingRows(List<GenericRow> pendingRows, @Nullable RowMetadata lastRowMetadata) {
+    int numRows = pendingRows.size();
+    boolean canTakeMore = true;
+    try {
+      canTakeMore = _realtimeSegment.index(ColumnarRecordBatch.fromRows(pendingRows), lastRowMetadata);
+      onRowsIndexed(numRows, lastRowMetadata);
+    } catch (Exception e) {
+      _segmentLogger.warn("Caught exception while indexing a batch of {} records, indexing them one by one", numRows,
+          e);
+      for (GenericRow row : pendingRows) {
+        try {
+          canTakeMore = _realtimeSegment.index(row, lastRowMetadata);
+          onRowsIndexed(1, lastRowMetadata);
+        } catch (Exception rowException) {
+          _numRowsErrored++;
+          String errorMessage = String.format("Caught exception while indexing the record: %s", row);
+          _segmentLogger.error(errorMessage, rowException);
+          _realtimeTableDataManager.addSegmentError(_segmentNameStr,
+              new SegmentErrorInfo(now(), errorMessage, rowException));
+        }
+      }
+    }
+    pendingRows.clear();
+    _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
+    return canTakeMore;
+  }
+
+  private void onRowsIndexed(int numRows, @Nullable RowMetadata lastRowMetadata) {
+    _lastRowMetadata = lastRowMetadata;
+    _lastConsumedTimestampMs = System.currentTimeMillis();
+    _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_CONSUMED, numRows);
+    _serverMetrics.addMeteredGlobalValue(ServerMeter.REALTIME_ROWS_CONSUMED, numRows);
+  }
+
   public class PartitionConsumer implements Runnable {
     public void run() {
       long initialConsumptionEnd = 0L;
@@ -1490,10 +1641,14 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
         .createRateLimiter(_streamConfig, _tableNameWithType, _serverMetrics, _clientId);
     _serverRateLimiter = RealtimeConsumptionRateManager.getInstance().getServerRateLimiter();
 
+    int numPipelinedDecodeThreads = 0;
     if (tableConfig.getIngestionConfig() != null
         && tableConfig.getIngestionConfig().getStreamIngestionConfig() != null) {
-      _trackFilteredMessageOffsets =
-          tableConfig.getIngestionConfig().getStreamIngestionConfig().isTrackFilteredMessageOffsets();
+      StreamIngestionConfig streamIngestionConfig = tableConfig.getIngestionConfig().getStreamIngestionConfig();
+      _trackFilteredMessageOffsets = streamIngestionConfig.isTrackFilteredMessageOffsets();
+      if (streamIngestionConfig.isPipelinedConsumptionEnabled()) {
+        numPipelinedDecodeThreads = streamIngestionConfig.getPipelinedConsumptionDecodeThreads();
+      }
     }
 
     List<String> sortedColumns = indexLoadingConfig.getSortedColumns();
@@ -1596,6 +1751,21 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
       throw e;
     }
     _transformPipeline = new TransformPipeline(tableConfig, schema);
+    if (numPipelinedDecodeThreads > 0) {
+      // Decoders and transformers are not thread-safe, so each worker gets its own instances. The first worker reuses
+      // the ones above, which are not used by the consumer thread with pipelined consumption.
+      _consumptionPipelineWorkers = new ArrayList<>(numPipelinedDecodeThreads);
+      _consumptionPipelineWorkers.add(
+          new StreamConsumptionPipeline.Worker(_streamDataDecoder, _recordEnricherPipeline, _transformPipeline));
+      for (int i = 1; i < numPipelinedDecodeThreads; i++) {
+        _consumptionPipelineWorkers.add(
+            new StreamConsumptionPipeline.Worker(new StreamDataDecoderImpl(createMessageDecoder(fieldsToRead)),
+                RecordEnricherPipeline.fromTableConfig(tableConfig), new TransformPipeline(tableConfig, schema)));
+      }
+      _segmentLogger.info("Enabled pipelined consumption with {} decode threads", numPipelinedDecodeThreads);
+    } else {
+      _consumptionPipelineWorkers = null;
+    }
     // Acquire semaphore to create stream consumers
     try {
       _partitionGroupConsumerSemaphore.acquire();
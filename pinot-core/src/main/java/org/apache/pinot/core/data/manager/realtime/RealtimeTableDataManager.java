@@ -254,6 +254,15 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
       } catch (IOException e) {
         _logger.warn("Caught exception while closing upsert metadata manager", e);
       }
+    } else if (_tableDedupMetadataManager != null) {
+      // Stop the dedup metadata manager first to prevent removing metadata when destroying segments
+      _tableDedupMetadataManager.stop();
+      releaseAndRemoveAllSegments();
+      try {
+        _tableDedupMetadataManager.close();
+      } catch (IOException e) {
+        _logger.warn("Caught exception while closing dedup metadata manager", e);
+      }
     } else {
       releaseAndRemoveAllSegments();
     }
@@ -0,0 +1,286 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.recordenricher.RecordEnricherPipeline;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.PartitionGroupConsumer;
+import org.apache.pinot.spi.stream.StreamDataDecoder;
+import org.apache.pinot.spi.stream.StreamDataDecoderResult;
+import org.apache.pinot.spi.stream.StreamPartitionMsgOffset;
+
+
+/**
+ * Pipelined consumption for {@link RealtimeSegmentDataManager}, which overlaps the stream fetch, message decoding and
+ * row indexing of a partition:
+ * <ul>
+ *   <li>The next message batch is prefetched on a dedicated thread while the current batch is processed.</li>
+ *   <li>The messages are decoded and transformed in chunks on a small pool of worker threads. Each worker uses its own
+ *   {@link Worker} because decoders and transformers are not thread-safe.</li>
+ *   <li>The consumer thread indexes the transformed rows in offset order as soon as each chunk is ready, so that the
+ *   consuming segment is still written by a single thread.</li>
+ * </ul>
+ * The pipeline is driven by the consumer thread only, and should be closed before the stream consumer is closed.
+ */
+@NotThreadSafe
+class StreamConsumptionPipeline implements Closeable {
+  // Minimum number of messages per decode chunk to amortize the task overhead
+  private static final int MIN_CHUNK_SIZE = 64;
+  // Number of chunks per worker for a batch, so that indexing can start before the whole batch is decoded
+  private static final int NUM_CHUNKS_PER_WORKER = 4;
+
+  private final BlockingQueue<Worker> _workers;
+  private final int _numWorkers;
+  private final ExecutorService _fetchExecutor;
+  private final ExecutorService _decodeExecutor;
+
+  private Future<MessageBatch> _prefetchFuture;
+  private StreamPartitionMsgOffset _prefetchOffset;
+
+  StreamConsumptionPipeline(String name, List<Worker> workers) {
+    _numWorkers = workers.size();
+    _workers = new ArrayBlockingQueue<>(_numWorkers, false, workers);
+    _fetchExecutor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat(name + "-fetch").setDaemon(true).build());
+    _decodeExecutor = Executors.newFixedThreadPool(_numWorkers,
+        new ThreadFactoryBuilder().setNameFormat(name + "-decode-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Starts fetching the message batch from the given offset in the background.
+   */
+  void prefetch(PartitionGroupConsumer partitionGroupConsumer, StreamPartitionMsgOffset startOffset, int timeoutMs) {
+    awaitPrefetch();
+    _prefetchOffset = startOffset;
+    _prefetchFuture = _fetchExecutor.submit(() -> partitionGroupConsumer.fetchMessages(startOffset, timeoutMs));
+  }
+
+  /**
+   * Returns the prefetched message batch if it starts from the given offset, or {@code null} if there is no prefetched
+   * batch or it starts from a different offset (e.g. the previous batch is not fully consumed), in which case it is
+   * discarded. Exception thrown from the prefetch is rethrown as is.
+   */
+  @Nullable
+  MessageBatch getPrefetchedBatch(StreamPartitionMsgOffset startOffset)
+      throws Exception {
+    Future<MessageBatch> prefetchFuture = _prefetchFuture;
+    if (prefetchFuture == null) {
+      return null;
+    }
+    _prefetchFuture = null;
+    MessageBatch messageBatch;
+    try {
+      messageBatch = prefetchFuture.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    }
+    return startOffset.compareTo(_prefetchOffset) == 0 ? messageBatch : null;
+  }
+
+  /**
+   * Waits for the in-flight prefetch (if any) to finish, and discards its result.
+   */
+  private void awaitPrefetch() {
+    Future<MessageBatch> prefetchFuture = _prefetchFuture;
+    if (prefetchFuture != null) {
+      _prefetchFuture = null;
+      try {
+        Uninterruptibles.getUninterruptibly(prefetchFuture);
+      } catch (Exception e) {
+        // Ignore the exception as the result is discarded
+      }
+    }
+  }
+
+  /**
+   * Starts decoding and transforming the first {@code numMessages} messages of the given batch in the background.
+   */
+  DecodedBatch decode(MessageBatch messageBatch, int numMessages) {
+    int chunkSize = Math.max(MIN_CHUNK_SIZE, (numMessages - 1) / (_numWorkers * NUM_CHUNKS_PER_WORKER) + 1);
+    int numChunks = (numMessages - 1) / chunkSize + 1;
+    DecodedBatch decodedBatch = new DecodedBatch(numMessages, chunkSize, numChunks);
+    for (int i = 0; i < numChunks; i++) {
+      int startIndex = i * chunkSize;
+      int endIndex = Math.min(startIndex + chunkSize, numMessages);
+      decodedBatch._chunkFutures[i] = _decodeExecutor.submit(() -> {
+        // There are as many workers as threads, so this should never block
+        Worker worker = _workers.take();
+        try {
+          long startTimeNs = System.nanoTime();
+          for (int index = startIndex; index < endIndex; index++) {
+            decodedBatch._messages[index] = worker.decode(messageBatch, index);
+          }
+          decodedBatch._decodeTimeNs.addAndGet(System.nanoTime() - startTimeNs);
+        } finally {
+          _workers.add(worker);
+        }
+        return null;
+      });
+    }
+    return decodedBatch;
+  }
+
+  @Override
+  public void close() {
+    awaitPrefetch();
+    _fetchExecutor.shutdownNow();
+    // Wait for the in-flight decode tasks (e.g. batch processing aborted with exception) so that the workers are not
+    // accessed concurrently when they are reused by the next pipeline
+    _decodeExecutor.shutdown();
+    try {
+      _decodeExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Decodes and transforms the messages with its own decoder and transformers.
+   */
+  static class Worker {
+    private final StreamDataDecoder _streamDataDecoder;
+    private final RecordEnricherPipeline _recordEnricherPipeline;
+    private final TransformPipeline _transformPipeline;
+
+    Worker(StreamDataDecoder streamDataDecoder, RecordEnricherPipeline recordEnricherPipeline,
+        TransformPipeline transformPipeline) {
+      _streamDataDecoder = streamDataDecoder;
+      _recordEnricherPipeline = recordEnricherPipeline;
+      _transformPipeline = transformPipeline;
+    }
+
+    private DecodedMessage decode(MessageBatch messageBatch, int index) {
+      StreamDataDecoderResult decodedRow = _streamDataDecoder.decode(messageBatch.getStreamMessage(index));
+      if (decodedRow.getException() != null) {
+        return new DecodedMessage(decodedRow, null, null);
+      }
+      TransformPipeline.Result result = new TransformPipeline.Result();
+      Exception transformException =
+          transform(_recordEnricherPipeline, _transformPipeline, decodedRow.getResult(), result);
+      return new DecodedMessage(decodedRow, result, transformException);
+    }
+  }
+
+  /**
+   * Enriches and transforms the decoded row into the given result. Returns the exception caught during the
+   * transformation, in which case the result is cleared so that the row is not partially indexed.
+   */
+  @Nullable
+  static Exception transform(RecordEnricherPipeline recordEnricherPipeline, TransformPipeline transformPipeline,
+      GenericRow decodedRow, TransformPipeline.Result result) {
+    try {
+      recordEnricherPipeline.run(decodedRow);
+      transformPipeline.processRow(decodedRow, result);
+      return null;
+    } catch (Exception e) {
+      result.getTransformedRows().clear();
+      return e;
+    }
+  }
+
+  static class DecodedMessage {
+    private final StreamDataDecoderResult _decodedRow;
+    private final TransformPipeline.Result _result;
+    private final Exception _transformException;
+
+    private DecodedMessage(StreamDataDecoderResult decodedRow, @Nullable TransformPipeline.Result result,
+        @Nullable Exception transformException) {
+      _decodedRow = decodedRow;
+      _result = result;
+      _transformException = transformException;
+    }
+
+    StreamDataDecoderResult getDecodedRow() {
+      return _decodedRow;
+    }
+
+    /**
+     * Returns the transform result, or {@code null} if the message failed to decode.
+     */
+    @Nullable
+    TransformPipeline.Result getResult() {
+      return _result;
+    }
+
+    @Nullable
+    Exception getTransformException() {
+      return _transformException;
+    }
+  }
+
+  static class DecodedBatch {
+    private final DecodedMessage[] _messages;
+    private final int _chunkSize;
+    private final Future<?>[] _chunkFutures;
+    private final AtomicLong _decodeTimeNs = new AtomicLong();
+
+    private DecodedBatch(int numMessages, int chunkSize, int numChunks) {
+      _messages = new DecodedMessage[numMessages];
+      _chunkSize = chunkSize;
+      _chunkFutures = new Future[numChunks];
+    }
+
+    /**
+     * Returns the decoded message at the given index, waiting for its chunk to be decoded if necessary.
+     */
+    DecodedMessage get(int index) {
+      try {
+        Uninterruptibles.getUninterruptibly(_chunkFutures[index / _chunkSize]);
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Caught exception while decoding messages", e.getCause());
+      }
+      return _messages[index];
+    }
+
+    /**
+     * Waits for all the chunks to be decoded so that the workers can be reused, and returns the total decode time in
+     * nanoseconds.
+     */
+    long awaitCompletion() {
+      for (Future<?> chunkFuture : _chunkFutures) {
+        try {
+          Uninterruptibles.getUninterruptibly(chunkFuture, 1, TimeUnit.MINUTES);
+        } catch (Exception e) {
+          // Ignore the exception as the result is discarded
+        }
+      }
+      return _decodeTimeNs.get();
+    }
+  }
+}
@@ -34,4 +34,12 @@ public class IntermediateRecord {
     _record = record;
     _values = values;
   }
+
+  /**
+   * Creates an intermediate record without the values to be ordered, which can only be merged but not ordered (e.g.
+   * segment level results restored from the segment result cache).
+   */
+  public IntermediateRecord(Key key, Record record) {
+    this(key, record, null);
+  }
 }
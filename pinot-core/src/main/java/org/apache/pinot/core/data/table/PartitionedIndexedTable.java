@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.table;
+
+import com.google.common.base.Preconditions;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.query.request.context.QueryContext;
+
+
+/**
+ * {@link IndexedTable} made of radix partitions, where each group key belongs to exactly one partition (see
+ * {@link #getPartitionId(Key, int)}).
+ *
+ * <p>The partitions are built and merged independently (see {@link #mergePartition(IndexedTable, IndexedTable)}),
+ * without any shared structure, and each partition is trimmed on its own. Because the partitions do not share keys,
+ * trimming a partition to the trim size never drops a record that would be in the top records of the whole table.
+ * This table is a read-only view over the merged partitions, and {@link #finish(boolean, boolean)} picks the top
+ * records across all the partitions without copying them into a new map.
+ */
+@SuppressWarnings("unchecked")
+public class PartitionedIndexedTable extends IndexedTable {
+  private final IndexedTable[] _partitions;
+
+  public PartitionedIndexedTable(DataSchema dataSchema, QueryContext queryContext, int resultSize, int trimSize,
+      int trimThreshold, IndexedTable[] partitions) {
+    this(dataSchema, false, queryContext, resultSize, trimSize, trimThreshold, partitions);
+  }
+
+  public PartitionedIndexedTable(DataSchema dataSchema, boolean hasFinalInput, QueryContext queryContext,
+      int resultSize, int trimSize, int trimThreshold, IndexedTable[] partitions) {
+    // Without ORDER BY, each partition can hold up to resultSize records, so only keep resultSize records overall
+    super(dataSchema, hasFinalInput, queryContext, resultSize, trimSize, trimThreshold,
+        new PartitionedRecordsMap(partitions,
+            queryContext.getOrderByExpressions() != null ? Integer.MAX_VALUE : resultSize));
+    _partitions = partitions;
+  }
+
+  /**
+   * Returns the partition of the given key. The number of partitions must be a power of 2.
+   *
+   * <p>The partition is picked from the high bits of the hash so that the keys within a partition are still spread
+   * over the buckets of a hash map, which are picked from the low bits.
+   */
+  public static int getPartitionId(Key key, int numPartitions) {
+    if (numPartitions == 1) {
+      return 0;
+    }
+    return (key.hashCode() * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(numPartitions - 1);
+  }
+
+  /**
+   * Merges the records of the source table into the target table. Both tables must hold the same partition and must
+   * not be finished yet. The target table is trimmed as usual when it exceeds its trim threshold.
+   */
+  public static void mergePartition(IndexedTable target, IndexedTable source) {
+    Preconditions.checkState(source._topRecords == null, "Cannot merge a finished table");
+    for (Map.Entry<Key, Record> entry : source._lookupMap.entrySet()) {
+      target.upsert(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * The partitions are already merged, so this table does not accept new records.
+   */
+  @Override
+  public boolean upsert(Key key, Record record) {
+    throw new UnsupportedOperationException("Cannot upsert into a partitioned table");
+  }
+
+  @Override
+  public int getNumResizes() {
+    int numResizes = super.getNumResizes();
+    for (IndexedTable partition : _partitions) {
+      numResizes += partition.getNumResizes();
+    }
+    return numResizes;
+  }
+
+  @Override
+  public long getResizeTimeMs() {
+    long resizeTimeMs = super.getResizeTimeMs();
+    for (IndexedTable partition : _partitions) {
+      resizeTimeMs += partition.getResizeTimeMs();
+    }
+    return resizeTimeMs;
+  }
+
+  /**
+   * Read-only map over the records of all the partitions, capped at the given number of records.
+   */
+  private static class PartitionedRecordsMap extends AbstractMap<Key, Record> {
+    private final Map<Key, Record>[] _partitionMaps;
+    private final int _size;
+
+    PartitionedRecordsMap(IndexedTable[] partitions, int maxSize) {
+      _partitionMaps = new Map[partitions.length];
+      long size = 0;
+      for (int i = 0; i < partitions.length; i++) {
+        _partitionMaps[i] = partitions[i]._lookupMap;
+        size += _partitionMaps[i].size();
+      }
+      _size = (int) Math.min(size, maxSize);
+    }
+
+    @Override
+    public int size() {
+      return _size;
+    }
+
+    @Override
+    public Set<Entry<Key, Record>> entrySet() {
+      return new AbstractSet<Entry<Key, Record>>() {
+        @Override
+        public Iterator<Entry<Key, Record>> iterator() {
+          return new Iterator<Entry<Key, Record>>() {
+            private int _numReturned;
+            private int _partitionId;
+            private Iterator<Entry<Key, Record>> _partitionIterator = _partitionMaps[0].entrySet().iterator();
+
+            @Override
+            public boolean hasNext() {
+              if (_numReturned >= _size) {
+                return false;
+              }
+              while (!_partitionIterator.hasNext()) {
+                _partitionIterator = _partitionMaps[++_partitionId].entrySet().iterator();
+              }
+              return true;
+            }
+
+            @Override
+            public Entry<Key, Record> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              _numReturned++;
+              return _partitionIterator.next();
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return _size;
+        }
+      };
+    }
+  }
+}
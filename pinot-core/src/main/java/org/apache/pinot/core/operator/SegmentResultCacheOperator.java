@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator;
+
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.plan.PlanNode;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.IndexSegment;
+
+
+/**
+ * A wrapper around the segment-level operator which serves the results from the {@link SegmentResultCache}.
+ * Similar to {@link AcquireReleaseColumnsSegmentOperator}, it expects the PlanNode of the execution instead of the
+ * Operator, so that the plan is not run for the segment when the results are cached. When the results are not cached,
+ * it runs the plan and caches the results before they are merged by the combine operator.
+ */
+@SuppressWarnings("unchecked")
+public class SegmentResultCacheOperator extends BaseOperator<BaseResultsBlock> {
+  private static final String EXPLAIN_NAME = "SEGMENT_RESULT_CACHE";
+
+  private final PlanNode _planNode;
+  private final SegmentResultCache _segmentResultCache;
+  private final IndexSegment _indexSegment;
+  private final QueryContext _queryContext;
+  private final String _queryFingerprint;
+
+  private Operator<BaseResultsBlock> _childOperator;
+  private ExecutionStatistics _cachedExecutionStatistics;
+
+  public SegmentResultCacheOperator(PlanNode planNode, SegmentResultCache segmentResultCache,
+      IndexSegment indexSegment, QueryContext queryContext, String queryFingerprint) {
+    _planNode = planNode;
+    _segmentResultCache = segmentResultCache;
+    _indexSegment = indexSegment;
+    _queryContext = queryContext;
+    _queryFingerprint = queryFingerprint;
+  }
+
+  @Override
+  protected BaseResultsBlock getNextBlock() {
+    String tableNameWithType = _queryContext.getTableName();
+    Pair<BaseResultsBlock, ExecutionStatistics> cachedResults =
+        _segmentResultCache.get(tableNameWithType, _indexSegment, _queryFingerprint, _queryContext);
+    if (cachedResults != null) {
+      ServerMetrics.get().addMeteredTableValue(tableNameWithType, ServerMeter.SEGMENT_RESULT_CACHE_HITS, 1);
+      _cachedExecutionStatistics = cachedResults.getRight();
+      return cachedResults.getLeft();
+    }
+    ServerMetrics.get().addMeteredTableValue(tableNameWithType, ServerMeter.SEGMENT_RESULT_CACHE_MISSES, 1);
+    _childOperator = (Operator<BaseResultsBlock>) _planNode.run();
+    BaseResultsBlock resultsBlock = _childOperator.nextBlock();
+    _segmentResultCache.put(tableNameWithType, _indexSegment, _queryFingerprint, resultsBlock,
+        _childOperator.getExecutionStatistics());
+    return resultsBlock;
+  }
+
+  @Override
+  public String toExplainString() {
+    return EXPLAIN_NAME;
+  }
+
+  @Override
+  public List<Operator> getChildOperators() {
+    return _childOperator != null ? Collections.singletonList(_childOperator) : Collections.emptyList();
+  }
+
+  @Override
+  public IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    if (_cachedExecutionStatistics != null) {
+      return _cachedExecutionStatistics;
+    }
+    return _childOperator == null ? new ExecutionStatistics(0, 0, 0, 0) : _childOperator.getExecutionStatistics();
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.List;
 import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.common.datatable.DataTableBuilderFactory;
 import org.apache.pinot.core.data.table.Record;
 import org.apache.pinot.core.query.distinct.DistinctTable;
 import org.apache.pinot.core.query.request.context.QueryContext;
@@ -80,6 +81,7 @@ public class DistinctResultsBlock extends BaseResultsBlock {
       throws IOException {
     Collection<Object[]> rows = getRows();
     return SelectionOperatorUtils.getDataTableFromRows(rows, _distinctTable.getDataSchema(),
-        _queryContext.isNullHandlingEnabled());
+        _queryContext.isNullHandlingEnabled(),
+        DataTableBuilderFactory.getDataTableVersion(_queryContext.getQueryOptions()));
   }
 }
@@ -74,7 +74,9 @@ public class ExplainResultsBlock extends BaseResultsBlock {
   @Override
   public DataTable getDataTable()
       throws IOException {
-    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(DataSchema.EXPLAIN_RESULT_SCHEMA);
+    DataTableBuilder dataTableBuilder =
+        DataTableBuilderFactory.getDataTableBuilderForQuery(DataSchema.EXPLAIN_RESULT_SCHEMA,
+            _queryContext.getQueryOptions());
     for (ExplainEntry entry : _entries) {
       dataTableBuilder.startRow();
       dataTableBuilder.setColumn(0, entry._operatorName);
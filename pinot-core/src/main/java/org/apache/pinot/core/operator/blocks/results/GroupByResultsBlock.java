@@ -18,6 +18,7 @@
  */
 package org.apache.pinot.core.operator.blocks.results;
 
+import com.google.common.collect.Iterators;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.floats.FloatArrayList;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -26,11 +27,13 @@ import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.datatable.DataTable.MetadataKey;
 import org.apache.pinot.common.utils.ArrayListUtils;
@@ -175,13 +178,14 @@ public class GroupByResultsBlock extends BaseResultsBlock {
   @Override
   public DataTable getDataTable()
       throws IOException {
-    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(_dataSchema);
-    if (_table == null) {
+    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilderForQuery(_dataSchema,
+        _queryContext.getQueryOptions());
+    Iterator<Record> iterator = getRecordIterator();
+    if (iterator == null) {
       return dataTableBuilder.build();
     }
     ColumnDataType[] storedColumnDataTypes = _dataSchema.getStoredColumnDataTypes();
     int numColumns = _dataSchema.size();
-    Iterator<Record> iterator = _table.iterator();
     int numRowsAdded = 0;
     if (_queryContext.isNullHandlingEnabled()) {
       RoaringBitmap[] nullBitmaps = new RoaringBitmap[numColumns];
@@ -225,6 +229,34 @@ public class GroupByResultsBlock extends BaseResultsBlock {
     return dataTableBuilder.build();
   }
 
+  /**
+   * Returns an iterator over the records within the results block, or {@code null} if there is no result. Besides the
+   * instance level table, the segment level results are also iterated so that they can be serialized (e.g. for the
+   * segment result cache).
+   */
+  @Nullable
+  private Iterator<Record> getRecordIterator() {
+    if (_table != null) {
+      return _table.iterator();
+    }
+    if (_intermediateRecords != null) {
+      return Iterators.transform(_intermediateRecords.iterator(), intermediateRecord -> intermediateRecord._record);
+    }
+    if (_aggregationGroupByResult != null) {
+      int numColumns = _dataSchema.size();
+      int numGroupByExpressions = _queryContext.getGroupByExpressions().size();
+      int numAggregationFunctions = numColumns - numGroupByExpressions;
+      return Iterators.transform(_aggregationGroupByResult.getGroupKeyIterator(), groupKey -> {
+        Object[] values = Arrays.copyOf(groupKey._keys, numColumns);
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          values[numGroupByExpressions + i] = _aggregationGroupByResult.getResultForGroupId(i, groupKey._groupId);
+        }
+        return new Record(values);
+      });
+    }
+    return null;
+  }
+
   private void setDataTableColumn(ColumnDataType storedColumnDataType, DataTableBuilder dataTableBuilder,
       int columnIndex, Object value)
       throws IOException {
@@ -0,0 +1,371 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.combine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.data.table.IndexedTable;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.PartitionedIndexedTable;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.data.table.SimpleIndexedTable;
+import org.apache.pinot.core.operator.AcquireReleaseColumnsSegmentOperator;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.ExceptionResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.ResultsBlockUtils;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import org.apache.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.util.GroupByUtils;
+import org.apache.pinot.core.util.trace.TraceRunnable;
+import org.apache.pinot.spi.accounting.ThreadResourceUsageProvider;
+import org.apache.pinot.spi.trace.Tracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Combine operator for group-by queries which merges the results with radix partitioning instead of a shared
+ * concurrent table.
+ * <ul>
+ *   <li>
+ *     Each worker thread hashes the group keys of its segments into its own partitions (see
+ *     {@link PartitionedIndexedTable#getPartitionId(Key, int)}), which are not shared with the other threads.
+ *   </li>
+ *   <li>
+ *     Once all the segments are processed, the partitions of the worker threads are merged partition by partition in
+ *     parallel. Each partition is trimmed independently with the table resizer.
+ *   </li>
+ *   <li>
+ *     The merged partitions are then exposed as a single {@link PartitionedIndexedTable}.
+ *   </li>
+ * </ul>
+ * This avoids the contention on the concurrent map and the resize lock of the {@link IndexedTable} shared by all the
+ * threads in {@link GroupByCombineOperator}, which shows up with many groups and many threads.
+ */
+@SuppressWarnings("rawtypes")
+public class PartitionedGroupByCombineOperator extends BaseSingleBlockCombineOperator<GroupByResultsBlock> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedGroupByCombineOperator.class);
+  private static final String EXPLAIN_NAME = "COMBINE_GROUP_BY_PARTITIONED";
+  private static final int MAX_NUM_PARTITIONS = 1024;
+  // Lower bound of the per-partition capacity and trim threshold, so that many partitions do not cause small tables
+  // to be trimmed or capped too aggressively
+  private static final int MIN_PARTITION_CAPACITY = 1000;
+
+  private final int _trimSize;
+  private final int _trimThreshold;
+  private final int _partitionResultSize;
+  private final int _partitionTrimThreshold;
+  private final int _numAggregationFunctions;
+  private final int _numGroupByExpressions;
+  private final int _numColumns;
+  private final int _numPartitions;
+  // We use a CountDownLatch to track if all Futures are finished by the query timeout, and cancel the unfinished
+  // _futures (try to interrupt the execution if it already started).
+  private final CountDownLatch _operatorLatch;
+  // Partitions of each worker thread
+  private final Queue<IndexedTable[]> _workerPartitions = new ConcurrentLinkedQueue<>();
+  // Use an AtomicInteger to track the next partition to merge
+  private final AtomicInteger _nextPartitionId = new AtomicInteger();
+
+  private volatile DataSchema _dataSchema;
+  private volatile boolean _numGroupsLimitReached;
+
+  public PartitionedGroupByCombineOperator(List<Operator> operators, QueryContext queryContext,
+      ExecutorService executorService) {
+    super(null, operators, overrideMaxExecutionThreads(queryContext, operators.size()), executorService);
+
+    int minTrimSize = queryContext.getMinServerGroupTrimSize();
+    if (minTrimSize > 0) {
+      int limit = queryContext.getLimit();
+      if ((!queryContext.isServerReturnFinalResult() && queryContext.getOrderByExpressions() != null)
+          || queryContext.getHavingFilter() != null) {
+        _trimSize = GroupByUtils.getTableCapacity(limit, minTrimSize);
+      } else {
+        // TODO: Keeping only 'LIMIT' groups can cause inaccurate result because the groups are randomly selected
+        //       without ordering. Consider ordering on group-by columns if no ordering is specified.
+        _trimSize = limit;
+      }
+      _trimThreshold = queryContext.getGroupTrimThreshold();
+    } else {
+      // Server trim is disabled
+      _trimSize = Integer.MAX_VALUE;
+      _trimThreshold = Integer.MAX_VALUE;
+    }
+
+    AggregationFunction[] aggregationFunctions = _queryContext.getAggregationFunctions();
+    assert aggregationFunctions != null;
+    _numAggregationFunctions = aggregationFunctions.length;
+    assert _queryContext.getGroupByExpressions() != null;
+    _numGroupByExpressions = _queryContext.getGroupByExpressions().size();
+    _numColumns = _numGroupByExpressions + _numAggregationFunctions;
+    // Round up to a power of 2 so that the partition can be picked from the bits of the hash
+    int numPartitions = Math.min(Math.max(queryContext.getNumGroupByCombinePartitions(), 2), MAX_NUM_PARTITIONS);
+    _numPartitions = Integer.highestOneBit(numPartitions - 1) << 1;
+    // Each worker thread holds all the partitions, so split the capacity and the trim threshold across them to keep
+    // the memory of a worker thread close to the one of a single table. The trim size is not split in order to
+    // maintain the desired accuracy (the trim threshold is lower bounded by twice the trim size in IndexedTable).
+    // Without ORDER BY, keep twice the even share of the groups in each partition so that uneven partitions still
+    // hold 'LIMIT' groups overall.
+    _partitionResultSize =
+        _queryContext.getOrderByExpressions() != null ? _trimSize : getPartitionCapacity(_trimSize, 2);
+    _partitionTrimThreshold = getPartitionCapacity(_trimThreshold, 1);
+    _operatorLatch = new CountDownLatch(_numTasks);
+  }
+
+  /**
+   * Returns the share of each partition for the given capacity of the table, or {@link Integer#MAX_VALUE} if the table
+   * is unbounded.
+   */
+  private int getPartitionCapacity(int capacity, int multiplier) {
+    if (capacity == Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    }
+    return Math.max(capacity / _numPartitions * multiplier, Math.min(capacity, MIN_PARTITION_CAPACITY));
+  }
+
+  /**
+   * For group-by queries, when maxExecutionThreads is not explicitly configured, create one task per operator.
+   */
+  private static QueryContext overrideMaxExecutionThreads(QueryContext queryContext, int numOperators) {
+    int maxExecutionThreads = queryContext.getMaxExecutionThreads();
+    if (maxExecutionThreads <= 0) {
+      queryContext.setMaxExecutionThreads(numOperators);
+    }
+    return queryContext;
+  }
+
+  @Override
+  public String toExplainString() {
+    return EXPLAIN_NAME;
+  }
+
+  /**
+   * Executes query on one segment in a worker thread and merges the results into the partitions of the thread.
+   */
+  @Override
+  protected void processSegments() {
+    IndexedTable[] partitions = null;
+    int operatorId;
+    while (_processingException.get() == null && (operatorId = _nextOperatorId.getAndIncrement()) < _numOperators) {
+      Operator operator = _operators.get(operatorId);
+      try {
+        if (operator instanceof AcquireReleaseColumnsSegmentOperator) {
+          ((AcquireReleaseColumnsSegmentOperator) operator).acquire();
+        }
+        GroupByResultsBlock resultsBlock = (GroupByResultsBlock) operator.nextBlock();
+        if (partitions == null) {
+          DataSchema dataSchema = resultsBlock.getDataSchema();
+          _dataSchema = dataSchema;
+          partitions = new IndexedTable[_numPartitions];
+          for (int i = 0; i < _numPartitions; i++) {
+            partitions[i] = createPartition(dataSchema);
+          }
+          _workerPartitions.add(partitions);
+        }
+
+        // Set groups limit reached flag.
+        if (resultsBlock.isNumGroupsLimitReached()) {
+          _numGroupsLimitReached = true;
+        }
+
+        // Merge aggregation group-by result.
+        // Iterate over the group-by keys, for each key, update the group-by result in the partition of the key
+        Collection<IntermediateRecord> intermediateRecords = resultsBlock.getIntermediateRecords();
+        // Count the number of merged keys
+        int mergedKeys = 0;
+        // For now, only GroupBy OrderBy query has pre-constructed intermediate records
+        if (intermediateRecords == null) {
+          // Merge aggregation group-by result.
+          AggregationGroupByResult aggregationGroupByResult = resultsBlock.getAggregationGroupByResult();
+          if (aggregationGroupByResult != null) {
+            // Iterate over the group-by keys, for each key, update the group-by result in the partition of the key
+            Iterator<GroupKeyGenerator.GroupKey> dicGroupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+            while (dicGroupKeyIterator.hasNext()) {
+              GroupKeyGenerator.GroupKey groupKey = dicGroupKeyIterator.next();
+              Object[] keys = groupKey._keys;
+              Object[] values = Arrays.copyOf(keys, _numColumns);
+              int groupId = groupKey._groupId;
+              for (int i = 0; i < _numAggregationFunctions; i++) {
+                values[_numGroupByExpressions + i] = aggregationGroupByResult.getResultForGroupId(i, groupId);
+              }
+              Key key = new Key(keys);
+              partitions[PartitionedIndexedTable.getPartitionId(key, _numPartitions)].upsert(key, new Record(values));
+              Tracing.ThreadAccountantOps.sampleAndCheckInterruptionPeriodically(mergedKeys);
+              mergedKeys++;
+            }
+          }
+        } else {
+          for (IntermediateRecord intermediateResult : intermediateRecords) {
+            Key key = intermediateResult._key;
+            partitions[PartitionedIndexedTable.getPartitionId(key, _numPartitions)].upsert(key,
+                intermediateResult._record);
+            Tracing.ThreadAccountantOps.sampleAndCheckInterruptionPeriodically(mergedKeys);
+            mergedKeys++;
+          }
+        }
+      } finally {
+        if (operator instanceof AcquireReleaseColumnsSegmentOperator) {
+          ((AcquireReleaseColumnsSegmentOperator) operator).release();
+        }
+      }
+    }
+  }
+
+  private IndexedTable createPartition(DataSchema dataSchema) {
+    // NOTE: Use trimSize as resultSize on server size. The partitions are combined into a PartitionedIndexedTable with
+    //       the full result size, trim size and trim threshold.
+    return new SimpleIndexedTable(dataSchema, _queryContext, _partitionResultSize, _trimSize, _partitionTrimThreshold);
+  }
+
+  @Override
+  public void onProcessSegmentsException(Throwable t) {
+    _processingException.compareAndSet(null, t);
+  }
+
+  @Override
+  public void onProcessSegmentsFinish() {
+    _operatorLatch.countDown();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Merges the partitions of the worker threads partition by partition in parallel, and returns the merged
+   * partitions as a single results block.
+   */
+  @Override
+  public BaseResultsBlock mergeResults()
+      throws Exception {
+    long timeoutMs = _queryContext.getEndTimeMs() - System.currentTimeMillis();
+    boolean opCompleted = _operatorLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
+    if (!opCompleted) {
+      // If this happens, the broker side should already timed out, just log the error and return
+      String errorMessage =
+          String.format("Timed out while combining group-by order-by results after %dms, queryContext = %s", timeoutMs,
+              _queryContext);
+      LOGGER.error(errorMessage);
+      return new ExceptionResultsBlock(new TimeoutException(errorMessage));
+    }
+
+    Throwable processingException = _processingException.get();
+    if (processingException != null) {
+      return new ExceptionResultsBlock(processingException);
+    }
+
+    // No worker thread processed a segment (e.g. no segment to process)
+    if (_workerPartitions.isEmpty() || _dataSchema == null) {
+      return ResultsBlockUtils.buildEmptyQueryResults(_queryContext);
+    }
+
+    List<IndexedTable[]> workerPartitions = new ArrayList<>(_workerPartitions);
+    IndexedTable[] mergedPartitions = new IndexedTable[_numPartitions];
+    CountDownLatch partitionLatch = new CountDownLatch(_numPartitions);
+    // The main thread merges partitions as well, so the query makes progress even if the helper tasks are not
+    // scheduled. Helper tasks that start after all the partitions are claimed return immediately.
+    int numHelperTasks = Math.min(_numTasks, _numPartitions) - 1;
+    Future[] helperFutures = new Future[numHelperTasks];
+    for (int i = 0; i < numHelperTasks; i++) {
+      helperFutures[i] = _executorService.submit(new TraceRunnable() {
+        @Override
+        public void runJob() {
+          ThreadResourceUsageProvider threadResourceUsageProvider = new ThreadResourceUsageProvider();
+          mergePartitions(workerPartitions, mergedPartitions, partitionLatch);
+          _totalWorkerThreadCpuTimeNs.getAndAdd(threadResourceUsageProvider.getThreadTimeNs());
+        }
+      });
+    }
+    mergePartitions(workerPartitions, mergedPartitions, partitionLatch);
+    timeoutMs = _queryContext.getEndTimeMs() - System.currentTimeMillis();
+    if (!partitionLatch.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+      for (Future future : helperFutures) {
+        future.cancel(true);
+      }
+      String errorMessage =
+          String.format("Timed out while merging group-by partitions after %dms, queryContext = %s", timeoutMs,
+              _queryContext);
+      LOGGER.error(errorMessage);
+      return new ExceptionResultsBlock(new TimeoutException(errorMessage));
+    }
+    processingException = _processingException.get();
+    if (processingException != null) {
+      return new ExceptionResultsBlock(processingException);
+    }
+
+    IndexedTable indexedTable =
+        new PartitionedIndexedTable(_dataSchema, _queryContext, _trimSize, _trimSize, _trimThreshold,
+            mergedPartitions);
+    if (_queryContext.isServerReturnFinalResult()) {
+      indexedTable.finish(true, true);
+    } else if (_queryContext.isServerReturnFinalResultKeyUnpartitioned()) {
+      indexedTable.finish(false, true);
+    } else {
+      indexedTable.finish(false);
+    }
+    GroupByResultsBlock mergedBlock = new GroupByResultsBlock(indexedTable, _queryContext);
+    mergedBlock.setNumGroupsLimitReached(_numGroupsLimitReached);
+    mergedBlock.setNumResizes(indexedTable.getNumResizes());
+    mergedBlock.setResizeTimeMs(indexedTable.getResizeTimeMs());
+    return mergedBlock;
+  }
+
+  /**
+   * Claims the partitions not merged yet one by one, and merges the partitions of all the worker threads into the
+   * first one. The partitions are independent, so no synchronization is needed beyond claiming them.
+   */
+  private void mergePartitions(List<IndexedTable[]> workerPartitions, IndexedTable[] mergedPartitions,
+      CountDownLatch partitionLatch) {
+    int partitionId;
+    while ((partitionId = _nextPartitionId.getAndIncrement()) < _numPartitions) {
+      try {
+        if (_processingException.get() == null) {
+          IndexedTable mergedPartition = workerPartitions.get(0)[partitionId];
+          int numWorkers = workerPartitions.size();
+          for (int i = 1; i < numWorkers; i++) {
+            PartitionedIndexedTable.mergePartition(mergedPartition, workerPartitions.get(i)[partitionId]);
+            Tracing.ThreadAccountantOps.sampleAndCheckInterruptionPeriodically(i);
+          }
+          mergedPartitions[partitionId] = mergedPartition;
+        }
+      } catch (Throwable t) {
+        LOGGER.error("Caught exception while merging group-by partition: {} (query: {})", partitionId, _queryContext,
+            t);
+        _processingException.compareAndSet(null, t);
+      } finally {
+        partitionLatch.countDown();
+      }
+    }
+  }
+}
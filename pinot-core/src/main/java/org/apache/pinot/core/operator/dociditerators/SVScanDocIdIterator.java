@@ -18,9 +18,13 @@
  */
 package org.apache.pinot.core.operator.dociditerators;
 
+import com.google.common.annotations.VisibleForTesting;
 import java.util.OptionalInt;
 import org.apache.pinot.core.common.BlockDocIdIterator;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStatistics;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.operator.filter.predicate.traits.IntRange;
+import org.apache.pinot.core.operator.filter.predicate.traits.LongRange;
 import org.apache.pinot.segment.spi.Constants;
 import org.apache.pinot.segment.spi.datasource.DataSource;
 import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
@@ -33,6 +37,12 @@ import org.roaringbitmap.buffer.MutableRoaringBitmap;
 /**
  * The {@code SVScanDocIdIterator} is the scan-based iterator for SVScanDocIdSet to scan a single-value column for the
  * matching document ids.
+ *
+ * <p>{@link #advance(int)} evaluates the predicate one document at a time, while {@link #next()} and
+ * {@link #applyAnd(BatchIterator, OptionalInt, OptionalInt)} decode the values of a batch of documents into an array
+ * and evaluate the predicate over the whole batch. For range predicates on dictionary ids, INT and LONG values, the
+ * batch is evaluated with a branch-free loop when the selectivity of the previous batch makes the branch hard to
+ * predict.
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
@@ -50,6 +60,8 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
 
   private int _nextDocId = 0;
   private long _numEntriesScanned = 0L;
+  // Records the scan evaluation within AND when adaptive filter reordering is enabled
+  private FilterSelectivityStatistics.Entry _statistics;
 
   public SVScanDocIdIterator(PredicateEvaluator predicateEvaluator, DataSource dataSource, int numDocs, int batchSize) {
     _batch = new int[batchSize];
@@ -111,11 +123,18 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     return Constants.EOF;
   }
 
+  public void setStatistics(FilterSelectivityStatistics.Entry statistics) {
+    _statistics = statistics;
+  }
+
   @Override
   public MutableRoaringBitmap applyAnd(BatchIterator docIdIterator, OptionalInt firstDoc, OptionalInt lastDoc) {
     if (!docIdIterator.hasNext()) {
       return new MutableRoaringBitmap();
     }
+    long startTimeNs = _statistics != null ? System.nanoTime() : 0L;
+    long numEntriesScannedBefore = _numEntriesScanned;
+    long numMatchingDocs = 0L;
     RoaringBitmapWriter<MutableRoaringBitmap> result;
     if (firstDoc.isPresent() && lastDoc.isPresent()) {
       result = RoaringBitmapWriter.bufferWriter()
@@ -135,9 +154,14 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
         for (int i = 0; i < firstMismatch; i++) {
           result.add(buffer[i]);
         }
+        numMatchingDocs += firstMismatch;
       }
       _numEntriesScanned += limit;
     }
+    if (_statistics != null) {
+      _statistics.recordScanEvaluation(_numEntriesScanned - numEntriesScannedBefore, numMatchingDocs,
+          System.nanoTime() - startTimeNs);
+    }
     return result.get();
   }
 
@@ -162,12 +186,24 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
 
   private ValueMatcher getValueMatcher() {
     if (_reader.isDictionaryEncoded()) {
+      if (_predicateEvaluator.isDictionaryBased() && _predicateEvaluator instanceof IntRange) {
+        return new DictIdRangeMatcher((IntRange) _predicateEvaluator);
+      }
       return new DictIdMatcher();
     } else {
       switch (_reader.getStoredType()) {
         case INT:
+          if (!_predicateEvaluator.isDictionaryBased() && _predicateEvaluator instanceof IntRange) {
+            return new IntRangeMatcher((IntRange) _predicateEvaluator);
+          }
           return new IntMatcher();
         case LONG:
+          if (!_predicateEvaluator.isDictionaryBased() && _predicateEvaluator instanceof LongRange) {
+            LongRange longRange = (LongRange) _predicateEvaluator;
+            if (longRange.getInclusiveLowerBound() <= longRange.getInclusiveUpperBound()) {
+              return new LongRangeMatcher(longRange);
+            }
+          }
           return new LongMatcher();
         case FLOAT:
           return new FloatMatcher();
@@ -212,7 +248,7 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
 
   private class DictIdMatcher implements ValueMatcher {
 
-    private final int[] _buffer = new int[_batch.length];
+    final int[] _buffer = new int[_batch.length];
 
     @Override
     public boolean doesValueMatch(int docId) {
@@ -226,9 +262,74 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     }
   }
 
+  /**
+   * Returns whether the batch should be evaluated with the branch-free loop given the number of matches in the
+   * previous batch. The branch-free loop has a constant cost per value, and is faster than the branchy loop unless
+   * almost none or almost all of the values match, in which case the branch is well predicted.
+   */
+  private static boolean shouldUseBranchFreeLoop(int numMatches, int limit) {
+    int margin = limit >>> 5;
+    return numMatches > margin && numMatches < limit - margin;
+  }
+
+  /**
+   * Compacts the docIds with the values in the inclusive range [lowerBound, upperBound] to the start of the array
+   * without branching on the values. The differences are computed as long to avoid overflow, and both are non-negative
+   * only if the value is in the range.
+   */
+  @VisibleForTesting
+  static int matchRangeBranchFree(int limit, int[] docIds, int[] values, int lowerBound, int upperBound) {
+    int matches = 0;
+    for (int i = 0; i < limit; i++) {
+      long value = values[i];
+      docIds[matches] = docIds[i];
+      matches += (int) (~((value - lowerBound) | (upperBound - value)) >>> 63);
+    }
+    return matches;
+  }
+
+  /**
+   * Same as {@link #matchRangeBranchFree(int, int[], int[], int, int)} for LONG values. A value is in the range iff
+   * {@code value - lowerBound <= upperBound - lowerBound} as unsigned longs, which is computed without branching (see
+   * Hacker's Delight 2-12). Requires {@code lowerBound <= upperBound}.
+   */
+  @VisibleForTesting
+  static int matchRangeBranchFree(int limit, int[] docIds, long[] values, long lowerBound, long upperBound) {
+    long range = upperBound - lowerBound;
+    int matches = 0;
+    for (int i = 0; i < limit; i++) {
+      long offset = values[i] - lowerBound;
+      docIds[matches] = docIds[i];
+      // 1 iff range < offset (unsigned)
+      long outOfRange = ((~range & offset) | ((~range | offset) & (range - offset))) >>> 63;
+      matches += (int) (1 - outOfRange);
+    }
+    return matches;
+  }
+
+  private class DictIdRangeMatcher extends DictIdMatcher {
+    private final int _lowerBound;
+    private final int _upperBound;
+    private boolean _branchFree = true;
+
+    DictIdRangeMatcher(IntRange range) {
+      _lowerBound = range.getInclusiveLowerBound();
+      _upperBound = range.getInclusiveUpperBound();
+    }
+
+    @Override
+    public int matchValues(int limit, int[] docIds) {
+      _reader.readDictIds(docIds, limit, _buffer, _readerContext);
+      int matches = _branchFree ? matchRangeBranchFree(limit, docIds, _buffer, _lowerBound, _upperBound)
+          : _predicateEvaluator.applySV(limit, docIds, _buffer);
+      _branchFree = shouldUseBranchFreeLoop(matches, limit);
+      return matches;
+    }
+  }
+
   private class IntMatcher implements ValueMatcher {
 
-    private final int[] _buffer = new int[_batch.length];
+    final int[] _buffer = new int[_batch.length];
 
     @Override
     public boolean doesValueMatch(int docId) {
@@ -242,9 +343,29 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     }
   }
 
+  private class IntRangeMatcher extends IntMatcher {
+    private final int _lowerBound;
+    private final int _upperBound;
+    private boolean _branchFree = true;
+
+    IntRangeMatcher(IntRange range) {
+      _lowerBound = range.getInclusiveLowerBound();
+      _upperBound = range.getInclusiveUpperBound();
+    }
+
+    @Override
+    public int matchValues(int limit, int[] docIds) {
+      _reader.readValuesSV(docIds, limit, _buffer, _readerContext);
+      int matches = _branchFree ? matchRangeBranchFree(limit, docIds, _buffer, _lowerBound, _upperBound)
+          : _predicateEvaluator.applySV(limit, docIds, _buffer);
+      _branchFree = shouldUseBranchFreeLoop(matches, limit);
+      return matches;
+    }
+  }
+
   private class LongMatcher implements ValueMatcher {
 
-    private final long[] _buffer = new long[_batch.length];
+    final long[] _buffer = new long[_batch.length];
 
     @Override
     public boolean doesValueMatch(int docId) {
@@ -258,6 +379,26 @@ public final class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     }
   }
 
+  private class LongRangeMatcher extends LongMatcher {
+    private final long _lowerBound;
+    private final long _upperBound;
+    private boolean _branchFree = true;
+
+    LongRangeMatcher(LongRange range) {
+      _lowerBound = range.getInclusiveLowerBound();
+      _upperBound = range.getInclusiveUpperBound();
+    }
+
+    @Override
+    public int matchValues(int limit, int[] docIds) {
+      _reader.readValuesSV(docIds, limit, _buffer, _readerContext);
+      int matches = _branchFree ? matchRangeBranchFree(limit, docIds, _buffer, _lowerBound, _upperBound)
+          : _predicateEvaluator.applySV(limit, docIds, _buffer);
+      _branchFree = shouldUseBranchFreeLoop(matches, limit);
+      return matches;
+    }
+  }
+
   private class FloatMatcher implements ValueMatcher {
 
     private final float[] _buffer = new float[_batch.length];
@@ -24,20 +24,44 @@ import org.apache.pinot.core.common.BlockDocIdSet;
 import org.apache.pinot.core.operator.docidsets.AndDocIdSet;
 import org.apache.pinot.core.operator.docidsets.BitmapDocIdSet;
 import org.apache.pinot.core.operator.docidsets.EmptyDocIdSet;
+import org.apache.pinot.core.operator.docidsets.SortedDocIdSet;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.segment.spi.datasource.DataSource;
 import org.apache.pinot.segment.spi.index.reader.NullValueVectorReader;
+import org.apache.pinot.spi.utils.Pairs.IntPair;
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 
 
 public abstract class BaseColumnFilterOperator extends BaseFilterOperator {
   protected final QueryContext _queryContext;
   protected final DataSource _dataSource;
+  // Runtime statistics of the predicate, only available when adaptive filter reordering is enabled
+  @Nullable
+  protected final FilterSelectivityStatistics.Entry _statistics;
 
   protected BaseColumnFilterOperator(QueryContext queryContext, DataSource dataSource, int numDocs) {
     super(numDocs, queryContext.isNullHandlingEnabled());
     _queryContext = queryContext;
     _dataSource = dataSource;
+    _statistics = null;
+  }
+
+  protected BaseColumnFilterOperator(QueryContext queryContext, PredicateEvaluator predicateEvaluator,
+      DataSource dataSource, int numDocs) {
+    super(numDocs, queryContext.isNullHandlingEnabled());
+    _queryContext = queryContext;
+    _dataSource = dataSource;
+    _statistics = FilterSelectivityStatistics.getEntry(queryContext, predicateEvaluator, dataSource);
+  }
+
+  @Nullable
+  public FilterSelectivityStatistics.Entry getStatistics() {
+    return _statistics;
+  }
+
+  public DataSource getDataSource() {
+    return _dataSource;
   }
 
   protected abstract BlockDocIdSet getNextBlockWithoutNullHandling();
@@ -47,10 +71,48 @@ public abstract class BaseColumnFilterOperator extends BaseFilterOperator {
     if (_nullHandlingEnabled) {
       ImmutableRoaringBitmap nullBitmap = getNullBitmap();
       if (nullBitmap != null && !nullBitmap.isEmpty()) {
-        return excludeNulls(getNextBlockWithoutNullHandling(), nullBitmap);
+        return excludeNulls(getNextBlockWithStatistics(), nullBitmap);
+      }
+    }
+    return getNextBlockWithStatistics();
+  }
+
+  /**
+   * Records the index based evaluation into the statistics when enabled. Scan based evaluation is lazy, and is
+   * recorded by the scan iterator instead.
+   */
+  private BlockDocIdSet getNextBlockWithStatistics() {
+    if (_statistics == null) {
+      return getNextBlockWithoutNullHandling();
+    }
+    long startTimeNs = System.nanoTime();
+    BlockDocIdSet docIdSet = getNextBlockWithoutNullHandling();
+    int numMatchingDocs = getNumMatchingDocs(docIdSet);
+    if (numMatchingDocs >= 0) {
+      _statistics.recordIndexEvaluation(_numDocs, numMatchingDocs, System.nanoTime() - startTimeNs);
+    }
+    return docIdSet;
+  }
+
+  /**
+   * Returns the number of matching docs for the materialized doc id set, or -1 if the doc id set is not materialized.
+   */
+  private static int getNumMatchingDocs(BlockDocIdSet docIdSet) {
+    if (docIdSet instanceof EmptyDocIdSet) {
+      return 0;
+    }
+    if (docIdSet instanceof BitmapDocIdSet) {
+      return ((BitmapDocIdSet) docIdSet).iterator().getDocIds().getCardinality();
+    }
+    if (docIdSet instanceof SortedDocIdSet) {
+      int numMatchingDocs = 0;
+      for (IntPair docIdRange : ((SortedDocIdSet) docIdSet).iterator().getDocIdRanges()) {
+        // NOTE: docIdRange has inclusive start and end.
+        numMatchingDocs += docIdRange.getRight() - docIdRange.getLeft() + 1;
       }
+      return numMatchingDocs;
     }
-    return getNextBlockWithoutNullHandling();
+    return -1;
   }
 
   @Override
@@ -152,6 +152,9 @@ public class FilterOperatorUtils {
         return childFilterOperators.get(0);
       } else {
         // Return the AND filter operator with re-ordered child filter operators
+        if (FilterSelectivityStatistics.isEnabled(queryContext)) {
+          chooseIndexOrScanForAndFilterChildOperators(queryContext, childFilterOperators, numDocs);
+        }
         reorderAndFilterChildOperators(queryContext, childFilterOperators);
         return new AndFilterOperator(childFilterOperators, queryContext.getQueryOptions(), numDocs,
             queryContext.isNullHandlingEnabled());
@@ -196,17 +199,117 @@ public class FilterOperatorUtils {
     }
 
 
+    /**
+     * For AND filter operator with adaptive filter reordering enabled, replaces the inverted/range index based child
+     * filter operators with scan based ones when the runtime statistics show that scanning the docs matching the most
+     * selective index based child filter is cheaper than evaluating the index over the whole segment, which is usually
+     * the case for indexed predicates that match most of the docs.
+     * <p>Only an index based child filter can drive the AND (scan based child filters are evaluated on the docs
+     * matched by the index based ones), and it is never replaced, so the AND is never turned into a full scan.
+     */
+    protected void chooseIndexOrScanForAndFilterChildOperators(QueryContext queryContext,
+        List<BaseFilterOperator> filterOperators, int numDocs) {
+      int numFilterOperators = filterOperators.size();
+      int driverIndex = -1;
+      double minSelectivity = 1.0;
+      for (int i = 0; i < numFilterOperators; i++) {
+        BaseFilterOperator filterOperator = filterOperators.get(i);
+        if (!isIndexBased(filterOperator)) {
+          continue;
+        }
+        double selectivity = getSelectivity(filterOperator);
+        if (selectivity < minSelectivity) {
+          driverIndex = i;
+          minSelectivity = selectivity;
+        }
+      }
+      if (driverIndex < 0) {
+        return;
+      }
+      for (int i = 0; i < numFilterOperators; i++) {
+        if (i == driverIndex) {
+          continue;
+        }
+        BaseFilterOperator filterOperator = filterOperators.get(i);
+        PredicateEvaluator predicateEvaluator;
+        if (filterOperator instanceof InvertedIndexFilterOperator) {
+          predicateEvaluator = ((InvertedIndexFilterOperator) filterOperator).getPredicateEvaluator();
+        } else if (filterOperator instanceof RangeIndexBasedFilterOperator) {
+          predicateEvaluator = ((RangeIndexBasedFilterOperator) filterOperator).getPredicateEvaluator();
+        } else {
+          continue;
+        }
+        BaseColumnFilterOperator columnFilterOperator = (BaseColumnFilterOperator) filterOperator;
+        FilterSelectivityStatistics.Entry statistics = columnFilterOperator.getStatistics();
+        DataSource dataSource = columnFilterOperator.getDataSource();
+        if (statistics == null || dataSource.getForwardIndex() == null) {
+          continue;
+        }
+        double indexCostNsPerDoc = statistics.getIndexCostNsPerDoc();
+        double scanCostNsPerDoc = statistics.getScanCostNsPerDoc();
+        if (Double.isNaN(scanCostNsPerDoc)) {
+          scanCostNsPerDoc = FilterSelectivityStatistics.getInstance().getAverageScanCostNsPerDoc();
+        }
+        // Index is evaluated over all the docs, while scan only over the docs matching the most selective filter
+        if (scanCostNsPerDoc * minSelectivity < indexCostNsPerDoc) {
+          filterOperators.set(i, new ScanBasedFilterOperator(queryContext, predicateEvaluator, dataSource, numDocs));
+        }
+      }
+    }
+
+    private static boolean isIndexBased(BaseFilterOperator filterOperator) {
+      return filterOperator instanceof SortedIndexBasedFilterOperator
+          || filterOperator instanceof InvertedIndexFilterOperator
+          || filterOperator instanceof RangeIndexBasedFilterOperator;
+    }
+
+    private static double getSelectivity(BaseFilterOperator filterOperator) {
+      if (filterOperator instanceof BaseColumnFilterOperator) {
+        FilterSelectivityStatistics.Entry statistics = ((BaseColumnFilterOperator) filterOperator).getStatistics();
+        if (statistics != null) {
+          return statistics.getSelectivity();
+        }
+      }
+      return Double.NaN;
+    }
+
+    /**
+     * Returns the rank of the scan based filter operator within AND based on the runtime statistics, where the ones
+     * with lower rank should be evaluated first. The rank is the scan cost per doc divided by the fraction of docs
+     * filtered out, i.e. the cost to filter out a doc. Returns {@link Double#POSITIVE_INFINITY} if not available, so
+     * that the filters without statistics are evaluated at last.
+     */
+    private static double getAdaptiveScanRank(BaseFilterOperator filterOperator) {
+      if (filterOperator instanceof ScanBasedFilterOperator) {
+        FilterSelectivityStatistics.Entry statistics = ((ScanBasedFilterOperator) filterOperator).getStatistics();
+        if (statistics != null) {
+          double rank = statistics.getScanCostNsPerDoc() / Math.max(1.0 - statistics.getSelectivity(), 1e-3);
+          if (!Double.isNaN(rank)) {
+            return rank;
+          }
+        }
+      }
+      return Double.POSITIVE_INFINITY;
+    }
+
     /**
      * For AND filter operator, reorders its child filter operators based on their cost and puts the ones with
-     * inverted index first in order to reduce the number of documents to be processed.
+     * inverted index first in order to reduce the number of documents to be processed. With adaptive filter
+     * reordering enabled, scan based filter operators with the same priority are further ordered by their runtime
+     * statistics.
      * <p>Special filter operators such as {@link MatchAllFilterOperator} and {@link EmptyFilterOperator} should be
      * removed from the list before calling this method.
      */
     protected void reorderAndFilterChildOperators(QueryContext queryContext, List<BaseFilterOperator> filterOperators) {
+      boolean adaptive = FilterSelectivityStatistics.isEnabled(queryContext);
       filterOperators.sort(new Comparator<BaseFilterOperator>() {
         @Override
         public int compare(BaseFilterOperator o1, BaseFilterOperator o2) {
-          return getPriority(o1) - getPriority(o2);
+          int result = getPriority(o1) - getPriority(o2);
+          if (result == 0 && adaptive) {
+            result = Double.compare(getAdaptiveScanRank(o1), getAdaptiveScanRank(o2));
+          }
+          return result;
         }
 
         int getPriority(BaseFilterOperator filterOperator) {
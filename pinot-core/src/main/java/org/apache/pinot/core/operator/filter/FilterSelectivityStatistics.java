@@ -0,0 +1,261 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Runtime statistics of the filter evaluation per (table, column, predicate type), which are collected and used when
+ * adaptive filter reordering is enabled via the query option {@code adaptiveFilterReordering}.
+ * <p>Index based evaluation records the number of matching docs out of all the docs in the segment, and scan based
+ * evaluation within AND records the number of matching docs out of the docs passed from the other child filters. Both
+ * of them record the evaluation time, from which the cost per doc is estimated.
+ * <p>The statistics are cumulative and updated without locking. The number of tracked entries is bounded, and
+ * predicates beyond the bound are not tracked (logged and metered with
+ * {@link ServerMeter#FILTER_STATISTICS_ENTRIES_LIMIT_REACHED}). The entries of a table are removed when the table data
+ * manager is shut down.
+ */
+@ThreadSafe
+public class FilterSelectivityStatistics {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FilterSelectivityStatistics.class);
+
+  public static final int MAX_NUM_ENTRIES = 10_000;
+  // Minimum number of evaluations before the statistics are used
+  public static final int MIN_NUM_EVALUATIONS = 10;
+
+  private static final FilterSelectivityStatistics INSTANCE = new FilterSelectivityStatistics();
+
+  private final Map<Key, Entry> _entries = new ConcurrentHashMap<>();
+  // Scan cost across all the entries, used when the scan cost of an entry is not available yet
+  private final LongAdder _scanNumDocs = new LongAdder();
+  private final LongAdder _scanTimeNs = new LongAdder();
+  // Whether the max number of entries has been reached since the last removal, used to log only once
+  private final AtomicBoolean _maxNumEntriesReached = new AtomicBoolean();
+
+  private FilterSelectivityStatistics() {
+  }
+
+  public static FilterSelectivityStatistics getInstance() {
+    return INSTANCE;
+  }
+
+  public static boolean isEnabled(QueryContext queryContext) {
+    Map<String, String> queryOptions = queryContext.getQueryOptions();
+    return queryOptions != null && QueryOptionsUtils.isAdaptiveFilterReorderingEnabled(queryOptions);
+  }
+
+  /**
+   * Returns the statistics entry to record the evaluation of the given predicate into, or {@code null} if adaptive
+   * filter reordering is not enabled for the query or the entry cannot be tracked.
+   */
+  @Nullable
+  public static Entry getEntry(QueryContext queryContext, PredicateEvaluator predicateEvaluator,
+      DataSource dataSource) {
+    if (!isEnabled(queryContext)) {
+      return null;
+    }
+    Key key = new Key(queryContext.getTableName(), dataSource.getDataSourceMetadata().getFieldSpec().getName(),
+        predicateEvaluator.getPredicateType());
+    Entry entry = INSTANCE._entries.get(key);
+    if (entry != null) {
+      return entry;
+    }
+    if (INSTANCE._entries.size() >= MAX_NUM_ENTRIES) {
+      if (INSTANCE._maxNumEntriesReached.compareAndSet(false, true)) {
+        LOGGER.warn("Reached max number of filter statistics entries: {}, stop tracking new predicates (table: {}, "
+            + "column: {}, predicate type: {})", MAX_NUM_ENTRIES, key._tableName, key._column, key._predicateType);
+      }
+      ServerMetrics.get().addMeteredGlobalValue(ServerMeter.FILTER_STATISTICS_ENTRIES_LIMIT_REACHED, 1);
+      return null;
+    }
+    return INSTANCE._entries.computeIfAbsent(key, Entry::new);
+  }
+
+  /**
+   * Returns the average scan cost per doc across all the entries, or {@link Double#NaN} if not available.
+   */
+  public double getAverageScanCostNsPerDoc() {
+    long numDocs = _scanNumDocs.sum();
+    return numDocs > 0 ? (double) _scanTimeNs.sum() / numDocs : Double.NaN;
+  }
+
+  /**
+   * Returns the statistics for the given table (all tables if {@code null}) for debugging purpose.
+   */
+  public List<Map<String, Object>> getStatistics(@Nullable String tableName) {
+    List<Map<String, Object>> statistics = new ArrayList<>();
+    for (Entry entry : _entries.values()) {
+      if (tableName == null || tableName.equals(entry._key._tableName)) {
+        statistics.add(entry.toMap());
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * Removes the statistics of the given table, e.g. when the table is deleted from the server.
+   */
+  public void removeTable(String tableName) {
+    if (_entries.keySet().removeIf(key -> key._tableName.equals(tableName))) {
+      _maxNumEntriesReached.set(false);
+    }
+  }
+
+  public void clear() {
+    _entries.clear();
+    _scanNumDocs.reset();
+    _scanTimeNs.reset();
+    _maxNumEntriesReached.set(false);
+  }
+
+  private static final class Key {
+    final String _tableName;
+    final String _column;
+    final Predicate.Type _predicateType;
+
+    Key(String tableName, String column, Predicate.Type predicateType) {
+      _tableName = tableName;
+      _column = column;
+      _predicateType = predicateType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return _tableName.equals(key._tableName) && _column.equals(key._column) && _predicateType == key._predicateType;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_tableName, _column, _predicateType);
+    }
+  }
+
+  /**
+   * Statistics of a (table, column, predicate type).
+   */
+  public static final class Entry {
+    private final Key _key;
+    private final LongAdder _numIndexEvaluations = new LongAdder();
+    private final LongAdder _indexNumDocs = new LongAdder();
+    private final LongAdder _indexNumMatchingDocs = new LongAdder();
+    private final LongAdder _indexTimeNs = new LongAdder();
+    private final LongAdder _numScanEvaluations = new LongAdder();
+    private final LongAdder _scanNumDocs = new LongAdder();
+    private final LongAdder _scanNumMatchingDocs = new LongAdder();
+    private final LongAdder _scanTimeNs = new LongAdder();
+
+    private Entry(Key key) {
+      _key = key;
+    }
+
+    public void recordIndexEvaluation(int numDocs, int numMatchingDocs, long timeNs) {
+      _numIndexEvaluations.increment();
+      _indexNumDocs.add(numDocs);
+      _indexNumMatchingDocs.add(numMatchingDocs);
+      _indexTimeNs.add(timeNs);
+    }
+
+    public void recordScanEvaluation(long numScannedDocs, long numMatchingDocs, long timeNs) {
+      _numScanEvaluations.increment();
+      _scanNumDocs.add(numScannedDocs);
+      _scanNumMatchingDocs.add(numMatchingDocs);
+      _scanTimeNs.add(timeNs);
+      INSTANCE._scanNumDocs.add(numScannedDocs);
+      INSTANCE._scanTimeNs.add(timeNs);
+    }
+
+    /**
+     * Returns the estimated fraction of docs matching the predicate, or {@link Double#NaN} if not available. The
+     * selectivity observed from the index evaluation is preferred as it is not affected by the other predicates.
+     */
+    public double getSelectivity() {
+      if (_numIndexEvaluations.sum() >= MIN_NUM_EVALUATIONS) {
+        long numDocs = _indexNumDocs.sum();
+        return numDocs > 0 ? (double) _indexNumMatchingDocs.sum() / numDocs : Double.NaN;
+      }
+      if (_numScanEvaluations.sum() >= MIN_NUM_EVALUATIONS) {
+        long numDocs = _scanNumDocs.sum();
+        return numDocs > 0 ? (double) _scanNumMatchingDocs.sum() / numDocs : Double.NaN;
+      }
+      return Double.NaN;
+    }
+
+    /**
+     * Returns the estimated index evaluation cost per doc in the segment, or {@link Double#NaN} if not available.
+     */
+    public double getIndexCostNsPerDoc() {
+      long numDocs = _indexNumDocs.sum();
+      return _numIndexEvaluations.sum() >= MIN_NUM_EVALUATIONS && numDocs > 0 ? (double) _indexTimeNs.sum() / numDocs
+          : Double.NaN;
+    }
+
+    /**
+     * Returns the estimated scan evaluation cost per scanned doc, or {@link Double#NaN} if not available.
+     */
+    public double getScanCostNsPerDoc() {
+      long numDocs = _scanNumDocs.sum();
+      return _numScanEvaluations.sum() >= MIN_NUM_EVALUATIONS && numDocs > 0 ? (double) _scanTimeNs.sum() / numDocs
+          : Double.NaN;
+    }
+
+    private Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("tableName", _key._tableName);
+      map.put("column", _key._column);
+      map.put("predicateType", _key._predicateType);
+      map.put("numIndexEvaluations", _numIndexEvaluations.sum());
+      map.put("numScanEvaluations", _numScanEvaluations.sum());
+      map.put("selectivity", toNullable(getSelectivity()));
+      map.put("indexCostNsPerDoc", toNullable(getIndexCostNsPerDoc()));
+      map.put("scanCostNsPerDoc", toNullable(getScanCostNsPerDoc()));
+      return map;
+    }
+
+    @Nullable
+    private static Double toNullable(double value) {
+      return Double.isNaN(value) ? null : value;
+    }
+  }
+}
@@ -45,7 +45,7 @@ public class InvertedIndexFilterOperator extends BaseColumnFilterOperator {
 
   InvertedIndexFilterOperator(QueryContext queryContext, PredicateEvaluator predicateEvaluator, DataSource dataSource,
       int numDocs) {
-    super(queryContext, dataSource, numDocs);
+    super(queryContext, predicateEvaluator, dataSource, numDocs);
     _predicateEvaluator = predicateEvaluator;
     @SuppressWarnings("unchecked")
     InvertedIndexReader<ImmutableRoaringBitmap> invertedIndexReader =
@@ -148,6 +148,10 @@ public class InvertedIndexFilterOperator extends BaseColumnFilterOperator {
     return Collections.emptyList();
   }
 
+  public PredicateEvaluator getPredicateEvaluator() {
+    return _predicateEvaluator;
+  }
+
   @Override
   public String toExplainString() {
     StringBuilder stringBuilder = new StringBuilder(EXPLAIN_NAME).append("(indexLookUp:inverted_index");
@@ -63,7 +63,7 @@ public class RangeIndexBasedFilterOperator extends BaseColumnFilterOperator {
   @SuppressWarnings("unchecked")
   public RangeIndexBasedFilterOperator(QueryContext queryContext, PredicateEvaluator predicateEvaluator,
       DataSource dataSource, int numDocs) {
-    super(queryContext, dataSource, numDocs);
+    super(queryContext, predicateEvaluator, dataSource, numDocs);
     _predicateEvaluator = predicateEvaluator;
     _rangeIndexReader = (RangeIndexReader<ImmutableRoaringBitmap>) dataSource.getRangeIndex();
     _parameterType = predicateEvaluator.isDictionaryBased() ? FieldSpec.DataType.INT : predicateEvaluator.getDataType();
@@ -222,6 +222,10 @@ public class RangeIndexBasedFilterOperator extends BaseColumnFilterOperator {
     return Collections.emptyList();
   }
 
+  public PredicateEvaluator getPredicateEvaluator() {
+    return _predicateEvaluator;
+  }
+
   @Override
   public String toExplainString() {
     return EXPLAIN_NAME + "(indexLookUp:range_index" + ",operator:" + _predicateEvaluator.getPredicateType()
@@ -45,7 +45,7 @@ public class ScanBasedFilterOperator extends BaseColumnFilterOperator {
 
   public ScanBasedFilterOperator(QueryContext queryContext, PredicateEvaluator predicateEvaluator,
       DataSource dataSource, int numDocs, int batchSize) {
-    super(queryContext, dataSource, numDocs);
+    super(queryContext, predicateEvaluator, dataSource, numDocs);
     _predicateEvaluator = predicateEvaluator;
     Preconditions.checkState(_dataSource.getForwardIndex() != null,
         "Forward index disabled for column: %s, scan based filtering not supported!",
@@ -57,7 +57,11 @@ public class ScanBasedFilterOperator extends BaseColumnFilterOperator {
   protected BlockDocIdSet getNextBlockWithoutNullHandling() {
     DataSourceMetadata dataSourceMetadata = _dataSource.getDataSourceMetadata();
     if (dataSourceMetadata.isSingleValue()) {
-      return new SVScanDocIdSet(_predicateEvaluator, _dataSource, _numDocs, _batchSize);
+      SVScanDocIdSet docIdSet = new SVScanDocIdSet(_predicateEvaluator, _dataSource, _numDocs, _batchSize);
+      if (_statistics != null) {
+        docIdSet.iterator().setStatistics(_statistics);
+      }
+      return docIdSet;
     } else {
       return new MVScanDocIdSet(_predicateEvaluator, _dataSource, _numDocs);
     }
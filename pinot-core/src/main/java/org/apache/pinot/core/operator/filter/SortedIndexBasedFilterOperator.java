@@ -42,7 +42,7 @@ public class SortedIndexBasedFilterOperator extends BaseColumnFilterOperator {
 
   SortedIndexBasedFilterOperator(QueryContext queryContext, PredicateEvaluator predicateEvaluator,
       DataSource dataSource, int numDocs) {
-    super(queryContext, dataSource, numDocs);
+    super(queryContext, predicateEvaluator, dataSource, numDocs);
     _predicateEvaluator = predicateEvaluator;
     _sortedIndexReader = (SortedIndexReader<?>) dataSource.getInvertedIndex();
   }
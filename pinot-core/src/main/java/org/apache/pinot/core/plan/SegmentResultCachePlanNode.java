@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.plan;
+
+import org.apache.pinot.core.operator.SegmentResultCacheOperator;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.SegmentContext;
+
+
+/**
+ * This PlanNode does not invoke a <code>run</code> on the childPlanNode in its run method. Instead, it passes the
+ * childPlanNode to the {@link SegmentResultCacheOperator}, which only runs the childPlanNode when the results of the
+ * segment are not cached.
+ */
+public class SegmentResultCachePlanNode implements PlanNode {
+  private final PlanNode _childPlanNode;
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentContext _segmentContext;
+  private final QueryContext _queryContext;
+  private final String _queryFingerprint;
+
+  public SegmentResultCachePlanNode(PlanNode childPlanNode, SegmentResultCache segmentResultCache,
+      SegmentContext segmentContext, QueryContext queryContext, String queryFingerprint) {
+    _childPlanNode = childPlanNode;
+    _segmentResultCache = segmentResultCache;
+    _segmentContext = segmentContext;
+    _queryContext = queryContext;
+    _queryFingerprint = queryFingerprint;
+  }
+
+  @Override
+  public SegmentResultCacheOperator run() {
+    return new SegmentResultCacheOperator(_childPlanNode, _segmentResultCache, _segmentContext.getIndexSegment(),
+        _queryContext, _queryFingerprint);
+  }
+}
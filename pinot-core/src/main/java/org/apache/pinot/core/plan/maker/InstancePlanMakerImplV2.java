@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.pinot.common.metrics.ServerMetrics;
@@ -42,10 +43,12 @@ import org.apache.pinot.core.plan.GroupByPlanNode;
 import org.apache.pinot.core.plan.InstanceResponsePlanNode;
 import org.apache.pinot.core.plan.Plan;
 import org.apache.pinot.core.plan.PlanNode;
+import org.apache.pinot.core.plan.SegmentResultCachePlanNode;
 import org.apache.pinot.core.plan.SelectionPlanNode;
 import org.apache.pinot.core.plan.StreamingInstanceResponsePlanNode;
 import org.apache.pinot.core.plan.StreamingSelectionPlanNode;
 import org.apache.pinot.core.query.executor.ResultsBlockStreamer;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
 import org.apache.pinot.core.query.prefetch.FetchPlanner;
 import org.apache.pinot.core.query.prefetch.FetchPlannerRegistry;
 import org.apache.pinot.core.query.request.context.QueryContext;
@@ -55,6 +58,7 @@ import org.apache.pinot.segment.spi.FetchContext;
 import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.SegmentContext;
 import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.DataSizeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,6 +90,20 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   // set as pinot.server.query.executor.groupby.trim.threshold
   public static final String GROUPBY_TRIM_THRESHOLD_KEY = "groupby.trim.threshold";
   public static final int DEFAULT_GROUPBY_TRIM_THRESHOLD = 1_000_000;
+  // Instance config key for the number of radix partitions used to combine the group-by results, where values <= 1
+  // disable the partitioned combine. Partitioning avoids the contention on the shared table when there are many groups
+  // and many threads.
+  // Set as pinot.server.query.executor.groupby.combine.num.partitions
+  public static final String GROUPBY_COMBINE_NUM_PARTITIONS_KEY = "groupby.combine.num.partitions";
+  public static final int DEFAULT_GROUPBY_COMBINE_NUM_PARTITIONS = 0;
+  // Instance config keys for the segment result cache, which caches the segment level results of the aggregation and
+  // group-by queries on the immutable segments
+  // Set as pinot.server.query.executor.segment.result.cache.enabled
+  public static final String SEGMENT_RESULT_CACHE_ENABLED_KEY = "segment.result.cache.enabled";
+  public static final boolean DEFAULT_SEGMENT_RESULT_CACHE_ENABLED = false;
+  // Set as pinot.server.query.executor.segment.result.cache.max.size
+  public static final String SEGMENT_RESULT_CACHE_MAX_SIZE_KEY = "segment.result.cache.max.size";
+  public static final String DEFAULT_SEGMENT_RESULT_CACHE_MAX_SIZE = "100MB";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(InstancePlanMakerImplV2.class);
 
@@ -98,6 +116,8 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   private int _minSegmentGroupTrimSize = DEFAULT_MIN_SEGMENT_GROUP_TRIM_SIZE;
   private int _minServerGroupTrimSize = DEFAULT_MIN_SERVER_GROUP_TRIM_SIZE;
   private int _groupByTrimThreshold = DEFAULT_GROUPBY_TRIM_THRESHOLD;
+  private int _groupByCombineNumPartitions = DEFAULT_GROUPBY_COMBINE_NUM_PARTITIONS;
+  private SegmentResultCache _segmentResultCache;
 
   public InstancePlanMakerImplV2() {
   }
@@ -128,16 +148,36 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     _groupByTrimThreshold = queryExecutorConfig.getProperty(GROUPBY_TRIM_THRESHOLD_KEY, DEFAULT_GROUPBY_TRIM_THRESHOLD);
     Preconditions.checkState(_groupByTrimThreshold > 0,
         "Invalid configurable: groupByTrimThreshold: %d must be positive", _groupByTrimThreshold);
+    _groupByCombineNumPartitions =
+        queryExecutorConfig.getProperty(GROUPBY_COMBINE_NUM_PARTITIONS_KEY, DEFAULT_GROUPBY_COMBINE_NUM_PARTITIONS);
     LOGGER.info("Initialized plan maker with maxExecutionThreads: {}, maxInitialResultHolderCapacity: {}, "
-            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}",
-        _maxExecutionThreads, _maxInitialResultHolderCapacity, _numGroupsLimit, _minSegmentGroupTrimSize,
-        _minServerGroupTrimSize, _groupByTrimThreshold);
+            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}, "
+            + "groupByCombineNumPartitions: {}", _maxExecutionThreads, _maxInitialResultHolderCapacity, _numGroupsLimit,
+        _minSegmentGroupTrimSize, _minServerGroupTrimSize, _groupByTrimThreshold, _groupByCombineNumPartitions);
+    if (queryExecutorConfig.getProperty(SEGMENT_RESULT_CACHE_ENABLED_KEY, DEFAULT_SEGMENT_RESULT_CACHE_ENABLED)) {
+      long maxSizeBytes = DataSizeUtils.toBytes(
+          queryExecutorConfig.getProperty(SEGMENT_RESULT_CACHE_MAX_SIZE_KEY, DEFAULT_SEGMENT_RESULT_CACHE_MAX_SIZE));
+      _segmentResultCache = new SegmentResultCache(maxSizeBytes);
+      SegmentResultCache.register(_segmentResultCache);
+      LOGGER.info("Enabled segment result cache with max size: {} bytes", maxSizeBytes);
+    }
+  }
+
+  @VisibleForTesting
+  public void setSegmentResultCache(SegmentResultCache segmentResultCache) {
+    _segmentResultCache = segmentResultCache;
   }
 
   public Plan makeInstancePlan(List<SegmentContext> segmentContexts, QueryContext queryContext,
       ExecutorService executorService, ServerMetrics serverMetrics) {
     applyQueryOptions(queryContext);
 
+    // NOTE: Compute the fingerprint before making the segment plan nodes, which might rewrite the query context
+    String queryFingerprint = null;
+    if (_segmentResultCache != null && SegmentResultCache.isCacheable(queryContext)) {
+      queryFingerprint = SegmentResultCache.getQueryFingerprint(queryContext);
+    }
+
     int numSegments = segmentContexts.size();
     List<PlanNode> planNodes = new ArrayList<>(numSegments);
     List<FetchContext> fetchContexts;
@@ -148,13 +188,13 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
             _fetchPlanner.planFetchForProcessing(segmentContext.getIndexSegment(), queryContext);
         fetchContexts.add(fetchContext);
         planNodes.add(
-            new AcquireReleaseColumnsSegmentPlanNode(makeSegmentPlanNode(segmentContext, queryContext), segmentContext,
-                fetchContext));
+            new AcquireReleaseColumnsSegmentPlanNode(makeCachedSegmentPlanNode(segmentContext, queryContext,
+                queryFingerprint), segmentContext, fetchContext));
       }
     } else {
       fetchContexts = Collections.emptyList();
       for (SegmentContext segmentContext : segmentContexts) {
-        planNodes.add(makeSegmentPlanNode(segmentContext, queryContext));
+        planNodes.add(makeCachedSegmentPlanNode(segmentContext, queryContext, queryFingerprint));
       }
     }
 
@@ -227,6 +267,13 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
       } else {
         queryContext.setGroupTrimThreshold(_groupByTrimThreshold);
       }
+      // Set numGroupByCombinePartitions
+      Integer numGroupByCombinePartitions = QueryOptionsUtils.getNumGroupByCombinePartitions(queryOptions);
+      if (numGroupByCombinePartitions != null) {
+        queryContext.setNumGroupByCombinePartitions(numGroupByCombinePartitions);
+      } else {
+        queryContext.setNumGroupByCombinePartitions(_groupByCombineNumPartitions);
+      }
     }
   }
 
@@ -250,6 +297,20 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     }
   }
 
+  /**
+   * Makes the segment plan node, and wraps it to serve the results from the segment result cache when the results of
+   * the query on the segment can be cached.
+   */
+  private PlanNode makeCachedSegmentPlanNode(SegmentContext segmentContext, QueryContext queryContext,
+      @Nullable String queryFingerprint) {
+    PlanNode planNode = makeSegmentPlanNode(segmentContext, queryContext);
+    if (queryFingerprint != null && SegmentResultCache.isCacheable(segmentContext)) {
+      return new SegmentResultCachePlanNode(planNode, _segmentResultCache, segmentContext, queryContext,
+          queryFingerprint);
+    }
+    return planNode;
+  }
+
   public Plan makeStreamingInstancePlan(List<SegmentContext> segmentContexts, QueryContext queryContext,
       ExecutorService executorService, ResultsBlockStreamer streamer, ServerMetrics serverMetrics) {
     applyQueryOptions(queryContext);
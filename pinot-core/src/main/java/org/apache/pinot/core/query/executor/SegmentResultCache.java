@@ -0,0 +1,347 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.executor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.datatable.DataTable;
+import org.apache.pinot.common.datatable.DataTableFactory;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.core.common.ObjectSerDeUtils;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.operator.ExecutionStatistics;
+import org.apache.pinot.core.operator.blocks.results.AggregationResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.query.request.context.utils.QueryContextUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.SegmentContext;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code SegmentResultCache} caches the segment level results of the aggregation and group-by queries on the
+ * immutable segments. Each result is keyed by the table, the segment name and CRC, and the fingerprint of the query, so
+ * that the repeated queries only need to execute the segments without cached results, and the cached results are
+ * merged with the executed ones in the combine operator.
+ * <p>The results are stored in the serialized form (as {@link DataTable}), and the cache is bounded by the total size
+ * of the serialized results with LRU eviction. The cached results for a segment are invalidated when the segment is
+ * replaced or unloaded (see {@link #invalidate(String, String)}); the CRC within the key also prevents the results of
+ * the replaced segment from being served.
+ */
+@ThreadSafe
+public class SegmentResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentResultCache.class);
+
+  private static volatile SegmentResultCache _registeredCache;
+
+  private final Cache<CacheKey, CacheEntry> _cache;
+
+  public SegmentResultCache(long maxSizeBytes) {
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeBytes)
+        .weigher((CacheKey key, CacheEntry entry) -> entry._bytes.length).build();
+  }
+
+  /**
+   * Registers the cache used by the server, so that the table data managers can invalidate the cached results when
+   * the segments are replaced or unloaded.
+   */
+  public static void register(SegmentResultCache segmentResultCache) {
+    _registeredCache = segmentResultCache;
+  }
+
+  /**
+   * Returns the cache used by the server, or {@code null} if the cache is not enabled.
+   */
+  @Nullable
+  public static SegmentResultCache get() {
+    return _registeredCache;
+  }
+
+  /**
+   * Returns whether the segment level results of the query can be cached. Only the aggregation and group-by queries
+   * returning the intermediate results are cached.
+   */
+  public static boolean isCacheable(QueryContext queryContext) {
+    if (!QueryContextUtils.isAggregationQuery(queryContext) || queryContext.isExplain()
+        || queryContext.isServerReturnFinalResult()) {
+      return false;
+    }
+    Map<String, String> queryOptions = queryContext.getQueryOptions();
+    return queryOptions == null || !QueryOptionsUtils.isSkipSegmentResultCache(queryOptions);
+  }
+
+  /**
+   * Returns whether the results of the segment can be cached. Only the immutable segments without valid doc ids (e.g.
+   * not upsert) are cached because the results of the other segments can change over time.
+   */
+  public static boolean isCacheable(SegmentContext segmentContext) {
+    IndexSegment indexSegment = segmentContext.getIndexSegment();
+    return indexSegment instanceof ImmutableSegment && indexSegment.getValidDocIds() == null
+        && segmentContext.getQueryableDocIdsSnapshot() == null;
+  }
+
+  /**
+   * Returns the fingerprint of the query, which excludes the query options that change across the executions of the
+   * same query (e.g. the remaining timeout).
+   */
+  public static String getQueryFingerprint(QueryContext queryContext) {
+    Map<String, String> queryOptions = new TreeMap<>();
+    if (queryContext.getQueryOptions() != null) {
+      queryOptions.putAll(queryContext.getQueryOptions());
+      queryOptions.remove(QueryOptionKey.TIMEOUT_MS);
+    }
+    return "selectExpressions=" + queryContext.getSelectExpressions() + ", filter=" + queryContext.getFilter()
+        + ", groupByExpressions=" + queryContext.getGroupByExpressions() + ", havingFilter="
+        + queryContext.getHavingFilter() + ", orderByExpressions=" + queryContext.getOrderByExpressions() + ", limit="
+        + queryContext.getLimit() + ", queryOptions=" + queryOptions + ", expressionOverrideHints="
+        + queryContext.getExpressionOverrideHints() + ", numGroupsLimit=" + queryContext.getNumGroupsLimit()
+        + ", minSegmentGroupTrimSize=" + queryContext.getMinSegmentGroupTrimSize();
+  }
+
+  /**
+   * Returns the cached results block and the execution statistics of the segment, or {@code null} if the results are
+   * not cached. A new results block is deserialized for each query because the combine operator modifies the results
+   * blocks when merging them.
+   */
+  @Nullable
+  public Pair<BaseResultsBlock, ExecutionStatistics> get(String tableNameWithType, IndexSegment indexSegment,
+      String queryFingerprint, QueryContext queryContext) {
+    CacheKey key = new CacheKey(tableNameWithType, indexSegment, queryFingerprint);
+    CacheEntry entry = _cache.getIfPresent(key);
+    if (entry == null) {
+      return null;
+    }
+    try {
+      DataTable dataTable = DataTableFactory.getDataTable(ByteBuffer.wrap(entry._bytes));
+      BaseResultsBlock resultsBlock;
+      if (queryContext.getGroupByExpressions() == null) {
+        resultsBlock = getAggregationResultsBlock(dataTable, queryContext);
+      } else {
+        GroupByResultsBlock groupByResultsBlock = getGroupByResultsBlock(dataTable, queryContext);
+        groupByResultsBlock.setNumGroupsLimitReached(entry._numGroupsLimitReached);
+        resultsBlock = groupByResultsBlock;
+      }
+      return Pair.of(resultsBlock,
+          new ExecutionStatistics(entry._numDocsScanned, entry._numEntriesScannedInFilter,
+              entry._numEntriesScannedPostFilter, entry._numTotalDocs));
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while deserializing cached results for segment: {} of table: {}",
+          indexSegment.getSegmentName(), tableNameWithType, e);
+      _cache.invalidate(key);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the results block and the execution statistics of the segment. This method should be invoked before the
+   * results block is merged by the combine operator.
+   */
+  public void put(String tableNameWithType, IndexSegment indexSegment, String queryFingerprint,
+      BaseResultsBlock resultsBlock, ExecutionStatistics executionStatistics) {
+    boolean numGroupsLimitReached;
+    if (resultsBlock instanceof AggregationResultsBlock) {
+      numGroupsLimitReached = false;
+    } else if (resultsBlock instanceof GroupByResultsBlock) {
+      numGroupsLimitReached = ((GroupByResultsBlock) resultsBlock).isNumGroupsLimitReached();
+    } else {
+      return;
+    }
+    try {
+      _cache.put(new CacheKey(tableNameWithType, indexSegment, queryFingerprint),
+          new CacheEntry(resultsBlock.getDataTable().toBytes(), executionStatistics, numGroupsLimitReached));
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while caching results for segment: {} of table: {}",
+          indexSegment.getSegmentName(), tableNameWithType, e);
+    }
+  }
+
+  /**
+   * Invalidates all the cached results for the given segment.
+   */
+  public void invalidate(String tableNameWithType, String segmentName) {
+    _cache.asMap().keySet().removeIf(
+        key -> key._segmentName.equals(segmentName) && key._tableNameWithType.equals(tableNameWithType));
+  }
+
+  @VisibleForTesting
+  public long size() {
+    return _cache.size();
+  }
+
+  private static AggregationResultsBlock getAggregationResultsBlock(DataTable dataTable, QueryContext queryContext) {
+    ColumnDataType[] columnDataTypes = dataTable.getDataSchema().getColumnDataTypes();
+    int numColumns = columnDataTypes.length;
+    boolean nullHandlingEnabled = queryContext.isNullHandlingEnabled();
+    List<Object> results = new ArrayList<>(numColumns);
+    for (int i = 0; i < numColumns; i++) {
+      RoaringBitmap nullBitmap = nullHandlingEnabled ? dataTable.getNullRowIds(i) : null;
+      if (nullBitmap != null && nullBitmap.contains(0)) {
+        results.add(null);
+      } else {
+        results.add(AggregationFunctionUtils.getIntermediateResult(dataTable, columnDataTypes[i], 0, i));
+      }
+    }
+    return new AggregationResultsBlock(queryContext.getAggregationFunctions(), results, queryContext);
+  }
+
+  private static GroupByResultsBlock getGroupByResultsBlock(DataTable dataTable, QueryContext queryContext) {
+    DataSchema dataSchema = dataTable.getDataSchema();
+    ColumnDataType[] storedColumnDataTypes = dataSchema.getStoredColumnDataTypes();
+    int numColumns = storedColumnDataTypes.length;
+    int numGroupByExpressions = queryContext.getGroupByExpressions().size();
+    RoaringBitmap[] nullBitmaps = null;
+    if (queryContext.isNullHandlingEnabled()) {
+      nullBitmaps = new RoaringBitmap[numColumns];
+      for (int colId = 0; colId < numColumns; colId++) {
+        nullBitmaps[colId] = dataTable.getNullRowIds(colId);
+      }
+    }
+    int numRows = dataTable.getNumberOfRows();
+    List<IntermediateRecord> intermediateRecords = new ArrayList<>(numRows);
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      Object[] values = new Object[numColumns];
+      for (int colId = 0; colId < numColumns; colId++) {
+        if (nullBitmaps != null && nullBitmaps[colId] != null && nullBitmaps[colId].contains(rowId)) {
+          continue;
+        }
+        values[colId] = getValue(dataTable, storedColumnDataTypes[colId], rowId, colId);
+      }
+      intermediateRecords.add(
+          new IntermediateRecord(new Key(Arrays.copyOf(values, numGroupByExpressions)), new Record(values)));
+    }
+    return new GroupByResultsBlock(dataSchema, intermediateRecords, queryContext);
+  }
+
+  /**
+   * Reads the group key or the intermediate result from the {@link DataTable} in the same format as the segment level
+   * group-by results.
+   */
+  @Nullable
+  private static Object getValue(DataTable dataTable, ColumnDataType storedColumnDataType, int rowId, int colId) {
+    switch (storedColumnDataType) {
+      case INT:
+        return dataTable.getInt(rowId, colId);
+      case LONG:
+        return dataTable.getLong(rowId, colId);
+      case FLOAT:
+        return dataTable.getFloat(rowId, colId);
+      case DOUBLE:
+        return dataTable.getDouble(rowId, colId);
+      case BIG_DECIMAL:
+        return dataTable.getBigDecimal(rowId, colId);
+      case STRING:
+        return dataTable.getString(rowId, colId);
+      case BYTES:
+        return dataTable.getBytes(rowId, colId);
+      case INT_ARRAY:
+        return IntArrayList.wrap(dataTable.getIntArray(rowId, colId));
+      case LONG_ARRAY:
+        return LongArrayList.wrap(dataTable.getLongArray(rowId, colId));
+      case FLOAT_ARRAY:
+        return FloatArrayList.wrap(dataTable.getFloatArray(rowId, colId));
+      case DOUBLE_ARRAY:
+        return DoubleArrayList.wrap(dataTable.getDoubleArray(rowId, colId));
+      case STRING_ARRAY:
+        return ObjectArrayList.wrap(dataTable.getStringArray(rowId, colId));
+      case OBJECT:
+        CustomObject customObject = dataTable.getCustomObject(rowId, colId);
+        return customObject != null ? ObjectSerDeUtils.deserialize(customObject) : null;
+      default:
+        throw new IllegalStateException("Unsupported stored type: " + storedColumnDataType);
+    }
+  }
+
+  private static class CacheKey {
+    final String _tableNameWithType;
+    final String _segmentName;
+    final String _segmentCrc;
+    final String _queryFingerprint;
+
+    CacheKey(String tableNameWithType, IndexSegment indexSegment, String queryFingerprint) {
+      _tableNameWithType = tableNameWithType;
+      _segmentName = indexSegment.getSegmentName();
+      _segmentCrc = indexSegment.getSegmentMetadata().getCrc();
+      _queryFingerprint = queryFingerprint;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return _tableNameWithType.equals(that._tableNameWithType) && _segmentName.equals(that._segmentName)
+          && Objects.equals(_segmentCrc, that._segmentCrc) && _queryFingerprint.equals(that._queryFingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_tableNameWithType, _segmentName, _segmentCrc, _queryFingerprint);
+    }
+  }
+
+  private static class CacheEntry {
+    final byte[] _bytes;
+    final long _numDocsScanned;
+    final long _numEntriesScannedInFilter;
+    final long _numEntriesScannedPostFilter;
+    final long _numTotalDocs;
+    final boolean _numGroupsLimitReached;
+
+    CacheEntry(byte[] bytes, ExecutionStatistics executionStatistics, boolean numGroupsLimitReached) {
+      _bytes = bytes;
+      _numDocsScanned = executionStatistics.getNumDocsScanned();
+      _numEntriesScannedInFilter = executionStatistics.getNumEntriesScannedInFilter();
+      _numEntriesScannedPostFilter = executionStatistics.getNumEntriesScannedPostFilter();
+      _numTotalDocs = executionStatistics.getNumTotalDocs();
+      _numGroupsLimitReached = numGroupsLimitReached;
+    }
+  }
+}
@@ -64,6 +64,7 @@ import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.core.query.request.context.TimerContext;
 import org.apache.pinot.core.query.request.context.utils.QueryContextConverterUtils;
 import org.apache.pinot.core.query.utils.idset.IdSet;
+import org.apache.pinot.core.util.trace.PhaseTimingContext;
 import org.apache.pinot.core.util.trace.TraceContext;
 import org.apache.pinot.segment.local.data.manager.SegmentDataManager;
 import org.apache.pinot.segment.local.data.manager.TableDataManager;
@@ -134,7 +135,14 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
   public InstanceResponseBlock execute(ServerQueryRequest queryRequest, ExecutorService executorService,
       @Nullable ResultsBlockStreamer streamer) {
     if (!queryRequest.isEnableTrace()) {
-      return executeInternal(queryRequest, executorService, streamer);
+      // NOTE: Operator phases are timed only for the queries without trace because the trace takes over the operator
+      //       scopes
+      PhaseTimingContext.register();
+      try {
+        return executeInternal(queryRequest, executorService, streamer);
+      } finally {
+        PhaseTimingContext.unregister(_serverMetrics, queryRequest.getTableNameWithType());
+      }
     }
     try {
       long requestId = queryRequest.getRequestId();
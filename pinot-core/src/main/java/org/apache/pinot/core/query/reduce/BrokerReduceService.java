@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.exception.QueryException;
@@ -54,12 +55,55 @@ import org.slf4j.LoggerFactory;
 public class BrokerReduceService extends BaseReduceService {
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerReduceService.class);
 
+  private final boolean _enableIncrementalReduce;
+
   public BrokerReduceService(PinotConfiguration config) {
     super(config);
+    _enableIncrementalReduce = config.getProperty(CommonConstants.Broker.CONFIG_OF_ENABLE_INCREMENTAL_REDUCE,
+        CommonConstants.Broker.DEFAULT_ENABLE_INCREMENTAL_REDUCE);
+  }
+
+  /**
+   * Returns a reducer which merges the server responses for the query as they arrive, or {@code null} if incremental
+   * reduce is not enabled or not supported for the query. The returned reducer should be registered as the data table
+   * listener when submitting the query, and passed to
+   * {@code reduceOnDataTable()} after the responses are gathered.
+   * <p>Currently only group-by queries without server returning final result are reduced incrementally.
+   */
+  @Nullable
+  public IncrementalGroupByDataTableReducer getIncrementalReducer(BrokerRequest serverBrokerRequest, long timeoutMs) {
+    Map<String, String> queryOptions = serverBrokerRequest.getPinotQuery().getQueryOptions();
+    Boolean incrementalReduceQueryOption =
+        queryOptions != null ? QueryOptionsUtils.isIncrementalReduce(queryOptions) : null;
+    boolean incrementalReduce =
+        incrementalReduceQueryOption != null ? incrementalReduceQueryOption : _enableIncrementalReduce;
+    if (!incrementalReduce) {
+      return null;
+    }
+    QueryContext serverQueryContext = QueryContextConverterUtils.getQueryContext(serverBrokerRequest.getPinotQuery());
+    DataTableReducer dataTableReducer = ResultReducerFactory.getResultReducer(serverQueryContext);
+    if (!(dataTableReducer instanceof GroupByDataTableReducer) || serverQueryContext.isServerReturnFinalResult()) {
+      return null;
+    }
+    return new IncrementalGroupByDataTableReducer(serverQueryContext, (GroupByDataTableReducer) dataTableReducer,
+        getReducerContext(queryOptions, timeoutMs));
   }
 
   public BrokerResponseNative reduceOnDataTable(BrokerRequest brokerRequest, BrokerRequest serverBrokerRequest,
       Map<ServerRoutingInstance, DataTable> dataTableMap, long reduceTimeOutMs, BrokerMetrics brokerMetrics) {
+    return reduceOnDataTable(brokerRequest, serverBrokerRequest, dataTableMap, reduceTimeOutMs, brokerMetrics, null);
+  }
+
+  /**
+   * Reduces the data tables gathered from the servers. When the incremental reducer is provided, the data tables
+   * already merged by it are not reduced again.
+   */
+  public BrokerResponseNative reduceOnDataTable(BrokerRequest brokerRequest, BrokerRequest serverBrokerRequest,
+      Map<ServerRoutingInstance, DataTable> dataTableMap, long reduceTimeOutMs, BrokerMetrics brokerMetrics,
+      @Nullable IncrementalGroupByDataTableReducer incrementalReducer) {
+    // NOTE: Close the incremental reducer first so that the data tables it merged are consistent with the data tables
+    //       processed below. Compare the data schema against the one from the first merged data table.
+    DataSchema dataSchemaFromNonEmptyDataTable = incrementalReducer != null ? incrementalReducer.close() : null;
     if (dataTableMap.isEmpty()) {
       // Empty response.
       return BrokerResponseNative.empty();
@@ -74,7 +118,6 @@ public class BrokerReduceService extends BaseReduceService {
 
     // Cache a data schema from data tables (try to cache one with data rows associated with it).
     DataSchema dataSchemaFromEmptyDataTable = null;
-    DataSchema dataSchemaFromNonEmptyDataTable = null;
     List<ServerRoutingInstance> serversWithConflictingDataSchema = new ArrayList<>();
 
     // Process server response metadata.
@@ -138,23 +181,17 @@ public class BrokerReduceService extends BaseReduceService {
       return brokerResponseNative;
     }
 
-    QueryContext serverQueryContext = QueryContextConverterUtils.getQueryContext(serverBrokerRequest.getPinotQuery());
-    DataTableReducer dataTableReducer = ResultReducerFactory.getResultReducer(serverQueryContext);
-
-    Integer minGroupTrimSizeQueryOption = null;
-    Integer groupTrimThresholdQueryOption = null;
-    if (queryOptions != null) {
-      minGroupTrimSizeQueryOption = QueryOptionsUtils.getMinBrokerGroupTrimSize(queryOptions);
-      groupTrimThresholdQueryOption = QueryOptionsUtils.getGroupTrimThreshold(queryOptions);
-    }
-    int minGroupTrimSize = minGroupTrimSizeQueryOption != null ? minGroupTrimSizeQueryOption : _minGroupTrimSize;
-    int groupTrimThreshold =
-        groupTrimThresholdQueryOption != null ? groupTrimThresholdQueryOption : _groupByTrimThreshold;
-
+    QueryContext serverQueryContext = incrementalReducer != null ? incrementalReducer.getQueryContext()
+        : QueryContextConverterUtils.getQueryContext(serverBrokerRequest.getPinotQuery());
     try {
-      dataTableReducer.reduceAndSetResults(rawTableName, cachedDataSchema, dataTableMap, brokerResponseNative,
-          new DataTableReducerContext(_reduceExecutorService, _maxReduceThreadsPerQuery, reduceTimeOutMs,
-              groupTrimThreshold, minGroupTrimSize), brokerMetrics);
+      if (incrementalReducer != null) {
+        incrementalReducer.reduceAndSetResults(rawTableName, cachedDataSchema, dataTableMap, brokerResponseNative,
+            reduceTimeOutMs, brokerMetrics);
+      } else {
+        DataTableReducer dataTableReducer = ResultReducerFactory.getResultReducer(serverQueryContext);
+        dataTableReducer.reduceAndSetResults(rawTableName, cachedDataSchema, dataTableMap, brokerResponseNative,
+            getReducerContext(queryOptions, reduceTimeOutMs), brokerMetrics);
+      }
     } catch (EarlyTerminationException e) {
       brokerResponseNative.addException(
           new QueryProcessingException(QueryException.QUERY_CANCELLATION_ERROR_CODE, e.toString()));
@@ -178,6 +215,20 @@ public class BrokerReduceService extends BaseReduceService {
     return brokerResponseNative;
   }
 
+  private DataTableReducerContext getReducerContext(@Nullable Map<String, String> queryOptions, long reduceTimeOutMs) {
+    Integer minGroupTrimSizeQueryOption = null;
+    Integer groupTrimThresholdQueryOption = null;
+    if (queryOptions != null) {
+      minGroupTrimSizeQueryOption = QueryOptionsUtils.getMinBrokerGroupTrimSize(queryOptions);
+      groupTrimThresholdQueryOption = QueryOptionsUtils.getGroupTrimThreshold(queryOptions);
+    }
+    int minGroupTrimSize = minGroupTrimSizeQueryOption != null ? minGroupTrimSizeQueryOption : _minGroupTrimSize;
+    int groupTrimThreshold =
+        groupTrimThresholdQueryOption != null ? groupTrimThresholdQueryOption : _groupByTrimThreshold;
+    return new DataTableReducerContext(_reduceExecutorService, _maxReduceThreadsPerQuery, reduceTimeOutMs,
+        groupTrimThreshold, minGroupTrimSize);
+  }
+
   public void shutDown() {
     _reduceExecutorService.shutdownNow();
   }
@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.reduce;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pinot.common.Utils;
+import org.apache.pinot.common.datatable.DataTable;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.QueryProcessingException;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.data.table.IndexedTable;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.core.util.trace.TraceRunnable;
+import org.apache.pinot.spi.accounting.ThreadExecutionContext;
+import org.apache.pinot.spi.accounting.ThreadResourceUsageProvider;
+import org.apache.pinot.spi.exception.EarlyTerminationException;
+import org.apache.pinot.spi.trace.Tracing;
+
+
+/**
+ * The {@code IncrementalGroupByDataTableReducer} merges the group-by data tables into a concurrent
+ * {@link IndexedTable} as they arrive from the servers, instead of waiting for all the servers to respond. The data
+ * tables are merged on the broker reduce executor with at most {@code maxReduceThreadsPerQuery} threads for the query,
+ * so that only the data tables arrived at last, the final trim and the post-aggregation are left to the reduce phase.
+ * <p>The data tables without data rows or with data schema conflicting with the first merged data table are not
+ * merged, which matches the data tables dropped by the {@link BrokerReduceService}.
+ */
+@ThreadSafe
+public class IncrementalGroupByDataTableReducer {
+  private final QueryContext _queryContext;
+  private final GroupByDataTableReducer _groupByDataTableReducer;
+  private final DataTableReducerContext _reducerContext;
+  private final ThreadExecutionContext _parentContext;
+  private final Set<ServerRoutingInstance> _mergedServers = ConcurrentHashMap.newKeySet();
+  private final AtomicReference<Throwable> _exception = new AtomicReference<>();
+
+  // Guarded by this
+  private final Queue<DataTable> _pendingDataTables = new ArrayDeque<>();
+  private DataSchema _dataSchema;
+  private ColumnDataType[] _columnDataTypes;
+  private DataSchema _indexedTableDataSchema;
+  private ColumnDataType[] _storedColumnDataTypes;
+  private IndexedTable _indexedTable;
+  private int _numActiveWorkers;
+  private int _numWorkersSubmitted;
+  private boolean _closed;
+
+  private volatile boolean _cancelled;
+
+  public IncrementalGroupByDataTableReducer(QueryContext queryContext, GroupByDataTableReducer groupByDataTableReducer,
+      DataTableReducerContext reducerContext) {
+    _queryContext = queryContext;
+    _groupByDataTableReducer = groupByDataTableReducer;
+    _reducerContext = reducerContext;
+    _parentContext = Tracing.getThreadAccountant().getThreadExecutionContext();
+  }
+
+  public QueryContext getQueryContext() {
+    return _queryContext;
+  }
+
+  /**
+   * Accepts a data table received from the server, and schedules it to be merged into the indexed table. This method
+   * is invoked from the network threads, so it only queues the data table and never merges it inline.
+   */
+  public void onDataTable(ServerRoutingInstance serverRoutingInstance, DataTable dataTable) {
+    DataSchema dataSchema = dataTable.getDataSchema();
+    if (dataSchema == null || dataTable.getNumberOfRows() == 0) {
+      return;
+    }
+    int taskId;
+    synchronized (this) {
+      if (_closed) {
+        return;
+      }
+      if (_dataSchema == null) {
+        _dataSchema = dataSchema;
+        // NOTE: Clone the column data types because they will be modified when the indexed table is finished
+        _columnDataTypes = dataSchema.getColumnDataTypes().clone();
+        _indexedTableDataSchema = ReducerDataSchemaUtils.canonicalizeDataSchemaForGroupBy(_queryContext, dataSchema);
+        _storedColumnDataTypes = _indexedTableDataSchema.getStoredColumnDataTypes();
+        _indexedTable = _groupByDataTableReducer.createIndexedTable(_indexedTableDataSchema, true, _reducerContext);
+      } else if (!Arrays.equals(dataSchema.getColumnDataTypes(), _columnDataTypes)) {
+        return;
+      }
+      _pendingDataTables.add(dataTable);
+      _mergedServers.add(serverRoutingInstance);
+      if (_numActiveWorkers >= _reducerContext.getMaxReduceThreadsPerQuery()) {
+        return;
+      }
+      _numActiveWorkers++;
+      taskId = _numWorkersSubmitted++;
+    }
+    try {
+      _reducerContext.getExecutorService().submit(new TraceRunnable() {
+        @Override
+        public void runJob() {
+          mergeDataTables(taskId);
+        }
+      });
+    } catch (Throwable t) {
+      _exception.compareAndSet(null, t);
+      synchronized (this) {
+        _numActiveWorkers--;
+        notifyAll();
+      }
+    }
+  }
+
+  private void mergeDataTables(int taskId) {
+    Tracing.ThreadAccountantOps.setupWorker(taskId, new ThreadResourceUsageProvider(), _parentContext);
+    try {
+      while (true) {
+        DataTable dataTable;
+        synchronized (this) {
+          dataTable = _pendingDataTables.poll();
+          if (dataTable == null) {
+            _numActiveWorkers--;
+            notifyAll();
+            return;
+          }
+        }
+        if (_cancelled || _exception.get() != null) {
+          continue;
+        }
+        try {
+          _groupByDataTableReducer.upsertDataTable(_indexedTable, dataTable, _storedColumnDataTypes);
+        } catch (Throwable t) {
+          _exception.compareAndSet(null, t);
+        }
+      }
+    } finally {
+      Tracing.ThreadAccountantOps.clear();
+    }
+  }
+
+  /**
+   * Stops accepting data tables from the servers, and returns the data schema of the first merged data table, or
+   * {@code null} if no data table is merged. This method should be invoked before gathering the data tables from the
+   * server responses, and can be invoked multiple times.
+   */
+  @Nullable
+  public synchronized DataSchema close() {
+    _closed = true;
+    return _dataSchema;
+  }
+
+  /**
+   * Merges the remaining data tables, and sets the group-by results into the broker response. The data table map
+   * should only contain the data tables with data rows and with the data schema returned by {@link #close()}.
+   */
+  public void reduceAndSetResults(String tableName, DataSchema dataSchema,
+      Map<ServerRoutingInstance, DataTable> dataTableMap, BrokerResponseNative brokerResponse, long reduceTimeOutMs,
+      BrokerMetrics brokerMetrics) {
+    long endTimeMs = System.currentTimeMillis() + reduceTimeOutMs;
+    IndexedTable indexedTable;
+    synchronized (this) {
+      assert _closed;
+      indexedTable = _indexedTable;
+    }
+    if (indexedTable == null) {
+      // No data table merged incrementally, fall back to the regular reduce
+      _groupByDataTableReducer.reduceAndSetResults(tableName, dataSchema, dataTableMap, brokerResponse,
+          new DataTableReducerContext(_reducerContext.getExecutorService(),
+              _reducerContext.getMaxReduceThreadsPerQuery(), reduceTimeOutMs,
+              _reducerContext.getGroupByTrimThreshold(), _reducerContext.getMinGroupTrimSize()), brokerMetrics);
+      return;
+    }
+
+    // Wait for the pending data tables to be merged
+    try {
+      synchronized (this) {
+        while (_numActiveWorkers > 0) {
+          long remainingTimeMs = endTimeMs - System.currentTimeMillis();
+          if (remainingTimeMs <= 0) {
+            _cancelled = true;
+            brokerResponse.getExceptions().add(new QueryProcessingException(QueryException.BROKER_TIMEOUT_ERROR_CODE,
+                "Timed out in broker reduce phase"));
+            return;
+          }
+          wait(remainingTimeMs);
+        }
+      }
+    } catch (InterruptedException e) {
+      _cancelled = true;
+      Exception killedErrorMsg = Tracing.getThreadAccountant().getErrorStatus();
+      throw new EarlyTerminationException(
+          "Interrupted in broker reduce phase" + (killedErrorMsg == null ? StringUtils.EMPTY : " " + killedErrorMsg),
+          e);
+    }
+    Throwable t = _exception.get();
+    if (t != null) {
+      Utils.rethrowException(t);
+    }
+
+    // Merge the data tables not handed to this reducer (e.g. arrived after the query timed out but before the data
+    // tables are gathered)
+    for (Map.Entry<ServerRoutingInstance, DataTable> entry : dataTableMap.entrySet()) {
+      if (!_mergedServers.contains(entry.getKey())) {
+        _groupByDataTableReducer.upsertDataTable(indexedTable, entry.getValue(), _storedColumnDataTypes);
+      }
+    }
+
+    indexedTable.finish(true, true);
+    _groupByDataTableReducer.setResults(brokerResponse, _indexedTableDataSchema, indexedTable, tableName,
+        brokerMetrics);
+    if (brokerMetrics != null && brokerResponse.getResultTable() != null) {
+      brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.GROUP_BY_SIZE,
+          brokerResponse.getResultTable().getRows().size());
+    }
+  }
+}
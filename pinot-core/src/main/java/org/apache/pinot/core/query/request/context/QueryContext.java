@@ -121,6 +121,8 @@ public class QueryContext {
   private int _minServerGroupTrimSize = InstancePlanMakerImplV2.DEFAULT_MIN_SERVER_GROUP_TRIM_SIZE;
   // Trim threshold to use for server combine for SQL GROUP BY
   private int _groupTrimThreshold = InstancePlanMakerImplV2.DEFAULT_GROUPBY_TRIM_THRESHOLD;
+  // Number of radix partitions to use for server combine for SQL GROUP BY, where values <= 1 disable the partitioning
+  private int _numGroupByCombinePartitions = InstancePlanMakerImplV2.DEFAULT_GROUPBY_COMBINE_NUM_PARTITIONS;
   // Whether null handling is enabled
   private boolean _nullHandlingEnabled;
   // Whether server returns the final result
@@ -392,6 +394,14 @@ public class QueryContext {
     _groupTrimThreshold = groupTrimThreshold;
   }
 
+  public int getNumGroupByCombinePartitions() {
+    return _numGroupByCombinePartitions;
+  }
+
+  public void setNumGroupByCombinePartitions(int numGroupByCombinePartitions) {
+    _numGroupByCombinePartitions = numGroupByCombinePartitions;
+  }
+
   public boolean isNullHandlingEnabled() {
     return _nullHandlingEnabled;
   }
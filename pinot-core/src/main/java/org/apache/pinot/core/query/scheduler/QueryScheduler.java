@@ -34,6 +34,7 @@ import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.metrics.ServerQueryPhase;
 import org.apache.pinot.common.response.ProcessingException;
 import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.core.common.datatable.DataTableBuilderFactory;
 import org.apache.pinot.core.operator.blocks.InstanceResponseBlock;
 import org.apache.pinot.core.operator.blocks.results.ExceptionResultsBlock;
 import org.apache.pinot.core.query.executor.QueryExecutor;
@@ -218,7 +219,8 @@ public abstract class QueryScheduler {
 
     byte[] responseByte = null;
     try {
-      responseByte = instanceResponse.toDataTable().toBytes();
+      responseByte = DataTableBuilderFactory.getDataTableForQuery(instanceResponse.toDataTable(),
+          queryRequest.getQueryContext().getQueryOptions()).toBytes();
     } catch (EarlyTerminationException e) {
       Exception killedErrorMsg = Tracing.getThreadAccountant().getErrorStatus();
       String errMsg =
@@ -360,10 +360,20 @@ public class SelectionOperatorUtils {
   public static DataTable getDataTableFromRows(Collection<Object[]> rows, DataSchema dataSchema,
       boolean nullHandlingEnabled)
       throws IOException {
+    return getDataTableFromRows(rows, dataSchema, nullHandlingEnabled, DataTableBuilderFactory.getDataTableVersion());
+  }
+
+  /**
+   * Build a {@link DataTable} of the given version from a {@link Collection} of selection rows with {@link DataSchema}.
+   * (Server side)
+   */
+  public static DataTable getDataTableFromRows(Collection<Object[]> rows, DataSchema dataSchema,
+      boolean nullHandlingEnabled, int dataTableVersion)
+      throws IOException {
     ColumnDataType[] storedColumnDataTypes = dataSchema.getStoredColumnDataTypes();
     int numColumns = storedColumnDataTypes.length;
 
-    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(dataSchema);
+    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(dataSchema, dataTableVersion);
     RoaringBitmap[] nullBitmaps = null;
     if (nullHandlingEnabled) {
       nullBitmaps = new RoaringBitmap[numColumns];
@@ -78,6 +78,13 @@ public interface RoutingManager {
   @Nullable
   TablePartitionInfo getTablePartitionInfo(String tableNameWithType);
 
+  /**
+   * Returns the total number of rows in the online segments of the given table based on the segment ZK metadata, or
+   * {@code null} if the row count is not tracked for the table.
+   */
+  @Nullable
+  Long getTableRowCount(String tableNameWithType);
+
   /**
    * Returns the enabled server instances currently serving the given table.
    */
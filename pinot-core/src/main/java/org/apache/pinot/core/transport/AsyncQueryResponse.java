@@ -25,6 +25,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.pinot.common.datatable.DataTable;
@@ -46,12 +47,19 @@ public class AsyncQueryResponse implements QueryResponse {
   private final long _maxEndTimeMs;
   private final long _timeoutMs;
   private final ServerRoutingStatsManager _serverRoutingStatsManager;
+  private final BiConsumer<ServerRoutingInstance, DataTable> _dataTableListener;
 
   private volatile ServerRoutingInstance _failedServer;
   private volatile Exception _exception;
 
   public AsyncQueryResponse(QueryRouter queryRouter, long requestId, Set<ServerRoutingInstance> serversQueried,
       long startTimeMs, long timeoutMs, ServerRoutingStatsManager serverRoutingStatsManager) {
+    this(queryRouter, requestId, serversQueried, startTimeMs, timeoutMs, serverRoutingStatsManager, null);
+  }
+
+  public AsyncQueryResponse(QueryRouter queryRouter, long requestId, Set<ServerRoutingInstance> serversQueried,
+      long startTimeMs, long timeoutMs, ServerRoutingStatsManager serverRoutingStatsManager,
+      @Nullable BiConsumer<ServerRoutingInstance, DataTable> dataTableListener) {
     _queryRouter = queryRouter;
     _requestId = requestId;
     int numServersQueried = serversQueried.size();
@@ -67,6 +75,7 @@ public class AsyncQueryResponse implements QueryResponse {
     _countDownLatch = new CountDownLatch(numServersQueried);
     _timeoutMs = timeoutMs;
     _maxEndTimeMs = startTimeMs + timeoutMs;
+    _dataTableListener = dataTableListener;
   }
 
   @Override
@@ -156,6 +165,11 @@ public class AsyncQueryResponse implements QueryResponse {
       int deserializationTimeMs) {
     ServerResponse response = _responseMap.get(serverRoutingInstance);
     response.receiveDataTable(dataTable, responseSize, deserializationTimeMs);
+    // NOTE: Invoke the listener before counting down the latch so that all the data tables are handed to the listener
+    //       when the final responses are returned
+    if (_dataTableListener != null) {
+      _dataTableListener.accept(serverRoutingInstance, dataTable);
+    }
 
     _numServersResponded.getAndIncrement();
     _countDownLatch.countDown();
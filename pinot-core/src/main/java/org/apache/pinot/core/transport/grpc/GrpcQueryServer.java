@@ -49,6 +49,7 @@ import org.apache.pinot.common.proto.Server.ServerRequest;
 import org.apache.pinot.common.proto.Server.ServerResponse;
 import org.apache.pinot.common.utils.tls.PinotInsecureMode;
 import org.apache.pinot.common.utils.tls.RenewableTlsUtils;
+import org.apache.pinot.core.common.datatable.DataTableBuilderFactory;
 import org.apache.pinot.core.operator.blocks.InstanceResponseBlock;
 import org.apache.pinot.core.operator.streaming.StreamingResponseUtils;
 import org.apache.pinot.core.query.executor.QueryExecutor;
@@ -211,7 +212,8 @@ public class GrpcQueryServer extends PinotQueryServerGrpc.PinotQueryServerImplBa
 
     ServerResponse serverResponse;
     try {
-      DataTable dataTable = instanceResponse.toDataTable();
+      DataTable dataTable = DataTableBuilderFactory.getDataTableForQuery(instanceResponse.toDataTable(),
+          queryRequest.getQueryContext().getQueryOptions());
       serverResponse = queryRequest.isEnableStreaming() ? StreamingResponseUtils.getMetadataResponse(dataTable)
           : StreamingResponseUtils.getNonStreamingResponse(dataTable);
     } catch (Exception e) {
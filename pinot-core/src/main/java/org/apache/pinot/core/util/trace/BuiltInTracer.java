@@ -73,7 +73,11 @@ public class BuiltInTracer implements Tracer {
 
   @Override
   public InvocationScope createScope(Class<?> operatorClass) {
-    return TraceContext.traceEnabled() ? new MilliTimeSpan(operatorClass) : NoOpRecording.INSTANCE;
+    if (TraceContext.traceEnabled()) {
+      return new MilliTimeSpan(operatorClass);
+    }
+    InvocationScope phaseTimingScope = PhaseTimingContext.createScope(operatorClass);
+    return phaseTimingScope != null ? phaseTimingScope : NoOpRecording.INSTANCE;
   }
 
   @Override
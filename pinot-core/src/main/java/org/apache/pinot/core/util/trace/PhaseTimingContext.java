@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.util.trace;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerQueryPhase;
+import org.apache.pinot.core.operator.BaseProjectOperator;
+import org.apache.pinot.core.operator.BitmapDocIdSetOperator;
+import org.apache.pinot.core.operator.DocIdSetOperator;
+import org.apache.pinot.core.operator.combine.BaseCombineOperator;
+import org.apache.pinot.core.operator.filter.BaseFilterOperator;
+import org.apache.pinot.core.operator.query.AggregationOperator;
+import org.apache.pinot.spi.trace.InvocationScope;
+
+
+/**
+ * The {@code PhaseTimingContext} accumulates the time spent in the operator phases of a query (filter evaluation,
+ * projection/transform, aggregation/group-by and combine), and records them into the per-table phase timings of the
+ * {@link ServerMetrics} when the query finishes.
+ * <p>
+ * The phases are timed with the {@link InvocationScope}s created by the {@link BuiltInTracer} for each
+ * {@link org.apache.pinot.core.operator.BaseOperator#nextBlock()} call. The time is exclusive, i.e. the time spent in
+ * the child operators is accounted to the phase of the child operators, and the operators not mapped to a phase are
+ * accounted to the phase of the parent operator. The time spent in the same phase is summed across the query thread and
+ * the worker threads, where the worker threads are registered to the query with {@link TraceRunnable} or
+ * {@link TraceCallable}.
+ * <p>
+ * To enable the phase timings, the query thread should call {@link #register()} before executing the query, and
+ * {@link #unregister(ServerMetrics, String)} after the query is executed to record the phase timings.
+ */
+public final class PhaseTimingContext {
+  private PhaseTimingContext() {
+  }
+
+  private static final ServerQueryPhase[] OPERATOR_PHASES = {
+      ServerQueryPhase.FILTER_EVALUATION, ServerQueryPhase.PROJECTION, ServerQueryPhase.AGGREGATION,
+      ServerQueryPhase.COMBINE
+  };
+  private static final int FILTER_EVALUATION = 0;
+  private static final int PROJECTION = 1;
+  private static final int AGGREGATION = 2;
+  private static final int COMBINE = 3;
+  // Operators not mapped to a phase inherit the phase of the parent operator
+  private static final int NO_PHASE = -1;
+  private static final int INITIAL_MAX_DEPTH = 16;
+
+  private static final ClassValue<Integer> OPERATOR_PHASE = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(Class<?> operatorClass) {
+      if (BaseFilterOperator.class.isAssignableFrom(operatorClass) || operatorClass == DocIdSetOperator.class
+          || operatorClass == BitmapDocIdSetOperator.class) {
+        return FILTER_EVALUATION;
+      }
+      if (BaseProjectOperator.class.isAssignableFrom(operatorClass)) {
+        return PROJECTION;
+      }
+      // Aggregation, group-by, selection and distinct operators on top of the projection
+      if (operatorClass.getPackage() == AggregationOperator.class.getPackage()) {
+        return AGGREGATION;
+      }
+      if (BaseCombineOperator.class.isAssignableFrom(operatorClass)) {
+        return COMBINE;
+      }
+      return NO_PHASE;
+    }
+  };
+
+  /**
+   * Phase times (in nanoseconds) of a query, shared by all the threads executing the query.
+   */
+  static class PhaseTimes {
+    final AtomicLongArray _phaseTimesNs = new AtomicLongArray(OPERATOR_PHASES.length);
+  }
+
+  /**
+   * Per-thread state, which is also used as the scope of the operator invocations on the thread. The scopes on a thread
+   * are always closed in the reverse order of creation, so the same instance can be reused for all of them.
+   */
+  static class PhaseTimer implements InvocationScope {
+    final PhaseTimes _phaseTimes;
+    final long[] _localPhaseTimesNs = new long[OPERATOR_PHASES.length];
+    int[] _phaseStack = new int[INITIAL_MAX_DEPTH];
+    int _depth;
+    int _currentPhase = NO_PHASE;
+    long _lastTimeNs;
+
+    PhaseTimer(PhaseTimes phaseTimes) {
+      _phaseTimes = phaseTimes;
+    }
+
+    PhaseTimer open(Class<?> operatorClass) {
+      accumulate(System.nanoTime());
+      if (_depth == _phaseStack.length) {
+        _phaseStack = Arrays.copyOf(_phaseStack, _depth << 1);
+      }
+      _phaseStack[_depth++] = _currentPhase;
+      int phase = OPERATOR_PHASE.get(operatorClass);
+      if (phase != NO_PHASE) {
+        _currentPhase = phase;
+      }
+      return this;
+    }
+
+    @Override
+    public void close() {
+      accumulate(System.nanoTime());
+      _currentPhase = _phaseStack[--_depth];
+    }
+
+    private void accumulate(long currentTimeNs) {
+      if (_currentPhase != NO_PHASE) {
+        _localPhaseTimesNs[_currentPhase] += currentTimeNs - _lastTimeNs;
+      }
+      _lastTimeNs = currentTimeNs;
+    }
+
+    /**
+     * Merges the phase times accumulated on the thread into the query.
+     */
+    void flush() {
+      accumulate(System.nanoTime());
+      for (int i = 0; i < _localPhaseTimesNs.length; i++) {
+        long phaseTimeNs = _localPhaseTimesNs[i];
+        if (phaseTimeNs != 0) {
+          _phaseTimes._phaseTimesNs.addAndGet(i, phaseTimeNs);
+        }
+      }
+    }
+  }
+
+  private static final ThreadLocal<PhaseTimer> PHASE_TIMER_THREAD_LOCAL = new ThreadLocal<>();
+
+  /**
+   * Registers the current thread as the query thread to time the operator phases.
+   */
+  public static void register() {
+    PHASE_TIMER_THREAD_LOCAL.set(new PhaseTimer(new PhaseTimes()));
+  }
+
+  /**
+   * Un-registers the query thread, and records the phase times accumulated so far into the server metrics. The phase
+   * times from the worker threads not finished yet are not recorded.
+   */
+  public static void unregister(ServerMetrics serverMetrics, String tableNameWithType) {
+    PhaseTimer phaseTimer = PHASE_TIMER_THREAD_LOCAL.get();
+    if (phaseTimer == null) {
+      return;
+    }
+    PHASE_TIMER_THREAD_LOCAL.remove();
+    phaseTimer.flush();
+    AtomicLongArray phaseTimesNs = phaseTimer._phaseTimes._phaseTimesNs;
+    for (int i = 0; i < OPERATOR_PHASES.length; i++) {
+      serverMetrics.addPhaseTiming(tableNameWithType, OPERATOR_PHASES[i], phaseTimesNs.get(i));
+    }
+  }
+
+  /**
+   * Creates a scope to time the invocation of the given operator, or returns {@code null} if the phase timing is not
+   * enabled on the current thread.
+   */
+  @Nullable
+  static InvocationScope createScope(Class<?> operatorClass) {
+    PhaseTimer phaseTimer = PHASE_TIMER_THREAD_LOCAL.get();
+    return phaseTimer != null ? phaseTimer.open(operatorClass) : null;
+  }
+
+  /**
+   * Creates the {@link PhaseTimer} for a worker thread of the query executed by the current thread, or returns
+   * {@code null} if the phase timing is not enabled on the current thread. The worker thread inherits the current
+   * phase of the current thread, e.g. the time spent by the worker threads of a combine operator outside the segment
+   * operators (merging the segment results) is accounted to the combine phase.
+   */
+  @Nullable
+  static PhaseTimer createWorkerPhaseTimer() {
+    PhaseTimer phaseTimer = PHASE_TIMER_THREAD_LOCAL.get();
+    if (phaseTimer == null) {
+      return null;
+    }
+    PhaseTimer workerPhaseTimer = new PhaseTimer(phaseTimer._phaseTimes);
+    workerPhaseTimer._currentPhase = phaseTimer._currentPhase;
+    return workerPhaseTimer;
+  }
+
+  /**
+   * Register a worker thread to the query.
+   */
+  static void registerThreadToQuery(PhaseTimer workerPhaseTimer) {
+    workerPhaseTimer._lastTimeNs = System.nanoTime();
+    PHASE_TIMER_THREAD_LOCAL.set(workerPhaseTimer);
+  }
+
+  /**
+   * Un-register a worker thread from the query, and merge the phase times of the thread into the query.
+   */
+  static void unregisterThreadFromQuery() {
+    PhaseTimer phaseTimer = PHASE_TIMER_THREAD_LOCAL.get();
+    if (phaseTimer != null) {
+      PHASE_TIMER_THREAD_LOCAL.remove();
+      phaseTimer.flush();
+    }
+  }
+}
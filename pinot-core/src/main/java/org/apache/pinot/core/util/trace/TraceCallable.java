@@ -26,12 +26,15 @@ import java.util.concurrent.Callable;
  */
 public abstract class TraceCallable<V> implements Callable<V> {
   private final TraceContext.TraceEntry _parentTraceEntry;
+  private final PhaseTimingContext.PhaseTimer _workerPhaseTimer;
 
   /**
-   * If trace is not enabled, parent trace entry will be null.
+   * If trace is not enabled, parent trace entry will be null. If phase timing is not enabled, worker phase timer will
+   * be null.
    */
   public TraceCallable() {
     _parentTraceEntry = TraceContext.getTraceEntry();
+    _workerPhaseTimer = PhaseTimingContext.createWorkerPhaseTimer();
   }
 
   @Override
@@ -40,12 +43,18 @@ public abstract class TraceCallable<V> implements Callable<V> {
     if (_parentTraceEntry != null) {
       TraceContext.registerThreadToRequest(_parentTraceEntry);
     }
+    if (_workerPhaseTimer != null) {
+      PhaseTimingContext.registerThreadToQuery(_workerPhaseTimer);
+    }
     try {
       return callJob();
     } finally {
       if (_parentTraceEntry != null) {
         TraceContext.unregisterThreadFromRequest();
       }
+      if (_workerPhaseTimer != null) {
+        PhaseTimingContext.unregisterThreadFromQuery();
+      }
     }
   }
 
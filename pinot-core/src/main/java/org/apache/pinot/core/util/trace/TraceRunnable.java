@@ -23,12 +23,15 @@ package org.apache.pinot.core.util.trace;
  */
 public abstract class TraceRunnable implements Runnable {
   private final TraceContext.TraceEntry _parentTraceEntry;
+  private final PhaseTimingContext.PhaseTimer _workerPhaseTimer;
 
   /**
-   * If trace is not enabled, parent trace entry will be null.
+   * If trace is not enabled, parent trace entry will be null. If phase timing is not enabled, worker phase timer will
+   * be null.
    */
   public TraceRunnable() {
     _parentTraceEntry = TraceContext.getTraceEntry();
+    _workerPhaseTimer = PhaseTimingContext.createWorkerPhaseTimer();
   }
 
   @Override
@@ -36,12 +39,18 @@ public abstract class TraceRunnable implements Runnable {
     if (_parentTraceEntry != null) {
       TraceContext.registerThreadToRequest(_parentTraceEntry);
     }
+    if (_workerPhaseTimer != null) {
+      PhaseTimingContext.registerThreadToQuery(_workerPhaseTimer);
+    }
     try {
       runJob();
     } finally {
       if (_parentTraceEntry != null) {
         TraceContext.unregisterThreadFromRequest();
       }
+      if (_workerPhaseTimer != null) {
+        PhaseTimingContext.unregisterThreadFromQuery();
+      }
     }
   }
 
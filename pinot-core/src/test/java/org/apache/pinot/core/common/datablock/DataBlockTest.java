@@ -92,6 +92,27 @@ public class DataBlockTest {
     }
   }
 
+  @Test
+  public void testSerializeIntoBuffers()
+      throws Exception {
+    DataSchema dataSchema = new DataSchema(new String[]{"int", "long", "string", "intArray"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.LONG, ColumnDataType.STRING, ColumnDataType.INT_ARRAY});
+    List<Object[]> rows = DataBlockTestUtils.getRandomRows(dataSchema, TEST_ROW_COUNT, 10);
+    DataBlock rowBlock = DataBlockBuilder.buildFromRows(rows, dataSchema);
+    DataBlock columnarBlock =
+        DataBlockBuilder.buildFromColumns(DataBlockTestUtils.convertColumnar(dataSchema, rows), dataSchema);
+    for (DataBlock dataBlock : new DataBlock[]{rowBlock, columnarBlock}) {
+      byte[] bytes = dataBlock.toBytes();
+      List<ByteBuffer> buffers = dataBlock.serialize();
+      ByteBuffer concatenated = ByteBuffer.allocate(bytes.length);
+      for (ByteBuffer buffer : buffers) {
+        concatenated.put(buffer.duplicate());
+      }
+      Assert.assertEquals(concatenated.array(), bytes);
+      Assert.assertEquals(DataBlockUtils.getDataBlock(ByteBuffer.wrap(concatenated.array())), dataBlock);
+    }
+  }
+
   @DataProvider(name = "testTypeNullPercentile")
   public Object[][] provideTestTypeNullPercentile() {
     return new Object[][]{new Object[]{0}, new Object[]{10}, new Object[]{100}};
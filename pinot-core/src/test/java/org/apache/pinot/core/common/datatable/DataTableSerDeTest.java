@@ -21,6 +21,7 @@ package org.apache.pinot.core.common.datatable;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Random;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -28,14 +29,17 @@ import org.apache.pinot.common.CustomObject;
 import org.apache.pinot.common.datatable.DataTable;
 import org.apache.pinot.common.datatable.DataTable.MetadataKey;
 import org.apache.pinot.common.datatable.DataTableFactory;
+import org.apache.pinot.common.datatable.DataTableImplV5;
 import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.response.ProcessingException;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.core.common.ObjectSerDeUtils;
 import org.apache.pinot.spi.accounting.ThreadResourceUsageProvider;
 import org.apache.pinot.spi.utils.ByteArray;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import org.roaringbitmap.RoaringBitmap;
 import org.testng.Assert;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -69,6 +73,11 @@ public class DataTableSerDeTest {
   private static final long[][] TIMESTAMP_ARRAYS = new long[NUM_ROWS][];
   private static final String[][] STRING_ARRAYS = new String[NUM_ROWS][];
 
+  @AfterClass
+  public void tearDown() {
+    DataTableBuilderFactory.setDataTableVersion(DataTableBuilderFactory.DEFAULT_VERSION);
+  }
+
   @Test(dataProvider = "versionProvider")
   public void testException(int dataTableVersion)
       throws IOException {
@@ -301,6 +310,116 @@ public class DataTableSerDeTest {
         Integer.parseInt(newDataTable.getMetadata().get(MetadataKey.RESPONSE_SER_CPU_TIME_NS.getName())) > 0);
   }
 
+  @Test(dataProvider = "compressionTypeProvider")
+  public void testColumnarDataTableForQuery(DataTableImplV5.CompressionType compressionType)
+      throws IOException {
+    DataTableBuilderFactory.setDataTableVersion(DataTableFactory.VERSION_4);
+    DataSchema.ColumnDataType[] columnDataTypes = DataSchema.ColumnDataType.values();
+    int numColumns = columnDataTypes.length;
+    String[] columnNames = new String[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      columnNames[i] = columnDataTypes[i].name();
+    }
+
+    DataSchema dataSchema = new DataSchema(columnNames, columnDataTypes);
+    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(dataSchema);
+    fillDataTableWithRandomData(dataTableBuilder, columnDataTypes, numColumns);
+    DataTable dataTable = dataTableBuilder.build();
+    dataTable.getMetadata().put(MetadataKey.NUM_DOCS_SCANNED.getName(), "100");
+    dataTable.addException(QueryException.QUERY_EXECUTION_ERROR_CODE, ERROR_MESSAGE);
+
+    // V4 data table should be converted to V5 when requested by the query
+    DataTable dataTableForQuery = DataTableBuilderFactory.getDataTableForQuery(dataTable,
+        Map.of(QueryOptionKey.DATA_TABLE_VERSION, "5", QueryOptionKey.DATA_TABLE_COMPRESSION,
+            compressionType.name().toLowerCase()));
+    DataTable newDataTable = DataTableFactory.getDataTable(dataTableForQuery.toBytes());
+    Assert.assertEquals(newDataTable.getVersion(), DataTableFactory.VERSION_5, ERROR_MESSAGE);
+    Assert.assertEquals(newDataTable.getDataSchema(), dataSchema, ERROR_MESSAGE);
+    Assert.assertEquals(newDataTable.getNumberOfRows(), NUM_ROWS, ERROR_MESSAGE);
+    Assert.assertEquals(newDataTable.getMetadata().get(MetadataKey.NUM_DOCS_SCANNED.getName()), "100");
+    Assert.assertEquals(newDataTable.getExceptions().get(QueryException.QUERY_EXECUTION_ERROR_CODE), ERROR_MESSAGE);
+    verifyDataIsSame(newDataTable, columnDataTypes, numColumns);
+
+    // Data table should be kept as is without query options
+    Assert.assertSame(DataTableBuilderFactory.getDataTableForQuery(dataTable, Map.of()), dataTable);
+  }
+
+  @Test
+  public void testDataTableVersionForQuery()
+      throws IOException {
+    DataTableBuilderFactory.setDataTableVersion(DataTableFactory.VERSION_5);
+    Map<String, String> v4QueryOptions = Map.of(QueryOptionKey.DATA_TABLE_VERSION, "4");
+    Map<String, String> v5QueryOptions = Map.of(QueryOptionKey.DATA_TABLE_VERSION, "5");
+    DataSchema dataSchema =
+        new DataSchema(new String[]{"INT"}, new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.INT});
+
+    // Data table should be built directly in the requested version
+    Assert.assertTrue(DataTableBuilderFactory.getDataTableBuilderForQuery(dataSchema, v4QueryOptions)
+        instanceof DataTableBuilderV4);
+    Assert.assertTrue(DataTableBuilderFactory.getDataTableBuilderForQuery(dataSchema, Map.of())
+        instanceof DataTableBuilderV5);
+    DataTableBuilderFactory.setDataTableVersion(DataTableFactory.VERSION_4);
+    Assert.assertTrue(DataTableBuilderFactory.getDataTableBuilderForQuery(dataSchema, v5QueryOptions)
+        instanceof DataTableBuilderV5);
+    DataTableBuilderFactory.setDataTableVersion(DataTableFactory.VERSION_5);
+
+    // Metadata only V5 data table should be converted to V4 when V4 is requested (e.g. from an older broker)
+    DataTable metadataOnlyDataTable = DataTableBuilderFactory.getEmptyDataTable();
+    metadataOnlyDataTable.getMetadata().put(MetadataKey.NUM_DOCS_SCANNED.getName(), "100");
+    metadataOnlyDataTable.addException(QueryException.QUERY_EXECUTION_ERROR_CODE, ERROR_MESSAGE);
+    DataTable newDataTable = DataTableFactory.getDataTable(
+        DataTableBuilderFactory.getDataTableForQuery(metadataOnlyDataTable, v4QueryOptions).toBytes());
+    Assert.assertEquals(newDataTable.getVersion(), DataTableFactory.VERSION_4);
+    Assert.assertEquals(newDataTable.getMetadata().get(MetadataKey.NUM_DOCS_SCANNED.getName()), "100");
+    Assert.assertEquals(newDataTable.getExceptions().get(QueryException.QUERY_EXECUTION_ERROR_CODE), ERROR_MESSAGE);
+
+    // V5 data table with data cannot be sent when V4 is requested
+    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(dataSchema);
+    dataTableBuilder.startRow();
+    dataTableBuilder.setColumn(0, 1);
+    dataTableBuilder.finishRow();
+    DataTable dataTable = dataTableBuilder.build();
+    Assert.assertThrows(IllegalStateException.class,
+        () -> DataTableBuilderFactory.getDataTableForQuery(dataTable, v4QueryOptions));
+    Assert.assertSame(DataTableBuilderFactory.getDataTableForQuery(dataTable, Map.of()), dataTable);
+  }
+
+  @Test(dataProvider = "compressionTypeProvider")
+  public void testColumnarDataTableIntegerEncoding(DataTableImplV5.CompressionType compressionType)
+      throws IOException {
+    DataTableBuilderFactory.setDataTableVersion(DataTableFactory.VERSION_5);
+    DataSchema dataSchema = new DataSchema(new String[]{"sorted", "constant", "extreme", "smallRange"},
+        new DataSchema.ColumnDataType[]{
+            DataSchema.ColumnDataType.LONG, DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.LONG,
+            DataSchema.ColumnDataType.INT
+        });
+    long[] sortedValues = new long[NUM_ROWS];
+    long[] extremeValues = new long[NUM_ROWS];
+    int[] smallRangeValues = new int[NUM_ROWS];
+    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(dataSchema);
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      sortedValues[rowId] = 1_700_000_000_000L + rowId * 1000L + RANDOM.nextInt(10);
+      extremeValues[rowId] = RANDOM.nextBoolean() ? Long.MIN_VALUE + RANDOM.nextInt(10) : Long.MAX_VALUE - rowId;
+      smallRangeValues[rowId] = -RANDOM.nextInt(100);
+      dataTableBuilder.startRow();
+      dataTableBuilder.setColumn(0, sortedValues[rowId]);
+      dataTableBuilder.setColumn(1, 7);
+      dataTableBuilder.setColumn(2, extremeValues[rowId]);
+      dataTableBuilder.setColumn(3, smallRangeValues[rowId]);
+      dataTableBuilder.finishRow();
+    }
+    DataTableImplV5 dataTable = (DataTableImplV5) dataTableBuilder.build();
+    dataTable.setCompressionType(compressionType);
+
+    DataTable newDataTable = DataTableFactory.getDataTable(dataTable.toBytes());
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      Assert.assertEquals(newDataTable.getLong(rowId, 0), sortedValues[rowId], ERROR_MESSAGE);
+      Assert.assertEquals(newDataTable.getInt(rowId, 1), 7, ERROR_MESSAGE);
+      Assert.assertEquals(newDataTable.getLong(rowId, 2), extremeValues[rowId], ERROR_MESSAGE);
+      Assert.assertEquals(newDataTable.getInt(rowId, 3), smallRangeValues[rowId], ERROR_MESSAGE);
+    }
+  }
+
   private void fillDataTableWithRandomData(DataTableBuilder dataTableBuilder,
       DataSchema.ColumnDataType[] columnDataTypes, int numColumns)
       throws IOException {
@@ -549,7 +668,13 @@ public class DataTableSerDeTest {
   @DataProvider(name = "versionProvider")
   public Object[][] provideVersion() {
     return new Object[][]{
-        new Object[]{DataTableFactory.VERSION_4}
+        new Object[]{DataTableFactory.VERSION_4}, new Object[]{DataTableFactory.VERSION_5}
     };
   }
+
+  @DataProvider(name = "compressionTypeProvider")
+  public Object[][] provideCompressionType() {
+    return Arrays.stream(DataTableImplV5.CompressionType.values()).map(type -> new Object[]{type})
+        .toArray(Object[][]::new);
+  }
 }
@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.recordenricher.RecordEnricherPipeline;
+import org.apache.pinot.spi.stream.LongMsgOffset;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.PartitionGroupConsumer;
+import org.apache.pinot.spi.stream.StreamDataDecoder;
+import org.apache.pinot.spi.stream.StreamDataDecoderResult;
+import org.apache.pinot.spi.stream.StreamMessage;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.expectThrows;
+
+
+public class StreamConsumptionPipelineTest {
+  private static final String COLUMN = "value";
+
+  private static List<StreamConsumptionPipeline.Worker> getWorkers(int numWorkers) {
+    List<StreamConsumptionPipeline.Worker> workers = new ArrayList<>(numWorkers);
+    for (int i = 0; i < numWorkers; i++) {
+      StreamDataDecoder decoder = mock(StreamDataDecoder.class);
+      when(decoder.decode(any())).thenAnswer(invocation -> {
+        StreamMessage<?> message = invocation.getArgument(0);
+        int value = (int) message.getValue();
+        if (value < 0) {
+          return new StreamDataDecoderResult(null, new IllegalStateException());
+        }
+        GenericRow row = new GenericRow();
+        row.putValue(COLUMN, value);
+        return new StreamDataDecoderResult(row, null);
+      });
+      workers.add(new StreamConsumptionPipeline.Worker(decoder, RecordEnricherPipeline.getPassThroughPipeline(),
+          TransformPipeline.getPassThroughPipeline()));
+    }
+    return workers;
+  }
+
+  private static MessageBatch getMessageBatch(int numMessages) {
+    MessageBatch messageBatch = mock(MessageBatch.class);
+    when(messageBatch.getMessageCount()).thenReturn(numMessages);
+    when(messageBatch.getStreamMessage(anyInt())).thenAnswer(invocation -> {
+      int index = invocation.getArgument(0);
+      // Every 100th message fails to decode
+      return new StreamMessage<>(index % 100 == 99 ? -1 : index, Integer.BYTES);
+    });
+    return messageBatch;
+  }
+
+  @Test
+  public void testDecode() {
+    try (StreamConsumptionPipeline pipeline = new StreamConsumptionPipeline("testDecode", getWorkers(3))) {
+      for (int numMessages : new int[]{1, 10, 1000}) {
+        StreamConsumptionPipeline.DecodedBatch decodedBatch = pipeline.decode(getMessageBatch(numMessages),
+            numMessages);
+        for (int i = 0; i < numMessages; i++) {
+          StreamConsumptionPipeline.DecodedMessage decodedMessage = decodedBatch.get(i);
+          if (i % 100 == 99) {
+            assertNotNull(decodedMessage.getDecodedRow().getException());
+            assertNull(decodedMessage.getResult());
+          } else {
+            assertNull(decodedMessage.getTransformException());
+            List<GenericRow> transformedRows = decodedMessage.getResult().getTransformedRows();
+            assertEquals(transformedRows.size(), 1);
+            assertEquals(transformedRows.get(0).getValue(COLUMN), i);
+          }
+        }
+        decodedBatch.awaitCompletion();
+      }
+    }
+  }
+
+  @Test
+  public void testPrefetch()
+      throws Exception {
+    MessageBatch messageBatch = getMessageBatch(10);
+    PartitionGroupConsumer consumer = mock(PartitionGroupConsumer.class);
+    when(consumer.fetchMessages(any(), anyInt())).thenAnswer(invocation -> {
+      LongMsgOffset startOffset = invocation.getArgument(0);
+      if (startOffset.getOffset() == 20) {
+        throw new TimeoutException();
+      }
+      return messageBatch;
+    });
+    try (StreamConsumptionPipeline pipeline = new StreamConsumptionPipeline("testPrefetch", getWorkers(1))) {
+      assertNull(pipeline.getPrefetchedBatch(new LongMsgOffset(10)));
+
+      pipeline.prefetch(consumer, new LongMsgOffset(10), 100);
+      assertSame(pipeline.getPrefetchedBatch(new LongMsgOffset(10)), messageBatch);
+      assertNull(pipeline.getPrefetchedBatch(new LongMsgOffset(10)));
+
+      // Prefetched batch should be discarded on offset mismatch
+      pipeline.prefetch(consumer, new LongMsgOffset(10), 100);
+      assertNull(pipeline.getPrefetchedBatch(new LongMsgOffset(15)));
+
+      // Exception from prefetch should be rethrown
+      pipeline.prefetch(consumer, new LongMsgOffset(20), 100);
+      expectThrows(TimeoutException.class, () -> pipeline.getPrefetchedBatch(new LongMsgOffset(20)));
+    }
+  }
+}
@@ -339,4 +339,88 @@ public class IndexedTableTest {
     // If 2 * trimSize exceeds the max integer value, the trim threshold should be bounded to the max integer value
     Assert.assertEquals(indexedTable._trimThreshold, Integer.MAX_VALUE);
   }
+
+  @Test
+  public void testPartitionedIndexedTable() {
+    QueryContext queryContext = QueryContextConverterUtils.getQueryContext(
+        "SELECT SUM(m1), MAX(m2) FROM testTable GROUP BY d1, d2, d3 ORDER BY SUM(m1)");
+    DataSchema dataSchema = new DataSchema(new String[]{"d1", "d2", "d3", "sum(m1)", "max(m2)"}, new ColumnDataType[]{
+        ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.DOUBLE, ColumnDataType.DOUBLE, ColumnDataType.DOUBLE
+    });
+    int numPartitions = 4;
+    int numWorkers = 3;
+    int numKeys = 50;
+
+    // Each worker upserts all the keys into its own partitions, where key i has SUM(m1) = numWorkers * (numKeys - i)
+    IndexedTable[][] workerPartitions = new IndexedTable[numWorkers][numPartitions];
+    for (int worker = 0; worker < numWorkers; worker++) {
+      for (int partitionId = 0; partitionId < numPartitions; partitionId++) {
+        workerPartitions[worker][partitionId] = new SimpleIndexedTable(dataSchema, queryContext, 5, 5, 1000);
+      }
+      for (int i = 0; i < numKeys; i++) {
+        Object[] keys = new Object[]{"k" + i, i, (double) i};
+        Key key = getKey(keys);
+        int partitionId = PartitionedIndexedTable.getPartitionId(key, numPartitions);
+        Assert.assertTrue(partitionId >= 0 && partitionId < numPartitions);
+        workerPartitions[worker][partitionId].upsert(key,
+            getRecord(new Object[]{"k" + i, i, (double) i, (double) (numKeys - i), (double) worker}));
+      }
+    }
+
+    // Merge the partitions of the workers partition by partition
+    IndexedTable[] mergedPartitions = new IndexedTable[numPartitions];
+    for (int partitionId = 0; partitionId < numPartitions; partitionId++) {
+      mergedPartitions[partitionId] = workerPartitions[0][partitionId];
+      for (int worker = 1; worker < numWorkers; worker++) {
+        PartitionedIndexedTable.mergePartition(mergedPartitions[partitionId], workerPartitions[worker][partitionId]);
+      }
+    }
+    IndexedTable indexedTable = new PartitionedIndexedTable(dataSchema, queryContext, 5, 5, 1000, mergedPartitions);
+    Assert.assertEquals(indexedTable.size(), numKeys);
+    indexedTable.finish(true);
+
+    // The keys with the smallest SUM(m1) are the ones with the largest index
+    Assert.assertEquals(indexedTable.size(), 5);
+    Iterator<Record> iterator = indexedTable.iterator();
+    for (int i = numKeys - 1; i >= numKeys - 5; i--) {
+      Object[] values = iterator.next().getValues();
+      Assert.assertEquals(values[0], "k" + i);
+      Assert.assertEquals(values[3], (double) numWorkers * (numKeys - i));
+      Assert.assertEquals(values[4], (double) (numWorkers - 1));
+    }
+    Assert.assertThrows(UnsupportedOperationException.class,
+        () -> indexedTable.upsert(getRecord(new Object[]{"a", 1, 10d, 10d, 100d})));
+  }
+
+  @Test
+  public void testPartitionedIndexedTableWithoutOrderBy() {
+    QueryContext queryContext =
+        QueryContextConverterUtils.getQueryContext("SELECT SUM(m1), MAX(m2) FROM testTable GROUP BY d1, d2, d3");
+    DataSchema dataSchema = new DataSchema(new String[]{"d1", "d2", "d3", "sum(m1)", "max(m2)"}, new ColumnDataType[]{
+        ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.DOUBLE, ColumnDataType.DOUBLE, ColumnDataType.DOUBLE
+    });
+    int numPartitions = 4;
+    IndexedTable[] partitions = new IndexedTable[numPartitions];
+    for (int partitionId = 0; partitionId < numPartitions; partitionId++) {
+      partitions[partitionId] = new SimpleIndexedTable(dataSchema, queryContext, 5, TRIM_SIZE, TRIM_THRESHOLD);
+    }
+    for (int i = 0; i < 50; i++) {
+      Key key = getKey(new Object[]{"k" + i, i, (double) i});
+      partitions[PartitionedIndexedTable.getPartitionId(key, numPartitions)].upsert(key,
+          getRecord(new Object[]{"k" + i, i, (double) i, 10d, 100d}));
+    }
+
+    // Each partition keeps up to 5 records, but the table only returns 5 records overall
+    IndexedTable indexedTable =
+        new PartitionedIndexedTable(dataSchema, queryContext, 5, TRIM_SIZE, TRIM_THRESHOLD, partitions);
+    indexedTable.finish(false);
+    Assert.assertEquals(indexedTable.size(), 5);
+    int numRecords = 0;
+    Iterator<Record> iterator = indexedTable.iterator();
+    while (iterator.hasNext()) {
+      iterator.next();
+      numRecords++;
+    }
+    Assert.assertEquals(numRecords, 5);
+  }
 }
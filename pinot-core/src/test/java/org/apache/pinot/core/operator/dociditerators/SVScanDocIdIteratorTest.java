@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.dociditerators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.common.request.context.predicate.RangePredicate;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.operator.filter.predicate.RangePredicateEvaluatorFactory;
+import org.apache.pinot.segment.spi.Constants;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReaderContext;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+public class SVScanDocIdIteratorTest {
+  private static final int NUM_DOCS = 10_000;
+  private static final Random RANDOM = new Random();
+
+  @Test
+  public void testMatchIntRangeBranchFree() {
+    int[] values = new int[]{
+        Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -10, -1, 0, 1, 9, 10, 11, Integer.MAX_VALUE - 1, Integer.MAX_VALUE
+    };
+    int[][] ranges = new int[][]{
+        {Integer.MIN_VALUE, Integer.MAX_VALUE}, {Integer.MIN_VALUE, -1}, {0, Integer.MAX_VALUE}, {-10, 10}, {1, 1},
+        {10, 9}, {Integer.MAX_VALUE, Integer.MAX_VALUE}, {Integer.MIN_VALUE, Integer.MIN_VALUE}
+    };
+    for (int[] range : ranges) {
+      int[] docIds = new int[values.length];
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < values.length; i++) {
+        docIds[i] = i;
+        if (values[i] >= range[0] && values[i] <= range[1]) {
+          expected.add(i);
+        }
+      }
+      int numMatches = SVScanDocIdIterator.matchRangeBranchFree(values.length, docIds, values, range[0], range[1]);
+      assertEquals(toList(docIds, numMatches), expected);
+    }
+  }
+
+  @Test
+  public void testMatchLongRangeBranchFree() {
+    long[] values = new long[]{
+        Long.MIN_VALUE, Long.MIN_VALUE + 1, Integer.MIN_VALUE, -10, -1, 0, 1, 9, 10, 11, Integer.MAX_VALUE,
+        Long.MAX_VALUE - 1, Long.MAX_VALUE
+    };
+    long[][] ranges = new long[][]{
+        {Long.MIN_VALUE, Long.MAX_VALUE}, {Long.MIN_VALUE, -1}, {0, Long.MAX_VALUE}, {-10, 10}, {1, 1},
+        {Long.MAX_VALUE, Long.MAX_VALUE}, {Long.MIN_VALUE, Long.MIN_VALUE}, {Integer.MIN_VALUE, Integer.MAX_VALUE}
+    };
+    for (long[] range : ranges) {
+      int[] docIds = new int[values.length];
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < values.length; i++) {
+        docIds[i] = i;
+        if (values[i] >= range[0] && values[i] <= range[1]) {
+          expected.add(i);
+        }
+      }
+      int numMatches = SVScanDocIdIterator.matchRangeBranchFree(values.length, docIds, values, range[0], range[1]);
+      assertEquals(toList(docIds, numMatches), expected);
+    }
+  }
+
+  @Test
+  public void testIntRangeScan() {
+    int[] values = new int[NUM_DOCS];
+    for (int i = 0; i < NUM_DOCS; i++) {
+      values[i] = RANDOM.nextInt(1000);
+    }
+    // Cover both the branch-free and the branchy evaluation
+    for (int upperBound : new int[]{0, 10, 500, 990, 1000}) {
+      PredicateEvaluator predicateEvaluator = RangePredicateEvaluatorFactory.newRawValueBasedEvaluator(
+          new RangePredicate(ExpressionContext.forIdentifier("col"), true, "0", false, Integer.toString(upperBound),
+              DataType.INT), DataType.INT);
+      ForwardIndexReader<ForwardIndexReaderContext> reader = new InMemoryForwardIndexReader(DataType.INT) {
+        @Override
+        public int getInt(int docId, ForwardIndexReaderContext context) {
+          return values[docId];
+        }
+      };
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < NUM_DOCS; i++) {
+        if (values[i] < upperBound) {
+          expected.add(i);
+        }
+      }
+      assertScan(predicateEvaluator, reader, expected);
+    }
+  }
+
+  @Test
+  public void testLongRangeScan() {
+    long[] values = new long[NUM_DOCS];
+    for (int i = 0; i < NUM_DOCS; i++) {
+      values[i] = RANDOM.nextLong();
+    }
+    for (long upperBound : new long[]{Long.MIN_VALUE + 1, -1L << 62, 0, 1L << 62, Long.MAX_VALUE}) {
+      PredicateEvaluator predicateEvaluator = RangePredicateEvaluatorFactory.newRawValueBasedEvaluator(
+          new RangePredicate(ExpressionContext.forIdentifier("col"), false, RangePredicate.UNBOUNDED, false,
+              Long.toString(upperBound), DataType.LONG), DataType.LONG);
+      ForwardIndexReader<ForwardIndexReaderContext> reader = new InMemoryForwardIndexReader(DataType.LONG) {
+        @Override
+        public long getLong(int docId, ForwardIndexReaderContext context) {
+          return values[docId];
+        }
+      };
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < NUM_DOCS; i++) {
+        if (values[i] < upperBound) {
+          expected.add(i);
+        }
+      }
+      assertScan(predicateEvaluator, reader, expected);
+    }
+  }
+
+  private static void assertScan(PredicateEvaluator predicateEvaluator,
+      ForwardIndexReader<ForwardIndexReaderContext> reader, List<Integer> expected) {
+    // Batch path
+    SVScanDocIdIterator iterator = new SVScanDocIdIterator(predicateEvaluator, reader, NUM_DOCS);
+    List<Integer> actual = new ArrayList<>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      actual.add(docId);
+    }
+    assertEquals(actual, expected);
+    assertEquals(iterator.getNumEntriesScanned(), NUM_DOCS);
+
+    // Scalar path
+    iterator = new SVScanDocIdIterator(predicateEvaluator, reader, NUM_DOCS);
+    actual.clear();
+    docId = iterator.advance(0);
+    while (docId != Constants.EOF) {
+      actual.add(docId);
+      docId = iterator.advance(docId + 1);
+    }
+    assertEquals(actual, expected);
+
+    // Batch path on a subset of the documents
+    MutableRoaringBitmap evenDocIds = new MutableRoaringBitmap();
+    List<Integer> expectedEven = new ArrayList<>();
+    for (int i = 0; i < NUM_DOCS; i += 2) {
+      evenDocIds.add(i);
+    }
+    for (int expectedDocId : expected) {
+      if (expectedDocId % 2 == 0) {
+        expectedEven.add(expectedDocId);
+      }
+    }
+    iterator = new SVScanDocIdIterator(predicateEvaluator, reader, NUM_DOCS);
+    actual.clear();
+    iterator.applyAnd(evenDocIds).forEach((int i) -> actual.add(i));
+    assertEquals(actual, expectedEven);
+  }
+
+  private static List<Integer> toList(int[] docIds, int length) {
+    List<Integer> list = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      list.add(docIds[i]);
+    }
+    return list;
+  }
+
+  private abstract static class InMemoryForwardIndexReader implements ForwardIndexReader<ForwardIndexReaderContext> {
+    private final DataType _storedType;
+
+    InMemoryForwardIndexReader(DataType storedType) {
+      _storedType = storedType;
+    }
+
+    @Override
+    public boolean isDictionaryEncoded() {
+      return false;
+    }
+
+    @Override
+    public boolean isSingleValue() {
+      return true;
+    }
+
+    @Override
+    public DataType getStoredType() {
+      return _storedType;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -23,16 +23,28 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalInt;
+import org.apache.pinot.common.request.context.predicate.Predicate;
 import org.apache.pinot.core.common.Operator;
 import org.apache.pinot.core.operator.blocks.FilterBlock;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.datasource.DataSourceMetadata;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.spi.data.DimensionFieldSpec;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 
@@ -175,6 +187,136 @@ public class FilterOperatorUtilsTest {
         + " should have more priority than filter " + lowerPriorty);
   }
 
+  @AfterMethod
+  public void tearDown() {
+    FilterSelectivityStatistics.getInstance().clear();
+  }
+
+  @Test
+  public void testAdaptiveIndexToScanReplacement() {
+    QueryContext queryContext = getAdaptiveQueryContext();
+
+    // Sorted index matches 1% of the docs
+    DataSource sortedDataSource = getDataSource("sortedColumn");
+    PredicateEvaluator sortedPredicateEvaluator = getPredicateEvaluator();
+    FilterSelectivityStatistics.Entry sortedStatistics =
+        FilterSelectivityStatistics.getEntry(queryContext, sortedPredicateEvaluator, sortedDataSource);
+    for (int i = 0; i < FilterSelectivityStatistics.MIN_NUM_EVALUATIONS; i++) {
+      sortedStatistics.recordIndexEvaluation(1000, 10, 1000);
+    }
+    SortedIndexBasedFilterOperator sorted = mock(SortedIndexBasedFilterOperator.class);
+    when(sorted.getStatistics()).thenReturn(sortedStatistics);
+
+    // Inverted index matches 90% of the docs with 10ns per doc, while scan costs 20ns per doc
+    DataSource invertedDataSource = getDataSource("invertedColumn");
+    PredicateEvaluator invertedPredicateEvaluator = getPredicateEvaluator();
+    FilterSelectivityStatistics.Entry invertedStatistics =
+        FilterSelectivityStatistics.getEntry(queryContext, invertedPredicateEvaluator, invertedDataSource);
+    for (int i = 0; i < FilterSelectivityStatistics.MIN_NUM_EVALUATIONS; i++) {
+      invertedStatistics.recordIndexEvaluation(1000, 900, 10_000);
+      invertedStatistics.recordScanEvaluation(100, 90, 2000);
+    }
+    InvertedIndexFilterOperator inverted = mock(InvertedIndexFilterOperator.class);
+    when(inverted.getStatistics()).thenReturn(invertedStatistics);
+    when(inverted.getDataSource()).thenReturn(invertedDataSource);
+    when(inverted.getPredicateEvaluator()).thenReturn(invertedPredicateEvaluator);
+
+    // Inverted index should be replaced with scan driven by the sorted index
+    BaseFilterOperator filterOperator =
+        FilterOperatorUtils.getAndFilterOperator(queryContext, Lists.newArrayList(inverted, sorted), NUM_DOCS);
+    assertTrue(filterOperator instanceof AndFilterOperator);
+    List<Operator> childOperators = ((AndFilterOperator) filterOperator).getChildOperators();
+    assertEquals(childOperators.size(), 2);
+    assertSame(childOperators.get(0), sorted);
+    assertTrue(childOperators.get(1) instanceof ScanBasedFilterOperator);
+
+    // Scan based filter cannot drive the AND, so the inverted index should be kept even if the scan is more selective
+    DataSource scanDataSource = getDataSource("scanColumn");
+    FilterSelectivityStatistics.Entry scanStatistics =
+        FilterSelectivityStatistics.getEntry(queryContext, getPredicateEvaluator(), scanDataSource);
+    for (int i = 0; i < FilterSelectivityStatistics.MIN_NUM_EVALUATIONS; i++) {
+      scanStatistics.recordScanEvaluation(1000, 1, 1000);
+    }
+    ScanBasedFilterOperator scan = getScanBasedFilterOperator(scanStatistics);
+    filterOperator =
+        FilterOperatorUtils.getAndFilterOperator(queryContext, Lists.newArrayList(inverted, scan), NUM_DOCS);
+    assertTrue(filterOperator instanceof AndFilterOperator);
+    childOperators = ((AndFilterOperator) filterOperator).getChildOperators();
+    assertEquals(childOperators, Lists.newArrayList(scan, inverted));
+
+    // Without adaptive filter reordering, the index should be kept
+    filterOperator =
+        FilterOperatorUtils.getAndFilterOperator(QUERY_CONTEXT, Lists.newArrayList(inverted, sorted), NUM_DOCS);
+    assertTrue(filterOperator instanceof AndFilterOperator);
+    assertEquals(((AndFilterOperator) filterOperator).getChildOperators(), Lists.newArrayList(sorted, inverted));
+  }
+
+  @Test
+  public void testAdaptiveScanReordering() {
+    QueryContext queryContext = getAdaptiveQueryContext();
+
+    // Expensive scan: 100ns per doc, filters out 50% of the docs
+    FilterSelectivityStatistics.Entry expensiveStatistics =
+        FilterSelectivityStatistics.getEntry(queryContext, getPredicateEvaluator(), getDataSource("expensiveColumn"));
+    // Cheap scan: 10ns per doc, filters out 50% of the docs
+    FilterSelectivityStatistics.Entry cheapStatistics =
+        FilterSelectivityStatistics.getEntry(queryContext, getPredicateEvaluator(), getDataSource("cheapColumn"));
+    for (int i = 0; i < FilterSelectivityStatistics.MIN_NUM_EVALUATIONS; i++) {
+      expensiveStatistics.recordScanEvaluation(100, 50, 10_000);
+      cheapStatistics.recordScanEvaluation(100, 50, 1000);
+    }
+    ScanBasedFilterOperator expensive = getScanBasedFilterOperator(expensiveStatistics);
+    ScanBasedFilterOperator cheap = getScanBasedFilterOperator(cheapStatistics);
+    ScanBasedFilterOperator withoutStatistics = getScanBasedFilterOperator(null);
+
+    // Scans should be ordered by the cost to filter out a doc, and the ones without statistics should go last
+    BaseFilterOperator filterOperator = FilterOperatorUtils.getAndFilterOperator(queryContext,
+        Lists.newArrayList(withoutStatistics, expensive, cheap), NUM_DOCS);
+    assertTrue(filterOperator instanceof AndFilterOperator);
+    assertEquals(((AndFilterOperator) filterOperator).getChildOperators(),
+        Lists.newArrayList(cheap, expensive, withoutStatistics));
+
+    // Without adaptive filter reordering, the order should be kept
+    filterOperator = FilterOperatorUtils.getAndFilterOperator(QUERY_CONTEXT,
+        Lists.newArrayList(withoutStatistics, expensive, cheap), NUM_DOCS);
+    assertTrue(filterOperator instanceof AndFilterOperator);
+    assertEquals(((AndFilterOperator) filterOperator).getChildOperators(),
+        Lists.newArrayList(withoutStatistics, expensive, cheap));
+  }
+
+  private static QueryContext getAdaptiveQueryContext() {
+    QueryContext queryContext = mock(QueryContext.class);
+    when(queryContext.getTableName()).thenReturn("testTable_OFFLINE");
+    when(queryContext.getQueryOptions()).thenReturn(Map.of(QueryOptionKey.ADAPTIVE_FILTER_REORDERING, "true"));
+    return queryContext;
+  }
+
+  private static DataSource getDataSource(String column) {
+    DataSourceMetadata dataSourceMetadata = mock(DataSourceMetadata.class);
+    when(dataSourceMetadata.getFieldSpec()).thenReturn(new DimensionFieldSpec(column, FieldSpec.DataType.INT, true));
+    when(dataSourceMetadata.isSingleValue()).thenReturn(true);
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getDataSourceMetadata()).thenReturn(dataSourceMetadata);
+    doReturn(mock(ForwardIndexReader.class)).when(dataSource).getForwardIndex();
+    return dataSource;
+  }
+
+  private static PredicateEvaluator getPredicateEvaluator() {
+    PredicateEvaluator predicateEvaluator = mock(PredicateEvaluator.class);
+    when(predicateEvaluator.getPredicateType()).thenReturn(Predicate.Type.EQ);
+    return predicateEvaluator;
+  }
+
+  private static ScanBasedFilterOperator getScanBasedFilterOperator(
+      FilterSelectivityStatistics.Entry statistics) {
+    DataSourceMetadata dataSourceMetadata = mock(DataSourceMetadata.class);
+    when(dataSourceMetadata.isSingleValue()).thenReturn(true);
+    ScanBasedFilterOperator scanBasedFilterOperator = mock(ScanBasedFilterOperator.class);
+    when(scanBasedFilterOperator.getStatistics()).thenReturn(statistics);
+    when(scanBasedFilterOperator.getDataSourceMetadata()).thenReturn(dataSourceMetadata);
+    return scanBasedFilterOperator;
+  }
+
   private void assertOrder(BaseFilterOperator first, BaseFilterOperator second) {
     BaseFilterOperator filterOperator =
         FilterOperatorUtils.getAndFilterOperator(QUERY_CONTEXT, Lists.newArrayList(second, first), NUM_DOCS);
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.datasource.DataSourceMetadata;
+import org.apache.pinot.spi.data.DimensionFieldSpec;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class FilterSelectivityStatisticsTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+  private static final String COLUMN = "testColumn";
+
+  @AfterMethod
+  public void tearDown() {
+    FilterSelectivityStatistics.getInstance().clear();
+  }
+
+  private static QueryContext getQueryContext(boolean adaptive) {
+    QueryContext queryContext = mock(QueryContext.class);
+    when(queryContext.getTableName()).thenReturn(TABLE_NAME);
+    when(queryContext.getQueryOptions()).thenReturn(
+        Collections.singletonMap(QueryOptionKey.ADAPTIVE_FILTER_REORDERING, Boolean.toString(adaptive)));
+    return queryContext;
+  }
+
+  private static DataSource getDataSource() {
+    DataSourceMetadata dataSourceMetadata = mock(DataSourceMetadata.class);
+    when(dataSourceMetadata.getFieldSpec()).thenReturn(new DimensionFieldSpec(COLUMN, FieldSpec.DataType.INT, true));
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getDataSourceMetadata()).thenReturn(dataSourceMetadata);
+    return dataSource;
+  }
+
+  private static PredicateEvaluator getPredicateEvaluator(Predicate.Type predicateType) {
+    PredicateEvaluator predicateEvaluator = mock(PredicateEvaluator.class);
+    when(predicateEvaluator.getPredicateType()).thenReturn(predicateType);
+    return predicateEvaluator;
+  }
+
+  @Test
+  public void testGetEntry() {
+    DataSource dataSource = getDataSource();
+    PredicateEvaluator eqPredicateEvaluator = getPredicateEvaluator(Predicate.Type.EQ);
+    assertNull(FilterSelectivityStatistics.getEntry(getQueryContext(false), eqPredicateEvaluator, dataSource));
+
+    QueryContext queryContext = getQueryContext(true);
+    FilterSelectivityStatistics.Entry entry =
+        FilterSelectivityStatistics.getEntry(queryContext, eqPredicateEvaluator, dataSource);
+    assertNotNull(entry);
+    assertSame(FilterSelectivityStatistics.getEntry(queryContext, eqPredicateEvaluator, dataSource), entry);
+    FilterSelectivityStatistics.Entry rangeEntry =
+        FilterSelectivityStatistics.getEntry(queryContext, getPredicateEvaluator(Predicate.Type.RANGE), dataSource);
+    assertNotNull(rangeEntry);
+    assertTrue(rangeEntry != entry);
+    assertEquals(FilterSelectivityStatistics.getInstance().getStatistics(TABLE_NAME).size(), 2);
+    assertTrue(FilterSelectivityStatistics.getInstance().getStatistics("otherTable_OFFLINE").isEmpty());
+  }
+
+  @Test
+  public void testEstimates() {
+    FilterSelectivityStatistics.Entry entry = FilterSelectivityStatistics.getEntry(getQueryContext(true),
+        getPredicateEvaluator(Predicate.Type.EQ), getDataSource());
+    assertNotNull(entry);
+
+    // Estimates are not available before the minimum number of evaluations
+    for (int i = 0; i < FilterSelectivityStatistics.MIN_NUM_EVALUATIONS - 1; i++) {
+      entry.recordScanEvaluation(100, 50, 1000);
+    }
+    assertTrue(Double.isNaN(entry.getSelectivity()));
+    assertTrue(Double.isNaN(entry.getScanCostNsPerDoc()));
+    assertTrue(Double.isNaN(entry.getIndexCostNsPerDoc()));
+    entry.recordScanEvaluation(100, 50, 1000);
+    assertEquals(entry.getSelectivity(), 0.5);
+    assertEquals(entry.getScanCostNsPerDoc(), 10.0);
+    assertEquals(FilterSelectivityStatistics.getInstance().getAverageScanCostNsPerDoc(), 10.0);
+
+    // Selectivity from index evaluation should be preferred
+    for (int i = 0; i < FilterSelectivityStatistics.MIN_NUM_EVALUATIONS; i++) {
+      entry.recordIndexEvaluation(1000, 100, 2000);
+    }
+    assertEquals(entry.getSelectivity(), 0.1);
+    assertEquals(entry.getIndexCostNsPerDoc(), 2.0);
+
+    List<Map<String, Object>> statistics = FilterSelectivityStatistics.getInstance().getStatistics(null);
+    assertEquals(statistics.size(), 1);
+    Map<String, Object> entryStatistics = statistics.get(0);
+    assertEquals(entryStatistics.get("tableName"), TABLE_NAME);
+    assertEquals(entryStatistics.get("column"), COLUMN);
+    assertEquals(entryStatistics.get("predicateType"), Predicate.Type.EQ);
+    assertEquals(entryStatistics.get("numIndexEvaluations"), (long) FilterSelectivityStatistics.MIN_NUM_EVALUATIONS);
+    assertEquals(entryStatistics.get("selectivity"), 0.1);
+  }
+
+  @Test
+  public void testMaxNumEntriesAndRemoveTable() {
+    // Return a different column for each call to create a new entry each time
+    DataSourceMetadata dataSourceMetadata = mock(DataSourceMetadata.class);
+    int[] columnId = new int[1];
+    when(dataSourceMetadata.getFieldSpec()).thenAnswer(
+        invocation -> new DimensionFieldSpec("column" + columnId[0]++, FieldSpec.DataType.INT, true));
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getDataSourceMetadata()).thenReturn(dataSourceMetadata);
+    QueryContext queryContext = getQueryContext(true);
+    PredicateEvaluator predicateEvaluator = getPredicateEvaluator(Predicate.Type.EQ);
+    for (int i = 0; i < FilterSelectivityStatistics.MAX_NUM_ENTRIES; i++) {
+      assertNotNull(FilterSelectivityStatistics.getEntry(queryContext, predicateEvaluator, dataSource));
+    }
+
+    // New predicates should not be tracked after reaching the max number of entries
+    assertNull(FilterSelectivityStatistics.getEntry(queryContext, predicateEvaluator, dataSource));
+
+    // Removing the table should make room for new entries
+    FilterSelectivityStatistics.getInstance().removeTable("otherTable_OFFLINE");
+    assertEquals(FilterSelectivityStatistics.getInstance().getStatistics(null).size(),
+        FilterSelectivityStatistics.MAX_NUM_ENTRIES);
+    FilterSelectivityStatistics.getInstance().removeTable(TABLE_NAME);
+    assertTrue(FilterSelectivityStatistics.getInstance().getStatistics(null).isEmpty());
+    assertNotNull(FilterSelectivityStatistics.getEntry(queryContext, predicateEvaluator, dataSource));
+  }
+}
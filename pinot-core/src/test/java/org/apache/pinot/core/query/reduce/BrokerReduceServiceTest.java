@@ -20,6 +20,7 @@ package org.apache.pinot.core.query.reduce;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.pinot.common.datatable.DataTable;
@@ -41,6 +42,8 @@ import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.mock;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 
 public class BrokerReduceServiceTest {
@@ -79,4 +82,71 @@ public class BrokerReduceServiceTest {
     assertEquals(exceptions.size(), 1);
     assertEquals(exceptions.get(0).getErrorCode(), QueryException.BROKER_TIMEOUT_ERROR_CODE);
   }
+
+  @Test
+  public void testIncrementalReduce()
+      throws IOException {
+    BrokerReduceService brokerReduceService =
+        new BrokerReduceService(new PinotConfiguration(Map.of(Broker.CONFIG_OF_MAX_REDUCE_THREADS_PER_QUERY, 2)));
+    BrokerRequest brokerRequest = CalciteSqlCompiler.compileToBrokerRequest(
+        "SET incrementalReduce = true; SELECT col1, SUM(col2) FROM testTable GROUP BY col1 ORDER BY col1 LIMIT 50");
+    assertNull(brokerReduceService.getIncrementalReducer(
+        CalciteSqlCompiler.compileToBrokerRequest("SELECT col1, SUM(col2) FROM testTable GROUP BY col1"), 10_000L));
+    assertNull(brokerReduceService.getIncrementalReducer(
+        CalciteSqlCompiler.compileToBrokerRequest("SET incrementalReduce = true; SELECT * FROM testTable"), 10_000L));
+    IncrementalGroupByDataTableReducer incrementalReducer =
+        brokerReduceService.getIncrementalReducer(brokerRequest, 10_000L);
+    assertNotNull(incrementalReducer);
+
+    DataSchema dataSchema = new DataSchema(new String[]{"col1", "sum(col2)"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.DOUBLE});
+    Map<ServerRoutingInstance, DataTable> dataTableMap = new LinkedHashMap<>();
+    int numInstances = 10;
+    for (int i = 0; i < numInstances; i++) {
+      DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(dataSchema);
+      for (int j = 0; j < 100; j++) {
+        dataTableBuilder.startRow();
+        dataTableBuilder.setColumn(0, i * 10 + j);
+        dataTableBuilder.setColumn(1, (double) j);
+        dataTableBuilder.finishRow();
+      }
+      dataTableMap.put(new ServerRoutingInstance("localhost", i, TableType.OFFLINE), dataTableBuilder.build());
+    }
+    // Data table with conflicting data schema should be dropped
+    DataTableBuilder dataTableBuilder = DataTableBuilderFactory.getDataTableBuilder(
+        new DataSchema(new String[]{"col1", "sum(col2)"}, new ColumnDataType[]{ColumnDataType.LONG,
+            ColumnDataType.DOUBLE}));
+    dataTableBuilder.startRow();
+    dataTableBuilder.setColumn(0, 0L);
+    dataTableBuilder.setColumn(1, 100.0);
+    dataTableBuilder.finishRow();
+    dataTableMap.put(new ServerRoutingInstance("localhost", numInstances, TableType.OFFLINE),
+        dataTableBuilder.build());
+    BrokerResponseNative expectedResponse =
+        brokerReduceService.reduceOnDataTable(brokerRequest, brokerRequest, new LinkedHashMap<>(dataTableMap), 10_000L,
+            mock(BrokerMetrics.class));
+
+    // Hand half of the data tables to the incremental reducer, and leave the rest to the reduce phase
+    for (Map.Entry<ServerRoutingInstance, DataTable> entry : dataTableMap.entrySet()) {
+      if (entry.getKey().getPort() % 2 == 0) {
+        incrementalReducer.onDataTable(entry.getKey(), entry.getValue());
+      }
+    }
+    BrokerResponseNative brokerResponse =
+        brokerReduceService.reduceOnDataTable(brokerRequest, brokerRequest, dataTableMap, 10_000L,
+            mock(BrokerMetrics.class), incrementalReducer);
+    brokerReduceService.shutDown();
+
+    assertEquals(brokerResponse.getExceptions().size(), 1);
+    assertEquals(brokerResponse.getExceptions().get(0).getErrorCode(), QueryException.MERGE_RESPONSE_ERROR_CODE);
+    List<Object[]> rows = brokerResponse.getResultTable().getRows();
+    List<Object[]> expectedRows = expectedResponse.getResultTable().getRows();
+    assertEquals(rows.size(), 50);
+    assertEquals(rows.size(), expectedRows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      assertEquals(rows.get(i), expectedRows.get(i));
+    }
+    // Group 10 is from the first 2 servers
+    assertEquals(rows.get(10), new Object[]{10, 10.0});
+  }
 }
@@ -93,6 +93,7 @@ abstract class BaseStarTreeV2Test<R, A> {
 
   private static final int NUM_SEGMENT_RECORDS = 100_000;
   private static final int MAX_LEAF_RECORDS = RANDOM.nextInt(100) + 1;
+  private static final int MAX_RECORDS_PER_SORT_RUN = 10_000;
   // Using column names with '__' to make sure regular table columns with '__' in the name aren't wrongly interpreted
   // as AggregationFunctionColumnPair
   private static final String DIMENSION1 = "d1__COLUMN_NAME";
@@ -178,11 +179,13 @@ abstract class BaseStarTreeV2Test<R, A> {
         Collections.singletonList(new StarTreeAggregationConfig(METRIC, _valueAggregator.getAggregationType().getName(),
             getCompressionCodec(), true, getIndexVersion(), null, null)), MAX_LEAF_RECORDS);
     File indexDir = new File(TEMP_DIR, SEGMENT_NAME);
-    // Randomly build star-tree using on-heap or off-heap mode
-    MultipleTreesBuilder.BuildMode buildMode =
-        RANDOM.nextBoolean() ? MultipleTreesBuilder.BuildMode.ON_HEAP : MultipleTreesBuilder.BuildMode.OFF_HEAP;
+    // Randomly build star-tree using on-heap, off-heap or external sort mode
+    MultipleTreesBuilder.BuildMode[] buildModes = MultipleTreesBuilder.BuildMode.values();
+    MultipleTreesBuilder.BuildMode buildMode = buildModes[RANDOM.nextInt(buildModes.length)];
     try (MultipleTreesBuilder builder = new MultipleTreesBuilder(Collections.singletonList(starTreeIndexConfig), false,
         indexDir, buildMode)) {
+      // Use small sort runs to test the merge of the spilled runs
+      builder.setMaxRecordsPerSortRun(MAX_RECORDS_PER_SORT_RUN);
       builder.build();
     }
 
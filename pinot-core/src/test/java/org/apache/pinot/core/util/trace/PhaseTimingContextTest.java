@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.util.trace;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerQueryPhase;
+import org.apache.pinot.core.operator.DocIdSetOperator;
+import org.apache.pinot.core.operator.InstanceResponseOperator;
+import org.apache.pinot.core.operator.ProjectionOperator;
+import org.apache.pinot.core.operator.combine.AggregationCombineOperator;
+import org.apache.pinot.core.operator.filter.MatchAllFilterOperator;
+import org.apache.pinot.core.operator.query.AggregationOperator;
+import org.apache.pinot.core.operator.transform.TransformOperator;
+import org.apache.pinot.spi.trace.InvocationScope;
+import org.apache.pinot.spi.trace.NoOpRecording;
+import org.apache.pinot.spi.trace.Tracing;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class PhaseTimingContextTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+  private static final long SLEEP_TIME_MS = 10;
+  private static final long SLEEP_TIME_NS = TimeUnit.MILLISECONDS.toNanos(SLEEP_TIME_MS);
+
+  @Test
+  public void testPhaseTimings()
+      throws Exception {
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    PhaseTimingContext.register();
+    try (InvocationScope ignored = Tracing.getTracer().createScope(InstanceResponseOperator.class)) {
+      // Not mapped to any phase
+      sleep();
+      try (InvocationScope ignored1 = Tracing.getTracer().createScope(AggregationCombineOperator.class)) {
+        sleep();
+        Future<?> future = executorService.submit(new TraceRunnable() {
+          @Override
+          public void runJob() {
+            try (InvocationScope ignored2 = Tracing.getTracer().createScope(AggregationOperator.class)) {
+              sleep();
+              try (InvocationScope ignored3 = Tracing.getTracer().createScope(TransformOperator.class)) {
+                try (InvocationScope ignored4 = Tracing.getTracer().createScope(ProjectionOperator.class)) {
+                  sleep();
+                  try (InvocationScope ignored5 = Tracing.getTracer().createScope(DocIdSetOperator.class)) {
+                    sleep();
+                    try (InvocationScope ignored6 = Tracing.getTracer().createScope(MatchAllFilterOperator.class)) {
+                      sleep();
+                    }
+                  }
+                }
+              }
+            }
+            // Merging the segment results in the combine phase
+            sleep();
+          }
+        });
+        future.get();
+      }
+    }
+    ServerMetrics serverMetrics = mock(ServerMetrics.class);
+    Map<ServerQueryPhase, Long> phaseTimesNs = new EnumMap<>(ServerQueryPhase.class);
+    doAnswer(invocation -> {
+      phaseTimesNs.put(invocation.getArgument(1), invocation.getArgument(2));
+      return null;
+    }).when(serverMetrics).addPhaseTiming(eq(TABLE_NAME), any(ServerQueryPhase.class), anyLong());
+    PhaseTimingContext.unregister(serverMetrics, TABLE_NAME);
+    executorService.shutdown();
+
+    assertEquals(phaseTimesNs.size(), 4);
+    // Doc id set operator and filter operator
+    assertTrue(phaseTimesNs.get(ServerQueryPhase.FILTER_EVALUATION) >= 2 * SLEEP_TIME_NS);
+    assertTrue(phaseTimesNs.get(ServerQueryPhase.PROJECTION) >= SLEEP_TIME_NS);
+    assertTrue(phaseTimesNs.get(ServerQueryPhase.AGGREGATION) >= SLEEP_TIME_NS);
+    // Combine operator on the query thread and merging on the worker thread
+    assertTrue(phaseTimesNs.get(ServerQueryPhase.COMBINE) >= 2 * SLEEP_TIME_NS);
+
+    // Nothing should be timed after the query is un-registered
+    assertSame(Tracing.getTracer().createScope(AggregationOperator.class), NoOpRecording.INSTANCE);
+    serverMetrics = mock(ServerMetrics.class);
+    PhaseTimingContext.unregister(serverMetrics, TABLE_NAME);
+    verifyNoInteractions(serverMetrics);
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(SLEEP_TIME_MS);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
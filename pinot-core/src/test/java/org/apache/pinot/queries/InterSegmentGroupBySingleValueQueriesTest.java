@@ -54,6 +54,16 @@ public class InterSegmentGroupBySingleValueQueriesTest extends BaseSingleValueQu
         expectedNumEntriesScannedPostFilter, 120000L, expectedResultTable);
   }
 
+  @Test(dataProvider = "groupByOrderByDataProvider")
+  public void testGroupByOrderByWithPartitionedCombine(String query, long expectedNumEntriesScannedPostFilter,
+      ResultTable expectedResultTable) {
+    QueriesTestUtils.testInterSegmentsResult(getBrokerResponse("SET numGroupByCombinePartitions = 4; " + query),
+        120000L, 0L, expectedNumEntriesScannedPostFilter, 120000L, expectedResultTable);
+    QueriesTestUtils.testInterSegmentsResult(
+        getBrokerResponse("SET numGroupByCombinePartitions = 16; " + query, TRIM_ENABLED_PLAN_MAKER), 120000L, 0L,
+        expectedNumEntriesScannedPostFilter, 120000L, expectedResultTable);
+  }
+
   /**
    * Provides various combinations of order by in ResultTable.
    * In order to calculate the expected results, the results from a group by were taken, and then ordered accordingly.
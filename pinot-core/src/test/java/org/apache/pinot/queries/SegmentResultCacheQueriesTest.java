@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.queries;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.apache.pinot.spi.utils.ReadMode;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+/**
+ * Queries test for the segment result cache, which should return the same results as executing the segments.
+ */
+public class SegmentResultCacheQueriesTest extends BaseQueriesTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "SegmentResultCacheQueriesTest");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME_PREFIX = "testSegment_";
+  private static final int NUM_RECORDS = 1000;
+  private static final String INT_COLUMN = "intColumn";
+  private static final String LONG_COLUMN = "longColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+      .addSingleValueDimension(INT_COLUMN, DataType.INT)
+      .addSingleValueDimension(LONG_COLUMN, DataType.LONG)
+      .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+      .build();
+  private static final TableConfig TABLE_CONFIG =
+      new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME).build();
+
+  private IndexSegment _indexSegment;
+  private List<IndexSegment> _indexSegments;
+
+  @Override
+  protected String getFilter() {
+    return "";
+  }
+
+  @Override
+  protected IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
+  @Override
+  protected List<IndexSegment> getIndexSegments() {
+    return _indexSegments;
+  }
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    ImmutableSegment segment0 = createSegment(0);
+    ImmutableSegment segment1 = createSegment(1);
+    _indexSegment = segment0;
+    _indexSegments = Arrays.asList(segment0, segment1);
+  }
+
+  private ImmutableSegment createSegment(int segmentId)
+      throws Exception {
+    List<GenericRow> records = new ArrayList<>(NUM_RECORDS);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      GenericRow record = new GenericRow();
+      record.putValue(INT_COLUMN, i % 17 + segmentId);
+      record.putValue(LONG_COLUMN, (long) i * (segmentId + 1));
+      record.putValue(STRING_COLUMN, "value_" + (i % 23));
+      records.add(record);
+    }
+    String segmentName = SEGMENT_NAME_PREFIX + segmentId;
+    SegmentGeneratorConfig segmentGeneratorConfig = new SegmentGeneratorConfig(TABLE_CONFIG, SCHEMA);
+    segmentGeneratorConfig.setTableName(RAW_TABLE_NAME);
+    segmentGeneratorConfig.setSegmentName(segmentName);
+    segmentGeneratorConfig.setOutDir(INDEX_DIR.getPath());
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(segmentGeneratorConfig, new GenericRowRecordReader(records));
+    driver.build();
+    return ImmutableSegmentLoader.load(new File(INDEX_DIR, segmentName), ReadMode.mmap);
+  }
+
+  @Test
+  public void testSegmentResultCache() {
+    InstancePlanMakerImplV2 planMaker = new InstancePlanMakerImplV2();
+    SegmentResultCache segmentResultCache = new SegmentResultCache(10 * 1024 * 1024);
+    planMaker.setSegmentResultCache(segmentResultCache);
+
+    String[] queries = new String[]{
+        "SELECT COUNT(*), SUM(longColumn), MAX(intColumn), DISTINCTCOUNT(stringColumn), AVG(longColumn) "
+            + "FROM testTable WHERE intColumn > 5",
+        "SELECT stringColumn, COUNT(*), SUM(longColumn), DISTINCTCOUNT(intColumn) FROM testTable "
+            + "GROUP BY stringColumn ORDER BY stringColumn LIMIT 100",
+        "SELECT intColumn, stringColumn, MIN(longColumn), PERCENTILE(longColumn, 90) FROM testTable "
+            + "WHERE longColumn < 1500 GROUP BY intColumn, stringColumn ORDER BY intColumn, stringColumn LIMIT 1000"
+    };
+    int numCachedResults = 0;
+    for (String query : queries) {
+      BrokerResponseNative expectedResponse = getBrokerResponse(query);
+
+      // The first execution caches the results for both segments
+      BrokerResponseNative response = getBrokerResponse(query, planMaker);
+      numCachedResults += 2;
+      assertEquals(segmentResultCache.size(), numCachedResults);
+      assertSameResults(response, expectedResponse);
+
+      // The second execution serves the results from the cache
+      response = getBrokerResponse(query, planMaker);
+      assertEquals(segmentResultCache.size(), numCachedResults);
+      assertSameResults(response, expectedResponse);
+
+      // The query option can bypass the cache
+      response = getBrokerResponse("SET " + QueryOptionKey.USE_SEGMENT_RESULT_CACHE + "=false; " + query, planMaker);
+      assertEquals(segmentResultCache.size(), numCachedResults);
+      assertSameResults(response, expectedResponse);
+    }
+
+    // Selection queries are not cached
+    getBrokerResponse("SELECT * FROM testTable LIMIT 10", planMaker);
+    assertEquals(segmentResultCache.size(), numCachedResults);
+
+    // Invalidating the segment drops all the cached results for the segment
+    segmentResultCache.invalidate(RAW_TABLE_NAME, SEGMENT_NAME_PREFIX + 0);
+    assertEquals(segmentResultCache.size(), numCachedResults / 2);
+    BrokerResponseNative response = getBrokerResponse(queries[0], planMaker);
+    assertEquals(segmentResultCache.size(), numCachedResults / 2 + 1);
+    assertSameResults(response, getBrokerResponse(queries[0]));
+  }
+
+  private static void assertSameResults(BrokerResponseNative actual, BrokerResponseNative expected) {
+    assertEquals(actual.getExceptions(), expected.getExceptions());
+    assertEquals(actual.getNumDocsScanned(), expected.getNumDocsScanned());
+    assertEquals(actual.getNumSegmentsMatched(), expected.getNumSegmentsMatched());
+    assertEquals(actual.getResultTable().getDataSchema(), expected.getResultTable().getDataSchema());
+    List<Object[]> actualRows = actual.getResultTable().getRows();
+    List<Object[]> expectedRows = expected.getResultTable().getRows();
+    assertEquals(actualRows.size(), expectedRows.size());
+    for (int i = 0; i < actualRows.size(); i++) {
+      assertEquals(actualRows.get(i), expectedRows.get(i));
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    for (IndexSegment indexSegment : _indexSegments) {
+      indexSegment.destroy();
+    }
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
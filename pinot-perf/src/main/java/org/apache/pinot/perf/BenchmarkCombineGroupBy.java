@@ -34,7 +34,10 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.core.data.table.ConcurrentIndexedTable;
 import org.apache.pinot.core.data.table.IndexedTable;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.PartitionedIndexedTable;
 import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.data.table.SimpleIndexedTable;
 import org.apache.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.core.query.request.context.utils.QueryContextConverterUtils;
@@ -61,6 +64,7 @@ public class BenchmarkCombineGroupBy {
   private static final int NUM_RECORDS_PER_SEGMENT = 100_000;
   private static final int CARDINALITY_D1 = 500;
   private static final int CARDINALITY_D2 = 500;
+  private static final int NUM_PARTITIONS = 16;
   private static final Random RANDOM = new Random();
 
   private QueryContext _queryContext;
@@ -145,6 +149,63 @@ public class BenchmarkCombineGroupBy {
     concurrentIndexedTable.finish(false);
   }
 
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void partitionedIndexedTableForCombineGroupBy()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    int trimSize = GroupByUtils.getTableCapacity(_queryContext.getLimit());
+
+    // make 1 set of partitions per segment, which is only accessed by the thread processing the segment
+    IndexedTable[][] segmentPartitions = new IndexedTable[NUM_SEGMENTS][NUM_PARTITIONS];
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      for (int p = 0; p < NUM_PARTITIONS; p++) {
+        segmentPartitions[i][p] = new SimpleIndexedTable(_dataSchema, _queryContext, trimSize, trimSize,
+            InstancePlanMakerImplV2.DEFAULT_GROUPBY_TRIM_THRESHOLD);
+      }
+    }
+
+    List<Callable<Void>> innerSegmentCallables = new ArrayList<>(NUM_SEGMENTS);
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      IndexedTable[] partitions = segmentPartitions[i];
+      Callable<Void> callable = () -> {
+        for (int r = 0; r < NUM_RECORDS_PER_SEGMENT; r++) {
+          Record record = getRecord();
+          Key key = new Key(new Object[]{record.getValues()[0], record.getValues()[1]});
+          partitions[PartitionedIndexedTable.getPartitionId(key, NUM_PARTITIONS)].upsert(key, record);
+        }
+        return null;
+      };
+      innerSegmentCallables.add(callable);
+    }
+    List<Future<Void>> futures = _executorService.invokeAll(innerSegmentCallables);
+    for (Future<Void> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+
+    // merge the partitions in parallel
+    IndexedTable[] mergedPartitions = new IndexedTable[NUM_PARTITIONS];
+    List<Callable<Void>> mergeCallables = new ArrayList<>(NUM_PARTITIONS);
+    for (int p = 0; p < NUM_PARTITIONS; p++) {
+      int partitionId = p;
+      mergeCallables.add(() -> {
+        IndexedTable mergedPartition = segmentPartitions[0][partitionId];
+        for (int i = 1; i < NUM_SEGMENTS; i++) {
+          PartitionedIndexedTable.mergePartition(mergedPartition, segmentPartitions[i][partitionId]);
+        }
+        mergedPartitions[partitionId] = mergedPartition;
+        return null;
+      });
+    }
+    futures = _executorService.invokeAll(mergeCallables);
+    for (Future<Void> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+
+    new PartitionedIndexedTable(_dataSchema, _queryContext, trimSize, trimSize,
+        InstancePlanMakerImplV2.DEFAULT_GROUPBY_TRIM_THRESHOLD, mergedPartitions).finish(false);
+  }
+
   public static void main(String[] args)
       throws Exception {
     ChainedOptionsBuilder opt =
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.query.runtime.operator.join.JoinHashTable;
+import org.apache.pinot.query.runtime.operator.join.JoinHashTableFactory;
+import org.apache.pinot.query.runtime.operator.join.ObjectKeyJoinHashTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Compares the build and probe cost of the hash join build side tables on a single INT/LONG join key:
+ * <ul>
+ *   <li>hashMap: the legacy {@code HashMap<Object, ArrayList<Object[]>>}</li>
+ *   <li>objectKeyJoinHashTable: the generic {@link ObjectKeyJoinHashTable}</li>
+ *   <li>primitiveKeyJoinHashTable: the primitive key table returned by {@link JoinHashTableFactory}</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@State(Scope.Benchmark)
+public class BenchmarkJoinHashTable {
+  private static final int NUM_BUILD_ROWS = 1_000_000;
+  private static final int NUM_PROBE_ROWS = 1_000_000;
+
+  @Param({"INT", "LONG"})
+  public ColumnDataType _keyType;
+
+  @Param({"1000", "100000", "1000000"})
+  public int _cardinality;
+
+  private List<Object[]> _buildRows;
+  private List<Object[]> _probeRows;
+
+  public static void main(String[] args)
+      throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkJoinHashTable.class.getSimpleName())
+        .addProfiler(GCProfiler.class).build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    _buildRows = new ArrayList<>(NUM_BUILD_ROWS);
+    for (int i = 0; i < NUM_BUILD_ROWS; i++) {
+      _buildRows.add(new Object[]{getKey(random.nextInt(_cardinality)), "build_" + i});
+    }
+    // Half of the probe keys match
+    _probeRows = new ArrayList<>(NUM_PROBE_ROWS);
+    for (int i = 0; i < NUM_PROBE_ROWS; i++) {
+      _probeRows.add(new Object[]{getKey(random.nextInt(2 * _cardinality)), "probe_" + i});
+    }
+  }
+
+  private Object getKey(int value) {
+    return _keyType == ColumnDataType.INT ? (Object) value : (Object) (long) value;
+  }
+
+  @Benchmark
+  public void hashMap(Blackhole blackhole) {
+    Map<Object, ArrayList<Object[]>> hashTable = new HashMap<>();
+    for (Object[] row : _buildRows) {
+      hashTable.computeIfAbsent(row[0], k -> new ArrayList<>()).add(row);
+    }
+    for (Object[] row : _probeRows) {
+      List<Object[]> rightRows = hashTable.get(row[0]);
+      if (rightRows != null) {
+        for (Object[] rightRow : rightRows) {
+          blackhole.consume(rightRow);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void objectKeyJoinHashTable(Blackhole blackhole) {
+    buildAndProbe(new ObjectKeyJoinHashTable(), blackhole);
+  }
+
+  @Benchmark
+  public void primitiveKeyJoinHashTable(Blackhole blackhole) {
+    buildAndProbe(JoinHashTableFactory.getJoinHashTable(new ColumnDataType[]{_keyType}), blackhole);
+  }
+
+  private void buildAndProbe(JoinHashTable hashTable, Blackhole blackhole) {
+    for (Object[] row : _buildRows) {
+      hashTable.add(row[0], row);
+    }
+    hashTable.finish();
+    for (Object[] row : _probeRows) {
+      long range = hashTable.lookup(row[0]);
+      if (range != JoinHashTable.NO_MATCH) {
+        int end = JoinHashTable.getEnd(range);
+        for (int i = JoinHashTable.getStart(range); i < end; i++) {
+          blackhole.consume(hashTable.getRow(i));
+        }
+      }
+    }
+  }
+}
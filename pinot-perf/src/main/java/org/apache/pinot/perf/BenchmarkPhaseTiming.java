@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.operator.DocIdSetOperator;
+import org.apache.pinot.core.operator.ProjectionOperator;
+import org.apache.pinot.core.operator.filter.MatchAllFilterOperator;
+import org.apache.pinot.core.operator.query.AggregationOperator;
+import org.apache.pinot.core.util.trace.PhaseTimingContext;
+import org.apache.pinot.spi.trace.InvocationScope;
+import org.apache.pinot.spi.trace.Tracing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Measures the overhead of the operator phase timing on the operator invocations. Each invocation simulates the
+ * {@code nextBlock()} calls on a segment for one block (aggregation -> projection -> doc id set -> filter), with some
+ * work proportional to the block size in the innermost operator. Compare the results with {@code phaseTiming=false}
+ * (no-op scopes) to get the overhead per block.
+ */
+@State(Scope.Thread)
+public class BenchmarkPhaseTiming {
+  private static final ServerMetrics SERVER_METRICS = ServerMetrics.get();
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+
+  @Param({"false", "true"})
+  private boolean _phaseTiming;
+
+  @Param({"0", "100", "10000"})
+  private int _numValuesPerBlock;
+
+  private long[] _values;
+
+  public static void main(String[] args)
+      throws RunnerException {
+    Options opt = new OptionsBuilder().include(BenchmarkPhaseTiming.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5)).warmupIterations(3).measurementTime(TimeValue.seconds(5))
+        .measurementIterations(5).forks(1).build();
+
+    new Runner(opt).run();
+  }
+
+  @Setup
+  public void setUp() {
+    _values = new long[_numValuesPerBlock];
+    for (int i = 0; i < _numValuesPerBlock; i++) {
+      _values[i] = i;
+    }
+    if (_phaseTiming) {
+      PhaseTimingContext.register();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (_phaseTiming) {
+      PhaseTimingContext.unregister(SERVER_METRICS, TABLE_NAME);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void benchmarkNextBlock(Blackhole bh) {
+    try (InvocationScope ignored = Tracing.getTracer().createScope(AggregationOperator.class)) {
+      try (InvocationScope ignored1 = Tracing.getTracer().createScope(ProjectionOperator.class)) {
+        try (InvocationScope ignored2 = Tracing.getTracer().createScope(DocIdSetOperator.class)) {
+          try (InvocationScope ignored3 = Tracing.getTracer().createScope(MatchAllFilterOperator.class)) {
+            long sum = 0;
+            for (long value : _values) {
+              sum += value;
+            }
+            bh.consume(sum);
+          }
+        }
+      }
+    }
+  }
+}
@@ -27,6 +27,8 @@ import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.request.context.predicate.Predicate;
 import org.apache.pinot.core.operator.dociditerators.SVScanDocIdIterator;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.operator.filter.predicate.traits.IntRange;
+import org.apache.pinot.segment.spi.Constants;
 import org.apache.pinot.segment.local.io.writer.impl.FixedBitSVForwardIndexWriter;
 import org.apache.pinot.segment.local.segment.index.readers.forward.FixedBitSVForwardIndexReaderV2;
 import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
@@ -76,7 +78,11 @@ public class BenchmarkScanDocIdIterators {
   @Param({"UNIFORM(0,10000000)"})
   String _distribution;
 
-  private DummyPredicateEvaluator _predicateEvaluator;
+  // RANGE exposes the range bounds so that the batch path can evaluate it without branching
+  @Param({"DUMMY", "RANGE"})
+  String _predicateType;
+
+  private PredicateEvaluator _predicateEvaluator;
   private FixedBitSVForwardIndexReaderV2 _readerV2;
   private ImmutableRoaringBitmap _bitmap;
   private PinotDataBuffer _dataBuffer;
@@ -110,7 +116,9 @@ public class BenchmarkScanDocIdIterators {
       }
     }
     _bitmap = writer.get();
-    _predicateEvaluator = new DummyPredicateEvaluator(sorted[_thresholdQuantile * sorted.length / 10]);
+    int threshold = sorted[_thresholdQuantile * sorted.length / 10];
+    _predicateEvaluator = "RANGE".equals(_predicateType) ? new DummyRangePredicateEvaluator(threshold)
+        : new DummyPredicateEvaluator(threshold);
     _readerV2 = new FixedBitSVForwardIndexReaderV2(_dataBuffer, values.length, numBits);
   }
 
@@ -126,6 +134,30 @@ public class BenchmarkScanDocIdIterators {
     return new SVScanDocIdIterator(_predicateEvaluator, _readerV2, _numDocs).applyAnd(_bitmap);
   }
 
+  @Benchmark
+  public int benchmarkScalarScan() {
+    // advance() evaluates the predicate one document at a time
+    SVScanDocIdIterator iterator = new SVScanDocIdIterator(_predicateEvaluator, _readerV2, _numDocs);
+    int numMatchingDocs = 0;
+    int docId = iterator.advance(0);
+    while (docId != Constants.EOF) {
+      numMatchingDocs++;
+      docId = iterator.advance(docId + 1);
+    }
+    return numMatchingDocs;
+  }
+
+  @Benchmark
+  public int benchmarkBatchScan() {
+    // next() decodes and evaluates the documents in batches
+    SVScanDocIdIterator iterator = new SVScanDocIdIterator(_predicateEvaluator, _readerV2, _numDocs);
+    int numMatchingDocs = 0;
+    while (iterator.next() != Constants.EOF) {
+      numMatchingDocs++;
+    }
+    return numMatchingDocs;
+  }
+
   public static class DummyPredicateEvaluator implements PredicateEvaluator {
 
     private final int _threshold;
@@ -244,4 +276,24 @@ public class BenchmarkScanDocIdIterators {
       return false;
     }
   }
+
+  public static class DummyRangePredicateEvaluator extends DummyPredicateEvaluator implements IntRange {
+
+    private final int _threshold;
+
+    public DummyRangePredicateEvaluator(int threshold) {
+      super(threshold);
+      _threshold = threshold;
+    }
+
+    @Override
+    public int getInclusiveLowerBound() {
+      return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public int getInclusiveUpperBound() {
+      return _threshold - 1;
+    }
+  }
 }
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.local.startree.v2.builder.MultipleTreesBuilder;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.spi.config.table.StarTreeIndexConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Benchmarks the star-tree build modes on a segment with high-cardinality dimensions, where 2 star-trees share the
+ * dimensions split order.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class BenchmarkStarTreeBuilder {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkStarTreeBuilder");
+  private static final String TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final List<StarTreeIndexConfig> STAR_TREE_INDEX_CONFIGS = List.of(
+      new StarTreeIndexConfig(List.of("d1", "d2", "d3"), null, List.of("count__*", "sum__m1"), null, 1000),
+      new StarTreeIndexConfig(List.of("d1", "d2", "d3"), null, List.of("max__m1", "sum__m2"), null, 1000));
+
+  @Param({"1000000"})
+  private int _numRows;
+  @Param({"OFF_HEAP", "EXTERNAL_SORT"})
+  private MultipleTreesBuilder.BuildMode _buildMode;
+  @Param({"100000"})
+  private int _maxRecordsPerSortRun;
+
+  private File _segmentDir;
+  private File _indexDir;
+
+  public static void main(String[] args)
+      throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkStarTreeBuilder.class.getSimpleName()).build()).run();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(TABLE_NAME)
+        .addSingleValueDimension("d1", DataType.INT)
+        .addSingleValueDimension("d2", DataType.INT)
+        .addSingleValueDimension("d3", DataType.LONG)
+        .addMetric("m1", DataType.INT)
+        .addMetric("m2", DataType.DOUBLE)
+        .build();
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(TABLE_NAME).build();
+    Random random = new Random(0);
+    List<GenericRow> rows = new ArrayList<>(_numRows);
+    for (int i = 0; i < _numRows; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue("d1", random.nextInt(1000));
+      row.putValue("d2", random.nextInt(10_000));
+      row.putValue("d3", (long) random.nextInt(_numRows));
+      row.putValue("m1", random.nextInt());
+      row.putValue("m2", random.nextDouble());
+      rows.add(row);
+    }
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, schema);
+    config.setOutDir(new File(TEMP_DIR, "segment").getAbsolutePath());
+    config.setSegmentName(SEGMENT_NAME);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    _segmentDir = driver.getOutputDirectory();
+    _indexDir = new File(TEMP_DIR, SEGMENT_NAME);
+  }
+
+  @Setup(Level.Invocation)
+  public void copySegment()
+      throws Exception {
+    FileUtils.deleteQuietly(_indexDir);
+    FileUtils.copyDirectory(_segmentDir, _indexDir);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  @Benchmark
+  public void buildStarTrees()
+      throws Exception {
+    try (MultipleTreesBuilder builder = new MultipleTreesBuilder(STAR_TREE_INDEX_CONFIGS, false, _indexDir,
+        _buildMode)) {
+      builder.setMaxRecordsPerSortRun(_maxRecordsPerSortRun);
+      builder.build();
+    }
+  }
+}
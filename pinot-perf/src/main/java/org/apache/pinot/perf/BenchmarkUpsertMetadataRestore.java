@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.local.upsert.ConcurrentMapPartitionUpsertMetadataManager;
+import org.apache.pinot.segment.local.upsert.RecordInfo;
+import org.apache.pinot.segment.local.upsert.UpsertContext;
+import org.apache.pinot.segment.local.upsert.UpsertMetadataCheckpoint;
+import org.apache.pinot.segment.local.upsert.UpsertUtils;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.RecordReader;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.JavaFlightRecorderProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Compares the time to rebuild the upsert metadata of a partition on server restart, by replaying the primary key and
+ * comparison columns of every segment, or by restoring the record locations from the {@link UpsertMetadataCheckpoint}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@State(Scope.Benchmark)
+public class BenchmarkUpsertMetadataRestore {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkUpsertMetadataRestore");
+  private static final File SEGMENTS_DIR = new File(INDEX_DIR, "segments");
+  private static final File TABLE_INDEX_DIR = new File(INDEX_DIR, "tableIndexDir");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+  private static final String PRIMARY_KEY_COLUMN = "pk";
+  private static final String COMPARISON_COLUMN = "ts";
+  private static final String VALUE_COLUMN = "value";
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt = new OptionsBuilder().include(BenchmarkUpsertMetadataRestore.class.getSimpleName());
+    if (args.length > 0 && args[0].equals("jfr")) {
+      opt = opt.addProfiler(JavaFlightRecorderProfiler.class)
+          .jvmArgsAppend("-XX:+UnlockDiagnosticVMOptions", "-XX:+DebugNonSafepoints");
+    }
+    new Runner(opt.build()).run();
+  }
+
+  @Param({"10", "50"})
+  private int _numSegments;
+  @Param({"100000"})
+  private int _numRowsPerSegment;
+  // Ratio of the rows updating the primary keys in the previous segments
+  @Param({"0", "0.5"})
+  private double _updateRatio;
+  @Param({"NONE", "MD5"})
+  private String _hashFunction;
+
+  private TableConfig _tableConfig;
+  private Schema _schema;
+  private List<ImmutableSegment> _segments;
+
+  @Setup
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    _tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME).build();
+    _schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension(PRIMARY_KEY_COLUMN, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(VALUE_COLUMN, FieldSpec.DataType.INT)
+        .addDateTime(COMPARISON_COLUMN, FieldSpec.DataType.LONG, "1:MILLISECONDS:EPOCH", "1:MILLISECONDS")
+        .setPrimaryKeyColumns(Collections.singletonList(PRIMARY_KEY_COLUMN)).build();
+    _segments = new ArrayList<>(_numSegments);
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig();
+    int numUpdatedRowsPerSegment = (int) (_numRowsPerSegment * _updateRatio);
+    long timestamp = 0;
+    int nextPrimaryKey = 0;
+    int[] primaryKeys = new int[_numRowsPerSegment];
+    for (int i = 0; i < _numSegments; i++) {
+      List<GenericRow> rows = new ArrayList<>(_numRowsPerSegment);
+      for (int j = 0; j < _numRowsPerSegment; j++) {
+        GenericRow row = new GenericRow();
+        // Update the first rows of the previous segment, or insert new primary keys
+        int primaryKey = i > 0 && j < numUpdatedRowsPerSegment ? primaryKeys[j] : nextPrimaryKey++;
+        primaryKeys[j] = primaryKey;
+        row.putValue(PRIMARY_KEY_COLUMN, "pk_" + primaryKey);
+        row.putValue(COMPARISON_COLUMN, timestamp++);
+        row.putValue(VALUE_COLUMN, j);
+        rows.add(row);
+      }
+      String segmentName = "segment_" + i;
+      buildSegment(segmentName, rows);
+      _segments.add(ImmutableSegmentLoader.load(new File(SEGMENTS_DIR, segmentName), indexLoadingConfig));
+    }
+    writeCheckpoint();
+  }
+
+  private void buildSegment(String segmentName, List<GenericRow> rows)
+      throws Exception {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_tableConfig, _schema);
+    config.setOutDir(SEGMENTS_DIR.getPath());
+    config.setTableName(RAW_TABLE_NAME);
+    config.setSegmentName(segmentName);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    try (RecordReader recordReader = new GenericRowRecordReader(rows)) {
+      driver.init(config, recordReader);
+      driver.build();
+    }
+  }
+
+  /**
+   * Writes the checkpoint as taken by the metadata manager after adding all the segments, where each primary key is
+   * located at its latest record.
+   */
+  private void writeCheckpoint()
+      throws Exception {
+    HashFunction hashFunction = HashFunction.valueOf(_hashFunction);
+    UpsertMetadataCheckpoint checkpoint =
+        new UpsertMetadataCheckpoint(TABLE_INDEX_DIR, 0, ConcurrentMapPartitionUpsertMetadataManager.class.getName());
+    long numRecords = checkpoint.write(_segments, consumer -> {
+      int numUpdatedRowsPerSegment = (int) (_numRowsPerSegment * _updateRatio);
+      for (int i = 0; i < _numSegments; i++) {
+        ImmutableSegment segment = _segments.get(i);
+        // Rows updated by the next segment are no longer valid
+        int firstValidDocId = i < _numSegments - 1 ? numUpdatedRowsPerSegment : 0;
+        try (UpsertUtils.RecordInfoReader recordInfoReader = new UpsertUtils.RecordInfoReader(segment,
+            Collections.singletonList(PRIMARY_KEY_COLUMN), Collections.singletonList(COMPARISON_COLUMN), null)) {
+          for (int docId = firstValidDocId; docId < _numRowsPerSegment; docId++) {
+            RecordInfo recordInfo = recordInfoReader.getRecordInfo(docId);
+            consumer.accept(HashUtils.hashPrimaryKey(recordInfo.getPrimaryKey(), hashFunction), segment, docId,
+                recordInfo.getComparisonValue());
+          }
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    Preconditions.checkState(numRecords > 0, "Failed to write the upsert metadata checkpoint");
+    checkpoint.close();
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (ImmutableSegment segment : _segments) {
+      segment.destroy();
+    }
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  private long addSegments(boolean enableMetadataCheckpoint)
+      throws Exception {
+    UpsertContext upsertContext = new UpsertContext.Builder().setTableConfig(_tableConfig).setSchema(_schema)
+        .setPrimaryKeyColumns(Collections.singletonList(PRIMARY_KEY_COLUMN))
+        .setComparisonColumns(Collections.singletonList(COMPARISON_COLUMN))
+        .setHashFunction(HashFunction.valueOf(_hashFunction)).setEnableSnapshot(true)
+        .setEnableMetadataCheckpoint(enableMetadataCheckpoint).setTableIndexDir(TABLE_INDEX_DIR).build();
+    ConcurrentMapPartitionUpsertMetadataManager upsertMetadataManager =
+        new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+    for (ImmutableSegment segment : _segments) {
+      upsertMetadataManager.addSegment(segment);
+    }
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+    long numValidDocs = 0;
+    for (ImmutableSegment segment : _segments) {
+      numValidDocs += segment.getValidDocIds().getMutableRoaringBitmap().getCardinality();
+    }
+    return numValidDocs;
+  }
+
+  @Benchmark
+  public long replaySegments()
+      throws Exception {
+    return addSegments(false);
+  }
+
+  @Benchmark
+  public long restoreFromCheckpoint()
+      throws Exception {
+    return addSegments(true);
+  }
+}
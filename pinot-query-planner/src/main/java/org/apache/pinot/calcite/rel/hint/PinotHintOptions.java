@@ -68,15 +68,27 @@ public class PinotHintOptions {
      */
     public static final String MAX_ROWS_IN_JOIN = "max_rows_in_join";
     /**
-     * Mode when join overflow happens, supported values: THROW or BREAK.
+     * Mode when join overflow happens, supported values: THROW, BREAK or SPILL.
      *   THROW(default): Break right table build process, and throw exception, no JOIN with left table performed.
      *   BREAK: Break right table build process, continue to perform JOIN operation, results might be partial.
+     *   SPILL: Partition both tables into spill files on local disk, and perform JOIN operation partition by partition.
+     *          Each partition of the right table must fit within the max rows allowed in the hash table.
      */
     public static final String JOIN_OVERFLOW_MODE = "join_overflow_mode";
+    /**
+     * Number of partitions to split the tables into when the join is spilled to disk (default 16).
+     */
+    public static final String NUM_SPILL_PARTITIONS = "num_spill_partitions";
     /**
      * Indicat that the join operator(s) within a certain selection scope are colocated
      */
     public static final String IS_COLOCATED_BY_JOIN_KEYS = "is_colocated_by_join_keys";
+    /**
+     * Whether to send a runtime filter built from the right table join keys to the leaf stage scanning the left table
+     * (default false). Only applies to INNER, RIGHT and SEMI joins whose left input is a table scan, where the leaf
+     * stage waits for the filter for up to the 'runtimeFilterWaitMs' query option before scanning the table.
+     */
+    public static final String RUNTIME_FILTER = "runtime_filter";
   }
 
   public static class TableHintOptions {
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.calcite.rel.rules;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.rel.hint.RelHint;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.tools.RelBuilderFactory;
+import org.apache.pinot.calcite.rel.hint.PinotHintOptions;
+import org.apache.pinot.calcite.rel.hint.PinotHintStrategyTable;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.query.context.PlannerContext;
+import org.apache.pinot.query.planner.logical.RelToPlanNodeConverter;
+import org.apache.pinot.query.routing.WorkerManager;
+
+
+/**
+ * Special rule for Pinot, this rule infers the table partition hint (partition key, function and size) from the
+ * segment partition metadata of the table when the partition hint is not explicitly provided, so that the joins and
+ * aggregates on the partition key can be planned with the pre-partitioned (colocated) exchange without data shuffle.
+ *
+ * <p>This rule only applies when the {@code inferPartitionHint} query option is enabled, and must run before
+ * {@link PinotRelDistributionTraitRule} which converts the partition hint into the {@code RelDistribution} trait.
+ */
+public class PinotImplicitTableHintRule extends RelOptRule {
+  private final WorkerManager _workerManager;
+
+  public PinotImplicitTableHintRule(WorkerManager workerManager) {
+    this(workerManager, PinotRuleUtils.PINOT_REL_FACTORY);
+  }
+
+  public PinotImplicitTableHintRule(WorkerManager workerManager, RelBuilderFactory factory) {
+    super(operand(LogicalTableScan.class, any()), factory, null);
+    _workerManager = workerManager;
+  }
+
+  @Override
+  public boolean matches(RelOptRuleCall call) {
+    PlannerContext plannerContext = call.getPlanner().getContext().unwrap(PlannerContext.class);
+    if (plannerContext == null || !QueryOptionsUtils.isInferPartitionHint(plannerContext.getOptions())) {
+      return false;
+    }
+    LogicalTableScan tableScan = call.rel(0);
+    return !PinotHintStrategyTable.containsHintOption(tableScan.getHints(), PinotHintOptions.TABLE_HINT_OPTIONS,
+        PinotHintOptions.TableHintOptions.PARTITION_KEY);
+  }
+
+  @Override
+  public void onMatch(RelOptRuleCall call) {
+    LogicalTableScan tableScan = call.rel(0);
+    Map<String, String> partitionOptions =
+        _workerManager.inferTablePartitionOptions(RelToPlanNodeConverter.getTableName(tableScan));
+    if (partitionOptions == null) {
+      return;
+    }
+
+    // Merge the inferred partition options into the existing table hint (e.g. to keep the partition parallelism)
+    Map<String, String> tableOptions = new HashMap<>();
+    List<RelHint> hints = new ArrayList<>();
+    for (RelHint hint : tableScan.getHints()) {
+      if (hint.hintName.equals(PinotHintOptions.TABLE_HINT_OPTIONS)) {
+        tableOptions.putAll(hint.kvOptions);
+      } else {
+        hints.add(hint);
+      }
+    }
+    tableOptions.putAll(partitionOptions);
+    hints.add(RelHint.builder(PinotHintOptions.TABLE_HINT_OPTIONS).hintOptions(tableOptions).build());
+
+    // Do not propagate the hints from the original table scan, which would append the original table hint after the
+    // merged one
+    call.transformTo(tableScan.withHints(hints), ImmutableMap.of(), (originalRel, equivRel) -> equivRel);
+  }
+}
@@ -32,11 +32,14 @@ import org.apache.calcite.rel.core.Join;
 import org.apache.calcite.rel.core.JoinInfo;
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.tools.RelBuilderFactory;
 import org.apache.pinot.calcite.rel.hint.PinotHintOptions;
 import org.apache.pinot.calcite.rel.hint.PinotHintStrategyTable;
 import org.apache.pinot.calcite.rel.logical.PinotLogicalExchange;
 import org.apache.pinot.calcite.rel.logical.PinotRelExchangeType;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.query.context.PlannerContext;
 import org.apache.zookeeper.common.StringUtils;
 
 
@@ -110,6 +113,10 @@ import org.apache.zookeeper.common.StringUtils;
  *   </li>
  * </ul>
  *
+ * <p> When the join order optimization is enabled for the query, the rule is only applied (without explicit join
+ * strategy hint) when the right side is estimated to have no more rows than the left side based on the table
+ * statistics, and the join is kept as hash join otherwise.
+ *
  * TODO #1: Only support SEMI-JOIN, once JOIN operator is supported by leaf-stage we should allow it to match
  *   @see <a href="https://github.com/apache/pinot/pull/10565/>
  * TODO #2: Only convert to dynamic broadcast from right-to-left, allow option to specify dynamic broadcast direction.
@@ -149,7 +156,24 @@ public class PinotJoinToDynamicBroadcastRule extends RelOptRule {
         && !explicitOtherStrategy
         // condition for SEMI join
         && join.getJoinType() == JoinRelType.SEMI && joinInfo.nonEquiConditions.isEmpty()
-        && joinInfo.leftKeys.size() == 1;
+        && joinInfo.leftKeys.size() == 1
+        // skip the cost check when dynamic broadcast is explicitly requested
+        && (!joinStrategies.isEmpty() || isRightSideSmaller(call, left, right));
+  }
+
+  /**
+   * Returns whether the right side is estimated to have no more rows than the left side. Always returns {@code true}
+   * when the join order optimization is not enabled because the estimated row counts are not backed by the statistics.
+   */
+  private static boolean isRightSideSmaller(RelOptRuleCall call, RelNode left, RelNode right) {
+    PlannerContext plannerContext = call.getPlanner().getContext().unwrap(PlannerContext.class);
+    if (plannerContext == null || !QueryOptionsUtils.isOptimizeJoinOrder(plannerContext.getOptions())) {
+      return true;
+    }
+    RelMetadataQuery mq = call.getMetadataQuery();
+    Double leftRowCount = mq.getRowCount(left);
+    Double rightRowCount = mq.getRowCount(right);
+    return leftRowCount == null || rightRowCount == null || rightRowCount <= leftRowCount;
   }
 
   @Override
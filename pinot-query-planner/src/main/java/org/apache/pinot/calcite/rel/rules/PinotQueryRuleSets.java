@@ -118,6 +118,14 @@ public class PinotQueryRuleSets {
       PruneEmptyRules.UNION_INSTANCE
   );
 
+  // Join order rules that collapse the joins into a MultiJoin using a single HepInstruction, which is then reordered
+  // based on the estimated row counts by CoreRules.MULTI_JOIN_OPTIMIZE.
+  public static final Collection<RelOptRule> JOIN_TO_MULTI_JOIN_RULES = ImmutableList.of(
+      CoreRules.JOIN_TO_MULTI_JOIN,
+      CoreRules.PROJECT_MULTI_JOIN_MERGE,
+      CoreRules.FILTER_MULTI_JOIN_MERGE
+  );
+
   // Pinot specific rules that should be run AFTER all other rules
   public static final Collection<RelOptRule> PINOT_POST_RULES = ImmutableList.of(
       // Evaluate the Literal filter nodes
@@ -38,6 +38,8 @@ import org.apache.calcite.plan.hep.HepProgramBuilder;
 import org.apache.calcite.prepare.CalciteCatalogReader;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelRoot;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.rules.CoreRules;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.runtime.CalciteContextException;
 import org.apache.calcite.sql.SqlExplain;
@@ -50,12 +52,14 @@ import org.apache.calcite.sql2rel.SqlToRelConverter;
 import org.apache.calcite.tools.FrameworkConfig;
 import org.apache.calcite.tools.Frameworks;
 import org.apache.calcite.tools.RelBuilder;
+import org.apache.pinot.calcite.rel.rules.PinotImplicitTableHintRule;
 import org.apache.pinot.calcite.rel.rules.PinotQueryRuleSets;
 import org.apache.pinot.calcite.rel.rules.PinotRelDistributionTraitRule;
 import org.apache.pinot.calcite.rel.rules.PinotRuleUtils;
 import org.apache.pinot.calcite.sql.fun.PinotOperatorTable;
 import org.apache.pinot.calcite.sql2rel.PinotConvertletTable;
 import org.apache.pinot.common.config.provider.TableCache;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.query.catalog.PinotCatalog;
 import org.apache.pinot.query.context.PlannerContext;
 import org.apache.pinot.query.planner.PlannerUtils;
@@ -94,6 +98,7 @@ public class QueryEnvironment {
   private final FrameworkConfig _config;
   private final CalciteCatalogReader _catalogReader;
   private final HepProgram _optProgram;
+  private final HepProgram _joinOrderProgram;
   private final HepProgram _traitProgram;
 
   // Pinot extensions
@@ -101,19 +106,21 @@ public class QueryEnvironment {
   private final WorkerManager _workerManager;
 
   public QueryEnvironment(String database, TableCache tableCache, @Nullable WorkerManager workerManager) {
-    PinotCatalog catalog = new PinotCatalog(database, tableCache);
+    PinotCatalog catalog =
+        new PinotCatalog(database, tableCache, workerManager != null ? workerManager.getRoutingManager() : null);
     CalciteSchema rootSchema = CalciteSchema.createRootSchema(false, false, database, catalog);
     _config = Frameworks.newConfigBuilder().traitDefs().operatorTable(PinotOperatorTable.instance())
         .defaultSchema(rootSchema.plus()).sqlToRelConverterConfig(PinotRuleUtils.PINOT_SQL_TO_REL_CONFIG).build();
     _catalogReader = new CalciteCatalogReader(rootSchema, List.of(database), _typeFactory, CONNECTION_CONFIG);
     _optProgram = getOptProgram();
-    _traitProgram = getTraitProgram();
+    _joinOrderProgram = getJoinOrderProgram();
+    _traitProgram = getTraitProgram(workerManager);
     _tableCache = tableCache;
     _workerManager = workerManager;
   }
 
   private PlannerContext getPlannerContext() {
-    return new PlannerContext(_config, _catalogReader, _typeFactory, _optProgram, _traitProgram);
+    return new PlannerContext(_config, _catalogReader, _typeFactory, _optProgram, _joinOrderProgram, _traitProgram);
   }
 
   /**
@@ -304,6 +311,13 @@ public class QueryEnvironment {
       RelOptPlanner optPlanner = plannerContext.getRelOptPlanner();
       optPlanner.setRoot(relRoot.rel);
       RelNode optimized = optPlanner.findBestExp();
+      // Skip the join order optimization when join hints are provided because the hints are attached to the joins in
+      // the original order
+      if (QueryOptionsUtils.isOptimizeJoinOrder(plannerContext.getOptions()) && !hasJoinHints(optimized)) {
+        RelOptPlanner joinOrderPlanner = plannerContext.getJoinOrderPlanner();
+        joinOrderPlanner.setRoot(optimized);
+        optimized = joinOrderPlanner.findBestExp();
+      }
       RelOptPlanner traitPlanner = plannerContext.getRelTraitPlanner();
       traitPlanner.setRoot(optimized);
       return traitPlanner.findBestExp();
@@ -313,6 +327,18 @@ public class QueryEnvironment {
     }
   }
 
+  private static boolean hasJoinHints(RelNode relNode) {
+    if (relNode instanceof Join && !((Join) relNode).getHints().isEmpty()) {
+      return true;
+    }
+    for (RelNode input : relNode.getInputs()) {
+      if (hasJoinHints(input)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private DispatchableSubPlan toDispatchableSubPlan(RelRoot relRoot, PlannerContext plannerContext, long requestId) {
     SubPlan plan = PinotLogicalQueryPlanner.makePlan(relRoot);
     PinotDispatchPlanner pinotDispatchPlanner =
@@ -348,12 +374,35 @@ public class QueryEnvironment {
     return hepProgramBuilder.build();
   }
 
-  private static HepProgram getTraitProgram() {
+  private static HepProgram getJoinOrderProgram() {
+    HepProgramBuilder hepProgramBuilder = new HepProgramBuilder();
+
+    // Set the match order as BOTTOM_UP so that the joins are collapsed into a single MultiJoin from the bottom.
+    hepProgramBuilder.addMatchOrder(HepMatchOrder.BOTTOM_UP);
+
+    // ----
+    // Collapse the joins into MultiJoin, and reorder the joins based on the estimated row counts. The table row counts
+    // come from the table statistics (see PinotTable), and Calcite default selectivity is applied to the filters.
+    hepProgramBuilder.addRuleCollection(PinotQueryRuleSets.JOIN_TO_MULTI_JOIN_RULES);
+    hepProgramBuilder.addRuleInstance(CoreRules.MULTI_JOIN_OPTIMIZE);
+
+    // ----
+    // Prune the projects added on top of the reordered joins.
+    hepProgramBuilder.addRuleCollection(PinotQueryRuleSets.PRUNE_RULES);
+    return hepProgramBuilder.build();
+  }
+
+  private static HepProgram getTraitProgram(@Nullable WorkerManager workerManager) {
     HepProgramBuilder hepProgramBuilder = new HepProgramBuilder();
 
     // Set the match order as BOTTOM_UP.
     hepProgramBuilder.addMatchOrder(HepMatchOrder.BOTTOM_UP);
 
+    // Infer the table partition hint from the segment partition metadata (only applied when enabled in query options)
+    if (workerManager != null) {
+      hepProgramBuilder.addRuleInstance(new PinotImplicitTableHintRule(workerManager));
+    }
+
     // ----
     // Run pinot specific rules that should run after all other rules, using 1 HepInstruction per rule.
     for (RelOptRule relOptRule : PinotQueryRuleSets.PINOT_POST_RULES) {
@@ -33,6 +33,8 @@ import org.apache.calcite.schema.Schemas;
 import org.apache.calcite.schema.Table;
 import org.apache.pinot.common.config.provider.TableCache;
 import org.apache.pinot.common.utils.DatabaseUtils;
+import org.apache.pinot.core.routing.RoutingManager;
+import org.apache.pinot.spi.config.table.TableType;
 import org.apache.pinot.spi.utils.builder.TableNameBuilder;
 
 import static java.util.Objects.requireNonNull;
@@ -48,19 +50,28 @@ public class PinotCatalog implements Schema {
 
   private final TableCache _tableCache;
   private final String _databaseName;
+  private final RoutingManager _routingManager;
 
   /**
    * PinotCatalog needs have access to the actual {@link TableCache} object because TableCache hosts the actual
    * table available for query and processes table/segment metadata updates when cluster status changes.
    */
   public PinotCatalog(TableCache tableCache) {
-    _tableCache = tableCache;
-    _databaseName = null;
+    this(null, tableCache, null);
   }
 
   public PinotCatalog(String databaseName, TableCache tableCache) {
+    this(databaseName, tableCache, null);
+  }
+
+  /**
+   * When the {@link RoutingManager} is provided, the table row counts tracked by the routing manager are used as the
+   * table statistics by the planner.
+   */
+  public PinotCatalog(@Nullable String databaseName, TableCache tableCache, @Nullable RoutingManager routingManager) {
     _tableCache = tableCache;
     _databaseName = databaseName;
+    _routingManager = routingManager;
   }
 
   /**
@@ -76,7 +87,34 @@ public class PinotCatalog implements Schema {
     Preconditions.checkArgument(tableName != null, String.format("Table does not exist: '%s'", physicalTableName));
     org.apache.pinot.spi.data.Schema schema = _tableCache.getSchema(tableName);
     Preconditions.checkArgument(schema != null, String.format("Could not find schema for table: '%s'", tableName));
-    return new PinotTable(schema);
+    return new PinotTable(schema, getRowCount(tableName, TableNameBuilder.getTableTypeFromTableName(name)));
+  }
+
+  /**
+   * Returns the total row count of the given table (both OFFLINE and REALTIME table when the table type is not
+   * specified), or {@code null} if the row count is not tracked.
+   */
+  @Nullable
+  private Double getRowCount(String tableName, @Nullable TableType tableType) {
+    if (_routingManager == null) {
+      return null;
+    }
+    String rawTableName = TableNameBuilder.extractRawTableName(tableName);
+    Long offlineRowCount = tableType != TableType.REALTIME ? _routingManager.getTableRowCount(
+        TableNameBuilder.OFFLINE.tableNameWithType(rawTableName)) : null;
+    Long realtimeRowCount = tableType != TableType.OFFLINE ? _routingManager.getTableRowCount(
+        TableNameBuilder.REALTIME.tableNameWithType(rawTableName)) : null;
+    if (offlineRowCount == null && realtimeRowCount == null) {
+      return null;
+    }
+    long rowCount = 0;
+    if (offlineRowCount != null) {
+      rowCount += offlineRowCount;
+    }
+    if (realtimeRowCount != null) {
+      rowCount += realtimeRowCount;
+    }
+    return (double) rowCount;
   }
 
   /**
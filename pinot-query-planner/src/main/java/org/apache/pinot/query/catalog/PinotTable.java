@@ -19,11 +19,15 @@
 package org.apache.pinot.query.catalog;
 
 import com.google.common.base.Preconditions;
+import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.pinot.query.type.TypeFactory;
 import org.apache.pinot.spi.data.Schema;
@@ -37,9 +41,15 @@ import org.apache.pinot.spi.data.Schema;
  */
 public class PinotTable extends AbstractTable implements ScannableTable {
   private Schema _schema;
+  private final Double _rowCount;
 
   public PinotTable(Schema schema) {
+    this(schema, null);
+  }
+
+  public PinotTable(Schema schema, @Nullable Double rowCount) {
     _schema = schema;
+    _rowCount = rowCount;
   }
 
   @Override
@@ -49,6 +59,15 @@ public class PinotTable extends AbstractTable implements ScannableTable {
     return typeFactory.createRelDataTypeFromSchema(_schema);
   }
 
+  /**
+   * Returns the table row count as the statistics when available, which is used by the planner to estimate the cost of
+   * the relational expressions (e.g. to optimize the join order).
+   */
+  @Override
+  public Statistic getStatistic() {
+    return _rowCount != null ? Statistics.of(_rowCount, List.of()) : Statistics.UNKNOWN;
+  }
+
   @Override
   public boolean isRolledUp(String s) {
     return false;
@@ -45,16 +45,19 @@ public class PlannerContext implements AutoCloseable {
   private final SqlValidator _validator;
 
   private final RelOptPlanner _relOptPlanner;
+  private final RelOptPlanner _joinOrderPlanner;
   private final LogicalPlanner _relTraitPlanner;
 
-  private Map<String, String> _options;
+  private Map<String, String> _options = Collections.emptyMap();
 
   public PlannerContext(FrameworkConfig config, Prepare.CatalogReader catalogReader, RelDataTypeFactory typeFactory,
-      HepProgram optProgram, HepProgram traitProgram) {
+      HepProgram optProgram, HepProgram joinOrderProgram, HepProgram traitProgram) {
     _planner = new PlannerImpl(config);
     _validator = new Validator(config.getOperatorTable(), catalogReader, typeFactory);
     _relOptPlanner = new LogicalPlanner(optProgram, Contexts.EMPTY_CONTEXT, config.getTraitDefs());
-    _relTraitPlanner = new LogicalPlanner(traitProgram, Contexts.EMPTY_CONTEXT,
+    _joinOrderPlanner = new LogicalPlanner(joinOrderProgram, Contexts.EMPTY_CONTEXT, config.getTraitDefs());
+    // Expose this context to the trait rules so that they can access the query options
+    _relTraitPlanner = new LogicalPlanner(traitProgram, Contexts.of(this),
         Collections.singletonList(RelDistributionTraitDef.INSTANCE));
   }
 
@@ -70,6 +73,10 @@ public class PlannerContext implements AutoCloseable {
     return _relOptPlanner;
   }
 
+  public RelOptPlanner getJoinOrderPlanner() {
+    return _joinOrderPlanner;
+  }
+
   public LogicalPlanner getRelTraitPlanner() {
     return _relTraitPlanner;
   }
@@ -23,7 +23,11 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.pinot.calcite.rel.hint.PinotHintOptions;
 import org.apache.pinot.calcite.rel.logical.PinotRelExchangeType;
 import org.apache.pinot.query.planner.PlanFragment;
 import org.apache.pinot.query.planner.SubPlan;
@@ -92,7 +96,51 @@ public class PlanFragmenter implements PlanNodeVisitor<PlanNode, PlanFragmenter.
 
   @Override
   public PlanNode visitJoin(JoinNode node, Context context) {
-    return process(node, context);
+    process(node, context);
+    MailboxSendNode runtimeFilterTarget = getRuntimeFilterTarget(node);
+    if (runtimeFilterTarget != null) {
+      node.setRuntimeFilterEnabled(true);
+      runtimeFilterTarget.setRuntimeFilterEnabled(true);
+    }
+    return node;
+  }
+
+  /**
+   * Returns the {@link MailboxSendNode} of the leaf stage sending the left table rows to the join when the runtime
+   * filter is requested for the join and can be applied to the leaf stage, or {@code null} otherwise.
+   * The runtime filter only removes left rows not matching any right row, so it does not apply to the joins emitting
+   * non-matched left rows (LEFT, FULL, ANTI).
+   */
+  @Nullable
+  private static MailboxSendNode getRuntimeFilterTarget(JoinNode node) {
+    PlanNode.NodeHint nodeHint = node.getNodeHint();
+    if (nodeHint == null) {
+      return null;
+    }
+    Map<String, String> joinHintOptions = nodeHint.getHintOptions().get(PinotHintOptions.JOIN_HINT_OPTIONS);
+    if (joinHintOptions == null || !Boolean.parseBoolean(
+        joinHintOptions.get(PinotHintOptions.JoinHintOptions.RUNTIME_FILTER))) {
+      return null;
+    }
+    JoinRelType joinType = node.getJoinType();
+    if (node.getLeftKeys().isEmpty() || (joinType != JoinRelType.INNER && joinType != JoinRelType.RIGHT
+        && joinType != JoinRelType.SEMI)) {
+      return null;
+    }
+    PlanNode leftInput = node.getInputs().get(0);
+    if (!(leftInput instanceof MailboxReceiveNode)) {
+      return null;
+    }
+    MailboxReceiveNode receiveNode = (MailboxReceiveNode) leftInput;
+    if (receiveNode.getExchangeType() != PinotRelExchangeType.STREAMING) {
+      return null;
+    }
+    MailboxSendNode sendNode = receiveNode.getSender();
+    PlanNode planNode = sendNode.getInputs().get(0);
+    while (planNode instanceof ProjectNode || planNode instanceof FilterNode) {
+      planNode = planNode.getInputs().get(0);
+    }
+    return planNode instanceof TableScanNode ? sendNode : null;
   }
 
   @Override
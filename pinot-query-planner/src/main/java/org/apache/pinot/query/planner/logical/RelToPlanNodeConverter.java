@@ -31,6 +31,7 @@ import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Exchange;
 import org.apache.calcite.rel.core.JoinInfo;
 import org.apache.calcite.rel.core.SetOp;
+import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.core.Window;
 import org.apache.calcite.rel.logical.LogicalFilter;
 import org.apache.calcite.rel.logical.LogicalJoin;
@@ -239,13 +240,7 @@ public final class RelToPlanNodeConverter {
   }
 
   private TableScanNode convertLogicalTableScan(LogicalTableScan node) {
-    String tableName;
-    List<String> qualifiedName = node.getTable().getQualifiedName();
-    if (qualifiedName.size() == 1) {
-      tableName = qualifiedName.get(0);
-    } else {
-      tableName = DatabaseUtils.translateTableName(qualifiedName.get(1), qualifiedName.get(0));
-    }
+    String tableName = getTableName(node);
     List<RelDataTypeField> fields = node.getRowType().getFieldList();
     List<String> columns = new ArrayList<>(fields.size());
     for (RelDataTypeField field : fields) {
@@ -369,6 +364,18 @@ public final class RelToPlanNodeConverter {
     }
   }
 
+  /**
+   * Returns the table name (translated with the database name) of the given table scan.
+   */
+  public static String getTableName(TableScan tableScan) {
+    List<String> qualifiedName = tableScan.getTable().getQualifiedName();
+    if (qualifiedName.size() == 1) {
+      return qualifiedName.get(0);
+    } else {
+      return DatabaseUtils.translateTableName(qualifiedName.get(1), qualifiedName.get(0));
+    }
+  }
+
   public static Set<String> getTableNamesFromRelRoot(RelNode relRoot) {
     Set<String> tableNames = new HashSet<>();
     List<String> qualifiedTableNames = RelOptUtil.findAllTableQualifiedNames(relRoot);
@@ -30,6 +30,7 @@ public class JoinNode extends BasePlanNode {
   private final List<Integer> _leftKeys;
   private final List<Integer> _rightKeys;
   private final List<RexExpression> _nonEquiConditions;
+  private boolean _runtimeFilterEnabled;
 
   public JoinNode(int stageId, DataSchema dataSchema, NodeHint nodeHint, List<PlanNode> inputs, JoinRelType joinType,
       List<Integer> leftKeys, List<Integer> rightKeys, List<RexExpression> nonEquiConditions) {
@@ -56,6 +57,18 @@ public class JoinNode extends BasePlanNode {
     return _nonEquiConditions;
   }
 
+  /**
+   * Returns whether the join builds a runtime filter on the right table join keys and sends it to the leaf stage
+   * sending the left table rows, see {@link MailboxSendNode#isRuntimeFilterEnabled()}.
+   */
+  public boolean isRuntimeFilterEnabled() {
+    return _runtimeFilterEnabled;
+  }
+
+  public void setRuntimeFilterEnabled(boolean runtimeFilterEnabled) {
+    _runtimeFilterEnabled = runtimeFilterEnabled;
+  }
+
   @Override
   public String explain() {
     return "JOIN";
@@ -79,11 +92,12 @@ public class JoinNode extends BasePlanNode {
     }
     JoinNode joinNode = (JoinNode) o;
     return _joinType == joinNode._joinType && Objects.equals(_leftKeys, joinNode._leftKeys) && Objects.equals(
-        _rightKeys, joinNode._rightKeys) && Objects.equals(_nonEquiConditions, joinNode._nonEquiConditions);
+        _rightKeys, joinNode._rightKeys) && Objects.equals(_nonEquiConditions, joinNode._nonEquiConditions)
+        && _runtimeFilterEnabled == joinNode._runtimeFilterEnabled;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(super.hashCode(), _joinType, _leftKeys, _rightKeys, _nonEquiConditions);
+    return Objects.hash(super.hashCode(), _joinType, _leftKeys, _rightKeys, _nonEquiConditions, _runtimeFilterEnabled);
   }
 }
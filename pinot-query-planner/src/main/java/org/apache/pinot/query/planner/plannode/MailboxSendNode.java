@@ -35,6 +35,7 @@ public class MailboxSendNode extends BasePlanNode {
   private final boolean _prePartitioned;
   private final List<RelFieldCollation> _collations;
   private final boolean _sort;
+  private boolean _runtimeFilterEnabled;
 
   // NOTE: null List is converted to empty List because there is no way to differentiate them in proto during ser/de.
   public MailboxSendNode(int stageId, DataSchema dataSchema, List<PlanNode> inputs, int receiverStageId,
@@ -82,6 +83,18 @@ public class MailboxSendNode extends BasePlanNode {
     return _sort;
   }
 
+  /**
+   * Returns whether the (leaf) stage waits for the runtime filter sent by the join receiving its rows before scanning
+   * the table, see {@link JoinNode#isRuntimeFilterEnabled()}.
+   */
+  public boolean isRuntimeFilterEnabled() {
+    return _runtimeFilterEnabled;
+  }
+
+  public void setRuntimeFilterEnabled(boolean runtimeFilterEnabled) {
+    _runtimeFilterEnabled = runtimeFilterEnabled;
+  }
+
   @Override
   public String explain() {
     StringBuilder sb = new StringBuilder();
@@ -116,12 +129,13 @@ public class MailboxSendNode extends BasePlanNode {
     MailboxSendNode that = (MailboxSendNode) o;
     return _receiverStageId == that._receiverStageId && _prePartitioned == that._prePartitioned && _sort == that._sort
         && _exchangeType == that._exchangeType && _distributionType == that._distributionType && Objects.equals(_keys,
-        that._keys) && Objects.equals(_collations, that._collations);
+        that._keys) && Objects.equals(_collations, that._collations)
+        && _runtimeFilterEnabled == that._runtimeFilterEnabled;
   }
 
   @Override
   public int hashCode() {
     return Objects.hash(super.hashCode(), _receiverStageId, _exchangeType, _distributionType, _keys, _prePartitioned,
-        _collations, _sort);
+        _collations, _sort, _runtimeFilterEnabled);
   }
 }
@@ -94,9 +94,11 @@ public class PlanNodeDeserializer {
 
   private static JoinNode deserializeJoinNode(Plan.PlanNode protoNode) {
     Plan.JoinNode protoJoinNode = protoNode.getJoinNode();
-    return new JoinNode(protoNode.getStageId(), extractDataSchema(protoNode), extractNodeHint(protoNode),
+    JoinNode joinNode = new JoinNode(protoNode.getStageId(), extractDataSchema(protoNode), extractNodeHint(protoNode),
         extractInputs(protoNode), convertJoinType(protoJoinNode.getJoinType()), protoJoinNode.getLeftKeysList(),
         protoJoinNode.getRightKeysList(), convertExpressions(protoJoinNode.getNonEquiConditionsList()));
+    joinNode.setRuntimeFilterEnabled(protoJoinNode.getRuntimeFilterEnabled());
+    return joinNode;
   }
 
   private static MailboxReceiveNode deserializeMailboxReceiveNode(Plan.PlanNode protoNode) {
@@ -110,11 +112,14 @@ public class PlanNodeDeserializer {
 
   private static MailboxSendNode deserializeMailboxSendNode(Plan.PlanNode protoNode) {
     Plan.MailboxSendNode protoMailboxSendNode = protoNode.getMailboxSendNode();
-    return new MailboxSendNode(protoNode.getStageId(), extractDataSchema(protoNode), extractInputs(protoNode),
-        protoMailboxSendNode.getReceiverStageId(), convertExchangeType(protoMailboxSendNode.getExchangeType()),
-        convertDistributionType(protoMailboxSendNode.getDistributionType()), protoMailboxSendNode.getKeysList(),
-        protoMailboxSendNode.getPrePartitioned(), convertCollations(protoMailboxSendNode.getCollationsList()),
-        protoMailboxSendNode.getSort());
+    MailboxSendNode mailboxSendNode =
+        new MailboxSendNode(protoNode.getStageId(), extractDataSchema(protoNode), extractInputs(protoNode),
+            protoMailboxSendNode.getReceiverStageId(), convertExchangeType(protoMailboxSendNode.getExchangeType()),
+            convertDistributionType(protoMailboxSendNode.getDistributionType()), protoMailboxSendNode.getKeysList(),
+            protoMailboxSendNode.getPrePartitioned(), convertCollations(protoMailboxSendNode.getCollationsList()),
+            protoMailboxSendNode.getSort());
+    mailboxSendNode.setRuntimeFilterEnabled(protoMailboxSendNode.getRuntimeFilterEnabled());
+    return mailboxSendNode;
   }
 
   private static ProjectNode deserializeProjectNode(Plan.PlanNode protoNode) {
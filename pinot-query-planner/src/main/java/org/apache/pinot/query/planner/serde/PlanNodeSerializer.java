@@ -111,7 +111,8 @@ public class PlanNodeSerializer {
       Plan.JoinNode joinNode =
           Plan.JoinNode.newBuilder().setJoinType(convertJoinType(node.getJoinType())).addAllLeftKeys(node.getLeftKeys())
               .addAllRightKeys(node.getRightKeys())
-              .addAllNonEquiConditions(convertExpressions(node.getNonEquiConditions())).build();
+              .addAllNonEquiConditions(convertExpressions(node.getNonEquiConditions()))
+              .setRuntimeFilterEnabled(node.isRuntimeFilterEnabled()).build();
       builder.setJoinNode(joinNode);
       return null;
     }
@@ -135,7 +136,7 @@ public class PlanNodeSerializer {
               .setExchangeType(convertExchangeType(node.getExchangeType()))
               .setDistributionType(convertDistributionType(node.getDistributionType())).addAllKeys(node.getKeys())
               .setPrePartitioned(node.isPrePartitioned()).addAllCollations(convertCollations(node.getCollations()))
-              .setSort(node.isSort()).build();
+              .setSort(node.isSort()).setRuntimeFilterEnabled(node.isRuntimeFilterEnabled()).build();
       builder.setMailboxSendNode(mailboxSendNode);
       return null;
     }
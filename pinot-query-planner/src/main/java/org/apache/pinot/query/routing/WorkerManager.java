@@ -72,6 +72,10 @@ public class WorkerManager {
     _routingManager = routingManager;
   }
 
+  public RoutingManager getRoutingManager() {
+    return _routingManager;
+  }
+
   public void assignWorkers(PlanFragment rootFragment, DispatchablePlanContext context) {
     // ROOT stage doesn't have a QueryServer as it is strictly only reducing results, so here we simply assign the
     // worker instance with identical server/mailbox port number.
@@ -468,6 +472,45 @@ public class WorkerManager {
     }
   }
 
+  /**
+   * Infers the table hint options for the partitioned leaf stage assignment (partition key, function and size) from the
+   * segment partition metadata of the given table. Returns {@code null} when the partition metadata is not available,
+   * or the partitioned assignment is not possible (e.g. some segments are not partitioned, or some partition doesn't
+   * have a fully replicated server).
+   */
+  @Nullable
+  public Map<String, String> inferTablePartitionOptions(String tableName) {
+    String tableNameWithType = tableName;
+    if (TableNameBuilder.getTableTypeFromTableName(tableName) == null) {
+      // For hybrid table, the partitioning of the OFFLINE table is validated against the REALTIME table
+      String realtimeTableName = TableNameBuilder.REALTIME.tableNameWithType(tableName);
+      tableNameWithType = _routingManager.routingExists(realtimeTableName) ? realtimeTableName
+          : TableNameBuilder.OFFLINE.tableNameWithType(tableName);
+    }
+    TablePartitionInfo tablePartitionInfo = _routingManager.getTablePartitionInfo(tableNameWithType);
+    if (tablePartitionInfo == null) {
+      return null;
+    }
+    String partitionKey = tablePartitionInfo.getPartitionColumn();
+    String partitionFunction = tablePartitionInfo.getPartitionFunctionName();
+    int numPartitions = tablePartitionInfo.getNumPartitions();
+    PartitionTableInfo partitionTableInfo;
+    try {
+      partitionTableInfo = getPartitionTableInfo(tableName, partitionKey, numPartitions, partitionFunction);
+    } catch (IllegalStateException e) {
+      LOGGER.debug("Cannot infer partition options for table: {}", tableName, e);
+      return null;
+    }
+    for (PartitionInfo partitionInfo : partitionTableInfo._partitionInfoMap) {
+      if (partitionInfo == null || partitionInfo._fullyReplicatedServers.isEmpty()) {
+        return null;
+      }
+    }
+    return Map.of(PinotHintOptions.TableHintOptions.PARTITION_KEY, partitionKey,
+        PinotHintOptions.TableHintOptions.PARTITION_FUNCTION, partitionFunction,
+        PinotHintOptions.TableHintOptions.PARTITION_SIZE, Integer.toString(numPartitions));
+  }
+
   private TablePartitionInfo getTablePartitionInfo(String tableNameWithType, String partitionKey, int numPartitions,
       String partitionFunction) {
     TablePartitionInfo tablePartitionInfo = _routingManager.getTablePartitionInfo(tableNameWithType);
@@ -28,6 +28,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import org.apache.calcite.rel.RelDistribution;
+import org.apache.pinot.common.config.provider.TableCache;
 import org.apache.pinot.query.planner.PlannerUtils;
 import org.apache.pinot.query.planner.physical.DispatchablePlanFragment;
 import org.apache.pinot.query.planner.physical.DispatchableSubPlan;
@@ -36,9 +37,14 @@ import org.apache.pinot.query.planner.plannode.BasePlanNode;
 import org.apache.pinot.query.planner.plannode.FilterNode;
 import org.apache.pinot.query.planner.plannode.JoinNode;
 import org.apache.pinot.query.planner.plannode.MailboxReceiveNode;
+import org.apache.pinot.query.planner.plannode.MailboxSendNode;
 import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.planner.plannode.ProjectNode;
 import org.apache.pinot.query.routing.QueryServerInstance;
+import org.apache.pinot.query.routing.WorkerManager;
+import org.apache.pinot.query.testutils.MockRoutingManagerFactory;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.utils.CommonConstants;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -91,6 +97,55 @@ public class QueryCompilationTest extends QueryEnvironmentTestBase {
         + "          LogicalTableScan(table=[[default, a]])\n");
   }
 
+  @Test
+  public void testJoinOrderOptimization() {
+    MockRoutingManagerFactory factory = new MockRoutingManagerFactory(1, 2);
+    for (Map.Entry<String, Schema> entry : TABLE_SCHEMAS.entrySet()) {
+      factory.registerTable(entry.getValue(), entry.getKey());
+    }
+    factory.registerTableRowCount("a_REALTIME", 10);
+    factory.registerTableRowCount("b_REALTIME", 1_000_000);
+    factory.registerTableRowCount("c_OFFLINE", 1_000);
+    TableCache tableCache = factory.buildTableCache();
+    QueryEnvironment queryEnvironment = new QueryEnvironment(CommonConstants.DEFAULT_DATABASE, tableCache,
+        new WorkerManager("localhost", 3, factory.buildRoutingManager(null)));
+    String scanA = "LogicalTableScan(table=[[default, a]])";
+    String scanB = "LogicalTableScan(table=[[default, b]])";
+
+    // The biggest table should be joined first on the left side
+    String query = "EXPLAIN PLAN FOR SELECT a.col1, b.col2, c.col3 FROM a JOIN b ON a.col1 = b.col1 "
+        + "JOIN c ON a.col2 = c.col2";
+    String explain = queryEnvironment.explainQuery(query, RANDOM_REQUEST_ID_GEN.nextLong());
+    assertTrue(explain.indexOf(scanA) < explain.indexOf(scanB));
+    explain = queryEnvironment.explainQuery("SET optimizeJoinOrder = true; " + query, RANDOM_REQUEST_ID_GEN.nextLong());
+    assertTrue(explain.indexOf(scanB) < explain.indexOf(scanA));
+
+    // The bigger right side should not be dynamically broadcast into the leaf stage
+    query = "EXPLAIN PLAN FOR SELECT col1 FROM a WHERE col2 IN (SELECT col2 FROM b)";
+    explain = queryEnvironment.explainQuery(query, RANDOM_REQUEST_ID_GEN.nextLong());
+    assertTrue(explain.contains("PIPELINE_BREAKER"));
+    explain = queryEnvironment.explainQuery("SET optimizeJoinOrder = true; " + query, RANDOM_REQUEST_ID_GEN.nextLong());
+    assertFalse(explain.contains("PIPELINE_BREAKER"));
+  }
+
+  @Test
+  public void testInferPartitionHint() {
+    long requestId = RANDOM_REQUEST_ID_GEN.nextLong();
+    String explicitHintQuery = "EXPLAIN IMPLEMENTATION PLAN FOR SELECT a.col2, a.col3, b.col3 FROM a "
+        + "/*+ tableOptions(partition_function='hashcode', partition_key='col2', partition_size='4') */ JOIN b "
+        + "/*+ tableOptions(partition_function='hashcode', partition_key='col1', partition_size='4') */ "
+        + "ON a.col2 = b.col1 WHERE b.col3 > 0";
+    String query = "EXPLAIN IMPLEMENTATION PLAN FOR SELECT a.col2, a.col3, b.col3 FROM a JOIN b ON a.col2 = b.col1 "
+        + "WHERE b.col3 > 0";
+    String explicitHintExplain = _queryEnvironment.explainQuery(explicitHintQuery, requestId);
+    assertTrue(explicitHintExplain.contains("[PARTITIONED]"));
+
+    // The partition hint should be inferred from the table partition info when enabled
+    assertNotEquals(_queryEnvironment.explainQuery(query, requestId), explicitHintExplain);
+    assertEquals(_queryEnvironment.explainQuery("SET inferPartitionHint = true; " + query, requestId),
+        explicitHintExplain);
+  }
+
   private static void assertGroupBySingletonAfterJoin(DispatchableSubPlan dispatchableSubPlan, boolean shouldRewrite) {
     for (int stageId = 0; stageId < dispatchableSubPlan.getQueryStageList().size(); stageId++) {
       if (dispatchableSubPlan.getTableNames().size() == 0 && !PlannerUtils.isRootPlanFragment(stageId)) {
@@ -281,6 +336,45 @@ public class QueryCompilationTest extends QueryEnvironmentTestBase {
     }
   }
 
+  @Test
+  public void testQueryWithRuntimeFilterHint() {
+    String query = "SELECT /*+ joinOptions(runtime_filter='true') */ a.col1, b.col3 FROM a JOIN b ON a.col1 = b.col2 "
+        + "WHERE a.col3 >= 0";
+    assertRuntimeFilterEnabled(_queryEnvironment.planQuery(query), true);
+    // Runtime filter does not apply to LEFT join
+    query = "SELECT /*+ joinOptions(runtime_filter='true') */ a.col1, b.col3 FROM a LEFT JOIN b ON a.col1 = b.col2";
+    assertRuntimeFilterEnabled(_queryEnvironment.planQuery(query), false);
+    // Runtime filter is not enabled without hint
+    query = "SELECT a.col1, b.col3 FROM a JOIN b ON a.col1 = b.col2";
+    assertRuntimeFilterEnabled(_queryEnvironment.planQuery(query), false);
+  }
+
+  private static void assertRuntimeFilterEnabled(DispatchableSubPlan dispatchableSubPlan, boolean enabled) {
+    List<DispatchablePlanFragment> stagePlans = dispatchableSubPlan.getQueryStageList();
+    List<JoinNode> joinNodes = new ArrayList<>();
+    for (DispatchablePlanFragment stagePlan : stagePlans) {
+      collectJoinNodes(stagePlan.getPlanFragment().getFragmentRoot(), joinNodes);
+    }
+    assertEquals(joinNodes.size(), 1);
+    JoinNode joinNode = joinNodes.get(0);
+    assertEquals(joinNode.isRuntimeFilterEnabled(), enabled);
+    int leftStageId = ((MailboxReceiveNode) joinNode.getInputs().get(0)).getSenderStageId();
+    MailboxSendNode leftSender = (MailboxSendNode) stagePlans.get(leftStageId).getPlanFragment().getFragmentRoot();
+    assertEquals(leftSender.isRuntimeFilterEnabled(), enabled);
+    int rightStageId = ((MailboxReceiveNode) joinNode.getInputs().get(1)).getSenderStageId();
+    MailboxSendNode rightSender = (MailboxSendNode) stagePlans.get(rightStageId).getPlanFragment().getFragmentRoot();
+    assertFalse(rightSender.isRuntimeFilterEnabled());
+  }
+
+  private static void collectJoinNodes(PlanNode node, List<JoinNode> joinNodes) {
+    if (node instanceof JoinNode) {
+      joinNodes.add((JoinNode) node);
+    }
+    for (PlanNode input : node.getInputs()) {
+      collectJoinNodes(input, joinNodes);
+    }
+  }
+
   @Test
   public void testGetTableNamesForQuery() {
     // A simple filter query with one table
@@ -116,6 +116,9 @@ public class QueryEnvironmentTestBase {
         new Object[]{"SELECT * FROM d"},
         new Object[]{"SELECT * FROM a JOIN b ON a.col1 = b.col2"},
         new Object[]{"SELECT * FROM a JOIN b ON a.col1 = b.col2 WHERE a.col3 >= 0"},
+        new Object[]{
+            "SELECT /*+ joinOptions(runtime_filter='true') */ * FROM a JOIN b ON a.col1 = b.col2 WHERE a.col3 >= 0"
+        },
         new Object[]{"SELECT * FROM a JOIN b ON a.col1 = b.col2 WHERE a.col3 >= 0 AND a.col3 > b.col3"},
         new Object[]{"SELECT * FROM a JOIN b on a.col1 = b.col1 AND a.col2 = b.col2"},
         new Object[]{
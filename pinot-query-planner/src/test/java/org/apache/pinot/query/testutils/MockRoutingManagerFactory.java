@@ -58,6 +58,7 @@ public class MockRoutingManagerFactory {
   private final Set<String> _hybridTables;
   private final Map<String, ServerInstance> _serverInstances;
   private final Map<String, Map<ServerInstance, Pair<List<String>, List<String>>>> _tableServerSegmentsMap;
+  private final Map<String, Long> _tableRowCountMap;
 
   public MockRoutingManagerFactory(int... ports) {
     _tableNameMap = new HashMap<>();
@@ -65,6 +66,7 @@ public class MockRoutingManagerFactory {
     _hybridTables = new HashSet<>();
     _serverInstances = new HashMap<>();
     _tableServerSegmentsMap = new HashMap<>();
+    _tableRowCountMap = new HashMap<>();
     for (int port : ports) {
       _serverInstances.put(toHostname(port), getServerInstance(HOST_NAME, port, port, port, port));
     }
@@ -93,13 +95,18 @@ public class MockRoutingManagerFactory {
         .computeIfAbsent(serverInstance, k -> Pair.of(new ArrayList<>(), null)).getLeft().add(segmentName);
   }
 
+  public void registerTableRowCount(String tableNameWithType, long rowCount) {
+    _tableRowCountMap.put(tableNameWithType, rowCount);
+  }
+
   public RoutingManager buildRoutingManager(@Nullable Map<String, TablePartitionInfo> partitionInfoMap) {
     Map<String, RoutingTable> routingTableMap = new HashMap<>();
     _tableServerSegmentsMap.forEach((tableNameWithType, serverSegmentsMap) -> {
       RoutingTable fakeRoutingTable = new RoutingTable(serverSegmentsMap, Collections.emptyList(), 0);
       routingTableMap.put(tableNameWithType, fakeRoutingTable);
     });
-    return new FakeRoutingManager(routingTableMap, _hybridTables, partitionInfoMap, _serverInstances);
+    return new FakeRoutingManager(routingTableMap, _hybridTables, partitionInfoMap, _serverInstances,
+        _tableRowCountMap);
   }
 
   public TableCache buildTableCache() {
@@ -139,13 +146,16 @@ public class MockRoutingManagerFactory {
     private final Set<String> _hybridTables;
     private final Map<String, TablePartitionInfo> _partitionInfoMap;
     private final Map<String, ServerInstance> _serverInstances;
+    private final Map<String, Long> _tableRowCountMap;
 
     public FakeRoutingManager(Map<String, RoutingTable> routingTableMap, Set<String> hybridTables,
-        @Nullable Map<String, TablePartitionInfo> partitionInfoMap, Map<String, ServerInstance> serverInstances) {
+        @Nullable Map<String, TablePartitionInfo> partitionInfoMap, Map<String, ServerInstance> serverInstances,
+        Map<String, Long> tableRowCountMap) {
       _routingTableMap = routingTableMap;
       _hybridTables = hybridTables;
       _partitionInfoMap = partitionInfoMap;
       _serverInstances = serverInstances;
+      _tableRowCountMap = tableRowCountMap;
     }
 
     @Override
@@ -178,6 +188,12 @@ public class MockRoutingManagerFactory {
       return _partitionInfoMap != null ? _partitionInfoMap.get(tableNameWithType) : null;
     }
 
+    @Nullable
+    @Override
+    public Long getTableRowCount(String tableNameWithType) {
+      return _tableRowCountMap.get(tableNameWithType);
+    }
+
     @Override
     public Set<String> getServingInstances(String tableNameWithType) {
       return _serverInstances.keySet();
@@ -22,6 +22,7 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.datatable.StatMap;
@@ -133,12 +134,17 @@ public class GrpcSendingMailbox implements SendingMailbox {
     long start = System.currentTimeMillis();
     try {
       DataBlock dataBlock = block.getDataBlock();
-      byte[] bytes = dataBlock.toBytes();
-      ByteString byteString = UnsafeByteOperations.unsafeWrap(bytes);
+      // Wrap the serialized sections without copying them into a single byte array. The data sections are shared with
+      // the data block, which is immutable and can be sent to multiple mailboxes.
+      ByteString byteString = ByteString.EMPTY;
+      for (ByteBuffer buffer : dataBlock.serialize()) {
+        byteString = byteString.concat(UnsafeByteOperations.unsafeWrap(buffer));
+      }
+      int numBytes = byteString.size();
       if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Serialized block: {} to {} bytes", block, bytes.length);
+        LOGGER.debug("Serialized block: {} to {} bytes", block, numBytes);
       }
-      _statMap.merge(MailboxSendOperator.StatKey.SERIALIZED_BYTES, bytes.length);
+      _statMap.merge(MailboxSendOperator.StatKey.SERIALIZED_BYTES, numBytes);
       return MailboxContent.newBuilder().setMailboxId(_id).setPayload(byteString).build();
     } catch (Throwable t) {
       LOGGER.warn("Caught exception while serializing block: {}", block, t);
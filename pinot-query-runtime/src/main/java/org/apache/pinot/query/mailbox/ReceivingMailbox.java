@@ -34,6 +34,7 @@ import org.apache.pinot.common.datablock.MetadataBlock;
 import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.executor.ManagedBlockingUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -142,7 +143,7 @@ public class ReceivingMailbox {
     }
     try {
       long now = System.currentTimeMillis();
-      boolean accepted = _blocks.offer(block, timeoutMs, TimeUnit.MILLISECONDS);
+      boolean accepted = ManagedBlockingUtils.offer(_blocks, block, timeoutMs, TimeUnit.MILLISECONDS);
       _stats.merge(StatKey.OFFER_CPU_TIME_MS, System.currentTimeMillis() - now);
       if (accepted) {
         errorBlock = _errorBlock.get();
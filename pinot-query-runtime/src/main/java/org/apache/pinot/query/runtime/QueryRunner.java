@@ -19,6 +19,7 @@
 package org.apache.pinot.query.runtime;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,9 +43,12 @@ import org.apache.pinot.query.routing.StagePlan;
 import org.apache.pinot.query.routing.WorkerMetadata;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.executor.ExecutorServiceUtils;
+import org.apache.pinot.query.runtime.executor.FairOpChainSchedulerService;
 import org.apache.pinot.query.runtime.executor.OpChainSchedulerService;
+import org.apache.pinot.query.runtime.executor.WeightedFairOpChainScheduler;
 import org.apache.pinot.query.runtime.operator.MailboxSendOperator;
 import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.operator.utils.RowBlockSpillFile;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.query.runtime.plan.PhysicalPlanVisitor;
 import org.apache.pinot.query.runtime.plan.pipeline.PipelineBreakerExecutor;
@@ -71,6 +75,9 @@ public class QueryRunner {
 
   private ExecutorService _executorService;
   private OpChainSchedulerService _opChainScheduler;
+  // Only set when the fair OpChain scheduler is used, otherwise the OpChains are executed with _executorService
+  @Nullable
+  private ExecutorService _opChainExecutorService;
   private MailboxService _mailboxService;
   private QueryExecutor _leafQueryExecutor;
 
@@ -114,10 +121,30 @@ public class QueryRunner {
     _maxRowsInJoin = maxRowsInJoinStr != null ? Integer.parseInt(maxRowsInJoinStr) : null;
     String joinOverflowModeStr = config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_JOIN_OVERFLOW_MODE);
     _joinOverflowMode = joinOverflowModeStr != null ? JoinOverFlowMode.valueOf(joinOverflowModeStr) : null;
+    String spillDir = config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_SPILL_DIR);
+    if (spillDir != null) {
+      RowBlockSpillFile.setDefaultSpillDir(new File(spillDir));
+      LOGGER.info("Using spill directory: {}", spillDir);
+    }
 
     //TODO: make this configurable
     _executorService = ExecutorServiceUtils.createDefault("query-runner-on-" + port);
-    _opChainScheduler = new OpChainSchedulerService(_executorService);
+    String opChainSchedulerType =
+        config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_OPCHAIN_SCHEDULER_TYPE,
+            CommonConstants.MultiStageQueryRunner.DEFAULT_OPCHAIN_SCHEDULER_TYPE);
+    if (CommonConstants.MultiStageQueryRunner.FAIR_OPCHAIN_SCHEDULER_TYPE.equalsIgnoreCase(opChainSchedulerType)) {
+      int numThreads = config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_OPCHAIN_SCHEDULER_NUM_THREADS,
+          Runtime.getRuntime().availableProcessors());
+      long timeSliceMs =
+          config.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_OPCHAIN_SCHEDULER_TIME_SLICE_MS,
+              CommonConstants.MultiStageQueryRunner.DEFAULT_OPCHAIN_SCHEDULER_TIME_SLICE_MS);
+      _opChainExecutorService = ExecutorServiceUtils.createWorkStealing("opchain-worker-on-" + port, numThreads);
+      _opChainScheduler = new FairOpChainSchedulerService(_opChainExecutorService, new WeightedFairOpChainScheduler(),
+          timeSliceMs);
+      LOGGER.info("Using fair OpChain scheduler with {} threads and time slice: {}ms", numThreads, timeSliceMs);
+    } else {
+      _opChainScheduler = new OpChainSchedulerService(_executorService);
+    }
     _mailboxService = new MailboxService(hostname, port, config);
     try {
       _leafQueryExecutor = new ServerQueryExecutorV1Impl();
@@ -144,6 +171,10 @@ public class QueryRunner {
     _leafQueryExecutor.shutDown();
     _mailboxService.shutdown();
     ExecutorServiceUtils.close(_executorService);
+    if (_opChainExecutorService != null) {
+      ((FairOpChainSchedulerService) _opChainScheduler).shutDown();
+      ExecutorServiceUtils.close(_opChainExecutorService);
+    }
   }
 
   /**
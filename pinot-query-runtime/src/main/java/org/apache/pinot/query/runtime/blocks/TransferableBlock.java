@@ -86,6 +86,17 @@ public class TransferableBlock implements Block {
     _errCodeToExceptionMap = null;
   }
 
+  /**
+   * Constructs the no-op block, see {@link TransferableBlockUtils#getNoOpTransferableBlock()}.
+   */
+  TransferableBlock() {
+    _queryStats = null;
+    _type = DataBlock.Type.METADATA;
+    _numRows = 0;
+    _dataSchema = null;
+    _errCodeToExceptionMap = null;
+  }
+
   public List<ByteBuffer> getSerializedStatsByStage() {
     if (isSuccessfulEndOfStreamBlock()) {
       List<ByteBuffer> statsByStage;
@@ -169,6 +180,7 @@ public class TransferableBlock implements Block {
             _dataBlock = DataBlockBuilder.buildFromColumns(_container, _dataSchema);
             break;
           case METADATA:
+            Preconditions.checkState(!isNoOpBlock(), "No-op block cannot be serialized");
             _dataBlock = new MetadataBlock(getSerializedStatsByStage());
             break;
           default:
@@ -224,6 +236,14 @@ public class TransferableBlock implements Block {
     return _type != DataBlock.Type.METADATA;
   }
 
+  /**
+   * Returns whether the block is the no-op block returned instead of blocking when no input is available yet. It does
+   * not carry any data, and the operators should return it as is to give the thread back to the OpChain scheduler.
+   */
+  public boolean isNoOpBlock() {
+    return this == TransferableBlockUtils.getNoOpTransferableBlock();
+  }
+
   /**
    * Return whether a transferable block contains exception.
    *
@@ -241,13 +261,18 @@ public class TransferableBlock implements Block {
     if (_queryStats != null) {
       return MetadataBlock.MetadataBlockType.EOS == type;
     }
+    if (_dataBlock == null) {
+      // No-op block
+      return false;
+    }
     MetadataBlock metadata = (MetadataBlock) _dataBlock;
     return metadata.getType() == type;
   }
 
   @Override
   public String toString() {
-    String blockType = isErrorBlock() ? "error" : isSuccessfulEndOfStreamBlock() ? "eos" : "data";
+    String blockType =
+        isErrorBlock() ? "error" : isSuccessfulEndOfStreamBlock() ? "eos" : isNoOpBlock() ? "noop" : "data";
     return "TransferableBlock{blockType=" + blockType + ", _numRows=" + _numRows + '}';
   }
 }
@@ -28,11 +28,13 @@ import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.datablock.DataBlockUtils;
 import org.apache.pinot.common.datablock.MetadataBlock;
 import org.apache.pinot.query.runtime.plan.MultiStageQueryStats;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 
 
 public final class TransferableBlockUtils {
   private static final int MEDIAN_COLUMN_SIZE_BYTES = 8;
   private static final TransferableBlock EMPTY_EOS = new TransferableBlock(MetadataBlock.newEos());
+  private static final TransferableBlock NOOP = new TransferableBlock();
 
   private TransferableBlockUtils() {
     // do not instantiate.
@@ -46,6 +48,15 @@ public final class TransferableBlockUtils {
     return new TransferableBlock(stats);
   }
 
+  /**
+   * Returns the block returned by the operators instead of blocking when no input is available yet, so that the OpChain
+   * can be suspended until new data arrives (see {@link OpChainExecutionContext#isYieldOnNoInput()}). The no-op block
+   * never leaves the OpChain.
+   */
+  public static TransferableBlock getNoOpTransferableBlock() {
+    return NOOP;
+  }
+
   public static TransferableBlock wrap(DataBlock dataBlock) {
     return new TransferableBlock(dataBlock);
   }
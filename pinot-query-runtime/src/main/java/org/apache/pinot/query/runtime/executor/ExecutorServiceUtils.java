@@ -21,6 +21,8 @@ package org.apache.pinot.query.runtime.executor;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeUnit;
 import org.apache.pinot.common.utils.NamedThreadFactory;
 import org.apache.pinot.spi.env.PinotConfiguration;
@@ -31,6 +33,7 @@ import org.slf4j.LoggerFactory;
 public class ExecutorServiceUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorServiceUtils.class);
   private static final long DEFAULT_TERMINATION_MILLIS = 30_000;
+  private static final long WORK_STEALING_KEEP_ALIVE_SECONDS = 60;
 
   private ExecutorServiceUtils() {
   }
@@ -39,6 +42,20 @@ public class ExecutorServiceUtils {
     return Executors.newCachedThreadPool(new NamedThreadFactory(baseName));
   }
 
+  /**
+   * Creates a work-stealing pool with the given parallelism. Tasks blocking through {@link ManagedBlockingUtils} are
+   * compensated with extra threads, up to {@code 2 * parallelism} threads in total. Once the maximum is reached, the
+   * blocked tasks are no longer compensated instead of failing, and the pool runs with reduced parallelism until they
+   * are released.
+   */
+  public static ForkJoinPool createWorkStealing(String baseName, int parallelism) {
+    return new ForkJoinPool(parallelism, pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName(baseName + "-" + thread.getPoolIndex());
+      return thread;
+    }, null, true, parallelism, 2 * parallelism, 1, pool -> true, WORK_STEALING_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
   public static ExecutorService create(PinotConfiguration conf, String confPrefix, String baseName) {
     //TODO: make this configurable
     return Executors.newCachedThreadPool(new NamedThreadFactory(baseName));
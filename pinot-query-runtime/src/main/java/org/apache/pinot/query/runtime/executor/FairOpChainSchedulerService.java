@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.utils.NamedThreadFactory;
+import org.apache.pinot.core.util.trace.TraceRunnable;
+import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.operator.OpChainId;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.apache.pinot.spi.exception.QueryCancelledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An {@link OpChainSchedulerService} that runs the OpChains cooperatively in time slices on a bounded executor.
+ *
+ * <p>Instead of dedicating a thread to each OpChain until it finishes, an OpChain runs until it reaches the end of
+ * stream or its time slice is used up, after which it is given back to the {@link WeightedFairOpChainScheduler} and the
+ * thread picks the next OpChain to run. This bounds the number of threads, and shares them fairly between the queries.
+ *
+ * <p>The OpChains do not block the thread while waiting for input: when none of its mailboxes (or leaf stage results)
+ * has data, the OpChain returns the no-op block (see {@link OpChainExecutionContext#isYieldOnNoInput()}), and is
+ * suspended in the scheduler until new data is notified through the mailbox reader callback, or its deadline is
+ * reached. The only remaining blocking wait is the backpressure of the in-memory sending mailbox, which goes through
+ * {@link ManagedBlockingUtils} so that the bounded work-stealing pool (see
+ * {@link ExecutorServiceUtils#createWorkStealing}) can compensate the blocked worker.
+ */
+public class FairOpChainSchedulerService extends OpChainSchedulerService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FairOpChainSchedulerService.class);
+
+  private final ExecutorService _executorService;
+  private final WeightedFairOpChainScheduler _scheduler;
+  private final long _timeSliceNs;
+  // Threads running the OpChains, used to interrupt them on cancellation
+  private final ConcurrentHashMap<OpChainId, Thread> _runningOpChainMap = new ConcurrentHashMap<>();
+  // Wakes up the suspended OpChains when they reach the deadline, so that they can time out
+  private final ScheduledThreadPoolExecutor _deadlineExecutor =
+      new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("opchain-deadline"));
+  private final ConcurrentHashMap<OpChain, ScheduledFuture<?>> _deadlineFutureMap = new ConcurrentHashMap<>();
+
+  public FairOpChainSchedulerService(ExecutorService executorService, WeightedFairOpChainScheduler scheduler,
+      long timeSliceMs) {
+    super(executorService);
+    _executorService = executorService;
+    _scheduler = scheduler;
+    _timeSliceNs = TimeUnit.MILLISECONDS.toNanos(timeSliceMs);
+    // Do not keep the timers of the finished OpChains until their deadline
+    _deadlineExecutor.setRemoveOnCancelPolicy(true);
+  }
+
+  @Override
+  public void register(OpChain operatorChain) {
+    OpChainId opChainId = operatorChain.getId();
+    OpChainExecutionContext context = operatorChain.getContext();
+    context.setDataAvailableCallback(() -> resume(opChainId));
+    // Wake up slightly after the deadline so that the operators observe the timeout
+    long delayMs = context.getDeadlineMs() - System.currentTimeMillis() + 1;
+    _deadlineFutureMap.put(operatorChain,
+        _deadlineExecutor.schedule(() -> resume(opChainId), delayMs, TimeUnit.MILLISECONDS));
+    // OpChains of a cancelled query are still scheduled, and cancelled when they are picked up
+    _scheduler.register(operatorChain);
+    dispatch();
+  }
+
+  private void resume(OpChainId opChainId) {
+    if (_scheduler.resume(opChainId)) {
+      dispatch();
+    }
+  }
+
+  private void dispatch() {
+    _executorService.execute(new TraceRunnable() {
+      @Override
+      public void runJob() {
+        OpChain operatorChain;
+        try {
+          operatorChain = _scheduler.next(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        // Each dispatched task matches an enqueued OpChain, but the OpChain might have been removed on cancellation
+        if (operatorChain != null) {
+          runTimeSlice(operatorChain);
+        }
+      }
+    });
+  }
+
+  private void runTimeSlice(OpChain operatorChain) {
+    OpChainId opChainId = operatorChain.getId();
+    _runningOpChainMap.put(opChainId, Thread.currentThread());
+    boolean isFinished = false;
+    boolean noInput = false;
+    TransferableBlock returnedErrorBlock = null;
+    Throwable thrown = null;
+    try {
+      if (_scheduler.isCancelled(opChainId.getRequestId())) {
+        throw new QueryCancelledException("Query is cancelled");
+      }
+      LOGGER.trace("({}): Executing", operatorChain);
+      long deadlineNs = System.nanoTime() + _timeSliceNs;
+      TransferableBlock result = operatorChain.getRoot().nextBlock();
+      while (!result.isEndOfStreamBlock() && !result.isNoOpBlock() && System.nanoTime() < deadlineNs) {
+        result = operatorChain.getRoot().nextBlock();
+      }
+      if (result.isNoOpBlock()) {
+        noInput = true;
+      } else if (result.isEndOfStreamBlock()) {
+        isFinished = true;
+        if (result.isErrorBlock()) {
+          returnedErrorBlock = result;
+          LOGGER.error("({}): Completed erroneously {} {}", operatorChain, result.getQueryStats(),
+              result.getExceptions());
+        } else {
+          LOGGER.debug("({}): Completed {}", operatorChain, result.getQueryStats());
+        }
+      }
+    } catch (Exception e) {
+      LOGGER.error("({}): Failed to execute operator chain!", operatorChain, e);
+      thrown = e;
+    } finally {
+      // Remove the thread before clearing the interrupted flag so that it cannot be interrupted for this OpChain
+      // after it moves on to the next one
+      _runningOpChainMap.remove(opChainId);
+      boolean interrupted = Thread.interrupted();
+      if (!isFinished && thrown == null && (interrupted || _scheduler.isCancelled(opChainId.getRequestId()))) {
+        thrown = new QueryCancelledException("Query is cancelled");
+      }
+      if (returnedErrorBlock != null || thrown != null) {
+        deregister(operatorChain);
+        if (thrown == null) {
+          thrown = new RuntimeException("Error block " + returnedErrorBlock.getExceptions());
+        }
+        operatorChain.cancel(thrown);
+      } else if (isFinished) {
+        deregister(operatorChain);
+        operatorChain.close();
+      } else if (noInput) {
+        // Re-dispatched when new data arrives, unless some already arrived while running
+        if (_scheduler.suspend(operatorChain)) {
+          dispatch();
+        }
+      } else {
+        _scheduler.requeue(operatorChain);
+        dispatch();
+      }
+    }
+  }
+
+  @Override
+  public void cancel(long requestId) {
+    QueryCancelledException exception = new QueryCancelledException("Query is cancelled");
+    for (OpChain operatorChain : _scheduler.cancel(requestId)) {
+      deregister(operatorChain);
+      operatorChain.cancel(exception);
+    }
+    for (OpChainId opChainId : _runningOpChainMap.keySet()) {
+      if (opChainId.getRequestId() == requestId) {
+        // Interrupt atomically with the removal in runTimeSlice() so that only the thread running this OpChain can be
+        // interrupted
+        _runningOpChainMap.computeIfPresent(opChainId, (id, thread) -> {
+          thread.interrupt();
+          return thread;
+        });
+      }
+    }
+  }
+
+  private void deregister(OpChain operatorChain) {
+    _scheduler.deregister(operatorChain);
+    ScheduledFuture<?> deadlineFuture = _deadlineFutureMap.remove(operatorChain);
+    if (deadlineFuture != null) {
+      deadlineFuture.cancel(false);
+    }
+  }
+
+  /**
+   * Stops the deadline timer. The executor is owned and shut down by the caller.
+   */
+  public void shutDown() {
+    _deadlineExecutor.shutdownNow();
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Utility methods to wait on blocking queues from the OpChain threads.
+ *
+ * <p>The OpChains run by the {@link FairOpChainSchedulerService} never wait for input (they are suspended instead), but
+ * the in-memory sending mailbox still blocks the sender while the receiving mailbox is full. When called from a
+ * {@link ForkJoinPool} worker, the wait is performed through {@link ForkJoinPool#managedBlock}, so that the pool can
+ * activate a spare thread (up to its maximum pool size) to run the receiving OpChain, which avoids deadlocks where all
+ * the workers wait for OpChains that cannot be scheduled. When called from any other thread, it behaves exactly like
+ * the plain blocking call.
+ */
+public class ManagedBlockingUtils {
+  private ManagedBlockingUtils() {
+  }
+
+  /**
+   * Same as {@link BlockingQueue#offer(Object, long, TimeUnit)}.
+   */
+  public static <E> boolean offer(BlockingQueue<E> queue, E element, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+      return queue.offer(element, timeout, unit);
+    }
+    if (queue.offer(element)) {
+      return true;
+    }
+    if (timeout <= 0) {
+      return false;
+    }
+    OfferBlocker<E> blocker = new OfferBlocker<>(queue, element, timeout, unit);
+    ForkJoinPool.managedBlock(blocker);
+    return blocker._accepted;
+  }
+
+  private static class OfferBlocker<E> implements ForkJoinPool.ManagedBlocker {
+    final BlockingQueue<E> _queue;
+    final E _element;
+    final long _timeout;
+    final TimeUnit _unit;
+    boolean _done;
+    boolean _accepted;
+
+    OfferBlocker(BlockingQueue<E> queue, E element, long timeout, TimeUnit unit) {
+      _queue = queue;
+      _element = element;
+      _timeout = timeout;
+      _unit = unit;
+    }
+
+    @Override
+    public boolean block()
+        throws InterruptedException {
+      if (!_done) {
+        _accepted = _queue.offer(_element, _timeout, _unit);
+        _done = true;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      if (!_done) {
+        _accepted = _queue.offer(_element);
+        _done = _accepted;
+      }
+      return _done;
+    }
+  }
+}
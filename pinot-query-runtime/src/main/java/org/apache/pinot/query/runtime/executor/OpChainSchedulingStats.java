@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Scheduling statistics of a single OpChain, recorded by the schedulers that time-slice the OpChains (e.g.
+ * {@link FairOpChainSchedulerService}) and reported in the stats of the root operator of the OpChain.
+ *
+ * <p>Besides the totals, the queue wait time and the run time of each time slice are recorded into histograms with
+ * power of 2 millisecond buckets ([0, 1), [1, 2), [2, 4), ...).
+ */
+@ThreadSafe
+public class OpChainSchedulingStats {
+  public static final int NUM_HISTOGRAM_BUCKETS = 16;
+
+  private final long[] _queueWaitHistogram = new long[NUM_HISTOGRAM_BUCKETS];
+  private final long[] _runTimeHistogram = new long[NUM_HISTOGRAM_BUCKETS];
+  private int _numSlices;
+  private long _queueWaitTimeMs;
+  private long _maxQueueWaitTimeMs;
+  private long _runTimeMs;
+
+  public synchronized void recordQueueWait(long queueWaitTimeMs) {
+    _queueWaitHistogram[getBucket(queueWaitTimeMs)]++;
+    _queueWaitTimeMs += queueWaitTimeMs;
+    _maxQueueWaitTimeMs = Math.max(_maxQueueWaitTimeMs, queueWaitTimeMs);
+  }
+
+  public synchronized void recordRunTime(long runTimeMs) {
+    _runTimeHistogram[getBucket(runTimeMs)]++;
+    _numSlices++;
+    _runTimeMs += runTimeMs;
+  }
+
+  /**
+   * Returns the histogram bucket for the given value: 0 for [0, 1), i for [2^(i-1), 2^i), and the last bucket for all
+   * the values above.
+   */
+  public static int getBucket(long valueMs) {
+    if (valueMs <= 0) {
+      return 0;
+    }
+    return Math.min(64 - Long.numberOfLeadingZeros(valueMs), NUM_HISTOGRAM_BUCKETS - 1);
+  }
+
+  public synchronized int getNumSlices() {
+    return _numSlices;
+  }
+
+  public synchronized long getQueueWaitTimeMs() {
+    return _queueWaitTimeMs;
+  }
+
+  public synchronized long getMaxQueueWaitTimeMs() {
+    return _maxQueueWaitTimeMs;
+  }
+
+  public synchronized long getRunTimeMs() {
+    return _runTimeMs;
+  }
+
+  public synchronized long[] getQueueWaitHistogram() {
+    return _queueWaitHistogram.clone();
+  }
+
+  public synchronized long[] getRunTimeHistogram() {
+    return _runTimeHistogram.clone();
+  }
+
+  /**
+   * Formats the non-empty buckets of the histogram as {@code [lower-upper)ms:count} pairs.
+   */
+  public static String formatHistogram(long[] histogram) {
+    StringBuilder stringBuilder = new StringBuilder("{");
+    for (int i = 0; i < histogram.length; i++) {
+      if (histogram[i] > 0) {
+        if (stringBuilder.length() > 1) {
+          stringBuilder.append(',');
+        }
+        long lower = i == 0 ? 0 : 1L << (i - 1);
+        stringBuilder.append('[').append(lower).append('-');
+        if (i == histogram.length - 1) {
+          stringBuilder.append("inf");
+        } else {
+          stringBuilder.append(1L << i);
+        }
+        stringBuilder.append(")ms:").append(histogram[i]);
+      }
+    }
+    return stringBuilder.append('}').toString();
+  }
+}
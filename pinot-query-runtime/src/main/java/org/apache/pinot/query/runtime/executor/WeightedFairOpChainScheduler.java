@@ -0,0 +1,440 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerTimer;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.operator.OpChainId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An {@link OpChainScheduler} that shares the worker threads between the queries with weighted fair queuing.
+ *
+ * <p>OpChains are grouped by request id. Each query has a virtual time which is advanced by the time its OpChains run
+ * divided by its weight (see {@code opChainSchedulingWeight} query option), and {@link #next} always returns a ready
+ * OpChain of the query with the smallest virtual time. A query that becomes ready after being idle starts from the
+ * current virtual time of the scheduler, so that it cannot accumulate credit while idle. Within a query, OpChains are
+ * returned in FIFO order.
+ *
+ * <p>The OpChains returned by {@link #next} are expected to run for a time slice and then be given back with
+ * {@link #requeue} (time slice used up), {@link #suspend} (no input available) or {@link #deregister} (finished). A
+ * suspended OpChain is not returned by {@link #next} until {@link #resume} is called for it when new input arrives. The
+ * queue wait and run time of every time slice are tracked in the {@link OpChainSchedulingStats} of the OpChain and of
+ * the query, and exported as server metrics.
+ */
+@ThreadSafe
+public class WeightedFairOpChainScheduler implements OpChainScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(WeightedFairOpChainScheduler.class);
+  private static final int DEFAULT_WEIGHT = 1;
+
+  private final LongSupplier _nanoClock;
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final Condition _notEmpty = _lock.newCondition();
+  private final Map<Long, QueryGroup> _queryGroups = new HashMap<>();
+  private final Map<OpChainId, OpChainEntry> _opChainEntries = new HashMap<>();
+  // Ready queries ordered by virtual time, then by arrival order
+  private final PriorityQueue<QueryGroup> _readyQueryGroups = new PriorityQueue<>(
+      Comparator.comparingDouble((QueryGroup group) -> group._virtualTime)
+          .thenComparingLong(group -> group._sequenceId));
+
+  private double _virtualTime;
+  private long _nextSequenceId;
+
+  public WeightedFairOpChainScheduler() {
+    this(System::nanoTime);
+  }
+
+  @VisibleForTesting
+  WeightedFairOpChainScheduler(LongSupplier nanoClock) {
+    _nanoClock = nanoClock;
+  }
+
+  /**
+   * Registers the OpChain, which is ready to run.
+   */
+  @Override
+  public void register(OpChain operatorChain) {
+    _lock.lock();
+    try {
+      long requestId = operatorChain.getId().getRequestId();
+      QueryGroup group = _queryGroups.get(requestId);
+      if (group == null) {
+        group = new QueryGroup(requestId, getWeight(operatorChain), _nextSequenceId++);
+        _queryGroups.put(requestId, group);
+      }
+      OpChainEntry entry = new OpChainEntry(operatorChain, group);
+      _opChainEntries.put(operatorChain.getId(), entry);
+      group._numOpChains++;
+      enqueue(entry);
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  private static int getWeight(OpChain operatorChain) {
+    Integer weight = QueryOptionsUtils.getOpChainSchedulingWeight(operatorChain.getContext().getOpChainMetadata());
+    return weight != null && weight > 0 ? weight : DEFAULT_WEIGHT;
+  }
+
+  @Override
+  public void deregister(OpChain operatorChain) {
+    _lock.lock();
+    try {
+      OpChainEntry entry = _opChainEntries.remove(operatorChain.getId());
+      if (entry == null) {
+        return;
+      }
+      QueryGroup group = entry._group;
+      charge(entry);
+      if (entry._state == State.QUEUED) {
+        removeFromQueue(entry);
+      } else if (entry._state == State.SUSPENDED) {
+        group._suspendedOpChains.remove(entry);
+      }
+      if (--group._numOpChains == 0) {
+        _queryGroups.remove(group._requestId);
+        OpChainSchedulingStats stats = group._stats;
+        ServerMetrics serverMetrics = ServerMetrics.get();
+        serverMetrics.addTimedValue(ServerTimer.MULTI_STAGE_QUERY_OPCHAIN_QUEUE_WAIT_MS, stats.getQueueWaitTimeMs(),
+            TimeUnit.MILLISECONDS);
+        serverMetrics.addTimedValue(ServerTimer.MULTI_STAGE_QUERY_OPCHAIN_RUN_TIME_MS, stats.getRunTimeMs(),
+            TimeUnit.MILLISECONDS);
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("Finished scheduling request: {} with {} slices, queue wait time: {}ms (histogram: {}), run "
+                  + "time: {}ms (histogram: {})", group._requestId, stats.getNumSlices(), stats.getQueueWaitTimeMs(),
+              OpChainSchedulingStats.formatHistogram(stats.getQueueWaitHistogram()), stats.getRunTimeMs(),
+              OpChainSchedulingStats.formatHistogram(stats.getRunTimeHistogram()));
+        }
+      }
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Same as {@link #suspend}.
+   */
+  @Override
+  public void yield(OpChain opChain) {
+    suspend(opChain);
+  }
+
+  /**
+   * Suspends the running OpChain until {@link #resume} is called for it. Returns {@code true} if new input arrived
+   * while the OpChain was running (or the query is cancelled), in which case the OpChain is put back into the queue
+   * right away.
+   */
+  public boolean suspend(OpChain opChain) {
+    _lock.lock();
+    try {
+      OpChainEntry entry = _opChainEntries.get(opChain.getId());
+      if (entry == null) {
+        return false;
+      }
+      charge(entry);
+      if (entry._dataAvailable || entry._group._cancelled) {
+        enqueue(entry);
+        return true;
+      }
+      entry._state = State.SUSPENDED;
+      entry._group._suspendedOpChains.add(entry);
+      return false;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Puts the running OpChain back into the queue after its time slice is used up.
+   */
+  public void requeue(OpChain opChain) {
+    _lock.lock();
+    try {
+      OpChainEntry entry = _opChainEntries.get(opChain.getId());
+      if (entry == null) {
+        return;
+      }
+      charge(entry);
+      enqueue(entry);
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Same as {@link #resume}.
+   */
+  @Override
+  public void onDataAvailable(OpChainId opChainId) {
+    resume(opChainId);
+  }
+
+  /**
+   * Called when new input is available for the OpChain. Returns {@code true} if the OpChain was suspended and is put
+   * back into the queue. If the OpChain is running, it is put back into the queue right away when it gets suspended.
+   * This method may be called for an OpChain that is not registered, which is ignored.
+   */
+  public boolean resume(OpChainId opChainId) {
+    _lock.lock();
+    try {
+      OpChainEntry entry = _opChainEntries.get(opChainId);
+      if (entry == null) {
+        return false;
+      }
+      switch (entry._state) {
+        case SUSPENDED:
+          entry._group._suspendedOpChains.remove(entry);
+          enqueue(entry);
+          return true;
+        case RUNNING:
+          entry._dataAvailable = true;
+          return false;
+        default:
+          return false;
+      }
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Nullable
+  @Override
+  public OpChain next(long time, TimeUnit timeUnit)
+      throws InterruptedException {
+    long remainingNs = timeUnit.toNanos(time);
+    _lock.lockInterruptibly();
+    try {
+      while (_readyQueryGroups.isEmpty()) {
+        if (remainingNs <= 0) {
+          return null;
+        }
+        remainingNs = _notEmpty.awaitNanos(remainingNs);
+      }
+      QueryGroup group = _readyQueryGroups.poll();
+      OpChainEntry entry = group._readyOpChains.poll();
+      if (!group._readyOpChains.isEmpty()) {
+        _readyQueryGroups.add(group);
+      }
+      _virtualTime = Math.max(_virtualTime, group._virtualTime);
+
+      // The OpChain reads all the available input when it runs, so the previous notifications can be ignored
+      entry._state = State.RUNNING;
+      entry._dataAvailable = false;
+      OpChain opChain = entry._opChain;
+      long nowNs = _nanoClock.getAsLong();
+      long queueWaitTimeMs = TimeUnit.NANOSECONDS.toMillis(nowNs - entry._enqueueTimeNs);
+      opChain.getContext().getSchedulingStats().recordQueueWait(queueWaitTimeMs);
+      group._stats.recordQueueWait(queueWaitTimeMs);
+      ServerMetrics.get().addTimedValue(ServerTimer.MULTI_STAGE_OPCHAIN_QUEUE_WAIT_MS, queueWaitTimeMs,
+          TimeUnit.MILLISECONDS);
+      entry._runStartTimeNs = nowNs;
+      return opChain;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    _lock.lock();
+    try {
+      return _opChainEntries.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  @Override
+  public void shutdownNow() {
+    _lock.lock();
+    try {
+      _queryGroups.clear();
+      _opChainEntries.clear();
+      _readyQueryGroups.clear();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Marks the query as cancelled, and returns the OpChains of the query waiting in the queue or suspended. The returned
+   * OpChains are no longer returned by {@link #next}, but still need to be de-registered. OpChains of the query
+   * registered, requeued or suspended afterward are still queued, and the caller should check {@link #isCancelled}
+   * before running them.
+   */
+  public List<OpChain> cancel(long requestId) {
+    _lock.lock();
+    try {
+      QueryGroup group = _queryGroups.get(requestId);
+      if (group == null) {
+        return List.of();
+      }
+      group._cancelled = true;
+      int numCancelled = group._readyOpChains.size() + group._suspendedOpChains.size();
+      if (numCancelled == 0) {
+        return List.of();
+      }
+      _readyQueryGroups.remove(group);
+      List<OpChain> opChains = new ArrayList<>(numCancelled);
+      for (OpChainEntry entry : group._readyOpChains) {
+        entry._state = State.CANCELLED;
+        opChains.add(entry._opChain);
+      }
+      group._readyOpChains.clear();
+      for (OpChainEntry entry : group._suspendedOpChains) {
+        entry._state = State.CANCELLED;
+        opChains.add(entry._opChain);
+      }
+      group._suspendedOpChains.clear();
+      return opChains;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  public boolean isCancelled(long requestId) {
+    _lock.lock();
+    try {
+      QueryGroup group = _queryGroups.get(requestId);
+      return group != null && group._cancelled;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the scheduling stats of the query, or {@code null} if the query has no registered OpChain.
+   */
+  @Nullable
+  public OpChainSchedulingStats getQueryStats(long requestId) {
+    _lock.lock();
+    try {
+      QueryGroup group = _queryGroups.get(requestId);
+      return group != null ? group._stats : null;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  private void enqueue(OpChainEntry entry) {
+    QueryGroup group = entry._group;
+    entry._state = State.QUEUED;
+    entry._enqueueTimeNs = _nanoClock.getAsLong();
+    if (group._readyOpChains.isEmpty()) {
+      // Do not let an idle query accumulate credit
+      group._virtualTime = Math.max(group._virtualTime, _virtualTime);
+      group._readyOpChains.add(entry);
+      _readyQueryGroups.add(group);
+      _notEmpty.signal();
+    } else {
+      group._readyOpChains.add(entry);
+    }
+  }
+
+  private void removeFromQueue(OpChainEntry entry) {
+    QueryGroup group = entry._group;
+    if (group._readyOpChains.remove(entry) && group._readyOpChains.isEmpty()) {
+      _readyQueryGroups.remove(group);
+    }
+  }
+
+  /**
+   * Charges the run time of the last time slice of the OpChain to its query.
+   */
+  private void charge(OpChainEntry entry) {
+    if (entry._state != State.RUNNING) {
+      return;
+    }
+    QueryGroup group = entry._group;
+    long runTimeNs = _nanoClock.getAsLong() - entry._runStartTimeNs;
+    long runTimeMs = TimeUnit.NANOSECONDS.toMillis(runTimeNs);
+    entry._opChain.getContext().getSchedulingStats().recordRunTime(runTimeMs);
+    group._stats.recordRunTime(runTimeMs);
+    ServerMetrics.get().addTimedValue(ServerTimer.MULTI_STAGE_OPCHAIN_SLICE_RUN_TIME_MS, runTimeMs,
+        TimeUnit.MILLISECONDS);
+    // The priority queue needs to be re-ordered when the virtual time of a ready query changes
+    boolean ready = !group._readyOpChains.isEmpty();
+    if (ready) {
+      _readyQueryGroups.remove(group);
+    }
+    group._virtualTime += (double) runTimeNs / group._weight;
+    if (ready) {
+      _readyQueryGroups.add(group);
+    }
+    // Not in the queue until it is requeued or resumed
+    entry._state = State.SUSPENDED;
+  }
+
+  private enum State {
+    QUEUED, RUNNING, SUSPENDED, CANCELLED
+  }
+
+  private static class QueryGroup {
+    final long _requestId;
+    final int _weight;
+    final long _sequenceId;
+    final ArrayDeque<OpChainEntry> _readyOpChains = new ArrayDeque<>();
+    final Set<OpChainEntry> _suspendedOpChains = new HashSet<>();
+    final OpChainSchedulingStats _stats = new OpChainSchedulingStats();
+    double _virtualTime;
+    int _numOpChains;
+    boolean _cancelled;
+
+    QueryGroup(long requestId, int weight, long sequenceId) {
+      _requestId = requestId;
+      _weight = weight;
+      _sequenceId = sequenceId;
+    }
+  }
+
+  private static class OpChainEntry {
+    final OpChain _opChain;
+    final QueryGroup _group;
+    State _state;
+    // Whether new input arrived while the OpChain is running
+    boolean _dataAvailable;
+    long _enqueueTimeNs;
+    long _runStartTimeNs;
+
+    OpChainEntry(OpChain opChain, QueryGroup group) {
+      _opChain = opChain;
+      _group = group;
+    }
+  }
+}
@@ -136,8 +136,8 @@ public class AggregateOperator extends MultiStageOperator {
       return _eosBlock;
     }
     TransferableBlock finalBlock = _aggregationExecutor != null ? consumeAggregation() : consumeGroupBy();
-    // returning upstream error block if finalBlock contains error.
-    if (finalBlock.isErrorBlock()) {
+    // returning upstream error block if finalBlock contains error, or no-op block to continue consuming later.
+    if (finalBlock.isNoOpBlock() || finalBlock.isErrorBlock()) {
       return finalBlock;
     }
     assert finalBlock.isSuccessfulEndOfStreamBlock() : "Final block must be EOS block";
@@ -167,7 +167,7 @@ public class AggregateOperator extends MultiStageOperator {
   /**
    * Consumes the input blocks as a group by
    *
-   * @return the last block, which must always be either an error or the end of the stream
+   * @return the last block, which must always be either an error, the end of the stream or a no-op block
    */
   private TransferableBlock consumeGroupBy() {
     TransferableBlock block = _input.nextBlock();
@@ -181,7 +181,7 @@ public class AggregateOperator extends MultiStageOperator {
   /**
    * Consumes the input blocks as an aggregation
    *
-   * @return the last block, which must always be either an error or the end of the stream
+   * @return the last block, which must always be either an error, the end of the stream or a no-op block
    */
   private TransferableBlock consumeAggregation() {
     TransferableBlock block = _input.nextBlock();
@@ -99,7 +99,7 @@ public class FilterOperator extends MultiStageOperator {
     // TODO: Consider batching the rows to improve performance.
     while (true) {
       TransferableBlock block = _input.nextBlock();
-      if (block.isErrorBlock()) {
+      if (block.isNoOpBlock() || block.isErrorBlock()) {
         return block;
       }
       if (block.isSuccessfulEndOfStreamBlock()) {
@@ -19,9 +19,10 @@
 package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,16 +34,27 @@ import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.response.ProcessingException;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
 import org.apache.pinot.common.utils.config.QueryOptionsUtils;
+import org.apache.pinot.query.mailbox.SendingMailbox;
 import org.apache.pinot.query.planner.logical.RexExpression;
 import org.apache.pinot.query.planner.partitioning.KeySelector;
 import org.apache.pinot.query.planner.partitioning.KeySelectorFactory;
+import org.apache.pinot.query.planner.physical.MailboxIdUtils;
 import org.apache.pinot.query.planner.plannode.JoinNode;
+import org.apache.pinot.query.planner.plannode.MailboxReceiveNode;
 import org.apache.pinot.query.planner.plannode.PlanNode;
+import org.apache.pinot.query.routing.MailboxInfo;
+import org.apache.pinot.query.routing.RoutingInfo;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.join.JoinHashTable;
+import org.apache.pinot.query.runtime.operator.join.JoinHashTableFactory;
+import org.apache.pinot.query.runtime.operator.join.ObjectKeyJoinHashTable;
+import org.apache.pinot.query.runtime.operator.join.RuntimeJoinFilter;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperand;
 import org.apache.pinot.query.runtime.operator.operands.TransformOperandFactory;
+import org.apache.pinot.query.runtime.operator.utils.RowBlockSpillFile;
 import org.apache.pinot.query.runtime.plan.MultiStageQueryStats;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.utils.BooleanUtils;
@@ -54,7 +66,12 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This basic {@code BroadcastJoinOperator} implement a basic broadcast join algorithm.
- * This algorithm assumes that the broadcast table has to fit in memory since we are not supporting any spilling.
+ * By default, this algorithm assumes that the broadcast table has to fit in memory. When the join overflow mode is set
+ * to {@link JoinOverFlowMode#SPILL}, it falls back to a hybrid hash join once the hash table reaches the limit: the
+ * right table is partitioned by the join key, and the largest partitions are spilled to disk until the partitions kept
+ * in memory fit in the limit. The left rows of the partitions kept in memory are joined right away, and only the left
+ * rows of the spilled partitions are spilled. The spilled partitions are then joined one by one, so that only one
+ * partition of the right table needs to fit in memory at a time.
  *
  * For left join, inner join, right join and full join,
  * <p>It takes the right table as the broadcast side and materialize a hash table. Then for each of the left table row,
@@ -69,25 +86,30 @@ import org.slf4j.LoggerFactory;
 public class HashJoinOperator extends MultiStageOperator {
   private static final Logger LOGGER = LoggerFactory.getLogger(HashJoinOperator.class);
   private static final String EXPLAIN_NAME = "HASH_JOIN";
-  private static final int INITIAL_HEURISTIC_SIZE = 16;
   private static final int DEFAULT_MAX_ROWS_IN_JOIN = 1024 * 1024; // 2^20, around 1MM rows
   private static final JoinOverFlowMode DEFAULT_JOIN_OVERFLOW_MODE = JoinOverFlowMode.THROW;
+  private static final int DEFAULT_NUM_SPILL_PARTITIONS = 16;
 
   private static final Set<JoinRelType> SUPPORTED_JOIN_TYPES =
       Set.of(JoinRelType.INNER, JoinRelType.LEFT, JoinRelType.RIGHT, JoinRelType.FULL, JoinRelType.SEMI,
           JoinRelType.ANTI);
 
-  private final Map<Object, ArrayList<Object[]>> _broadcastRightTable;
+  // NOTE: Hash table and matched right rows are re-created for each partition when spilling.
+  // Created when the schema of the right table is known (first right block received).
+  private JoinHashTable _broadcastRightTable;
 
-  // Used to track matched right rows.
+  // Used to track matched right rows (indexed by the row index in the hash table).
   // Only used for right join and full join to output non-matched right rows.
-  private final Map<Object, BitSet> _matchedRightRows;
+  private BitSet _matchedRightRows;
 
   private final MultiStageOperator _leftInput;
   private final MultiStageOperator _rightInput;
   private final JoinRelType _joinType;
+  private final DataSchema _leftSchema;
   private final KeySelector<?> _leftKeySelector;
   private final KeySelector<?> _rightKeySelector;
+  private final List<Integer> _leftKeys;
+  private final List<Integer> _rightKeys;
   private final DataSchema _resultSchema;
   private final int _leftColumnSize;
   private final int _resultColumnSize;
@@ -101,11 +123,35 @@ public class HashJoinOperator extends MultiStageOperator {
    */
   private final int _maxRowsInHashTable;
   /**
-   * Mode when join overflow happens, supported values: THROW or BREAK.
+   * Mode when join overflow happens, supported values: THROW, BREAK or SPILL.
    *   THROW(default): Break right table build process, and throw exception, no JOIN with left table performed.
    *   BREAK: Break right table build process, continue to perform JOIN operation, results might be partial.
+   *   SPILL: Partition both tables into spill files, and perform JOIN operation partition by partition.
    */
   private final JoinOverFlowMode _joinOverflowMode;
+  /**
+   * Number of partitions to split the tables into when spilling.
+   */
+  private final int _numSpillPartitions;
+
+  // Below are used only when the hash table is spilled to disk. The spill files of a partition are only created when
+  // the partition is spilled, and the right rows of the partitions not spilled are kept in memory until the right
+  // table is fully consumed.
+  private DataSchema _rightSchema;
+  private List<Object[]>[] _residentRightRows;
+  private int _numResidentRightRows;
+  private RowBlockSpillFile[] _rightSpillFiles;
+  private RowBlockSpillFile[] _leftSpillFiles;
+  private int _currentSpillPartition = -1;
+  private RowBlockSpillFile.Reader _currentLeftSpillReader;
+
+  // Below are used only when the runtime filter is enabled, where the filter built from the right table join keys is
+  // sent to the leaf stage sending the left table rows (stage id: _runtimeFilterLeftStageId) once the hash table is
+  // built. The filter is null when none of the join keys is supported, in which case only the EOS is sent.
+  private final RuntimeJoinFilter _runtimeFilter;
+  private final int[] _runtimeFilterRightKeys;
+  private final int _runtimeFilterLeftStageId;
+  private boolean _runtimeFilterPending;
 
   private boolean _isHashTableBuilt;
   private int _currentRowsInHashTable;
@@ -122,8 +168,11 @@ public class HashJoinOperator extends MultiStageOperator {
     Preconditions.checkState(SUPPORTED_JOIN_TYPES.contains(node.getJoinType()),
         "Join type: " + node.getJoinType() + " is not supported!");
     _joinType = node.getJoinType();
+    _leftSchema = leftSchema;
     _leftKeySelector = KeySelectorFactory.getKeySelector(node.getLeftKeys());
     _rightKeySelector = KeySelectorFactory.getKeySelector(node.getRightKeys());
+    _leftKeys = node.getLeftKeys();
+    _rightKeys = node.getRightKeys();
     _leftColumnSize = leftSchema.size();
     _resultSchema = node.getDataSchema();
     _resultColumnSize = _resultSchema.size();
@@ -137,16 +186,40 @@ public class HashJoinOperator extends MultiStageOperator {
     for (RexExpression nonEquiCondition : nonEquiConditions) {
       _nonEquiEvaluators.add(TransformOperandFactory.getTransformOperand(nonEquiCondition, _resultSchema));
     }
-    _broadcastRightTable = new HashMap<>();
-    if (needUnmatchedRightRows()) {
-      _matchedRightRows = new HashMap<>();
-    } else {
-      _matchedRightRows = null;
-    }
     Map<String, String> metadata = context.getOpChainMetadata();
     PlanNode.NodeHint nodeHint = node.getNodeHint();
     _maxRowsInHashTable = getMaxRowInJoin(metadata, nodeHint);
     _joinOverflowMode = getJoinOverflowMode(metadata, nodeHint);
+    _numSpillPartitions = getNumSpillPartitions(nodeHint);
+    if (node.isRuntimeFilterEnabled()) {
+      _runtimeFilterLeftStageId = ((MailboxReceiveNode) node.getInputs().get(0)).getSenderStageId();
+      // Only build the filter on the keys with the same stored type on both sides, so that the right key values can be
+      // compared with the left key values
+      ColumnDataType[] leftStoredTypes = leftSchema.getStoredColumnDataTypes();
+      ColumnDataType[] rightStoredTypes = node.getInputs().get(1).getDataSchema().getStoredColumnDataTypes();
+      int numKeys = _leftKeys.size();
+      IntArrayList filterLeftKeys = new IntArrayList(numKeys);
+      IntArrayList filterRightKeys = new IntArrayList(numKeys);
+      List<ColumnDataType> filterKeyTypes = new ArrayList<>(numKeys);
+      for (int i = 0; i < numKeys; i++) {
+        int leftKey = _leftKeys.get(i);
+        int rightKey = _rightKeys.get(i);
+        ColumnDataType keyType = leftStoredTypes[leftKey];
+        if (keyType == rightStoredTypes[rightKey] && RuntimeJoinFilter.isSupported(keyType)) {
+          filterLeftKeys.add(leftKey);
+          filterRightKeys.add(rightKey);
+          filterKeyTypes.add(keyType);
+        }
+      }
+      _runtimeFilter = !filterKeyTypes.isEmpty() ? new RuntimeJoinFilter(filterLeftKeys.toIntArray(),
+          filterKeyTypes.toArray(new ColumnDataType[0])) : null;
+      _runtimeFilterRightKeys = filterRightKeys.toIntArray();
+      _runtimeFilterPending = true;
+    } else {
+      _runtimeFilter = null;
+      _runtimeFilterRightKeys = null;
+      _runtimeFilterLeftStageId = -1;
+    }
   }
 
   @Override
@@ -194,6 +267,22 @@ public class HashJoinOperator extends MultiStageOperator {
     return joinOverflowMode != null ? joinOverflowMode : DEFAULT_JOIN_OVERFLOW_MODE;
   }
 
+  private int getNumSpillPartitions(@Nullable PlanNode.NodeHint nodeHint) {
+    if (nodeHint != null) {
+      Map<String, String> joinOptions = nodeHint.getHintOptions().get(PinotHintOptions.JOIN_HINT_OPTIONS);
+      if (joinOptions != null) {
+        String numSpillPartitionsStr = joinOptions.get(PinotHintOptions.JoinHintOptions.NUM_SPILL_PARTITIONS);
+        if (numSpillPartitionsStr != null) {
+          int numSpillPartitions = Integer.parseInt(numSpillPartitionsStr);
+          Preconditions.checkArgument(numSpillPartitions > 0, "'%s' must be positive, got: %s",
+              PinotHintOptions.JoinHintOptions.NUM_SPILL_PARTITIONS, numSpillPartitions);
+          return numSpillPartitions;
+        }
+      }
+    }
+    return DEFAULT_NUM_SPILL_PARTITIONS;
+  }
+
   @Override
   public List<MultiStageOperator> getChildOperators() {
     return List.of(_leftInput, _rightInput);
@@ -204,27 +293,82 @@ public class HashJoinOperator extends MultiStageOperator {
     return EXPLAIN_NAME;
   }
 
+  @Override
+  public void close() {
+    super.close();
+    closeSpillFiles();
+    if (_runtimeFilterPending) {
+      // Unblock the leaf stage waiting for the runtime filter when the hash table is never built
+      sendRuntimeFilter();
+    }
+  }
+
+  @Override
+  public void cancel(Throwable e) {
+    super.cancel(e);
+    closeSpillFiles();
+  }
+
   @Override
   protected TransferableBlock getNextBlock()
-      throws ProcessingException {
+      throws ProcessingException, IOException {
     if (!_isHashTableBuilt) {
       // Build JOIN hash table
-      buildBroadcastHashTable();
+      boolean rightInputAvailable = true;
+      try {
+        rightInputAvailable = buildBroadcastHashTable();
+      } finally {
+        // The runtime filter is sent once the hash table is built, or when the build fails
+        if (_runtimeFilterPending && rightInputAvailable) {
+          sendRuntimeFilter();
+        }
+      }
+      if (!rightInputAvailable) {
+        return TransferableBlockUtils.getNoOpTransferableBlock();
+      }
     }
     if (_upstreamErrorBlock != null) {
       return _upstreamErrorBlock;
     }
+    if (_rightSpillFiles != null) {
+      return buildJoinedDataBlockFromSpillFiles();
+    }
     return buildJoinedDataBlock();
   }
 
-  private void buildBroadcastHashTable()
-      throws ProcessingException {
+  /**
+   * Consumes the right input into the hash table (or the spill files), and returns {@code false} if the right input is
+   * not available yet (no-op block), in which case the remaining right rows are consumed by the next call.
+   */
+  private boolean buildBroadcastHashTable()
+      throws ProcessingException, IOException {
     long startTime = System.currentTimeMillis();
     TransferableBlock rightBlock = _rightInput.nextBlock();
     while (!TransferableBlockUtils.isEndOfStream(rightBlock)) {
+      if (rightBlock.isNoOpBlock()) {
+        _statMap.merge(StatKey.TIME_BUILDING_HASH_TABLE_MS, System.currentTimeMillis() - startTime);
+        return false;
+      }
       List<Object[]> container = rightBlock.getContainer();
+      if (_rightSpillFiles != null) {
+        addToRuntimeFilter(container);
+        addToPartitions(container);
+        rightBlock = _rightInput.nextBlock();
+        continue;
+      }
+      if (_broadcastRightTable == null) {
+        _broadcastRightTable = createJoinHashTable(rightBlock.getDataSchema());
+      }
       // Row based overflow check.
       if (container.size() + _currentRowsInHashTable > _maxRowsInHashTable) {
+        if (_joinOverflowMode == JoinOverFlowMode.SPILL) {
+          // Partition the rows already in the hash table, then partition all the remaining rows
+          startSpilling(rightBlock.getDataSchema());
+          addToRuntimeFilter(container);
+          addToPartitions(container);
+          rightBlock = _rightInput.nextBlock();
+          continue;
+        }
         if (_joinOverflowMode == JoinOverFlowMode.THROW) {
           ProcessingException resourceLimitExceededException =
               new ProcessingException(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE);
@@ -237,8 +381,10 @@ public class HashJoinOperator extends MultiStageOperator {
                   + " overflow mode can be set to '" + JoinOverFlowMode.BREAK.name() + "' either via the query option '"
                   + CommonConstants.Broker.Request.QueryOptionKey.JOIN_OVERFLOW_MODE + "' or the '"
                   + PinotHintOptions.JoinHintOptions.JOIN_OVERFLOW_MODE + "' hint in the '"
-                  + PinotHintOptions.JOIN_HINT_OPTIONS + "'. Furthermore, if there is a large disparity in the size of "
-                  + "the two tables being joined, use the smaller table as the right input instead of the left.");
+                  + PinotHintOptions.JOIN_HINT_OPTIONS + "', or the join can be spilled to disk by setting the join "
+                  + "overflow mode to '" + JoinOverFlowMode.SPILL.name() + "'. Furthermore, if there is a large "
+                  + "disparity in the size of the two tables being joined, use the smaller table as the right input "
+                  + "instead of the left.");
           throw resourceLimitExceededException;
         } else {
           // Just fill up the buffer.
@@ -249,27 +395,379 @@ public class HashJoinOperator extends MultiStageOperator {
           _rightInput.earlyTerminate();
         }
       }
-      // put all the rows into corresponding hash collections keyed by the key selector function.
-      for (Object[] row : container) {
-        ArrayList<Object[]> hashCollection = _broadcastRightTable.computeIfAbsent(_rightKeySelector.getKey(row),
-            k -> new ArrayList<>(INITIAL_HEURISTIC_SIZE));
-        int size = hashCollection.size();
-        if ((size & size - 1) == 0 && size < _maxRowsInHashTable && size < Integer.MAX_VALUE / 2) { // is power of 2
-          hashCollection.ensureCapacity(Math.min(size << 1, _maxRowsInHashTable));
-        }
-        hashCollection.add(row);
-      }
-      _currentRowsInHashTable += container.size();
+      addToRuntimeFilter(container);
+      addToHashTable(container);
       rightBlock = _rightInput.nextBlock();
     }
     if (rightBlock.isErrorBlock()) {
       _upstreamErrorBlock = rightBlock;
     } else {
+      if (_rightSpillFiles != null) {
+        finishSpilling(_rightSpillFiles);
+        buildResidentHashTable();
+      } else {
+        finishHashTable();
+      }
       _isHashTableBuilt = true;
       _rightSideStats = rightBlock.getQueryStats();
       assert _rightSideStats != null;
     }
     _statMap.merge(StatKey.TIME_BUILDING_HASH_TABLE_MS, System.currentTimeMillis() - startTime);
+    return true;
+  }
+
+  /**
+   * Returns a hash table specialized for the join key types when both tables have the same stored key types (e.g. a
+   * primitive hash table for single INT/LONG key), or a generic hash table otherwise.
+   */
+  private JoinHashTable createJoinHashTable(@Nullable DataSchema rightSchema) {
+    if (rightSchema == null) {
+      return new ObjectKeyJoinHashTable();
+    }
+    int numKeys = _leftKeys.size();
+    ColumnDataType[] leftStoredTypes = _leftSchema.getStoredColumnDataTypes();
+    ColumnDataType[] rightStoredTypes = rightSchema.getStoredColumnDataTypes();
+    ColumnDataType[] keyTypes = new ColumnDataType[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      ColumnDataType keyType = leftStoredTypes[_leftKeys.get(i)];
+      if (keyType != rightStoredTypes[_rightKeys.get(i)]) {
+        return new ObjectKeyJoinHashTable();
+      }
+      keyTypes[i] = keyType;
+    }
+    return JoinHashTableFactory.getJoinHashTable(keyTypes);
+  }
+
+  private void addToHashTable(List<Object[]> container) {
+    // put all the rows into the hash table keyed by the key selector function.
+    for (Object[] row : container) {
+      _broadcastRightTable.add(_rightKeySelector.getKey(row), row);
+    }
+    _currentRowsInHashTable += container.size();
+  }
+
+  private void addToRuntimeFilter(List<Object[]> container) {
+    if (_runtimeFilter != null) {
+      _runtimeFilter.addRows(container, _runtimeFilterRightKeys);
+    }
+  }
+
+  /**
+   * Sends the runtime filter (when the hash table is successfully built) followed by an EOS to all the workers of the
+   * leaf stage sending the left table rows, which wait for it before scanning the table. Failing to send the filter
+   * does not fail the query because the leaf stage falls back to scanning the table without it.
+   */
+  private void sendRuntimeFilter() {
+    _runtimeFilterPending = false;
+    long startTime = System.currentTimeMillis();
+    TransferableBlock runtimeFilterBlock = null;
+    if (_isHashTableBuilt && _runtimeFilter != null) {
+      try {
+        runtimeFilterBlock = _runtimeFilter.toBlock();
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while serializing the runtime filter", e);
+      }
+    }
+    List<MailboxInfo> mailboxInfos =
+        _context.getWorkerMetadata().getMailboxInfosMap().get(_runtimeFilterLeftStageId).getMailboxInfos();
+    List<RoutingInfo> routingInfos =
+        MailboxIdUtils.toRoutingInfos(_context.getRequestId(), _context.getStageId(), _context.getWorkerId(),
+            _runtimeFilterLeftStageId, mailboxInfos);
+    StatMap<MailboxSendOperator.StatKey> mailboxStatMap = new StatMap<>(MailboxSendOperator.StatKey.class);
+    for (RoutingInfo routingInfo : routingInfos) {
+      try {
+        SendingMailbox sendingMailbox =
+            _context.getMailboxService().getSendingMailbox(routingInfo.getHostname(), routingInfo.getPort(),
+                routingInfo.getMailboxId(), _context.getDeadlineMs(), mailboxStatMap);
+        if (runtimeFilterBlock != null) {
+          sendingMailbox.send(runtimeFilterBlock);
+        }
+        sendingMailbox.send(TransferableBlockUtils.getEndOfStreamTransferableBlock());
+        sendingMailbox.complete();
+      } catch (Exception e) {
+        LOGGER.debug("Caught exception while sending the runtime filter to mailbox: {}", routingInfo.getMailboxId(),
+            e);
+      }
+    }
+    if (runtimeFilterBlock != null) {
+      _statMap.merge(StatKey.NUM_RUNTIME_FILTER_RECEIVERS, routingInfos.size());
+    }
+    _statMap.merge(StatKey.TIME_SENDING_RUNTIME_FILTER_MS, System.currentTimeMillis() - startTime);
+  }
+
+  private void finishHashTable() {
+    if (_broadcastRightTable == null) {
+      _broadcastRightTable = new ObjectKeyJoinHashTable();
+    }
+    _broadcastRightTable.finish();
+    if (needUnmatchedRightRows()) {
+      _matchedRightRows = new BitSet(_broadcastRightTable.getNumRows());
+    }
+  }
+
+  /**
+   * Switches to partitioning the right table, and moves the rows already in the hash table into the partitions.
+   */
+  @SuppressWarnings("unchecked")
+  private void startSpilling(DataSchema rightSchema)
+      throws IOException {
+    _rightSchema = rightSchema;
+    _residentRightRows = new List[_numSpillPartitions];
+    for (int i = 0; i < _numSpillPartitions; i++) {
+      _residentRightRows[i] = new ArrayList<>();
+    }
+    _rightSpillFiles = new RowBlockSpillFile[_numSpillPartitions];
+    _leftSpillFiles = new RowBlockSpillFile[_numSpillPartitions];
+    addToPartitions(_broadcastRightTable.getRows());
+    _broadcastRightTable = null;
+    _currentRowsInHashTable = 0;
+  }
+
+  /**
+   * Adds the right rows into their partitions, and spills the largest partitions kept in memory until they fit in the
+   * hash table limit.
+   */
+  private void addToPartitions(List<Object[]> rows)
+      throws IOException {
+    long startTime = System.currentTimeMillis();
+    long numSpilledRows = 0;
+    for (Object[] row : rows) {
+      int partition = getSpillPartition(_rightKeySelector, row);
+      List<Object[]> residentRows = _residentRightRows[partition];
+      if (residentRows != null) {
+        residentRows.add(row);
+        _numResidentRightRows++;
+      } else {
+        _rightSpillFiles[partition].add(row);
+        numSpilledRows++;
+      }
+    }
+    _statMap.merge(StatKey.SPILLED_RIGHT_ROWS, numSpilledRows);
+    _statMap.merge(StatKey.TIME_SPILLING_MS, System.currentTimeMillis() - startTime);
+    while (_numResidentRightRows > _maxRowsInHashTable) {
+      spillLargestResidentPartition();
+    }
+  }
+
+  private void spillLargestResidentPartition()
+      throws IOException {
+    long startTime = System.currentTimeMillis();
+    int partition = -1;
+    for (int i = 0; i < _numSpillPartitions; i++) {
+      if (_residentRightRows[i] != null && (partition < 0
+          || _residentRightRows[i].size() > _residentRightRows[partition].size())) {
+        partition = i;
+      }
+    }
+    List<Object[]> rows = _residentRightRows[partition];
+    _residentRightRows[partition] = null;
+    _numResidentRightRows -= rows.size();
+    _rightSpillFiles[partition] = new RowBlockSpillFile(_rightSchema, "join_right_" + partition + "_");
+    _leftSpillFiles[partition] = new RowBlockSpillFile(_leftSchema, "join_left_" + partition + "_");
+    _rightSpillFiles[partition].addAll(rows);
+    _statMap.merge(StatKey.NUM_SPILLED_PARTITIONS, 1);
+    _statMap.merge(StatKey.SPILLED_RIGHT_ROWS, rows.size());
+    _statMap.merge(StatKey.TIME_SPILLING_MS, System.currentTimeMillis() - startTime);
+  }
+
+  /**
+   * Builds the hash table from the right rows of the partitions kept in memory, which is probed by the left rows of
+   * these partitions while the left table is consumed.
+   */
+  private void buildResidentHashTable() {
+    _broadcastRightTable = createJoinHashTable(_rightSchema);
+    _currentRowsInHashTable = 0;
+    for (List<Object[]> rows : _residentRightRows) {
+      if (rows != null) {
+        addToHashTable(rows);
+      }
+    }
+    _residentRightRows = null;
+    _numResidentRightRows = 0;
+    finishHashTable();
+  }
+
+  /**
+   * Spills the left rows of the spilled partitions, and returns the left rows of the partitions kept in memory.
+   */
+  private List<Object[]> spillLeftRows(List<Object[]> rows)
+      throws IOException {
+    long startTime = System.currentTimeMillis();
+    List<Object[]> residentRows = new ArrayList<>(rows.size());
+    long numSpilledRows = 0;
+    for (Object[] row : rows) {
+      RowBlockSpillFile spillFile = _leftSpillFiles[getSpillPartition(_leftKeySelector, row)];
+      if (spillFile != null) {
+        spillFile.add(row);
+        numSpilledRows++;
+      } else {
+        residentRows.add(row);
+      }
+    }
+    _statMap.merge(StatKey.SPILLED_LEFT_ROWS, numSpilledRows);
+    _statMap.merge(StatKey.TIME_SPILLING_MS, System.currentTimeMillis() - startTime);
+    return residentRows;
+  }
+
+  private void finishSpilling(RowBlockSpillFile[] spillFiles)
+      throws IOException {
+    long numBytes = 0;
+    for (RowBlockSpillFile spillFile : spillFiles) {
+      if (spillFile != null) {
+        spillFile.finishWriting();
+        numBytes += spillFile.getNumBytes();
+      }
+    }
+    _statMap.merge(StatKey.SPILLED_BYTES, numBytes);
+  }
+
+  /**
+   * Returns the spill partition of the row. The hash is re-mixed before taking the modulo because the rows received by
+   * this operator are usually already partitioned by the same key hash during the data exchange.
+   */
+  private int getSpillPartition(KeySelector<?> keySelector, Object[] row) {
+    int hash = keySelector.computeHash(row) * 0x9E3779B9;
+    return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % _numSpillPartitions;
+  }
+
+  private TransferableBlock buildJoinedDataBlockFromSpillFiles()
+      throws ProcessingException, IOException {
+    if (_currentSpillPartition < 0) {
+      // Join the left rows of the partitions kept in memory right away, and spill the left rows of the spilled
+      // partitions
+      while (true) {
+        TransferableBlock leftBlock = _leftInput.nextBlock();
+        if (leftBlock.isNoOpBlock()) {
+          return leftBlock;
+        }
+        if (TransferableBlockUtils.isEndOfStream(leftBlock)) {
+          if (leftBlock.isErrorBlock()) {
+            return leftBlock;
+          }
+          _leftSideStats = leftBlock.getQueryStats();
+          assert _leftSideStats != null;
+          break;
+        }
+        List<Object[]> residentLeftRows = spillLeftRows(leftBlock.getContainer());
+        if (!residentLeftRows.isEmpty()) {
+          List<Object[]> rows = buildJoinedRows(residentLeftRows);
+          if (!rows.isEmpty()) {
+            return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+          }
+        }
+      }
+      finishSpilling(_leftSpillFiles);
+      List<Object[]> rows = needUnmatchedRightRows() ? buildNonMatchRightRows() : List.of();
+      loadNextSpilledPartition(0);
+      if (!rows.isEmpty()) {
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+    }
+
+    // Keep reading the left spill files until we find a match row or all partitions are processed.
+    while (_currentSpillPartition < _numSpillPartitions) {
+      List<Object[]> leftRows = _currentLeftSpillReader.nextBatch();
+      if (leftRows != null) {
+        List<Object[]> rows = buildJoinedRows(leftRows);
+        if (!rows.isEmpty()) {
+          return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+        }
+        continue;
+      }
+      // Finished the current partition
+      List<Object[]> rows = needUnmatchedRightRows() ? buildNonMatchRightRows() : List.of();
+      _currentLeftSpillReader.close();
+      _currentLeftSpillReader = null;
+      _leftSpillFiles[_currentSpillPartition].close();
+      _rightSpillFiles[_currentSpillPartition].close();
+      loadNextSpilledPartition(_currentSpillPartition + 1);
+      if (!rows.isEmpty()) {
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+    }
+
+    assert _rightSideStats != null;
+    if (!_isTerminated) {
+      _isTerminated = true;
+      _leftSideStats.mergeInOrder(_rightSideStats, getOperatorType(), _statMap);
+    }
+    return TransferableBlockUtils.getEndOfStreamTransferableBlock(_leftSideStats);
+  }
+
+  /**
+   * Loads the first spilled partition starting from the given partition, or releases the hash table if there is no
+   * more spilled partition.
+   */
+  private void loadNextSpilledPartition(int partition)
+      throws ProcessingException, IOException {
+    while (partition < _numSpillPartitions && _rightSpillFiles[partition] == null) {
+      partition++;
+    }
+    _currentSpillPartition = partition;
+    if (partition < _numSpillPartitions) {
+      loadSpillPartition();
+    } else {
+      _broadcastRightTable = null;
+      _matchedRightRows = null;
+    }
+  }
+
+  /**
+   * Loads the right rows of the current spill partition into the hash table, and opens the reader for the left rows.
+   */
+  private void loadSpillPartition()
+      throws ProcessingException, IOException {
+    long startTime = System.currentTimeMillis();
+    RowBlockSpillFile rightSpillFile = _rightSpillFiles[_currentSpillPartition];
+    if (rightSpillFile.getNumRows() > _maxRowsInHashTable) {
+      ProcessingException resourceLimitExceededException =
+          new ProcessingException(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE);
+      resourceLimitExceededException.setMessage(
+          "Cannot build in memory hash table for spilled partition " + _currentSpillPartition + " of join operator, "
+              + "number of rows: " + rightSpillFile.getNumRows() + " exceeds the limit: " + _maxRowsInHashTable
+              + ". Consider increasing the number of spill partitions via the '"
+              + PinotHintOptions.JoinHintOptions.NUM_SPILL_PARTITIONS + "' hint in the '"
+              + PinotHintOptions.JOIN_HINT_OPTIONS + "'.");
+      throw resourceLimitExceededException;
+    }
+    _broadcastRightTable = createJoinHashTable(rightSpillFile.getDataSchema());
+    _currentRowsInHashTable = 0;
+    try (RowBlockSpillFile.Reader reader = rightSpillFile.openReader()) {
+      List<Object[]> rows;
+      while ((rows = reader.nextBatch()) != null) {
+        addToHashTable(rows);
+      }
+    }
+    finishHashTable();
+    _currentLeftSpillReader = _leftSpillFiles[_currentSpillPartition].openReader();
+    _statMap.merge(StatKey.TIME_BUILDING_HASH_TABLE_MS, System.currentTimeMillis() - startTime);
+  }
+
+  private void closeSpillFiles() {
+    try {
+      if (_currentLeftSpillReader != null) {
+        _currentLeftSpillReader.close();
+        _currentLeftSpillReader = null;
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Failed to close spill file reader", e);
+    }
+    closeSpillFiles(_rightSpillFiles);
+    closeSpillFiles(_leftSpillFiles);
+  }
+
+  private static void closeSpillFiles(@Nullable RowBlockSpillFile[] spillFiles) {
+    if (spillFiles != null) {
+      for (RowBlockSpillFile spillFile : spillFiles) {
+        if (spillFile != null) {
+          try {
+            spillFile.close();
+          } catch (Exception e) {
+            LOGGER.warn("Failed to close spill file: {}", spillFile.getFile(), e);
+          }
+        }
+      }
+    }
   }
 
   private TransferableBlock buildJoinedDataBlock() {
@@ -282,7 +780,7 @@ public class HashJoinOperator extends MultiStageOperator {
     // TODO: Consider batching the rows to improve performance.
     while (true) {
       TransferableBlock leftBlock = _leftInput.nextBlock();
-      if (leftBlock.isErrorBlock()) {
+      if (leftBlock.isNoOpBlock() || leftBlock.isErrorBlock()) {
         return leftBlock;
       }
       if (leftBlock.isSuccessfulEndOfStreamBlock()) {
@@ -300,27 +798,26 @@ public class HashJoinOperator extends MultiStageOperator {
         return TransferableBlockUtils.getEndOfStreamTransferableBlock(_leftSideStats);
       }
       assert leftBlock.isDataBlock();
-      List<Object[]> rows = buildJoinedRows(leftBlock);
+      List<Object[]> rows = buildJoinedRows(leftBlock.getContainer());
       if (!rows.isEmpty()) {
         return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
       }
     }
   }
 
-  private List<Object[]> buildJoinedRows(TransferableBlock leftBlock) {
+  private List<Object[]> buildJoinedRows(List<Object[]> container) {
     switch (_joinType) {
       case SEMI:
-        return buildJoinedDataBlockSemi(leftBlock);
+        return buildJoinedDataBlockSemi(container);
       case ANTI:
-        return buildJoinedDataBlockAnti(leftBlock);
+        return buildJoinedDataBlockAnti(container);
       default: { // INNER, LEFT, RIGHT, FULL
-        return buildJoinedDataBlockDefault(leftBlock);
+        return buildJoinedDataBlockDefault(container);
       }
     }
   }
 
-  private List<Object[]> buildJoinedDataBlockSemi(TransferableBlock leftBlock) {
-    List<Object[]> container = leftBlock.getContainer();
+  private List<Object[]> buildJoinedDataBlockSemi(List<Object[]> container) {
     List<Object[]> rows = new ArrayList<>(container.size());
 
     for (Object[] leftRow : container) {
@@ -334,25 +831,25 @@ public class HashJoinOperator extends MultiStageOperator {
     return rows;
   }
 
-  private List<Object[]> buildJoinedDataBlockDefault(TransferableBlock leftBlock) {
-    List<Object[]> container = leftBlock.getContainer();
+  private List<Object[]> buildJoinedDataBlockDefault(List<Object[]> container) {
     ArrayList<Object[]> rows = new ArrayList<>(container.size());
 
     for (Object[] leftRow : container) {
       Object key = _leftKeySelector.getKey(leftRow);
       // NOTE: Empty key selector will always give same hash code.
-      List<Object[]> rightRows = _broadcastRightTable.get(key);
-      if (rightRows == null) {
+      long range = _broadcastRightTable.lookup(key);
+      if (range == JoinHashTable.NO_MATCH) {
         if (needUnmatchedLeftRows()) {
           rows.add(joinRow(leftRow, null));
         }
         continue;
       }
       boolean hasMatchForLeftRow = false;
-      int numRightRows = rightRows.size();
-      rows.ensureCapacity(rows.size() + numRightRows);
-      for (int i = 0; i < numRightRows; i++) {
-        Object[] rightRow = rightRows.get(i);
+      int start = JoinHashTable.getStart(range);
+      int end = JoinHashTable.getEnd(range);
+      rows.ensureCapacity(rows.size() + end - start);
+      for (int i = start; i < end; i++) {
+        Object[] rightRow = _broadcastRightTable.getRow(i);
         // TODO: Optimize this to avoid unnecessary object copy.
         Object[] resultRow = joinRow(leftRow, rightRow);
         if (_nonEquiEvaluators.isEmpty() || _nonEquiEvaluators.stream()
@@ -360,7 +857,7 @@ public class HashJoinOperator extends MultiStageOperator {
           rows.add(resultRow);
           hasMatchForLeftRow = true;
           if (_matchedRightRows != null) {
-            _matchedRightRows.computeIfAbsent(key, k -> new BitSet(numRightRows)).set(i);
+            _matchedRightRows.set(i);
           }
         }
       }
@@ -372,8 +869,7 @@ public class HashJoinOperator extends MultiStageOperator {
     return rows;
   }
 
-  private List<Object[]> buildJoinedDataBlockAnti(TransferableBlock leftBlock) {
-    List<Object[]> container = leftBlock.getContainer();
+  private List<Object[]> buildJoinedDataBlockAnti(List<Object[]> container) {
     List<Object[]> rows = new ArrayList<>(container.size());
 
     for (Object[] leftRow : container) {
@@ -387,21 +883,11 @@ public class HashJoinOperator extends MultiStageOperator {
   }
 
   private List<Object[]> buildNonMatchRightRows() {
-    List<Object[]> rows = new ArrayList<>();
-    for (Map.Entry<Object, ArrayList<Object[]>> entry : _broadcastRightTable.entrySet()) {
-      List<Object[]> rightRows = entry.getValue();
-      BitSet matchedIndices = _matchedRightRows.get(entry.getKey());
-      if (matchedIndices == null) {
-        for (Object[] rightRow : rightRows) {
-          rows.add(joinRow(null, rightRow));
-        }
-      } else {
-        int numRightRows = rightRows.size();
-        int unmatchedIndex = 0;
-        while ((unmatchedIndex = matchedIndices.nextClearBit(unmatchedIndex)) < numRightRows) {
-          rows.add(joinRow(null, rightRows.get(unmatchedIndex++)));
-        }
-      }
+    int numRightRows = _broadcastRightTable.getNumRows();
+    List<Object[]> rows = new ArrayList<>(numRightRows - _matchedRightRows.cardinality());
+    int unmatchedIndex = 0;
+    while ((unmatchedIndex = _matchedRightRows.nextClearBit(unmatchedIndex)) < numRightRows) {
+      rows.add(joinRow(null, _broadcastRightTable.getRow(unmatchedIndex++)));
     }
     return rows;
   }
@@ -450,7 +936,35 @@ public class HashJoinOperator extends MultiStageOperator {
     /**
      * How long (CPU time) has been spent on building the hash table.
      */
-    TIME_BUILDING_HASH_TABLE_MS(StatMap.Type.LONG);
+    TIME_BUILDING_HASH_TABLE_MS(StatMap.Type.LONG),
+    /**
+     * Number of partitions spilled to disk when the hash table is spilled.
+     */
+    NUM_SPILLED_PARTITIONS(StatMap.Type.INT),
+    /**
+     * Number of right (build side) rows spilled to disk.
+     */
+    SPILLED_RIGHT_ROWS(StatMap.Type.LONG),
+    /**
+     * Number of left (probe side) rows spilled to disk.
+     */
+    SPILLED_LEFT_ROWS(StatMap.Type.LONG),
+    /**
+     * Number of bytes spilled to disk.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG),
+    /**
+     * How long has been spent on partitioning and writing the rows into the spill files.
+     */
+    TIME_SPILLING_MS(StatMap.Type.LONG),
+    /**
+     * Number of leaf workers the runtime filter built from the right table join keys is sent to.
+     */
+    NUM_RUNTIME_FILTER_RECEIVERS(StatMap.Type.INT),
+    /**
+     * How long has been spent on serializing and sending the runtime filter.
+     */
+    TIME_SENDING_RUNTIME_FILTER_MS(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
@@ -54,9 +54,11 @@ import org.apache.pinot.core.query.request.ServerQueryRequest;
 import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.join.RuntimeJoinFilter;
 import org.apache.pinot.query.runtime.operator.utils.TypeUtils;
 import org.apache.pinot.query.runtime.plan.MultiStageQueryStats;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.apache.pinot.query.runtime.plan.server.ServerPlanRequestContext;
 import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -87,6 +89,8 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
   private final DataSchema _dataSchema;
   private final QueryExecutor _queryExecutor;
   private final ExecutorService _executorService;
+  // Runtime filter received from the join, applied to the rows returned by the single-stage engine
+  private final RuntimeJoinFilter _runtimeFilter;
 
   // Use a limit-sized BlockingQueue to store the results blocks and apply back pressure to the single-stage threads
   private final BlockingQueue<BaseResultsBlock> _blockingQueue;
@@ -107,8 +111,13 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
     Integer maxStreamingPendingBlocks = QueryOptionsUtils.getMaxStreamingPendingBlocks(context.getOpChainMetadata());
     _blockingQueue = new ArrayBlockingQueue<>(maxStreamingPendingBlocks != null ? maxStreamingPendingBlocks
         : QueryOptionValue.DEFAULT_MAX_STREAMING_PENDING_BLOCKS);
-    String tableName = context.getLeafStageContext().getStagePlan().getStageMetadata().getTableName();
+    ServerPlanRequestContext leafStageContext = context.getLeafStageContext();
+    String tableName = leafStageContext.getStagePlan().getStageMetadata().getTableName();
     _statMap.merge(StatKey.TABLE, tableName);
+    _statMap.merge(StatKey.NUM_DYNAMIC_FILTER_VALUES, leafStageContext.getNumDynamicFilterValues());
+    _runtimeFilter = leafStageContext.getRuntimeFilter();
+    _statMap.merge(StatKey.RUNTIME_FILTER_WAIT_MS, leafStageContext.getRuntimeFilterWaitTimeMs());
+    _statMap.merge(StatKey.RUNTIME_FILTER_MISSED, leafStageContext.isRuntimeFilterMissed());
   }
 
   @Override
@@ -143,10 +152,22 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
     if (_executionFuture == null) {
       _executionFuture = startExecution();
     }
-    BaseResultsBlock resultsBlock =
-        _blockingQueue.poll(_context.getDeadlineMs() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-    if (resultsBlock == null) {
-      throw new TimeoutException("Timed out waiting for results block");
+    BaseResultsBlock resultsBlock;
+    if (_context.isYieldOnNoInput()) {
+      // Give the thread back to the OpChain scheduler until the next results block is added
+      resultsBlock = _blockingQueue.poll();
+      if (resultsBlock == null) {
+        if (System.currentTimeMillis() >= _context.getDeadlineMs()) {
+          throw new TimeoutException("Timed out waiting for results block");
+        }
+        return TransferableBlockUtils.getNoOpTransferableBlock();
+      }
+    } else {
+      resultsBlock =
+          _blockingQueue.poll(_context.getDeadlineMs() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      if (resultsBlock == null) {
+        throw new TimeoutException("Timed out waiting for results block");
+      }
     }
     // Terminate when receiving exception block
     Map<Integer, String> exceptions = _exceptions;
@@ -157,8 +178,28 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
       return constructMetadataBlock();
     } else {
       // Regular data block
-      return composeTransferableBlock(resultsBlock, _dataSchema);
+      TransferableBlock dataBlock = composeTransferableBlock(resultsBlock, _dataSchema);
+      return _runtimeFilter != null ? applyRuntimeFilter(dataBlock) : dataBlock;
+    }
+  }
+
+  /**
+   * Removes the rows not matching any right table row of the join based on the runtime filter.
+   */
+  private TransferableBlock applyRuntimeFilter(TransferableBlock dataBlock) {
+    List<Object[]> rows = dataBlock.getContainer();
+    List<Object[]> filteredRows = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+      if (_runtimeFilter.test(row)) {
+        filteredRows.add(row);
+      }
+    }
+    int numFilteredRows = rows.size() - filteredRows.size();
+    if (numFilteredRows == 0) {
+      return dataBlock;
     }
+    _statMap.merge(StatKey.RUNTIME_FILTERED_ROWS, numFilteredRows);
+    return new TransferableBlock(filteredRows, dataBlock.getDataSchema(), DataBlock.Type.ROW);
   }
 
   private void mergeExecutionStats(@Nullable Map<String, String> executionStats) {
@@ -368,6 +409,7 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
         TimeUnit.MILLISECONDS)) {
       throw new TimeoutException("Timed out waiting to add results block");
     }
+    _context.notifyDataAvailable();
   }
 
   // TODO: Revisit the stats aggregation logic
@@ -578,7 +620,26 @@ public class LeafStageTransferableBlockOperator extends MultiStageOperator {
       public String getStatName() {
         return "responseSerializationCpuTimeNs";
       }
-    };
+    },
+    /**
+     * Number of distinct join key values in the dynamic filter pushed down from the join. The number of rows filtered
+     * out can be derived from {@link #TOTAL_DOCS} and {@link #NUM_DOCS_SCANNED}.
+     */
+    NUM_DYNAMIC_FILTER_VALUES(StatMap.Type.INT, null),
+    /**
+     * How long the leaf stage waited for the runtime filter from the join before scanning the table.
+     */
+    RUNTIME_FILTER_WAIT_MS(StatMap.Type.LONG, null),
+    /**
+     * Whether the runtime filter is enabled but not received from all the join workers in time, in which case the table
+     * is scanned without the filter.
+     */
+    RUNTIME_FILTER_MISSED(StatMap.Type.BOOLEAN, null),
+    /**
+     * Number of rows returned by the single-stage engine but not sent to the join because they do not match the
+     * runtime filter.
+     */
+    RUNTIME_FILTERED_ROWS(StatMap.Type.LONG, null);
 
     private final StatMap.Type _type;
     @Nullable
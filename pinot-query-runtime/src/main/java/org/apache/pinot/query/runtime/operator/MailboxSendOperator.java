@@ -37,6 +37,7 @@ import org.apache.pinot.query.routing.MailboxInfo;
 import org.apache.pinot.query.routing.RoutingInfo;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.executor.OpChainSchedulingStats;
 import org.apache.pinot.query.runtime.operator.exchange.BlockExchange;
 import org.apache.pinot.query.runtime.plan.MultiStageQueryStats;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
@@ -129,7 +130,12 @@ public class MailboxSendOperator extends MultiStageOperator {
   protected TransferableBlock getNextBlock() {
     try {
       TransferableBlock block = _input.nextBlock();
+      if (block.isNoOpBlock()) {
+        // Give the thread back to the OpChain scheduler until new input is available
+        return block;
+      }
       if (block.isSuccessfulEndOfStreamBlock()) {
+        addSchedulingStats();
         updateEosBlock(block, _statMap);
         // no need to check early terminate signal b/c the current block is already EOS
         sendTransferableBlock(block);
@@ -162,6 +168,16 @@ public class MailboxSendOperator extends MultiStageOperator {
     }
   }
 
+  private void addSchedulingStats() {
+    OpChainSchedulingStats schedulingStats = _context.getSchedulingStats();
+    int numSlices = schedulingStats.getNumSlices();
+    if (numSlices > 0) {
+      _statMap.merge(StatKey.SCHEDULING_SLICES, numSlices);
+      _statMap.merge(StatKey.SCHEDULING_QUEUE_WAIT_MS, schedulingStats.getQueueWaitTimeMs());
+      _statMap.merge(StatKey.SCHEDULING_MAX_QUEUE_WAIT_MS, schedulingStats.getMaxQueueWaitTimeMs());
+    }
+  }
+
   protected TransferableBlock createLeafBlock() {
     return TransferableBlockUtils.getEndOfStreamTransferableBlock(
         MultiStageQueryStats.createCancelledSend(_context.getStageId(), _statMap));
@@ -276,6 +292,24 @@ public class MailboxSendOperator extends MultiStageOperator {
       public boolean includeDefaultInJson() {
         return true;
       }
+    },
+    /**
+     * How many time slices the OpChain has been executed in, when it is executed by a time-slicing scheduler.
+     */
+    SCHEDULING_SLICES(StatMap.Type.INT),
+    /**
+     * How long the OpChain has been waiting in the scheduler queue for a thread, when it is executed by a time-slicing
+     * scheduler.
+     */
+    SCHEDULING_QUEUE_WAIT_MS(StatMap.Type.LONG),
+    /**
+     * The longest time the OpChain has been waiting in the scheduler queue for a single time slice.
+     */
+    SCHEDULING_MAX_QUEUE_WAIT_MS(StatMap.Type.LONG) {
+      @Override
+      public long merge(long value1, long value2) {
+        return Math.max(value1, value2);
+      }
     };
     //@formatter:on
 
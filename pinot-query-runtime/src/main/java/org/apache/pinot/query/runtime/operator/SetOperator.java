@@ -103,7 +103,9 @@ public abstract class SetOperator extends MultiStageOperator {
   protected TransferableBlock getNextBlock() {
     if (!_isRightSetBuilt) {
       // construct a SET with all the right side rows.
-      constructRightBlockSet();
+      if (!constructRightBlockSet()) {
+        return TransferableBlockUtils.getNoOpTransferableBlock();
+      }
     }
     if (_upstreamErrorBlock != null) {
       return _upstreamErrorBlock;
@@ -111,9 +113,16 @@ public abstract class SetOperator extends MultiStageOperator {
     return constructResultBlockSet();
   }
 
-  protected void constructRightBlockSet() {
+  /**
+   * Consumes the right side rows, and returns {@code false} if the right input is not available yet (no-op block), in
+   * which case the remaining rows are consumed by the next call.
+   */
+  protected boolean constructRightBlockSet() {
     TransferableBlock block = _rightChildOperator.nextBlock();
     while (!block.isEndOfStreamBlock()) {
+      if (block.isNoOpBlock()) {
+        return false;
+      }
       if (block.getType() != DataBlock.Type.METADATA) {
         for (Object[] row : block.getContainer()) {
           _rightRowSet.add(new Record(row));
@@ -128,6 +137,7 @@ public abstract class SetOperator extends MultiStageOperator {
       _rightQueryStats = block.getQueryStats();
       assert _rightQueryStats != null;
     }
+    return true;
   }
 
   protected TransferableBlock constructResultBlockSet() {
@@ -135,7 +145,7 @@ public abstract class SetOperator extends MultiStageOperator {
     // TODO: Consider batching the rows to improve performance.
     while (true) {
       TransferableBlock leftBlock = _leftChildOperator.nextBlock();
-      if (leftBlock.isErrorBlock()) {
+      if (leftBlock.isNoOpBlock() || leftBlock.isErrorBlock()) {
         return leftBlock;
       }
       if (leftBlock.isSuccessfulEndOfStreamBlock()) {
@@ -20,6 +20,7 @@ package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -28,9 +29,12 @@ import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.query.selection.SelectionOperatorUtils;
 import org.apache.pinot.query.planner.plannode.SortNode;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.operator.utils.ExternalRowSorter;
+import org.apache.pinot.query.runtime.operator.utils.RowBlockSpillFile;
 import org.apache.pinot.query.runtime.operator.utils.SortUtils;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.utils.CommonConstants;
@@ -38,6 +42,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
+/**
+ * Sorts the input rows and applies the limit and offset. The rows are sorted in memory with a bounded priority queue by
+ * default. When the max rows in sort is set via the query option and the rows to keep go over the limit, the rows are
+ * sorted externally: they are sorted in runs spilled to local disk, which are merged while streaming out the sorted
+ * rows block by block.
+ */
 public class SortOperator extends MultiStageOperator {
   private static final String EXPLAIN_NAME = "SORT";
   private static final Logger LOGGER = LoggerFactory.getLogger(SortOperator.class);
@@ -48,11 +58,16 @@ public class SortOperator extends MultiStageOperator {
   private final int _numRowsToKeep;
   private final PriorityQueue<Object[]> _priorityQueue;
   private final ArrayList<Object[]> _rows;
+  private final ExternalRowSorter _externalSorter;
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
 
   private boolean _hasConstructedSortedBlock;
   private TransferableBlock _eosBlock;
 
+  // Below are used only when the rows are sorted externally
+  private TransferableBlock _upstreamEosBlock;
+  private int _numRowsToEmit;
+
   public SortOperator(OpChainExecutionContext context, MultiStageOperator input, SortNode node) {
     this(context, input, node, SelectionOperatorUtils.MAX_ROW_HOLDER_INITIAL_CAPACITY,
         CommonConstants.Broker.DEFAULT_BROKER_QUERY_RESPONSE_LIMIT);
@@ -73,15 +88,23 @@ public class SortOperator extends MultiStageOperator {
     // - There is no collation
     // - Input is already sorted
     List<RelFieldCollation> collations = node.getCollations();
+    Integer maxRowsInSort = QueryOptionsUtils.getMaxRowsInSort(context.getOpChainMetadata());
     if (collations.isEmpty() || input instanceof SortedMailboxReceiveOperator) {
       _priorityQueue = null;
       _rows = new ArrayList<>(Math.min(defaultHolderCapacity, _numRowsToKeep));
+      _externalSorter = null;
+    } else if (maxRowsInSort != null && maxRowsInSort < _numRowsToKeep) {
+      _priorityQueue = null;
+      _rows = null;
+      _externalSorter = new ExternalRowSorter(_dataSchema, new SortUtils.SortComparator(_dataSchema, collations, false),
+          maxRowsInSort, _numRowsToKeep);
     } else {
       // Use the opposite direction as specified by the collation directions since we need the PriorityQueue to decide
       // which elements to keep and which to remove based on the limits.
       _priorityQueue = new PriorityQueue<>(Math.min(defaultHolderCapacity, _numRowsToKeep),
           new SortUtils.SortComparator(_dataSchema, collations, true));
       _rows = null;
+      _externalSorter = null;
     }
   }
 
@@ -106,8 +129,19 @@ public class SortOperator extends MultiStageOperator {
     return List.of(_input);
   }
 
+  @Override
+  public void close() {
+    super.close();
+    if (_externalSorter != null) {
+      _externalSorter.close();
+    }
+  }
+
   @Override
   public void cancel(Throwable e) {
+    if (_externalSorter != null) {
+      _externalSorter.close();
+    }
   }
 
   @Override
@@ -116,14 +150,18 @@ public class SortOperator extends MultiStageOperator {
   }
 
   @Override
-  protected TransferableBlock getNextBlock() {
+  protected TransferableBlock getNextBlock()
+      throws IOException {
+    if (_externalSorter != null) {
+      return getNextExternallySortedBlock();
+    }
     if (_hasConstructedSortedBlock) {
       assert _eosBlock != null;
       return _eosBlock;
     }
     TransferableBlock finalBlock = consumeInputBlocks();
-    // returning upstream error block if finalBlock contains error.
-    if (finalBlock.isErrorBlock()) {
+    // returning upstream error block if finalBlock contains error, or no-op block to continue consuming later.
+    if (finalBlock.isNoOpBlock() || finalBlock.isErrorBlock()) {
       return finalBlock;
     }
     _statMap.merge(StatKey.REQUIRE_SORT, _priorityQueue != null);
@@ -154,11 +192,60 @@ public class SortOperator extends MultiStageOperator {
     }
   }
 
-  private TransferableBlock consumeInputBlocks() {
+  /**
+   * Returns the next block of the externally sorted rows. The first call consumes all the input blocks, and the sorted
+   * rows are then merged from the spilled runs block by block.
+   */
+  private TransferableBlock getNextExternallySortedBlock()
+      throws IOException {
+    if (_eosBlock != null) {
+      return _eosBlock;
+    }
+    if (_upstreamEosBlock == null) {
+      TransferableBlock finalBlock = consumeInputBlocks();
+      // returning upstream error block if finalBlock contains error, or no-op block to continue consuming later.
+      if (finalBlock.isNoOpBlock() || finalBlock.isErrorBlock()) {
+        return finalBlock;
+      }
+      _upstreamEosBlock = finalBlock;
+      _externalSorter.finish();
+      int numRowsToSkip = _offset;
+      while (numRowsToSkip > 0) {
+        List<Object[]> skippedRows =
+            _externalSorter.nextBatch(Math.min(numRowsToSkip, RowBlockSpillFile.DEFAULT_BATCH_SIZE));
+        if (skippedRows == null) {
+          break;
+        }
+        numRowsToSkip -= skippedRows.size();
+      }
+      _numRowsToEmit = _numRowsToKeep - _offset;
+    }
+    if (_numRowsToEmit > 0) {
+      List<Object[]> rows = _externalSorter.nextBatch(Math.min(_numRowsToEmit, RowBlockSpillFile.DEFAULT_BATCH_SIZE));
+      if (rows != null) {
+        _numRowsToEmit -= rows.size();
+        return new TransferableBlock(rows, _dataSchema, DataBlock.Type.ROW);
+      }
+    }
+    _statMap.merge(StatKey.REQUIRE_SORT, true);
+    _statMap.merge(StatKey.NUM_SPILLED_RUNS, _externalSorter.getNumRuns());
+    _statMap.merge(StatKey.SPILLED_ROWS, _externalSorter.getNumSpilledRows());
+    _statMap.merge(StatKey.SPILLED_BYTES, _externalSorter.getNumSpilledBytes());
+    _statMap.merge(StatKey.TIME_SPILLING_MS, _externalSorter.getSpillTimeMs());
+    _statMap.merge(StatKey.TIME_MERGING_MS, _externalSorter.getMergeTimeMs());
+    _externalSorter.close();
+    _eosBlock = updateEosBlock(_upstreamEosBlock, _statMap);
+    return _eosBlock;
+  }
+
+  private TransferableBlock consumeInputBlocks()
+      throws IOException {
     TransferableBlock block = _input.nextBlock();
     while (block.isDataBlock()) {
       List<Object[]> container = block.getContainer();
-      if (_priorityQueue == null) {
+      if (_externalSorter != null) {
+        _externalSorter.addAll(container);
+      } else if (_priorityQueue == null) {
         // TODO: when push-down properly, we shouldn't get more than _numRowsToKeep
         int numRows = _rows.size();
         if (numRows < _numRowsToKeep) {
@@ -200,7 +287,27 @@ public class SortOperator extends MultiStageOperator {
       public boolean includeDefaultInJson() {
         return true;
       }
-    };
+    },
+    /**
+     * Number of sorted runs spilled to disk when the rows are sorted externally.
+     */
+    NUM_SPILLED_RUNS(StatMap.Type.INT),
+    /**
+     * Number of rows spilled to disk when the rows are sorted externally.
+     */
+    SPILLED_ROWS(StatMap.Type.LONG),
+    /**
+     * Number of bytes spilled to disk when the rows are sorted externally.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG),
+    /**
+     * How long has been spent on sorting and writing the runs into the spill files.
+     */
+    TIME_SPILLING_MS(StatMap.Type.LONG),
+    /**
+     * How long has been spent on merging the sorted runs.
+     */
+    TIME_MERGING_MS(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
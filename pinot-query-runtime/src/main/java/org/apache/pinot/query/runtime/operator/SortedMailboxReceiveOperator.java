@@ -77,10 +77,10 @@ public class SortedMailboxReceiveOperator extends BaseMailboxReceiveOperator {
     }
     // Collect all the rows from the mailbox and sort them
     while (true) {
-      TransferableBlock block = _multiConsumer.readBlockBlocking();
+      TransferableBlock block = _multiConsumer.readBlock();
       if (block.isDataBlock()) {
         _rows.addAll(block.getContainer());
-      } else if (block.isErrorBlock()) {
+      } else if (block.isNoOpBlock() || block.isErrorBlock()) {
         return block;
       } else {
         assert block.isSuccessfulEndOfStreamBlock();
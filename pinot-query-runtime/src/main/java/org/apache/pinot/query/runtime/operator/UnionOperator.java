@@ -69,7 +69,7 @@ public class UnionOperator extends SetOperator {
     for (int i = _finishedChildren; i < childOperators.size(); i++) {
       MultiStageOperator upstreamOperator = childOperators.get(i);
       TransferableBlock block = upstreamOperator.nextBlock();
-      if (block.isDataBlock()) {
+      if (block.isDataBlock() || block.isNoOpBlock()) {
         return block;
       } else if (block.isSuccessfulEndOfStreamBlock()) {
         _finishedChildren++;
@@ -69,6 +69,12 @@ import org.slf4j.LoggerFactory;
  * should handle adding a 'SortExchange' to do the ordering prior to pipelining the data to the upstream operators
  * wherever ordering is required.
  *
+ * When the frame ends at the CURRENT ROW and all the window functions can be computed incrementally, the operator
+ * works in streaming mode: instead of caching all the input rows, it only caches the peer rows (rows with the same
+ * 'ORDER BY' keys) and the state of each partition, and emits the results as soon as the peer rows are complete. This
+ * relies on the input being ordered on the 'ORDER BY' keys, but not on the rows of a partition being contiguous. The
+ * max rows in window limit is applied to the cached peer rows in streaming mode.
+ *
  * Note: This class performs aggregation over the double value of input.
  * If the input is single value, the output type will be input type. Otherwise, the output type will be double.
  *
@@ -98,6 +104,13 @@ public class WindowAggregateOperator extends MultiStageOperator {
   private final Map<Key, List<Object[]>> _partitionRows = new HashMap<>();
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
 
+  // Below are used in streaming mode only
+  private final boolean _streaming;
+  private final int[] _orderKeys;
+  private final Map<Key, WindowFunction.PartitionProcessor[]> _partitionProcessors = new HashMap<>();
+  private final List<Object[]> _peerRows = new ArrayList<>();
+  private Key _peerOrderKey;
+
   // Below are specific parameters to protect the window cache from growing too large.
   // Once the window cache reaches the limit, we will throw exception or break the cache build process.
   /**
@@ -112,6 +125,7 @@ public class WindowAggregateOperator extends MultiStageOperator {
   private final WindowOverFlowMode _windowOverflowMode;
 
   private int _numRows;
+  private boolean _maxRowsInWindowReached;
   private boolean _hasReturnedWindowAggregateBlock;
   private TransferableBlock _eosBlock;
 
@@ -137,11 +151,19 @@ public class WindowAggregateOperator extends MultiStageOperator {
     List<RexExpression.FunctionCall> aggCalls = node.getAggCalls();
     int numAggCalls = aggCalls.size();
     _windowFunctions = new WindowFunction[numAggCalls];
+    boolean supportsStreaming = !partitionByOnly && _windowFrame.isUpperBoundCurrentRow();
     for (int i = 0; i < numAggCalls; i++) {
       RexExpression.FunctionCall aggCall = aggCalls.get(i);
       validateAggregationCalls(aggCall.getFunctionName());
       _windowFunctions[i] =
           WindowFunctionFactory.construnctWindowFunction(aggCall, inputSchema, collations, partitionByOnly);
+      supportsStreaming &= _windowFunctions[i].supportsStreaming();
+    }
+    _streaming = supportsStreaming;
+    int numOrderKeys = collations.size();
+    _orderKeys = new int[numOrderKeys];
+    for (int i = 0; i < numOrderKeys; i++) {
+      _orderKeys[i] = collations.get(i).getFieldIndex();
     }
 
     Map<String, String> metadata = context.getOpChainMetadata();
@@ -206,7 +228,7 @@ public class WindowAggregateOperator extends MultiStageOperator {
     if (_hasReturnedWindowAggregateBlock) {
       return _eosBlock;
     }
-    return computeBlocks();
+    return _streaming ? computeStreamingBlock() : computeBlocks();
   }
 
   private void validateAggregationCalls(String functionName) {
@@ -238,7 +260,8 @@ public class WindowAggregateOperator extends MultiStageOperator {
   }
 
   /**
-   * @return the final block, which must be either an end of stream or an error.
+   * @return the final block, which must be either an end of stream or an error, or a no-op block when the input is not
+   *         available yet.
    */
   private TransferableBlock computeBlocks()
       throws ProcessingException {
@@ -248,12 +271,7 @@ public class WindowAggregateOperator extends MultiStageOperator {
       int containerSize = container.size();
       if (_numRows + containerSize > _maxRowsInWindowCache) {
         if (_windowOverflowMode == WindowOverFlowMode.THROW) {
-          ProcessingException resourceLimitExceededException =
-              new ProcessingException(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE);
-          resourceLimitExceededException.setMessage(
-              "Cannot build in memory window cache for WINDOW operator, reach number of rows limit: "
-                  + _maxRowsInWindowCache);
-          throw resourceLimitExceededException;
+          throw getResourceLimitExceededException();
         } else {
           // Just fill up the buffer.
           int remainingRows = _maxRowsInWindowCache - _numRows;
@@ -271,14 +289,13 @@ public class WindowAggregateOperator extends MultiStageOperator {
       _numRows += containerSize;
       block = _input.nextBlock();
     }
-    // Early termination if the block is an error block
-    if (block.isErrorBlock()) {
+    // Early termination if the block is an error block, or no-op block to continue consuming later
+    if (block.isNoOpBlock() || block.isErrorBlock()) {
       return block;
     }
     assert block.isSuccessfulEndOfStreamBlock();
     _eosBlock = updateEosBlock(block, _statMap);
 
-    ColumnDataType[] resultStoredTypes = _resultSchema.getStoredColumnDataTypes();
     List<Object[]> rows = new ArrayList<>(_numRows);
     for (Map.Entry<Key, List<Object[]>> e : _partitionRows.entrySet()) {
       List<Object[]> rowList = e.getValue();
@@ -290,21 +307,63 @@ public class WindowAggregateOperator extends MultiStageOperator {
         assert processRows.size() == rowList.size();
         windowFunctionResults.add(processRows);
       }
+      addResultRows(rowList, windowFunctionResults, rows);
+    }
+
+    _hasReturnedWindowAggregateBlock = true;
+    if (rows.isEmpty()) {
+      return _eosBlock;
+    } else {
+      return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+    }
+  }
 
-      for (int rowId = 0; rowId < rowList.size(); rowId++) {
-        Object[] existingRow = rowList.get(rowId);
-        Object[] row = new Object[existingRow.length + _windowFunctions.length];
-        System.arraycopy(existingRow, 0, row, 0, existingRow.length);
-        for (int i = 0; i < _windowFunctions.length; i++) {
-          row[i + existingRow.length] = windowFunctionResults.get(i).get(rowId);
+  /**
+   * Computes the window functions in streaming mode.
+   *
+   * @return the next block with the results of the completed peer rows, or the final block, which must be either an
+   *         end of stream or an error, or a no-op block when the input is not available yet.
+   */
+  private TransferableBlock computeStreamingBlock()
+      throws ProcessingException {
+    TransferableBlock block = _input.nextBlock();
+    while (block.isDataBlock()) {
+      List<Object[]> rows = new ArrayList<>();
+      if (!_maxRowsInWindowReached) {
+        for (Object[] row : block.getContainer()) {
+          Key orderKey = AggregationUtils.extractRowKey(row, _orderKeys);
+          if (!orderKey.equals(_peerOrderKey)) {
+            processPeerRows(rows);
+            _peerOrderKey = orderKey;
+          }
+          if (_peerRows.size() == _maxRowsInWindowCache) {
+            if (_windowOverflowMode == WindowOverFlowMode.THROW) {
+              throw getResourceLimitExceededException();
+            } else {
+              // Ignore the remaining rows, and setting the inputOperator to be early terminated and awaits EOS block
+              _maxRowsInWindowReached = true;
+              _statMap.merge(StatKey.MAX_ROWS_IN_WINDOW_REACHED, true);
+              _input.earlyTerminate();
+              break;
+            }
+          }
+          _peerRows.add(row);
         }
-        // Convert the results from WindowFunction to the desired type
-        TypeUtils.convertRow(row, resultStoredTypes);
-        rows.add(row);
       }
+      if (!rows.isEmpty()) {
+        return new TransferableBlock(rows, _resultSchema, DataBlock.Type.ROW);
+      }
+      block = _input.nextBlock();
     }
-
+    // Early termination if the block is an error block, or no-op block to continue consuming later
+    if (block.isNoOpBlock() || block.isErrorBlock()) {
+      return block;
+    }
+    assert block.isSuccessfulEndOfStreamBlock();
+    _eosBlock = updateEosBlock(block, _statMap);
     _hasReturnedWindowAggregateBlock = true;
+    List<Object[]> rows = new ArrayList<>(_peerRows.size());
+    processPeerRows(rows);
     if (rows.isEmpty()) {
       return _eosBlock;
     } else {
@@ -312,6 +371,64 @@ public class WindowAggregateOperator extends MultiStageOperator {
     }
   }
 
+  /**
+   * Computes the window functions for the cached peer rows, and adds the results into the given rows.
+   */
+  private void processPeerRows(List<Object[]> rows) {
+    if (_peerRows.isEmpty()) {
+      return;
+    }
+    Map<Key, List<Object[]>> partitionPeerRows = new HashMap<>();
+    for (Object[] row : _peerRows) {
+      Key key = AggregationUtils.extractRowKey(row, _keys);
+      partitionPeerRows.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+    }
+    int numWindowFunctions = _windowFunctions.length;
+    for (Map.Entry<Key, List<Object[]>> e : partitionPeerRows.entrySet()) {
+      WindowFunction.PartitionProcessor[] partitionProcessors =
+          _partitionProcessors.computeIfAbsent(e.getKey(), k -> {
+            WindowFunction.PartitionProcessor[] processors = new WindowFunction.PartitionProcessor[numWindowFunctions];
+            for (int i = 0; i < numWindowFunctions; i++) {
+              processors[i] = _windowFunctions[i].createPartitionProcessor();
+            }
+            return processors;
+          });
+      List<Object[]> rowList = e.getValue();
+      List<List<Object>> windowFunctionResults = new ArrayList<>(numWindowFunctions);
+      for (WindowFunction.PartitionProcessor partitionProcessor : partitionProcessors) {
+        List<Object> processRows = partitionProcessor.processPeerRows(rowList);
+        assert processRows.size() == rowList.size();
+        windowFunctionResults.add(processRows);
+      }
+      addResultRows(rowList, windowFunctionResults, rows);
+    }
+    _peerRows.clear();
+  }
+
+  private void addResultRows(List<Object[]> rowList, List<List<Object>> windowFunctionResults, List<Object[]> rows) {
+    ColumnDataType[] resultStoredTypes = _resultSchema.getStoredColumnDataTypes();
+    for (int rowId = 0; rowId < rowList.size(); rowId++) {
+      Object[] existingRow = rowList.get(rowId);
+      Object[] row = new Object[existingRow.length + _windowFunctions.length];
+      System.arraycopy(existingRow, 0, row, 0, existingRow.length);
+      for (int i = 0; i < _windowFunctions.length; i++) {
+        row[i + existingRow.length] = windowFunctionResults.get(i).get(rowId);
+      }
+      // Convert the results from WindowFunction to the desired type
+      TypeUtils.convertRow(row, resultStoredTypes);
+      rows.add(row);
+    }
+  }
+
+  private ProcessingException getResourceLimitExceededException() {
+    ProcessingException resourceLimitExceededException =
+        new ProcessingException(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE);
+    resourceLimitExceededException.setMessage(
+        "Cannot build in memory window cache for WINDOW operator, reach number of rows limit: "
+            + _maxRowsInWindowCache);
+    return resourceLimitExceededException;
+  }
+
   /**
    * Defines the Frame to be used for the window query. The 'lowerBound' and 'upperBound' indicate the frame
    * boundaries to be used. Whereas, 'isRows' is used to differentiate between RANGE and ROWS type frames.
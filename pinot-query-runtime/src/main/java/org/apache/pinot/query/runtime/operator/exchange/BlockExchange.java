@@ -18,6 +18,7 @@
  */
 package org.apache.pinot.query.runtime.operator.exchange;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
@@ -124,6 +125,25 @@ public abstract class BlockExchange {
     }
   }
 
+  /**
+   * Sends the block to all the given mailboxes. The block is split only once, and the same split blocks are sent to all
+   * the mailboxes, so that they are serialized only once for the remote mailboxes.
+   */
+  protected void sendBlock(List<SendingMailbox> sendingMailboxes, TransferableBlock block)
+      throws Exception {
+    if (sendingMailboxes.size() == 1) {
+      sendBlock(sendingMailboxes.get(0), block);
+      return;
+    }
+    List<TransferableBlock> splits = new ArrayList<>();
+    _splitter.split(block, block.getType(), MAX_MAILBOX_CONTENT_SIZE_BYTES).forEachRemaining(splits::add);
+    for (SendingMailbox sendingMailbox : sendingMailboxes) {
+      for (TransferableBlock split : splits) {
+        sendingMailbox.send(split);
+      }
+    }
+  }
+
   protected abstract void route(List<SendingMailbox> destinations, TransferableBlock block)
       throws Exception;
 
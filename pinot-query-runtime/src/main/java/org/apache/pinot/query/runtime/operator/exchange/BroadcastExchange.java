@@ -36,8 +36,6 @@ class BroadcastExchange extends BlockExchange {
   @Override
   protected void route(List<SendingMailbox> destinations, TransferableBlock block)
       throws Exception {
-    for (SendingMailbox mailbox : destinations) {
-      sendBlock(mailbox, block);
-    }
+    sendBlock(destinations, block);
   }
 }
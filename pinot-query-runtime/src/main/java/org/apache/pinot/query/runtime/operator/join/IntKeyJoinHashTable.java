@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.BitSet;
+import javax.annotation.Nullable;
+
+
+/**
+ * {@link JoinHashTable} for single INT key, which stores the keys and the ranges without boxing.
+ */
+public class IntKeyJoinHashTable extends JoinHashTable {
+  // Stores the number of rows for each key during the build phase, and the range of row indexes after
+  private final Int2LongOpenHashMap _keyToRangeMap = new Int2LongOpenHashMap();
+
+  private IntArrayList _keys = new IntArrayList();
+  private BitSet _nullKeyRows;
+  private int _numNullKeyRows;
+  private long _nullKeyRange = NO_MATCH;
+
+  @Override
+  protected void addKey(@Nullable Object key) {
+    if (key == null) {
+      if (_nullKeyRows == null) {
+        _nullKeyRows = new BitSet();
+      }
+      _nullKeyRows.set(_keys.size());
+      _numNullKeyRows++;
+      _keys.add(0);
+    } else {
+      int intKey = (int) key;
+      _keyToRangeMap.addTo(intKey, 1);
+      _keys.add(intKey);
+    }
+  }
+
+  @Override
+  protected void computeRanges() {
+    int start = 0;
+    ObjectIterator<Int2LongMap.Entry> iterator = _keyToRangeMap.int2LongEntrySet().fastIterator();
+    while (iterator.hasNext()) {
+      Int2LongMap.Entry entry = iterator.next();
+      int numRows = (int) entry.getLongValue();
+      entry.setValue(toRange(start, start));
+      start += numRows;
+    }
+    if (_numNullKeyRows > 0) {
+      _nullKeyRange = toRange(start, start);
+    }
+    _keyToRangeMap.defaultReturnValue(NO_MATCH);
+  }
+
+  @Override
+  protected int getAndIncrementIndex(int rowId) {
+    if (_nullKeyRows != null && _nullKeyRows.get(rowId)) {
+      return getEnd(_nullKeyRange++);
+    }
+    return getEnd(_keyToRangeMap.addTo(_keys.getInt(rowId), 1));
+  }
+
+  @Override
+  protected void onFinish() {
+    _keys = null;
+    _nullKeyRows = null;
+  }
+
+  @Override
+  public long lookup(@Nullable Object key) {
+    return key != null ? _keyToRangeMap.get((int) key) : _nullKeyRange;
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+
+/**
+ * The {@code JoinHashTable} is the build side hash table of the hash join.
+ *
+ * <p>It works in 2 phases:
+ * <ul>
+ *   <li>Build phase: rows are added with {@link #add(Object, Object[])}, and the number of rows for each key is
+ *   tracked.</li>
+ *   <li>Probe phase: after {@link #finish()} is called, rows are re-ordered so that the rows with the same key are
+ *   stored contiguously, and {@link #lookup(Object)} returns the range of row indexes ([start, end)) for the key. The
+ *   rows can then be accessed with {@link #getRow(int)}, and the matched rows can be tracked with a single bitmap over
+ *   the row indexes.</li>
+ * </ul>
+ *
+ * <p>The range is packed into a long with the start index in the high 32 bits and the end index in the low 32 bits,
+ * which allows the implementations to store it as a primitive map value.
+ */
+public abstract class JoinHashTable {
+  public static final long NO_MATCH = -1L;
+
+  private ArrayList<Object[]> _rows = new ArrayList<>();
+  private Object[][] _sortedRows;
+
+  /**
+   * Adds a row with the given key into the hash table. Can only be called before {@link #finish()}.
+   */
+  public void add(@Nullable Object key, Object[] row) {
+    Preconditions.checkState(_sortedRows == null, "Cannot add rows after finishing building the hash table");
+    addKey(key);
+    _rows.add(row);
+  }
+
+  /**
+   * Returns the rows added to the hash table. The rows are in the insertion order before {@link #finish()} is called,
+   * and ordered by key after.
+   */
+  public List<Object[]> getRows() {
+    return _sortedRows == null ? _rows : List.of(_sortedRows);
+  }
+
+  public int getNumRows() {
+    return _sortedRows == null ? _rows.size() : _sortedRows.length;
+  }
+
+  /**
+   * Finishes building the hash table, and groups the rows by key so that they can be looked up.
+   */
+  public void finish() {
+    if (_sortedRows != null) {
+      return;
+    }
+    int numRows = _rows.size();
+    Object[][] sortedRows = new Object[numRows][];
+    // Convert the number of rows for each key into the range of row indexes, then scatter the rows into the ranges
+    computeRanges();
+    for (int i = 0; i < numRows; i++) {
+      sortedRows[getAndIncrementIndex(i)] = _rows.get(i);
+    }
+    _sortedRows = sortedRows;
+    _rows = null;
+    onFinish();
+  }
+
+  /**
+   * Returns the range of row indexes for the given key, or {@link #NO_MATCH} if the key does not exist. Use
+   * {@link #getStart(long)} and {@link #getEnd(long)} to get the start (inclusive) and end (exclusive) of the range.
+   * Can only be called after {@link #finish()}.
+   */
+  public abstract long lookup(@Nullable Object key);
+
+  /**
+   * Returns whether the given key exists in the hash table. Can only be called after {@link #finish()}.
+   */
+  public boolean containsKey(@Nullable Object key) {
+    return lookup(key) != NO_MATCH;
+  }
+
+  public Object[] getRow(int index) {
+    return _sortedRows[index];
+  }
+
+  public static int getStart(long range) {
+    return (int) (range >>> 32);
+  }
+
+  public static int getEnd(long range) {
+    return (int) range;
+  }
+
+  protected static long toRange(int start, int end) {
+    return ((long) start << 32) | end;
+  }
+
+  /**
+   * Records the key of the next row added.
+   */
+  protected abstract void addKey(@Nullable Object key);
+
+  /**
+   * Converts the number of rows for each key into an empty range (end equals start) of row indexes.
+   */
+  protected abstract void computeRanges();
+
+  /**
+   * Returns the end of the range for the key of the given row (in insertion order), then increments it.
+   */
+  protected abstract int getAndIncrementIndex(int rowId);
+
+  /**
+   * Releases the resources only used during the build phase.
+   */
+  protected abstract void onFinish();
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.BitSet;
+import javax.annotation.Nullable;
+
+
+/**
+ * {@link JoinHashTable} for single LONG key, which stores the keys and the ranges without boxing.
+ */
+public class LongKeyJoinHashTable extends JoinHashTable {
+  // Stores the number of rows for each key during the build phase, and the range of row indexes after
+  private final Long2LongOpenHashMap _keyToRangeMap = new Long2LongOpenHashMap();
+
+  private LongArrayList _keys = new LongArrayList();
+  private BitSet _nullKeyRows;
+  private int _numNullKeyRows;
+  private long _nullKeyRange = NO_MATCH;
+
+  @Override
+  protected void addKey(@Nullable Object key) {
+    if (key == null) {
+      if (_nullKeyRows == null) {
+        _nullKeyRows = new BitSet();
+      }
+      _nullKeyRows.set(_keys.size());
+      _numNullKeyRows++;
+      _keys.add(0L);
+    } else {
+      long longKey = (long) key;
+      _keyToRangeMap.addTo(longKey, 1);
+      _keys.add(longKey);
+    }
+  }
+
+  @Override
+  protected void computeRanges() {
+    int start = 0;
+    ObjectIterator<Long2LongMap.Entry> iterator = _keyToRangeMap.long2LongEntrySet().fastIterator();
+    while (iterator.hasNext()) {
+      Long2LongMap.Entry entry = iterator.next();
+      int numRows = (int) entry.getLongValue();
+      entry.setValue(toRange(start, start));
+      start += numRows;
+    }
+    if (_numNullKeyRows > 0) {
+      _nullKeyRange = toRange(start, start);
+    }
+    _keyToRangeMap.defaultReturnValue(NO_MATCH);
+  }
+
+  @Override
+  protected int getAndIncrementIndex(int rowId) {
+    if (_nullKeyRows != null && _nullKeyRows.get(rowId)) {
+      return getEnd(_nullKeyRange++);
+    }
+    return getEnd(_keyToRangeMap.addTo(_keys.getLong(rowId), 1));
+  }
+
+  @Override
+  protected void onFinish() {
+    _keys = null;
+    _nullKeyRows = null;
+  }
+
+  @Override
+  public long lookup(@Nullable Object key) {
+    return key != null ? _keyToRangeMap.get((long) key) : _nullKeyRange;
+  }
+}
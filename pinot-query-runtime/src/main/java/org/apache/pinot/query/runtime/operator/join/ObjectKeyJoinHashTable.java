@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.ArrayList;
+import javax.annotation.Nullable;
+
+
+/**
+ * {@link JoinHashTable} for any type of key (including multiple keys).
+ */
+public class ObjectKeyJoinHashTable extends JoinHashTable {
+  // Stores the number of rows for each key during the build phase, and the range of row indexes after
+  private final Object2LongOpenHashMap<Object> _keyToRangeMap = new Object2LongOpenHashMap<>();
+
+  private ArrayList<Object> _keys = new ArrayList<>();
+
+  @Override
+  protected void addKey(@Nullable Object key) {
+    _keyToRangeMap.addTo(key, 1);
+    _keys.add(key);
+  }
+
+  @Override
+  protected void computeRanges() {
+    int start = 0;
+    ObjectIterator<Object2LongMap.Entry<Object>> iterator = _keyToRangeMap.object2LongEntrySet().fastIterator();
+    while (iterator.hasNext()) {
+      Object2LongMap.Entry<Object> entry = iterator.next();
+      int numRows = (int) entry.getLongValue();
+      entry.setValue(toRange(start, start));
+      start += numRows;
+    }
+    _keyToRangeMap.defaultReturnValue(NO_MATCH);
+  }
+
+  @Override
+  protected int getAndIncrementIndex(int rowId) {
+    return getEnd(_keyToRangeMap.addTo(_keys.get(rowId), 1));
+  }
+
+  @Override
+  protected void onFinish() {
+    _keys = null;
+  }
+
+  @Override
+  public long lookup(@Nullable Object key) {
+    return _keyToRangeMap.getLong(key);
+  }
+}
@@ -0,0 +1,350 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.query.utils.idset.IdSet;
+import org.apache.pinot.core.query.utils.idset.IdSets;
+import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.spi.utils.ByteArray;
+
+
+/**
+ * Runtime filter built from the right table join keys of a hash join, and sent to the leaf stage scanning the left
+ * table so that the left rows not matching any right row can be skipped before being sent to the join.
+ *
+ * For each join key, the filter tracks the min/max value (used to prune the scan of the left table), whether there is
+ * any null value, and the set of values ({@link IdSet}, exact for INT/LONG until it grows over the size threshold,
+ * bloom filter otherwise). A left row passes the filter when each key value might be in the right table, so the filter
+ * never drops a row that would be joined.
+ *
+ * The filter is serialized into a single row {@link TransferableBlock} so that it can be sent over the mailbox.
+ */
+public class RuntimeJoinFilter {
+  // Use a smaller size threshold and fixed bloom filter parameters than the IdSets defaults so that the filter is
+  // cheap to send to all the leaf workers, and the filters from different join workers can always be merged
+  public static final int SIZE_THRESHOLD_IN_BYTES = 1024 * 1024;
+  public static final int BLOOM_FILTER_EXPECTED_INSERTIONS = 1_000_000;
+
+  private static final String KEY_COLUMN_PREFIX = "key_";
+  private static final String MIN_VALUE_COLUMN_PREFIX = "min_";
+  private static final String MAX_VALUE_COLUMN_PREFIX = "max_";
+  private static final String HAS_NULL_VALUE_COLUMN_PREFIX = "hasNull_";
+  private static final String VALUES_COLUMN_PREFIX = "values_";
+  private static final int NUM_COLUMNS_PER_KEY = 5;
+
+  // Column indexes of the join keys within the left table rows
+  private final int[] _keys;
+  private final ColumnDataType[] _storedTypes;
+  private final Comparable[] _minValues;
+  private final Comparable[] _maxValues;
+  private final boolean[] _hasNullValues;
+  private final IdSet[] _idSets;
+
+  public RuntimeJoinFilter(int[] keys, ColumnDataType[] storedTypes) {
+    Preconditions.checkArgument(keys.length == storedTypes.length, "Got %s keys but %s stored types", keys.length,
+        storedTypes.length);
+    for (ColumnDataType storedType : storedTypes) {
+      Preconditions.checkArgument(isSupported(storedType), "Unsupported stored type: %s", storedType);
+    }
+    _keys = keys;
+    _storedTypes = storedTypes;
+    int numKeys = keys.length;
+    _minValues = new Comparable[numKeys];
+    _maxValues = new Comparable[numKeys];
+    _hasNullValues = new boolean[numKeys];
+    _idSets = new IdSet[numKeys];
+  }
+
+  /**
+   * Returns {@code true} if the runtime filter can be built on the join key of the given stored type.
+   */
+  public static boolean isSupported(ColumnDataType storedType) {
+    switch (storedType) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+      case BYTES:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public int getNumKeys() {
+    return _keys.length;
+  }
+
+  /**
+   * Returns the column index of the i-th join key within the left table rows.
+   */
+  public int getKey(int i) {
+    return _keys[i];
+  }
+
+  public ColumnDataType getStoredType(int i) {
+    return _storedTypes[i];
+  }
+
+  /**
+   * Returns the min value of the i-th join key, or {@code null} if there is no (non-null) value or the value is not
+   * comparable (BYTES).
+   */
+  @Nullable
+  public Comparable getMinValue(int i) {
+    return _minValues[i];
+  }
+
+  /**
+   * Returns the max value of the i-th join key, or {@code null} if there is no (non-null) value or the value is not
+   * comparable (BYTES).
+   */
+  @Nullable
+  public Comparable getMaxValue(int i) {
+    return _maxValues[i];
+  }
+
+  public boolean hasNullValue(int i) {
+    return _hasNullValues[i];
+  }
+
+  /**
+   * Returns {@code true} if there is any non-null value for the i-th join key.
+   */
+  public boolean hasValues(int i) {
+    return _idSets[i] != null && _idSets[i].getType() != IdSet.Type.EMPTY;
+  }
+
+  /**
+   * Adds the join keys of the given right table rows, where the i-th join key is read from the column at
+   * {@code columnIndexes[i]}.
+   */
+  @SuppressWarnings("unchecked")
+  public void addRows(List<Object[]> rows, int[] columnIndexes) {
+    int numKeys = _keys.length;
+    for (int i = 0; i < numKeys; i++) {
+      int columnIndex = columnIndexes[i];
+      ColumnDataType storedType = _storedTypes[i];
+      boolean comparable = storedType != ColumnDataType.BYTES;
+      Comparable minValue = _minValues[i];
+      Comparable maxValue = _maxValues[i];
+      IdSet idSet = _idSets[i];
+      for (Object[] row : rows) {
+        Object value = row[columnIndex];
+        if (value == null) {
+          _hasNullValues[i] = true;
+          continue;
+        }
+        if (idSet == null) {
+          idSet = IdSets.create(storedType.toDataType(), SIZE_THRESHOLD_IN_BYTES, BLOOM_FILTER_EXPECTED_INSERTIONS,
+              IdSets.DEFAULT_FPP);
+        }
+        addValue(idSet, storedType, value);
+        if (comparable) {
+          Comparable comparableValue = (Comparable) value;
+          if (minValue == null || comparableValue.compareTo(minValue) < 0) {
+            minValue = comparableValue;
+          }
+          if (maxValue == null || comparableValue.compareTo(maxValue) > 0) {
+            maxValue = comparableValue;
+          }
+        }
+      }
+      _minValues[i] = minValue;
+      _maxValues[i] = maxValue;
+      _idSets[i] = idSet;
+    }
+  }
+
+  private static void addValue(IdSet idSet, ColumnDataType storedType, Object value) {
+    switch (storedType) {
+      case INT:
+        idSet.add((int) value);
+        break;
+      case LONG:
+        idSet.add((long) value);
+        break;
+      case FLOAT:
+        idSet.add((float) value);
+        break;
+      case DOUBLE:
+        idSet.add((double) value);
+        break;
+      case STRING:
+        idSet.add((String) value);
+        break;
+      case BYTES:
+        idSet.add(((ByteArray) value).getBytes());
+        break;
+      default:
+        throw new IllegalStateException("Unsupported stored type: " + storedType);
+    }
+  }
+
+  /**
+   * Returns {@code false} if the given left table row cannot match any right table row, {@code true} otherwise.
+   */
+  @SuppressWarnings("unchecked")
+  public boolean test(Object[] row) {
+    int numKeys = _keys.length;
+    for (int i = 0; i < numKeys; i++) {
+      Object value = row[_keys[i]];
+      if (value == null) {
+        if (!_hasNullValues[i]) {
+          return false;
+        }
+        continue;
+      }
+      IdSet idSet = _idSets[i];
+      if (idSet == null) {
+        return false;
+      }
+      Comparable minValue = _minValues[i];
+      if (minValue != null && (minValue.compareTo(value) > 0 || _maxValues[i].compareTo(value) < 0)) {
+        return false;
+      }
+      if (!containsValue(idSet, _storedTypes[i], value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsValue(IdSet idSet, ColumnDataType storedType, Object value) {
+    switch (storedType) {
+      case INT:
+        return idSet.contains((int) value);
+      case LONG:
+        return idSet.contains((long) value);
+      case FLOAT:
+        return idSet.contains((float) value);
+      case DOUBLE:
+        return idSet.contains((double) value);
+      case STRING:
+        return idSet.contains((String) value);
+      case BYTES:
+        return idSet.contains(((ByteArray) value).getBytes());
+      default:
+        throw new IllegalStateException("Unsupported stored type: " + storedType);
+    }
+  }
+
+  /**
+   * Merges the runtime filter built by another join worker (on a different part of the right table) into the first
+   * one, and returns the merged filter.
+   */
+  @SuppressWarnings("unchecked")
+  public static RuntimeJoinFilter merge(RuntimeJoinFilter filter1, RuntimeJoinFilter filter2) {
+    Preconditions.checkArgument(
+        Arrays.equals(filter1._keys, filter2._keys) && Arrays.equals(filter1._storedTypes, filter2._storedTypes),
+        "Cannot merge runtime filters on different keys");
+    int numKeys = filter1._keys.length;
+    for (int i = 0; i < numKeys; i++) {
+      Comparable minValue = filter2._minValues[i];
+      if (minValue != null && (filter1._minValues[i] == null || minValue.compareTo(filter1._minValues[i]) < 0)) {
+        filter1._minValues[i] = minValue;
+      }
+      Comparable maxValue = filter2._maxValues[i];
+      if (maxValue != null && (filter1._maxValues[i] == null || maxValue.compareTo(filter1._maxValues[i]) > 0)) {
+        filter1._maxValues[i] = maxValue;
+      }
+      filter1._hasNullValues[i] |= filter2._hasNullValues[i];
+      IdSet idSet = filter2._idSets[i];
+      if (idSet != null) {
+        filter1._idSets[i] = filter1._idSets[i] != null ? IdSets.merge(filter1._idSets[i], idSet,
+            SIZE_THRESHOLD_IN_BYTES, BLOOM_FILTER_EXPECTED_INSERTIONS, IdSets.DEFAULT_FPP) : idSet;
+      }
+    }
+    return filter1;
+  }
+
+  /**
+   * Serializes the runtime filter into a single row block, with 5 columns for each join key: column index within the
+   * left table rows, min value, max value, whether there is any null value, and the serialized {@link IdSet}.
+   */
+  public TransferableBlock toBlock()
+      throws IOException {
+    int numKeys = _keys.length;
+    String[] columnNames = new String[numKeys * NUM_COLUMNS_PER_KEY];
+    ColumnDataType[] columnDataTypes = new ColumnDataType[numKeys * NUM_COLUMNS_PER_KEY];
+    Object[] row = new Object[numKeys * NUM_COLUMNS_PER_KEY];
+    for (int i = 0; i < numKeys; i++) {
+      int index = i * NUM_COLUMNS_PER_KEY;
+      columnNames[index] = KEY_COLUMN_PREFIX + i;
+      columnDataTypes[index] = ColumnDataType.INT;
+      row[index] = _keys[i];
+      columnNames[index + 1] = MIN_VALUE_COLUMN_PREFIX + i;
+      columnDataTypes[index + 1] = _storedTypes[i];
+      row[index + 1] = _minValues[i];
+      columnNames[index + 2] = MAX_VALUE_COLUMN_PREFIX + i;
+      columnDataTypes[index + 2] = _storedTypes[i];
+      row[index + 2] = _maxValues[i];
+      columnNames[index + 3] = HAS_NULL_VALUE_COLUMN_PREFIX + i;
+      columnDataTypes[index + 3] = ColumnDataType.INT;
+      row[index + 3] = _hasNullValues[i] ? 1 : 0;
+      columnNames[index + 4] = VALUES_COLUMN_PREFIX + i;
+      columnDataTypes[index + 4] = ColumnDataType.BYTES;
+      IdSet idSet = _idSets[i] != null ? _idSets[i] : IdSets.emptyIdSet();
+      row[index + 4] = new ByteArray(idSet.toBytes());
+    }
+    return new TransferableBlock(Collections.singletonList(row), new DataSchema(columnNames, columnDataTypes),
+        DataBlock.Type.ROW);
+  }
+
+  /**
+   * Deserializes the runtime filter from the block created by {@link #toBlock()}.
+   */
+  public static RuntimeJoinFilter fromBlock(TransferableBlock block)
+      throws IOException {
+    DataSchema dataSchema = block.getDataSchema();
+    List<Object[]> rows = block.getContainer();
+    Preconditions.checkState(dataSchema != null && rows.size() == 1, "Invalid runtime filter block");
+    int numColumns = dataSchema.size();
+    Preconditions.checkState(numColumns % NUM_COLUMNS_PER_KEY == 0, "Invalid runtime filter block");
+    int numKeys = numColumns / NUM_COLUMNS_PER_KEY;
+    Object[] row = rows.get(0);
+    int[] keys = new int[numKeys];
+    ColumnDataType[] storedTypes = new ColumnDataType[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      int index = i * NUM_COLUMNS_PER_KEY;
+      keys[i] = (int) row[index];
+      storedTypes[i] = dataSchema.getColumnDataType(index + 1);
+    }
+    RuntimeJoinFilter filter = new RuntimeJoinFilter(keys, storedTypes);
+    for (int i = 0; i < numKeys; i++) {
+      int index = i * NUM_COLUMNS_PER_KEY;
+      filter._minValues[i] = (Comparable) row[index + 1];
+      filter._maxValues[i] = (Comparable) row[index + 2];
+      filter._hasNullValues[i] = (int) row[index + 3] != 0;
+      IdSet idSet = IdSets.fromBytes(((ByteArray) row[index + 4]).getBytes());
+      filter._idSets[i] = idSet.getType() != IdSet.Type.EMPTY ? idSet : null;
+    }
+    return filter;
+  }
+}
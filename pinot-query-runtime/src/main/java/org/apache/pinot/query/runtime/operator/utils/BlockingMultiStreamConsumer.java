@@ -155,6 +155,15 @@ public abstract class BlockingMultiStreamConsumer<E> implements AutoCloseable {
     }
   }
 
+  /**
+   * Same as {@link #readBlockBlocking()}, but returns {@code null} instead of blocking when no mailbox is ready. In
+   * that case, {@link #onData()} is called once new data is available.
+   */
+  @Nullable
+  public E readBlockNonBlocking() {
+    return readDroppingSuccessEos();
+  }
+
   /**
    * This is a utility method that reads tries to read from the different mailboxes in a circular manner.
    *
@@ -235,14 +244,40 @@ public abstract class BlockingMultiStreamConsumer<E> implements AutoCloseable {
 
   public static class OfTransferableBlock extends BlockingMultiStreamConsumer<TransferableBlock> {
 
+    private final OpChainExecutionContext _context;
     private final MultiStageQueryStats _stats;
 
     public OfTransferableBlock(OpChainExecutionContext context,
         List<? extends AsyncStream<TransferableBlock>> asyncProducers) {
       super(context.getId(), context.getDeadlineMs(), asyncProducers);
+      _context = context;
       _stats = MultiStageQueryStats.emptyStats(context.getStageId());
     }
 
+    /**
+     * Reads the next block. When the OpChain yields on no input (see
+     * {@link OpChainExecutionContext#isYieldOnNoInput()}), returns the no-op block instead of blocking when no mailbox
+     * is ready.
+     */
+    public TransferableBlock readBlock() {
+      if (_context.isYieldOnNoInput()) {
+        TransferableBlock block = readBlockNonBlocking();
+        return block != null ? block : TransferableBlockUtils.getNoOpTransferableBlock();
+      }
+      return readBlockBlocking();
+    }
+
+    @Override
+    public void onData() {
+      super.onData();
+      // NOTE: The context can be null when new data arrives before the constructor returns, in which case there is no
+      //       need to notify because the OpChain is not running yet.
+      OpChainExecutionContext context = _context;
+      if (context != null) {
+        context.notifyDataAvailable();
+      }
+    }
+
     @Override
     protected boolean isError(TransferableBlock element) {
       return element.isErrorBlock();
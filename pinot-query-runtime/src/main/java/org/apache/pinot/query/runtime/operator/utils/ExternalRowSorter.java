@@ -0,0 +1,314 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.utils.DataSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * External merge sorter for the rows that might not fit in memory.
+ *
+ * <p>Rows are buffered in memory up to {@code maxRowsInMemory}. Once the buffer is full, the rows are sorted and
+ * written into a {@link RowBlockSpillFile} as a sorted run. Because only the first {@code maxRowsToKeep} rows are
+ * returned, each run keeps at most {@code maxRowsToKeep} rows. After all the rows are added, {@link #finish()} must be
+ * called, and the sorted rows can be read with {@link #nextBatch(int)}, which k-way merges the spilled runs and the
+ * rows still in memory. When there are more than {@link #MAX_MERGE_FAN_IN} runs, the runs are first merged into bigger
+ * runs so that the number of the files read concurrently is bounded.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class ExternalRowSorter implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExternalRowSorter.class);
+
+  public static final int MAX_MERGE_FAN_IN = 64;
+
+  private final DataSchema _dataSchema;
+  private final Comparator<Object[]> _comparator;
+  private final int _maxRowsInMemory;
+  private final int _maxRowsToKeep;
+  private final File _spillDir;
+  private final int _spillBatchSize;
+  private final List<RowBlockSpillFile> _runs = new ArrayList<>();
+
+  private List<Object[]> _rows;
+  private PriorityQueue<RunCursor> _mergeQueue;
+  private List<RunCursor> _cursors;
+  private int _numRuns;
+  private long _numSpilledRows;
+  private long _numSpilledBytes;
+  private long _spillTimeMs;
+  private long _mergeTimeMs;
+  private boolean _finished;
+
+  public ExternalRowSorter(DataSchema dataSchema, Comparator<Object[]> comparator, int maxRowsInMemory,
+      int maxRowsToKeep) {
+    this(RowBlockSpillFile.getDefaultSpillDir(), dataSchema, comparator, maxRowsInMemory, maxRowsToKeep,
+        RowBlockSpillFile.DEFAULT_BATCH_SIZE);
+  }
+
+  public ExternalRowSorter(File spillDir, DataSchema dataSchema, Comparator<Object[]> comparator, int maxRowsInMemory,
+      int maxRowsToKeep, int spillBatchSize) {
+    Preconditions.checkArgument(maxRowsInMemory > 0, "Max rows in memory must be positive, got: %s", maxRowsInMemory);
+    _dataSchema = dataSchema;
+    _comparator = comparator;
+    _maxRowsInMemory = maxRowsInMemory;
+    _maxRowsToKeep = maxRowsToKeep;
+    _spillDir = spillDir;
+    _spillBatchSize = spillBatchSize;
+    _rows = new ArrayList<>(Math.min(maxRowsInMemory, RowBlockSpillFile.DEFAULT_BATCH_SIZE));
+  }
+
+  /**
+   * Adds the given rows, and spills the buffered rows into a sorted run when the buffer is full.
+   */
+  public void addAll(List<Object[]> rows)
+      throws IOException {
+    Preconditions.checkState(!_finished, "Cannot add rows after finishing");
+    for (Object[] row : rows) {
+      _rows.add(row);
+      if (_rows.size() >= _maxRowsInMemory) {
+        spillRun();
+      }
+    }
+  }
+
+  private void spillRun()
+      throws IOException {
+    long startTimeMs = System.currentTimeMillis();
+    _rows.sort(_comparator);
+    List<Object[]> rowsToSpill = _rows.size() > _maxRowsToKeep ? _rows.subList(0, _maxRowsToKeep) : _rows;
+    RowBlockSpillFile run = newRun();
+    run.addAll(rowsToSpill);
+    run.finishWriting();
+    _numSpilledRows += rowsToSpill.size();
+    _numSpilledBytes += run.getNumBytes();
+    _rows.clear();
+    _spillTimeMs += System.currentTimeMillis() - startTimeMs;
+  }
+
+  private RowBlockSpillFile newRun()
+      throws IOException {
+    RowBlockSpillFile run = new RowBlockSpillFile(_spillDir, _dataSchema, "sort_run_" + _numRuns + "_",
+        _spillBatchSize);
+    _runs.add(run);
+    _numRuns++;
+    return run;
+  }
+
+  /**
+   * Finishes adding rows, and prepares the merge of the sorted runs.
+   */
+  public void finish()
+      throws IOException {
+    Preconditions.checkState(!_finished, "Already finished");
+    _finished = true;
+    long startTimeMs = System.currentTimeMillis();
+    _rows.sort(_comparator);
+    if (_rows.size() > _maxRowsToKeep) {
+      _rows = _rows.subList(0, _maxRowsToKeep);
+    }
+    // Merge the spilled runs into bigger runs until the number of runs to read concurrently is bounded
+    while (_runs.size() > MAX_MERGE_FAN_IN) {
+      List<RowBlockSpillFile> runsToMerge = new ArrayList<>(_runs.subList(0, MAX_MERGE_FAN_IN));
+      _runs.subList(0, MAX_MERGE_FAN_IN).clear();
+      openMerge(runsToMerge, null);
+      RowBlockSpillFile mergedRun = newRun();
+      long numRowsMerged = 0;
+      List<Object[]> batch;
+      while (numRowsMerged < _maxRowsToKeep && (batch = mergeNextBatch(
+          (int) Math.min(_spillBatchSize, _maxRowsToKeep - numRowsMerged))) != null) {
+        mergedRun.addAll(batch);
+        numRowsMerged += batch.size();
+      }
+      mergedRun.finishWriting();
+      _numSpilledBytes += mergedRun.getNumBytes();
+      closeMerge();
+      for (RowBlockSpillFile run : runsToMerge) {
+        run.close();
+      }
+    }
+    openMerge(_runs, _rows);
+    _mergeTimeMs += System.currentTimeMillis() - startTimeMs;
+  }
+
+  private void openMerge(List<RowBlockSpillFile> runs, @Nullable List<Object[]> rowsInMemory)
+      throws IOException {
+    _mergeQueue = new PriorityQueue<>(runs.size() + 1, (c1, c2) -> _comparator.compare(c1.current(), c2.current()));
+    _cursors = new ArrayList<>(runs.size() + 1);
+    for (RowBlockSpillFile run : runs) {
+      RunCursor cursor = new RunCursor(run.openReader());
+      _cursors.add(cursor);
+      if (cursor.advance()) {
+        _mergeQueue.add(cursor);
+      }
+    }
+    if (rowsInMemory != null && !rowsInMemory.isEmpty()) {
+      RunCursor cursor = new RunCursor(rowsInMemory);
+      _cursors.add(cursor);
+      if (cursor.advance()) {
+        _mergeQueue.add(cursor);
+      }
+    }
+  }
+
+  @Nullable
+  private List<Object[]> mergeNextBatch(int maxRows)
+      throws IOException {
+    if (_mergeQueue.isEmpty()) {
+      return null;
+    }
+    List<Object[]> batch = new ArrayList<>(Math.min(maxRows, _spillBatchSize));
+    while (batch.size() < maxRows && !_mergeQueue.isEmpty()) {
+      RunCursor cursor = _mergeQueue.poll();
+      batch.add(cursor.current());
+      if (cursor.advance()) {
+        _mergeQueue.add(cursor);
+      }
+    }
+    return batch;
+  }
+
+  private void closeMerge() {
+    if (_cursors != null) {
+      for (RunCursor cursor : _cursors) {
+        cursor.close();
+      }
+      _cursors = null;
+    }
+    _mergeQueue = null;
+  }
+
+  /**
+   * Returns the next batch of at most {@code maxRows} sorted rows, or {@code null} when all the rows are returned.
+   */
+  @Nullable
+  public List<Object[]> nextBatch(int maxRows)
+      throws IOException {
+    Preconditions.checkState(_finished, "Must finish adding rows before reading");
+    if (_mergeQueue == null) {
+      return null;
+    }
+    long startTimeMs = System.currentTimeMillis();
+    List<Object[]> batch = mergeNextBatch(maxRows);
+    _mergeTimeMs += System.currentTimeMillis() - startTimeMs;
+    return batch;
+  }
+
+  /**
+   * Returns the number of sorted runs spilled to disk, including the runs produced by the intermediate merges.
+   */
+  public int getNumRuns() {
+    return _numRuns;
+  }
+
+  public long getNumSpilledRows() {
+    return _numSpilledRows;
+  }
+
+  /**
+   * Returns the number of bytes written to disk, including the runs produced by the intermediate merges.
+   */
+  public long getNumSpilledBytes() {
+    return _numSpilledBytes;
+  }
+
+  public long getSpillTimeMs() {
+    return _spillTimeMs;
+  }
+
+  public long getMergeTimeMs() {
+    return _mergeTimeMs;
+  }
+
+  @Override
+  public void close() {
+    closeMerge();
+    for (RowBlockSpillFile run : _runs) {
+      try {
+        run.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to close spill file: {}", run.getFile(), e);
+      }
+    }
+    _runs.clear();
+    _rows = null;
+  }
+
+  /**
+   * Cursor over a sorted run, either spilled to disk or in memory.
+   */
+  private static class RunCursor {
+    final RowBlockSpillFile.Reader _reader;
+    List<Object[]> _batch;
+    int _index;
+
+    RunCursor(RowBlockSpillFile.Reader reader) {
+      _reader = reader;
+    }
+
+    RunCursor(List<Object[]> rows) {
+      _reader = null;
+      _batch = rows;
+      _index = -1;
+    }
+
+    Object[] current() {
+      return _batch.get(_index);
+    }
+
+    /**
+     * Moves to the next row, and returns whether there is a next row.
+     */
+    boolean advance()
+        throws IOException {
+      if (_batch != null && ++_index < _batch.size()) {
+        return true;
+      }
+      if (_reader == null) {
+        return false;
+      }
+      do {
+        _batch = _reader.nextBatch();
+        _index = 0;
+      } while (_batch != null && _batch.isEmpty());
+      return _batch != null;
+    }
+
+    void close() {
+      if (_reader != null) {
+        try {
+          _reader.close();
+        } catch (IOException e) {
+          LOGGER.warn("Failed to close spill file reader", e);
+        }
+      }
+    }
+  }
+}
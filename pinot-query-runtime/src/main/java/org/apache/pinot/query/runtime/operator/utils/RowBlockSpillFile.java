@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.base.Preconditions;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4Factory;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datablock.DataBlockUtils;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
+import org.apache.pinot.core.util.DataBlockExtractUtils;
+
+
+/**
+ * A temporary local file used by the multi-stage operators to spill rows to disk when they go over their memory budget.
+ *
+ * <p>Rows are appended in batches, and each batch is written as a length-prefixed LZ4 compressed serialized
+ * {@link DataBlock}, so the values are stored in the same internal representation used by the mailboxes. Once
+ * {@link #finishWriting()} is called, the file can be read back batch by batch with {@link #openReader()}. The file is
+ * deleted on {@link #close()}.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class RowBlockSpillFile implements Closeable {
+  public static final String SPILL_DIR_NAME = "pinot-multistage-spill";
+  public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+  private static volatile File _defaultSpillDir = new File(FileUtils.getTempDirectory(), SPILL_DIR_NAME);
+
+  private final File _file;
+  private final DataSchema _dataSchema;
+  private final int _batchSize;
+  private final List<Object[]> _pendingRows;
+
+  private DataOutputStream _outputStream;
+  private long _numRows;
+  private long _numBytes;
+  private boolean _closed;
+
+  public RowBlockSpillFile(DataSchema dataSchema, String prefix)
+      throws IOException {
+    this(getDefaultSpillDir(), dataSchema, prefix, DEFAULT_BATCH_SIZE);
+  }
+
+  public RowBlockSpillFile(File spillDir, DataSchema dataSchema, String prefix, int batchSize)
+      throws IOException {
+    Preconditions.checkArgument(batchSize > 0, "Batch size must be positive, got: %s", batchSize);
+    FileUtils.forceMkdir(spillDir);
+    _file = File.createTempFile(prefix, ".spill", spillDir);
+    _dataSchema = dataSchema;
+    _batchSize = batchSize;
+    _pendingRows = new ArrayList<>(batchSize);
+    try {
+      _outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(_file.toPath()),
+          BUFFER_SIZE));
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(_file);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the directory for the spill files, which is {@link #SPILL_DIR_NAME} under the temporary directory unless
+   * configured with {@link #setDefaultSpillDir(File)}.
+   */
+  public static File getDefaultSpillDir() {
+    return _defaultSpillDir;
+  }
+
+  /**
+   * Sets the directory for the spill files, e.g. to a local disk with more space than the temporary directory.
+   */
+  public static void setDefaultSpillDir(File spillDir) {
+    _defaultSpillDir = spillDir;
+  }
+
+  /**
+   * Appends a row to the file. Rows are buffered in memory until a full batch is accumulated.
+   */
+  public void add(Object[] row)
+      throws IOException {
+    Preconditions.checkState(_outputStream != null, "Cannot add rows after finishing writing");
+    _pendingRows.add(row);
+    _numRows++;
+    if (_pendingRows.size() >= _batchSize) {
+      flushPendingRows();
+    }
+  }
+
+  /**
+   * Appends the given rows to the file.
+   */
+  public void addAll(List<Object[]> rows)
+      throws IOException {
+    for (Object[] row : rows) {
+      add(row);
+    }
+  }
+
+  private void flushPendingRows()
+      throws IOException {
+    if (_pendingRows.isEmpty()) {
+      return;
+    }
+    byte[] bytes = DataBlockBuilder.buildFromRows(_pendingRows, _dataSchema).toBytes();
+    byte[] compressedBytes = LZ4_FACTORY.fastCompressor().compress(bytes);
+    _outputStream.writeInt(compressedBytes.length);
+    _outputStream.writeInt(bytes.length);
+    _outputStream.write(compressedBytes);
+    _numBytes += 2 * Integer.BYTES + compressedBytes.length;
+    _pendingRows.clear();
+  }
+
+  /**
+   * Flushes the buffered rows and closes the output stream. No more rows can be added after this call.
+   */
+  public void finishWriting()
+      throws IOException {
+    if (_outputStream != null) {
+      try {
+        flushPendingRows();
+      } finally {
+        _outputStream.close();
+        _outputStream = null;
+      }
+    }
+  }
+
+  /**
+   * Returns a new reader over the batches written to the file. Must be called after {@link #finishWriting()}.
+   */
+  public Reader openReader()
+      throws IOException {
+    Preconditions.checkState(_outputStream == null, "Must finish writing before reading");
+    Preconditions.checkState(!_closed, "Spill file is already closed");
+    return new Reader(new DataInputStream(new BufferedInputStream(Files.newInputStream(_file.toPath()),
+        BUFFER_SIZE)));
+  }
+
+  public DataSchema getDataSchema() {
+    return _dataSchema;
+  }
+
+  public long getNumRows() {
+    return _numRows;
+  }
+
+  /**
+   * Returns the number of bytes written to disk so far.
+   */
+  public long getNumBytes() {
+    return _numBytes;
+  }
+
+  public File getFile() {
+    return _file;
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    if (_closed) {
+      return;
+    }
+    _closed = true;
+    _pendingRows.clear();
+    try {
+      if (_outputStream != null) {
+        _outputStream.close();
+        _outputStream = null;
+      }
+    } finally {
+      Files.deleteIfExists(_file.toPath());
+    }
+  }
+
+  public static class Reader implements Closeable {
+    private final DataInputStream _inputStream;
+
+    private Reader(DataInputStream inputStream) {
+      _inputStream = inputStream;
+    }
+
+    /**
+     * Returns the next batch of rows, or {@code null} when the end of the file is reached.
+     */
+    @Nullable
+    public List<Object[]> nextBatch()
+        throws IOException {
+      int compressedLength;
+      try {
+        compressedLength = _inputStream.readInt();
+      } catch (EOFException e) {
+        return null;
+      }
+      int length = _inputStream.readInt();
+      byte[] compressedBytes = new byte[compressedLength];
+      _inputStream.readFully(compressedBytes);
+      byte[] bytes = LZ4_FACTORY.fastDecompressor().decompress(compressedBytes, length);
+      return DataBlockExtractUtils.extractRows(DataBlockUtils.getDataBlock(ByteBuffer.wrap(bytes)));
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      _inputStream.close();
+    }
+  }
+}
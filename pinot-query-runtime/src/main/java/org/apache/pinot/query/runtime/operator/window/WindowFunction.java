@@ -62,4 +62,35 @@ public abstract class WindowFunction extends AggregationUtils.Accumulator {
    * @return List of rows with the window function applied
    */
   public abstract List<Object> processRows(List<Object[]> rows);
+
+  /**
+   * Returns whether the window function can be computed incrementally with {@link #createPartitionProcessor()}, i.e.
+   * the result of a row only depends on the rows up to the last row with the same ORDER BY keys in the partition.
+   */
+  public boolean supportsStreaming() {
+    return false;
+  }
+
+  /**
+   * Creates a {@link PartitionProcessor} to compute the window function incrementally over a single partition. Should
+   * only be called when {@link #supportsStreaming()} returns {@code true}.
+   */
+  public PartitionProcessor createPartitionProcessor() {
+    throw new UnsupportedOperationException("Streaming is not supported for window function: " + getClass());
+  }
+
+  /**
+   * Streaming processing API for Window functions, which keeps the state of a partition across the calls.
+   */
+  public interface PartitionProcessor {
+
+    /**
+     * Processes the next peer rows (rows with the same ORDER BY keys) of the partition. The peer rows must be fed in
+     * the order of the ORDER BY keys.
+     *
+     * @param peerRows List of peer rows to process
+     * @return List of results, one for each peer row
+     */
+    List<Object> processPeerRows(List<Object[]> peerRows);
+  }
 }
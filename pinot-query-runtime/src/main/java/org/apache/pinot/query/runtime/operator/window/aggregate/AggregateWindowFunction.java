@@ -103,6 +103,33 @@ public class AggregateWindowFunction extends WindowFunction {
     return results;
   }
 
+  /**
+   * The frame of the partition by only query is the whole partition, so it cannot be computed incrementally. Otherwise
+   * the result is accumulated over the rows up to the last peer row.
+   */
+  @Override
+  public boolean supportsStreaming() {
+    return !_partitionByOnly;
+  }
+
+  @Override
+  public PartitionProcessor createPartitionProcessor() {
+    return new AggregatePartitionProcessor();
+  }
+
+  private class AggregatePartitionProcessor implements PartitionProcessor {
+    Object _mergedResult;
+
+    @Override
+    public List<Object> processPeerRows(List<Object[]> peerRows) {
+      for (Object[] row : peerRows) {
+        Object value = _inputRef == -1 ? _literal : row[_inputRef];
+        _mergedResult = _mergedResult == null ? _merger.init(value, _dataType) : _merger.merge(_mergedResult, value);
+      }
+      return Collections.nCopies(peerRows.size(), _mergedResult);
+    }
+  }
+
   static class OrderKeyResult {
     final Map<Key, Object> _orderByResults;
     Key _previousOrderByKey;
@@ -19,6 +19,7 @@
 package org.apache.pinot.query.runtime.operator.window.range;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.utils.DataSchema;
@@ -46,4 +47,21 @@ public class DenseRankWindowFunction extends RangeWindowFunction {
     }
     return result;
   }
+
+  @Override
+  public boolean supportsStreaming() {
+    return true;
+  }
+
+  @Override
+  public PartitionProcessor createPartitionProcessor() {
+    return new PartitionProcessor() {
+      int _rank;
+
+      @Override
+      public List<Object> processPeerRows(List<Object[]> peerRows) {
+        return Collections.nCopies(peerRows.size(), ++_rank);
+      }
+    };
+  }
 }
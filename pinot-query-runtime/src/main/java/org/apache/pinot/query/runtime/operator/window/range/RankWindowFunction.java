@@ -19,6 +19,7 @@
 package org.apache.pinot.query.runtime.operator.window.range;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.utils.DataSchema;
@@ -48,4 +49,24 @@ public class RankWindowFunction extends RangeWindowFunction {
     }
     return result;
   }
+
+  @Override
+  public boolean supportsStreaming() {
+    return true;
+  }
+
+  @Override
+  public PartitionProcessor createPartitionProcessor() {
+    return new PartitionProcessor() {
+      int _numRows;
+
+      @Override
+      public List<Object> processPeerRows(List<Object[]> peerRows) {
+        int numPeerRows = peerRows.size();
+        List<Object> result = Collections.nCopies(numPeerRows, _numRows + 1);
+        _numRows += numPeerRows;
+        return result;
+      }
+    };
+  }
 }
@@ -41,4 +41,25 @@ public class RowNumberWindowFunction extends RangeWindowFunction {
     }
     return result;
   }
+
+  @Override
+  public boolean supportsStreaming() {
+    return true;
+  }
+
+  @Override
+  public PartitionProcessor createPartitionProcessor() {
+    return new PartitionProcessor() {
+      long _rowNumber;
+
+      @Override
+      public List<Object> processPeerRows(List<Object[]> peerRows) {
+        List<Object> result = new ArrayList<>(peerRows.size());
+        for (int i = 0; i < peerRows.size(); i++) {
+          result.add(++_rowNumber);
+        }
+        return result;
+      }
+    };
+  }
 }
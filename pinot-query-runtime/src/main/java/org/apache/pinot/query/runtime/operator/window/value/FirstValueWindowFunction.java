@@ -19,6 +19,7 @@
 package org.apache.pinot.query.runtime.operator.window.value;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.utils.DataSchema;
@@ -41,4 +42,26 @@ public class FirstValueWindowFunction extends ValueWindowFunction {
     Arrays.fill(result, value);
     return Arrays.asList(result);
   }
+
+  @Override
+  public boolean supportsStreaming() {
+    return true;
+  }
+
+  @Override
+  public PartitionProcessor createPartitionProcessor() {
+    return new PartitionProcessor() {
+      boolean _hasFirstRow;
+      Object _value;
+
+      @Override
+      public List<Object> processPeerRows(List<Object[]> peerRows) {
+        if (!_hasFirstRow) {
+          _value = extractValueFromRow(peerRows.get(0));
+          _hasFirstRow = true;
+        }
+        return Collections.nCopies(peerRows.size(), _value);
+      }
+    };
+  }
 }
@@ -80,4 +80,31 @@ public class LagValueWindowFunction extends ValueWindowFunction {
     }
     return Arrays.asList(result);
   }
+
+  @Override
+  public boolean supportsStreaming() {
+    return _offset > 0;
+  }
+
+  @Override
+  public PartitionProcessor createPartitionProcessor() {
+    return new PartitionProcessor() {
+      // Ring buffer of the values of the last offset rows
+      final Object[] _previousValues = new Object[_offset];
+      long _numRows;
+
+      @Override
+      public List<Object> processPeerRows(List<Object[]> peerRows) {
+        int numPeerRows = peerRows.size();
+        Object[] result = new Object[numPeerRows];
+        for (int i = 0; i < numPeerRows; i++) {
+          int index = (int) (_numRows % _offset);
+          result[i] = _numRows >= _offset ? _previousValues[index] : _defaultValue;
+          _previousValues[index] = extractValueFromRow(peerRows.get(i));
+          _numRows++;
+        }
+        return Arrays.asList(result);
+      }
+    };
+  }
 }
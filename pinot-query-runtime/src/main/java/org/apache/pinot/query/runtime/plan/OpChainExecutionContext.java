@@ -25,6 +25,7 @@ import org.apache.pinot.query.mailbox.MailboxService;
 import org.apache.pinot.query.routing.StageMetadata;
 import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.routing.WorkerMetadata;
+import org.apache.pinot.query.runtime.executor.OpChainSchedulingStats;
 import org.apache.pinot.query.runtime.operator.OpChainId;
 import org.apache.pinot.query.runtime.plan.pipeline.PipelineBreakerResult;
 import org.apache.pinot.query.runtime.plan.server.ServerPlanRequestContext;
@@ -48,6 +49,11 @@ public class OpChainExecutionContext {
   @Nullable
   private final PipelineBreakerResult _pipelineBreakerResult;
   private final boolean _traceEnabled;
+  // Updated by the OpChain scheduler, and reported by the root operator of the OpChain
+  private final OpChainSchedulingStats _schedulingStats = new OpChainSchedulingStats();
+  // Set by the OpChain schedulers that suspend the OpChain instead of blocking the thread when no input is available
+  @Nullable
+  private volatile Runnable _dataAvailableCallback;
 
   private ServerPlanRequestContext _leafStageContext;
 
@@ -116,6 +122,36 @@ public class OpChainExecutionContext {
     return _traceEnabled;
   }
 
+  public OpChainSchedulingStats getSchedulingStats() {
+    return _schedulingStats;
+  }
+
+  /**
+   * Returns whether the operators should return the no-op block instead of blocking when no input is available yet,
+   * in which case {@link #notifyDataAvailable()} must be called when new input arrives.
+   */
+  public boolean isYieldOnNoInput() {
+    return _dataAvailableCallback != null;
+  }
+
+  /**
+   * Makes the operators yield when no input is available, and sets the callback invoked when new input arrives. Must be
+   * called before the OpChain starts running.
+   */
+  public void setDataAvailableCallback(Runnable dataAvailableCallback) {
+    _dataAvailableCallback = dataAvailableCallback;
+  }
+
+  /**
+   * Called when new input (mailbox block or leaf stage results block) is available for the OpChain.
+   */
+  public void notifyDataAvailable() {
+    Runnable dataAvailableCallback = _dataAvailableCallback;
+    if (dataAvailableCallback != null) {
+      dataAvailableCallback.run();
+    }
+  }
+
   public ServerPlanRequestContext getLeafStageContext() {
     return _leafStageContext;
   }
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.plan.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.query.mailbox.MailboxService;
+import org.apache.pinot.query.mailbox.ReceivingMailbox;
+import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.join.RuntimeJoinFilter;
+import org.apache.pinot.query.runtime.operator.utils.AsyncStream;
+import org.apache.pinot.query.runtime.operator.utils.BlockingMultiStreamConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Consumer of the runtime filters sent by the join workers to the leaf stage worker sending the left table rows, where
+ * each join worker sends the {@link RuntimeJoinFilter} built from its part of the right table followed by an EOS.
+ */
+class RuntimeFilterConsumer extends BlockingMultiStreamConsumer<TransferableBlock> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RuntimeFilterConsumer.class);
+
+  private final int _numMailboxes;
+
+  RuntimeFilterConsumer(Object id, long deadlineMs, MailboxService mailboxService, List<String> mailboxIds) {
+    super(id, deadlineMs, createStreams(mailboxService, mailboxIds));
+    _numMailboxes = mailboxIds.size();
+  }
+
+  private static List<MailboxStream> createStreams(MailboxService mailboxService, List<String> mailboxIds) {
+    // NOTE: The list must be mutable because the mailboxes are removed from it once the EOS is received
+    List<MailboxStream> streams = new ArrayList<>(mailboxIds.size());
+    for (String mailboxId : mailboxIds) {
+      streams.add(new MailboxStream(mailboxService, mailboxService.getReceivingMailbox(mailboxId)));
+    }
+    return streams;
+  }
+
+  /**
+   * Reads the runtime filters from all the join workers until the deadline, and returns the merged filter, or
+   * {@code null} if the filter is not received from all the join workers (a partial filter would drop the left rows
+   * matching the missing part of the right table).
+   */
+  @Nullable
+  RuntimeJoinFilter readMergedFilter() {
+    RuntimeJoinFilter mergedFilter = null;
+    int numFilters = 0;
+    while (true) {
+      TransferableBlock block = readBlockBlocking();
+      if (block.isErrorBlock()) {
+        return null;
+      }
+      if (block.isEndOfStreamBlock()) {
+        return numFilters == _numMailboxes ? mergedFilter : null;
+      }
+      try {
+        RuntimeJoinFilter filter = RuntimeJoinFilter.fromBlock(block);
+        mergedFilter = mergedFilter != null ? RuntimeJoinFilter.merge(mergedFilter, filter) : filter;
+        numFilters++;
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while reading the runtime filter", e);
+        return null;
+      }
+    }
+  }
+
+  @Override
+  protected boolean isError(TransferableBlock element) {
+    return element.isErrorBlock();
+  }
+
+  @Override
+  protected boolean isEos(TransferableBlock element) {
+    return element.isSuccessfulEndOfStreamBlock();
+  }
+
+  @Override
+  protected void onConsumerFinish(TransferableBlock element) {
+  }
+
+  @Override
+  protected TransferableBlock onTimeout() {
+    return TransferableBlockUtils.getErrorTransferableBlock(QueryException.EXECUTION_TIMEOUT_ERROR);
+  }
+
+  @Override
+  protected TransferableBlock onException(Exception e) {
+    return TransferableBlockUtils.getErrorTransferableBlock(e);
+  }
+
+  @Override
+  protected TransferableBlock onEos() {
+    return TransferableBlockUtils.getEndOfStreamTransferableBlock();
+  }
+
+  private static class MailboxStream implements AsyncStream<TransferableBlock> {
+    final MailboxService _mailboxService;
+    final ReceivingMailbox _mailbox;
+
+    MailboxStream(MailboxService mailboxService, ReceivingMailbox mailbox) {
+      _mailboxService = mailboxService;
+      _mailbox = mailbox;
+    }
+
+    @Override
+    public Object getId() {
+      return _mailbox.getId();
+    }
+
+    @Nullable
+    @Override
+    public TransferableBlock poll() {
+      TransferableBlock block = _mailbox.poll();
+      if (block != null && block.isSuccessfulEndOfStreamBlock()) {
+        _mailboxService.releaseReceivingMailbox(_mailbox);
+      }
+      return block;
+    }
+
+    @Override
+    public void addOnNewDataListener(OnNewData onNewData) {
+      _mailbox.registeredReader(onNewData::newDataAvailable);
+    }
+
+    @Override
+    public void earlyTerminate() {
+      _mailbox.earlyTerminate();
+    }
+
+    @Override
+    public void cancel() {
+      _mailbox.cancel();
+    }
+  }
+}
@@ -26,6 +26,7 @@ import org.apache.pinot.core.query.executor.QueryExecutor;
 import org.apache.pinot.core.query.request.ServerQueryRequest;
 import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.routing.StagePlan;
+import org.apache.pinot.query.runtime.operator.join.RuntimeJoinFilter;
 import org.apache.pinot.query.runtime.plan.pipeline.PipelineBreakerResult;
 
 
@@ -46,6 +47,10 @@ public class ServerPlanRequestContext {
   private final PinotQuery _pinotQuery;
   private PlanNode _leafStageBoundaryNode;
   private List<ServerQueryRequest> _serverQueryRequests;
+  private int _numDynamicFilterValues;
+  private RuntimeJoinFilter _runtimeFilter;
+  private long _runtimeFilterWaitTimeMs;
+  private boolean _runtimeFilterMissed;
 
   public ServerPlanRequestContext(StagePlan stagePlan, QueryExecutor leafQueryExecutor,
       ExecutorService executorService, @Nullable PipelineBreakerResult pipelineBreakerResult) {
@@ -92,4 +97,50 @@ public class ServerPlanRequestContext {
   public void setServerQueryRequests(List<ServerQueryRequest> serverQueryRequests) {
     _serverQueryRequests = serverQueryRequests;
   }
+
+  /**
+   * Returns the number of distinct join key values in the dynamic filter attached to the {@link PinotQuery}.
+   */
+  public int getNumDynamicFilterValues() {
+    return _numDynamicFilterValues;
+  }
+
+  public void setNumDynamicFilterValues(int numDynamicFilterValues) {
+    _numDynamicFilterValues = numDynamicFilterValues;
+  }
+
+  /**
+   * Returns the runtime filter received from the join, which is applied to the rows returned by the {@link PinotQuery},
+   * or {@code null} if the runtime filter is not enabled or not received.
+   */
+  @Nullable
+  public RuntimeJoinFilter getRuntimeFilter() {
+    return _runtimeFilter;
+  }
+
+  public void setRuntimeFilter(@Nullable RuntimeJoinFilter runtimeFilter) {
+    _runtimeFilter = runtimeFilter;
+  }
+
+  /**
+   * Returns how long the leaf stage waited for the runtime filter before scanning the table.
+   */
+  public long getRuntimeFilterWaitTimeMs() {
+    return _runtimeFilterWaitTimeMs;
+  }
+
+  public void setRuntimeFilterWaitTimeMs(long runtimeFilterWaitTimeMs) {
+    _runtimeFilterWaitTimeMs = runtimeFilterWaitTimeMs;
+  }
+
+  /**
+   * Returns whether the runtime filter is enabled but not received from all the join workers in time.
+   */
+  public boolean isRuntimeFilterMissed() {
+    return _runtimeFilterMissed;
+  }
+
+  public void setRuntimeFilterMissed(boolean runtimeFilterMissed) {
+    _runtimeFilterMissed = runtimeFilterMissed;
+  }
 }
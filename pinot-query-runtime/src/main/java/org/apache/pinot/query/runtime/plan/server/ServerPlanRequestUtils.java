@@ -19,6 +19,12 @@
 package org.apache.pinot.query.runtime.plan.server;
 
 import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.doubles.DoubleOpenHashSet;
+import it.unimi.dsi.fastutil.floats.FloatOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -29,6 +35,7 @@ import java.util.stream.Collectors;
 import org.apache.helix.HelixManager;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.pinot.common.function.TransformFunctionType;
 import org.apache.pinot.common.metadata.ZKMetadataProvider;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.BrokerRequest;
@@ -43,11 +50,17 @@ import org.apache.pinot.common.utils.request.RequestUtils;
 import org.apache.pinot.core.query.executor.QueryExecutor;
 import org.apache.pinot.core.query.optimizer.QueryOptimizer;
 import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.core.query.utils.idset.IdSet;
+import org.apache.pinot.core.query.utils.idset.IdSets;
 import org.apache.pinot.core.routing.TimeBoundaryInfo;
+import org.apache.pinot.query.planner.physical.MailboxIdUtils;
+import org.apache.pinot.query.planner.plannode.MailboxSendNode;
 import org.apache.pinot.query.planner.plannode.PlanNode;
+import org.apache.pinot.query.routing.MailboxInfo;
 import org.apache.pinot.query.routing.StageMetadata;
 import org.apache.pinot.query.routing.StagePlan;
 import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.operator.join.RuntimeJoinFilter;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.query.runtime.plan.PhysicalPlanVisitor;
 import org.apache.pinot.spi.config.table.TableConfig;
@@ -74,6 +87,13 @@ public class ServerPlanRequestUtils {
   private static final List<QueryRewriter> QUERY_REWRITERS =
       new ArrayList<>(QueryRewriterFactory.getQueryRewriters(QUERY_REWRITERS_CLASS_NAMES));
   private static final QueryOptimizer QUERY_OPTIMIZER = new QueryOptimizer();
+  // Max number of distinct values to put into the IN filter for the dynamic filter, beyond which the values are
+  // serialized into an IdSet for the IN_ID_SET filter
+  static final int DYNAMIC_FILTER_MAX_IN_LIST_SIZE = 10_000;
+  private static final String IN_ID_SET_FUNCTION_NAME =
+      RequestUtils.canonicalizeFunctionName(TransformFunctionType.IN_ID_SET.getName());
+  // Default max time to wait for the runtime filter from the join before scanning the table without it
+  private static final long DEFAULT_RUNTIME_FILTER_WAIT_MS = 1000L;
 
   /**
    * main entry point for compiling leaf-stage {@link StagePlan}.
@@ -90,6 +110,10 @@ public class ServerPlanRequestUtils {
         executionContext.getPipelineBreakerResult());
     // 1. compile the PinotQuery
     constructPinotQueryPlan(serverContext, executionContext.getOpChainMetadata());
+    PlanNode rootNode = stagePlan.getRootNode();
+    if (rootNode instanceof MailboxSendNode && ((MailboxSendNode) rootNode).isRuntimeFilterEnabled()) {
+      attachRuntimeFilter(executionContext, serverContext, (MailboxSendNode) rootNode);
+    }
     // 2. convert PinotQuery into InstanceRequest list (one for each physical table)
     List<InstanceRequest> instanceRequestList =
         constructServerQueryRequests(executionContext, serverContext, helixManager.getHelixPropertyStore());
@@ -119,6 +143,117 @@ public class ServerPlanRequestUtils {
     ServerPlanRequestVisitor.walkStageNode(stagePlan.getRootNode(), serverContext);
   }
 
+  /**
+   * Waits for the runtime filters sent by the join workers receiving the rows of this stage, and attaches the merged
+   * filter to the {@link PinotQuery}. The wait is bounded by the 'runtimeFilterWaitMs' query option, after which the
+   * table is scanned without the filter.
+   *
+   * The filter can only be applied when the whole stage runs as the {@link PinotQuery}, where the rows returned by the
+   * query are the rows sent to the join. Otherwise, the mailboxes are cancelled without waiting.
+   */
+  private static void attachRuntimeFilter(OpChainExecutionContext executionContext,
+      ServerPlanRequestContext serverContext, MailboxSendNode sendNode) {
+    int receiverStageId = sendNode.getReceiverStageId();
+    List<MailboxInfo> mailboxInfos =
+        executionContext.getWorkerMetadata().getMailboxInfosMap().get(receiverStageId).getMailboxInfos();
+    List<String> mailboxIds =
+        MailboxIdUtils.toMailboxIds(executionContext.getRequestId(), receiverStageId, mailboxInfos,
+            executionContext.getStageId(), executionContext.getWorkerId());
+    PlanNode boundaryNode = sendNode.getInputs().get(0);
+    boolean applicable = serverContext.getLeafStageBoundaryNode() == boundaryNode;
+    long startTimeMs = System.currentTimeMillis();
+    long deadlineMs = startTimeMs;
+    if (applicable) {
+      Long runtimeFilterWaitMs = QueryOptionsUtils.getRuntimeFilterWaitMs(executionContext.getOpChainMetadata());
+      deadlineMs = Math.min(
+          startTimeMs + (runtimeFilterWaitMs != null ? runtimeFilterWaitMs : DEFAULT_RUNTIME_FILTER_WAIT_MS),
+          executionContext.getDeadlineMs());
+    }
+    RuntimeJoinFilter runtimeFilter = null;
+    try (RuntimeFilterConsumer consumer = new RuntimeFilterConsumer(executionContext.getId(), deadlineMs,
+        executionContext.getMailboxService(), mailboxIds)) {
+      if (applicable) {
+        runtimeFilter = consumer.readMergedFilter();
+      }
+    }
+    if (!applicable) {
+      return;
+    }
+    serverContext.setRuntimeFilterWaitTimeMs(System.currentTimeMillis() - startTimeMs);
+    if (runtimeFilter != null) {
+      serverContext.setRuntimeFilter(runtimeFilter);
+      attachRuntimeFilter(serverContext.getPinotQuery(), boundaryNode.getDataSchema(), runtimeFilter);
+    } else {
+      serverContext.setRuntimeFilterMissed(true);
+    }
+  }
+
+  /**
+   * Attaches the runtime filter to the given PinotQuery, where the rows returned by the query are the left table rows
+   * of the join:
+   * <ul>
+   *   <li>When a join key has neither value nor null value, adds a constant false expression</li>
+   *   <li>When a join key has no null value and the values are numbers of the same type as the column, adds a range
+   *   filter on the min/max values so that the segments can be pruned and the indexes can be used</li>
+   * </ul>
+   * The membership of the key values is checked on the rows returned by the query, see
+   * {@link org.apache.pinot.query.runtime.operator.LeafStageTransferableBlockOperator}.
+   */
+  static void attachRuntimeFilter(PinotQuery pinotQuery, DataSchema dataSchema, RuntimeJoinFilter runtimeFilter) {
+    List<Expression> expressions = new ArrayList<>();
+    int numKeys = runtimeFilter.getNumKeys();
+    for (int i = 0; i < numKeys; i++) {
+      // Null key values might match the null right key values
+      if (runtimeFilter.hasNullValue(i)) {
+        continue;
+      }
+      if (!runtimeFilter.hasValues(i)) {
+        expressions.add(RequestUtils.getLiteralExpression(false));
+        continue;
+      }
+      int key = runtimeFilter.getKey(i);
+      if (isRangeFilterSupported(runtimeFilter, i, dataSchema.getColumnDataType(key))) {
+        expressions.add(
+            RequestUtils.getFunctionExpression(FilterKind.BETWEEN.name(), pinotQuery.getSelectList().get(key),
+                RequestUtils.getLiteralExpression(runtimeFilter.getMinValue(i)),
+                RequestUtils.getLiteralExpression(runtimeFilter.getMaxValue(i))));
+      }
+    }
+    if (expressions.isEmpty()) {
+      return;
+    }
+    Expression filterExpression = pinotQuery.getFilterExpression();
+    if (filterExpression != null) {
+      expressions.add(filterExpression);
+    }
+    if (expressions.size() > 1) {
+      pinotQuery.setFilterExpression(RequestUtils.getFunctionExpression(FilterKind.AND.name(), expressions));
+    } else {
+      pinotQuery.setFilterExpression(expressions.get(0));
+    }
+  }
+
+  private static boolean isRangeFilterSupported(RuntimeJoinFilter runtimeFilter, int index,
+      DataSchema.ColumnDataType columnDataType) {
+    DataSchema.ColumnDataType storedType = runtimeFilter.getStoredType(index);
+    if (columnDataType != storedType) {
+      return false;
+    }
+    switch (storedType) {
+      case INT:
+      case LONG:
+        return true;
+      case FLOAT:
+        return !((Float) runtimeFilter.getMinValue(index)).isNaN() && !((Float) runtimeFilter.getMaxValue(
+            index)).isNaN();
+      case DOUBLE:
+        return !((Double) runtimeFilter.getMinValue(index)).isNaN() && !((Double) runtimeFilter.getMaxValue(
+            index)).isNaN();
+      default:
+        return false;
+    }
+  }
+
   /**
    * Entry point to construct a list of {@link InstanceRequest}s for executing leaf-stage v1 runner.
    *
@@ -242,22 +377,16 @@ public class ServerPlanRequestUtils {
 
   /**
    * attach the dynamic filter to the given PinotQuery.
+   *
+   * @return the number of distinct values in the dynamic filter
    */
-  static void attachDynamicFilter(PinotQuery pinotQuery, List<Integer> leftKeys, List<Integer> rightKeys,
+  static int attachDynamicFilter(PinotQuery pinotQuery, List<Integer> leftKeys, List<Integer> rightKeys,
       List<Object[]> dataContainer, DataSchema dataSchema) {
     List<Expression> expressions = new ArrayList<>();
+    int numValues = 0;
     for (int i = 0; i < leftKeys.size(); i++) {
       Expression leftExpr = pinotQuery.getSelectList().get(leftKeys.get(i));
-      if (dataContainer.isEmpty()) {
-        // put a constant false expression
-        expressions.add(RequestUtils.getLiteralExpression(false));
-      } else {
-        int rightIdx = rightKeys.get(i);
-        List<Expression> operands = new ArrayList<>(dataContainer.size() + 1);
-        operands.add(leftExpr);
-        operands.addAll(computeInOperands(dataContainer, dataSchema, rightIdx));
-        expressions.add(RequestUtils.getFunctionExpression(FilterKind.IN.name(), operands));
-      }
+      numValues += addDynamicFilterExpressions(expressions, leftExpr, dataContainer, dataSchema, rightKeys.get(i));
     }
     Expression filterExpression = pinotQuery.getFilterExpression();
     if (filterExpression != null) {
@@ -268,67 +397,157 @@ public class ServerPlanRequestUtils {
     } else {
       pinotQuery.setFilterExpression(expressions.get(0));
     }
+    return numValues;
   }
 
-  private static List<Expression> computeInOperands(List<Object[]> dataContainer, DataSchema dataSchema, int colIdx) {
+  /**
+   * Adds the dynamic filter expressions on the given expression with the distinct non-null values of the given column.
+   * <ul>
+   *   <li>When there is no value, adds a constant false expression</li>
+   *   <li>When there are at most {@link #DYNAMIC_FILTER_MAX_IN_LIST_SIZE} values or the values are not integral, adds
+   *   an IN filter on the sorted values</li>
+   *   <li>Otherwise, adds a range filter on the min/max values so that the segments can be pruned and the indexes can
+   *   be used, and an IN_ID_SET filter on the values serialized as a bitmap instead of a huge IN filter</li>
+   * </ul>
+   *
+   * @return the number of distinct values
+   */
+  private static int addDynamicFilterExpressions(List<Expression> expressions, Expression expression,
+      List<Object[]> dataContainer, DataSchema dataSchema, int colIdx) {
     final DataSchema.ColumnDataType columnDataType = dataSchema.getColumnDataType(colIdx);
     final FieldSpec.DataType storedType = columnDataType.getStoredType().toDataType();
-    final int numRows = dataContainer.size();
-    List<Expression> expressions = new ArrayList<>();
+    List<Expression> values = null;
+    int numValues;
+    IdSet idSet = null;
+    Expression minValue = null;
+    Expression maxValue = null;
     switch (storedType) {
-      case INT:
-        int[] arrInt = new int[numRows];
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          arrInt[rowIdx] = (int) dataContainer.get(rowIdx)[colIdx];
+      case INT: {
+        IntOpenHashSet valueSet = new IntOpenHashSet();
+        for (Object[] row : dataContainer) {
+          Object value = row[colIdx];
+          if (value != null) {
+            valueSet.add((int) value);
+          }
         }
+        int[] arrInt = valueSet.toIntArray();
         Arrays.sort(arrInt);
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          expressions.add(RequestUtils.getLiteralExpression(arrInt[rowIdx]));
+        numValues = arrInt.length;
+        if (numValues > DYNAMIC_FILTER_MAX_IN_LIST_SIZE) {
+          idSet = IdSets.create(storedType);
+          for (int value : arrInt) {
+            idSet.add(value);
+          }
+          minValue = RequestUtils.getLiteralExpression(arrInt[0]);
+          maxValue = RequestUtils.getLiteralExpression(arrInt[numValues - 1]);
+        } else {
+          values = new ArrayList<>(numValues);
+          for (int value : arrInt) {
+            values.add(RequestUtils.getLiteralExpression(value));
+          }
         }
         break;
-      case LONG:
-        long[] arrLong = new long[numRows];
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          arrLong[rowIdx] = (long) dataContainer.get(rowIdx)[colIdx];
+      }
+      case LONG: {
+        LongOpenHashSet valueSet = new LongOpenHashSet();
+        for (Object[] row : dataContainer) {
+          Object value = row[colIdx];
+          if (value != null) {
+            valueSet.add((long) value);
+          }
         }
+        long[] arrLong = valueSet.toLongArray();
         Arrays.sort(arrLong);
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          expressions.add(RequestUtils.getLiteralExpression(arrLong[rowIdx]));
+        numValues = arrLong.length;
+        if (numValues > DYNAMIC_FILTER_MAX_IN_LIST_SIZE) {
+          idSet = IdSets.create(storedType);
+          for (long value : arrLong) {
+            idSet.add(value);
+          }
+          minValue = RequestUtils.getLiteralExpression(arrLong[0]);
+          maxValue = RequestUtils.getLiteralExpression(arrLong[numValues - 1]);
+        } else {
+          values = new ArrayList<>(numValues);
+          for (long value : arrLong) {
+            values.add(RequestUtils.getLiteralExpression(value));
+          }
         }
         break;
-      case FLOAT:
-        float[] arrFloat = new float[numRows];
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          arrFloat[rowIdx] = (float) dataContainer.get(rowIdx)[colIdx];
+      }
+      case FLOAT: {
+        FloatOpenHashSet valueSet = new FloatOpenHashSet();
+        for (Object[] row : dataContainer) {
+          Object value = row[colIdx];
+          if (value != null) {
+            valueSet.add((float) value);
+          }
         }
+        float[] arrFloat = valueSet.toFloatArray();
         Arrays.sort(arrFloat);
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          expressions.add(RequestUtils.getLiteralExpression(arrFloat[rowIdx]));
+        numValues = arrFloat.length;
+        values = new ArrayList<>(numValues);
+        for (float value : arrFloat) {
+          values.add(RequestUtils.getLiteralExpression(value));
         }
         break;
-      case DOUBLE:
-        double[] arrDouble = new double[numRows];
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          arrDouble[rowIdx] = (double) dataContainer.get(rowIdx)[colIdx];
+      }
+      case DOUBLE: {
+        DoubleOpenHashSet valueSet = new DoubleOpenHashSet();
+        for (Object[] row : dataContainer) {
+          Object value = row[colIdx];
+          if (value != null) {
+            valueSet.add((double) value);
+          }
         }
+        double[] arrDouble = valueSet.toDoubleArray();
         Arrays.sort(arrDouble);
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          expressions.add(RequestUtils.getLiteralExpression(arrDouble[rowIdx]));
+        numValues = arrDouble.length;
+        values = new ArrayList<>(numValues);
+        for (double value : arrDouble) {
+          values.add(RequestUtils.getLiteralExpression(value));
         }
         break;
-      case STRING:
-        String[] arrString = new String[numRows];
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          arrString[rowIdx] = (String) dataContainer.get(rowIdx)[colIdx];
+      }
+      case STRING: {
+        ObjectOpenHashSet<String> valueSet = new ObjectOpenHashSet<>();
+        for (Object[] row : dataContainer) {
+          Object value = row[colIdx];
+          if (value != null) {
+            valueSet.add((String) value);
+          }
         }
+        String[] arrString = valueSet.toArray(new String[0]);
         Arrays.sort(arrString);
-        for (int rowIdx = 0; rowIdx < numRows; rowIdx++) {
-          expressions.add(RequestUtils.getLiteralExpression(arrString[rowIdx]));
+        numValues = arrString.length;
+        values = new ArrayList<>(numValues);
+        for (String value : arrString) {
+          values.add(RequestUtils.getLiteralExpression(value));
         }
         break;
+      }
       default:
-        throw new IllegalStateException("Illegal SV data type for ID_SET aggregation function: " + storedType);
+        throw new IllegalStateException("Illegal SV data type for dynamic filter: " + storedType);
+    }
+    if (idSet != null) {
+      String serializedIdSet;
+      try {
+        serializedIdSet = idSet.toBase64String();
+      } catch (IOException e) {
+        throw new RuntimeException("Caught exception while serializing the dynamic filter", e);
+      }
+      expressions.add(RequestUtils.getFunctionExpression(FilterKind.BETWEEN.name(), expression, minValue, maxValue));
+      expressions.add(RequestUtils.getFunctionExpression(FilterKind.EQUALS.name(),
+          RequestUtils.getFunctionExpression(IN_ID_SET_FUNCTION_NAME, expression,
+              RequestUtils.getLiteralExpression(serializedIdSet)), RequestUtils.getLiteralExpression(1)));
+    } else if (numValues == 0) {
+      // put a constant false expression, null join key never matches
+      expressions.add(RequestUtils.getLiteralExpression(false));
+    } else {
+      List<Expression> operands = new ArrayList<>(numValues + 1);
+      operands.add(expression);
+      operands.addAll(values);
+      expressions.add(RequestUtils.getFunctionExpression(FilterKind.IN.name(), operands));
     }
-    return expressions;
+    return numValues;
   }
 }
@@ -143,8 +143,9 @@ public class ServerPlanRequestVisitor implements PlanNodeVisitor<Void, ServerPla
           resultDataContainer.addAll(block.getContainer());
         }
       }
-      ServerPlanRequestUtils.attachDynamicFilter(context.getPinotQuery(), node.getLeftKeys(), node.getRightKeys(),
-          resultDataContainer, dataSchema);
+      context.setNumDynamicFilterValues(
+          ServerPlanRequestUtils.attachDynamicFilter(context.getPinotQuery(), node.getLeftKeys(),
+              node.getRightKeys(), resultDataContainer, dataSchema));
     }
     return null;
   }
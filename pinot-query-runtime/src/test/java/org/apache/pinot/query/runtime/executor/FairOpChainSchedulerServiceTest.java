@@ -0,0 +1,257 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.query.mailbox.MailboxService;
+import org.apache.pinot.query.routing.StageMetadata;
+import org.apache.pinot.query.routing.WorkerMetadata;
+import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.query.runtime.blocks.TransferableBlockTestUtils;
+import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.query.runtime.operator.MultiStageOperator;
+import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class FairOpChainSchedulerServiceTest {
+  private static final DataSchema DATA_SCHEMA =
+      new DataSchema(new String[]{"col"}, new ColumnDataType[]{ColumnDataType.INT});
+
+  private ExecutorService _executor;
+  private MultiStageOperator _operatorA;
+  private FairOpChainSchedulerService _schedulerService;
+
+  @BeforeClass
+  public void beforeClass() {
+    // A single thread to make sure the OpChains share it
+    _executor = ExecutorServiceUtils.createWorkStealing("worker_on_" + getClass().getSimpleName(), 1);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    ExecutorServiceUtils.close(_executor);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    _operatorA = Mockito.mock(MultiStageOperator.class);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    if (_schedulerService != null) {
+      _schedulerService.shutDown();
+      _schedulerService = null;
+    }
+  }
+
+  private FairOpChainSchedulerService createSchedulerService() {
+    _schedulerService = new FairOpChainSchedulerService(_executor, new WeightedFairOpChainScheduler(), 10);
+    return _schedulerService;
+  }
+
+  private OpChain getChain(long requestId, MultiStageOperator operator) {
+    MailboxService mailboxService = mock(MailboxService.class);
+    when(mailboxService.getHostname()).thenReturn("localhost");
+    when(mailboxService.getPort()).thenReturn(1234);
+    WorkerMetadata workerMetadata = new WorkerMetadata(0, ImmutableMap.of(), ImmutableMap.of());
+    OpChainExecutionContext context =
+        new OpChainExecutionContext(mailboxService, requestId, Long.MAX_VALUE, ImmutableMap.of(),
+            new StageMetadata(0, ImmutableList.of(workerMetadata), ImmutableMap.of()), workerMetadata, null);
+    return new OpChain(context, operator);
+  }
+
+  private static TransferableBlock getDataBlock() {
+    return new TransferableBlock(ImmutableList.of(new Object[]{1}), DATA_SCHEMA, DataBlock.Type.ROW);
+  }
+
+  @Test
+  public void shouldCallCloseOnOperatorsThatFinishSuccessfully()
+      throws InterruptedException {
+    OpChain opChain = getChain(123, _operatorA);
+    CountDownLatch latch = new CountDownLatch(1);
+    Mockito.when(_operatorA.nextBlock()).thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    Mockito.doAnswer(inv -> {
+      latch.countDown();
+      return null;
+    }).when(_operatorA).close();
+
+    createSchedulerService().register(opChain);
+
+    Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "expected close to be called in less than 10 seconds");
+    Assert.assertEquals(opChain.getContext().getSchedulingStats().getNumSlices(), 1);
+  }
+
+  @Test
+  public void shouldCallCancelOnOperatorsThatReturnErrorBlock()
+      throws InterruptedException {
+    OpChain opChain = getChain(123, _operatorA);
+    CountDownLatch latch = new CountDownLatch(1);
+    Mockito.when(_operatorA.nextBlock())
+        .thenReturn(TransferableBlockUtils.getErrorTransferableBlock(new RuntimeException("foo")));
+    Mockito.doAnswer(inv -> {
+      latch.countDown();
+      return null;
+    }).when(_operatorA).cancel(Mockito.any());
+
+    createSchedulerService().register(opChain);
+
+    Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "expected cancel to be called in less than 10 seconds");
+  }
+
+  @Test
+  public void shouldRunOpChainsInTimeSlices()
+      throws InterruptedException {
+    // Both OpChains never finish on their own, and should still share the single thread
+    AtomicInteger numBlocksB = new AtomicInteger();
+    MultiStageOperator operatorB = Mockito.mock(MultiStageOperator.class);
+    Mockito.when(_operatorA.nextBlock()).thenAnswer(inv -> {
+      Thread.sleep(1);
+      return getDataBlock();
+    });
+    Mockito.when(operatorB.nextBlock()).thenAnswer(inv -> {
+      Thread.sleep(1);
+      numBlocksB.incrementAndGet();
+      return getDataBlock();
+    });
+    CountDownLatch cancelLatch = new CountDownLatch(2);
+    Mockito.doAnswer(inv -> {
+      cancelLatch.countDown();
+      return null;
+    }).when(_operatorA).cancel(Mockito.any());
+    Mockito.doAnswer(inv -> {
+      cancelLatch.countDown();
+      return null;
+    }).when(operatorB).cancel(Mockito.any());
+
+    FairOpChainSchedulerService schedulerService = createSchedulerService();
+    OpChain opChainA = getChain(1, _operatorA);
+    OpChain opChainB = getChain(2, operatorB);
+    schedulerService.register(opChainA);
+    schedulerService.register(opChainB);
+
+    long deadlineMs = System.currentTimeMillis() + 10_000;
+    while (numBlocksB.get() == 0 && System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(numBlocksB.get() > 0, "expected OpChain B to run while OpChain A is running");
+
+    schedulerService.cancel(1);
+    schedulerService.cancel(2);
+    Assert.assertTrue(cancelLatch.await(10, TimeUnit.SECONDS), "expected OpChains to be cancelled");
+    Assert.assertTrue(opChainA.getContext().getSchedulingStats().getNumSlices() > 0);
+    Assert.assertTrue(opChainB.getContext().getSchedulingStats().getNumSlices() > 0);
+  }
+
+  @Test
+  public void shouldCallCancelOnOpChainsWhenItIsCancelledByDispatch()
+      throws InterruptedException {
+    OpChain opChain = getChain(123, _operatorA);
+    CountDownLatch opChainStarted = new CountDownLatch(1);
+    Mockito.doAnswer(inv -> {
+      opChainStarted.countDown();
+      while (true) {
+        Thread.sleep(1000);
+      }
+    }).when(_operatorA).nextBlock();
+    CountDownLatch cancelLatch = new CountDownLatch(1);
+    Mockito.doAnswer(inv -> {
+      cancelLatch.countDown();
+      return null;
+    }).when(_operatorA).cancel(Mockito.any());
+
+    FairOpChainSchedulerService schedulerService = createSchedulerService();
+    schedulerService.register(opChain);
+    Assert.assertTrue(opChainStarted.await(10, TimeUnit.SECONDS), "op chain doesn't seem to be started");
+
+    schedulerService.cancel(123);
+
+    Assert.assertTrue(cancelLatch.await(10, TimeUnit.SECONDS), "expected OpChain to be cancelled");
+    Mockito.verify(_operatorA, Mockito.times(1)).cancel(Mockito.any());
+  }
+
+  @Test
+  public void shouldCallCancelOnOpChainsThatThrow()
+      throws InterruptedException {
+    OpChain opChain = getChain(123, _operatorA);
+    CountDownLatch cancelLatch = new CountDownLatch(1);
+    Mockito.when(_operatorA.nextBlock()).thenThrow(new RuntimeException("foo"));
+    Mockito.doAnswer(inv -> {
+      cancelLatch.countDown();
+      return null;
+    }).when(_operatorA).cancel(Mockito.any());
+
+    createSchedulerService().register(opChain);
+
+    Assert.assertTrue(cancelLatch.await(10, TimeUnit.SECONDS), "expected OpChain to be cancelled");
+    Mockito.verify(_operatorA, Mockito.times(1)).cancel(Mockito.any());
+  }
+
+  @Test
+  public void shouldSuspendOpChainsWithoutInputUntilNotified()
+      throws InterruptedException {
+    OpChain opChain = getChain(123, _operatorA);
+    AtomicBoolean dataAvailable = new AtomicBoolean();
+    AtomicInteger numCalls = new AtomicInteger();
+    Mockito.when(_operatorA.nextBlock()).thenAnswer(inv -> {
+      numCalls.incrementAndGet();
+      return dataAvailable.get() ? TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0)
+          : TransferableBlockUtils.getNoOpTransferableBlock();
+    });
+    CountDownLatch latch = new CountDownLatch(1);
+    Mockito.doAnswer(inv -> {
+      latch.countDown();
+      return null;
+    }).when(_operatorA).close();
+
+    createSchedulerService().register(opChain);
+    Assert.assertTrue(opChain.getContext().isYieldOnNoInput());
+
+    // The OpChain should not be run again until new data is notified
+    Thread.sleep(100);
+    Assert.assertEquals(numCalls.get(), 1);
+    Assert.assertEquals(latch.getCount(), 1);
+
+    dataAvailable.set(true);
+    opChain.getContext().notifyDataAvailable();
+    Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "expected close to be called in less than 10 seconds");
+    Assert.assertEquals(numCalls.get(), 2);
+    Assert.assertEquals(opChain.getContext().getSchedulingStats().getNumSlices(), 2);
+  }
+}
@@ -0,0 +1,310 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.executor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.pinot.query.mailbox.MailboxService;
+import org.apache.pinot.query.routing.StageMetadata;
+import org.apache.pinot.query.routing.WorkerMetadata;
+import org.apache.pinot.query.runtime.operator.MultiStageOperator;
+import org.apache.pinot.query.runtime.operator.OpChain;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class WeightedFairOpChainSchedulerTest {
+  private final AtomicLong _nanoTime = new AtomicLong();
+  private WeightedFairOpChainScheduler _scheduler;
+
+  @BeforeMethod
+  public void setUp() {
+    _nanoTime.set(0);
+    _scheduler = new WeightedFairOpChainScheduler(_nanoTime::get);
+  }
+
+  private static OpChain getChain(long requestId, int workerId, Map<String, String> opChainMetadata) {
+    MailboxService mailboxService = mock(MailboxService.class);
+    when(mailboxService.getHostname()).thenReturn("localhost");
+    when(mailboxService.getPort()).thenReturn(1234);
+    WorkerMetadata workerMetadata = new WorkerMetadata(workerId, ImmutableMap.of(), ImmutableMap.of());
+    OpChainExecutionContext context =
+        new OpChainExecutionContext(mailboxService, requestId, Long.MAX_VALUE, opChainMetadata,
+            new StageMetadata(0, ImmutableList.of(workerMetadata), ImmutableMap.of()), workerMetadata, null);
+    return new OpChain(context, mock(MultiStageOperator.class));
+  }
+
+  private static OpChain getChain(long requestId, int workerId) {
+    return getChain(requestId, workerId, ImmutableMap.of());
+  }
+
+  /**
+   * Picks the next OpChain and runs it for the given time.
+   */
+  private OpChain runNext(long runTimeMs)
+      throws InterruptedException {
+    OpChain opChain = _scheduler.next(0, TimeUnit.MILLISECONDS);
+    _nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(runTimeMs));
+    return opChain;
+  }
+
+  @Test
+  public void shouldReturnNullWhenNoOpChainIsReady()
+      throws InterruptedException {
+    assertNull(_scheduler.next(0, TimeUnit.MILLISECONDS));
+    assertNull(_scheduler.next(10, TimeUnit.MILLISECONDS));
+    assertEquals(_scheduler.size(), 0);
+  }
+
+  @Test
+  public void shouldReturnOpChainsOfSameQueryInFifoOrder()
+      throws InterruptedException {
+    OpChain opChain1 = getChain(1, 0);
+    OpChain opChain2 = getChain(1, 1);
+    _scheduler.register(opChain1);
+    _scheduler.register(opChain2);
+    assertEquals(_scheduler.size(), 2);
+
+    assertSame(runNext(10), opChain1);
+    _scheduler.requeue(opChain1);
+    assertSame(runNext(10), opChain2);
+    _scheduler.deregister(opChain2);
+    assertSame(runNext(10), opChain1);
+    _scheduler.deregister(opChain1);
+    assertEquals(_scheduler.size(), 0);
+    assertNull(_scheduler.next(0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void shouldShareTimeBetweenQueries()
+      throws InterruptedException {
+    // Query 1 has many OpChains, query 2 has a single one
+    OpChain[] query1OpChains = new OpChain[4];
+    for (int i = 0; i < 4; i++) {
+      query1OpChains[i] = getChain(1, i);
+      _scheduler.register(query1OpChains[i]);
+    }
+    OpChain query2OpChain = getChain(2, 0);
+    _scheduler.register(query2OpChain);
+
+    // The queries should take turns regardless of the number of OpChains
+    int numQuery2Slices = 0;
+    for (int i = 0; i < 20; i++) {
+      OpChain opChain = runNext(10);
+      if (opChain == query2OpChain) {
+        numQuery2Slices++;
+      }
+      _scheduler.requeue(opChain);
+    }
+    assertEquals(numQuery2Slices, 10);
+  }
+
+  @Test
+  public void shouldShareTimeBasedOnWeight()
+      throws InterruptedException {
+    OpChain opChain1 = getChain(1, 0, ImmutableMap.of(QueryOptionKey.OPCHAIN_SCHEDULING_WEIGHT, "3"));
+    OpChain opChain2 = getChain(2, 0);
+    _scheduler.register(opChain1);
+    _scheduler.register(opChain2);
+
+    int numQuery1Slices = 0;
+    for (int i = 0; i < 40; i++) {
+      OpChain opChain = runNext(10);
+      if (opChain == opChain1) {
+        numQuery1Slices++;
+      }
+      _scheduler.requeue(opChain);
+    }
+    assertEquals(numQuery1Slices, 30);
+  }
+
+  @Test
+  public void shouldNotLetIdleQueryAccumulateCredit()
+      throws InterruptedException {
+    OpChain opChain1 = getChain(1, 0);
+    _scheduler.register(opChain1);
+    for (int i = 0; i < 10; i++) {
+      _scheduler.requeue(runNext(10));
+    }
+
+    // Query 2 arrives after query 1 has run for a while, and should not get all the slices until it catches up
+    OpChain opChain2 = getChain(2, 0);
+    _scheduler.register(opChain2);
+    int numQuery2Slices = 0;
+    for (int i = 0; i < 10; i++) {
+      OpChain opChain = runNext(10);
+      if (opChain == opChain2) {
+        numQuery2Slices++;
+      }
+      _scheduler.requeue(opChain);
+    }
+    assertTrue(numQuery2Slices <= 6, "Query 2 got " + numQuery2Slices + " slices out of 10");
+  }
+
+  @Test
+  public void shouldTrackSchedulingStats()
+      throws InterruptedException {
+    OpChain opChain1 = getChain(1, 0);
+    OpChain opChain2 = getChain(1, 1);
+    _scheduler.register(opChain1);
+    _scheduler.register(opChain2);
+    _nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+
+    // opChain1 waits 5ms, then runs 10ms; opChain2 waits 15ms, then runs 20ms
+    assertSame(runNext(10), opChain1);
+    _scheduler.requeue(opChain1);
+    assertSame(runNext(20), opChain2);
+    _scheduler.deregister(opChain2);
+
+    OpChainSchedulingStats stats1 = opChain1.getContext().getSchedulingStats();
+    assertEquals(stats1.getNumSlices(), 1);
+    assertEquals(stats1.getQueueWaitTimeMs(), 5);
+    assertEquals(stats1.getRunTimeMs(), 10);
+    OpChainSchedulingStats stats2 = opChain2.getContext().getSchedulingStats();
+    assertEquals(stats2.getNumSlices(), 1);
+    assertEquals(stats2.getQueueWaitTimeMs(), 15);
+    assertEquals(stats2.getRunTimeMs(), 20);
+
+    OpChainSchedulingStats queryStats = _scheduler.getQueryStats(1);
+    assertEquals(queryStats.getNumSlices(), 2);
+    assertEquals(queryStats.getQueueWaitTimeMs(), 20);
+    assertEquals(queryStats.getMaxQueueWaitTimeMs(), 15);
+    assertEquals(queryStats.getRunTimeMs(), 30);
+
+    _scheduler.deregister(runNext(0));
+    assertNull(_scheduler.getQueryStats(1));
+  }
+
+  @Test
+  public void shouldRemoveQueuedOpChainsOnCancel()
+      throws InterruptedException {
+    OpChain opChain1 = getChain(1, 0);
+    OpChain opChain2 = getChain(1, 1);
+    OpChain opChain3 = getChain(2, 0);
+    _scheduler.register(opChain1);
+    _scheduler.register(opChain2);
+    _scheduler.register(opChain3);
+    assertSame(runNext(10), opChain1);
+
+    List<OpChain> cancelled = _scheduler.cancel(1);
+    assertEquals(cancelled, List.of(opChain2));
+    assertTrue(_scheduler.isCancelled(1));
+    assertFalse(_scheduler.isCancelled(2));
+    assertSame(runNext(10), opChain3);
+    assertNull(_scheduler.next(0, TimeUnit.MILLISECONDS));
+
+    _scheduler.deregister(opChain1);
+    _scheduler.deregister(opChain2);
+    _scheduler.deregister(opChain3);
+    assertEquals(_scheduler.size(), 0);
+    assertFalse(_scheduler.isCancelled(1));
+  }
+
+  @Test
+  public void shouldSuspendOpChainUntilResumed()
+      throws InterruptedException {
+    OpChain opChain = getChain(1, 0);
+    _scheduler.register(opChain);
+    assertSame(runNext(10), opChain);
+    assertFalse(_scheduler.suspend(opChain));
+    assertNull(_scheduler.next(0, TimeUnit.MILLISECONDS));
+    assertEquals(_scheduler.size(), 1);
+
+    // Resuming an OpChain that is already queued or not registered is a no-op
+    assertTrue(_scheduler.resume(opChain.getId()));
+    assertFalse(_scheduler.resume(opChain.getId()));
+    assertFalse(_scheduler.resume(getChain(2, 0).getId()));
+    assertSame(runNext(10), opChain);
+    assertNull(_scheduler.next(0, TimeUnit.MILLISECONDS));
+
+    _scheduler.deregister(opChain);
+    assertEquals(_scheduler.size(), 0);
+    assertFalse(_scheduler.resume(opChain.getId()));
+  }
+
+  @Test
+  public void shouldRequeueOpChainResumedWhileRunning()
+      throws InterruptedException {
+    OpChain opChain = getChain(1, 0);
+    _scheduler.register(opChain);
+    assertSame(runNext(10), opChain);
+
+    // New data arrives while the OpChain is running, so it should not be suspended
+    assertFalse(_scheduler.resume(opChain.getId()));
+    assertTrue(_scheduler.suspend(opChain));
+    assertSame(runNext(10), opChain);
+
+    // The notification is consumed when the OpChain runs
+    assertFalse(_scheduler.suspend(opChain));
+    assertNull(_scheduler.next(0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void shouldNotChargeSuspendedTime()
+      throws InterruptedException {
+    OpChain opChain = getChain(1, 0);
+    _scheduler.register(opChain);
+    assertSame(runNext(10), opChain);
+    _scheduler.suspend(opChain);
+    _nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    _scheduler.resume(opChain.getId());
+    _nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+    assertSame(runNext(10), opChain);
+    _scheduler.deregister(opChain);
+
+    OpChainSchedulingStats stats = opChain.getContext().getSchedulingStats();
+    assertEquals(stats.getNumSlices(), 2);
+    assertEquals(stats.getQueueWaitTimeMs(), 5);
+    assertEquals(stats.getRunTimeMs(), 20);
+  }
+
+  @Test
+  public void shouldReturnSuspendedOpChainsOnCancel()
+      throws InterruptedException {
+    OpChain opChain1 = getChain(1, 0);
+    OpChain opChain2 = getChain(1, 1);
+    _scheduler.register(opChain1);
+    _scheduler.register(opChain2);
+    assertSame(runNext(10), opChain1);
+    _scheduler.suspend(opChain1);
+
+    List<OpChain> cancelled = _scheduler.cancel(1);
+    assertEquals(cancelled, List.of(opChain2, opChain1));
+    assertFalse(_scheduler.resume(opChain1.getId()));
+    assertNull(_scheduler.next(0, TimeUnit.MILLISECONDS));
+
+    _scheduler.deregister(opChain1);
+    _scheduler.deregister(opChain2);
+    assertEquals(_scheduler.size(), 0);
+  }
+}
@@ -43,6 +43,7 @@ import org.testng.annotations.Test;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 
@@ -529,6 +530,120 @@ public class HashJoinOperatorTest {
         "Max rows in join should be reached");
   }
 
+  @Test
+  public void shouldSpillJoinWhenHitDataRowsLimit() {
+    DataSchema leftSchema = new DataSchema(new String[]{"int_col", "string_col"}, new ColumnDataType[]{
+        ColumnDataType.INT, ColumnDataType.STRING
+    });
+    DataSchema rightSchema = new DataSchema(new String[]{"int_col", "string_col"}, new ColumnDataType[]{
+        ColumnDataType.INT, ColumnDataType.STRING
+    });
+    DataSchema resultSchema =
+        new DataSchema(new String[]{"int_col1", "string_col1", "int_co2", "string_col2"}, new ColumnDataType[]{
+            ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING
+        });
+    PlanNode.NodeHint nodeHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+        Map.of(PinotHintOptions.JoinHintOptions.JOIN_OVERFLOW_MODE, "SPILL",
+            PinotHintOptions.JoinHintOptions.MAX_ROWS_IN_JOIN, "40",
+            PinotHintOptions.JoinHintOptions.NUM_SPILL_PARTITIONS, "8")));
+    // Left keys: [50, 150), right keys: [0, 100)
+    Object[][] leftRows1 = new Object[50][];
+    Object[][] leftRows2 = new Object[50][];
+    Object[][] rightRows1 = new Object[50][];
+    Object[][] rightRows2 = new Object[50][];
+    for (int i = 0; i < 50; i++) {
+      leftRows1[i] = new Object[]{i + 50, "l" + (i + 50)};
+      leftRows2[i] = new Object[]{i + 100, "l" + (i + 100)};
+      rightRows1[i] = new Object[]{i, "r" + i};
+      rightRows2[i] = new Object[]{i + 50, "r" + (i + 50)};
+    }
+    Map<JoinRelType, Integer> expectedNumRows =
+        Map.of(JoinRelType.INNER, 50, JoinRelType.LEFT, 100, JoinRelType.RIGHT, 100, JoinRelType.FULL, 150,
+            JoinRelType.SEMI, 50, JoinRelType.ANTI, 50);
+    for (Map.Entry<JoinRelType, Integer> entry : expectedNumRows.entrySet()) {
+      JoinRelType joinType = entry.getKey();
+      when(_leftInput.nextBlock()).thenReturn(OperatorTestUtil.block(leftSchema, leftRows1))
+          .thenReturn(OperatorTestUtil.block(leftSchema, leftRows2))
+          .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+      when(_rightInput.nextBlock()).thenReturn(OperatorTestUtil.block(rightSchema, rightRows1))
+          .thenReturn(OperatorTestUtil.block(rightSchema, rightRows2))
+          .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+      boolean leftOnly = joinType == JoinRelType.SEMI || joinType == JoinRelType.ANTI;
+      HashJoinOperator operator =
+          getOperator(leftSchema, leftOnly ? leftSchema : resultSchema, joinType, List.of(0), List.of(0), List.of(),
+              nodeHint);
+      int numRows = 0;
+      TransferableBlock block = operator.nextBlock();
+      while (block.isDataBlock()) {
+        for (Object[] row : block.getContainer()) {
+          Integer leftKey = (Integer) row[0];
+          Integer rightKey = leftOnly ? null : (Integer) row[2];
+          if (leftKey != null && rightKey != null) {
+            assertEquals(leftKey, rightKey);
+            assertEquals(row[1], "l" + leftKey);
+            assertEquals(row[3], "r" + rightKey);
+          } else if (leftKey != null) {
+            assertTrue(joinType == JoinRelType.SEMI ? leftKey < 100 : leftKey >= 100,
+                joinType + " unexpected left key: " + leftKey);
+          } else {
+            assertTrue(rightKey < 50, joinType + " unexpected right key: " + rightKey);
+          }
+          numRows++;
+        }
+        block = operator.nextBlock();
+      }
+      assertTrue(block.isSuccessfulEndOfStreamBlock(), joinType + " should end successfully");
+      assertEquals(numRows, (int) entry.getValue(), joinType + " number of rows");
+      StatMap<HashJoinOperator.StatKey> statMap = OperatorTestUtil.getStatMap(HashJoinOperator.StatKey.class, block);
+      // Spilled join returns complete results, so it should not be reported as truncated
+      assertFalse(statMap.getBoolean(HashJoinOperator.StatKey.MAX_ROWS_IN_JOIN_REACHED));
+      // Only the largest partitions are spilled until the remaining right rows fit in the limit, and the left rows of
+      // the partitions kept in memory are joined without being spilled
+      int numSpilledPartitions = statMap.getInt(HashJoinOperator.StatKey.NUM_SPILLED_PARTITIONS);
+      assertTrue(numSpilledPartitions > 0 && numSpilledPartitions < 8,
+          joinType + " number of spilled partitions: " + numSpilledPartitions);
+      long numSpilledRightRows = statMap.getLong(HashJoinOperator.StatKey.SPILLED_RIGHT_ROWS);
+      assertTrue(numSpilledRightRows >= 60 && numSpilledRightRows < 100,
+          joinType + " number of spilled right rows: " + numSpilledRightRows);
+      long numSpilledLeftRows = statMap.getLong(HashJoinOperator.StatKey.SPILLED_LEFT_ROWS);
+      assertTrue(numSpilledLeftRows > 0 && numSpilledLeftRows < 100,
+          joinType + " number of spilled left rows: " + numSpilledLeftRows);
+      assertTrue(statMap.getLong(HashJoinOperator.StatKey.SPILLED_BYTES) > 0);
+      operator.close();
+    }
+  }
+
+  @Test
+  public void shouldPropagateJoinLimitErrorWhenSpilledPartitionHitDataRowsLimit() {
+    DataSchema leftSchema = new DataSchema(new String[]{"int_col", "string_col"}, new ColumnDataType[]{
+        ColumnDataType.INT, ColumnDataType.STRING
+    });
+    DataSchema rightSchema = new DataSchema(new String[]{"int_col", "string_col"}, new ColumnDataType[]{
+        ColumnDataType.INT, ColumnDataType.STRING
+    });
+    when(_leftInput.nextBlock()).thenReturn(
+            OperatorTestUtil.block(leftSchema, new Object[]{1, "Aa"}, new Object[]{2, "BB"}))
+        .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    // All the right rows have the same key, so they will be spilled into the same partition
+    when(_rightInput.nextBlock()).thenReturn(
+            OperatorTestUtil.block(rightSchema, new Object[]{2, "Aa"}, new Object[]{2, "BB"}, new Object[]{2, "CC"}))
+        .thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    DataSchema resultSchema =
+        new DataSchema(new String[]{"int_col1", "string_col1", "int_co2", "string_col2"}, new ColumnDataType[]{
+            ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING
+        });
+    PlanNode.NodeHint nodeHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+        Map.of(PinotHintOptions.JoinHintOptions.JOIN_OVERFLOW_MODE, "SPILL",
+            PinotHintOptions.JoinHintOptions.MAX_ROWS_IN_JOIN, "2")));
+    HashJoinOperator operator =
+        getOperator(leftSchema, resultSchema, JoinRelType.INNER, List.of(0), List.of(0), List.of(), nodeHint);
+    TransferableBlock block = operator.nextBlock();
+    assertTrue(block.isErrorBlock());
+    assertTrue(block.getExceptions().get(QueryException.SERVER_RESOURCE_LIMIT_EXCEEDED_ERROR_CODE)
+        .contains("spilled partition"));
+    operator.close();
+  }
+
   private HashJoinOperator getOperator(DataSchema leftSchema, DataSchema resultSchema, JoinRelType joinType,
       List<Integer> leftKeys, List<Integer> rightKeys, List<RexExpression> nonEquiConditions,
       PlanNode.NodeHint nodeHint) {
@@ -18,11 +18,16 @@
  */
 package org.apache.pinot.query.runtime.operator;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelFieldCollation.Direction;
 import org.apache.calcite.rel.RelFieldCollation.NullDirection;
 import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.planner.plannode.SortNode;
@@ -30,7 +35,9 @@ import org.apache.pinot.query.routing.VirtualServerAddress;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockTestUtils;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import org.mockito.Mock;
+import org.mockito.stubbing.OngoingStubbing;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -472,6 +479,52 @@ public class SortOperatorTest {
     assertTrue(operator.nextBlock().isSuccessfulEndOfStreamBlock(), "expected EOS block to propagate");
   }
 
+  @Test
+  public void shouldSortExternallyWhenMaxRowsInSortReached() {
+    // Given:
+    DataSchema schema = new DataSchema(new String[]{"sort", "value"}, new DataSchema.ColumnDataType[]{INT, STRING});
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      values.add(i);
+    }
+    Collections.shuffle(values, new Random(0));
+    OngoingStubbing<TransferableBlock> stubbing = when(_input.nextBlock());
+    for (int i = 0; i < 100; i += 20) {
+      Object[][] rows = new Object[20][];
+      for (int j = 0; j < 20; j++) {
+        int value = values.get(i + j);
+        rows[j] = new Object[]{value, "str_" + value};
+      }
+      stubbing = stubbing.thenReturn(block(schema, rows));
+    }
+    stubbing.thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    List<RelFieldCollation> collations = List.of(new RelFieldCollation(0, Direction.DESCENDING, NullDirection.FIRST));
+    SortOperator operator = new SortOperator(
+        OperatorTestUtil.getTracingContext(Map.of(QueryOptionKey.MAX_ROWS_IN_SORT, "7")), _input,
+        new SortNode(-1, schema, PlanNode.NodeHint.EMPTY, List.of(), collations, 50, 10));
+
+    // When:
+    List<Object[]> resultRows = new ArrayList<>();
+    TransferableBlock block = operator.nextBlock();
+    while (block.isDataBlock()) {
+      resultRows.addAll(block.getContainer());
+      block = operator.nextBlock();
+    }
+
+    // Then:
+    assertEquals(resultRows.size(), 50);
+    for (int i = 0; i < 50; i++) {
+      assertEquals(resultRows.get(i), new Object[]{89 - i, "str_" + (89 - i)});
+    }
+    StatMap<SortOperator.StatKey> statMap = OperatorTestUtil.getStatMap(SortOperator.StatKey.class, block);
+    assertTrue(statMap.getBoolean(SortOperator.StatKey.REQUIRE_SORT));
+    // 100 rows are spilled in runs of 7 rows
+    assertEquals(statMap.getInt(SortOperator.StatKey.NUM_SPILLED_RUNS), 14);
+    assertEquals(statMap.getLong(SortOperator.StatKey.SPILLED_ROWS), 98);
+    assertTrue(statMap.getLong(SortOperator.StatKey.SPILLED_BYTES) > 0);
+    assertEquals(statMap.getLong(SortOperator.StatKey.EMITTED_ROWS), 50);
+  }
+
   private SortOperator getOperator(DataSchema schema, List<RelFieldCollation> collations, int fetch, int offset) {
     return new SortOperator(OperatorTestUtil.getTracingContext(), _input,
         new SortNode(-1, schema, PlanNode.NodeHint.EMPTY, List.of(), collations, fetch, offset));
@@ -292,7 +292,7 @@ public class WindowAggregateOperatorTest {
             Integer.MIN_VALUE, 0);
 
     // When:
-    List<Object[]> resultRows = operator.nextBlock().getContainer();
+    List<Object[]> resultRows = getAllResultRows(operator);
 
     // Then:
     verifyResultRows(resultRows, keys,
@@ -302,7 +302,6 @@ public class WindowAggregateOperatorTest {
                 2, "foo", 2L, 2L
             }, new Object[]{2, "the", 4L, 3L}), 3,
             List.of(new Object[]{3, "and", 1L, 1L}, new Object[]{3, "true", 2L, 2L})));
-    assertTrue(operator.nextBlock().isSuccessfulEndOfStreamBlock(), "Second block is EOS (done processing)");
   }
 
   @Test
@@ -327,13 +326,12 @@ public class WindowAggregateOperatorTest {
             Integer.MIN_VALUE, 0);
 
     // When:
-    List<Object[]> resultRows = operator.nextBlock().getContainer();
+    List<Object[]> resultRows = getAllResultRows(operator);
 
     // Then:
     verifyResultRows(resultRows, keys, Map.of(1, List.<Object[]>of(new Object[]{1, "foo", 1L}), 2,
         List.of(new Object[]{2, "bar", 1L}, new Object[]{2, "foo", 2L}, new Object[]{2, "foo", 3L},
             new Object[]{2, "the", 4L}), 3, List.of(new Object[]{3, "and", 1L}, new Object[]{3, "true", 2L})));
-    assertTrue(operator.nextBlock().isSuccessfulEndOfStreamBlock(), "Second block is EOS (done processing)");
   }
 
   @Test
@@ -365,6 +363,37 @@ public class WindowAggregateOperatorTest {
     assertTrue(operator.nextBlock().isSuccessfulEndOfStreamBlock(), "Second block is EOS (done processing)");
   }
 
+  @Test
+  public void testStreamingWindowAggregate() {
+    // Given:
+    DataSchema inputSchema = new DataSchema(new String[]{"group", "arg"}, new ColumnDataType[]{INT, STRING});
+    // Input is sorted on the order by key, but the rows of the partitions are interleaved
+    when(_input.nextBlock()).thenReturn(
+            OperatorTestUtil.block(inputSchema, new Object[]{1, "a"}, new Object[]{2, "a"}, new Object[]{1, "b"}))
+        .thenReturn(OperatorTestUtil.block(inputSchema, new Object[]{2, "b"}, new Object[]{2, "c"},
+            new Object[]{1, "d"})).thenReturn(TransferableBlockTestUtils.getEndOfStreamTransferableBlock(0));
+    DataSchema resultSchema =
+        new DataSchema(new String[]{"group", "arg", "sum"}, new ColumnDataType[]{INT, STRING, DOUBLE});
+    List<Integer> keys = List.of(0);
+    List<RelFieldCollation> collations =
+        List.of(new RelFieldCollation(1, RelFieldCollation.Direction.ASCENDING, RelFieldCollation.NullDirection.LAST));
+    List<RexExpression.FunctionCall> aggCalls = List.of(getSum(new RexExpression.InputRef(0)));
+    WindowAggregateOperator operator =
+        getOperator(inputSchema, resultSchema, keys, collations, aggCalls, WindowNode.WindowFrameType.RANGE,
+            Integer.MIN_VALUE, 0);
+
+    // Then:
+    // Peer rows are emitted once the next order by key shows up
+    verifyResultRows(operator.nextBlock().getContainer(), keys,
+        Map.of(1, List.<Object[]>of(new Object[]{1, "a", 1.0}), 2, List.<Object[]>of(new Object[]{2, "a", 2.0})));
+    verify(_input, times(1)).nextBlock();
+    verifyResultRows(operator.nextBlock().getContainer(), keys, Map.of(1, List.<Object[]>of(new Object[]{1, "b", 2.0}),
+        2, List.of(new Object[]{2, "b", 4.0}, new Object[]{2, "c", 6.0})));
+    verifyResultRows(operator.nextBlock().getContainer(), keys,
+        Map.of(1, List.<Object[]>of(new Object[]{1, "d", 3.0})));
+    assertTrue(operator.nextBlock().isSuccessfulEndOfStreamBlock(), "Last block is EOS (done processing)");
+  }
+
   @Test
   public void testNonEmptyOrderByKeysMatchingPartitionByKeys() {
     // Given:
@@ -662,6 +691,17 @@ public class WindowAggregateOperatorTest {
         PlanNode.NodeHint.EMPTY);
   }
 
+  private static List<Object[]> getAllResultRows(WindowAggregateOperator operator) {
+    List<Object[]> resultRows = new ArrayList<>();
+    TransferableBlock block = operator.nextBlock();
+    while (block.isDataBlock()) {
+      resultRows.addAll(block.getContainer());
+      block = operator.nextBlock();
+    }
+    assertTrue(block.isSuccessfulEndOfStreamBlock(), "Last block is EOS (done processing)");
+    return resultRows;
+  }
+
   private static RexExpression.FunctionCall getSum(RexExpression arg) {
     return new RexExpression.FunctionCall(ColumnDataType.INT, SqlKind.SUM.name(), List.of(arg));
   }
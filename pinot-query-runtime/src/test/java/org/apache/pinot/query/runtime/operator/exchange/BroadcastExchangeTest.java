@@ -19,11 +19,14 @@
 package org.apache.pinot.query.runtime.operator.exchange;
 
 import com.google.common.collect.ImmutableList;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.pinot.common.datablock.DataBlock;
 import org.apache.pinot.query.mailbox.SendingMailbox;
+import org.apache.pinot.query.runtime.blocks.BlockSplitter;
 import org.apache.pinot.query.runtime.blocks.TransferableBlock;
 import org.apache.pinot.query.runtime.blocks.TransferableBlockUtils;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -72,4 +75,30 @@ public class BroadcastExchangeTest {
     Mockito.verify(_mailbox2, Mockito.times(1)).send(captor.capture());
     Assert.assertEquals(captor.getValue(), _block);
   }
+
+  @Test
+  public void shouldSplitOnceForAllMailboxes()
+      throws Exception {
+    // Given:
+    ImmutableList<SendingMailbox> destinations = ImmutableList.of(_mailbox1, _mailbox2);
+    TransferableBlock split1 = Mockito.mock(TransferableBlock.class);
+    TransferableBlock split2 = Mockito.mock(TransferableBlock.class);
+    AtomicInteger numSplits = new AtomicInteger();
+    BlockSplitter splitter = (block, type, maxBlockSize) -> {
+      numSplits.incrementAndGet();
+      return ImmutableList.of(split1, split2).iterator();
+    };
+
+    // When:
+    new BroadcastExchange(destinations, splitter).route(destinations, _block);
+
+    // Then:
+    Assert.assertEquals(numSplits.get(), 1);
+    for (SendingMailbox mailbox : destinations) {
+      InOrder inOrder = Mockito.inOrder(mailbox);
+      inOrder.verify(mailbox).send(split1);
+      inOrder.verify(mailbox).send(split2);
+      inOrder.verifyNoMoreInteractions();
+    }
+  }
 }
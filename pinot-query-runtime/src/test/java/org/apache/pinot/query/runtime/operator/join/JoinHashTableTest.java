@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+
+public class JoinHashTableTest {
+  private static final int NUM_ROWS = 10_000;
+  private static final int CARDINALITY = 1_000;
+
+  @DataProvider
+  public Object[][] keyTypes() {
+    return new Object[][]{
+        new Object[]{ColumnDataType.INT}, new Object[]{ColumnDataType.LONG}, new Object[]{ColumnDataType.STRING}
+    };
+  }
+
+  @Test
+  public void testFactory() {
+    assertTrue(JoinHashTableFactory.getJoinHashTable(
+        new ColumnDataType[]{ColumnDataType.INT}) instanceof IntKeyJoinHashTable);
+    assertTrue(JoinHashTableFactory.getJoinHashTable(
+        new ColumnDataType[]{ColumnDataType.LONG}) instanceof LongKeyJoinHashTable);
+    assertTrue(JoinHashTableFactory.getJoinHashTable(
+        new ColumnDataType[]{ColumnDataType.DOUBLE}) instanceof ObjectKeyJoinHashTable);
+    assertTrue(JoinHashTableFactory.getJoinHashTable(
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.INT}) instanceof ObjectKeyJoinHashTable);
+  }
+
+  @Test(dataProvider = "keyTypes")
+  public void testBuildAndLookup(ColumnDataType keyType) {
+    JoinHashTable hashTable = JoinHashTableFactory.getJoinHashTable(new ColumnDataType[]{keyType});
+    Random random = new Random();
+    Map<Object, List<Object[]>> expected = new HashMap<>();
+    List<Object[]> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      // Include some null keys
+      Object key = random.nextInt(100) == 0 ? null : getKey(keyType, random.nextInt(CARDINALITY));
+      Object[] row = new Object[]{key, i};
+      hashTable.add(key, row);
+      rows.add(row);
+      expected.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+    }
+    assertEquals(hashTable.getNumRows(), NUM_ROWS);
+    assertEquals(hashTable.getRows(), rows);
+
+    hashTable.finish();
+    assertThrows(IllegalStateException.class, () -> hashTable.add(null, new Object[]{null, -1}));
+    assertEquals(hashTable.getNumRows(), NUM_ROWS);
+    assertEquals(hashTable.getRows().size(), NUM_ROWS);
+    int numMatchedRows = 0;
+    for (Map.Entry<Object, List<Object[]>> entry : expected.entrySet()) {
+      long range = hashTable.lookup(entry.getKey());
+      assertTrue(hashTable.containsKey(entry.getKey()));
+      int start = JoinHashTable.getStart(range);
+      int end = JoinHashTable.getEnd(range);
+      List<Object[]> expectedRows = entry.getValue();
+      assertEquals(end - start, expectedRows.size());
+      // Rows with the same key should keep the insertion order
+      for (int i = start; i < end; i++) {
+        assertEquals(hashTable.getRow(i), expectedRows.get(i - start));
+      }
+      numMatchedRows += end - start;
+    }
+    assertEquals(numMatchedRows, NUM_ROWS);
+    Object absentKey = getKey(keyType, CARDINALITY);
+    assertEquals(hashTable.lookup(absentKey), JoinHashTable.NO_MATCH);
+    assertFalse(hashTable.containsKey(absentKey));
+  }
+
+  @Test(dataProvider = "keyTypes")
+  public void testEmptyAndNullKey(ColumnDataType keyType) {
+    JoinHashTable hashTable = JoinHashTableFactory.getJoinHashTable(new ColumnDataType[]{keyType});
+    hashTable.finish();
+    assertEquals(hashTable.getNumRows(), 0);
+    assertEquals(hashTable.lookup(null), JoinHashTable.NO_MATCH);
+    assertEquals(hashTable.lookup(getKey(keyType, 0)), JoinHashTable.NO_MATCH);
+
+    hashTable = JoinHashTableFactory.getJoinHashTable(new ColumnDataType[]{keyType});
+    hashTable.add(getKey(keyType, 0), new Object[]{getKey(keyType, 0)});
+    hashTable.finish();
+    assertEquals(hashTable.lookup(null), JoinHashTable.NO_MATCH);
+    long range = hashTable.lookup(getKey(keyType, 0));
+    assertEquals(JoinHashTable.getStart(range), 0);
+    assertEquals(JoinHashTable.getEnd(range), 1);
+  }
+
+  private static Object getKey(ColumnDataType keyType, int value) {
+    switch (keyType) {
+      case INT:
+        return value;
+      case LONG:
+        return (long) value;
+      default:
+        return Integer.toString(value);
+    }
+  }
+}
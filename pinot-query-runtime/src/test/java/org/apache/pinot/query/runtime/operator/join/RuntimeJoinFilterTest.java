@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.query.runtime.blocks.TransferableBlock;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class RuntimeJoinFilterTest {
+  // Left rows: [leftIntCol, leftStringCol, leftBytesCol], right rows: [rightStringCol, rightIntCol, rightBytesCol]
+  private static final int[] LEFT_KEYS = new int[]{0, 1, 2};
+  private static final int[] RIGHT_KEYS = new int[]{1, 0, 2};
+  private static final ColumnDataType[] KEY_TYPES =
+      new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.BYTES};
+
+  @Test
+  public void testAddAndTest() {
+    RuntimeJoinFilter filter = new RuntimeJoinFilter(LEFT_KEYS, KEY_TYPES);
+    filter.addRows(List.of(getRightRow("a", 10, 1), getRightRow("b", 20, 2)), RIGHT_KEYS);
+    filter.addRows(Collections.singletonList(getRightRow("c", 15, 3)), RIGHT_KEYS);
+
+    assertEquals(filter.getMinValue(0), 10);
+    assertEquals(filter.getMaxValue(0), 20);
+    assertEquals(filter.getMinValue(1), "a");
+    assertEquals(filter.getMaxValue(1), "c");
+    assertNull(filter.getMinValue(2));
+    assertNull(filter.getMaxValue(2));
+    for (int i = 0; i < 3; i++) {
+      assertTrue(filter.hasValues(i));
+      assertFalse(filter.hasNullValue(i));
+    }
+
+    assertTrue(filter.test(new Object[]{10, "a", new ByteArray(new byte[]{1})}));
+    assertTrue(filter.test(new Object[]{15, "b", new ByteArray(new byte[]{3})}));
+    // Out of range
+    assertFalse(filter.test(new Object[]{5, "a", new ByteArray(new byte[]{1})}));
+    assertFalse(filter.test(new Object[]{25, "a", new ByteArray(new byte[]{1})}));
+    // In range but not in the values
+    assertFalse(filter.test(new Object[]{11, "a", new ByteArray(new byte[]{1})}));
+    assertFalse(filter.test(new Object[]{10, "aa", new ByteArray(new byte[]{1})}));
+    // Null never matches when there is no null value in the right table
+    assertFalse(filter.test(new Object[]{null, "a", new ByteArray(new byte[]{1})}));
+  }
+
+  @Test
+  public void testNullValues() {
+    RuntimeJoinFilter filter = new RuntimeJoinFilter(LEFT_KEYS, KEY_TYPES);
+    filter.addRows(List.of(getRightRow(null, 10, 1), getRightRow(null, null, 2)), RIGHT_KEYS);
+
+    assertTrue(filter.hasValues(0));
+    assertTrue(filter.hasNullValue(0));
+    assertFalse(filter.hasValues(1));
+    assertTrue(filter.hasNullValue(1));
+    assertNull(filter.getMinValue(1));
+
+    assertTrue(filter.test(new Object[]{null, null, new ByteArray(new byte[]{2})}));
+    assertTrue(filter.test(new Object[]{10, null, new ByteArray(new byte[]{1})}));
+    assertFalse(filter.test(new Object[]{10, "a", new ByteArray(new byte[]{1})}));
+  }
+
+  @Test
+  public void testMerge() {
+    RuntimeJoinFilter filter1 = new RuntimeJoinFilter(LEFT_KEYS, KEY_TYPES);
+    filter1.addRows(Collections.singletonList(getRightRow("b", 10, 1)), RIGHT_KEYS);
+    RuntimeJoinFilter filter2 = new RuntimeJoinFilter(LEFT_KEYS, KEY_TYPES);
+    filter2.addRows(List.of(getRightRow("a", 20, 2), getRightRow(null, 15, 3)), RIGHT_KEYS);
+    // Filter without value
+    RuntimeJoinFilter filter3 = new RuntimeJoinFilter(LEFT_KEYS, KEY_TYPES);
+
+    RuntimeJoinFilter mergedFilter = RuntimeJoinFilter.merge(RuntimeJoinFilter.merge(filter1, filter2), filter3);
+    assertEquals(mergedFilter.getMinValue(0), 10);
+    assertEquals(mergedFilter.getMaxValue(0), 20);
+    assertEquals(mergedFilter.getMinValue(1), "a");
+    assertEquals(mergedFilter.getMaxValue(1), "b");
+    assertTrue(mergedFilter.hasNullValue(1));
+    assertTrue(mergedFilter.test(new Object[]{10, "a", new ByteArray(new byte[]{2})}));
+    assertTrue(mergedFilter.test(new Object[]{20, "b", new ByteArray(new byte[]{1})}));
+    assertTrue(mergedFilter.test(new Object[]{15, null, new ByteArray(new byte[]{3})}));
+    assertFalse(mergedFilter.test(new Object[]{15, "c", new ByteArray(new byte[]{3})}));
+  }
+
+  @Test
+  public void testSerDe()
+      throws Exception {
+    List<Object[]> rightRows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rightRows.add(getRightRow("value_" + i, i * 2, i));
+    }
+    rightRows.add(getRightRow(null, 0, 0));
+    RuntimeJoinFilter filter = new RuntimeJoinFilter(LEFT_KEYS, KEY_TYPES);
+    filter.addRows(rightRows, RIGHT_KEYS);
+
+    // Serialize the block as when it is sent to another server
+    TransferableBlock block = new TransferableBlock(filter.toBlock().getDataBlock());
+    RuntimeJoinFilter deserializedFilter = RuntimeJoinFilter.fromBlock(block);
+    assertEquals(deserializedFilter.getNumKeys(), 3);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(deserializedFilter.getKey(i), LEFT_KEYS[i]);
+      assertEquals(deserializedFilter.getStoredType(i), KEY_TYPES[i]);
+      assertEquals(deserializedFilter.getMinValue(i), filter.getMinValue(i));
+      assertEquals(deserializedFilter.getMaxValue(i), filter.getMaxValue(i));
+      assertEquals(deserializedFilter.hasNullValue(i), filter.hasNullValue(i));
+      assertTrue(deserializedFilter.hasValues(i));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(deserializedFilter.test(new Object[]{i * 2, "value_" + i, new ByteArray(new byte[]{(byte) i})}));
+    }
+    assertFalse(deserializedFilter.test(new Object[]{1, "value_0", new ByteArray(new byte[]{0})}));
+    assertTrue(deserializedFilter.test(new Object[]{0, null, new ByteArray(new byte[]{0})}));
+
+    // Filter without value
+    deserializedFilter = RuntimeJoinFilter.fromBlock(
+        new TransferableBlock(new RuntimeJoinFilter(LEFT_KEYS, KEY_TYPES).toBlock().getDataBlock()));
+    for (int i = 0; i < 3; i++) {
+      assertFalse(deserializedFilter.hasValues(i));
+      assertFalse(deserializedFilter.hasNullValue(i));
+      assertNull(deserializedFilter.getMinValue(i));
+    }
+    assertFalse(deserializedFilter.test(new Object[]{0, "value_0", new ByteArray(new byte[]{0})}));
+  }
+
+  private static Object[] getRightRow(String stringValue, Integer intValue, int bytesValue) {
+    return new Object[]{stringValue, intValue, new ByteArray(new byte[]{(byte) bytesValue})};
+  }
+}
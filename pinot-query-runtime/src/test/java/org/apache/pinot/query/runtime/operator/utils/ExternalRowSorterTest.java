@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class ExternalRowSorterTest {
+  private static final File SPILL_DIR = new File(FileUtils.getTempDirectory(), "ExternalRowSorterTest");
+  private static final DataSchema DATA_SCHEMA = new DataSchema(new String[]{"int_col", "string_col"},
+      new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING});
+  private static final Comparator<Object[]> COMPARATOR = Comparator.comparingInt(row -> (int) row[0]);
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(SPILL_DIR);
+  }
+
+  @Test
+  public void testSortInMemory()
+      throws IOException {
+    try (ExternalRowSorter sorter = new ExternalRowSorter(SPILL_DIR, DATA_SCHEMA, COMPARATOR, 100, 100, 10)) {
+      sorter.addAll(getShuffledRows(50));
+      sorter.finish();
+      assertEquals(sorter.getNumRuns(), 0);
+      assertEquals(sorter.getNumSpilledBytes(), 0);
+      assertSortedRows(sorter, 50, 20);
+    }
+  }
+
+  @Test
+  public void testSortWithSpilledRuns()
+      throws IOException {
+    try (ExternalRowSorter sorter = new ExternalRowSorter(SPILL_DIR, DATA_SCHEMA, COMPARATOR, 10, 1000, 4)) {
+      sorter.addAll(getShuffledRows(95));
+      sorter.finish();
+      assertEquals(sorter.getNumRuns(), 9);
+      assertEquals(sorter.getNumSpilledRows(), 90);
+      assertTrue(sorter.getNumSpilledBytes() > 0);
+      assertSortedRows(sorter, 95, 7);
+    }
+    assertEquals(SPILL_DIR.list().length, 0);
+  }
+
+  @Test
+  public void testSortWithIntermediateMerges()
+      throws IOException {
+    int numRows = 5 * ExternalRowSorter.MAX_MERGE_FAN_IN * 3 + 2;
+    try (ExternalRowSorter sorter = new ExternalRowSorter(SPILL_DIR, DATA_SCHEMA, COMPARATOR, 3, numRows, 2)) {
+      sorter.addAll(getShuffledRows(numRows));
+      sorter.finish();
+      // 5 * MAX_MERGE_FAN_IN runs are merged into 5 runs before the final merge
+      assertEquals(sorter.getNumRuns(), 5 * ExternalRowSorter.MAX_MERGE_FAN_IN + 5);
+      assertSortedRows(sorter, numRows, 100);
+    }
+    assertEquals(SPILL_DIR.list().length, 0);
+  }
+
+  @Test
+  public void testSortWithMaxRowsToKeep()
+      throws IOException {
+    try (ExternalRowSorter sorter = new ExternalRowSorter(SPILL_DIR, DATA_SCHEMA, COMPARATOR, 20, 5, 4)) {
+      sorter.addAll(getShuffledRows(100));
+      sorter.finish();
+      // Each run only keeps the first 5 rows
+      assertEquals(sorter.getNumRuns(), 5);
+      assertEquals(sorter.getNumSpilledRows(), 25);
+      List<Object[]> batch = sorter.nextBatch(5);
+      assertEquals(batch.size(), 5);
+      for (int i = 0; i < 5; i++) {
+        assertEquals(batch.get(i)[0], i);
+      }
+    }
+  }
+
+  private static List<Object[]> getShuffledRows(int numRows) {
+    List<Object[]> rows = new ArrayList<>(numRows);
+    for (int i = 0; i < numRows; i++) {
+      rows.add(new Object[]{i, "str_" + i});
+    }
+    Collections.shuffle(rows, new Random(numRows));
+    return rows;
+  }
+
+  private static void assertSortedRows(ExternalRowSorter sorter, int numRows, int batchSize)
+      throws IOException {
+    int rowId = 0;
+    List<Object[]> batch;
+    while ((batch = sorter.nextBatch(batchSize)) != null) {
+      assertTrue(batch.size() <= batchSize);
+      for (Object[] row : batch) {
+        assertEquals(row, new Object[]{rowId, "str_" + rowId});
+        rowId++;
+      }
+    }
+    assertEquals(rowId, numRows);
+    assertNull(sorter.nextBatch(batchSize));
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+
+public class RowBlockSpillFileTest {
+  private static final DataSchema DATA_SCHEMA = new DataSchema(new String[]{"int_col", "long_col", "string_col"},
+      new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.LONG, ColumnDataType.STRING});
+
+  @Test
+  public void testWriteAndRead()
+      throws IOException {
+    File file;
+    try (RowBlockSpillFile spillFile = new RowBlockSpillFile(RowBlockSpillFile.getDefaultSpillDir(), DATA_SCHEMA,
+        "testWriteAndRead", 10)) {
+      file = spillFile.getFile();
+      List<Object[]> rows = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+        rows.add(new Object[]{i, (long) i * 2, "str_" + i});
+      }
+      spillFile.add(rows.get(0));
+      spillFile.addAll(rows.subList(1, rows.size()));
+      assertThrows(IllegalStateException.class, spillFile::openReader);
+      spillFile.finishWriting();
+      assertThrows(IllegalStateException.class, () -> spillFile.add(rows.get(0)));
+      assertEquals(spillFile.getNumRows(), 25);
+      assertTrue(spillFile.getNumBytes() > 0);
+      assertEquals(spillFile.getNumBytes(), file.length());
+
+      // The file can be read multiple times
+      for (int round = 0; round < 2; round++) {
+        try (RowBlockSpillFile.Reader reader = spillFile.openReader()) {
+          List<Object[]> batch;
+          int numBatches = 0;
+          int rowId = 0;
+          while ((batch = reader.nextBatch()) != null) {
+            numBatches++;
+            for (Object[] row : batch) {
+              assertEquals(row, rows.get(rowId++));
+            }
+          }
+          assertEquals(numBatches, 3);
+          assertEquals(rowId, 25);
+          assertNull(reader.nextBatch());
+        }
+      }
+    }
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void testEmptyFile()
+      throws IOException {
+    try (RowBlockSpillFile spillFile = new RowBlockSpillFile(DATA_SCHEMA, "testEmptyFile")) {
+      spillFile.finishWriting();
+      assertEquals(spillFile.getNumRows(), 0);
+      try (RowBlockSpillFile.Reader reader = spillFile.openReader()) {
+        assertNull(reader.nextBatch());
+      }
+    }
+  }
+}
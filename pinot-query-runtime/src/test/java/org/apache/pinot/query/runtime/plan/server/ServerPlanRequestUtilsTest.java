@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.plan.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.request.Expression;
+import org.apache.pinot.common.request.Function;
+import org.apache.pinot.common.request.PinotQuery;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.common.utils.request.RequestUtils;
+import org.apache.pinot.core.query.utils.idset.IdSet;
+import org.apache.pinot.core.query.utils.idset.IdSets;
+import org.apache.pinot.query.runtime.operator.join.RuntimeJoinFilter;
+import org.apache.pinot.sql.FilterKind;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class ServerPlanRequestUtilsTest {
+  private static final DataSchema DATA_SCHEMA = new DataSchema(new String[]{"intCol", "stringCol"},
+      new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING});
+
+  @Test
+  public void testAttachDynamicFilterInList() {
+    PinotQuery pinotQuery = getPinotQuery();
+    List<Object[]> rows = List.of(new Object[]{3, "b"}, new Object[]{1, "a"}, new Object[]{3, null},
+        new Object[]{null, "a"});
+    assertEquals(ServerPlanRequestUtils.attachDynamicFilter(pinotQuery, List.of(1), List.of(1), rows, DATA_SCHEMA), 2);
+
+    // Duplicate and null values should be skipped
+    Function filter = pinotQuery.getFilterExpression().getFunctionCall();
+    assertEquals(filter.getOperator(), FilterKind.IN.name());
+    assertEquals(filter.getOperands(),
+        List.of(RequestUtils.getIdentifierExpression("col2"), RequestUtils.getLiteralExpression("a"),
+            RequestUtils.getLiteralExpression("b")));
+  }
+
+  @Test
+  public void testAttachDynamicFilterWithoutValue() {
+    PinotQuery pinotQuery = getPinotQuery();
+    Expression existingFilter = RequestUtils.getFunctionExpression(FilterKind.EQUALS.name(),
+        RequestUtils.getIdentifierExpression("col1"), RequestUtils.getLiteralExpression(5));
+    pinotQuery.setFilterExpression(existingFilter);
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(new Object[]{null, "a"});
+    assertEquals(ServerPlanRequestUtils.attachDynamicFilter(pinotQuery, List.of(0), List.of(0), rows, DATA_SCHEMA), 0);
+
+    Function filter = pinotQuery.getFilterExpression().getFunctionCall();
+    assertEquals(filter.getOperator(), FilterKind.AND.name());
+    assertEquals(filter.getOperands(), List.of(RequestUtils.getLiteralExpression(false), existingFilter));
+  }
+
+  @Test
+  public void testAttachDynamicFilterIdSet()
+      throws Exception {
+    PinotQuery pinotQuery = getPinotQuery();
+    int numValues = ServerPlanRequestUtils.DYNAMIC_FILTER_MAX_IN_LIST_SIZE + 1;
+    List<Object[]> rows = new ArrayList<>(numValues);
+    for (int i = 0; i < numValues; i++) {
+      rows.add(new Object[]{i * 2 + 10, "a"});
+    }
+    assertEquals(ServerPlanRequestUtils.attachDynamicFilter(pinotQuery, List.of(0), List.of(0), rows, DATA_SCHEMA),
+        numValues);
+
+    Function filter = pinotQuery.getFilterExpression().getFunctionCall();
+    assertEquals(filter.getOperator(), FilterKind.AND.name());
+    List<Expression> operands = filter.getOperands();
+    assertEquals(operands.size(), 2);
+    Expression column = RequestUtils.getIdentifierExpression("col1");
+    assertEquals(operands.get(0), RequestUtils.getFunctionExpression(FilterKind.BETWEEN.name(), column,
+        RequestUtils.getLiteralExpression(10), RequestUtils.getLiteralExpression(numValues * 2 + 8)));
+    Function inIdSetFilter = operands.get(1).getFunctionCall();
+    assertEquals(inIdSetFilter.getOperator(), FilterKind.EQUALS.name());
+    Function inIdSet = inIdSetFilter.getOperands().get(0).getFunctionCall();
+    assertEquals(inIdSet.getOperator(), "inidset");
+    assertEquals(inIdSet.getOperands().get(0), column);
+    IdSet idSet = IdSets.fromBase64String(inIdSet.getOperands().get(1).getLiteral().getStringValue());
+    assertTrue(idSet.contains(10));
+    assertFalse(idSet.contains(11));
+    assertTrue(idSet.contains(numValues * 2 + 8));
+  }
+
+  @Test
+  public void testAttachRuntimeFilter() {
+    PinotQuery pinotQuery = getPinotQuery();
+    Expression existingFilter = RequestUtils.getFunctionExpression(FilterKind.EQUALS.name(),
+        RequestUtils.getIdentifierExpression("col2"), RequestUtils.getLiteralExpression("a"));
+    pinotQuery.setFilterExpression(existingFilter);
+    RuntimeJoinFilter runtimeFilter =
+        new RuntimeJoinFilter(new int[]{0, 1}, new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING});
+    runtimeFilter.addRows(List.of(new Object[]{20, "b"}, new Object[]{10, "a"}), new int[]{0, 1});
+    ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, DATA_SCHEMA, runtimeFilter);
+
+    // Range filter is only attached for the numeric key
+    Function filter = pinotQuery.getFilterExpression().getFunctionCall();
+    assertEquals(filter.getOperator(), FilterKind.AND.name());
+    assertEquals(filter.getOperands(), List.of(
+        RequestUtils.getFunctionExpression(FilterKind.BETWEEN.name(), RequestUtils.getIdentifierExpression("col1"),
+            RequestUtils.getLiteralExpression(10), RequestUtils.getLiteralExpression(20)), existingFilter));
+  }
+
+  @Test
+  public void testAttachRuntimeFilterWithoutValue() {
+    ColumnDataType[] keyTypes = new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING};
+    PinotQuery pinotQuery = getPinotQuery();
+    ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, DATA_SCHEMA, new RuntimeJoinFilter(new int[]{0, 1},
+        keyTypes));
+    Function filter = pinotQuery.getFilterExpression().getFunctionCall();
+    assertEquals(filter.getOperator(), FilterKind.AND.name());
+    assertEquals(filter.getOperands(),
+        List.of(RequestUtils.getLiteralExpression(false), RequestUtils.getLiteralExpression(false)));
+
+    // Null values might match the null right values, so no filter is attached
+    pinotQuery = getPinotQuery();
+    RuntimeJoinFilter runtimeFilter = new RuntimeJoinFilter(new int[]{0, 1}, keyTypes);
+    runtimeFilter.addRows(List.<Object[]>of(new Object[]{null, null}), new int[]{0, 1});
+    ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, DATA_SCHEMA, runtimeFilter);
+    assertNull(pinotQuery.getFilterExpression());
+  }
+
+  private static PinotQuery getPinotQuery() {
+    PinotQuery pinotQuery = new PinotQuery();
+    List<Expression> selectList = new ArrayList<>();
+    selectList.add(RequestUtils.getIdentifierExpression("col1"));
+    selectList.add(RequestUtils.getIdentifierExpression("col2"));
+    pinotQuery.setSelectList(selectList);
+    return pinotQuery;
+  }
+}
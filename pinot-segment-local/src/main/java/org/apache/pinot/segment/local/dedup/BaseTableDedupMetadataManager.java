@@ -19,6 +19,7 @@
 package org.apache.pinot.segment.local.dedup;
 
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,8 +36,10 @@ abstract class BaseTableDedupMetadataManager implements TableDedupMetadataManage
   protected final Map<Integer, PartitionDedupMetadataManager> _partitionMetadataManagerMap = new ConcurrentHashMap<>();
   protected String _tableNameWithType;
   protected List<String> _primaryKeyColumns;
+  protected TableDataManager _tableDataManager;
   protected ServerMetrics _serverMetrics;
   protected HashFunction _hashFunction;
+  protected DedupConfig _dedupConfig;
 
   @Override
   public void init(TableConfig tableConfig, Schema schema, TableDataManager tableDataManager,
@@ -47,10 +50,12 @@ abstract class BaseTableDedupMetadataManager implements TableDedupMetadataManage
     Preconditions.checkArgument(!CollectionUtils.isEmpty(_primaryKeyColumns),
         "Primary key columns must be configured for dedup enabled table: %s", _tableNameWithType);
 
+    _tableDataManager = tableDataManager;
     _serverMetrics = serverMetrics;
 
     DedupConfig dedupConfig = tableConfig.getDedupConfig();
     Preconditions.checkArgument(dedupConfig != null, "Dedup must be enabled for table: %s", _tableNameWithType);
+    _dedupConfig = dedupConfig;
     _hashFunction = dedupConfig.getHashFunction();
   }
 
@@ -58,6 +63,21 @@ abstract class BaseTableDedupMetadataManager implements TableDedupMetadataManage
     return _partitionMetadataManagerMap.computeIfAbsent(partitionId, this::createPartitionDedupMetadataManager);
   }
 
+  @Override
+  public void stop() {
+    for (PartitionDedupMetadataManager metadataManager : _partitionMetadataManagerMap.values()) {
+      metadataManager.stop();
+    }
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    for (PartitionDedupMetadataManager metadataManager : _partitionMetadataManagerMap.values()) {
+      metadataManager.close();
+    }
+  }
+
   /**
    * Create PartitionDedupMetadataManager for given partition id.
    */
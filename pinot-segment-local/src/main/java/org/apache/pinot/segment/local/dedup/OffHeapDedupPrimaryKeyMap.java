@@ -0,0 +1,413 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * Off-heap open-addressing hash set of primary key hashes, where each key hash is associated with the ordinal of the
+ * segment containing the key.
+ * <p>Only the fixed size key hash (64 or 128 bits) is stored instead of the serialized primary key, so each entry takes
+ * 16 bytes (64-bit key hash) or 24 bytes (128-bit key hash) regardless of the primary key size. Two different primary
+ * keys with the same key hash are treated as the same key, so 128-bit key hash should be used unless the probability of
+ * collision is acceptable for the table.
+ * <p>The map is split into a fixed number of stripes, each of them guarded by its own lock and holding a slot buffer
+ * with linear probing. Each slot stores the key hash followed by the segment ordinal plus 1 (with 0 for empty slot and
+ * -1 for removed slot).
+ */
+@ThreadSafe
+public class OffHeapDedupPrimaryKeyMap implements Closeable {
+  public static final int NO_SEGMENT_ORDINAL = -1;
+  public static final int DEFAULT_INITIAL_CAPACITY = 4096;
+
+  private static final int NUM_STRIPES_SHIFT = 4;
+  private static final int NUM_STRIPES = 1 << NUM_STRIPES_SHIFT;
+  private static final int MIN_STRIPE_CAPACITY = 64;
+  private static final int EMPTY = 0;
+  private static final int REMOVED = -1;
+
+  private final Stripe[] _stripes = new Stripe[NUM_STRIPES];
+  private final boolean _use128BitKeyHash;
+  private final int _slotSize;
+  private final int _stateOffset;
+  private final String _description;
+  private final AtomicLong _offHeapMemoryBytes = new AtomicLong();
+  private volatile boolean _closed;
+
+  /**
+   * @param initialCapacity Expected number of keys
+   * @param use128BitKeyHash Whether to keep all the 128 bits of the key hash, or only the first 64 bits
+   * @param description Description of the map, used for the buffer allocation and error messages
+   */
+  public OffHeapDedupPrimaryKeyMap(int initialCapacity, boolean use128BitKeyHash, String description) {
+    Preconditions.checkArgument(initialCapacity > 0, "Initial capacity must be positive, got: %s", initialCapacity);
+    _use128BitKeyHash = use128BitKeyHash;
+    // Slot layout: keyHashHigh (long), [keyHashLow (long)], segmentOrdinal + 1 (int), padding (int)
+    _stateOffset = use128BitKeyHash ? 2 * Long.BYTES : Long.BYTES;
+    _slotSize = _stateOffset + Long.BYTES;
+    _description = description;
+    int stripeCapacity =
+        Math.max(MIN_STRIPE_CAPACITY, Integer.highestOneBit(Math.max(1, (initialCapacity / NUM_STRIPES) - 1)) << 1);
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      _stripes[i] = new Stripe(stripeCapacity);
+    }
+  }
+
+  public boolean isUse128BitKeyHash() {
+    return _use128BitKeyHash;
+  }
+
+  /**
+   * Returns the high 64 bits of the given 128-bit key hash.
+   */
+  public static long getKeyHashHigh(byte[] keyHash) {
+    return readLong(keyHash, 0);
+  }
+
+  /**
+   * Returns the low 64 bits of the given 128-bit key hash.
+   */
+  public static long getKeyHashLow(byte[] keyHash) {
+    return readLong(keyHash, Long.BYTES);
+  }
+
+  private static long readLong(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      value = (value << 8) | (bytes[offset + i] & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Associates the key with the given segment ordinal if the key does not exist. Returns {@code true} if the key
+   * already exists.
+   */
+  public boolean putIfAbsent(long keyHashHigh, long keyHashLow, int segmentOrdinal) {
+    keyHashLow = normalizeKeyHashLow(keyHashLow);
+    int hash = hash(keyHashHigh, keyHashLow);
+    Stripe stripe = _stripes[hash >>> (Integer.SIZE - NUM_STRIPES_SHIFT)];
+    stripe._lock.lock();
+    try {
+      checkNotClosed();
+      if (stripe.find(keyHashHigh, keyHashLow, hash) >= 0) {
+        return true;
+      }
+      stripe.insert(keyHashHigh, keyHashLow, hash, segmentOrdinal);
+      return false;
+    } finally {
+      stripe._lock.unlock();
+    }
+  }
+
+  /**
+   * Associates the key with the given segment ordinal, overriding the existing association if any.
+   */
+  public void put(long keyHashHigh, long keyHashLow, int segmentOrdinal) {
+    keyHashLow = normalizeKeyHashLow(keyHashLow);
+    int hash = hash(keyHashHigh, keyHashLow);
+    Stripe stripe = _stripes[hash >>> (Integer.SIZE - NUM_STRIPES_SHIFT)];
+    stripe._lock.lock();
+    try {
+      checkNotClosed();
+      int slot = stripe.find(keyHashHigh, keyHashLow, hash);
+      if (slot >= 0) {
+        stripe._slots.putInt((long) slot * _slotSize + _stateOffset, segmentOrdinal + 1);
+      } else {
+        stripe.insert(keyHashHigh, keyHashLow, hash, segmentOrdinal);
+      }
+    } finally {
+      stripe._lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the key if it is associated with the given segment ordinal.
+   */
+  public void remove(long keyHashHigh, long keyHashLow, int segmentOrdinal) {
+    keyHashLow = normalizeKeyHashLow(keyHashLow);
+    int hash = hash(keyHashHigh, keyHashLow);
+    Stripe stripe = _stripes[hash >>> (Integer.SIZE - NUM_STRIPES_SHIFT)];
+    stripe._lock.lock();
+    try {
+      checkNotClosed();
+      int slot = stripe.find(keyHashHigh, keyHashLow, hash);
+      if (slot >= 0 && stripe._slots.getInt((long) slot * _slotSize + _stateOffset) == segmentOrdinal + 1) {
+        stripe.remove(slot);
+      }
+    } finally {
+      stripe._lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the segment ordinal associated with the key, or {@link #NO_SEGMENT_ORDINAL} if the key does not exist.
+   */
+  public int getSegmentOrdinal(long keyHashHigh, long keyHashLow) {
+    keyHashLow = normalizeKeyHashLow(keyHashLow);
+    int hash = hash(keyHashHigh, keyHashLow);
+    Stripe stripe = _stripes[hash >>> (Integer.SIZE - NUM_STRIPES_SHIFT)];
+    stripe._lock.lock();
+    try {
+      checkNotClosed();
+      int slot = stripe.find(keyHashHigh, keyHashLow, hash);
+      return slot >= 0 ? stripe._slots.getInt((long) slot * _slotSize + _stateOffset) - 1 : NO_SEGMENT_ORDINAL;
+    } finally {
+      stripe._lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all the entries with segment ordinal matching the given predicate, and returns the number of entries
+   * removed. Stripes are processed one at a time, so the entries in the other stripes can still be accessed
+   * concurrently.
+   */
+  public long removeIf(IntPredicate segmentOrdinalPredicate) {
+    long numRemoved = 0;
+    for (Stripe stripe : _stripes) {
+      stripe._lock.lock();
+      try {
+        checkNotClosed();
+        for (int slot = 0; slot < stripe._capacity; slot++) {
+          int state = stripe._slots.getInt((long) slot * _slotSize + _stateOffset);
+          if (state > 0 && segmentOrdinalPredicate.test(state - 1)) {
+            stripe.remove(slot);
+            numRemoved++;
+          }
+        }
+      } finally {
+        stripe._lock.unlock();
+      }
+    }
+    return numRemoved;
+  }
+
+  /**
+   * Invokes the consumer for all the entries in the map. Each stripe is locked while its entries are consumed, so the
+   * consumer should be short and must not access the map.
+   */
+  public void forEach(EntryConsumer consumer) {
+    for (Stripe stripe : _stripes) {
+      stripe._lock.lock();
+      try {
+        checkNotClosed();
+        for (int slot = 0; slot < stripe._capacity; slot++) {
+          long slotOffset = (long) slot * _slotSize;
+          int state = stripe._slots.getInt(slotOffset + _stateOffset);
+          if (state > 0) {
+            consumer.accept(stripe._slots.getLong(slotOffset),
+                _use128BitKeyHash ? stripe._slots.getLong(slotOffset + Long.BYTES) : 0L, state - 1);
+          }
+        }
+      } finally {
+        stripe._lock.unlock();
+      }
+    }
+  }
+
+  public long size() {
+    long size = 0;
+    for (Stripe stripe : _stripes) {
+      size += stripe._size;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the total size of the off-heap buffers allocated by the map.
+   */
+  public long getOffHeapMemoryBytes() {
+    return _offHeapMemoryBytes.get();
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    for (Stripe stripe : _stripes) {
+      stripe._lock.lock();
+      try {
+        if (!_closed) {
+          stripe.release();
+        }
+      } finally {
+        stripe._lock.unlock();
+      }
+    }
+    _closed = true;
+  }
+
+  private void checkNotClosed() {
+    Preconditions.checkState(!_closed, "Dedup primary key map: %s is already closed", _description);
+  }
+
+  private long normalizeKeyHashLow(long keyHashLow) {
+    return _use128BitKeyHash ? keyHashLow : 0L;
+  }
+
+  private static int hash(long keyHashHigh, long keyHashLow) {
+    // Mix both halves with the murmur3 finalizer so that structured key hashes (e.g. time based UUIDs) are still spread
+    // across the stripes and slots
+    long hash = keyHashHigh ^ (keyHashLow * 0x9E3779B97F4A7C15L);
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return (int) hash;
+  }
+
+  private PinotDataBuffer allocate(long size) {
+    PinotDataBuffer buffer = PinotDataBuffer.allocateDirect(size, PinotDataBuffer.NATIVE_ORDER, _description);
+    _offHeapMemoryBytes.addAndGet(size);
+    return buffer;
+  }
+
+  private void releaseBuffer(PinotDataBuffer buffer) {
+    _offHeapMemoryBytes.addAndGet(-buffer.size());
+    try {
+      buffer.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while releasing buffer for dedup primary key map: " + _description,
+          e);
+    }
+  }
+
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(long keyHashHigh, long keyHashLow, int segmentOrdinal);
+  }
+
+  private final class Stripe {
+    final ReentrantLock _lock = new ReentrantLock();
+    PinotDataBuffer _slots;
+    int _capacity;
+    int _mask;
+    volatile int _size;
+    int _numRemovedSlots;
+
+    Stripe(int capacity) {
+      _slots = allocateSlots(capacity);
+      _capacity = capacity;
+      _mask = capacity - 1;
+    }
+
+    PinotDataBuffer allocateSlots(int capacity) {
+      long size = (long) capacity * _slotSize;
+      PinotDataBuffer slots = allocate(size);
+      for (long offset = 0; offset < size; offset += Long.BYTES) {
+        slots.putLong(offset, 0L);
+      }
+      return slots;
+    }
+
+    /**
+     * Returns the slot of the key if it exists, or {@code -1} otherwise.
+     */
+    int find(long keyHashHigh, long keyHashLow, int hash) {
+      int slot = hash & _mask;
+      while (true) {
+        long slotOffset = (long) slot * _slotSize;
+        int state = _slots.getInt(slotOffset + _stateOffset);
+        if (state == EMPTY) {
+          return -1;
+        }
+        if (state > 0 && _slots.getLong(slotOffset) == keyHashHigh && (!_use128BitKeyHash
+            || _slots.getLong(slotOffset + Long.BYTES) == keyHashLow)) {
+          return slot;
+        }
+        slot = (slot + 1) & _mask;
+      }
+    }
+
+    void insert(long keyHashHigh, long keyHashLow, int hash, int segmentOrdinal) {
+      // Keep the load factor (including the removed slots) under 0.75 so that probing always terminates quickly
+      if ((_size + _numRemovedSlots + 1) * 4L > _capacity * 3L) {
+        rehash(_size * 2L >= _capacity ? _capacity << 1 : _capacity);
+      }
+      int slot = hash & _mask;
+      while (true) {
+        long slotOffset = (long) slot * _slotSize;
+        int state = _slots.getInt(slotOffset + _stateOffset);
+        if (state == EMPTY || state == REMOVED) {
+          if (state == REMOVED) {
+            _numRemovedSlots--;
+          }
+          putSlot(_slots, slotOffset, keyHashHigh, keyHashLow, segmentOrdinal + 1);
+          _size++;
+          return;
+        }
+        slot = (slot + 1) & _mask;
+      }
+    }
+
+    void remove(int slot) {
+      _slots.putInt((long) slot * _slotSize + _stateOffset, REMOVED);
+      _numRemovedSlots++;
+      _size--;
+    }
+
+    /**
+     * Rebuilds the slots with the given capacity, which also drops the removed slots.
+     */
+    void rehash(int newCapacity) {
+      PinotDataBuffer newSlots = allocateSlots(newCapacity);
+      int newMask = newCapacity - 1;
+      for (int slot = 0; slot < _capacity; slot++) {
+        long slotOffset = (long) slot * _slotSize;
+        int state = _slots.getInt(slotOffset + _stateOffset);
+        if (state <= 0) {
+          continue;
+        }
+        long keyHashHigh = _slots.getLong(slotOffset);
+        long keyHashLow = _use128BitKeyHash ? _slots.getLong(slotOffset + Long.BYTES) : 0L;
+        int newSlot = hash(keyHashHigh, keyHashLow) & newMask;
+        while (newSlots.getInt((long) newSlot * _slotSize + _stateOffset) != EMPTY) {
+          newSlot = (newSlot + 1) & newMask;
+        }
+        putSlot(newSlots, (long) newSlot * _slotSize, keyHashHigh, keyHashLow, state);
+      }
+      releaseBuffer(_slots);
+      _slots = newSlots;
+      _capacity = newCapacity;
+      _mask = newMask;
+      _numRemovedSlots = 0;
+    }
+
+    void release() {
+      releaseBuffer(_slots);
+      _size = 0;
+    }
+  }
+
+  private void putSlot(PinotDataBuffer slots, long slotOffset, long keyHashHigh, long keyHashLow, int state) {
+    slots.putLong(slotOffset, keyHashHigh);
+    if (_use128BitKeyHash) {
+      slots.putLong(slotOffset + Long.BYTES, keyHashLow);
+    }
+    slots.putInt(slotOffset + _stateOffset, state);
+  }
+}
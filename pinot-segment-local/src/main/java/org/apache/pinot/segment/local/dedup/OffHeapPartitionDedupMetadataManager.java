@@ -0,0 +1,423 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Implementation of {@link PartitionDedupMetadataManager} that is backed by an {@link OffHeapDedupPrimaryKeyMap}, which
+ * keeps a fixed size hash of the primary keys and the ordinal of the segment containing the key out of the Java heap.
+ * <p>Segments are referenced by ordinals assigned when they are first added to the manager. Ordinals are never reused,
+ * so that a stale ordinal (e.g. of a segment already removed) never matches a newly added segment.
+ * <p>When persistence is enabled, the keys of the immutable segments are written into a snapshot file when the
+ * manager is closed, together with the name and CRC of these segments. The snapshot is memory-mapped and loaded when the
+ * manager is created, and an immutable segment with the same name and CRC as a persisted one is added without reading its
+ * primary key columns. The keys of the persisted segments that are not added again (e.g. removed or refreshed while the
+ * server was down) are dropped before the first record is ingested.
+ */
+@ThreadSafe
+public class OffHeapPartitionDedupMetadataManager implements PartitionDedupMetadataManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapPartitionDedupMetadataManager.class);
+
+  static final String SNAPSHOT_DIR_NAME = "dedup";
+  private static final int SNAPSHOT_MAGIC = 0x44445550;
+  private static final int SNAPSHOT_VERSION = 1;
+  // Header: magic (int), version (int), key hash bits (int), number of segments (int), number of entries (long)
+  private static final int SNAPSHOT_HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+  private final String _tableNameWithType;
+  private final List<String> _primaryKeyColumns;
+  private final int _partitionId;
+  private final ServerMetrics _serverMetrics;
+  private final HashFunction _hashFunction;
+  private final File _snapshotFile;
+
+  private final Map<IndexSegment, Integer> _segmentToOrdinalMap = new ConcurrentHashMap<>();
+  // Name and CRC of the immutable segments tracked by the manager, which can be persisted into the snapshot
+  private final Map<Integer, PersistedSegment> _ordinalToPersistedSegmentMap = new ConcurrentHashMap<>();
+  // Segments loaded from the snapshot that are not added to the manager yet
+  private final Map<String, PersistedSegment> _unclaimedSegmentMap = new ConcurrentHashMap<>();
+  private final AtomicInteger _nextSegmentOrdinal = new AtomicInteger();
+  private volatile boolean _hasUnclaimedSegments;
+  private volatile boolean _stopped;
+
+  @VisibleForTesting
+  final OffHeapDedupPrimaryKeyMap _primaryKeyMap;
+
+  /**
+   * @param snapshotDir Directory of the snapshot file, or {@code null} if persistence is disabled
+   */
+  public OffHeapPartitionDedupMetadataManager(String tableNameWithType, List<String> primaryKeyColumns,
+      int partitionId, ServerMetrics serverMetrics, HashFunction hashFunction, int initialCapacity,
+      boolean use128BitKeyHash, @Nullable File snapshotDir) {
+    _tableNameWithType = tableNameWithType;
+    _primaryKeyColumns = primaryKeyColumns;
+    _partitionId = partitionId;
+    _serverMetrics = serverMetrics;
+    _hashFunction = hashFunction;
+    _snapshotFile = snapshotDir != null ? new File(snapshotDir, "partition_" + partitionId + ".snapshot") : null;
+    _primaryKeyMap = new OffHeapDedupPrimaryKeyMap(initialCapacity, use128BitKeyHash,
+        "DedupPrimaryKeyMap: " + tableNameWithType + "-" + partitionId);
+    if (_snapshotFile != null && _snapshotFile.exists()) {
+      loadSnapshot();
+    }
+  }
+
+  @Override
+  public void addSegment(IndexSegment segment) {
+    String segmentName = segment.getSegmentName();
+    if (_stopped) {
+      LOGGER.info("Skip adding segment: {} because dedup metadata manager is already stopped", segmentName);
+      return;
+    }
+    if (_hasUnclaimedSegments && segment instanceof ImmutableSegment) {
+      PersistedSegment persistedSegment = _unclaimedSegmentMap.remove(segmentName);
+      if (persistedSegment != null) {
+        if (persistedSegment._crc.equals(segment.getSegmentMetadata().getCrc())) {
+          _segmentToOrdinalMap.put(segment, persistedSegment._ordinal);
+          _ordinalToPersistedSegmentMap.put(persistedSegment._ordinal, persistedSegment);
+          LOGGER.info("Restored primary keys of segment: {} from snapshot for table: {}, partition: {}", segmentName,
+              _tableNameWithType, _partitionId);
+          return;
+        }
+        int ordinal = persistedSegment._ordinal;
+        long numRemoved = _primaryKeyMap.removeIf(segmentOrdinal -> segmentOrdinal == ordinal);
+        LOGGER.info("Dropped {} primary keys of segment: {} from snapshot because of CRC mismatch", numRemoved,
+            segmentName);
+      }
+    }
+    int segmentOrdinal = getOrAssignSegmentOrdinal(segment);
+    Iterator<PrimaryKey> primaryKeyIterator = getPrimaryKeyIterator(segment);
+    while (primaryKeyIterator.hasNext()) {
+      byte[] keyHash = getKeyHash(primaryKeyIterator.next());
+      _primaryKeyMap.put(OffHeapDedupPrimaryKeyMap.getKeyHashHigh(keyHash),
+          OffHeapDedupPrimaryKeyMap.getKeyHashLow(keyHash), segmentOrdinal);
+    }
+    updatePrimaryKeyGauges();
+  }
+
+  @Override
+  public void removeSegment(IndexSegment segment) {
+    if (_stopped) {
+      // Keep the metadata of the segments destroyed during shutdown so that they can be persisted
+      return;
+    }
+    Integer segmentOrdinal = _segmentToOrdinalMap.get(segment);
+    if (segmentOrdinal == null) {
+      return;
+    }
+    Iterator<PrimaryKey> primaryKeyIterator = getPrimaryKeyIterator(segment);
+    while (primaryKeyIterator.hasNext()) {
+      byte[] keyHash = getKeyHash(primaryKeyIterator.next());
+      _primaryKeyMap.remove(OffHeapDedupPrimaryKeyMap.getKeyHashHigh(keyHash),
+          OffHeapDedupPrimaryKeyMap.getKeyHashLow(keyHash), segmentOrdinal);
+    }
+    _segmentToOrdinalMap.remove(segment);
+    _ordinalToPersistedSegmentMap.remove(segmentOrdinal);
+    updatePrimaryKeyGauges();
+  }
+
+  @Override
+  public boolean checkRecordPresentOrUpdate(PrimaryKey pk, IndexSegment indexSegment) {
+    if (_hasUnclaimedSegments) {
+      dropUnclaimedSegments();
+    }
+    byte[] keyHash = getKeyHash(pk);
+    boolean present = _primaryKeyMap.putIfAbsent(OffHeapDedupPrimaryKeyMap.getKeyHashHigh(keyHash),
+        OffHeapDedupPrimaryKeyMap.getKeyHashLow(keyHash), getOrAssignSegmentOrdinal(indexSegment));
+    if (!present) {
+      updatePrimaryKeyGauges();
+    }
+    return present;
+  }
+
+  @VisibleForTesting
+  Iterator<PrimaryKey> getPrimaryKeyIterator(IndexSegment segment) {
+    return DedupUtils.getPrimaryKeyIterator(segment, _primaryKeyColumns);
+  }
+
+  /**
+   * Returns the 128-bit hash of the primary key. The result of MD5 and MURMUR3 hash functions is used as is, and other
+   * keys are hashed with MURMUR3.
+   */
+  private byte[] getKeyHash(PrimaryKey pk) {
+    byte[] bytes = HashUtils.hashPrimaryKeyAsBytes(pk, _hashFunction);
+    if (_hashFunction == HashFunction.MD5 || _hashFunction == HashFunction.MURMUR3) {
+      return bytes;
+    }
+    return HashUtils.hashMurmur3(bytes);
+  }
+
+  private int getOrAssignSegmentOrdinal(IndexSegment segment) {
+    Integer segmentOrdinal = _segmentToOrdinalMap.get(segment);
+    if (segmentOrdinal != null) {
+      return segmentOrdinal;
+    }
+    return _segmentToOrdinalMap.computeIfAbsent(segment, k -> {
+      int ordinal = _nextSegmentOrdinal.getAndIncrement();
+      if (segment instanceof ImmutableSegment) {
+        String crc = segment.getSegmentMetadata().getCrc();
+        if (crc != null) {
+          _ordinalToPersistedSegmentMap.put(ordinal, new PersistedSegment(ordinal, segment.getSegmentName(), crc));
+        }
+      }
+      return ordinal;
+    });
+  }
+
+  /**
+   * Drops the keys of the segments loaded from the snapshot but not added to the manager before the ingestion starts.
+   * These segments are either removed or not assigned to this server anymore. If they are added later, their keys will
+   * be read from the segment again.
+   */
+  private synchronized void dropUnclaimedSegments() {
+    if (!_hasUnclaimedSegments) {
+      return;
+    }
+    Set<Integer> unclaimedOrdinals = new HashSet<>();
+    for (String segmentName : _unclaimedSegmentMap.keySet()) {
+      PersistedSegment persistedSegment = _unclaimedSegmentMap.remove(segmentName);
+      if (persistedSegment != null) {
+        unclaimedOrdinals.add(persistedSegment._ordinal);
+      }
+    }
+    _hasUnclaimedSegments = false;
+    if (!unclaimedOrdinals.isEmpty()) {
+      long numRemoved = _primaryKeyMap.removeIf(unclaimedOrdinals::contains);
+      LOGGER.info("Dropped {} primary keys of {} unclaimed segments from snapshot for table: {}, partition: {}",
+          numRemoved, unclaimedOrdinals.size(), _tableNameWithType, _partitionId);
+      updatePrimaryKeyGauges();
+    }
+  }
+
+  private void updatePrimaryKeyGauges() {
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId, ServerGauge.DEDUP_PRIMARY_KEYS_COUNT,
+        _primaryKeyMap.size());
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId,
+        ServerGauge.DEDUP_PRIMARY_KEYS_OFF_HEAP_MEMORY_BYTES, _primaryKeyMap.getOffHeapMemoryBytes());
+  }
+
+  @Override
+  public void stop() {
+    _stopped = true;
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    if (_snapshotFile != null) {
+      try {
+        persistSnapshot();
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while persisting dedup snapshot for table: {}, partition: {}",
+            _tableNameWithType, _partitionId, e);
+      }
+    }
+    _primaryKeyMap.close();
+    _segmentToOrdinalMap.clear();
+    _ordinalToPersistedSegmentMap.clear();
+    _unclaimedSegmentMap.clear();
+  }
+
+  /**
+   * Writes the keys of the immutable segments into a temporary file, then atomically replaces the snapshot file with
+   * it.
+   */
+  @VisibleForTesting
+  void persistSnapshot()
+      throws IOException {
+    long startTimeMs = System.currentTimeMillis();
+    Map<Integer, PersistedSegment> persistedSegments = _ordinalToPersistedSegmentMap;
+    int entrySize = getSnapshotEntrySize();
+    long maxSize = SNAPSHOT_HEADER_SIZE;
+    for (PersistedSegment persistedSegment : persistedSegments.values()) {
+      maxSize += persistedSegment.getSerializedSize();
+    }
+    maxSize += _primaryKeyMap.size() * entrySize;
+
+    FileUtils.forceMkdir(_snapshotFile.getParentFile());
+    File tempFile = new File(_snapshotFile.getParentFile(), _snapshotFile.getName() + ".tmp");
+    FileUtils.deleteQuietly(tempFile);
+    long[] offsetAndNumEntries = new long[2];
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapFile(tempFile, false, 0, maxSize, ByteOrder.BIG_ENDIAN,
+        "DedupSnapshot: " + _tableNameWithType + "-" + _partitionId)) {
+      long offset = SNAPSHOT_HEADER_SIZE;
+      for (PersistedSegment persistedSegment : persistedSegments.values()) {
+        offset = persistedSegment.writeTo(buffer, offset);
+      }
+      offsetAndNumEntries[0] = offset;
+      boolean use128BitKeyHash = _primaryKeyMap.isUse128BitKeyHash();
+      _primaryKeyMap.forEach((keyHashHigh, keyHashLow, segmentOrdinal) -> {
+        if (!persistedSegments.containsKey(segmentOrdinal)) {
+          return;
+        }
+        long entryOffset = offsetAndNumEntries[0];
+        buffer.putLong(entryOffset, keyHashHigh);
+        if (use128BitKeyHash) {
+          buffer.putLong(entryOffset + Long.BYTES, keyHashLow);
+        }
+        buffer.putInt(entryOffset + entrySize - Integer.BYTES, segmentOrdinal);
+        offsetAndNumEntries[0] = entryOffset + entrySize;
+        offsetAndNumEntries[1]++;
+      });
+      buffer.putInt(0, SNAPSHOT_MAGIC);
+      buffer.putInt(Integer.BYTES, SNAPSHOT_VERSION);
+      buffer.putInt(2 * Integer.BYTES, use128BitKeyHash ? 128 : 64);
+      buffer.putInt(3 * Integer.BYTES, persistedSegments.size());
+      buffer.putLong(4 * Integer.BYTES, offsetAndNumEntries[1]);
+      buffer.flush();
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(tempFile, "rw")) {
+      randomAccessFile.setLength(offsetAndNumEntries[0]);
+    }
+    Files.move(tempFile.toPath(), _snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    LOGGER.info("Persisted {} primary keys of {} segments into dedup snapshot for table: {}, partition: {} in {}ms",
+        offsetAndNumEntries[1], persistedSegments.size(), _tableNameWithType, _partitionId,
+        System.currentTimeMillis() - startTimeMs);
+  }
+
+  /**
+   * Loads the keys from the snapshot file. The snapshot is ignored (and deleted) when it is invalid or written with a
+   * different key hash size.
+   */
+  private void loadSnapshot() {
+    long startTimeMs = System.currentTimeMillis();
+    int entrySize = getSnapshotEntrySize();
+    boolean use128BitKeyHash = _primaryKeyMap.isUse128BitKeyHash();
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapReadOnlyBigEndianFile(_snapshotFile)) {
+      if (buffer.size() < SNAPSHOT_HEADER_SIZE || buffer.getInt(0) != SNAPSHOT_MAGIC
+          || buffer.getInt(Integer.BYTES) != SNAPSHOT_VERSION) {
+        LOGGER.warn("Ignoring invalid dedup snapshot: {}", _snapshotFile);
+        FileUtils.deleteQuietly(_snapshotFile);
+        return;
+      }
+      int keyHashBits = buffer.getInt(2 * Integer.BYTES);
+      if (keyHashBits != (use128BitKeyHash ? 128 : 64)) {
+        LOGGER.info("Ignoring dedup snapshot: {} with {}-bit key hash", _snapshotFile, keyHashBits);
+        FileUtils.deleteQuietly(_snapshotFile);
+        return;
+      }
+      int numSegments = buffer.getInt(3 * Integer.BYTES);
+      long numEntries = buffer.getLong(4 * Integer.BYTES);
+      long offset = SNAPSHOT_HEADER_SIZE;
+      int maxOrdinal = -1;
+      for (int i = 0; i < numSegments; i++) {
+        PersistedSegment persistedSegment = PersistedSegment.readFrom(buffer, offset);
+        _unclaimedSegmentMap.put(persistedSegment._segmentName, persistedSegment);
+        maxOrdinal = Math.max(maxOrdinal, persistedSegment._ordinal);
+        offset += persistedSegment.getSerializedSize();
+      }
+      for (long i = 0; i < numEntries; i++) {
+        _primaryKeyMap.put(buffer.getLong(offset), use128BitKeyHash ? buffer.getLong(offset + Long.BYTES) : 0L,
+            buffer.getInt(offset + entrySize - Integer.BYTES));
+        offset += entrySize;
+      }
+      _nextSegmentOrdinal.set(maxOrdinal + 1);
+      _hasUnclaimedSegments = !_unclaimedSegmentMap.isEmpty();
+      LOGGER.info("Loaded {} primary keys of {} segments from dedup snapshot for table: {}, partition: {} in {}ms",
+          numEntries, numSegments, _tableNameWithType, _partitionId, System.currentTimeMillis() - startTimeMs);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while loading dedup snapshot: {}, reading primary keys from segments instead",
+          _snapshotFile, e);
+      _primaryKeyMap.removeIf(segmentOrdinal -> true);
+      _unclaimedSegmentMap.clear();
+      _hasUnclaimedSegments = false;
+      FileUtils.deleteQuietly(_snapshotFile);
+    }
+    updatePrimaryKeyGauges();
+  }
+
+  private int getSnapshotEntrySize() {
+    // Entry: keyHashHigh (long), [keyHashLow (long)], segmentOrdinal (int)
+    return (_primaryKeyMap.isUse128BitKeyHash() ? 2 * Long.BYTES : Long.BYTES) + Integer.BYTES;
+  }
+
+  private static class PersistedSegment {
+    final int _ordinal;
+    final String _segmentName;
+    final String _crc;
+
+    PersistedSegment(int ordinal, String segmentName, String crc) {
+      _ordinal = ordinal;
+      _segmentName = segmentName;
+      _crc = crc;
+    }
+
+    // Layout: ordinal (int), segment name length (int), segment name (UTF-8), CRC length (int), CRC (UTF-8)
+    long getSerializedSize() {
+      return 3 * Integer.BYTES + _segmentName.getBytes(StandardCharsets.UTF_8).length + _crc.getBytes(
+          StandardCharsets.UTF_8).length;
+    }
+
+    long writeTo(PinotDataBuffer buffer, long offset) {
+      buffer.putInt(offset, _ordinal);
+      offset = writeString(buffer, offset + Integer.BYTES, _segmentName);
+      return writeString(buffer, offset, _crc);
+    }
+
+    static PersistedSegment readFrom(PinotDataBuffer buffer, long offset) {
+      int ordinal = buffer.getInt(offset);
+      String segmentName = readString(buffer, offset + Integer.BYTES);
+      String crc = readString(buffer, offset + 2 * Integer.BYTES + segmentName.getBytes(StandardCharsets.UTF_8).length);
+      return new PersistedSegment(ordinal, segmentName, crc);
+    }
+
+    static long writeString(PinotDataBuffer buffer, long offset, String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      buffer.putInt(offset, bytes.length);
+      buffer.readFrom(offset + Integer.BYTES, bytes);
+      return offset + Integer.BYTES + bytes.length;
+    }
+
+    static String readString(PinotDataBuffer buffer, long offset) {
+      byte[] bytes = new byte[buffer.getInt(offset)];
+      buffer.copyTo(offset + Integer.BYTES, bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+}
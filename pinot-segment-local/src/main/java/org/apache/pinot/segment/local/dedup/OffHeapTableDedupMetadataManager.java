@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.util.Map;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.segment.local.data.manager.TableDataManager;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.Schema;
+
+
+/**
+ * Implementation of {@link TableDedupMetadataManager} that keeps the primary key hashes of each partition off-heap with
+ * {@link OffHeapPartitionDedupMetadataManager}. It can be enabled by setting the metadata manager class in the dedup
+ * config to this class name, and accepts the following metadata manager configs:
+ * <ul>
+ *   <li>{@link #INITIAL_CAPACITY_KEY}: expected number of primary keys per partition</li>
+ *   <li>{@link #KEY_HASH_BITS_KEY}: number of bits of the primary key hash to keep, 64 or 128 (default)</li>
+ *   <li>{@link #ENABLE_PERSISTENCE_KEY}: whether to persist the metadata into the table data dir on shutdown</li>
+ * </ul>
+ */
+public class OffHeapTableDedupMetadataManager extends BaseTableDedupMetadataManager {
+  public static final String INITIAL_CAPACITY_KEY = "offHeapInitialCapacity";
+  public static final String KEY_HASH_BITS_KEY = "keyHashBits";
+  public static final String ENABLE_PERSISTENCE_KEY = "enablePersistence";
+
+  private int _initialCapacity = OffHeapDedupPrimaryKeyMap.DEFAULT_INITIAL_CAPACITY;
+  private boolean _use128BitKeyHash = true;
+  private File _snapshotDir;
+
+  @Override
+  public void init(TableConfig tableConfig, Schema schema, TableDataManager tableDataManager,
+      ServerMetrics serverMetrics) {
+    super.init(tableConfig, schema, tableDataManager, serverMetrics);
+    Map<String, String> metadataManagerConfigs = _dedupConfig.getMetadataManagerConfigs();
+    if (metadataManagerConfigs == null) {
+      return;
+    }
+    if (metadataManagerConfigs.containsKey(INITIAL_CAPACITY_KEY)) {
+      _initialCapacity = Integer.parseInt(metadataManagerConfigs.get(INITIAL_CAPACITY_KEY));
+    }
+    if (metadataManagerConfigs.containsKey(KEY_HASH_BITS_KEY)) {
+      int keyHashBits = Integer.parseInt(metadataManagerConfigs.get(KEY_HASH_BITS_KEY));
+      Preconditions.checkArgument(keyHashBits == 64 || keyHashBits == 128,
+          "Key hash bits must be 64 or 128, got: %s for table: %s", keyHashBits, _tableNameWithType);
+      _use128BitKeyHash = keyHashBits == 128;
+    }
+    if (Boolean.parseBoolean(metadataManagerConfigs.get(ENABLE_PERSISTENCE_KEY))) {
+      Preconditions.checkArgument(tableDataManager != null,
+          "Table data manager must be provided to enable dedup metadata persistence for table: %s",
+          _tableNameWithType);
+      _snapshotDir =
+          new File(tableDataManager.getTableDataDir(), OffHeapPartitionDedupMetadataManager.SNAPSHOT_DIR_NAME);
+    }
+  }
+
+  @Override
+  protected PartitionDedupMetadataManager createPartitionDedupMetadataManager(Integer partitionId) {
+    return new OffHeapPartitionDedupMetadataManager(_tableNameWithType, _primaryKeyColumns, partitionId,
+        _serverMetrics, _hashFunction, _initialCapacity, _use128BitKeyHash, _snapshotDir);
+  }
+}
@@ -18,11 +18,13 @@
  */
 package org.apache.pinot.segment.local.dedup;
 
+import java.io.Closeable;
+import java.io.IOException;
 import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.spi.data.readers.PrimaryKey;
 
 
-public interface PartitionDedupMetadataManager {
+public interface PartitionDedupMetadataManager extends Closeable {
   /**
    * Initializes the dedup metadata for the given immutable segment.
    */
@@ -38,4 +40,18 @@ public interface PartitionDedupMetadataManager {
    * Returns true if the key was already present.
    */
   boolean checkRecordPresentOrUpdate(PrimaryKey pk, IndexSegment indexSegment);
+
+  /**
+   * Stops the metadata manager. After invoking this method, no access to the metadata will be accepted.
+   */
+  default void stop() {
+  }
+
+  /**
+   * Closes the metadata manager and releases the resources held by it.
+   */
+  @Override
+  default void close()
+      throws IOException {
+  }
 }
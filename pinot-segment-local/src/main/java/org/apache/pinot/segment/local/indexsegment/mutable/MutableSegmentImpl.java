@@ -24,7 +24,9 @@ import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -96,6 +98,7 @@ import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.FieldSpec.DataType;
 import org.apache.pinot.spi.data.MetricFieldSpec;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnarRecordBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.data.readers.PrimaryKey;
 import org.apache.pinot.spi.stream.RowMetadata;
@@ -528,6 +531,240 @@ public class MutableSegmentImpl implements MutableSegment {
     return canTakeMore;
   }
 
+  /**
+   * Indexes the batch column by column when there is no row level processing (upsert, dedup or metrics aggregation),
+   * or falls back to indexing it row by row. All the rows in the batch become queryable at once after the batch is
+   * indexed. When indexed column by column, the batch must fit in the remaining capacity of the segment, and the values
+   * must match the column types. Otherwise, an {@link IllegalArgumentException} is thrown before anything is indexed,
+   * and the caller can index the rows one by one instead.
+   */
+  @Override
+  public boolean index(ColumnarRecordBatch batch, @Nullable RowMetadata rowMetadata)
+      throws IOException {
+    int numRows = batch.getNumRows();
+    if (!isColumnarBatchIndexingSupported()) {
+      boolean canTakeMore = true;
+      for (int rowId = 0; rowId < numRows; rowId++) {
+        canTakeMore = index(batch.getRow(rowId, new GenericRow()), rowMetadata);
+      }
+      return canTakeMore;
+    }
+    if (numRows == 0) {
+      return _numDocsIndexed < _capacity;
+    }
+
+    int startDocId = _numDocsIndexed;
+    Preconditions.checkArgument(numRows <= _capacity - startDocId,
+        "Cannot index %s rows into segment: %s with %s docs indexed (capacity: %s)", numRows, _segmentName, startDocId,
+        _capacity);
+    for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+      validateColumnValues(entry.getKey(), entry.getValue(), batch);
+    }
+    for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+      addColumnValues(startDocId, entry.getKey(), entry.getValue(), batch);
+    }
+    int numDocsIndexed = startDocId + numRows;
+    // Update number of documents indexed at last to make the latest rows queryable
+    _numDocsIndexed = numDocsIndexed;
+
+    // Update last indexed time and latest ingestion time
+    _lastIndexedTimeMs = System.currentTimeMillis();
+    if (rowMetadata != null) {
+      _latestIngestionTimeMs = Math.max(_latestIngestionTimeMs, rowMetadata.getRecordIngestionTimeMs());
+    }
+
+    // Keep consistent with indexing the rows one by one, where the capacity is checked before each row is indexed
+    return numDocsIndexed - 1 < _capacity;
+  }
+
+  /**
+   * Validates the values of the given column in the batch, so that a malformed row fails the batch before any index is
+   * modified. The dictionary casts the values to the stored type, and the multi-value columns cast the values to
+   * Object[], so check them up front.
+   */
+  private static void validateColumnValues(String column, IndexContainer indexContainer, ColumnarRecordBatch batch) {
+    Object[] values = batch.getValues(column);
+    if (values == null) {
+      return;
+    }
+    FieldSpec fieldSpec = indexContainer._fieldSpec;
+    boolean singleValue = fieldSpec.isSingleValueField();
+    DataType storedType = indexContainer._dictionary != null ? fieldSpec.getDataType().getStoredType() : null;
+    for (int rowId = 0; rowId < values.length; rowId++) {
+      Object value = values[rowId];
+      if (value == null) {
+        continue;
+      }
+      boolean valid;
+      if (singleValue) {
+        valid = !(value instanceof Object[]) && (storedType == null || isStoredTypeValue(storedType, value));
+      } else {
+        valid = value instanceof Object[];
+        if (valid && storedType != null) {
+          for (Object mvValue : (Object[]) value) {
+            if (!isStoredTypeValue(storedType, mvValue)) {
+              valid = false;
+              break;
+            }
+          }
+        }
+      }
+      Preconditions.checkArgument(valid, "Invalid value: %s of type: %s for column: %s at row: %s in the batch", value,
+          value.getClass().getSimpleName(), column, rowId);
+    }
+  }
+
+  private static boolean isStoredTypeValue(DataType storedType, Object value) {
+    switch (storedType) {
+      case INT:
+        return value instanceof Integer;
+      case LONG:
+        return value instanceof Long;
+      case FLOAT:
+        return value instanceof Float;
+      case DOUBLE:
+        return value instanceof Double;
+      case BIG_DECIMAL:
+        return value instanceof BigDecimal;
+      case STRING:
+        return value instanceof String;
+      case BYTES:
+        return value instanceof byte[];
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Adds the values of the given column in the batch to the dictionary and the indexes. Rows with missing value are
+   * skipped (same as {@link #addNewRow(int, GenericRow)}).
+   */
+  private void addColumnValues(int startDocId, String column, IndexContainer indexContainer,
+      ColumnarRecordBatch batch) {
+    int numRows = batch.getNumRows();
+    Object[] values = batch.getValues(column);
+    MutableDictionary dictionary = indexContainer._dictionary;
+    if (values == null) {
+      if (dictionary != null) {
+        recordIndexingError("DICTIONARY");
+      }
+      return;
+    }
+
+    // Update the null value vector even if a null value is somehow produced
+    BitSet nullValueRows = batch.getNullValueRows(column);
+    if (indexContainer._nullValueVector != null && nullValueRows != null) {
+      for (int rowId = nullValueRows.nextSetBit(0); rowId >= 0; rowId = nullValueRows.nextSetBit(rowId + 1)) {
+        indexContainer._nullValueVector.setNull(startDocId + rowId);
+      }
+    }
+
+    boolean hasMissingValue = false;
+    for (Object value : values) {
+      if (value == null) {
+        hasMissingValue = true;
+        if (dictionary != null) {
+          recordIndexingError("DICTIONARY");
+        }
+      }
+    }
+
+    FieldSpec fieldSpec = indexContainer._fieldSpec;
+    if (!fieldSpec.isSingleValueField()) {
+      // Multi-value column
+      DataType storedType = fieldSpec.getDataType().getStoredType();
+      for (int rowId = 0; rowId < numRows; rowId++) {
+        Object value = values[rowId];
+        if (value == null) {
+          continue;
+        }
+        Object[] mvValues = (Object[]) value;
+        int[] dictIds = dictionary != null ? dictionary.index(mvValues) : null;
+        indexContainer._valuesInfo.updateVarByteMVMaxRowLengthInBytes(value, storedType);
+        for (Map.Entry<IndexType, MutableIndex> indexEntry : indexContainer._mutableIndexes.entrySet()) {
+          try {
+            indexEntry.getValue().add(mvValues, dictIds, startDocId + rowId);
+          } catch (Exception e) {
+            recordIndexingError(indexEntry.getKey(), e);
+          }
+        }
+        indexContainer._valuesInfo.updateMVNumValues(mvValues.length);
+      }
+      if (dictionary != null) {
+        indexContainer._minValue = dictionary.getMinVal();
+        indexContainer._maxValue = dictionary.getMaxVal();
+      }
+      return;
+    }
+
+    // Single-value column
+    if (column.equals(_partitionColumn)) {
+      for (Object value : values) {
+        if (value != null) {
+          checkPartition(indexContainer, value);
+        }
+      }
+    }
+
+    // Bulk insert the values into the dictionary
+    int[] dictIds = null;
+    if (dictionary != null) {
+      if (hasMissingValue) {
+        dictIds = new int[numRows];
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          Object value = values[rowId];
+          if (value != null) {
+            dictIds[rowId] = dictionary.index(value);
+          }
+        }
+      } else {
+        dictIds = dictionary.index(values);
+      }
+      indexContainer._minValue = dictionary.getMinVal();
+      indexContainer._maxValue = dictionary.getMaxVal();
+    }
+
+    for (Map.Entry<IndexType, MutableIndex> indexEntry : indexContainer._mutableIndexes.entrySet()) {
+      MutableIndex mutableIndex = indexEntry.getValue();
+      try {
+        if (dictIds != null && !hasMissingValue && mutableIndex instanceof MutableForwardIndex) {
+          ((MutableForwardIndex) mutableIndex).setDictIds(dictIds, startDocId, numRows);
+        } else if (dictIds != null && !hasMissingValue && mutableIndex instanceof MutableInvertedIndex) {
+          ((MutableInvertedIndex) mutableIndex).add(dictIds, startDocId, numRows);
+        } else {
+          for (int rowId = 0; rowId < numRows; rowId++) {
+            Object value = values[rowId];
+            if (value != null) {
+              mutableIndex.add(value, dictIds != null ? dictIds[rowId] : -1, startDocId + rowId);
+            }
+          }
+        }
+      } catch (Exception e) {
+        recordIndexingError(indexEntry.getKey(), e);
+      }
+    }
+
+    int numValues = 0;
+    for (Object value : values) {
+      if (value != null) {
+        numValues++;
+        if (dictionary == null) {
+          // Update min/max value from raw value
+          updateMinMaxValue(indexContainer, value);
+        }
+      }
+    }
+    indexContainer._valuesInfo.updateSVNumValues(numValues);
+  }
+
+  /**
+   * Returns whether the batch passed to {@link #index(ColumnarRecordBatch, RowMetadata)} is indexed column by column,
+   * i.e. there is no row level processing (upsert, dedup or metrics aggregation).
+   */
+  public boolean isColumnarBatchIndexingSupported() {
+    return !isUpsertEnabled() && !isDedupEnabled() && !isAggregateMetricsEnabled();
+  }
+
   private boolean isUpsertEnabled() {
     return _partitionUpsertMetadataManager != null;
   }
@@ -660,19 +897,7 @@ public class MutableSegmentImpl implements MutableSegment {
       if (fieldSpec.isSingleValueField()) {
         // Check partitions
         if (column.equals(_partitionColumn)) {
-          String stringValue = dataType.toString(value);
-          int partition = _partitionFunction.getPartition(stringValue);
-          if (partition != _mainPartitionId) {
-            if (indexContainer._partitions.add(partition)) {
-              // for every partition other than mainPartitionId, log a warning once
-              _logger.warn("Found new partition: {} from partition column: {}, value: {}", partition, column,
-                  stringValue);
-            }
-            // always emit a metric when a partition other than mainPartitionId is detected
-            if (_serverMetrics != null) {
-              _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_PARTITION_MISMATCH, 1);
-            }
-          }
+          checkPartition(indexContainer, value);
         }
 
         // Update numValues info
@@ -692,23 +917,7 @@ public class MutableSegmentImpl implements MutableSegment {
           // Update min/max value from raw value
           // NOTE: Skip updating min/max value for aggregated metrics because the value will change over time.
           if (!isAggregateMetricsEnabled() || fieldSpec.getFieldType() != FieldSpec.FieldType.METRIC) {
-            Comparable comparable;
-            if (dataType == BYTES) {
-              comparable = new ByteArray((byte[]) value);
-            } else {
-              comparable = (Comparable) value;
-            }
-            if (indexContainer._minValue == null) {
-              indexContainer._minValue = comparable;
-              indexContainer._maxValue = comparable;
-            } else {
-              if (comparable.compareTo(indexContainer._minValue) < 0) {
-                indexContainer._minValue = comparable;
-              }
-              if (comparable.compareTo(indexContainer._maxValue) > 0) {
-                indexContainer._maxValue = comparable;
-              }
-            }
+            updateMinMaxValue(indexContainer, value);
           }
         }
       } else {
@@ -729,6 +938,42 @@ public class MutableSegmentImpl implements MutableSegment {
     }
   }
 
+  private void checkPartition(IndexContainer indexContainer, Object value) {
+    String stringValue = indexContainer._fieldSpec.getDataType().toString(value);
+    int partition = _partitionFunction.getPartition(stringValue);
+    if (partition != _mainPartitionId) {
+      if (indexContainer._partitions.add(partition)) {
+        // for every partition other than mainPartitionId, log a warning once
+        _logger.warn("Found new partition: {} from partition column: {}, value: {}", partition,
+            indexContainer._fieldSpec.getName(), stringValue);
+      }
+      // always emit a metric when a partition other than mainPartitionId is detected
+      if (_serverMetrics != null) {
+        _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_PARTITION_MISMATCH, 1);
+      }
+    }
+  }
+
+  private void updateMinMaxValue(IndexContainer indexContainer, Object value) {
+    Comparable comparable;
+    if (indexContainer._fieldSpec.getDataType() == BYTES) {
+      comparable = new ByteArray((byte[]) value);
+    } else {
+      comparable = (Comparable) value;
+    }
+    if (indexContainer._minValue == null) {
+      indexContainer._minValue = comparable;
+      indexContainer._maxValue = comparable;
+    } else {
+      if (comparable.compareTo(indexContainer._minValue) < 0) {
+        indexContainer._minValue = comparable;
+      }
+      if (comparable.compareTo(indexContainer._maxValue) > 0) {
+        indexContainer._maxValue = comparable;
+      }
+    }
+  }
+
   private void recordIndexingError(IndexType<?, ?, ?> indexType, Exception exception) {
     _logger.error("failed to index value with {}", indexType, exception);
     if (_serverMetrics != null) {
@@ -1164,6 +1409,10 @@ public class MutableSegmentImpl implements MutableSegment {
       _numValues++;
     }
 
+    void updateSVNumValues(int numValues) {
+      _numValues += numValues;
+    }
+
     void updateMVNumValues(int numValuesInMVEntry) {
       _numValues += numValuesInMVEntry;
       _maxNumValuesPerMVEntry = Math.max(_maxNumValuesPerMVEntry, numValuesInMVEntry);
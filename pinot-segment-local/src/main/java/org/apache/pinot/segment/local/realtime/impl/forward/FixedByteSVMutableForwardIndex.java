@@ -184,6 +184,23 @@ public class FixedByteSVMutableForwardIndex implements MutableForwardIndex {
     getWriterForRow(docId).setInt(docId, dictId);
   }
 
+  @Override
+  public void setDictIds(int[] dictIds, int startDocId, int length) {
+    if (length == 0) {
+      return;
+    }
+    addBufferIfNeeded(startDocId + length - 1);
+    // Write the dictionary ids chunk by chunk to avoid looking up the writer for each row
+    int index = 0;
+    while (index < length) {
+      WriterWithOffset writer = getWriterForRow(startDocId + index);
+      int endIndex = Math.min(length, writer._startRowId + _numRowsPerChunk - startDocId);
+      for (; index < endIndex; index++) {
+        writer.setInt(startDocId + index, dictIds[index]);
+      }
+    }
+  }
+
   @Override
   public void setInt(int docId, int value) {
     addBufferIfNeeded(docId);
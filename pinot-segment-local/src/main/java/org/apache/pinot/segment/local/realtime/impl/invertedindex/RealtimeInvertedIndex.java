@@ -18,6 +18,9 @@
  */
 package org.apache.pinot.segment.local.realtime.impl.invertedindex;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -61,6 +64,47 @@ public class RealtimeInvertedIndex implements MutableInvertedIndex {
     }
   }
 
+  /**
+   * Adds the consecutive document ids to the bitmaps of the given dictionary ids. The document ids are grouped by the
+   * dictionary id so that each bitmap is updated once, and the new bitmaps are added with a single write lock.
+   */
+  @Override
+  public void add(int[] dictIds, int startDocId, int length) {
+    Int2ObjectOpenHashMap<IntArrayList> dictIdToDocIds = new Int2ObjectOpenHashMap<>();
+    int maxDictId = -1;
+    for (int i = 0; i < length; i++) {
+      int dictId = dictIds[i];
+      dictIdToDocIds.computeIfAbsent(dictId, k -> new IntArrayList()).add(startDocId + i);
+      maxDictId = Math.max(maxDictId, dictId);
+    }
+    int numBitmaps = _bitmaps.size();
+    for (Int2ObjectMap.Entry<IntArrayList> entry : dictIdToDocIds.int2ObjectEntrySet()) {
+      int dictId = entry.getIntKey();
+      if (dictId < numBitmaps) {
+        IntArrayList docIds = entry.getValue();
+        _bitmaps.get(dictId).addN(docIds.elements(), 0, docIds.size());
+      }
+    }
+    if (maxDictId >= numBitmaps) {
+      // NOTE: New dictionary ids are assigned in ascending order, so they should be consecutive
+      List<ThreadSafeMutableRoaringBitmap> newBitmaps = new ArrayList<>(maxDictId - numBitmaps + 1);
+      for (int dictId = numBitmaps; dictId <= maxDictId; dictId++) {
+        MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+        IntArrayList docIds = dictIdToDocIds.get(dictId);
+        if (docIds != null) {
+          bitmap.addN(docIds.elements(), 0, docIds.size());
+        }
+        newBitmaps.add(new ThreadSafeMutableRoaringBitmap(bitmap));
+      }
+      try {
+        _writeLock.lock();
+        _bitmaps.addAll(newBitmaps);
+      } finally {
+        _writeLock.unlock();
+      }
+    }
+  }
+
   @Override
   public MutableRoaringBitmap getDocIds(int dictId) {
     ThreadSafeMutableRoaringBitmap bitmap;
@@ -24,10 +24,14 @@ import com.google.common.collect.Maps;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -57,6 +61,7 @@ import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.segment.spi.index.TextIndexConfig;
 import org.apache.pinot.segment.spi.index.creator.ForwardIndexCreator;
 import org.apache.pinot.segment.spi.index.creator.SegmentIndexCreationInfo;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 import org.apache.pinot.spi.config.table.IndexConfig;
 import org.apache.pinot.spi.config.table.SegmentZKPropsConfig;
@@ -308,36 +313,85 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   public void indexRow(GenericRow row)
       throws IOException {
     for (Map.Entry<String, Map<IndexType<?, ?, ?>, IndexCreator>> byColEntry : _creatorsByColAndIndex.entrySet()) {
-      String columnName = byColEntry.getKey();
+      indexRowValue(byColEntry.getKey(), byColEntry.getValue(), row);
+    }
 
-      Object columnValueToIndex = row.getValue(columnName);
-      if (columnValueToIndex == null) {
-        throw new RuntimeException("Null value for column:" + columnName);
+    for (Map.Entry<String, NullValueVectorCreator> entry : _nullValueVectorCreatorMap.entrySet()) {
+      // If row has null value for given column name, add to null value vector
+      if (row.isNullValue(entry.getKey())) {
+        entry.getValue().setNull(_docIdCounter);
       }
+    }
 
+    _docIdCounter++;
+  }
+
+  /**
+   * Indexes the rows with one task per column, where each task adds the values of the column in the order of the rows.
+   * The index creators are not shared across columns, so the resulting index is identical to the sequential one.
+   */
+  @Override
+  public void indexRows(List<GenericRow> rows, ExecutorService executorService)
+      throws Exception {
+    List<Future<?>> futures = new ArrayList<>(_creatorsByColAndIndex.size());
+    for (Map.Entry<String, Map<IndexType<?, ?, ?>, IndexCreator>> byColEntry : _creatorsByColAndIndex.entrySet()) {
+      String columnName = byColEntry.getKey();
       Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = byColEntry.getValue();
+      futures.add(executorService.submit(() -> {
+        for (GenericRow row : rows) {
+          indexRowValue(columnName, creatorsByIndex, row);
+        }
+        return null;
+      }));
+    }
 
-      FieldSpec fieldSpec = _schema.getFieldSpecFor(columnName);
-      SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
-      try {
-        if (fieldSpec.isSingleValueField()) {
-          indexSingleValueRow(dictionaryCreator, columnValueToIndex, creatorsByIndex);
-        } else {
-          indexMultiValueRow(dictionaryCreator, (Object[]) columnValueToIndex, creatorsByIndex);
+    // Fill the null value vectors while the columns are being indexed
+    for (GenericRow row : rows) {
+      for (Map.Entry<String, NullValueVectorCreator> entry : _nullValueVectorCreatorMap.entrySet()) {
+        if (row.isNullValue(entry.getKey())) {
+          entry.getValue().setNull(_docIdCounter);
         }
-      } catch (JsonParseException jpe) {
-        throw new ColumnJsonParserException(columnName, jpe);
       }
+      _docIdCounter++;
     }
 
-    for (Map.Entry<String, NullValueVectorCreator> entry : _nullValueVectorCreatorMap.entrySet()) {
-      // If row has null value for given column name, add to null value vector
-      if (row.isNullValue(entry.getKey())) {
-        entry.getValue().setNull(_docIdCounter);
+    // Wait for all the tasks before throwing so that the index creators are not accessed after this method returns
+    Throwable failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
       }
     }
+    if (failure != null) {
+      if (failure instanceof Exception) {
+        throw (Exception) failure;
+      }
+      throw new RuntimeException(failure);
+    }
+  }
+
+  private void indexRowValue(String columnName, Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex, GenericRow row)
+      throws IOException {
+    Object columnValueToIndex = row.getValue(columnName);
+    if (columnValueToIndex == null) {
+      throw new RuntimeException("Null value for column:" + columnName);
+    }
 
-    _docIdCounter++;
+    FieldSpec fieldSpec = _schema.getFieldSpecFor(columnName);
+    SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+    try {
+      if (fieldSpec.isSingleValueField()) {
+        indexSingleValueRow(dictionaryCreator, columnValueToIndex, creatorsByIndex);
+      } else {
+        indexMultiValueRow(dictionaryCreator, (Object[]) columnValueToIndex, creatorsByIndex);
+      }
+    } catch (JsonParseException jpe) {
+      throw new ColumnJsonParserException(columnName, jpe);
+    }
   }
 
   @Override
@@ -354,6 +408,11 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       NullValueVectorCreator nullVec = _nullValueVectorCreatorMap.get(columnName);
       FieldSpec fieldSpec = _schema.getFieldSpecFor(columnName);
       SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+      if (dictionaryCreator != null && colReader.hasDictionary() && colReader.isSingleValue()) {
+        indexDictEncodedSingleValueColumn(colReader, creatorsByIndex, dictionaryCreator, sortedDocIds, numDocs,
+            nullVec);
+        return;
+      }
       if (sortedDocIds != null) {
         int onDiskDocId = 0;
         for (int docId : sortedDocIds) {
@@ -369,6 +428,38 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
   }
 
+  /**
+   * Indexes a dictionary encoded single-value column by remapping the dictionary ids of the source segment to the
+   * dictionary ids of the new segment, which requires one dictionary lookup per unique value instead of per row.
+   */
+  private void indexDictEncodedSingleValueColumn(PinotSegmentColumnReader colReader,
+      Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex, SegmentDictionaryCreator dictionaryCreator,
+      @Nullable int[] sortedDocIds, int numDocs, @Nullable NullValueVectorCreator nullVec)
+      throws IOException {
+    Dictionary dictionary = colReader.getDictionary();
+    int cardinality = dictionary.length();
+    Object[] values = new Object[cardinality];
+    int[] dictIdMap = new int[cardinality];
+    for (int i = 0; i < cardinality; i++) {
+      Object value = dictionary.get(i);
+      values[i] = value;
+      dictIdMap[i] = dictionaryCreator.indexOfSV(value);
+    }
+    IndexCreator[] creators = creatorsByIndex.values().toArray(new IndexCreator[0]);
+    for (int onDiskDocId = 0; onDiskDocId < numDocs; onDiskDocId++) {
+      int sourceDocId = sortedDocIds != null ? sortedDocIds[onDiskDocId] : onDiskDocId;
+      int sourceDictId = colReader.getDictId(sourceDocId);
+      Object value = values[sourceDictId];
+      int dictId = dictIdMap[sourceDictId];
+      for (IndexCreator creator : creators) {
+        creator.add(value, dictId);
+      }
+      if (nullVec != null && colReader.isNull(sourceDocId)) {
+        nullVec.setNull(onDiskDocId);
+      }
+    }
+  }
+
   private void indexColumnValue(PinotSegmentColumnReader colReader,
       Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex, String columnName, FieldSpec fieldSpec,
       SegmentDictionaryCreator dictionaryCreator, int sourceDocId, int onDiskDocPos,
@@ -23,6 +23,8 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,6 +33,10 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -93,6 +99,8 @@ import org.slf4j.LoggerFactory;
 // TODO: Check resource leaks
 public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDriver {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentIndexCreationDriverImpl.class);
+  // Number of rows buffered for each parallel index build, which bounds the memory used to hold the rows
+  private static final int PARALLEL_INDEX_BUILD_BATCH_SIZE = 10_000;
 
   private SegmentGeneratorConfig _config;
   private RecordReader _recordReader;
@@ -251,6 +259,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     LOGGER.info("Collected stats for {} documents", _totalDocs);
 
     int incompleteRowsFound = 0;
+    ExecutorService executorService = null;
     try {
       // TODO: Eventually pull the doc Id sorting logic out of Record Reader so that all row oriented logic can be
       //    removed from this code.
@@ -267,13 +276,25 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
           immutableToMutableIdMap);
 
       // Build the index
+      // When building in parallel, the rows are buffered and each batch is indexed with one task per column
+      int parallelism = Math.min(_config.getIndexBuildParallelism(), _dataSchema.getPhysicalColumnNames().size());
+      List<GenericRow> bufferedRows = null;
+      if (parallelism > 1) {
+        executorService = Executors.newFixedThreadPool(parallelism);
+        bufferedRows = new ArrayList<>(PARALLEL_INDEX_BUILD_BATCH_SIZE);
+      }
       _recordReader.rewind();
       LOGGER.info("Start building IndexCreator!");
       GenericRow reuse = new GenericRow();
       TransformPipeline.Result reusedResult = new TransformPipeline.Result();
       while (_recordReader.hasNext()) {
         long recordReadStopTimeNs;
-        reuse.clear();
+        // Buffered rows cannot be reused
+        if (bufferedRows != null) {
+          reuse = new GenericRow();
+        } else {
+          reuse.clear();
+        }
 
         try {
           GenericRow decodedRow = _recordReader.next(reuse);
@@ -296,16 +317,32 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
           }
         }
 
-        for (GenericRow row : reusedResult.getTransformedRows()) {
-          _indexCreator.indexRow(row);
+        if (bufferedRows != null) {
+          bufferedRows.addAll(reusedResult.getTransformedRows());
+          if (bufferedRows.size() >= PARALLEL_INDEX_BUILD_BATCH_SIZE) {
+            _indexCreator.indexRows(bufferedRows, executorService);
+            bufferedRows.clear();
+          }
+        } else {
+          for (GenericRow row : reusedResult.getTransformedRows()) {
+            _indexCreator.indexRow(row);
+          }
         }
         _totalIndexTimeNs += (System.nanoTime() - recordReadStopTimeNs);
         incompleteRowsFound += reusedResult.getIncompleteRowCount();
       }
+      if (bufferedRows != null && !bufferedRows.isEmpty()) {
+        long indexStartTimeNs = System.nanoTime();
+        _indexCreator.indexRows(bufferedRows, executorService);
+        _totalIndexTimeNs += (System.nanoTime() - indexStartTimeNs);
+      }
     } catch (Exception e) {
       _indexCreator.close();
       throw e;
     } finally {
+      if (executorService != null) {
+        executorService.shutdownNow();
+      }
       _recordReader.close();
     }
 
@@ -343,9 +380,13 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       LOGGER.info("Start building Index by column");
 
       TreeSet<String> columns = _dataSchema.getPhysicalColumnNames();
-
-      for (String col : columns) {
-        _indexCreator.indexColumn(col, sortedDocIds, indexSegment);
+      int parallelism = Math.min(_config.getIndexBuildParallelism(), columns.size());
+      if (parallelism > 1) {
+        indexColumnsInParallel(columns, sortedDocIds, indexSegment, parallelism);
+      } else {
+        for (String col : columns) {
+          _indexCreator.indexColumn(col, sortedDocIds, indexSegment);
+        }
       }
     } catch (Exception e) {
       _indexCreator.close();
@@ -363,6 +404,38 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     handlePostCreation();
   }
 
+  /**
+   * Indexes the columns in parallel. The columns are independent of each other, and each column is indexed by a single
+   * thread.
+   */
+  private void indexColumnsInParallel(Collection<String> columns, @Nullable int[] sortedDocIds,
+      IndexSegment indexSegment, int parallelism)
+      throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<?>> futures = new ArrayList<>(columns.size());
+      for (String column : columns) {
+        futures.add(executorService.submit(() -> {
+          _indexCreator.indexColumn(column, sortedDocIds, indexSegment);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof Exception) {
+            throw (Exception) cause;
+          }
+          throw new RuntimeException(cause);
+        }
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   private void handlePostCreation()
       throws Exception {
     ColumnStatistics timeColumnStatistics = _segmentStats.getColumnProfileFor(_config.getTimeColumnName());
@@ -477,8 +550,14 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     List<StarTreeIndexConfig> starTreeIndexConfigs = _config.getStarTreeIndexConfigs();
     boolean enableDefaultStarTree = _config.isEnableDefaultStarTree();
     if (CollectionUtils.isNotEmpty(starTreeIndexConfigs) || enableDefaultStarTree) {
-      MultipleTreesBuilder.BuildMode buildMode =
-          _config.isOnHeap() ? MultipleTreesBuilder.BuildMode.ON_HEAP : MultipleTreesBuilder.BuildMode.OFF_HEAP;
+      MultipleTreesBuilder.BuildMode buildMode;
+      if (_config.isOnHeap()) {
+        buildMode = MultipleTreesBuilder.BuildMode.ON_HEAP;
+      } else if (_config.isEnableStarTreeExternalSort()) {
+        buildMode = MultipleTreesBuilder.BuildMode.EXTERNAL_SORT;
+      } else {
+        buildMode = MultipleTreesBuilder.BuildMode.OFF_HEAP;
+      }
       try (
           MultipleTreesBuilder builder = new MultipleTreesBuilder(starTreeIndexConfigs, enableDefaultStarTree, indexDir,
               buildMode)) {
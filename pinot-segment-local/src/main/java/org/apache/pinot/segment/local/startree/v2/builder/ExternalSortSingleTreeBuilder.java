@@ -0,0 +1,397 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.startree.v2.builder;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2Constants;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * The {@code ExternalSortSingleTreeBuilder} class is the single star-tree builder that sorts the records with an
+ * external merge sort, so that the memory used for sorting is bounded regardless of the size of the star-tree.
+ * <ul>
+ *   <li>The records are read sequentially, then sorted and pre-aggregated in runs of at most {@code maxRecordsPerRun}
+ *   records. Each run is spilled into a temporary file unless all the records fit into a single run.</li>
+ *   <li>The sorted runs are merged with a k-way merge while generating the star-tree records, where the records with
+ *   the same dimensions from different runs are aggregated.</li>
+ * </ul>
+ * The sorted segment records can be shared by the star-trees with the same dimensions split order (see
+ * {@link #sortSegmentRecords(List, File, ImmutableSegment, int)}), so that the segment is only read and sorted once
+ * for all of them. The star-tree records are stored the same way as {@link OffHeapSingleTreeBuilder}.
+ */
+public class ExternalSortSingleTreeBuilder extends OffHeapSingleTreeBuilder {
+  public static final int DEFAULT_MAX_RECORDS_PER_RUN = 500_000;
+  private static final String SORT_RUN_DIR_NAME = "sort-runs";
+  private static final Comparator<Record> DIMENSIONS_COMPARATOR =
+      (record1, record2) -> Arrays.compare(record1._dimensions, record2._dimensions);
+
+  private final int _maxRecordsPerRun;
+  private final SortedRuns _sharedSegmentRecordRuns;
+  private final File _sortRunDir;
+
+  private int _numRunFiles;
+  // Runs for the records being generated, which are closed before sorting the next records
+  private SortedRuns _currentRuns;
+
+  /**
+   * Constructor for the external sort single star-tree builder.
+   *
+   * @param builderConfig Builder config
+   * @param outputDir Directory to store the index files
+   * @param segment Index segment
+   * @param metadataProperties Segment metadata properties
+   * @param maxRecordsPerRun Maximum number of records to sort in memory
+   * @param sharedSegmentRecordRuns Sorted segment records shared with other star-trees, or {@code null} to sort the
+   *                                segment records within this builder
+   * @throws FileNotFoundException
+   */
+  public ExternalSortSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir,
+      ImmutableSegment segment, Configuration metadataProperties, int maxRecordsPerRun,
+      @Nullable SortedRuns sharedSegmentRecordRuns)
+      throws FileNotFoundException {
+    super(builderConfig, outputDir, segment, metadataProperties);
+    Preconditions.checkArgument(maxRecordsPerRun > 0, "Max records per run must be positive, got: %s",
+        maxRecordsPerRun);
+    _maxRecordsPerRun = maxRecordsPerRun;
+    _sharedSegmentRecordRuns = sharedSegmentRecordRuns;
+    _sortRunDir = new File(_outputDir, SORT_RUN_DIR_NAME);
+  }
+
+  /**
+   * Sorts and pre-aggregates the segment records for the given star-trees with the same dimensions split order. The
+   * returned runs can be shared by the builders of these star-trees, and should be closed after all of them are built.
+   *
+   * @param builderConfigs Builder configs with the same dimensions split order
+   * @param tempDir Directory to store the temporary files
+   * @param segment Index segment
+   * @param maxRecordsPerRun Maximum number of records to sort in memory
+   * @return Sorted segment records
+   */
+  static SortedRuns sortSegmentRecords(List<StarTreeV2BuilderConfig> builderConfigs, File tempDir,
+      ImmutableSegment segment, int maxRecordsPerRun)
+      throws IOException {
+    FileUtils.forceMkdir(tempDir);
+    ExternalSortSingleTreeBuilder sorter =
+        new ExternalSortSingleTreeBuilder(StarTreeV2BuilderConfig.mergeAggregationSpecs(builderConfigs), tempDir,
+            segment, new PropertiesConfiguration(), maxRecordsPerRun, null);
+    try {
+      SortedRuns sortedRuns = sorter.sortSegmentRecords(segment.getSegmentMetadata().getTotalDocs());
+      sortedRuns._closeOwner = true;
+      return sortedRuns;
+    } catch (Exception e) {
+      sorter.close();
+      throw e;
+    }
+  }
+
+  @Override
+  Iterator<Record> sortAndAggregateSegmentRecords(int numDocs)
+      throws IOException {
+    closeCurrentRuns();
+    if (_sharedSegmentRecordRuns != null) {
+      return _sharedSegmentRecordRuns.merge(this);
+    }
+    _currentRuns = sortSegmentRecords(numDocs);
+    return _currentRuns.merge(this);
+  }
+
+  private SortedRuns sortSegmentRecords(int numDocs)
+      throws IOException {
+    SortedRuns sortedRuns = new SortedRuns(this);
+    List<Record> records = new ArrayList<>(Math.min(numDocs, _maxRecordsPerRun));
+    for (int docId = 0; docId < numDocs; docId++) {
+      records.add(getSegmentRecord(docId));
+      if (records.size() == _maxRecordsPerRun) {
+        sortedRuns._runFiles.add(writeRun(sortAndAggregate(records, true)));
+        records.clear();
+      }
+    }
+    addLastRun(sortedRuns, records, true);
+    return sortedRuns;
+  }
+
+  @Override
+  Iterator<Record> generateRecordsForStarNode(int startDocId, int endDocId, int dimensionId)
+      throws IOException {
+    closeCurrentRuns();
+    SortedRuns sortedRuns = new SortedRuns(this);
+    _currentRuns = sortedRuns;
+    List<Record> records = new ArrayList<>(Math.min(endDocId - startDocId, _maxRecordsPerRun));
+    for (int docId = startDocId; docId < endDocId; docId++) {
+      Record record = getStarTreeRecord(docId);
+      record._dimensions[dimensionId] = StarTreeV2Constants.STAR_IN_FORWARD_INDEX;
+      records.add(record);
+      if (records.size() == _maxRecordsPerRun) {
+        sortedRuns._runFiles.add(writeRun(sortAndAggregate(records, false)));
+        records.clear();
+      }
+    }
+    addLastRun(sortedRuns, records, false);
+    return sortedRuns.merge(this);
+  }
+
+  /**
+   * Adds the remaining records as the last run, which is kept in memory if there is no spilled run.
+   */
+  private void addLastRun(SortedRuns sortedRuns, List<Record> records, boolean segmentRecords)
+      throws IOException {
+    List<Record> aggregatedRecords = sortAndAggregate(records, segmentRecords);
+    if (sortedRuns._runFiles.isEmpty()) {
+      sortedRuns._records = aggregatedRecords;
+    } else if (!aggregatedRecords.isEmpty()) {
+      sortedRuns._runFiles.add(writeRun(aggregatedRecords));
+    }
+  }
+
+  /**
+   * Sorts the records in place, and returns the aggregated records with unique dimensions in sorted order.
+   */
+  private List<Record> sortAndAggregate(List<Record> records, boolean segmentRecords) {
+    records.sort(DIMENSIONS_COMPARATOR);
+    List<Record> aggregatedRecords = new ArrayList<>();
+    Record aggregatedRecord = null;
+    for (Record record : records) {
+      if (aggregatedRecord != null && !Arrays.equals(record._dimensions, aggregatedRecord._dimensions)) {
+        aggregatedRecords.add(aggregatedRecord);
+        aggregatedRecord = null;
+      }
+      aggregatedRecord = segmentRecords ? mergeSegmentRecord(aggregatedRecord, record)
+          : mergeStarTreeRecord(aggregatedRecord, record);
+    }
+    if (aggregatedRecord != null) {
+      aggregatedRecords.add(aggregatedRecord);
+    }
+    return aggregatedRecords;
+  }
+
+  /**
+   * Writes the aggregated records into a run file, where each record is prefixed with its serialized size.
+   */
+  private File writeRun(List<Record> aggregatedRecords)
+      throws IOException {
+    FileUtils.forceMkdir(_sortRunDir);
+    File runFile = new File(_sortRunDir, "run-" + _numRunFiles++);
+    ByteBuffer sizeBuffer = ByteBuffer.allocate(Integer.BYTES).order(PinotDataBuffer.NATIVE_ORDER);
+    try (BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(runFile))) {
+      for (Record record : aggregatedRecords) {
+        byte[] bytes = serializeStarTreeRecord(record);
+        sizeBuffer.putInt(0, bytes.length);
+        outputStream.write(sizeBuffer.array());
+        outputStream.write(bytes);
+      }
+    }
+    return runFile;
+  }
+
+  private void closeCurrentRuns()
+      throws IOException {
+    if (_currentRuns != null) {
+      _currentRuns.close();
+      _currentRuns = null;
+    }
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    try {
+      closeCurrentRuns();
+    } finally {
+      super.close();
+      FileUtils.deleteQuietly(_sortRunDir);
+    }
+  }
+
+  /**
+   * Sorted and aggregated records, which are either kept in memory as a single run, or spilled into sorted run files.
+   * The records can be merged multiple times by the builders of the star-trees with the same dimensions split order.
+   */
+  static class SortedRuns implements Closeable {
+    // Builder that sorted the records, which is used to deserialize the records from the run files
+    private final ExternalSortSingleTreeBuilder _owner;
+    private final List<File> _runFiles = new ArrayList<>();
+    private final List<PinotDataBuffer> _runBuffers = new ArrayList<>();
+    private List<Record> _records;
+    private boolean _closeOwner;
+
+    private SortedRuns(ExternalSortSingleTreeBuilder owner) {
+      _owner = owner;
+    }
+
+    /**
+     * Returns an iterator of the merged records with the metrics of the given builder, which should have the same
+     * dimensions split order as the owner, and a subset of its metrics.
+     */
+    Iterator<Record> merge(ExternalSortSingleTreeBuilder builder)
+        throws IOException {
+      closeRunBuffers();
+      int[] metricIndexes = null;
+      if (builder != _owner) {
+        List<String> ownerMetrics = Arrays.asList(_owner._metrics);
+        metricIndexes = new int[builder._numMetrics];
+        for (int i = 0; i < builder._numMetrics; i++) {
+          metricIndexes[i] = ownerMetrics.indexOf(builder._metrics[i]);
+          Preconditions.checkState(metricIndexes[i] >= 0, "Failed to find metric: %s in the sorted records",
+              builder._metrics[i]);
+        }
+      }
+
+      List<Iterator<Record>> runIterators;
+      if (_records != null) {
+        runIterators = List.of(_records.iterator());
+      } else {
+        runIterators = new ArrayList<>(_runFiles.size());
+        for (File runFile : _runFiles) {
+          PinotDataBuffer runBuffer =
+              PinotDataBuffer.mapFile(runFile, true, 0, runFile.length(), PinotDataBuffer.NATIVE_ORDER,
+                  "ExternalSortSingleTreeBuilder: sort run buffer");
+          _runBuffers.add(runBuffer);
+          runIterators.add(new RunIterator(runBuffer));
+        }
+      }
+      return new MergingIterator(builder, metricIndexes, runIterators);
+    }
+
+    private void closeRunBuffers()
+        throws IOException {
+      for (PinotDataBuffer runBuffer : _runBuffers) {
+        runBuffer.close();
+      }
+      _runBuffers.clear();
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      try {
+        closeRunBuffers();
+        for (File runFile : _runFiles) {
+          FileUtils.deleteQuietly(runFile);
+        }
+      } finally {
+        if (_closeOwner) {
+          _owner.close();
+        }
+      }
+    }
+
+    private class RunIterator implements Iterator<Record> {
+      final PinotDataBuffer _runBuffer;
+      long _offset;
+
+      RunIterator(PinotDataBuffer runBuffer) {
+        _runBuffer = runBuffer;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return _offset < _runBuffer.size();
+      }
+
+      @Override
+      public Record next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int numBytes = _runBuffer.getInt(_offset);
+        Record record = _owner.deserializeStarTreeRecord(_runBuffer, _offset + Integer.BYTES);
+        _offset += Integer.BYTES + numBytes;
+        return record;
+      }
+    }
+  }
+
+  /**
+   * K-way merge of the sorted runs, which aggregates the records with the same dimensions from different runs.
+   */
+  private static class MergingIterator implements Iterator<Record> {
+    final ExternalSortSingleTreeBuilder _builder;
+    final int[] _metricIndexes;
+    final PriorityQueue<PeekingIterator<Record>> _queue;
+
+    MergingIterator(ExternalSortSingleTreeBuilder builder, @Nullable int[] metricIndexes,
+        List<Iterator<Record>> runIterators) {
+      _builder = builder;
+      _metricIndexes = metricIndexes;
+      _queue = new PriorityQueue<>(Math.max(runIterators.size(), 1),
+          (it1, it2) -> DIMENSIONS_COMPARATOR.compare(it1.peek(), it2.peek()));
+      for (Iterator<Record> runIterator : runIterators) {
+        if (runIterator.hasNext()) {
+          _queue.add(Iterators.peekingIterator(runIterator));
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !_queue.isEmpty();
+    }
+
+    @Override
+    public Record next() {
+      if (_queue.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      // NOTE: Always copy the first record because the records in memory can be shared by multiple builders
+      Record aggregatedRecord = _builder.mergeStarTreeRecord(null, pollRecord());
+      while (!_queue.isEmpty() && Arrays.equals(_queue.peek().peek()._dimensions, aggregatedRecord._dimensions)) {
+        aggregatedRecord = _builder.mergeStarTreeRecord(aggregatedRecord, pollRecord());
+      }
+      return aggregatedRecord;
+    }
+
+    private Record pollRecord() {
+      PeekingIterator<Record> runIterator = _queue.poll();
+      Record record = runIterator.next();
+      if (runIterator.hasNext()) {
+        _queue.add(runIterator);
+      }
+      if (_metricIndexes == null) {
+        return record;
+      }
+      Object[] metrics = new Object[_metricIndexes.length];
+      for (int i = 0; i < _metricIndexes.length; i++) {
+        metrics[i] = record._metrics[_metricIndexes[i]];
+      }
+      return new Record(record._dimensions, metrics);
+    }
+  }
+}
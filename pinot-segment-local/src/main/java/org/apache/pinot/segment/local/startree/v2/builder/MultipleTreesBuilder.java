@@ -24,7 +24,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.configuration2.Configuration;
@@ -33,6 +35,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
 import org.apache.pinot.segment.local.startree.StarTreeBuilderUtils;
+import org.apache.pinot.segment.local.startree.v2.builder.ExternalSortSingleTreeBuilder.SortedRuns;
 import org.apache.pinot.segment.local.startree.v2.store.StarTreeIndexMapUtils;
 import org.apache.pinot.segment.local.startree.v2.store.StarTreeIndexMapUtils.IndexKey;
 import org.apache.pinot.segment.local.startree.v2.store.StarTreeIndexMapUtils.IndexValue;
@@ -53,7 +56,9 @@ import org.slf4j.LoggerFactory;
 /**
  * The {@code MultipleTreesBuilder} class is the top level star-tree builder that takes a list of
  * {@link StarTreeIndexConfig}s and a boolean flag for the default star-tree, and builds multiple star-trees with the
- * given {@link BuildMode} ({@code ON_HEAP} or {@code OFF_HEAP}).
+ * given {@link BuildMode} ({@code ON_HEAP}, {@code OFF_HEAP} or {@code EXTERNAL_SORT}).
+ * <p>With {@code EXTERNAL_SORT}, the star-trees with the same dimensions split order share a single sort pass of the
+ * segment records.
  * <p>The indexes for all star-trees will be stored in a single index file, and there will be an extra index map file to
  * mark the offset and size of each index in the index file.
  */
@@ -68,9 +73,10 @@ public class MultipleTreesBuilder implements Closeable {
   private final ImmutableSegment _segment;
   private StarTreeIndexSeparator _separator;
   private File _separatorTempDir;
+  private int _maxRecordsPerSortRun = ExternalSortSingleTreeBuilder.DEFAULT_MAX_RECORDS_PER_RUN;
 
   public enum BuildMode {
-    ON_HEAP, OFF_HEAP
+    ON_HEAP, OFF_HEAP, EXTERNAL_SORT
   }
 
   /**
@@ -78,7 +84,7 @@ public class MultipleTreesBuilder implements Closeable {
    *
    * @param builderConfigs List of builder configs (should already be deduplicated)
    * @param indexDir Index directory
-   * @param buildMode Build mode (ON_HEAP or OFF_HEAP)
+   * @param buildMode Build mode (ON_HEAP, OFF_HEAP or EXTERNAL_SORT)
    */
   public MultipleTreesBuilder(List<StarTreeV2BuilderConfig> builderConfigs, File indexDir, BuildMode buildMode)
       throws Exception {
@@ -99,7 +105,7 @@ public class MultipleTreesBuilder implements Closeable {
    * @param indexConfigs List of index configs
    * @param enableDefaultStarTree Whether to enable the default star-tree
    * @param indexDir Index directory
-   * @param buildMode Build mode (ON_HEAP or OFF_HEAP)
+   * @param buildMode Build mode (ON_HEAP, OFF_HEAP or EXTERNAL_SORT)
    */
   public MultipleTreesBuilder(@Nullable List<StarTreeIndexConfig> indexConfigs, boolean enableDefaultStarTree,
       File indexDir, BuildMode buildMode)
@@ -122,6 +128,16 @@ public class MultipleTreesBuilder implements Closeable {
     }
   }
 
+  /**
+   * Sets the maximum number of records to sort in memory for the {@code EXTERNAL_SORT} build mode, which bounds the
+   * memory used to build the star-trees.
+   */
+  public void setMaxRecordsPerSortRun(int maxRecordsPerSortRun) {
+    Preconditions.checkArgument(maxRecordsPerSortRun > 0, "Max records per sort run must be positive, got: %s",
+        maxRecordsPerSortRun);
+    _maxRecordsPerSortRun = maxRecordsPerSortRun;
+  }
+
   @Nullable
   private StarTreeIndexSeparator getSeparator()
       throws Exception {
@@ -165,6 +181,8 @@ public class MultipleTreesBuilder implements Closeable {
     LOGGER.info("Starting building {} star-trees with configs: {} using {} builder", numStarTrees, _builderConfigs,
         _buildMode);
 
+    File sortTempDir = new File(_segmentDirectory, StarTreeV2Constants.STAR_TREE_SORT_TEMP_DIR);
+    Map<List<String>, SortedRuns> sharedSegmentRecordRuns = new HashMap<>();
     try (StarTreeIndexCombiner indexCombiner = new StarTreeIndexCombiner(
         new File(_segmentDirectory, StarTreeV2Constants.INDEX_FILE_NAME))) {
       File starTreeIndexDir = new File(_segmentDirectory, StarTreeV2Constants.STAR_TREE_TEMP_DIR);
@@ -181,8 +199,12 @@ public class MultipleTreesBuilder implements Closeable {
           LOGGER.info("Reused existing star-tree: {}", builderConfig.toString());
           reusedStarTrees++;
         } else {
-          try (SingleTreeBuilder singleTreeBuilder = getSingleTreeBuilder(builderConfig, starTreeIndexDir, _segment,
-              metadataProperties, _buildMode)) {
+          SortedRuns sortedRuns = null;
+          if (_buildMode == BuildMode.EXTERNAL_SORT) {
+            sortedRuns = getSharedSegmentRecordRuns(i, sortTempDir, sharedSegmentRecordRuns);
+          }
+          try (SingleTreeBuilder singleTreeBuilder = getSingleTreeBuilder(builderConfig, starTreeIndexDir,
+              metadataProperties, sortedRuns)) {
             singleTreeBuilder.build();
           }
         }
@@ -195,6 +217,11 @@ public class MultipleTreesBuilder implements Closeable {
       StarTreeIndexMapUtils.storeToFile(indexMaps,
           new File(_segmentDirectory, StarTreeV2Constants.INDEX_MAP_FILE_NAME));
       FileUtils.forceDelete(starTreeIndexDir);
+    } finally {
+      for (SortedRuns sortedRuns : sharedSegmentRecordRuns.values()) {
+        sortedRuns.close();
+      }
+      FileUtils.deleteQuietly(sortTempDir);
     }
 
     LOGGER.info("Finished building {} star-trees ({} reused) in {}ms", numStarTrees, reusedStarTrees,
@@ -219,13 +246,47 @@ public class MultipleTreesBuilder implements Closeable {
     return true;
   }
 
-  private static SingleTreeBuilder getSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir,
-      ImmutableSegment segment, Configuration metadataProperties, BuildMode buildMode)
+  /**
+   * Returns the sorted segment records shared by the star-tree at the given index and the following star-trees with the
+   * same dimensions split order, or {@code null} if no following star-tree has the same dimensions split order.
+   */
+  @Nullable
+  private SortedRuns getSharedSegmentRecordRuns(int index, File sortTempDir,
+      Map<List<String>, SortedRuns> sharedSegmentRecordRuns)
+      throws IOException {
+    List<String> dimensionsSplitOrder = _builderConfigs.get(index).getDimensionsSplitOrder();
+    SortedRuns sortedRuns = sharedSegmentRecordRuns.get(dimensionsSplitOrder);
+    if (sortedRuns != null) {
+      return sortedRuns;
+    }
+    List<StarTreeV2BuilderConfig> builderConfigs = new ArrayList<>();
+    for (int i = index; i < _builderConfigs.size(); i++) {
+      if (_builderConfigs.get(i).getDimensionsSplitOrder().equals(dimensionsSplitOrder)) {
+        builderConfigs.add(_builderConfigs.get(i));
+      }
+    }
+    if (builderConfigs.size() == 1) {
+      return null;
+    }
+    sortedRuns = ExternalSortSingleTreeBuilder.sortSegmentRecords(builderConfigs,
+        new File(sortTempDir, Integer.toString(sharedSegmentRecordRuns.size())), _segment, _maxRecordsPerSortRun);
+    sharedSegmentRecordRuns.put(dimensionsSplitOrder, sortedRuns);
+    return sortedRuns;
+  }
+
+  private SingleTreeBuilder getSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir,
+      Configuration metadataProperties, @Nullable SortedRuns sharedSegmentRecordRuns)
       throws FileNotFoundException {
-    if (buildMode == BuildMode.ON_HEAP) {
-      return new OnHeapSingleTreeBuilder(builderConfig, outputDir, segment, metadataProperties);
-    } else {
-      return new OffHeapSingleTreeBuilder(builderConfig, outputDir, segment, metadataProperties);
+    switch (_buildMode) {
+      case ON_HEAP:
+        return new OnHeapSingleTreeBuilder(builderConfig, outputDir, _segment, metadataProperties);
+      case OFF_HEAP:
+        return new OffHeapSingleTreeBuilder(builderConfig, outputDir, _segment, metadataProperties);
+      case EXTERNAL_SORT:
+        return new ExternalSortSingleTreeBuilder(builderConfig, outputDir, _segment, metadataProperties,
+            _maxRecordsPerSortRun, sharedSegmentRecordRuns);
+      default:
+        throw new IllegalStateException("Unsupported build mode: " + _buildMode);
     }
   }
 
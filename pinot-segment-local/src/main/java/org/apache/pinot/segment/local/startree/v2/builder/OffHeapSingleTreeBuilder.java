@@ -78,7 +78,7 @@ public class OffHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
   }
 
   @SuppressWarnings("unchecked")
-  private byte[] serializeStarTreeRecord(Record starTreeRecord) {
+  byte[] serializeStarTreeRecord(Record starTreeRecord) {
     int numBytes = _numDimensions * Integer.BYTES;
     byte[][] metricBytes = new byte[_numMetrics][];
     for (int i = 0; i < _numMetrics; i++) {
@@ -121,7 +121,7 @@ public class OffHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
     return bytes;
   }
 
-  private Record deserializeStarTreeRecord(PinotDataBuffer buffer, long offset) {
+  Record deserializeStarTreeRecord(PinotDataBuffer buffer, long offset) {
     int[] dimensions = new int[_numDimensions];
     for (int i = 0; i < _numDimensions; i++) {
       dimensions[i] = buffer.getInt(offset);
@@ -343,7 +343,9 @@ public class OffHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
   public void close()
       throws IOException {
     super.close();
-    _starTreeRecordBuffer.close();
+    if (_starTreeRecordBuffer != null) {
+      _starTreeRecordBuffer.close();
+    }
     _starTreeRecordOutputStream.close();
     FileUtils.forceDelete(_starTreeRecordFile);
   }
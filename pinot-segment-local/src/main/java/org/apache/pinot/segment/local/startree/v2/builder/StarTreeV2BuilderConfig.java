@@ -270,6 +270,22 @@ public class StarTreeV2BuilderConfig {
     _maxLeafRecords = maxLeafRecords;
   }
 
+  /**
+   * Returns a config with the union of the aggregation specs of the given configs, which should have the same
+   * dimensions split order. It is used to sort and pre-aggregate the segment records once for all the given configs.
+   */
+  static StarTreeV2BuilderConfig mergeAggregationSpecs(List<StarTreeV2BuilderConfig> builderConfigs) {
+    StarTreeV2BuilderConfig firstConfig = builderConfigs.get(0);
+    TreeMap<AggregationFunctionColumnPair, AggregationSpec> aggregationSpecs = new TreeMap<>();
+    for (StarTreeV2BuilderConfig builderConfig : builderConfigs) {
+      Preconditions.checkArgument(builderConfig._dimensionsSplitOrder.equals(firstConfig._dimensionsSplitOrder),
+          "Cannot merge configs with different dimensions split order");
+      builderConfig._aggregationSpecs.forEach(aggregationSpecs::putIfAbsent);
+    }
+    return new StarTreeV2BuilderConfig(firstConfig._dimensionsSplitOrder, Collections.emptySet(), aggregationSpecs,
+        firstConfig._maxLeafRecords);
+  }
+
   public List<String> getDimensionsSplitOrder() {
     return _dimensionsSplitOrder;
   }
@@ -102,6 +102,14 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
   protected final double _metadataTTL;
   protected final double _deletedKeysTTL;
   protected final File _tableIndexDir;
+  // Checkpoint of the primary key to record location map, which is used to restore the upsert metadata of the committed
+  // segments without reading the primary key and comparison columns. Only available when snapshot is enabled.
+  @Nullable
+  protected final UpsertMetadataCheckpoint _metadataCheckpoint;
+  protected final long _metadataCheckpointIntervalMs;
+  // Whether a checkpoint is loaded on startup. The checkpoint can be older than the validDocIds snapshots, so segments
+  // not in the checkpoint need to be preloaded with comparison instead of trusting the snapshots.
+  protected final boolean _metadataCheckpointLoaded;
   protected final ServerMetrics _serverMetrics;
   protected final Logger _logger;
 
@@ -121,6 +129,9 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
   protected volatile boolean _gotFirstConsumingSegment = false;
   protected final ReadWriteLock _snapshotLock;
 
+  // Updated by the consuming thread taking the snapshots
+  private volatile long _lastMetadataCheckpointTimeMs;
+
   protected long _lastOutOfOrderEventReportTimeNs = Long.MIN_VALUE;
   protected int _numOutOfOrderEvents = 0;
 
@@ -171,6 +182,24 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
     _upsertViewRefreshIntervalMs = context.getUpsertViewRefreshIntervalMs();
     _serverMetrics = ServerMetrics.get();
     _logger = LoggerFactory.getLogger(tableNameWithType + "-" + partitionId + "-" + getClass().getSimpleName());
+    if (context.isMetadataCheckpointEnabled() && _tableIndexDir != null) {
+      if (!_enableSnapshot) {
+        _logger.warn("Upsert metadata checkpoint is disabled because snapshot is not enabled");
+        _metadataCheckpoint = null;
+      } else if (!isMetadataCheckpointSupported()) {
+        _logger.warn("Upsert metadata checkpoint is not supported by: {}", getClass().getSimpleName());
+        _metadataCheckpoint = null;
+      } else {
+        _metadataCheckpoint = new UpsertMetadataCheckpoint(_tableIndexDir, partitionId, getClass().getName());
+        if (_metadataCheckpoint.load()) {
+          _logger.info("Loaded upsert metadata checkpoint: {}", _metadataCheckpoint.getCheckpointFile());
+        }
+      }
+    } else {
+      _metadataCheckpoint = null;
+    }
+    _metadataCheckpointIntervalMs = context.getMetadataCheckpointIntervalMs();
+    _metadataCheckpointLoaded = _metadataCheckpoint != null && _metadataCheckpoint.isLoaded();
     if (_metadataTTL > 0) {
       _largestSeenComparisonValue = new AtomicDouble(loadWatermark());
     } else {
@@ -435,11 +464,15 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
     if (!_enableSnapshot) {
       segment.deleteValidDocIdsSnapshot();
     }
-    try (UpsertUtils.RecordInfoReader recordInfoReader = new UpsertUtils.RecordInfoReader(segment, _primaryKeyColumns,
-        _comparisonColumns, _deleteRecordColumn)) {
-      Iterator<RecordInfo> recordInfoIterator =
-          UpsertUtils.getRecordInfoIterator(recordInfoReader, segment.getSegmentMetadata().getTotalDocs());
-      addSegment(segment, null, null, recordInfoIterator);
+    try {
+      if (!restoreSegmentFromCheckpoint(segment)) {
+        try (UpsertUtils.RecordInfoReader recordInfoReader = new UpsertUtils.RecordInfoReader(segment,
+            _primaryKeyColumns, _comparisonColumns, _deleteRecordColumn)) {
+          Iterator<RecordInfo> recordInfoIterator =
+              UpsertUtils.getRecordInfoIterator(recordInfoReader, segment.getSegmentMetadata().getTotalDocs());
+          addSegment(segment, null, null, recordInfoIterator);
+        }
+      }
     } catch (Exception e) {
       throw new RuntimeException(
           String.format("Caught exception while adding segment: %s, table: %s", segmentName, _tableNameWithType), e);
@@ -452,6 +485,72 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
         System.currentTimeMillis() - startTimeMs, numPrimaryKeys);
   }
 
+  /**
+   * Restores the record locations of the given segment from the metadata checkpoint. Returns {@code false} when the
+   * segment is not in the checkpoint (e.g. committed or replaced after the checkpoint is taken), in which case the
+   * records should be read from the segment.
+   * <p>The checkpoint keeps the valid docs of each segment at the time the checkpoint is taken, which can be older than
+   * the validDocIds snapshots as the checkpoint is not taken on every snapshot. The records are added with comparison
+   * against the existing record locations, so that the segments committed after the checkpoint is taken can override
+   * them.
+   */
+  private boolean restoreSegmentFromCheckpoint(ImmutableSegmentImpl segment) {
+    if (_metadataCheckpoint == null || !_metadataCheckpoint.isLoaded()) {
+      return false;
+    }
+    String segmentName = segment.getSegmentName();
+    long startTimeMs = System.currentTimeMillis();
+    Iterator<UpsertMetadataCheckpoint.CheckpointRecord> records =
+        _metadataCheckpoint.getRecords(segmentName, segment.getSegmentMetadata().getCrc(),
+            segment.getSegmentMetadata().getTotalDocs());
+    if (records == null) {
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.UPSERT_CHECKPOINT_MISSED_SEGMENTS, 1);
+      return false;
+    }
+    ThreadSafeMutableRoaringBitmap validDocIds = new ThreadSafeMutableRoaringBitmap();
+    ThreadSafeMutableRoaringBitmap queryableDocIds =
+        _deleteRecordColumn != null ? new ThreadSafeMutableRoaringBitmap() : null;
+    addSegmentFromCheckpoint(segment, validDocIds, queryableDocIds, records);
+    long duration = System.currentTimeMillis() - startTimeMs;
+    int numRecords = validDocIds.getMutableRoaringBitmap().getCardinality();
+    _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.UPSERT_CHECKPOINT_RESTORED_SEGMENTS, 1);
+    _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.UPSERT_CHECKPOINT_RESTORED_ROWS, numRecords);
+    _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.UPSERT_CHECKPOINT_RESTORE_TIME_MS, duration,
+        TimeUnit.MILLISECONDS);
+    _logger.info("Restored {} records of segment: {} from metadata checkpoint in {}ms", numRecords, segmentName,
+        duration);
+    return true;
+  }
+
+  /**
+   * Returns whether the manager supports restoring the upsert metadata from {@link UpsertMetadataCheckpoint}, which
+   * requires overriding {@link #forEachRecordLocation} and {@link #addSegmentFromCheckpoint}.
+   */
+  protected boolean isMetadataCheckpointSupported() {
+    return false;
+  }
+
+  /**
+   * Iterates the primary key to record location map to write the metadata checkpoint. This is invoked by the consuming
+   * thread after taking the snapshot without holding the snapshot lock, so the record locations won't be changed by
+   * ingestion, but might be changed by segments being added or replaced during the iteration.
+   */
+  protected void forEachRecordLocation(UpsertMetadataCheckpoint.RecordLocationConsumer consumer) {
+    throw new UnsupportedOperationException("Upsert metadata checkpoint is not supported");
+  }
+
+  /**
+   * Adds the records of the given segment restored from the metadata checkpoint. The records are the valid docs of the
+   * segment, and come with the key of the primary key to record location map instead of the primary key. They should
+   * be put into the map directly, and only compared with the existing record locations (e.g. from the segments not in
+   * the checkpoint) when the key already exists.
+   */
+  protected void addSegmentFromCheckpoint(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds,
+      Iterator<UpsertMetadataCheckpoint.CheckpointRecord> records) {
+    throw new UnsupportedOperationException("Upsert metadata checkpoint is not supported");
+  }
+
   protected abstract long getNumPrimaryKeys();
 
   protected void updatePrimaryKeyGauge(long numPrimaryKeys) {
@@ -492,6 +591,19 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
     _logger.info("Preloading segment: {}, current primary key count: {}", segmentName, getNumPrimaryKeys());
     long startTimeMs = System.currentTimeMillis();
 
+    try {
+      if (restoreSegmentFromCheckpoint(segment)) {
+        updatePrimaryKeyGauge();
+        _logger.info("Finished preloading segment: {} from metadata checkpoint in {}ms", segmentName,
+            System.currentTimeMillis() - startTimeMs);
+        return;
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(
+          String.format("Caught exception while preloading segment: %s from metadata checkpoint, table: %s",
+              segmentName, _tableNameWithType), e);
+    }
+
     MutableRoaringBitmap validDocIds = segment.loadValidDocIdsFromSnapshot();
     Preconditions.checkState(validDocIds != null,
         "Snapshot of validDocIds is required to preload segment: %s, table: %s", segmentName, _tableNameWithType);
@@ -504,7 +616,14 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
 
     try (UpsertUtils.RecordInfoReader recordInfoReader = new UpsertUtils.RecordInfoReader(segment, _primaryKeyColumns,
         _comparisonColumns, _deleteRecordColumn)) {
-      doPreloadSegment(segment, null, null, UpsertUtils.getRecordInfoIterator(recordInfoReader, validDocIds));
+      Iterator<RecordInfo> recordInfoIterator = UpsertUtils.getRecordInfoIterator(recordInfoReader, validDocIds);
+      if (_metadataCheckpointLoaded) {
+        // The segments restored from the checkpoint might not be consistent with the validDocIds snapshot of this
+        // segment, so the valid docs need to be compared against them
+        addSegment(segment, null, null, recordInfoIterator);
+      } else {
+        doPreloadSegment(segment, null, null, recordInfoIterator);
+      }
     } catch (Exception e) {
       throw new RuntimeException(
           String.format("Caught exception while preloading segment: %s, table: %s", segmentName, _tableNameWithType),
@@ -910,17 +1029,32 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
       _logger.info("Skip taking snapshot because metadata manager is already stopped");
       return;
     }
-    _snapshotLock.writeLock().lock();
+    boolean writeMetadataCheckpoint = _metadataCheckpoint != null
+        && System.currentTimeMillis() - _lastMetadataCheckpointTimeMs >= _metadataCheckpointIntervalMs;
     try {
-      long startTime = System.currentTimeMillis();
-      doTakeSnapshot();
-      long duration = System.currentTimeMillis() - startTime;
-      _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.UPSERT_SNAPSHOT_TIME_MS, duration,
-          TimeUnit.MILLISECONDS);
-    } catch (Exception e) {
-      _logger.warn("Caught exception while taking snapshot", e);
+      _snapshotLock.writeLock().lock();
+      try {
+        long startTime = System.currentTimeMillis();
+        doTakeSnapshot();
+        if (writeMetadataCheckpoint) {
+          // Unload the checkpoint while no segment is being restored from it, so that it can be replaced
+          _metadataCheckpoint.close();
+        }
+        long duration = System.currentTimeMillis() - startTime;
+        _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.UPSERT_SNAPSHOT_TIME_MS, duration,
+            TimeUnit.MILLISECONDS);
+      } catch (Exception e) {
+        _logger.warn("Caught exception while taking snapshot", e);
+      } finally {
+        _snapshotLock.writeLock().unlock();
+      }
+      // Write the checkpoint without blocking the segment operations. The record locations might change while writing
+      // (e.g. segment being replaced), in which case the affected segments are not restored from the checkpoint.
+      if (writeMetadataCheckpoint) {
+        writeMetadataCheckpoint();
+        _lastMetadataCheckpointTimeMs = System.currentTimeMillis();
+      }
     } finally {
-      _snapshotLock.writeLock().unlock();
       finishOperation();
     }
   }
@@ -1115,6 +1249,9 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
             String.format("Interrupted while waiting for %d pending operations to finish", _numPendingOperations), e);
       }
     }
+    if (_metadataCheckpoint != null) {
+      _metadataCheckpoint.close();
+    }
     doClose();
     // We don't remove the segment from the metadata manager when
     // it's closed. This was done to make table deletion faster. Since we don't remove the segment, we never decrease
@@ -1355,6 +1492,28 @@ public abstract class BasePartitionUpsertMetadataManager implements PartitionUps
     return _updatedSegmentsSinceLastRefresh;
   }
 
+  /**
+   * Writes the metadata checkpoint for the tracked immutable segments. Failing to write the checkpoint doesn't fail the
+   * snapshot, and the segments are read from the columns on the next restart instead.
+   */
+  private void writeMetadataCheckpoint() {
+    long startTimeMs = System.currentTimeMillis();
+    List<ImmutableSegment> segments = new ArrayList<>();
+    for (IndexSegment segment : _trackedSegments) {
+      if (segment instanceof ImmutableSegmentImpl) {
+        segments.add((ImmutableSegment) segment);
+      }
+    }
+    try {
+      long numRecords = _metadataCheckpoint.write(segments, this::forEachRecordLocation);
+      _logger.info("Wrote metadata checkpoint with {} records for {} immutable segments in {}ms", numRecords,
+          segments.size(), System.currentTimeMillis() - startTimeMs);
+    } catch (Exception e) {
+      _logger.warn("Caught exception while writing metadata checkpoint, skipping", e);
+      _metadataCheckpoint.delete();
+    }
+  }
+
   protected void doClose()
       throws IOException {
   }
@@ -67,6 +67,8 @@ public abstract class BaseTableUpsertMetadataManager implements TableUpsertMetad
     HashFunction hashFunction = upsertConfig.getHashFunction();
     boolean enableSnapshot = upsertConfig.isEnableSnapshot();
     boolean enablePreload = upsertConfig.isEnablePreload();
+    boolean enableMetadataCheckpoint = upsertConfig.isEnableMetadataCheckpoint();
+    long metadataCheckpointIntervalMs = upsertConfig.getMetadataCheckpointIntervalMs();
     double metadataTTL = upsertConfig.getMetadataTTL();
     double deletedKeysTTL = upsertConfig.getDeletedKeysTTL();
     _consistencyMode = upsertConfig.getConsistencyMode();
@@ -79,16 +81,20 @@ public abstract class BaseTableUpsertMetadataManager implements TableUpsertMetad
         .setPrimaryKeyColumns(primaryKeyColumns).setComparisonColumns(comparisonColumns)
         .setDeleteRecordColumn(deleteRecordColumn).setHashFunction(hashFunction)
         .setPartialUpsertHandler(partialUpsertHandler).setEnableSnapshot(enableSnapshot).setEnablePreload(enablePreload)
-        .setMetadataTTL(metadataTTL).setDeletedKeysTTL(deletedKeysTTL).setConsistencyMode(_consistencyMode)
+        .setEnableMetadataCheckpoint(enableMetadataCheckpoint)
+        .setMetadataCheckpointIntervalMs(metadataCheckpointIntervalMs).setMetadataTTL(metadataTTL)
+        .setDeletedKeysTTL(deletedKeysTTL).setConsistencyMode(_consistencyMode)
         .setUpsertViewRefreshIntervalMs(upsertViewRefreshIntervalMs).setTableIndexDir(tableIndexDir)
         .setTableDataManager(tableDataManager).build();
     LOGGER.info(
         "Initialized {} for table: {} with primary key columns: {}, comparison columns: {}, delete record column: {},"
-            + " hash function: {}, upsert mode: {}, enable snapshot: {}, enable preload: {}, metadata TTL: {},"
+            + " hash function: {}, upsert mode: {}, enable snapshot: {}, enable preload: {},"
+            + " enable metadata checkpoint: {}, metadata checkpoint interval: {}ms, metadata TTL: {},"
             + " deleted Keys TTL: {}, consistency mode: {}, upsert view refresh interval: {}ms, table index dir: {}",
         getClass().getSimpleName(), _tableNameWithType, primaryKeyColumns, comparisonColumns, deleteRecordColumn,
-        hashFunction, upsertConfig.getMode(), enableSnapshot, enablePreload, metadataTTL, deletedKeysTTL,
-        _consistencyMode, upsertViewRefreshIntervalMs, tableIndexDir);
+        hashFunction, upsertConfig.getMode(), enableSnapshot, enablePreload, enableMetadataCheckpoint,
+        metadataCheckpointIntervalMs, metadataTTL, deletedKeysTTL, _consistencyMode, upsertViewRefreshIntervalMs,
+        tableIndexDir);
 
     initCustomVariables();
   }
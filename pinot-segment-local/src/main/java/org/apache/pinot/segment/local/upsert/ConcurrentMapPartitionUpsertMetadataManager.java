@@ -166,6 +166,48 @@ public class ConcurrentMapPartitionUpsertMetadataManager extends BasePartitionUp
     }
   }
 
+  @Override
+  protected boolean isMetadataCheckpointSupported() {
+    return true;
+  }
+
+  @Override
+  protected void forEachRecordLocation(UpsertMetadataCheckpoint.RecordLocationConsumer consumer) {
+    _primaryKeyToRecordLocationMap.forEach(
+        (key, recordLocation) -> consumer.accept(key, recordLocation.getSegment(), recordLocation.getDocId(),
+            recordLocation.getComparisonValue()));
+  }
+
+  @Override
+  protected void addSegmentFromCheckpoint(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds,
+      Iterator<UpsertMetadataCheckpoint.CheckpointRecord> records) {
+    String segmentName = segment.getSegmentName();
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+    while (records.hasNext()) {
+      UpsertMetadataCheckpoint.CheckpointRecord record = records.next();
+      int newDocId = record.getDocId();
+      Comparable newComparisonValue = record.getComparisonValue();
+      _primaryKeyToRecordLocationMap.compute(record.getKey(), (primaryKey, currentRecordLocation) -> {
+        if (currentRecordLocation == null) {
+          addDocId(segment, validDocIds, queryableDocIds, newDocId, record);
+          return new RecordLocation(segment, newDocId, newComparisonValue);
+        }
+        // The key is added by a segment not in the checkpoint, and can only be replaced by a newer record
+        IndexSegment currentSegment = currentRecordLocation.getSegment();
+        int comparisonResult = newComparisonValue.compareTo(currentRecordLocation.getComparisonValue());
+        if (comparisonResult > 0 || (comparisonResult == 0 && shouldReplaceOnComparisonTie(segmentName,
+            currentSegment.getSegmentName(), segment.getSegmentMetadata().getIndexCreationTime(),
+            currentSegment.getSegmentMetadata().getIndexCreationTime()))) {
+          replaceDocId(segment, validDocIds, queryableDocIds, currentSegment, currentRecordLocation.getDocId(),
+              newDocId, record);
+          return new RecordLocation(segment, newDocId, newComparisonValue);
+        }
+        return currentRecordLocation;
+      });
+    }
+  }
+
   @Override
   protected void removeSegment(IndexSegment segment, Iterator<PrimaryKey> primaryKeyIterator) {
     while (primaryKeyIterator.hasNext()) {
@@ -0,0 +1,539 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.segment.readers.LazyRow;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Implementation of {@link PartitionUpsertMetadataManager} that is backed by an
+ * {@link OffHeapPrimaryKeyToRecordLocationMap}, which keeps the primary keys and the record locations out of the
+ * Java heap.
+ * <p>Segments are referenced by ordinals assigned when they are first added to the manager. Ordinals are never reused,
+ * so that a stale ordinal (e.g. of a segment already removed) resolves to no segment instead of a wrong one.
+ * <p>Only single comparison column of numeric type (INT, LONG, FLOAT, DOUBLE) is supported, so that the comparison
+ * value can be packed into a long.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@ThreadSafe
+public class OffHeapPartitionUpsertMetadataManager extends BasePartitionUpsertMetadataManager {
+  public static final String INITIAL_CAPACITY_KEY = "offHeapInitialCapacity";
+
+  private static final long NO_LOCATION = OffHeapPrimaryKeyToRecordLocationMap.NO_LOCATION;
+
+  // Used to initialize a reference to previous row for merging in partial upsert
+  private final LazyRow _reusePreviousRow = new LazyRow();
+  private final Map<String, Object> _reuseMergeResultHolder = new HashMap<>();
+
+  private final DataType _comparisonColumnStoredType;
+  private final Map<IndexSegment, Integer> _segmentToOrdinalMap = new ConcurrentHashMap<>();
+  // Modified only while holding the _segmentOrdinalLock, and read without lock. The segment is always registered before
+  // its ordinal is put into the map, so the readers can always find the segment for the ordinals in the map.
+  private final Object _segmentOrdinalLock = new Object();
+  private volatile IndexSegment[] _segments = new IndexSegment[16];
+  private int _nextSegmentOrdinal;
+
+  @VisibleForTesting
+  final OffHeapPrimaryKeyToRecordLocationMap _primaryKeyToRecordLocationMap;
+
+  public OffHeapPartitionUpsertMetadataManager(String tableNameWithType, int partitionId, UpsertContext context) {
+    super(tableNameWithType, partitionId, context);
+    _comparisonColumnStoredType = getComparisonColumnStoredType(context);
+    int initialCapacity = OffHeapPrimaryKeyToRecordLocationMap.DEFAULT_INITIAL_CAPACITY;
+    Map<String, String> metadataManagerConfigs = context.getTableConfig() != null
+        && context.getTableConfig().getUpsertConfig() != null ? context.getTableConfig().getUpsertConfig()
+        .getMetadataManagerConfigs() : null;
+    if (metadataManagerConfigs != null && metadataManagerConfigs.containsKey(INITIAL_CAPACITY_KEY)) {
+      initialCapacity = Integer.parseInt(metadataManagerConfigs.get(INITIAL_CAPACITY_KEY));
+    }
+    _primaryKeyToRecordLocationMap = new OffHeapPrimaryKeyToRecordLocationMap(initialCapacity,
+        "UpsertPrimaryKeyMap: " + tableNameWithType + "-" + partitionId);
+  }
+
+  /**
+   * Returns the stored type of the comparison column, and validates that it can be packed into a long.
+   */
+  static DataType getComparisonColumnStoredType(UpsertContext context) {
+    Preconditions.checkArgument(context.getComparisonColumns().size() == 1,
+        "Off-heap upsert metadata manager does not support multiple comparison columns: %s",
+        context.getComparisonColumns());
+    String comparisonColumn = context.getComparisonColumns().get(0);
+    FieldSpec fieldSpec = context.getSchema().getFieldSpecFor(comparisonColumn);
+    Preconditions.checkArgument(fieldSpec != null, "Failed to find comparison column: %s in schema", comparisonColumn);
+    DataType storedType = fieldSpec.getDataType().getStoredType();
+    switch (storedType) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return storedType;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Off-heap upsert metadata manager does not support comparison column: %s of type: %s",
+                comparisonColumn, storedType));
+    }
+  }
+
+  @Override
+  protected long getNumPrimaryKeys() {
+    return _primaryKeyToRecordLocationMap.size();
+  }
+
+  @Override
+  protected void updatePrimaryKeyGauge(long numPrimaryKeys) {
+    super.updatePrimaryKeyGauge(numPrimaryKeys);
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId,
+        ServerGauge.UPSERT_PRIMARY_KEYS_OFF_HEAP_MEMORY_BYTES, _primaryKeyToRecordLocationMap.getOffHeapMemoryBytes());
+  }
+
+  @Override
+  protected void doAddOrReplaceSegment(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, Iterator<RecordInfo> recordInfoIterator,
+      @Nullable IndexSegment oldSegment, @Nullable MutableRoaringBitmap validDocIdsForOldSegment) {
+    String segmentName = segment.getSegmentName();
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+    int segmentOrdinal = getOrAssignSegmentOrdinal(segment);
+
+    AtomicInteger numKeysInWrongSegment = new AtomicInteger();
+    while (recordInfoIterator.hasNext()) {
+      RecordInfo recordInfo = recordInfoIterator.next();
+      int newDocId = recordInfo.getDocId();
+      long newComparisonValue = toComparisonValue(recordInfo.getComparisonValue());
+      long newLocation = OffHeapPrimaryKeyToRecordLocationMap.toLocation(segmentOrdinal, newDocId);
+      _primaryKeyToRecordLocationMap.compute(getKeyBytes(recordInfo.getPrimaryKey()), newComparisonValue,
+          (currentLocation, currentComparisonValue) -> {
+            IndexSegment currentSegment = currentLocation != NO_LOCATION ? getSegment(currentLocation) : null;
+            if (currentSegment != null) {
+              // Existing primary key
+              int currentDocId = OffHeapPrimaryKeyToRecordLocationMap.getDocId(currentLocation);
+              int comparisonResult = compareComparisonValues(newComparisonValue, currentComparisonValue);
+
+              // The current record is in the same segment
+              // Update the record location when there is a tie to keep the newer record. Note that the record info
+              // iterator will return records with incremental doc ids.
+              if (currentSegment == segment) {
+                if (comparisonResult >= 0) {
+                  replaceDocId(segment, validDocIds, queryableDocIds, currentDocId, newDocId, recordInfo);
+                  return newLocation;
+                } else {
+                  return currentLocation;
+                }
+              }
+
+              // The current record is in an old segment being replaced
+              // See ConcurrentMapPartitionUpsertMetadataManager for the details of the replacement semantics.
+              if (currentSegment == oldSegment) {
+                if (comparisonResult >= 0) {
+                  addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+                  if (validDocIdsForOldSegment != null) {
+                    validDocIdsForOldSegment.remove(currentDocId);
+                  }
+                  return newLocation;
+                } else {
+                  return currentLocation;
+                }
+              }
+
+              // This should not happen because the previously replaced segment should have all keys removed. We still
+              // handle it here, and also track the number of keys not properly replaced previously.
+              String currentSegmentName = currentSegment.getSegmentName();
+              if (currentSegmentName.equals(segmentName)) {
+                numKeysInWrongSegment.getAndIncrement();
+                if (comparisonResult >= 0) {
+                  addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+                  return newLocation;
+                } else {
+                  return currentLocation;
+                }
+              }
+
+              // The current record is in a different segment
+              // Update the record location when getting a newer comparison value, or the value is the same as the
+              // current value, but the segment has a larger sequence number (the segment is newer than the current
+              // segment).
+              if (comparisonResult > 0 || (comparisonResult == 0 && shouldReplaceOnComparisonTie(segmentName,
+                  currentSegmentName, segment.getSegmentMetadata().getIndexCreationTime(),
+                  currentSegment.getSegmentMetadata().getIndexCreationTime()))) {
+                replaceDocId(segment, validDocIds, queryableDocIds, currentSegment, currentDocId, newDocId, recordInfo);
+                return newLocation;
+              } else {
+                return currentLocation;
+              }
+            } else {
+              // New primary key
+              addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+              return newLocation;
+            }
+          });
+    }
+    int numKeys = numKeysInWrongSegment.get();
+    if (numKeys > 0) {
+      _logger.warn("Found {} primary keys in the wrong segment when adding segment: {}", numKeys, segmentName);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.UPSERT_KEYS_IN_WRONG_SEGMENT, numKeys);
+    }
+  }
+
+  @Override
+  protected void addSegmentWithoutUpsert(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, Iterator<RecordInfo> recordInfoIterator) {
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+    int segmentOrdinal = getOrAssignSegmentOrdinal(segment);
+    while (recordInfoIterator.hasNext()) {
+      RecordInfo recordInfo = recordInfoIterator.next();
+      int newDocId = recordInfo.getDocId();
+      addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+      _primaryKeyToRecordLocationMap.put(getKeyBytes(recordInfo.getPrimaryKey()),
+          OffHeapPrimaryKeyToRecordLocationMap.toLocation(segmentOrdinal, newDocId),
+          toComparisonValue(recordInfo.getComparisonValue()));
+    }
+  }
+
+  @Override
+  protected boolean isMetadataCheckpointSupported() {
+    return true;
+  }
+
+  /**
+   * The keys are checkpointed as the serialized bytes, and the comparison values as the packed longs.
+   */
+  @Override
+  protected void forEachRecordLocation(UpsertMetadataCheckpoint.RecordLocationConsumer consumer) {
+    _primaryKeyToRecordLocationMap.forEach((key, location, comparisonValue) -> {
+      IndexSegment segment = getSegment(location);
+      if (segment != null) {
+        consumer.accept(new ByteArray(key), segment, OffHeapPrimaryKeyToRecordLocationMap.getDocId(location),
+            comparisonValue);
+      }
+    });
+  }
+
+  @Override
+  protected void addSegmentFromCheckpoint(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds,
+      Iterator<UpsertMetadataCheckpoint.CheckpointRecord> records) {
+    String segmentName = segment.getSegmentName();
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+    int segmentOrdinal = getOrAssignSegmentOrdinal(segment);
+    while (records.hasNext()) {
+      UpsertMetadataCheckpoint.CheckpointRecord record = records.next();
+      int newDocId = record.getDocId();
+      long newComparisonValue = (Long) record.getComparisonValue();
+      long newLocation = OffHeapPrimaryKeyToRecordLocationMap.toLocation(segmentOrdinal, newDocId);
+      _primaryKeyToRecordLocationMap.compute(((ByteArray) record.getKey()).getBytes(), newComparisonValue,
+          (currentLocation, currentComparisonValue) -> {
+            IndexSegment currentSegment = currentLocation != NO_LOCATION ? getSegment(currentLocation) : null;
+            if (currentSegment == null) {
+              addDocId(segment, validDocIds, queryableDocIds, newDocId, record);
+              return newLocation;
+            }
+            // The key is added by a segment not in the checkpoint, and can only be replaced by a newer record
+            int comparisonResult = compareComparisonValues(newComparisonValue, currentComparisonValue);
+            if (comparisonResult > 0 || (comparisonResult == 0 && shouldReplaceOnComparisonTie(segmentName,
+                currentSegment.getSegmentName(), segment.getSegmentMetadata().getIndexCreationTime(),
+                currentSegment.getSegmentMetadata().getIndexCreationTime()))) {
+              replaceDocId(segment, validDocIds, queryableDocIds, currentSegment,
+                  OffHeapPrimaryKeyToRecordLocationMap.getDocId(currentLocation), newDocId, record);
+              return newLocation;
+            }
+            return currentLocation;
+          });
+    }
+  }
+
+  @Override
+  public void replaceSegment(ImmutableSegment segment, @Nullable ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, @Nullable Iterator<RecordInfo> recordInfoIterator,
+      IndexSegment oldSegment) {
+    super.replaceSegment(segment, validDocIds, queryableDocIds, recordInfoIterator, oldSegment);
+    // All the keys of the old segment are either replaced or removed at this point
+    releaseSegmentOrdinal(oldSegment);
+  }
+
+  @Override
+  protected void removeSegment(IndexSegment segment, Iterator<PrimaryKey> primaryKeyIterator) {
+    Integer segmentOrdinal = _segmentToOrdinalMap.get(segment);
+    if (segmentOrdinal == null) {
+      return;
+    }
+    int ordinal = segmentOrdinal;
+    while (primaryKeyIterator.hasNext()) {
+      PrimaryKey primaryKey = primaryKeyIterator.next();
+      _primaryKeyToRecordLocationMap.computeIfPresent(getKeyBytes(primaryKey),
+          (location, comparisonValue) -> OffHeapPrimaryKeyToRecordLocationMap.getSegmentOrdinal(location) == ordinal
+              ? NO_LOCATION : location);
+    }
+  }
+
+  @Override
+  protected void doRemoveSegment(IndexSegment segment) {
+    super.doRemoveSegment(segment);
+    releaseSegmentOrdinal(segment);
+  }
+
+  @Override
+  public void doRemoveExpiredPrimaryKeys() {
+    AtomicInteger numDeletedTTLKeysRemoved = new AtomicInteger();
+    double largestSeenComparisonValue = _largestSeenComparisonValue.get();
+    double metadataTTLKeysThreshold;
+    if (_metadataTTL > 0) {
+      metadataTTLKeysThreshold = largestSeenComparisonValue - _metadataTTL;
+    } else {
+      metadataTTLKeysThreshold = Double.MIN_VALUE;
+    }
+    double deletedKeysThreshold;
+    if (_deletedKeysTTL > 0) {
+      deletedKeysThreshold = largestSeenComparisonValue - _deletedKeysTTL;
+    } else {
+      deletedKeysThreshold = Double.MIN_VALUE;
+    }
+
+    int numRemoved = _primaryKeyToRecordLocationMap.removeIf((location, comparisonValueBits) -> {
+      double comparisonValue = toDouble(comparisonValueBits);
+      if (_metadataTTL > 0 && comparisonValue < metadataTTLKeysThreshold) {
+        return true;
+      } else if (_deletedKeysTTL > 0 && comparisonValue < deletedKeysThreshold) {
+        IndexSegment segment = getSegment(location);
+        if (segment == null) {
+          return false;
+        }
+        int docId = OffHeapPrimaryKeyToRecordLocationMap.getDocId(location);
+        ThreadSafeMutableRoaringBitmap currentQueryableDocIds = segment.getQueryableDocIds();
+        // if key not part of queryable doc id, it means it is deleted
+        if (currentQueryableDocIds != null && !currentQueryableDocIds.contains(docId)) {
+          removeDocId(segment, docId);
+          numDeletedTTLKeysRemoved.getAndIncrement();
+          return true;
+        }
+      }
+      return false;
+    });
+    if (_metadataTTL > 0) {
+      persistWatermark(largestSeenComparisonValue);
+    }
+
+    // Update metrics
+    updatePrimaryKeyGauge();
+    int numDeletedTTLKeys = numDeletedTTLKeysRemoved.get();
+    int numMetadataTTLKeys = numRemoved - numDeletedTTLKeys;
+    if (numMetadataTTLKeys > 0) {
+      _logger.info("Deleted {} primary keys based on metadataTTL", numMetadataTTLKeys);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.METADATA_TTL_PRIMARY_KEYS_REMOVED,
+          numMetadataTTLKeys);
+    }
+    if (numDeletedTTLKeys > 0) {
+      _logger.info("Deleted {} primary keys based on deletedKeysTTL", numDeletedTTLKeys);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.DELETED_KEYS_TTL_PRIMARY_KEYS_REMOVED,
+          numDeletedTTLKeys);
+    }
+  }
+
+  @Override
+  protected boolean doAddRecord(MutableSegment segment, RecordInfo recordInfo) {
+    AtomicBoolean isOutOfOrderRecord = new AtomicBoolean(false);
+    ThreadSafeMutableRoaringBitmap validDocIds = Objects.requireNonNull(segment.getValidDocIds());
+    ThreadSafeMutableRoaringBitmap queryableDocIds = segment.getQueryableDocIds();
+    int newDocId = recordInfo.getDocId();
+    Comparable newComparisonValue = recordInfo.getComparisonValue();
+    long newComparisonValueBits = toComparisonValue(newComparisonValue);
+    long newLocation = OffHeapPrimaryKeyToRecordLocationMap.toLocation(getOrAssignSegmentOrdinal(segment), newDocId);
+
+    // When TTL is enabled, update largestSeenComparisonValue when adding new record
+    if (_metadataTTL > 0 || _deletedKeysTTL > 0) {
+      double comparisonValue = ((Number) newComparisonValue).doubleValue();
+      _largestSeenComparisonValue.getAndUpdate(v -> Math.max(v, comparisonValue));
+    }
+
+    _primaryKeyToRecordLocationMap.compute(getKeyBytes(recordInfo.getPrimaryKey()), newComparisonValueBits,
+        (currentLocation, currentComparisonValue) -> {
+          IndexSegment currentSegment = currentLocation != NO_LOCATION ? getSegment(currentLocation) : null;
+          if (currentSegment != null) {
+            // Existing primary key
+
+            // Update the record location when the new comparison value is greater than or equal to the current value.
+            // Update the record location when there is a tie to keep the newer record.
+            if (compareComparisonValues(newComparisonValueBits, currentComparisonValue) >= 0) {
+              int currentDocId = OffHeapPrimaryKeyToRecordLocationMap.getDocId(currentLocation);
+              if (segment == currentSegment) {
+                replaceDocId(segment, validDocIds, queryableDocIds, currentDocId, newDocId, recordInfo);
+              } else {
+                replaceDocId(segment, validDocIds, queryableDocIds, currentSegment, currentDocId, newDocId, recordInfo);
+              }
+              return newLocation;
+            } else {
+              // Out-of-order record
+              handleOutOfOrderEvent(fromComparisonValue(currentComparisonValue), newComparisonValue);
+              isOutOfOrderRecord.set(true);
+              return currentLocation;
+            }
+          } else {
+            // New primary key
+            addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+            return newLocation;
+          }
+        });
+
+    updatePrimaryKeyGauge();
+    return !isOutOfOrderRecord.get();
+  }
+
+  @Override
+  protected GenericRow doUpdateRecord(GenericRow record, RecordInfo recordInfo) {
+    assert _partialUpsertHandler != null;
+    long newComparisonValue = toComparisonValue(recordInfo.getComparisonValue());
+    _primaryKeyToRecordLocationMap.computeIfPresent(getKeyBytes(recordInfo.getPrimaryKey()),
+        (location, comparisonValue) -> {
+          // Read the previous record if the following conditions are met:
+          // - New record is not a DELETE record
+          // - New record is not out-of-order
+          // - Previous record is not deleted
+          IndexSegment currentSegment = getSegment(location);
+          if (currentSegment != null && !recordInfo.isDeleteRecord()
+              && compareComparisonValues(newComparisonValue, comparisonValue) >= 0) {
+            ThreadSafeMutableRoaringBitmap currentQueryableDocIds = currentSegment.getQueryableDocIds();
+            int currentDocId = OffHeapPrimaryKeyToRecordLocationMap.getDocId(location);
+            if (currentQueryableDocIds == null || currentQueryableDocIds.contains(currentDocId)) {
+              _reusePreviousRow.init(currentSegment, currentDocId);
+              _partialUpsertHandler.merge(_reusePreviousRow, record, _reuseMergeResultHolder);
+              _reuseMergeResultHolder.clear();
+            }
+          }
+          return location;
+        });
+    return record;
+  }
+
+  @Override
+  protected void doClose()
+      throws IOException {
+    _primaryKeyToRecordLocationMap.close();
+    _segmentToOrdinalMap.clear();
+    synchronized (_segmentOrdinalLock) {
+      _segments = new IndexSegment[0];
+    }
+  }
+
+  private byte[] getKeyBytes(PrimaryKey primaryKey) {
+    return HashUtils.hashPrimaryKeyAsBytes(primaryKey, _hashFunction);
+  }
+
+  private int getOrAssignSegmentOrdinal(IndexSegment segment) {
+    Integer segmentOrdinal = _segmentToOrdinalMap.get(segment);
+    if (segmentOrdinal != null) {
+      return segmentOrdinal;
+    }
+    synchronized (_segmentOrdinalLock) {
+      return _segmentToOrdinalMap.computeIfAbsent(segment, k -> {
+        int ordinal = _nextSegmentOrdinal++;
+        IndexSegment[] segments = _segments;
+        if (ordinal >= segments.length) {
+          segments = Arrays.copyOf(segments, segments.length << 1);
+        }
+        segments[ordinal] = segment;
+        _segments = segments;
+        return ordinal;
+      });
+    }
+  }
+
+  private void releaseSegmentOrdinal(IndexSegment segment) {
+    synchronized (_segmentOrdinalLock) {
+      Integer segmentOrdinal = _segmentToOrdinalMap.remove(segment);
+      if (segmentOrdinal != null) {
+        _segments[segmentOrdinal] = null;
+      }
+    }
+  }
+
+  @Nullable
+  @VisibleForTesting
+  IndexSegment getSegment(long location) {
+    int segmentOrdinal = OffHeapPrimaryKeyToRecordLocationMap.getSegmentOrdinal(location);
+    IndexSegment[] segments = _segments;
+    return segmentOrdinal < segments.length ? segments[segmentOrdinal] : null;
+  }
+
+  private long toComparisonValue(Comparable comparisonValue) {
+    switch (_comparisonColumnStoredType) {
+      case INT:
+      case LONG:
+        return ((Number) comparisonValue).longValue();
+      case FLOAT:
+      case DOUBLE:
+        return Double.doubleToLongBits(((Number) comparisonValue).doubleValue());
+      default:
+        throw new IllegalStateException("Unsupported comparison column type: " + _comparisonColumnStoredType);
+    }
+  }
+
+  @VisibleForTesting
+  Comparable fromComparisonValue(long comparisonValue) {
+    switch (_comparisonColumnStoredType) {
+      case INT:
+        return (int) comparisonValue;
+      case LONG:
+        return comparisonValue;
+      case FLOAT:
+        return (float) Double.longBitsToDouble(comparisonValue);
+      case DOUBLE:
+        return Double.longBitsToDouble(comparisonValue);
+      default:
+        throw new IllegalStateException("Unsupported comparison column type: " + _comparisonColumnStoredType);
+    }
+  }
+
+  private double toDouble(long comparisonValue) {
+    return _comparisonColumnStoredType == DataType.INT || _comparisonColumnStoredType == DataType.LONG
+        ? (double) comparisonValue : Double.longBitsToDouble(comparisonValue);
+  }
+
+  private int compareComparisonValues(long comparisonValue1, long comparisonValue2) {
+    if (_comparisonColumnStoredType == DataType.INT || _comparisonColumnStoredType == DataType.LONG) {
+      return Long.compare(comparisonValue1, comparisonValue2);
+    } else {
+      return Double.compare(Double.longBitsToDouble(comparisonValue1), Double.longBitsToDouble(comparisonValue2));
+    }
+  }
+}
@@ -0,0 +1,453 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * Off-heap open-addressing hash map from serialized primary key to the packed record location (segment ordinal and doc
+ * id) and the comparison value of the record.
+ * <p>The map is split into a fixed number of stripes, each of them guarded by its own lock and holding two buffers:
+ * <ul>
+ *   <li>
+ *     Slot buffer: fixed size slots with linear probing. Each slot stores the key hash, the key length (with 0 for
+ *     empty slot and -1 for removed slot), the offset of the key inside the key buffer, the record location and the
+ *     comparison value.
+ *   </li>
+ *   <li>
+ *     Key buffer: append-only buffer storing the serialized keys. Bytes of the removed keys are reclaimed when the slot
+ *     buffer is rehashed.
+ *   </li>
+ * </ul>
+ * <p>The remapping functions are invoked while holding the stripe lock, which gives the same per-key atomicity as
+ * {@link java.util.concurrent.ConcurrentHashMap#compute}. They should be short and must not access the map.
+ */
+@ThreadSafe
+public class OffHeapPrimaryKeyToRecordLocationMap implements Closeable {
+  public static final long NO_LOCATION = -1L;
+  public static final int DEFAULT_INITIAL_CAPACITY = 4096;
+
+  private static final int NUM_STRIPES_SHIFT = 4;
+  private static final int NUM_STRIPES = 1 << NUM_STRIPES_SHIFT;
+  private static final int MIN_STRIPE_CAPACITY = 64;
+  private static final int MIN_KEY_BUFFER_SIZE = 4096;
+
+  // Slot layout: keyHash (int), keyLength + 1 (int), keyOffset (long), location (long), comparisonValue (long)
+  private static final int SLOT_SIZE = 32;
+  private static final int KEY_HASH_OFFSET = 0;
+  private static final int KEY_STATE_OFFSET = 4;
+  private static final int KEY_OFFSET_OFFSET = 8;
+  private static final int LOCATION_OFFSET = 16;
+  private static final int COMPARISON_VALUE_OFFSET = 24;
+  private static final int EMPTY = 0;
+  private static final int REMOVED = -1;
+
+  private final Stripe[] _stripes = new Stripe[NUM_STRIPES];
+  private final String _description;
+  private final AtomicLong _offHeapMemoryBytes = new AtomicLong();
+  private volatile boolean _closed;
+
+  public OffHeapPrimaryKeyToRecordLocationMap(int initialCapacity, String description) {
+    Preconditions.checkArgument(initialCapacity > 0, "Initial capacity must be positive, got: %s", initialCapacity);
+    _description = description;
+    int stripeCapacity =
+        Math.max(MIN_STRIPE_CAPACITY, Integer.highestOneBit(Math.max(1, (initialCapacity / NUM_STRIPES) - 1)) << 1);
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      _stripes[i] = new Stripe(stripeCapacity);
+    }
+  }
+
+  /**
+   * Packs the segment ordinal and doc id into a record location.
+   */
+  public static long toLocation(int segmentOrdinal, int docId) {
+    return ((long) segmentOrdinal << 32) | (docId & 0xFFFFFFFFL);
+  }
+
+  public static int getSegmentOrdinal(long location) {
+    return (int) (location >>> 32);
+  }
+
+  public static int getDocId(long location) {
+    return (int) location;
+  }
+
+  /**
+   * Computes the new location for the given key. The remapper is invoked with {@link #NO_LOCATION} when the key does
+   * not exist. When the remapper returns {@link #NO_LOCATION}, the key is removed (or not added); when it returns the
+   * current location, the entry is kept as is; otherwise the entry is updated with the returned location and the given
+   * comparison value.
+   */
+  public void compute(byte[] key, long newComparisonValue, LocationRemapper remapper) {
+    int hash = hash(key);
+    Stripe stripe = _stripes[hash >>> (Integer.SIZE - NUM_STRIPES_SHIFT)];
+    stripe._lock.lock();
+    try {
+      checkNotClosed();
+      int slot = stripe.find(key, hash);
+      if (slot >= 0) {
+        long slotOffset = (long) slot * SLOT_SIZE;
+        long currentLocation = stripe._slots.getLong(slotOffset + LOCATION_OFFSET);
+        long currentComparisonValue = stripe._slots.getLong(slotOffset + COMPARISON_VALUE_OFFSET);
+        long newLocation = remapper.remap(currentLocation, currentComparisonValue);
+        if (newLocation == NO_LOCATION) {
+          stripe.remove(slot);
+        } else if (newLocation != currentLocation) {
+          stripe._slots.putLong(slotOffset + LOCATION_OFFSET, newLocation);
+          stripe._slots.putLong(slotOffset + COMPARISON_VALUE_OFFSET, newComparisonValue);
+        }
+      } else {
+        long newLocation = remapper.remap(NO_LOCATION, 0L);
+        if (newLocation != NO_LOCATION) {
+          stripe.insert(key, hash, newLocation, newComparisonValue);
+        }
+      }
+    } finally {
+      stripe._lock.unlock();
+    }
+  }
+
+  /**
+   * Invokes the remapper when the given key exists. The entry is removed when the remapper returns
+   * {@link #NO_LOCATION}, and kept as is otherwise.
+   */
+  public void computeIfPresent(byte[] key, LocationRemapper remapper) {
+    int hash = hash(key);
+    Stripe stripe = _stripes[hash >>> (Integer.SIZE - NUM_STRIPES_SHIFT)];
+    stripe._lock.lock();
+    try {
+      checkNotClosed();
+      int slot = stripe.find(key, hash);
+      if (slot >= 0) {
+        long slotOffset = (long) slot * SLOT_SIZE;
+        long currentLocation = stripe._slots.getLong(slotOffset + LOCATION_OFFSET);
+        long currentComparisonValue = stripe._slots.getLong(slotOffset + COMPARISON_VALUE_OFFSET);
+        if (remapper.remap(currentLocation, currentComparisonValue) == NO_LOCATION) {
+          stripe.remove(slot);
+        }
+      }
+    } finally {
+      stripe._lock.unlock();
+    }
+  }
+
+  /**
+   * Puts the entry into the map, overriding the existing entry if any.
+   */
+  public void put(byte[] key, long location, long comparisonValue) {
+    compute(key, comparisonValue, (currentLocation, currentComparisonValue) -> location);
+  }
+
+  /**
+   * Returns the location for the given key, or {@link #NO_LOCATION} if the key does not exist.
+   */
+  public long getLocation(byte[] key) {
+    int hash = hash(key);
+    Stripe stripe = _stripes[hash >>> (Integer.SIZE - NUM_STRIPES_SHIFT)];
+    stripe._lock.lock();
+    try {
+      checkNotClosed();
+      int slot = stripe.find(key, hash);
+      return slot >= 0 ? stripe._slots.getLong((long) slot * SLOT_SIZE + LOCATION_OFFSET) : NO_LOCATION;
+    } finally {
+      stripe._lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all the entries matching the given predicate, and returns the number of entries removed. Stripes are
+   * processed one at a time, so the entries in the other stripes can still be accessed concurrently.
+   */
+  public int removeIf(EntryPredicate predicate) {
+    int numRemoved = 0;
+    for (Stripe stripe : _stripes) {
+      stripe._lock.lock();
+      try {
+        checkNotClosed();
+        for (int slot = 0; slot < stripe._capacity; slot++) {
+          long slotOffset = (long) slot * SLOT_SIZE;
+          if (stripe._slots.getInt(slotOffset + KEY_STATE_OFFSET) > 0 && predicate.test(
+              stripe._slots.getLong(slotOffset + LOCATION_OFFSET),
+              stripe._slots.getLong(slotOffset + COMPARISON_VALUE_OFFSET))) {
+            stripe.remove(slot);
+            numRemoved++;
+          }
+        }
+      } finally {
+        stripe._lock.unlock();
+      }
+    }
+    return numRemoved;
+  }
+
+  /**
+   * Invokes the consumer for all the entries. Stripes are processed one at a time, and the consumer is invoked while
+   * holding the stripe lock.
+   */
+  public void forEach(EntryConsumer consumer) {
+    for (Stripe stripe : _stripes) {
+      stripe._lock.lock();
+      try {
+        checkNotClosed();
+        for (int slot = 0; slot < stripe._capacity; slot++) {
+          long slotOffset = (long) slot * SLOT_SIZE;
+          int state = stripe._slots.getInt(slotOffset + KEY_STATE_OFFSET);
+          if (state > 0) {
+            byte[] key = new byte[state - 1];
+            stripe._keys.copyTo(stripe._slots.getLong(slotOffset + KEY_OFFSET_OFFSET), key);
+            consumer.accept(key, stripe._slots.getLong(slotOffset + LOCATION_OFFSET),
+                stripe._slots.getLong(slotOffset + COMPARISON_VALUE_OFFSET));
+          }
+        }
+      } finally {
+        stripe._lock.unlock();
+      }
+    }
+  }
+
+  public long size() {
+    long size = 0;
+    for (Stripe stripe : _stripes) {
+      size += stripe._size;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the total size of the off-heap buffers allocated by the map.
+   */
+  public long getOffHeapMemoryBytes() {
+    return _offHeapMemoryBytes.get();
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    for (Stripe stripe : _stripes) {
+      stripe._lock.lock();
+      try {
+        if (!_closed) {
+          stripe.release();
+        }
+      } finally {
+        stripe._lock.unlock();
+      }
+    }
+    _closed = true;
+  }
+
+  private void checkNotClosed() {
+    Preconditions.checkState(!_closed, "Primary key map: %s is already closed", _description);
+  }
+
+  private static int hash(byte[] key) {
+    int hash = Arrays.hashCode(key) * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private PinotDataBuffer allocate(long size) {
+    PinotDataBuffer buffer = PinotDataBuffer.allocateDirect(size, PinotDataBuffer.NATIVE_ORDER, _description);
+    _offHeapMemoryBytes.addAndGet(size);
+    return buffer;
+  }
+
+  private void releaseBuffer(PinotDataBuffer buffer) {
+    _offHeapMemoryBytes.addAndGet(-buffer.size());
+    try {
+      buffer.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while releasing buffer for primary key map: " + _description, e);
+    }
+  }
+
+  @FunctionalInterface
+  public interface LocationRemapper {
+    long remap(long currentLocation, long currentComparisonValue);
+  }
+
+  @FunctionalInterface
+  public interface EntryPredicate {
+    boolean test(long location, long comparisonValue);
+  }
+
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(byte[] key, long location, long comparisonValue);
+  }
+
+  private final class Stripe {
+    final ReentrantLock _lock = new ReentrantLock();
+    PinotDataBuffer _slots;
+    int _capacity;
+    int _mask;
+    volatile int _size;
+    int _numRemovedSlots;
+    PinotDataBuffer _keys;
+    long _keysEndOffset;
+    long _numGarbageKeyBytes;
+
+    Stripe(int capacity) {
+      _slots = allocateSlots(capacity);
+      _capacity = capacity;
+      _mask = capacity - 1;
+      _keys = allocate(MIN_KEY_BUFFER_SIZE);
+    }
+
+    PinotDataBuffer allocateSlots(int capacity) {
+      long size = (long) capacity * SLOT_SIZE;
+      PinotDataBuffer slots = allocate(size);
+      for (long offset = 0; offset < size; offset += Long.BYTES) {
+        slots.putLong(offset, 0L);
+      }
+      return slots;
+    }
+
+    /**
+     * Returns the slot of the key if it exists, or {@code -1} otherwise.
+     */
+    int find(byte[] key, int hash) {
+      int slot = hash & _mask;
+      while (true) {
+        long slotOffset = (long) slot * SLOT_SIZE;
+        int state = _slots.getInt(slotOffset + KEY_STATE_OFFSET);
+        if (state == EMPTY) {
+          return -1;
+        }
+        if (state == key.length + 1 && _slots.getInt(slotOffset + KEY_HASH_OFFSET) == hash && keyEquals(key,
+            _slots.getLong(slotOffset + KEY_OFFSET_OFFSET))) {
+          return slot;
+        }
+        slot = (slot + 1) & _mask;
+      }
+    }
+
+    boolean keyEquals(byte[] key, long keyOffset) {
+      for (int i = 0; i < key.length; i++) {
+        if (_keys.getByte(keyOffset + i) != key[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void insert(byte[] key, int hash, long location, long comparisonValue) {
+      // Keep the load factor (including the removed slots) under 0.75 so that probing always terminates quickly
+      if ((_size + _numRemovedSlots + 1) * 4L > _capacity * 3L) {
+        rehash(_size * 2L >= _capacity ? _capacity << 1 : _capacity);
+      }
+      if (_keysEndOffset + key.length > _keys.size()) {
+        if (_numGarbageKeyBytes * 2 > _keysEndOffset) {
+          rehash(_capacity);
+        }
+        if (_keysEndOffset + key.length > _keys.size()) {
+          PinotDataBuffer keys = allocate(Math.max(_keys.size() << 1, _keysEndOffset + key.length));
+          _keys.copyTo(0, keys, 0, _keysEndOffset);
+          releaseBuffer(_keys);
+          _keys = keys;
+        }
+      }
+      long keyOffset = _keysEndOffset;
+      _keys.readFrom(keyOffset, key);
+      _keysEndOffset += key.length;
+
+      int slot = hash & _mask;
+      while (true) {
+        long slotOffset = (long) slot * SLOT_SIZE;
+        int state = _slots.getInt(slotOffset + KEY_STATE_OFFSET);
+        if (state == EMPTY || state == REMOVED) {
+          if (state == REMOVED) {
+            _numRemovedSlots--;
+          }
+          putSlot(_slots, slotOffset, hash, key.length, keyOffset, location, comparisonValue);
+          _size++;
+          return;
+        }
+        slot = (slot + 1) & _mask;
+      }
+    }
+
+    void remove(int slot) {
+      long slotOffset = (long) slot * SLOT_SIZE;
+      _numGarbageKeyBytes += _slots.getInt(slotOffset + KEY_STATE_OFFSET) - 1;
+      _slots.putInt(slotOffset + KEY_STATE_OFFSET, REMOVED);
+      _numRemovedSlots++;
+      _size--;
+    }
+
+    /**
+     * Rebuilds the slots with the given capacity, and compacts the keys by dropping the bytes of the removed keys.
+     */
+    void rehash(int newCapacity) {
+      PinotDataBuffer newSlots = allocateSlots(newCapacity);
+      int newMask = newCapacity - 1;
+      long numKeyBytes = _keysEndOffset - _numGarbageKeyBytes;
+      PinotDataBuffer newKeys = allocate(Math.max(MIN_KEY_BUFFER_SIZE, numKeyBytes << 1));
+      long newKeysEndOffset = 0;
+      for (int slot = 0; slot < _capacity; slot++) {
+        long slotOffset = (long) slot * SLOT_SIZE;
+        int state = _slots.getInt(slotOffset + KEY_STATE_OFFSET);
+        if (state <= 0) {
+          continue;
+        }
+        int hash = _slots.getInt(slotOffset + KEY_HASH_OFFSET);
+        int keyLength = state - 1;
+        _keys.copyTo(_slots.getLong(slotOffset + KEY_OFFSET_OFFSET), newKeys, newKeysEndOffset, keyLength);
+        int newSlot = hash & newMask;
+        while (newSlots.getInt((long) newSlot * SLOT_SIZE + KEY_STATE_OFFSET) != EMPTY) {
+          newSlot = (newSlot + 1) & newMask;
+        }
+        putSlot(newSlots, (long) newSlot * SLOT_SIZE, hash, keyLength, newKeysEndOffset,
+            _slots.getLong(slotOffset + LOCATION_OFFSET), _slots.getLong(slotOffset + COMPARISON_VALUE_OFFSET));
+        newKeysEndOffset += keyLength;
+      }
+      releaseBuffer(_slots);
+      releaseBuffer(_keys);
+      _slots = newSlots;
+      _capacity = newCapacity;
+      _mask = newMask;
+      _numRemovedSlots = 0;
+      _keys = newKeys;
+      _keysEndOffset = newKeysEndOffset;
+      _numGarbageKeyBytes = 0;
+    }
+
+    void release() {
+      releaseBuffer(_slots);
+      releaseBuffer(_keys);
+      _size = 0;
+    }
+  }
+
+  private static void putSlot(PinotDataBuffer slots, long slotOffset, int hash, int keyLength, long keyOffset,
+      long location, long comparisonValue) {
+    slots.putInt(slotOffset + KEY_HASH_OFFSET, hash);
+    slots.putInt(slotOffset + KEY_STATE_OFFSET, keyLength + 1);
+    slots.putLong(slotOffset + KEY_OFFSET_OFFSET, keyOffset);
+    slots.putLong(slotOffset + LOCATION_OFFSET, location);
+    slots.putLong(slotOffset + COMPARISON_VALUE_OFFSET, comparisonValue);
+  }
+}
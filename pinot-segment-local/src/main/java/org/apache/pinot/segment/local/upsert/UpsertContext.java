@@ -40,6 +40,8 @@ public class UpsertContext {
   private final PartialUpsertHandler _partialUpsertHandler;
   private final boolean _enableSnapshot;
   private final boolean _enablePreload;
+  private final boolean _enableMetadataCheckpoint;
+  private final long _metadataCheckpointIntervalMs;
   private final double _metadataTTL;
   private final double _deletedKeysTTL;
   private final UpsertConfig.ConsistencyMode _consistencyMode;
@@ -50,8 +52,9 @@ public class UpsertContext {
   private UpsertContext(TableConfig tableConfig, Schema schema, List<String> primaryKeyColumns,
       List<String> comparisonColumns, @Nullable String deleteRecordColumn, HashFunction hashFunction,
       @Nullable PartialUpsertHandler partialUpsertHandler, boolean enableSnapshot, boolean enablePreload,
-      double metadataTTL, double deletedKeysTTL, UpsertConfig.ConsistencyMode consistencyMode,
-      long upsertViewRefreshIntervalMs, File tableIndexDir, @Nullable TableDataManager tableDataManager) {
+      boolean enableMetadataCheckpoint, long metadataCheckpointIntervalMs, double metadataTTL, double deletedKeysTTL,
+      UpsertConfig.ConsistencyMode consistencyMode, long upsertViewRefreshIntervalMs, File tableIndexDir,
+      @Nullable TableDataManager tableDataManager) {
     _tableConfig = tableConfig;
     _schema = schema;
     _primaryKeyColumns = primaryKeyColumns;
@@ -61,6 +64,8 @@ public class UpsertContext {
     _partialUpsertHandler = partialUpsertHandler;
     _enableSnapshot = enableSnapshot;
     _enablePreload = enablePreload;
+    _enableMetadataCheckpoint = enableMetadataCheckpoint;
+    _metadataCheckpointIntervalMs = metadataCheckpointIntervalMs;
     _metadataTTL = metadataTTL;
     _deletedKeysTTL = deletedKeysTTL;
     _consistencyMode = consistencyMode;
@@ -105,6 +110,14 @@ public class UpsertContext {
     return _enablePreload;
   }
 
+  public boolean isMetadataCheckpointEnabled() {
+    return _enableMetadataCheckpoint;
+  }
+
+  public long getMetadataCheckpointIntervalMs() {
+    return _metadataCheckpointIntervalMs;
+  }
+
   public double getMetadataTTL() {
     return _metadataTTL;
   }
@@ -139,6 +152,8 @@ public class UpsertContext {
     private PartialUpsertHandler _partialUpsertHandler;
     private boolean _enableSnapshot;
     private boolean _enablePreload;
+    private boolean _enableMetadataCheckpoint;
+    private long _metadataCheckpointIntervalMs;
     private double _metadataTTL;
     private double _deletedKeysTTL;
     private UpsertConfig.ConsistencyMode _consistencyMode;
@@ -191,6 +206,16 @@ public class UpsertContext {
       return this;
     }
 
+    public Builder setEnableMetadataCheckpoint(boolean enableMetadataCheckpoint) {
+      _enableMetadataCheckpoint = enableMetadataCheckpoint;
+      return this;
+    }
+
+    public Builder setMetadataCheckpointIntervalMs(long metadataCheckpointIntervalMs) {
+      _metadataCheckpointIntervalMs = metadataCheckpointIntervalMs;
+      return this;
+    }
+
     public Builder setMetadataTTL(double metadataTTL) {
       _metadataTTL = metadataTTL;
       return this;
@@ -229,8 +254,9 @@ public class UpsertContext {
       Preconditions.checkState(_hashFunction != null, "Hash function must be set");
       Preconditions.checkState(_tableIndexDir != null, "Table index directory must be set");
       return new UpsertContext(_tableConfig, _schema, _primaryKeyColumns, _comparisonColumns, _deleteRecordColumn,
-          _hashFunction, _partialUpsertHandler, _enableSnapshot, _enablePreload, _metadataTTL, _deletedKeysTTL,
-          _consistencyMode, _upsertViewRefreshIntervalMs, _tableIndexDir, _tableDataManager);
+          _hashFunction, _partialUpsertHandler, _enableSnapshot, _enablePreload, _enableMetadataCheckpoint,
+          _metadataCheckpointIntervalMs, _metadataTTL, _deletedKeysTTL, _consistencyMode, _upsertViewRefreshIntervalMs,
+          _tableIndexDir, _tableDataManager);
     }
   }
 }
@@ -0,0 +1,578 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.BigDecimalUtils;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Checkpoint of the primary key to record location map of a partition, which is written after taking the validDocIds
+ * snapshots (at most once per configured interval) and is used to restore the upsert metadata on server restart
+ * without reading the primary key and comparison columns of the committed segments.
+ * <p>The checkpoint is a single file with the following layout:
+ * <ul>
+ *   <li>Header: magic (int), version (int), key format (string), number of segments (int)</li>
+ *   <li>
+ *     Segment table, indexed by segment ordinal: segment name (string), segment CRC (string), number of docs (int),
+ *     number of records (int, -1 if the records of the segment are incomplete), offset of the records (long)
+ *   </li>
+ *   <li>Records grouped by segment ordinal: doc id (int), delete flag (byte), comparison value, primary key</li>
+ * </ul>
+ * Each value starts with a type byte, followed by the serialized value for non-null values. The primary key is
+ * persisted in the same form as the key of the map (e.g. hashed bytes when hash function is configured), and the key
+ * format (the metadata manager class) is recorded so that a checkpoint is only restored by the same kind of manager.
+ * <p>The records of a segment are restored when the segment is added with the same name, CRC and number of docs as
+ * recorded in the checkpoint. Segments not in the checkpoint (e.g. committed or replaced after the checkpoint is taken)
+ * are read from the columns as usual.
+ */
+@ThreadSafe
+@SuppressWarnings("rawtypes")
+public class UpsertMetadataCheckpoint implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(UpsertMetadataCheckpoint.class);
+
+  public static final String CHECKPOINT_DIR_NAME = "upsert_checkpoint";
+  public static final String CHECKPOINT_FILE_NAME = "record_locations";
+
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+  private static final int MAGIC = 0x55505352;
+  private static final int VERSION = 2;
+  private static final int INCOMPLETE_RECORDS = -1;
+
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte FLOAT = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte STRING = 5;
+  private static final byte BYTES = 6;
+  private static final byte BIG_DECIMAL = 7;
+  private static final byte COMPARISON_COLUMNS = 8;
+  private static final byte PRIMARY_KEY = 9;
+
+  private final File _checkpointDir;
+  private final File _checkpointFile;
+  private final String _keyFormat;
+
+  // Segments not restored yet from the loaded checkpoint, and the buffer of the loaded checkpoint
+  private final Map<String, SegmentEntry> _segmentEntries = new ConcurrentHashMap<>();
+  private volatile PinotDataBuffer _buffer;
+
+  public UpsertMetadataCheckpoint(File tableIndexDir, int partitionId, String keyFormat) {
+    _checkpointDir = new File(new File(tableIndexDir, CHECKPOINT_DIR_NAME), "partition_" + partitionId);
+    _checkpointFile = new File(_checkpointDir, CHECKPOINT_FILE_NAME);
+    _keyFormat = keyFormat;
+  }
+
+  public File getCheckpointFile() {
+    return _checkpointFile;
+  }
+
+  /**
+   * Loads the checkpoint to restore the segments from. Returns {@code false} if the checkpoint doesn't exist or is
+   * invalid, in which case the invalid checkpoint is deleted.
+   */
+  public synchronized boolean load() {
+    unload();
+    if (!_checkpointFile.exists()) {
+      return false;
+    }
+    PinotDataBuffer buffer = null;
+    try {
+      buffer = PinotDataBuffer.mapReadOnlyBigEndianFile(_checkpointFile);
+      if (buffer.size() >= 2 * Integer.BYTES && buffer.getInt(0) == MAGIC && buffer.getInt(Integer.BYTES) == VERSION) {
+        long offset = 2 * Integer.BYTES;
+        String keyFormat = readString(buffer, offset);
+        offset += Integer.BYTES + buffer.getInt(offset);
+        if (keyFormat.equals(_keyFormat)) {
+          int numSegments = buffer.getInt(offset);
+          offset += Integer.BYTES;
+          for (int i = 0; i < numSegments; i++) {
+            String segmentName = readString(buffer, offset);
+            offset += Integer.BYTES + buffer.getInt(offset);
+            String crc = readString(buffer, offset);
+            offset += Integer.BYTES + buffer.getInt(offset);
+            int numDocs = buffer.getInt(offset);
+            int numRecords = buffer.getInt(offset + Integer.BYTES);
+            long recordsOffset = buffer.getLong(offset + 2 * Integer.BYTES);
+            offset += 2 * Integer.BYTES + Long.BYTES;
+            if (numRecords != INCOMPLETE_RECORDS) {
+              _segmentEntries.put(segmentName, new SegmentEntry(crc, numDocs, numRecords, recordsOffset));
+            }
+          }
+          _buffer = buffer;
+          return true;
+        }
+        LOGGER.info("Deleting upsert metadata checkpoint: {} with key format: {} not matching: {}", _checkpointFile,
+            keyFormat, _keyFormat);
+      } else {
+        LOGGER.info("Deleting upsert metadata checkpoint: {} with invalid header", _checkpointFile);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while loading upsert metadata checkpoint: {}, deleting it", _checkpointFile, e);
+    }
+    _segmentEntries.clear();
+    closeQuietly(buffer);
+    FileUtils.deleteQuietly(_checkpointFile);
+    return false;
+  }
+
+  public boolean isLoaded() {
+    return _buffer != null;
+  }
+
+  /**
+   * Returns the records of the given segment from the loaded checkpoint, or {@code null} if the segment is not in the
+   * checkpoint or doesn't match the segment CRC and number of docs. Records of each segment can be returned only once,
+   * and the caller should not unload the checkpoint before finishing the iteration.
+   */
+  @Nullable
+  public Iterator<CheckpointRecord> getRecords(String segmentName, String crc, int numDocs) {
+    SegmentEntry segmentEntry = _segmentEntries.remove(segmentName);
+    if (segmentEntry == null || !segmentEntry._crc.equals(crc) || segmentEntry._numDocs != numDocs) {
+      return null;
+    }
+    return new RecordIterator(_buffer, segmentEntry._recordsOffset, segmentEntry._numRecords);
+  }
+
+  /**
+   * Writes the checkpoint for the record locations in the given segments, and replaces the existing checkpoint. The
+   * record locations are iterated twice, first to size the records of each segment so that they can be grouped by
+   * segment ordinal, then to write them. Record locations in the other segments (e.g. consuming segments) are skipped.
+   * When the record locations change between the iterations, the records of the affected segments are marked as
+   * incomplete and the segments won't be restored from the checkpoint.
+   *
+   * @return Number of records written
+   */
+  public synchronized long write(Collection<? extends ImmutableSegment> segments,
+      RecordLocationIterable recordLocations)
+      throws IOException {
+    // Delete the existing checkpoint before writing the new one, so that a stale checkpoint is never restored
+    delete();
+    int numSegments = segments.size();
+    if (numSegments == 0) {
+      return 0;
+    }
+    Map<IndexSegment, Integer> segmentToOrdinalMap = new IdentityHashMap<>();
+    List<byte[]> segmentNames = new ArrayList<>(numSegments);
+    List<byte[]> crcs = new ArrayList<>(numSegments);
+    int[] numDocs = new int[numSegments];
+    MutableRoaringBitmap[] queryableDocIds = new MutableRoaringBitmap[numSegments];
+    byte[] keyFormat = _keyFormat.getBytes(StandardCharsets.UTF_8);
+    long headerSize = 3 * Integer.BYTES + Integer.BYTES + keyFormat.length;
+    for (ImmutableSegment segment : segments) {
+      int ordinal = segmentToOrdinalMap.size();
+      segmentToOrdinalMap.put(segment, ordinal);
+      byte[] segmentName = segment.getSegmentName().getBytes(StandardCharsets.UTF_8);
+      byte[] crc = segment.getSegmentMetadata().getCrc().getBytes(StandardCharsets.UTF_8);
+      segmentNames.add(segmentName);
+      crcs.add(crc);
+      numDocs[ordinal] = segment.getSegmentMetadata().getTotalDocs();
+      ThreadSafeMutableRoaringBitmap segmentQueryableDocIds = segment.getQueryableDocIds();
+      queryableDocIds[ordinal] =
+          segmentQueryableDocIds != null ? segmentQueryableDocIds.getMutableRoaringBitmap() : null;
+      headerSize += 4 * Integer.BYTES + segmentName.length + crc.length + Long.BYTES;
+    }
+
+    // First pass to compute the size of the records for each segment
+    int[] numRecords = new int[numSegments];
+    long[] recordsSizes = new long[numSegments];
+    recordLocations.forEach((key, segment, docId, comparisonValue) -> {
+      Integer ordinal = segmentToOrdinalMap.get(segment);
+      if (ordinal != null) {
+        numRecords[ordinal]++;
+        recordsSizes[ordinal] += getRecordSize(key, comparisonValue);
+      }
+    });
+    long[] recordsOffsets = new long[numSegments];
+    long[] recordsEnds = new long[numSegments];
+    long size = headerSize;
+    for (int i = 0; i < numSegments; i++) {
+      recordsOffsets[i] = size;
+      size += recordsSizes[i];
+      recordsEnds[i] = size;
+    }
+
+    FileUtils.forceMkdir(_checkpointDir);
+    File tempFile = new File(_checkpointDir, CHECKPOINT_FILE_NAME + TEMP_FILE_EXTENSION);
+    long numRecordsWritten = 0;
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapFile(tempFile, false, 0, size, ByteOrder.BIG_ENDIAN,
+        "UpsertMetadataCheckpoint: " + _checkpointDir)) {
+      // Second pass to write the records grouped by segment ordinal
+      long[] cursors = recordsOffsets.clone();
+      int[] numRecordsInSecondPass = new int[numSegments];
+      boolean[] incomplete = new boolean[numSegments];
+      recordLocations.forEach((key, segment, docId, comparisonValue) -> {
+        Integer ordinal = segmentToOrdinalMap.get(segment);
+        if (ordinal == null || incomplete[ordinal]) {
+          return;
+        }
+        long cursor = cursors[ordinal];
+        if (cursor + getRecordSize(key, comparisonValue) > recordsEnds[ordinal]) {
+          incomplete[ordinal] = true;
+          return;
+        }
+        MutableRoaringBitmap segmentQueryableDocIds = queryableDocIds[ordinal];
+        buffer.putInt(cursor, docId);
+        buffer.putByte(cursor + Integer.BYTES,
+            (byte) (segmentQueryableDocIds != null && !segmentQueryableDocIds.contains(docId) ? 1 : 0));
+        cursor = writeValue(buffer, cursor + Integer.BYTES + 1, comparisonValue);
+        cursors[ordinal] = writeValue(buffer, cursor, key);
+        numRecordsInSecondPass[ordinal]++;
+      });
+
+      long offset = 0;
+      buffer.putInt(offset, MAGIC);
+      buffer.putInt(offset + Integer.BYTES, VERSION);
+      offset = writeBytes(buffer, offset + 2 * Integer.BYTES, keyFormat);
+      buffer.putInt(offset, numSegments);
+      offset += Integer.BYTES;
+      for (int i = 0; i < numSegments; i++) {
+        offset = writeBytes(buffer, offset, segmentNames.get(i));
+        offset = writeBytes(buffer, offset, crcs.get(i));
+        buffer.putInt(offset, numDocs[i]);
+        if (incomplete[i] || cursors[i] != recordsEnds[i] || numRecordsInSecondPass[i] != numRecords[i]) {
+          buffer.putInt(offset + Integer.BYTES, INCOMPLETE_RECORDS);
+        } else {
+          buffer.putInt(offset + Integer.BYTES, numRecords[i]);
+          numRecordsWritten += numRecords[i];
+        }
+        buffer.putLong(offset + 2 * Integer.BYTES, recordsOffsets[i]);
+        offset += 2 * Integer.BYTES + Long.BYTES;
+      }
+      buffer.flush();
+    } catch (Exception e) {
+      FileUtils.deleteQuietly(tempFile);
+      throw e;
+    }
+    Files.move(tempFile.toPath(), _checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    return numRecordsWritten;
+  }
+
+  /**
+   * Unloads and deletes the checkpoint.
+   */
+  public synchronized void delete() {
+    unload();
+    FileUtils.deleteQuietly(_checkpointDir);
+  }
+
+  /**
+   * Unloads the checkpoint. The checkpoint file is kept.
+   */
+  @Override
+  public synchronized void close() {
+    unload();
+  }
+
+  private void unload() {
+    _segmentEntries.clear();
+    closeQuietly(_buffer);
+    _buffer = null;
+  }
+
+  private static void closeQuietly(@Nullable PinotDataBuffer buffer) {
+    if (buffer != null) {
+      try {
+        buffer.close();
+      } catch (IOException e) {
+        LOGGER.warn("Caught exception while closing upsert metadata checkpoint buffer", e);
+      }
+    }
+  }
+
+  private static String readString(PinotDataBuffer buffer, long offset) {
+    byte[] bytes = new byte[buffer.getInt(offset)];
+    buffer.copyTo(offset + Integer.BYTES, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long getRecordSize(Object key, @Nullable Object comparisonValue) {
+    return Integer.BYTES + 1 + getValueSize(comparisonValue) + getValueSize(key);
+  }
+
+  private static long getValueSize(@Nullable Object value) {
+    if (value == null) {
+      return 1;
+    } else if (value instanceof Integer) {
+      return 1 + Integer.BYTES;
+    } else if (value instanceof Long) {
+      return 1 + Long.BYTES;
+    } else if (value instanceof Float) {
+      return 1 + Float.BYTES;
+    } else if (value instanceof Double) {
+      return 1 + Double.BYTES;
+    } else if (value instanceof String) {
+      return 1 + Integer.BYTES + ((String) value).getBytes(StandardCharsets.UTF_8).length;
+    } else if (value instanceof ByteArray) {
+      return 1 + Integer.BYTES + ((ByteArray) value).length();
+    } else if (value instanceof BigDecimal) {
+      return 1 + Integer.BYTES + BigDecimalUtils.byteSize((BigDecimal) value);
+    } else if (value instanceof ComparisonColumns) {
+      return 1 + getValuesSize(((ComparisonColumns) value).getValues());
+    } else if (value instanceof PrimaryKey) {
+      return 1 + getValuesSize(((PrimaryKey) value).getValues());
+    } else {
+      throw new IllegalArgumentException(
+          "Unsupported value type: " + value.getClass() + " in upsert metadata checkpoint");
+    }
+  }
+
+  private static long getValuesSize(Object[] values) {
+    long size = Integer.BYTES;
+    for (Object value : values) {
+      size += getValueSize(value);
+    }
+    return size;
+  }
+
+  /**
+   * Writes the value at the given offset, and returns the offset after the value.
+   */
+  private static long writeValue(PinotDataBuffer buffer, long offset, @Nullable Object value) {
+    if (value == null) {
+      buffer.putByte(offset, NULL);
+      return offset + 1;
+    } else if (value instanceof Integer) {
+      buffer.putByte(offset, INT);
+      buffer.putInt(offset + 1, (Integer) value);
+      return offset + 1 + Integer.BYTES;
+    } else if (value instanceof Long) {
+      buffer.putByte(offset, LONG);
+      buffer.putLong(offset + 1, (Long) value);
+      return offset + 1 + Long.BYTES;
+    } else if (value instanceof Float) {
+      buffer.putByte(offset, FLOAT);
+      buffer.putFloat(offset + 1, (Float) value);
+      return offset + 1 + Float.BYTES;
+    } else if (value instanceof Double) {
+      buffer.putByte(offset, DOUBLE);
+      buffer.putDouble(offset + 1, (Double) value);
+      return offset + 1 + Double.BYTES;
+    } else if (value instanceof String) {
+      buffer.putByte(offset, STRING);
+      return writeBytes(buffer, offset + 1, ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof ByteArray) {
+      buffer.putByte(offset, BYTES);
+      return writeBytes(buffer, offset + 1, ((ByteArray) value).getBytes());
+    } else if (value instanceof BigDecimal) {
+      buffer.putByte(offset, BIG_DECIMAL);
+      return writeBytes(buffer, offset + 1, BigDecimalUtils.serialize((BigDecimal) value));
+    } else if (value instanceof ComparisonColumns) {
+      buffer.putByte(offset, COMPARISON_COLUMNS);
+      return writeValues(buffer, offset + 1, ((ComparisonColumns) value).getValues());
+    } else if (value instanceof PrimaryKey) {
+      buffer.putByte(offset, PRIMARY_KEY);
+      return writeValues(buffer, offset + 1, ((PrimaryKey) value).getValues());
+    } else {
+      throw new IllegalArgumentException(
+          "Unsupported value type: " + value.getClass() + " in upsert metadata checkpoint");
+    }
+  }
+
+  private static long writeValues(PinotDataBuffer buffer, long offset, Object[] values) {
+    buffer.putInt(offset, values.length);
+    offset += Integer.BYTES;
+    for (Object value : values) {
+      offset = writeValue(buffer, offset, value);
+    }
+    return offset;
+  }
+
+  private static long writeBytes(PinotDataBuffer buffer, long offset, byte[] bytes) {
+    buffer.putInt(offset, bytes.length);
+    buffer.readFrom(offset + Integer.BYTES, bytes);
+    return offset + Integer.BYTES + bytes.length;
+  }
+
+  /**
+   * Consumer of the record locations in the primary key to record location map.
+   */
+  @FunctionalInterface
+  public interface RecordLocationConsumer {
+
+    /**
+     * @param key Key of the map, which can be {@link PrimaryKey} or {@link ByteArray}
+     * @param segment Segment of the record
+     * @param docId Doc id of the record
+     * @param comparisonValue Comparison value of the record
+     */
+    void accept(Object key, IndexSegment segment, int docId, @Nullable Object comparisonValue);
+  }
+
+  /**
+   * Iterates the record locations in the primary key to record location map. The map should not be modified during
+   * the iteration.
+   */
+  @FunctionalInterface
+  public interface RecordLocationIterable {
+    void forEach(RecordLocationConsumer consumer);
+  }
+
+  /**
+   * Record restored from the checkpoint. The primary key is not available, and the key of the map is returned instead.
+   */
+  public static class CheckpointRecord extends RecordInfo {
+    private final Object _key;
+
+    public CheckpointRecord(Object key, int docId, @Nullable Comparable comparisonValue, boolean deleteRecord) {
+      super(null, docId, comparisonValue, deleteRecord);
+      _key = key;
+    }
+
+    public Object getKey() {
+      return _key;
+    }
+  }
+
+  private static class SegmentEntry {
+    final String _crc;
+    final int _numDocs;
+    final int _numRecords;
+    final long _recordsOffset;
+
+    SegmentEntry(String crc, int numDocs, int numRecords, long recordsOffset) {
+      _crc = crc;
+      _numDocs = numDocs;
+      _numRecords = numRecords;
+      _recordsOffset = recordsOffset;
+    }
+  }
+
+  /**
+   * Iterator of the records of a segment. Not thread-safe.
+   */
+  private static class RecordIterator implements Iterator<CheckpointRecord> {
+    private final PinotDataBuffer _buffer;
+    private final int _numRecords;
+    private long _cursor;
+    private int _recordId;
+
+    RecordIterator(PinotDataBuffer buffer, long recordsOffset, int numRecords) {
+      _buffer = buffer;
+      _cursor = recordsOffset;
+      _numRecords = numRecords;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _recordId < _numRecords;
+    }
+
+    @Override
+    public CheckpointRecord next() {
+      if (_recordId >= _numRecords) {
+        throw new NoSuchElementException();
+      }
+      _recordId++;
+      int docId = _buffer.getInt(_cursor);
+      boolean deleteRecord = _buffer.getByte(_cursor + Integer.BYTES) != 0;
+      _cursor += Integer.BYTES + 1;
+      Comparable comparisonValue = (Comparable) readValue();
+      Object key = readValue();
+      return new CheckpointRecord(key, docId, comparisonValue, deleteRecord);
+    }
+
+    private Object readValue() {
+      byte type = _buffer.getByte(_cursor++);
+      switch (type) {
+        case NULL:
+          return null;
+        case INT:
+          int intValue = _buffer.getInt(_cursor);
+          _cursor += Integer.BYTES;
+          return intValue;
+        case LONG:
+          long longValue = _buffer.getLong(_cursor);
+          _cursor += Long.BYTES;
+          return longValue;
+        case FLOAT:
+          float floatValue = _buffer.getFloat(_cursor);
+          _cursor += Float.BYTES;
+          return floatValue;
+        case DOUBLE:
+          double doubleValue = _buffer.getDouble(_cursor);
+          _cursor += Double.BYTES;
+          return doubleValue;
+        case STRING:
+          return new String(readBytes(), StandardCharsets.UTF_8);
+        case BYTES:
+          return new ByteArray(readBytes());
+        case BIG_DECIMAL:
+          return BigDecimalUtils.deserialize(readBytes());
+        case COMPARISON_COLUMNS:
+          Object[] comparisonValues = readValues();
+          Comparable[] comparables = new Comparable[comparisonValues.length];
+          for (int i = 0; i < comparisonValues.length; i++) {
+            comparables[i] = (Comparable) comparisonValues[i];
+          }
+          return new ComparisonColumns(comparables, ComparisonColumns.SEALED_SEGMENT_COMPARISON_INDEX);
+        case PRIMARY_KEY:
+          return new PrimaryKey(readValues());
+        default:
+          throw new IllegalStateException("Unsupported value type: " + type + " in upsert metadata checkpoint");
+      }
+    }
+
+    private Object[] readValues() {
+      int numValues = _buffer.getInt(_cursor);
+      _cursor += Integer.BYTES;
+      Object[] values = new Object[numValues];
+      for (int i = 0; i < numValues; i++) {
+        values[i] = readValue();
+      }
+      return values;
+    }
+
+    private byte[] readBytes() {
+      byte[] bytes = new byte[_buffer.getInt(_cursor)];
+      _buffer.copyTo(_cursor + Integer.BYTES, bytes);
+      _cursor += Integer.BYTES + bytes.length;
+      return bytes;
+    }
+  }
+}
@@ -77,4 +77,23 @@ public class HashUtils {
         throw new IllegalArgumentException(String.format("Unrecognized hash function %s", hashFunction));
     }
   }
+
+  /**
+   * Returns the serialized form of the primary key after applying the hash function, which can be used as the key of
+   * off-heap maps.
+   */
+  public static byte[] hashPrimaryKeyAsBytes(PrimaryKey primaryKey, HashFunction hashFunction) {
+    switch (hashFunction) {
+      case NONE:
+        return primaryKey.asBytes();
+      case MD5:
+        return HashUtils.hashMD5(primaryKey.asBytes());
+      case MURMUR3:
+        return HashUtils.hashMurmur3(primaryKey.asBytes());
+      case UUID:
+        return HashUtils.hashUUID(primaryKey);
+      default:
+        throw new IllegalArgumentException(String.format("Unrecognized hash function %s", hashFunction));
+    }
+  }
 }
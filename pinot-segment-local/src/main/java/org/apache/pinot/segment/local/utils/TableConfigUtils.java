@@ -398,6 +398,8 @@ public final class TableConfigUtils {
             "Should not use indexingConfig#getStreamConfigs if ingestionConfig#StreamIngestionConfig is provided");
         List<Map<String, String>> streamConfigMaps = ingestionConfig.getStreamIngestionConfig().getStreamConfigMaps();
         Preconditions.checkState(streamConfigMaps.size() == 1, "Only 1 stream is supported in REALTIME table");
+        Preconditions.checkState(ingestionConfig.getStreamIngestionConfig().getPipelinedConsumptionDecodeThreads() > 0,
+            "Number of decode threads for pipelined consumption must be positive");
       }
 
       // Filter config
@@ -856,6 +858,9 @@ public final class TableConfigUtils {
             fieldSpec != null && fieldSpec.isSingleValueField() && fieldSpec.getDataType() == DataType.BOOLEAN,
             "The outOfOrderRecordColumn must be a single-valued BOOLEAN column");
       }
+
+      Preconditions.checkState(!upsertConfig.isEnableMetadataCheckpoint() || upsertConfig.isEnableSnapshot(),
+          "Upsert metadata checkpoint must have snapshot enabled");
     }
 
     Preconditions.checkState(
@@ -1071,6 +1076,8 @@ public final class TableConfigUtils {
    * cannot be present in no-dictionary columns).
    */
   private static void validateIndexingConfig(IndexingConfig indexingConfig, @Nullable Schema schema) {
+    Preconditions.checkState(indexingConfig.getSegmentIndexBuildParallelism() > 0,
+        "Segment index build parallelism must be positive");
     if (schema == null) {
       return;
     }
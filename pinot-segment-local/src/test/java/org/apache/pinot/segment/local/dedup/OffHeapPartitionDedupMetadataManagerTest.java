@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.segment.index.loader.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapPartitionDedupMetadataManagerTest {
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+  private static final File SNAPSHOT_DIR =
+      new File(FileUtils.getTempDirectory(), "OffHeapPartitionDedupMetadataManagerTest");
+
+  @BeforeMethod
+  public void setUp() {
+    FileUtils.deleteQuietly(SNAPSHOT_DIR);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FileUtils.deleteQuietly(SNAPSHOT_DIR);
+  }
+
+  @Test
+  public void testAddRemoveSegment()
+      throws IOException {
+    testAddRemoveSegment(HashFunction.NONE, true);
+    testAddRemoveSegment(HashFunction.MD5, true);
+    testAddRemoveSegment(HashFunction.MURMUR3, false);
+  }
+
+  private void testAddRemoveSegment(HashFunction hashFunction, boolean use128BitKeyHash)
+      throws IOException {
+    TestMetadataManager metadataManager = createMetadataManager(hashFunction, use128BitKeyHash, null);
+
+    ImmutableSegmentImpl segment1 = mockSegment(1, "1000");
+    metadataManager.addSegment(segment1, getPrimaryKeys(0, 1, 2, 0, 1, 0));
+    assertEquals(metadataManager._primaryKeyMap.size(), 3);
+
+    // Removing another segment with same PK rows should not remove the keys
+    ImmutableSegmentImpl segment2 = mockSegment(1, "1000");
+    metadataManager.removeSegment(segment2, getPrimaryKeys(0, 1, 2, 0, 1, 0));
+    assertEquals(metadataManager._primaryKeyMap.size(), 3);
+
+    // Replace the segment with a segment having part of the keys
+    ImmutableSegmentImpl segment3 = mockSegment(1, "2000");
+    metadataManager.addSegment(segment3, getPrimaryKeys(0, 1));
+    metadataManager.removeSegment(segment1, getPrimaryKeys(0, 1, 2, 0, 1, 0));
+    assertEquals(metadataManager._primaryKeyMap.size(), 2);
+
+    metadataManager.removeSegment(segment3, getPrimaryKeys(0, 1));
+    assertEquals(metadataManager._primaryKeyMap.size(), 0);
+    metadataManager.close();
+  }
+
+  @Test
+  public void testCheckRecordPresentOrUpdate()
+      throws IOException {
+    TestMetadataManager metadataManager = createMetadataManager(HashFunction.NONE, true, null);
+    ImmutableSegmentImpl segment1 = mockSegment(1, "1000");
+    metadataManager.addSegment(segment1, getPrimaryKeys(0, 1, 2, 0, 1, 0));
+
+    // Same PK exists
+    MutableSegment segment2 = mock(MutableSegment.class);
+    assertTrue(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(0), segment2));
+
+    // New PK
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(3), segment2));
+    assertEquals(metadataManager._primaryKeyMap.size(), 4);
+
+    // Same PK as the one recently ingested
+    assertTrue(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(3), segment2));
+
+    // Removing the consuming segment should only remove the key ingested into it
+    metadataManager.removeSegment(segment2, getPrimaryKeys(0, 3));
+    assertEquals(metadataManager._primaryKeyMap.size(), 3);
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(3), segment2));
+    metadataManager.close();
+  }
+
+  @Test
+  public void testPersistAndRestore()
+      throws IOException {
+    TestMetadataManager metadataManager = createMetadataManager(HashFunction.NONE, true, SNAPSHOT_DIR);
+    metadataManager.addSegment(mockSegment(1, "1000"), getPrimaryKeys(0, 1));
+    metadataManager.addSegment(mockSegment(2, "2000"), getPrimaryKeys(2, 3));
+    metadataManager.addSegment(mockSegment(3, "3000"), getPrimaryKeys(4, 5));
+    // Keys of the consuming segment should not be persisted
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(6), mock(MutableSegment.class)));
+    assertEquals(metadataManager._primaryKeyMap.size(), 7);
+    metadataManager.stop();
+    metadataManager.close();
+
+    metadataManager = createMetadataManager(HashFunction.NONE, true, SNAPSHOT_DIR);
+    assertEquals(metadataManager._primaryKeyMap.size(), 6);
+
+    // Segment with the same CRC should be restored without reading the primary keys
+    metadataManager.addSegment(mockSegment(1, "1000"), getPrimaryKeys());
+    assertEquals(metadataManager._primaryKeyMap.size(), 6);
+
+    // Segment with a different CRC should be read again
+    metadataManager.addSegment(mockSegment(2, "2001"), getPrimaryKeys(2));
+    assertEquals(metadataManager._primaryKeyMap.size(), 5);
+
+    // Keys of the unclaimed segment should be dropped before ingesting the first record
+    MutableSegment consumingSegment = mock(MutableSegment.class);
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(6), consumingSegment));
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(4), consumingSegment));
+    assertTrue(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(0), consumingSegment));
+    assertTrue(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(2), consumingSegment));
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(getPrimaryKey(3), consumingSegment));
+    metadataManager.close();
+
+    // Snapshot with different key hash size should be ignored
+    metadataManager = createMetadataManager(HashFunction.NONE, false, SNAPSHOT_DIR);
+    assertEquals(metadataManager._primaryKeyMap.size(), 0);
+    metadataManager.close();
+  }
+
+  private static TestMetadataManager createMetadataManager(HashFunction hashFunction, boolean use128BitKeyHash,
+      File snapshotDir) {
+    return new TestMetadataManager(REALTIME_TABLE_NAME, null, 0, mock(ServerMetrics.class), hashFunction, 16,
+        use128BitKeyHash, snapshotDir);
+  }
+
+  private static ImmutableSegmentImpl mockSegment(int sequenceNumber, String crc) {
+    ImmutableSegmentImpl segment = mock(ImmutableSegmentImpl.class);
+    String segmentName = new LLCSegmentName(RAW_TABLE_NAME, 0, sequenceNumber, 0L).toString();
+    when(segment.getSegmentName()).thenReturn(segmentName);
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    when(segmentMetadata.getCrc()).thenReturn(crc);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return segment;
+  }
+
+  private static PrimaryKey getPrimaryKey(int value) {
+    return new PrimaryKey(new Object[]{value});
+  }
+
+  private static List<PrimaryKey> getPrimaryKeys(int... values) {
+    List<PrimaryKey> primaryKeys = new ArrayList<>(values.length);
+    for (int value : values) {
+      primaryKeys.add(getPrimaryKey(value));
+    }
+    return primaryKeys;
+  }
+
+  private static class TestMetadataManager extends OffHeapPartitionDedupMetadataManager {
+    Iterator<PrimaryKey> _primaryKeyIterator;
+
+    TestMetadataManager(String tableNameWithType, List<String> primaryKeyColumns, int partitionId,
+        ServerMetrics serverMetrics, HashFunction hashFunction, int initialCapacity, boolean use128BitKeyHash,
+        File snapshotDir) {
+      super(tableNameWithType, primaryKeyColumns, partitionId, serverMetrics, hashFunction, initialCapacity,
+          use128BitKeyHash, snapshotDir);
+    }
+
+    void addSegment(IndexSegment segment, List<PrimaryKey> primaryKeys) {
+      _primaryKeyIterator = primaryKeys.iterator();
+      addSegment(segment);
+    }
+
+    void removeSegment(IndexSegment segment, List<PrimaryKey> primaryKeys) {
+      _primaryKeyIterator = primaryKeys.iterator();
+      removeSegment(segment);
+    }
+
+    @Override
+    Iterator<PrimaryKey> getPrimaryKeyIterator(IndexSegment segment) {
+      return _primaryKeyIterator;
+    }
+  }
+}
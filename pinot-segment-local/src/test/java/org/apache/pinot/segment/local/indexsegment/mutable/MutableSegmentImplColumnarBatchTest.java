@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.indexsegment.mutable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.mutable.MutableInvertedIndex;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnarRecordBatch;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+
+public class MutableSegmentImplColumnarBatchTest {
+  private static final String INT_COLUMN = "intColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String MV_COLUMN = "mvColumn";
+  private static final String RAW_LONG_COLUMN = "rawLongColumn";
+  private static final int NUM_ROWS = 1000;
+  private static final int BATCH_SIZE = 37;
+
+  private final Schema _schema = new Schema.SchemaBuilder().setSchemaName("testTable")
+      .addSingleValueDimension(INT_COLUMN, DataType.INT)
+      .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+      .addMultiValueDimension(MV_COLUMN, DataType.INT)
+      .addMetric(RAW_LONG_COLUMN, DataType.LONG)
+      .build();
+  private MutableSegmentImpl _rowSegment;
+  private MutableSegmentImpl _batchSegment;
+
+  @BeforeMethod
+  public void setUp() {
+    Set<String> noDictionaryColumns = Collections.singleton(RAW_LONG_COLUMN);
+    Set<String> invertedIndexColumns = Set.of(INT_COLUMN, STRING_COLUMN);
+    _rowSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(_schema, noDictionaryColumns,
+        Collections.emptySet(), invertedIndexColumns, false, true);
+    _batchSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(_schema, noDictionaryColumns,
+        Collections.emptySet(), invertedIndexColumns, false, true);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _rowSegment.destroy();
+    _batchSegment.destroy();
+  }
+
+  private static List<GenericRow> getRows() {
+    Random random = new Random(0);
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(INT_COLUMN, random.nextInt(50));
+      if (i % 10 == 0) {
+        row.putDefaultNullValue(STRING_COLUMN, "null");
+      } else {
+        row.putValue(STRING_COLUMN, "value_" + random.nextInt(20));
+      }
+      row.putValue(MV_COLUMN, new Object[]{random.nextInt(10), random.nextInt(10)});
+      row.putValue(RAW_LONG_COLUMN, random.nextLong());
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @Test
+  public void testIndexColumnarBatch()
+      throws Exception {
+    List<GenericRow> rows = getRows();
+    for (GenericRow row : rows) {
+      _rowSegment.index(row, null);
+    }
+    for (int i = 0; i < NUM_ROWS; i += BATCH_SIZE) {
+      ColumnarRecordBatch batch = ColumnarRecordBatch.fromRows(rows.subList(i, Math.min(i + BATCH_SIZE, NUM_ROWS)));
+      assertTrue(_batchSegment.index(batch, null));
+    }
+    assertEquals(_batchSegment.getNumDocsIndexed(), NUM_ROWS);
+
+    GenericRow expected = new GenericRow();
+    GenericRow actual = new GenericRow();
+    for (int docId = 0; docId < NUM_ROWS; docId++) {
+      _rowSegment.getRecord(docId, expected);
+      _batchSegment.getRecord(docId, actual);
+      assertEquals(actual, expected);
+      assertEquals(actual.getNullValueFields(), expected.getNullValueFields());
+    }
+
+    for (String column : _schema.getColumnNames()) {
+      DataSource expectedDataSource = _rowSegment.getDataSource(column);
+      DataSource actualDataSource = _batchSegment.getDataSource(column);
+      assertEquals(actualDataSource.getDataSourceMetadata().getMinValue(),
+          expectedDataSource.getDataSourceMetadata().getMinValue());
+      assertEquals(actualDataSource.getDataSourceMetadata().getMaxValue(),
+          expectedDataSource.getDataSourceMetadata().getMaxValue());
+      assertEquals(actualDataSource.getDataSourceMetadata().getNumValues(),
+          expectedDataSource.getDataSourceMetadata().getNumValues());
+    }
+
+    for (String column : new String[]{INT_COLUMN, STRING_COLUMN}) {
+      MutableInvertedIndex expectedInvertedIndex =
+          (MutableInvertedIndex) _rowSegment.getDataSource(column).getInvertedIndex();
+      MutableInvertedIndex actualInvertedIndex =
+          (MutableInvertedIndex) _batchSegment.getDataSource(column).getInvertedIndex();
+      int cardinality = _rowSegment.getDataSource(column).getDictionary().length();
+      assertEquals(_batchSegment.getDataSource(column).getDictionary().length(), cardinality);
+      for (int dictId = 0; dictId < cardinality; dictId++) {
+        assertEquals(actualInvertedIndex.getDocIds(dictId), expectedInvertedIndex.getDocIds(dictId));
+      }
+    }
+  }
+
+  @Test
+  public void testBatchExceedingCapacity()
+      throws Exception {
+    List<GenericRow> rows = getRows();
+    assertTrue(_batchSegment.index(ColumnarRecordBatch.fromRows(rows), null));
+
+    // Segments are created with capacity of 100000 rows
+    ColumnarRecordBatch batch = new ColumnarRecordBatch(100_000 - NUM_ROWS + 1);
+    assertThrows(IllegalArgumentException.class, () -> _batchSegment.index(batch, null));
+    assertEquals(_batchSegment.getNumDocsIndexed(), NUM_ROWS);
+
+    // Batch filling up the segment should be accepted
+    assertTrue(_batchSegment.index(new ColumnarRecordBatch(100_000 - NUM_ROWS), null));
+    assertEquals(_batchSegment.getNumDocsIndexed(), 100_000);
+  }
+
+  @Test
+  public void testBatchWithInvalidValue()
+      throws Exception {
+    List<GenericRow> rows = getRows();
+    assertTrue(_batchSegment.index(ColumnarRecordBatch.fromRows(rows.subList(0, BATCH_SIZE)), null));
+    int intCardinality = _batchSegment.getDataSource(INT_COLUMN).getDictionary().length();
+
+    // Long value for INT column should be rejected before anything is indexed
+    List<GenericRow> invalidRows = new ArrayList<>(rows.subList(BATCH_SIZE, 2 * BATCH_SIZE));
+    GenericRow invalidRow = invalidRows.get(BATCH_SIZE - 1).copy();
+    invalidRow.putValue(INT_COLUMN, 100L);
+    invalidRows.set(BATCH_SIZE - 1, invalidRow);
+    assertThrows(IllegalArgumentException.class,
+        () -> _batchSegment.index(ColumnarRecordBatch.fromRows(invalidRows), null));
+    assertEquals(_batchSegment.getNumDocsIndexed(), BATCH_SIZE);
+    assertEquals(_batchSegment.getDataSource(INT_COLUMN).getDictionary().length(), intCardinality);
+
+    // Single value for MV column should be rejected as well
+    GenericRow invalidMVRow = rows.get(BATCH_SIZE).copy();
+    invalidMVRow.putValue(MV_COLUMN, 1);
+    assertThrows(IllegalArgumentException.class,
+        () -> _batchSegment.index(ColumnarRecordBatch.fromRows(Collections.singletonList(invalidMVRow)), null));
+    assertEquals(_batchSegment.getNumDocsIndexed(), BATCH_SIZE);
+  }
+}
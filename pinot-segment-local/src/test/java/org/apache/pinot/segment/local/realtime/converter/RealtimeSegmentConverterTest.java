@@ -327,8 +327,13 @@ public class RealtimeSegmentConverterTest {
     assertEquals(segmentMetadata.getEndOffset(), "100");
   }
 
-  @Test
-  public void test10RecordsIndexedColumnMajorSegmentBuilder()
+  @DataProvider
+  public static Object[][] columnMajorParallelismParams() {
+    return new Object[][]{{1}, {4}};
+  }
+
+  @Test(dataProvider = "columnMajorParallelismParams")
+  public void test10RecordsIndexedColumnMajorSegmentBuilder(int columnMajorParallelism)
       throws Exception {
     File tmpDir = new File(TMP_DIR, "tmp_" + System.currentTimeMillis());
     TableConfig tableConfig =
@@ -342,6 +347,7 @@ public class RealtimeSegmentConverterTest {
             .setOnHeapDictionaryColumns(Lists.newArrayList(LONG_COLUMN3))
             .setColumnMajorSegmentBuilderEnabled(true)
             .build();
+    tableConfig.getIndexingConfig().setSegmentIndexBuildParallelism(columnMajorParallelism);
     Schema schema = new Schema.SchemaBuilder()
         .addSingleValueDimension(STRING_COLUMN1, FieldSpec.DataType.STRING)
         .addSingleValueDimension(STRING_COLUMN2, FieldSpec.DataType.STRING)
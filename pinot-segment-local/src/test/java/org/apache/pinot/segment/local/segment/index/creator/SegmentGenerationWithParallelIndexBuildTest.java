@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.creator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.store.SegmentDirectoryPaths;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests that building the column indexes in parallel creates the same segment as building them sequentially.
+ */
+public class SegmentGenerationWithParallelIndexBuildTest {
+  private static final File TEMP_DIR =
+      new File(FileUtils.getTempDirectory(), SegmentGenerationWithParallelIndexBuildTest.class.getSimpleName());
+  private static final String INT_COLUMN = "intColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String MV_COLUMN = "mvColumn";
+  private static final String RAW_LONG_COLUMN = "rawLongColumn";
+  // Cover multiple full batches and a partial one
+  private static final int NUM_ROWS = 25_000;
+
+  private final Schema _schema = new Schema.SchemaBuilder().setSchemaName("testTable")
+      .addSingleValueDimension(INT_COLUMN, DataType.INT)
+      .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+      .addMultiValueDimension(MV_COLUMN, DataType.INT)
+      .addMetric(RAW_LONG_COLUMN, DataType.LONG)
+      .build();
+  private final TableConfig _tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName("testTable")
+      .setInvertedIndexColumns(Arrays.asList(INT_COLUMN, STRING_COLUMN))
+      .setNoDictionaryColumns(List.of(RAW_LONG_COLUMN))
+      .setNullHandlingEnabled(true)
+      .build();
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  private static List<GenericRow> getRows() {
+    Random random = new Random(0);
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(INT_COLUMN, random.nextInt(100));
+      if (i % 10 == 0) {
+        row.putDefaultNullValue(STRING_COLUMN, "null");
+      } else {
+        row.putValue(STRING_COLUMN, "value_" + random.nextInt(50));
+      }
+      row.putValue(MV_COLUMN, new Object[]{random.nextInt(10), random.nextInt(10)});
+      row.putValue(RAW_LONG_COLUMN, random.nextLong());
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private File buildSegment(List<GenericRow> rows, int indexBuildParallelism)
+      throws Exception {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_tableConfig, _schema);
+    config.setOutDir(new File(TEMP_DIR, "parallelism_" + indexBuildParallelism).getAbsolutePath());
+    config.setSegmentName("testSegment");
+    config.setIndexBuildParallelism(indexBuildParallelism);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    return driver.getOutputDirectory();
+  }
+
+  @Test
+  public void testParallelIndexBuild()
+      throws Exception {
+    List<GenericRow> rows = getRows();
+    File expectedSegmentDir = buildSegment(rows, 1);
+    File actualSegmentDir = buildSegment(rows, 4);
+
+    SegmentMetadataImpl expectedMetadata = new SegmentMetadataImpl(expectedSegmentDir);
+    SegmentMetadataImpl actualMetadata = new SegmentMetadataImpl(actualSegmentDir);
+    assertEquals(actualMetadata.getTotalDocs(), NUM_ROWS);
+    assertEquals(actualMetadata.getCrc(), expectedMetadata.getCrc());
+
+    File expectedIndexFile =
+        new File(new File(expectedSegmentDir, SegmentDirectoryPaths.V3_SUBDIRECTORY_NAME), V1Constants.INDEX_FILE_NAME);
+    File actualIndexFile =
+        new File(new File(actualSegmentDir, SegmentDirectoryPaths.V3_SUBDIRECTORY_NAME), V1Constants.INDEX_FILE_NAME);
+    assertTrue(FileUtils.contentEquals(actualIndexFile, expectedIndexFile));
+  }
+}
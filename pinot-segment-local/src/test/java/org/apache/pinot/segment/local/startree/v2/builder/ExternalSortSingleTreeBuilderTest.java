@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.startree.v2.builder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2Constants;
+import org.apache.pinot.segment.spi.store.SegmentDirectoryPaths;
+import org.apache.pinot.spi.config.table.StarTreeIndexConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class ExternalSortSingleTreeBuilderTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "ExternalSortSingleTreeBuilderTest");
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final int NUM_RECORDS = 20_000;
+  private static final int MAX_RECORDS_PER_SORT_RUN = 1000;
+
+  // The first 2 star-trees have the same dimensions split order and share the sorted segment records
+  private static final List<StarTreeIndexConfig> STAR_TREE_INDEX_CONFIGS = List.of(
+      new StarTreeIndexConfig(List.of("d1", "d2", "d3"), null, List.of("count__*", "sum__m"), null, 10),
+      new StarTreeIndexConfig(List.of("d1", "d2", "d3"), List.of("d2"), List.of("max__m", "sum__m"), null, 10),
+      new StarTreeIndexConfig(List.of("d3", "d1"), null, List.of("count__*"), null, 10));
+
+  private File _segmentDir;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    Schema schema = new Schema.SchemaBuilder().setSchemaName("testTable")
+        .addSingleValueDimension("d1", DataType.INT)
+        .addSingleValueDimension("d2", DataType.INT)
+        .addSingleValueDimension("d3", DataType.STRING)
+        .addMetric("m", DataType.INT)
+        .build();
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName("testTable").build();
+    Random random = new Random(0);
+    List<GenericRow> rows = new ArrayList<>(NUM_RECORDS);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue("d1", random.nextInt(50));
+      row.putValue("d2", random.nextInt(20));
+      row.putValue("d3", "value_" + random.nextInt(10));
+      row.putValue("m", random.nextInt(1000));
+      rows.add(row);
+    }
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, schema);
+    config.setOutDir(TEMP_DIR.getAbsolutePath());
+    config.setSegmentName(SEGMENT_NAME);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    _segmentDir = driver.getOutputDirectory();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  private File buildStarTrees(MultipleTreesBuilder.BuildMode buildMode)
+      throws Exception {
+    File indexDir = new File(TEMP_DIR, buildMode.name());
+    FileUtils.copyDirectory(_segmentDir, indexDir);
+    try (MultipleTreesBuilder builder = new MultipleTreesBuilder(STAR_TREE_INDEX_CONFIGS, false, indexDir,
+        buildMode)) {
+      builder.setMaxRecordsPerSortRun(MAX_RECORDS_PER_SORT_RUN);
+      builder.build();
+    }
+    return SegmentDirectoryPaths.findSegmentDirectory(indexDir);
+  }
+
+  @Test
+  public void testExternalSort()
+      throws Exception {
+    File expectedDir = buildStarTrees(MultipleTreesBuilder.BuildMode.OFF_HEAP);
+    File actualDir = buildStarTrees(MultipleTreesBuilder.BuildMode.EXTERNAL_SORT);
+    assertTrue(FileUtils.contentEquals(new File(actualDir, StarTreeV2Constants.INDEX_FILE_NAME),
+        new File(expectedDir, StarTreeV2Constants.INDEX_FILE_NAME)));
+    assertTrue(FileUtils.contentEquals(new File(actualDir, StarTreeV2Constants.INDEX_MAP_FILE_NAME),
+        new File(expectedDir, StarTreeV2Constants.INDEX_MAP_FILE_NAME)));
+    assertFalse(new File(actualDir, StarTreeV2Constants.STAR_TREE_SORT_TEMP_DIR).exists());
+  }
+}
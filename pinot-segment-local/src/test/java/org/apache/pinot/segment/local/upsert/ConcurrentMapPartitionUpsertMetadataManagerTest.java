@@ -29,6 +29,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
@@ -1049,6 +1050,159 @@ public class ConcurrentMapPartitionUpsertMetadataManagerTest {
     assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{0, 1, 2});
   }
 
+  @Test
+  public void testRestoreFromMetadataCheckpoint()
+      throws IOException {
+    verifyRestoreFromMetadataCheckpoint(HashFunction.NONE);
+    verifyRestoreFromMetadataCheckpoint(HashFunction.MD5);
+    verifyRestoreFromMetadataCheckpoint(HashFunction.MURMUR3);
+  }
+
+  private void verifyRestoreFromMetadataCheckpoint(HashFunction hashFunction)
+      throws IOException {
+    UpsertContext upsertContext =
+        _contextBuilder.setHashFunction(hashFunction).setDeleteRecordColumn(DELETE_RECORD_COLUMN).build();
+    ConcurrentMapPartitionUpsertMetadataManager upsertMetadataManager =
+        new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+
+    // segment1: 0 -> {0, 100}, 1 -> {1, 120}, 2 -> {2, 100}
+    int numRecords = 3;
+    int[] primaryKeys = new int[]{0, 1, 2};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ThreadSafeMutableRoaringBitmap queryableDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 =
+        mockImmutableSegment(1, validDocIds1, queryableDocIds1, getPrimaryKeyList(numRecords, primaryKeys));
+    when(segment1.getSegmentMetadata().getCrc()).thenReturn("crc1");
+    when(segment1.getSegmentMetadata().getTotalDocs()).thenReturn(numRecords);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, queryableDocIds1,
+        getRecordInfoListForTTL(numRecords, primaryKeys, new int[]{100, 120, 100}, null).iterator());
+
+    // segment2: 0 -> {0, 150}, 3 -> {1, 10, deleted}
+    numRecords = 2;
+    primaryKeys = new int[]{0, 3};
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ThreadSafeMutableRoaringBitmap queryableDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 =
+        mockImmutableSegment(2, validDocIds2, queryableDocIds2, getPrimaryKeyList(numRecords, primaryKeys));
+    when(segment2.getSegmentMetadata().getCrc()).thenReturn("crc2");
+    when(segment2.getSegmentMetadata().getTotalDocs()).thenReturn(numRecords);
+    upsertMetadataManager.addSegment(segment2, validDocIds2, queryableDocIds2,
+        getRecordInfoListForTTL(numRecords, primaryKeys, new int[]{150, 10}, new boolean[]{false, true}).iterator());
+
+    // Records in the consuming segment should not be checkpointed
+    ThreadSafeMutableRoaringBitmap validDocIds3 = new ThreadSafeMutableRoaringBitmap();
+    MutableSegment segment3 = mockMutableSegment(3, validDocIds3, new ThreadSafeMutableRoaringBitmap());
+    upsertMetadataManager.addRecord(segment3, new RecordInfo(makePrimaryKey(4), 0, 200, false));
+
+    String keyFormat = ConcurrentMapPartitionUpsertMetadataManager.class.getName();
+    File checkpointDir = new File(INDEX_DIR, "checkpoint");
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(checkpointDir, 0, keyFormat);
+    assertEquals(checkpoint.write(List.of(segment1, segment2), upsertMetadataManager::forEachRecordLocation), 4);
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+
+    // Restore both segments into a new metadata manager
+    checkpoint = new UpsertMetadataCheckpoint(checkpointDir, 0, keyFormat);
+    assertTrue(checkpoint.load());
+    upsertMetadataManager = new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+    Map<Object, RecordLocation> recordLocationMap = upsertMetadataManager._primaryKeyToRecordLocationMap;
+    validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    queryableDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    upsertMetadataManager.addSegmentFromCheckpoint(segment1, validDocIds1, queryableDocIds1,
+        checkpoint.getRecords(segment1.getSegmentName(), "crc1", 3));
+    validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    queryableDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    upsertMetadataManager.addSegmentFromCheckpoint(segment2, validDocIds2, queryableDocIds2,
+        checkpoint.getRecords(segment2.getSegmentName(), "crc2", 2));
+    assertEquals(recordLocationMap.size(), 4);
+    checkRestoredRecordLocation(recordLocationMap, 0, segment2, 0, 150, hashFunction);
+    checkRestoredRecordLocation(recordLocationMap, 1, segment1, 1, 120, hashFunction);
+    checkRestoredRecordLocation(recordLocationMap, 2, segment1, 2, 100, hashFunction);
+    checkRestoredRecordLocation(recordLocationMap, 3, segment2, 1, 10, hashFunction);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{1, 2});
+    assertEquals(queryableDocIds1.getMutableRoaringBitmap().toArray(), new int[]{1, 2});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 1});
+    assertEquals(queryableDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0});
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+
+    // Restore segment1 after adding a segment not in the checkpoint, where only the newer records are restored
+    // segment4: 1 -> {0, 200}, 2 -> {1, 50}
+    checkpoint = new UpsertMetadataCheckpoint(checkpointDir, 0, keyFormat);
+    assertTrue(checkpoint.load());
+    upsertMetadataManager = new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+    recordLocationMap = upsertMetadataManager._primaryKeyToRecordLocationMap;
+    numRecords = 2;
+    primaryKeys = new int[]{1, 2};
+    ThreadSafeMutableRoaringBitmap validDocIds4 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment4 =
+        mockImmutableSegment(4, validDocIds4, new ThreadSafeMutableRoaringBitmap(),
+            getPrimaryKeyList(numRecords, primaryKeys));
+    upsertMetadataManager.addSegment(segment4, validDocIds4, null,
+        getRecordInfoListForTTL(numRecords, primaryKeys, new int[]{200, 50}, null).iterator());
+    // Segment not matching the CRC should not be restored
+    assertNull(checkpoint.getRecords(segment2.getSegmentName(), "newCrc", 2));
+    validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    upsertMetadataManager.addSegmentFromCheckpoint(segment1, validDocIds1, null,
+        checkpoint.getRecords(segment1.getSegmentName(), "crc1", 3));
+    // Records of each segment can only be restored once
+    assertNull(checkpoint.getRecords(segment1.getSegmentName(), "crc1", 3));
+    checkRestoredRecordLocation(recordLocationMap, 1, segment4, 0, 200, hashFunction);
+    checkRestoredRecordLocation(recordLocationMap, 2, segment1, 2, 100, hashFunction);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{2});
+    assertEquals(validDocIds4.getMutableRoaringBitmap().toArray(), new int[]{0});
+    checkpoint.delete();
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testThrottleMetadataCheckpoint()
+      throws IOException {
+    UpsertContext upsertContext = _contextBuilder.setEnableSnapshot(true).setEnableMetadataCheckpoint(true)
+        .setMetadataCheckpointIntervalMs(TimeUnit.HOURS.toMillis(1)).build();
+    ConcurrentMapPartitionUpsertMetadataManager upsertMetadataManager =
+        new ConcurrentMapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+    UpsertMetadataCheckpoint checkpoint = upsertMetadataManager._metadataCheckpoint;
+    assertNotNull(checkpoint);
+
+    int numRecords = 3;
+    int[] primaryKeys = new int[]{0, 1, 2};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 =
+        mockImmutableSegment(1, validDocIds1, null, getPrimaryKeyList(numRecords, primaryKeys));
+    when(segment1.getSegmentMetadata().getCrc()).thenReturn("crc1");
+    when(segment1.getSegmentMetadata().getTotalDocs()).thenReturn(numRecords);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoListForTTL(numRecords, primaryKeys, new int[]{100, 120, 100}, null).iterator());
+    upsertMetadataManager._trackedSegments.add(segment1);
+    upsertMetadataManager.addRecord(mockMutableSegment(2, new ThreadSafeMutableRoaringBitmap(), null),
+        new RecordInfo(makePrimaryKey(3), 0, 100, false));
+
+    // The first snapshot should write the checkpoint
+    upsertMetadataManager.takeSnapshot();
+    assertTrue(checkpoint.getCheckpointFile().exists());
+
+    // The following snapshots within the interval should not rewrite the checkpoint
+    FileUtils.deleteQuietly(checkpoint.getCheckpointFile());
+    upsertMetadataManager.takeSnapshot();
+    assertFalse(checkpoint.getCheckpointFile().exists());
+
+    checkpoint.delete();
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  private static void checkRestoredRecordLocation(Map<Object, RecordLocation> recordLocationMap, int keyValue,
+      IndexSegment segment, int docId, int comparisonValue, HashFunction hashFunction) {
+    RecordLocation recordLocation =
+        recordLocationMap.get(HashUtils.hashPrimaryKey(makePrimaryKey(keyValue), hashFunction));
+    assertNotNull(recordLocation);
+    assertSame(recordLocation.getSegment(), segment);
+    assertEquals(recordLocation.getDocId(), docId);
+    assertEquals(recordLocation.getComparisonValue(), comparisonValue);
+  }
+
   @Test
   public void testAddRecordWithDeleteColumn()
       throws IOException {
@@ -0,0 +1,391 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.*;
+
+
+public class OffHeapPartitionUpsertMetadataManagerTest {
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+  private static final List<String> PRIMARY_KEY_COLUMNS = Collections.singletonList("pk");
+  private static final List<String> COMPARISON_COLUMNS = Collections.singletonList("timeCol");
+  private static final File INDEX_DIR =
+      new File(FileUtils.getTempDirectory(), "OffHeapPartitionUpsertMetadataManagerTest");
+
+  private UpsertContext.Builder _contextBuilder;
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.forceMkdir(INDEX_DIR);
+    ServerMetrics.register(mock(ServerMetrics.class));
+  }
+
+  @BeforeMethod
+  public void setUpContextBuilder() {
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension("pk", DataType.INT).addSingleValueDimension("timeCol", DataType.INT)
+        .setPrimaryKeyColumns(PRIMARY_KEY_COLUMNS).build();
+    _contextBuilder = new UpsertContext.Builder().setTableConfig(mock(TableConfig.class)).setSchema(schema)
+        .setPrimaryKeyColumns(PRIMARY_KEY_COLUMNS).setComparisonColumns(COMPARISON_COLUMNS).setTableIndexDir(INDEX_DIR);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.forceDelete(INDEX_DIR);
+  }
+
+  @Test
+  public void testUnsupportedComparisonColumns() {
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension("pk", DataType.INT).addSingleValueDimension("timeCol", DataType.STRING)
+        .addSingleValueDimension("otherCol", DataType.LONG).build();
+    assertThrows(IllegalArgumentException.class,
+        () -> new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, _contextBuilder.setSchema(schema)
+            .build()));
+    assertThrows(IllegalArgumentException.class,
+        () -> new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, _contextBuilder.setSchema(schema)
+            .setComparisonColumns(Arrays.asList("timeCol", "otherCol")).build()));
+  }
+
+  @Test
+  public void testAddReplaceRemoveSegment()
+      throws IOException {
+    verifyAddReplaceRemoveSegment(HashFunction.NONE);
+    verifyAddReplaceRemoveSegment(HashFunction.MD5);
+    verifyAddReplaceRemoveSegment(HashFunction.MURMUR3);
+  }
+
+  private void verifyAddReplaceRemoveSegment(HashFunction hashFunction)
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0,
+            _contextBuilder.setHashFunction(hashFunction).build());
+
+    // Add the first segment
+    int numRecords = 6;
+    int[] primaryKeys = new int[]{0, 1, 2, 0, 1, 0};
+    int[] timestamps = new int[]{100, 100, 100, 80, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    List<PrimaryKey> primaryKeys1 = getPrimaryKeyList(numRecords, primaryKeys);
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, primaryKeys1);
+    List<RecordInfo> recordInfoList1 = getRecordInfoList(numRecords, primaryKeys, timestamps);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null, recordInfoList1.iterator());
+    upsertMetadataManager._trackedSegments.add(segment1);
+    // segment1: 0 -> {5, 100}, 1 -> {4, 120}, 2 -> {2, 100}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 3);
+    checkRecordLocation(upsertMetadataManager, 0, segment1, 5, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 2, segment1, 2, hashFunction);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{2, 4, 5});
+
+    // Add the second segment
+    numRecords = 5;
+    primaryKeys = new int[]{0, 1, 2, 3, 0};
+    timestamps = new int[]{100, 100, 120, 80, 80};
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 = mockImmutableSegment(2, validDocIds2, getPrimaryKeyList(numRecords, primaryKeys));
+    upsertMetadataManager.addSegment(segment2, validDocIds2, null,
+        getRecordInfoList(numRecords, primaryKeys, timestamps).iterator());
+    upsertMetadataManager._trackedSegments.add(segment2);
+    // segment1: 1 -> {4, 120}
+    // segment2: 0 -> {0, 100}, 2 -> {2, 120}, 3 -> {3, 80}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 0, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 2, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 3, hashFunction);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{4});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 2, 3});
+
+    // Replace (reload) the first segment
+    ThreadSafeMutableRoaringBitmap newValidDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl newSegment1 = mockImmutableSegment(1, newValidDocIds1, primaryKeys1);
+    upsertMetadataManager.replaceSegment(newSegment1, newValidDocIds1, null, recordInfoList1.iterator(), segment1);
+    upsertMetadataManager._trackedSegments.add(newSegment1);
+    upsertMetadataManager._trackedSegments.remove(segment1);
+    // segment2: 0 -> {0, 100}, 2 -> {2, 120}, 3 -> {3, 80}
+    // new segment1: 1 -> {4, 120}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 0, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 2, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 3, hashFunction);
+    assertEquals(newValidDocIds1.getMutableRoaringBitmap().toArray(), new int[]{4});
+
+    // Remove the original segment1, which is already untracked
+    upsertMetadataManager.removeSegment(segment1);
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+
+    // Remove segment2
+    upsertMetadataManager.removeSegment(segment2);
+    // new segment1: 1 -> {4, 120}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 1);
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, hashFunction);
+    assertEquals(upsertMetadataManager._trackedSegments, Collections.singleton(newSegment1));
+
+    // Stop and close the metadata manager
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+    assertEquals(upsertMetadataManager._primaryKeyToRecordLocationMap.getOffHeapMemoryBytes(), 0);
+  }
+
+  @Test
+  public void testAddRecord()
+      throws IOException {
+    verifyAddRecord(HashFunction.NONE);
+    verifyAddRecord(HashFunction.MURMUR3);
+  }
+
+  private void verifyAddRecord(HashFunction hashFunction)
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0,
+            _contextBuilder.setHashFunction(hashFunction).build());
+
+    // Add the first segment
+    // segment1: 0 -> {0, 100}, 1 -> {1, 120}, 2 -> {2, 100}
+    int numRecords = 3;
+    int[] primaryKeys = new int[]{0, 1, 2};
+    int[] timestamps = new int[]{100, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, getPrimaryKeyList(numRecords, primaryKeys));
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(numRecords, primaryKeys, timestamps).iterator());
+
+    // Update records from the second segment
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    MutableSegment segment2 = mockMutableSegment(2, validDocIds2);
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(3), 0, 100, false)));
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(2), 1, 120, false)));
+    // Out-of-order record
+    assertFalse(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(1), 2, 100, false)));
+    // Tie should be resolved to the newer record
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(0), 3, 100, false)));
+
+    // segment1: 1 -> {1, 120}
+    // segment2: 0 -> {3, 100}, 2 -> {1, 120}, 3 -> {0, 100}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 3, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 1, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 1, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 0, hashFunction);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{1});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 1, 3});
+
+    // Stop the metadata manager, and add record should be no-op
+    upsertMetadataManager.stop();
+    assertFalse(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(0), 4, 120, false)));
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 3, hashFunction);
+
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testComparisonValueEncoding()
+      throws IOException {
+    for (DataType dataType : new DataType[]{DataType.INT, DataType.LONG, DataType.FLOAT, DataType.DOUBLE}) {
+      Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+          .addSingleValueDimension("pk", DataType.INT).addSingleValueDimension("timeCol", dataType).build();
+      OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+          new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, _contextBuilder.setSchema(schema).build());
+      ThreadSafeMutableRoaringBitmap validDocIds = new ThreadSafeMutableRoaringBitmap();
+      MutableSegment segment = mockMutableSegment(1, validDocIds);
+      Comparable[] values;
+      switch (dataType) {
+        case INT:
+          values = new Comparable[]{-5, 10, 3};
+          break;
+        case LONG:
+          values = new Comparable[]{-5L, Long.MAX_VALUE, 3L};
+          break;
+        case FLOAT:
+          values = new Comparable[]{-5.5f, 10.5f, 3.5f};
+          break;
+        default:
+          values = new Comparable[]{-5.5, 10.5, 3.5};
+          break;
+      }
+      assertTrue(upsertMetadataManager.addRecord(segment, new RecordInfo(makePrimaryKey(0), 0, values[0], false)));
+      assertTrue(upsertMetadataManager.addRecord(segment, new RecordInfo(makePrimaryKey(0), 1, values[1], false)));
+      assertFalse(upsertMetadataManager.addRecord(segment, new RecordInfo(makePrimaryKey(0), 2, values[2], false)));
+      checkRecordLocation(upsertMetadataManager, 0, segment, 1, HashFunction.NONE);
+      assertEquals(validDocIds.getMutableRoaringBitmap().toArray(), new int[]{1});
+      assertEquals(upsertMetadataManager.fromComparisonValue(Long.MIN_VALUE).getClass(), values[0].getClass());
+      upsertMetadataManager.stop();
+      upsertMetadataManager.close();
+    }
+  }
+
+  @Test
+  public void testRestoreFromMetadataCheckpoint()
+      throws IOException {
+    verifyRestoreFromMetadataCheckpoint(HashFunction.NONE);
+    verifyRestoreFromMetadataCheckpoint(HashFunction.MD5);
+  }
+
+  private void verifyRestoreFromMetadataCheckpoint(HashFunction hashFunction)
+      throws IOException {
+    UpsertContext upsertContext = _contextBuilder.setHashFunction(hashFunction).build();
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+
+    // segment1: 0 -> {0, 100}, 1 -> {1, 120}, 2 -> {2, 100}
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, getPrimaryKeyList(3, new int[]{0, 1, 2}));
+    when(segment1.getSegmentMetadata().getCrc()).thenReturn("crc1");
+    when(segment1.getSegmentMetadata().getTotalDocs()).thenReturn(3);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(3, new int[]{0, 1, 2}, new int[]{100, 120, 100}).iterator());
+    // segment2: 1 -> {0, 150}
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 = mockImmutableSegment(2, validDocIds2, getPrimaryKeyList(1, new int[]{1}));
+    when(segment2.getSegmentMetadata().getCrc()).thenReturn("crc2");
+    when(segment2.getSegmentMetadata().getTotalDocs()).thenReturn(1);
+    upsertMetadataManager.addSegment(segment2, validDocIds2, null,
+        getRecordInfoList(1, new int[]{1}, new int[]{150}).iterator());
+
+    String keyFormat = OffHeapPartitionUpsertMetadataManager.class.getName();
+    File checkpointDir = new File(INDEX_DIR, "checkpoint");
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(checkpointDir, 0, keyFormat);
+    assertEquals(checkpoint.write(Arrays.asList(segment1, segment2), upsertMetadataManager::forEachRecordLocation),
+        3);
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+
+    // Restore both segments into a new metadata manager
+    checkpoint = new UpsertMetadataCheckpoint(checkpointDir, 0, keyFormat);
+    assertTrue(checkpoint.load());
+    upsertMetadataManager = new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+    validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    upsertMetadataManager.addSegmentFromCheckpoint(segment1, validDocIds1, null,
+        checkpoint.getRecords(segment1.getSegmentName(), "crc1", 3));
+    validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    upsertMetadataManager.addSegmentFromCheckpoint(segment2, validDocIds2, null,
+        checkpoint.getRecords(segment2.getSegmentName(), "crc2", 1));
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 3);
+    checkRecordLocation(upsertMetadataManager, 0, segment1, 0, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 1, segment2, 0, hashFunction);
+    checkRecordLocation(upsertMetadataManager, 2, segment1, 2, hashFunction);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{0, 2});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0});
+    checkpoint.close();
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+
+    // Checkpoint written by a different kind of metadata manager should not be restored
+    assertFalse(new UpsertMetadataCheckpoint(checkpointDir, 0,
+        ConcurrentMapPartitionUpsertMetadataManager.class.getName()).load());
+    assertFalse(checkpoint.getCheckpointFile().exists());
+  }
+
+  private static List<RecordInfo> getRecordInfoList(int numRecords, int[] primaryKeys, int[] timestamps) {
+    List<RecordInfo> recordInfoList = new ArrayList<>();
+    for (int i = 0; i < numRecords; i++) {
+      recordInfoList.add(new RecordInfo(makePrimaryKey(primaryKeys[i]), i, timestamps[i], false));
+    }
+    return recordInfoList;
+  }
+
+  private static List<PrimaryKey> getPrimaryKeyList(int numRecords, int[] primaryKeys) {
+    List<PrimaryKey> primaryKeyList = new ArrayList<>();
+    for (int i = 0; i < numRecords; i++) {
+      primaryKeyList.add(makePrimaryKey(primaryKeys[i]));
+    }
+    return primaryKeyList;
+  }
+
+  private static ImmutableSegmentImpl mockImmutableSegment(int sequenceNumber,
+      ThreadSafeMutableRoaringBitmap validDocIds, List<PrimaryKey> primaryKeys) {
+    ImmutableSegmentImpl segment = mock(ImmutableSegmentImpl.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    DataSource dataSource = mock(DataSource.class);
+    when(segment.getDataSource(anyString())).thenReturn(dataSource);
+    ForwardIndexReader forwardIndex = mock(ForwardIndexReader.class);
+    when(forwardIndex.isSingleValue()).thenReturn(true);
+    when(forwardIndex.getStoredType()).thenReturn(DataType.INT);
+    when(forwardIndex.getInt(anyInt(), any())).thenAnswer(
+        invocation -> primaryKeys.get(invocation.getArgument(0)).getValues()[0]);
+    when(dataSource.getForwardIndex()).thenReturn(forwardIndex);
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    when(segmentMetadata.getIndexCreationTime()).thenReturn(System.currentTimeMillis());
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return segment;
+  }
+
+  private static MutableSegment mockMutableSegment(int sequenceNumber, ThreadSafeMutableRoaringBitmap validDocIds) {
+    MutableSegment segment = mock(MutableSegment.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    return segment;
+  }
+
+  private static String getSegmentName(int sequenceNumber) {
+    return new LLCSegmentName(RAW_TABLE_NAME, 0, sequenceNumber, System.currentTimeMillis()).toString();
+  }
+
+  private static PrimaryKey makePrimaryKey(int value) {
+    return new PrimaryKey(new Object[]{value});
+  }
+
+  private static void checkRecordLocation(OffHeapPartitionUpsertMetadataManager upsertMetadataManager, int keyValue,
+      IndexSegment segment, int docId, HashFunction hashFunction) {
+    long location = upsertMetadataManager._primaryKeyToRecordLocationMap.getLocation(
+        HashUtils.hashPrimaryKeyAsBytes(makePrimaryKey(keyValue), hashFunction));
+    assertNotEquals(location, OffHeapPrimaryKeyToRecordLocationMap.NO_LOCATION);
+    assertSame(upsertMetadataManager.getSegment(location), segment);
+    assertEquals(OffHeapPrimaryKeyToRecordLocationMap.getDocId(location), docId);
+  }
+}
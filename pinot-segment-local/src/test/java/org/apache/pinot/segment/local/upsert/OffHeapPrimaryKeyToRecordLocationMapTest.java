@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+import static org.apache.pinot.segment.local.upsert.OffHeapPrimaryKeyToRecordLocationMap.NO_LOCATION;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapPrimaryKeyToRecordLocationMapTest {
+
+  @Test
+  public void testLocation() {
+    long location = OffHeapPrimaryKeyToRecordLocationMap.toLocation(123, 456);
+    assertEquals(OffHeapPrimaryKeyToRecordLocationMap.getSegmentOrdinal(location), 123);
+    assertEquals(OffHeapPrimaryKeyToRecordLocationMap.getDocId(location), 456);
+    location = OffHeapPrimaryKeyToRecordLocationMap.toLocation(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    assertEquals(OffHeapPrimaryKeyToRecordLocationMap.getSegmentOrdinal(location), Integer.MAX_VALUE);
+    assertEquals(OffHeapPrimaryKeyToRecordLocationMap.getDocId(location), Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testCompute()
+      throws IOException {
+    try (OffHeapPrimaryKeyToRecordLocationMap map = new OffHeapPrimaryKeyToRecordLocationMap(16, "testCompute")) {
+      byte[] key = "key".getBytes(StandardCharsets.UTF_8);
+      byte[] emptyKey = new byte[0];
+      assertEquals(map.getLocation(key), NO_LOCATION);
+
+      // Remapper returning NO_LOCATION for absent key should not add the key
+      map.compute(key, 100L, (location, comparisonValue) -> NO_LOCATION);
+      assertEquals(map.size(), 0);
+
+      map.compute(key, 100L, (location, comparisonValue) -> {
+        assertEquals(location, NO_LOCATION);
+        return 1L;
+      });
+      map.put(emptyKey, 2L, 50L);
+      assertEquals(map.size(), 2);
+      assertEquals(map.getLocation(key), 1L);
+      assertEquals(map.getLocation(emptyKey), 2L);
+
+      // Keep the current entry
+      map.compute(key, 200L, (location, comparisonValue) -> {
+        assertEquals(location, 1L);
+        assertEquals(comparisonValue, 100L);
+        return location;
+      });
+      map.computeIfPresent(key, (location, comparisonValue) -> {
+        assertEquals(comparisonValue, 100L);
+        return location;
+      });
+
+      // Update the entry
+      map.compute(key, 200L, (location, comparisonValue) -> 3L);
+      map.computeIfPresent(key, (location, comparisonValue) -> {
+        assertEquals(location, 3L);
+        assertEquals(comparisonValue, 200L);
+        return location;
+      });
+
+      // Remove the entries
+      map.computeIfPresent(key, (location, comparisonValue) -> NO_LOCATION);
+      map.compute(emptyKey, 0L, (location, comparisonValue) -> NO_LOCATION);
+      assertEquals(map.size(), 0);
+      assertEquals(map.getLocation(key), NO_LOCATION);
+      assertEquals(map.getLocation(emptyKey), NO_LOCATION);
+    }
+  }
+
+  @Test
+  public void testRandomOperations()
+      throws IOException {
+    Random random = new Random();
+    Map<String, Long> expected = new HashMap<>();
+    try (OffHeapPrimaryKeyToRecordLocationMap map = new OffHeapPrimaryKeyToRecordLocationMap(16,
+        "testRandomOperations")) {
+      for (int i = 0; i < 100_000; i++) {
+        String key = "pk_" + random.nextInt(20_000);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (random.nextInt(4) == 0) {
+          map.computeIfPresent(keyBytes, (location, comparisonValue) -> NO_LOCATION);
+          expected.remove(key);
+        } else {
+          long newLocation = OffHeapPrimaryKeyToRecordLocationMap.toLocation(random.nextInt(10), i);
+          map.put(keyBytes, newLocation, i);
+          expected.put(key, newLocation);
+        }
+      }
+      assertEquals(map.size(), expected.size());
+      for (Map.Entry<String, Long> entry : expected.entrySet()) {
+        assertEquals(map.getLocation(entry.getKey().getBytes(StandardCharsets.UTF_8)), (long) entry.getValue());
+      }
+      assertTrue(map.getOffHeapMemoryBytes() > 0);
+
+      // Remove all the entries from segment 0
+      int numRemoved =
+          map.removeIf((location, comparisonValue) -> OffHeapPrimaryKeyToRecordLocationMap.getSegmentOrdinal(location)
+              == 0);
+      int expectedNumRemoved = 0;
+      for (Map.Entry<String, Long> entry : expected.entrySet()) {
+        byte[] keyBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        if (OffHeapPrimaryKeyToRecordLocationMap.getSegmentOrdinal(entry.getValue()) == 0) {
+          expectedNumRemoved++;
+          assertEquals(map.getLocation(keyBytes), NO_LOCATION);
+        } else {
+          assertEquals(map.getLocation(keyBytes), (long) entry.getValue());
+        }
+      }
+      assertEquals(numRemoved, expectedNumRemoved);
+      assertEquals(map.size(), expected.size() - expectedNumRemoved);
+    }
+  }
+
+  @Test
+  public void testClose()
+      throws IOException {
+    OffHeapPrimaryKeyToRecordLocationMap map = new OffHeapPrimaryKeyToRecordLocationMap(16, "testClose");
+    map.put(new byte[]{1, 2, 3}, 1L, 1L);
+    map.close();
+    assertEquals(map.getOffHeapMemoryBytes(), 0);
+    assertThrows(IllegalStateException.class, () -> map.getLocation(new byte[]{1, 2, 3}));
+  }
+}
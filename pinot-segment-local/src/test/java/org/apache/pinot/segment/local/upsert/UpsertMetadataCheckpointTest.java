@@ -0,0 +1,286 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.SegmentMetadata;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class UpsertMetadataCheckpointTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "UpsertMetadataCheckpointTest");
+  private static final String KEY_FORMAT = "testKeyFormat";
+  private static final String CRC = "12345";
+
+  @BeforeMethod
+  public void setUp() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  private static ImmutableSegment mockSegment(String segmentName, int numDocs,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds) {
+    ImmutableSegment segment = mock(ImmutableSegment.class);
+    when(segment.getSegmentName()).thenReturn(segmentName);
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getCrc()).thenReturn(CRC);
+    when(segmentMetadata.getTotalDocs()).thenReturn(numDocs);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    when(segment.getQueryableDocIds()).thenReturn(queryableDocIds);
+    return segment;
+  }
+
+  private static class TestRecord {
+    final Object _key;
+    final IndexSegment _segment;
+    final int _docId;
+    final Object _comparisonValue;
+
+    TestRecord(Object key, IndexSegment segment, int docId, @Nullable Object comparisonValue) {
+      _key = key;
+      _segment = segment;
+      _docId = docId;
+      _comparisonValue = comparisonValue;
+    }
+  }
+
+  private static UpsertMetadataCheckpoint.RecordLocationIterable toIterable(List<TestRecord> records) {
+    return consumer -> {
+      for (TestRecord record : records) {
+        consumer.accept(record._key, record._segment, record._docId, record._comparisonValue);
+      }
+    };
+  }
+
+  private static void assertRecordEquals(UpsertMetadataCheckpoint.CheckpointRecord actual, TestRecord expected,
+      boolean deleteRecord) {
+    assertEquals(actual.getKey(), expected._key);
+    assertNull(actual.getPrimaryKey());
+    assertEquals(actual.getDocId(), expected._docId);
+    assertEquals(actual.isDeleteRecord(), deleteRecord);
+    if (expected._comparisonValue instanceof ComparisonColumns) {
+      ComparisonColumns actualComparisonColumns = (ComparisonColumns) actual.getComparisonValue();
+      ComparisonColumns expectedComparisonColumns = (ComparisonColumns) expected._comparisonValue;
+      assertEquals(actualComparisonColumns.getValues(), expectedComparisonColumns.getValues());
+      assertEquals(actualComparisonColumns.getComparableIndex(), ComparisonColumns.SEALED_SEGMENT_COMPARISON_INDEX);
+    } else {
+      assertEquals(actual.getComparisonValue(), expected._comparisonValue);
+    }
+  }
+
+  @Test
+  public void testWriteAndLoad()
+      throws IOException {
+    ThreadSafeMutableRoaringBitmap queryableDocIds = new ThreadSafeMutableRoaringBitmap();
+    queryableDocIds.add(0);
+    queryableDocIds.add(2);
+    ImmutableSegment segment1 = mockSegment("segment1", 3, queryableDocIds);
+    ImmutableSegment segment2 = mockSegment("segment2", 2, null);
+    // Records in segments not passed to the checkpoint (e.g. consuming segments) should be skipped
+    IndexSegment consumingSegment = mock(IndexSegment.class);
+
+    // Records of different segments are interleaved in the map
+    List<TestRecord> records = new ArrayList<>();
+    records.add(new TestRecord(new PrimaryKey(new Object[]{1, "a"}), segment1, 0, 100L));
+    records.add(new TestRecord(new PrimaryKey(new Object[]{2, null}), segment2, 1, null));
+    records.add(new TestRecord(new PrimaryKey(new Object[]{3, 3.0}), consumingSegment, 0, 300L));
+    records.add(new TestRecord(new ByteArray(new byte[]{4, 5}), segment1, 1, new BigDecimal("1.5")));
+    records.add(new TestRecord(new PrimaryKey(new Object[]{new ByteArray(new byte[]{5}), 5.0f}), segment2, 0,
+        new ComparisonColumns(new Comparable[]{null, 10.0f}, ComparisonColumns.SEALED_SEGMENT_COMPARISON_INDEX)));
+    records.add(new TestRecord(new ByteArray(new byte[]{6}), segment1, 2, "c"));
+
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, KEY_FORMAT);
+    assertFalse(checkpoint.load());
+    assertEquals(checkpoint.write(List.of(segment1, segment2), toIterable(records)), 5);
+    assertTrue(checkpoint.getCheckpointFile().exists());
+    assertFalse(checkpoint.isLoaded());
+
+    try (UpsertMetadataCheckpoint loadedCheckpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, KEY_FORMAT)) {
+      assertTrue(loadedCheckpoint.load());
+      assertTrue(loadedCheckpoint.isLoaded());
+
+      // Records are grouped by segment, and the delete flag is derived from the queryable doc ids
+      Iterator<UpsertMetadataCheckpoint.CheckpointRecord> iterator = loadedCheckpoint.getRecords("segment1", CRC, 3);
+      assertNotNull(iterator);
+      assertRecordEquals(iterator.next(), records.get(0), false);
+      assertRecordEquals(iterator.next(), records.get(3), true);
+      assertRecordEquals(iterator.next(), records.get(5), false);
+      assertFalse(iterator.hasNext());
+
+      // Records of each segment can be returned only once
+      assertNull(loadedCheckpoint.getRecords("segment1", CRC, 3));
+
+      iterator = loadedCheckpoint.getRecords("segment2", CRC, 2);
+      assertNotNull(iterator);
+      assertRecordEquals(iterator.next(), records.get(1), false);
+      assertRecordEquals(iterator.next(), records.get(4), false);
+      assertFalse(iterator.hasNext());
+
+      assertNull(loadedCheckpoint.getRecords("segment3", CRC, 2));
+    }
+
+    // The checkpoint file is kept after closing
+    assertTrue(checkpoint.getCheckpointFile().exists());
+  }
+
+  @Test
+  public void testSegmentMismatch()
+      throws IOException {
+    ImmutableSegment segment1 = mockSegment("segment1", 1, null);
+    ImmutableSegment segment2 = mockSegment("segment2", 1, null);
+    List<TestRecord> records = new ArrayList<>();
+    records.add(new TestRecord(new ByteArray(new byte[]{1}), segment1, 0, 1));
+    records.add(new TestRecord(new ByteArray(new byte[]{2}), segment2, 0, 2));
+
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, KEY_FORMAT);
+    assertEquals(checkpoint.write(List.of(segment1, segment2), toIterable(records)), 2);
+    assertTrue(checkpoint.load());
+
+    // CRC or number of docs mismatch (e.g. segment replaced after the checkpoint is taken)
+    assertNull(checkpoint.getRecords("segment1", "54321", 1));
+    assertNull(checkpoint.getRecords("segment1", CRC, 1));
+    assertNull(checkpoint.getRecords("segment2", CRC, 2));
+    assertNull(checkpoint.getRecords("segment2", CRC, 1));
+    checkpoint.close();
+  }
+
+  @Test
+  public void testKeyFormatMismatch()
+      throws IOException {
+    ImmutableSegment segment = mockSegment("segment", 1, null);
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, KEY_FORMAT);
+    checkpoint.write(List.of(segment),
+        toIterable(Collections.singletonList(new TestRecord(new ByteArray(new byte[]{1}), segment, 0, 1L))));
+
+    // Checkpoint of another partition should not be loaded
+    assertFalse(new UpsertMetadataCheckpoint(TEMP_DIR, 1, KEY_FORMAT).load());
+
+    // Checkpoint with a different key format should be deleted
+    UpsertMetadataCheckpoint otherCheckpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, "otherKeyFormat");
+    assertFalse(otherCheckpoint.load());
+    assertFalse(otherCheckpoint.isLoaded());
+    assertFalse(checkpoint.getCheckpointFile().exists());
+    assertFalse(checkpoint.load());
+  }
+
+  @Test
+  public void testInvalidCheckpoint()
+      throws IOException {
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, KEY_FORMAT);
+    FileUtils.writeByteArrayToFile(checkpoint.getCheckpointFile(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    assertFalse(checkpoint.load());
+    assertFalse(checkpoint.getCheckpointFile().exists());
+  }
+
+  @Test
+  public void testIncompleteRecords()
+      throws IOException {
+    ImmutableSegment segment1 = mockSegment("segment1", 2, null);
+    ImmutableSegment segment2 = mockSegment("segment2", 2, null);
+    ImmutableSegment segment3 = mockSegment("segment3", 2, null);
+    TestRecord record1 = new TestRecord(new ByteArray(new byte[]{1}), segment1, 0, 1L);
+    TestRecord record2 = new TestRecord(new ByteArray(new byte[]{2}), segment2, 0, 2L);
+    TestRecord record3 = new TestRecord(new ByteArray(new byte[]{3}), segment3, 0, 3L);
+
+    // Simulate the map being modified between the 2 passes:
+    // - segment1 gets an extra record in the second pass, which doesn't fit
+    // - segment2 loses a record in the second pass
+    // - segment3 has 2 records in the first pass, and 1 record of the same total size in the second pass
+    AtomicInteger numPasses = new AtomicInteger();
+    UpsertMetadataCheckpoint.RecordLocationIterable recordLocations = consumer -> {
+      boolean firstPass = numPasses.getAndIncrement() == 0;
+      consumer.accept(record1._key, segment1, 0, 1L);
+      consumer.accept(record2._key, segment2, 0, 2L);
+      if (firstPass) {
+        consumer.accept(new ByteArray(new byte[]{4}), segment2, 1, 4L);
+        consumer.accept(record3._key, segment3, 0, 3L);
+        consumer.accept(new ByteArray(new byte[]{5}), segment3, 1, 5L);
+      } else {
+        consumer.accept(new ByteArray(new byte[]{6}), segment1, 1, 6L);
+        // Each record takes 4 (doc id) + 1 (delete flag) + 9 (comparison value) + 5 (key header) + key length bytes
+        consumer.accept(new ByteArray(new byte[21]), segment3, 1, 7L);
+      }
+    };
+
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, KEY_FORMAT);
+    assertEquals(checkpoint.write(List.of(segment1, segment2, segment3), recordLocations), 0);
+    assertEquals(numPasses.get(), 2);
+    assertTrue(checkpoint.load());
+    assertNull(checkpoint.getRecords("segment1", CRC, 2));
+    assertNull(checkpoint.getRecords("segment2", CRC, 2));
+    assertNull(checkpoint.getRecords("segment3", CRC, 2));
+    checkpoint.close();
+
+    // A consistent map should be fully written
+    assertEquals(checkpoint.write(List.of(segment1, segment2, segment3),
+        toIterable(List.of(record1, record2, record3))), 3);
+    assertTrue(checkpoint.load());
+    Iterator<UpsertMetadataCheckpoint.CheckpointRecord> iterator = checkpoint.getRecords("segment2", CRC, 2);
+    assertNotNull(iterator);
+    assertRecordEquals(iterator.next(), record2, false);
+    assertFalse(iterator.hasNext());
+    checkpoint.close();
+  }
+
+  @Test
+  public void testDelete()
+      throws IOException {
+    ImmutableSegment segment = mockSegment("segment", 1, null);
+    UpsertMetadataCheckpoint checkpoint = new UpsertMetadataCheckpoint(TEMP_DIR, 0, KEY_FORMAT);
+    assertEquals(checkpoint.write(Collections.emptyList(), toIterable(Collections.emptyList())), 0);
+    assertFalse(checkpoint.getCheckpointFile().exists());
+
+    checkpoint.write(List.of(segment),
+        toIterable(Collections.singletonList(new TestRecord(new ByteArray(new byte[]{1}), segment, 0, 1L))));
+    assertTrue(checkpoint.load());
+    checkpoint.delete();
+    assertFalse(checkpoint.isLoaded());
+    assertNull(checkpoint.getRecords("segment", CRC, 1));
+    assertFalse(checkpoint.getCheckpointFile().exists());
+    assertFalse(checkpoint.load());
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.pinot.segment.spi;
 import java.io.File;
 import java.io.IOException;
 import javax.annotation.Nullable;
+import org.apache.pinot.spi.data.readers.ColumnarRecordBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.stream.RowMetadata;
 
@@ -37,6 +38,24 @@ public interface MutableSegment extends IndexSegment {
   boolean index(GenericRow row, @Nullable RowMetadata rowMetadata)
       throws IOException;
 
+  /**
+   * Indexes a batch of records in columnar format into the segment with optionally provided metadata (of the last
+   * record in the batch). The records are indexed in the order of the batch.
+   *
+   * @param batch Records represented as a {@link ColumnarRecordBatch}
+   * @param rowMetadata the metadata associated with the last message in the batch
+   * @return Whether the segment is full (i.e. cannot index more record into it)
+   */
+  default boolean index(ColumnarRecordBatch batch, @Nullable RowMetadata rowMetadata)
+      throws IOException {
+    boolean canTakeMore = true;
+    int numRows = batch.getNumRows();
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      canTakeMore = index(batch.getRow(rowId, new GenericRow()), rowMetadata);
+    }
+    return canTakeMore;
+  }
+
   /**
    * Returns the number of records already indexed into the segment.
    *
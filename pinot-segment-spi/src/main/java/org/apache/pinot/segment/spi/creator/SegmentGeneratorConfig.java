@@ -105,6 +105,7 @@ public class SegmentGeneratorConfig implements Serializable {
   private RecordReaderConfig _readerConfig = null;
   private List<StarTreeIndexConfig> _starTreeIndexConfigs = null;
   private boolean _enableDefaultStarTree = false;
+  private boolean _enableStarTreeExternalSort = false;
   private String _creatorVersion = null;
   private SegmentNameGenerator _segmentNameGenerator = null;
   private SegmentPartitionConfig _segmentPartitionConfig = null;
@@ -120,6 +121,8 @@ public class SegmentGeneratorConfig implements Serializable {
   private boolean _rowTimeValueCheck = false;
   private boolean _segmentTimeValueCheck = true;
   private boolean _failOnEmptySegment = false;
+  // Number of columns to build in parallel
+  private int _indexBuildParallelism = 1;
   private boolean _optimizeDictionary = false;
   private boolean _optimizeDictionaryForMetrics = false;
   private double _noDictionarySizeRatioThreshold = IndexingConfig.DEFAULT_NO_DICTIONARY_SIZE_RATIO_THRESHOLD;
@@ -185,6 +188,7 @@ public class SegmentGeneratorConfig implements Serializable {
       // Star-tree configs
       setStarTreeIndexConfigs(indexingConfig.getStarTreeIndexConfigs());
       setEnableDefaultStarTree(indexingConfig.isEnableDefaultStarTree());
+      _enableStarTreeExternalSort = indexingConfig.isEnableStarTreeExternalSort();
 
       List<FieldConfig> fieldConfigList = tableConfig.getFieldConfigList();
       if (fieldConfigList != null) {
@@ -204,6 +208,7 @@ public class SegmentGeneratorConfig implements Serializable {
       _optimizeDictionary = indexingConfig.isOptimizeDictionary();
       _optimizeDictionaryForMetrics = indexingConfig.isOptimizeDictionaryForMetrics();
       _noDictionarySizeRatioThreshold = indexingConfig.getNoDictionarySizeRatioThreshold();
+      _indexBuildParallelism = indexingConfig.getSegmentIndexBuildParallelism();
     }
 
     IngestionConfig ingestionConfig = tableConfig.getIngestionConfig();
@@ -580,6 +585,14 @@ public class SegmentGeneratorConfig implements Serializable {
     _enableDefaultStarTree = enableDefaultStarTree;
   }
 
+  public boolean isEnableStarTreeExternalSort() {
+    return _enableStarTreeExternalSort;
+  }
+
+  public void setEnableStarTreeExternalSort(boolean enableStarTreeExternalSort) {
+    _enableStarTreeExternalSort = enableStarTreeExternalSort;
+  }
+
   public SegmentNameGenerator getSegmentNameGenerator() {
     if (_segmentNameGenerator != null) {
       return _segmentNameGenerator;
@@ -775,6 +788,14 @@ public class SegmentGeneratorConfig implements Serializable {
     _failOnEmptySegment = failOnEmptySegment;
   }
 
+  public int getIndexBuildParallelism() {
+    return _indexBuildParallelism;
+  }
+
+  public void setIndexBuildParallelism(int indexBuildParallelism) {
+    _indexBuildParallelism = indexBuildParallelism;
+  }
+
   public SegmentZKPropsConfig getSegmentZKPropsConfig() {
     return _segmentZKPropsConfig;
   }
@@ -240,6 +240,20 @@ public interface MutableForwardIndex extends ForwardIndexReader<ForwardIndexRead
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Writes the dictionary ids for a single-value column into the consecutive document ids starting from the given
+   * document id.
+   *
+   * @param dictIds Dictionary ids to write
+   * @param startDocId Document id of the first dictionary id
+   * @param length Number of dictionary ids to write
+   */
+  default void setDictIds(int[] dictIds, int startDocId, int length) {
+    for (int i = 0; i < length; i++) {
+      setDictId(startDocId + i, dictIds[i]);
+    }
+  }
+
   /**
    * Writes the dictionary ids for a multi-value column into the given document id.
    *
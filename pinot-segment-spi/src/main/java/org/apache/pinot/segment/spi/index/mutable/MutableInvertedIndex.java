@@ -43,4 +43,16 @@ public interface MutableInvertedIndex extends InvertedIndexReader<MutableRoaring
    * @param docId document id
    */
   void add(int dictId, int docId);
+
+  /**
+   * Adds the consecutive docIds starting from {@code startDocId} to the posting lists for the dictionary ids.
+   * @param dictIds dictionary ids, one per document
+   * @param startDocId document id of the first dictionary id
+   * @param length number of documents to add
+   */
+  default void add(int[] dictIds, int startDocId, int length) {
+    for (int i = 0; i < length; i++) {
+      add(dictIds[i], startDocId + i);
+    }
+  }
 }
@@ -33,11 +33,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
@@ -49,6 +51,7 @@ import org.apache.pinot.common.restlet.resources.SegmentServerDebugInfo;
 import org.apache.pinot.common.utils.DatabaseUtils;
 import org.apache.pinot.core.data.manager.offline.ImmutableSegmentDataManager;
 import org.apache.pinot.core.data.manager.realtime.RealtimeSegmentDataManager;
+import org.apache.pinot.core.operator.filter.FilterSelectivityStatistics;
 import org.apache.pinot.segment.local.data.manager.SegmentDataManager;
 import org.apache.pinot.segment.local.data.manager.TableDataManager;
 import org.apache.pinot.segment.spi.ImmutableSegment;
@@ -128,6 +131,20 @@ public class DebugResource {
     }
   }
 
+  @GET
+  @Path("filterStatistics")
+  @Produces(MediaType.APPLICATION_JSON)
+  @ApiOperation(value = "Get the runtime filter statistics collected for adaptive filter reordering",
+      notes = "This is a debug endpoint, and won't maintain backward compatibility")
+  public List<Map<String, Object>> getFilterStatistics(
+      @ApiParam(value = "Name of the table (with type), or all tables if not specified") @QueryParam("tableName")
+      @Nullable String tableNameWithType, @Context HttpHeaders headers) {
+    if (tableNameWithType != null) {
+      tableNameWithType = DatabaseUtils.translateTableName(tableNameWithType, headers);
+    }
+    return FilterSelectivityStatistics.getInstance().getStatistics(tableNameWithType);
+  }
+
   @GET
   @Path("threads/resourceUsage")
   @Produces(MediaType.APPLICATION_JSON)
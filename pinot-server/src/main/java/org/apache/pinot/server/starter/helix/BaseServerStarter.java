@@ -217,9 +217,12 @@ public abstract class BaseServerStarter implements ServiceStartable {
     int dataTableVersion =
         _serverConf.getProperty(Server.CONFIG_OF_CURRENT_DATA_TABLE_VERSION, DataTableBuilderFactory.DEFAULT_VERSION);
     if (dataTableVersion > DataTableBuilderFactory.DEFAULT_VERSION) {
-      LOGGER.warn("Setting experimental DataTable version newer than default via config could result in"
-          + " backward-compatibility issues. Current default DataTable version: "
-          + DataTableBuilderFactory.DEFAULT_VERSION);
+      // Brokers before the columnar data table (version 5) never send the data table version query option and cannot
+      // read it, so newer versions are only sent to the brokers requesting them per query
+      LOGGER.warn("DataTable version: {} is only sent to the brokers requesting it with query option: {}. Using the "
+          + "default DataTable version: {} for the other queries", dataTableVersion,
+          CommonConstants.Broker.Request.QueryOptionKey.DATA_TABLE_VERSION, DataTableBuilderFactory.DEFAULT_VERSION);
+      dataTableVersion = DataTableBuilderFactory.DEFAULT_VERSION;
     }
     DataTableBuilderFactory.setDataTableVersion(dataTableVersion);
 
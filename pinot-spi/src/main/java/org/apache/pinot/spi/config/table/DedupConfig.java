@@ -20,6 +20,9 @@ package org.apache.pinot.spi.config.table;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.pinot.spi.config.BaseJsonConfig;
 
 public class DedupConfig extends BaseJsonConfig {
@@ -27,6 +30,9 @@ public class DedupConfig extends BaseJsonConfig {
   private final HashFunction _hashFunction;
   private final String _metadataManagerClass;
 
+  @JsonPropertyDescription("Custom configs for dedup metadata manager")
+  private Map<String, String> _metadataManagerConfigs;
+
   public DedupConfig(@JsonProperty(value = "dedupEnabled", required = true) boolean dedupEnabled,
       @JsonProperty(value = "hashFunction") HashFunction hashFunction) {
     this(dedupEnabled, hashFunction, null);
@@ -52,4 +58,13 @@ public class DedupConfig extends BaseJsonConfig {
   public String getMetadataManagerClass() {
     return _metadataManagerClass;
   }
+
+  @Nullable
+  public Map<String, String> getMetadataManagerConfigs() {
+    return _metadataManagerConfigs;
+  }
+
+  public void setMetadataManagerConfigs(Map<String, String> metadataManagerConfigs) {
+    _metadataManagerConfigs = metadataManagerConfigs;
+  }
 }
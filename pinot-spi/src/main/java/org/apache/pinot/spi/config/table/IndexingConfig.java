@@ -59,10 +59,14 @@ public class IndexingConfig extends BaseJsonConfig {
   private List<StarTreeIndexConfig> _starTreeIndexConfigs;
   // Whether to allow creating star-tree when server loads the segment
   private boolean _enableDynamicStarTreeCreation;
+  // Whether to build star-trees with external merge sort during segment creation, which bounds the memory usage
+  private boolean _enableStarTreeExternalSort;
   private SegmentPartitionConfig _segmentPartitionConfig;
   private boolean _aggregateMetrics;
   private boolean _nullHandlingEnabled;
   private boolean _columnMajorSegmentBuilderEnabled = true;
+  // Number of threads used to build the column indexes in parallel during the segment creation
+  private int _segmentIndexBuildParallelism = 1;
 
   /**
    * If `optimizeDictionary` enabled, dictionary is not created for the high-cardinality
@@ -320,6 +324,14 @@ public class IndexingConfig extends BaseJsonConfig {
     _enableDynamicStarTreeCreation = enableDynamicStarTreeCreation;
   }
 
+  public boolean isEnableStarTreeExternalSort() {
+    return _enableStarTreeExternalSort;
+  }
+
+  public void setEnableStarTreeExternalSort(boolean enableStarTreeExternalSort) {
+    _enableStarTreeExternalSort = enableStarTreeExternalSort;
+  }
+
   @Nullable
   public SegmentPartitionConfig getSegmentPartitionConfig() {
     return _segmentPartitionConfig;
@@ -361,6 +373,14 @@ public class IndexingConfig extends BaseJsonConfig {
     _optimizeDictionary = optimizeDictionary;
   }
 
+  public int getSegmentIndexBuildParallelism() {
+    return _segmentIndexBuildParallelism;
+  }
+
+  public void setSegmentIndexBuildParallelism(int segmentIndexBuildParallelism) {
+    _segmentIndexBuildParallelism = segmentIndexBuildParallelism;
+  }
+
   public boolean isOptimizeDictionaryForMetrics() {
     return _optimizeDictionaryForMetrics;
   }
@@ -79,6 +79,13 @@ public class UpsertConfig extends BaseJsonConfig {
   @JsonPropertyDescription("Whether to preload segments for fast upsert metadata recovery")
   private boolean _enablePreload;
 
+  @JsonPropertyDescription("Whether to checkpoint the primary keys and comparison values of the committed segments for "
+      + "fast upsert metadata recovery, requires snapshot to be enabled")
+  private boolean _enableMetadataCheckpoint;
+
+  @JsonPropertyDescription("Minimum interval between two metadata checkpoints, which are taken with the snapshots")
+  private long _metadataCheckpointIntervalMs = 600_000;
+
   @JsonPropertyDescription("Configure the way to provide consistent view for upsert table")
   private ConsistencyMode _consistencyMode = ConsistencyMode.NONE;
 
@@ -160,6 +167,14 @@ public class UpsertConfig extends BaseJsonConfig {
     return _enablePreload;
   }
 
+  public boolean isEnableMetadataCheckpoint() {
+    return _enableMetadataCheckpoint;
+  }
+
+  public long getMetadataCheckpointIntervalMs() {
+    return _metadataCheckpointIntervalMs;
+  }
+
   public ConsistencyMode getConsistencyMode() {
     return _consistencyMode;
   }
@@ -258,6 +273,14 @@ public class UpsertConfig extends BaseJsonConfig {
     _enablePreload = enablePreload;
   }
 
+  public void setEnableMetadataCheckpoint(boolean enableMetadataCheckpoint) {
+    _enableMetadataCheckpoint = enableMetadataCheckpoint;
+  }
+
+  public void setMetadataCheckpointIntervalMs(long metadataCheckpointIntervalMs) {
+    _metadataCheckpointIntervalMs = metadataCheckpointIntervalMs;
+  }
+
   public void setConsistencyMode(ConsistencyMode consistencyMode) {
     _consistencyMode = consistencyMode;
   }
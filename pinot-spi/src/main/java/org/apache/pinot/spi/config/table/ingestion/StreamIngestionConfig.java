@@ -30,6 +30,7 @@ import org.apache.pinot.spi.config.BaseJsonConfig;
  * Contains all the configs related to the streams for ingestion
  */
 public class StreamIngestionConfig extends BaseJsonConfig {
+  public static final int DEFAULT_PIPELINED_CONSUMPTION_DECODE_THREADS = 2;
 
   @JsonPropertyDescription("All configs for the streams from which to ingest")
   private final List<Map<String, String>> _streamConfigMaps;
@@ -40,6 +41,14 @@ public class StreamIngestionConfig extends BaseJsonConfig {
   @JsonPropertyDescription("Whether to track offsets of the filtered stream messages during consumption.")
   private boolean _trackFilteredMessageOffsets = false;
 
+  @JsonPropertyDescription("Whether to prefetch the next message batch and decode messages on worker threads while "
+      + "indexing the current batch during consumption.")
+  private boolean _pipelinedConsumptionEnabled = false;
+
+  @JsonPropertyDescription("Number of worker threads per partition to decode and transform messages with pipelined "
+      + "consumption.")
+  private int _pipelinedConsumptionDecodeThreads = DEFAULT_PIPELINED_CONSUMPTION_DECODE_THREADS;
+
   @JsonCreator
   public StreamIngestionConfig(@JsonProperty("streamConfigMaps") List<Map<String, String>> streamConfigMaps) {
     _streamConfigMaps = streamConfigMaps;
@@ -64,4 +73,20 @@ public class StreamIngestionConfig extends BaseJsonConfig {
   public boolean isTrackFilteredMessageOffsets() {
     return _trackFilteredMessageOffsets;
   }
+
+  public void setPipelinedConsumptionEnabled(boolean pipelinedConsumptionEnabled) {
+    _pipelinedConsumptionEnabled = pipelinedConsumptionEnabled;
+  }
+
+  public boolean isPipelinedConsumptionEnabled() {
+    return _pipelinedConsumptionEnabled;
+  }
+
+  public void setPipelinedConsumptionDecodeThreads(int pipelinedConsumptionDecodeThreads) {
+    _pipelinedConsumptionDecodeThreads = pipelinedConsumptionDecodeThreads;
+  }
+
+  public int getPipelinedConsumptionDecodeThreads() {
+    return _pipelinedConsumptionDecodeThreads;
+  }
 }
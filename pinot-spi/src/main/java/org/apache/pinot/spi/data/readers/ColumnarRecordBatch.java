@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.spi.data.readers;
+
+import com.google.common.base.Preconditions;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+
+/**
+ * Columnar representation of a batch of records, where the values of each column are stored in an array indexed by the
+ * row id within the batch. It follows the same value conventions as {@link GenericRow}: a column with {@code null}
+ * value should have the {@code defaultNullValue} filled, and the row marked as null for the column.
+ * <p>Indexing a columnar batch avoids the per-row map lookups of {@link GenericRow}. The batch can be filled directly
+ * (e.g. by a decoder), or converted from rows via {@link #fromRows(List)}.
+ */
+public class ColumnarRecordBatch {
+  private final int _numRows;
+  private final Map<String, Object[]> _columnToValuesMap = new HashMap<>();
+  private final Map<String, BitSet> _columnToNullRowsMap = new HashMap<>();
+
+  public ColumnarRecordBatch(int numRows) {
+    _numRows = numRows;
+  }
+
+  /**
+   * Converts the given rows into a columnar batch. Special keys (e.g. {@link GenericRow#SKIP_RECORD_KEY}) are not
+   * expected in the rows.
+   */
+  public static ColumnarRecordBatch fromRows(List<GenericRow> rows) {
+    int numRows = rows.size();
+    ColumnarRecordBatch batch = new ColumnarRecordBatch(numRows);
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      GenericRow row = rows.get(rowId);
+      for (Map.Entry<String, Object> entry : row.getFieldToValueMap().entrySet()) {
+        batch.putValue(entry.getKey(), rowId, entry.getValue());
+      }
+      for (String nullValueField : row.getNullValueFields()) {
+        batch.addNullValueRow(nullValueField, rowId);
+      }
+    }
+    return batch;
+  }
+
+  public int getNumRows() {
+    return _numRows;
+  }
+
+  public Set<String> getColumns() {
+    return _columnToValuesMap.keySet();
+  }
+
+  /**
+   * Returns the values of the given column, or {@code null} if the column does not exist in the batch. The value of a
+   * row can be {@code null} if it is not set.
+   */
+  @Nullable
+  public Object[] getValues(String column) {
+    return _columnToValuesMap.get(column);
+  }
+
+  public void putValues(String column, Object[] values) {
+    Preconditions.checkArgument(values.length == _numRows, "Expected %s values for column: %s, got: %s", _numRows,
+        column, values.length);
+    _columnToValuesMap.put(column, values);
+  }
+
+  public void putValue(String column, int rowId, @Nullable Object value) {
+    _columnToValuesMap.computeIfAbsent(column, k -> new Object[_numRows])[rowId] = value;
+  }
+
+  /**
+   * Returns the rows with {@code null} value for the given column, or {@code null} if there is no such row.
+   */
+  @Nullable
+  public BitSet getNullValueRows(String column) {
+    return _columnToNullRowsMap.get(column);
+  }
+
+  public boolean isNullValue(String column, int rowId) {
+    BitSet nullRows = _columnToNullRowsMap.get(column);
+    return nullRows != null && nullRows.get(rowId);
+  }
+
+  public void addNullValueRow(String column, int rowId) {
+    _columnToNullRowsMap.computeIfAbsent(column, k -> new BitSet(_numRows)).set(rowId);
+  }
+
+  /**
+   * Fills the given row with the values of the row at the given row id, and returns the row.
+   */
+  public GenericRow getRow(int rowId, GenericRow reuse) {
+    reuse.clear();
+    for (Map.Entry<String, Object[]> entry : _columnToValuesMap.entrySet()) {
+      Object value = entry.getValue()[rowId];
+      if (value != null) {
+        reuse.putValue(entry.getKey(), value);
+      }
+    }
+    for (Map.Entry<String, BitSet> entry : _columnToNullRowsMap.entrySet()) {
+      if (entry.getValue().get(rowId)) {
+        reuse.addNullValueField(entry.getKey());
+      }
+    }
+    return reuse;
+  }
+}
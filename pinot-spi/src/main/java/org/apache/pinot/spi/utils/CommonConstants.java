@@ -287,6 +287,19 @@ public class CommonConstants {
     public static final int DEFAULT_BROKER_GROUPBY_TRIM_THRESHOLD = 1_000_000;
     public static final String CONFIG_OF_BROKER_MIN_GROUP_TRIM_SIZE = "pinot.broker.min.group.trim.size";
     public static final int DEFAULT_BROKER_MIN_GROUP_TRIM_SIZE = 5000;
+    // Whether to merge the group-by server responses into the result as they arrive instead of after all the servers
+    // responded. Can be overridden per query with the 'incrementalReduce' query option.
+    public static final String CONFIG_OF_ENABLE_INCREMENTAL_REDUCE = "pinot.broker.enable.incremental.reduce";
+    public static final boolean DEFAULT_ENABLE_INCREMENTAL_REDUCE = false;
+
+    // Config for the partial result cache, which caches the server responses for the offline tables keyed by the query
+    // and the segments queried on each server. The TTL can be overridden per table in the table query config.
+    public static final String CONFIG_OF_ENABLE_PARTIAL_RESULT_CACHE = "pinot.broker.partial.result.cache.enabled";
+    public static final boolean DEFAULT_ENABLE_PARTIAL_RESULT_CACHE = false;
+    public static final String CONFIG_OF_PARTIAL_RESULT_CACHE_MAX_SIZE = "pinot.broker.partial.result.cache.max.size";
+    public static final String DEFAULT_PARTIAL_RESULT_CACHE_MAX_SIZE = "100MB";
+    public static final String CONFIG_OF_PARTIAL_RESULT_CACHE_TTL_MS = "pinot.broker.partial.result.cache.ttl.ms";
+    public static final long DEFAULT_PARTIAL_RESULT_CACHE_TTL_MS = 60_000L;
 
     // Configure the request handler type used by broker to handler inbound query request.
     // NOTE: the request handler type refers to the communication between Broker and Server.
@@ -332,6 +345,11 @@ public class CommonConstants {
         "pinot.broker.enable.partition.metadata.manager";
     public static final boolean DEFAULT_ENABLE_PARTITION_METADATA_MANAGER = false;
 
+    // Track the table row counts from the segment ZK metadata, which are used as the table statistics by the
+    // multi-stage query planner (e.g. to optimize the join order)
+    public static final String CONFIG_OF_ENABLE_TABLE_ROW_COUNT_MANAGER = "pinot.broker.enable.table.row.count.manager";
+    public static final boolean DEFAULT_ENABLE_TABLE_ROW_COUNT_MANAGER = false;
+
     public static final String CONFIG_OF_USE_FIXED_REPLICA = "pinot.broker.use.fixed.replica";
     public static final boolean DEFAULT_USE_FIXED_REPLICA = false;
 
@@ -392,6 +410,8 @@ public class CommonConstants {
 
         // Reorder scan based predicates based on cardinality and number of selected values
         public static final String AND_SCAN_REORDERING = "AndScanReordering";
+        // Reorder AND predicates and pick between index and scan evaluation based on the runtime filter statistics
+        public static final String ADAPTIVE_FILTER_REORDERING = "adaptiveFilterReordering";
         public static final String SKIP_INDEXES = "skipIndexes";
 
         public static final String ORDER_BY_ALGORITHM = "orderByAlgorithm";
@@ -400,6 +420,9 @@ public class CommonConstants {
         public static final String NUM_GROUPS_LIMIT = "numGroupsLimit";
         public static final String MAX_INITIAL_RESULT_HOLDER_CAPACITY = "maxInitialResultHolderCapacity";
         public static final String GROUP_TRIM_THRESHOLD = "groupTrimThreshold";
+        // Number of radix partitions used to combine the group-by results on the server, where values <= 1 disable the
+        // partitioned combine
+        public static final String NUM_GROUP_BY_COMBINE_PARTITIONS = "numGroupByCombinePartitions";
         public static final String STAGE_PARALLELISM = "stageParallelism";
 
         public static final String IN_PREDICATE_PRE_SORTED = "inPredicatePreSorted";
@@ -407,6 +430,21 @@ public class CommonConstants {
 
         public static final String DROP_RESULTS = "dropResults";
 
+        // Data table version and column compression (NONE, LZ4 or ZSTD) requested by the broker for the server
+        // responses, where the compression only applies to the columnar data table (version 5). Servers only send the
+        // columnar data table when requested, because older brokers never send the option and cannot read it.
+        public static final String DATA_TABLE_VERSION = "dataTableVersion";
+        public static final String DATA_TABLE_COMPRESSION = "dataTableCompression";
+
+        // Whether to reduce the group-by server responses incrementally as they arrive on the broker
+        public static final String INCREMENTAL_REDUCE = "incrementalReduce";
+
+        // Set to false to bypass the broker partial result cache for the query
+        public static final String USE_PARTIAL_RESULT_CACHE = "usePartialResultCache";
+
+        // Set to false to bypass the server segment result cache for the query
+        public static final String USE_SEGMENT_RESULT_CACHE = "useSegmentResultCache";
+
         // Maximum number of pending results blocks allowed in the streaming operator
         public static final String MAX_STREAMING_PENDING_BLOCKS = "maxStreamingPendingBlocks";
 
@@ -414,10 +452,30 @@ public class CommonConstants {
         public static final String MAX_ROWS_IN_JOIN = "maxRowsInJoin";
         public static final String JOIN_OVERFLOW_MODE = "joinOverflowMode";
 
+        // Max time the leaf stage waits for the runtime filter sent by the join (enabled with the 'runtime_filter' join
+        // hint) before scanning the table without it
+        public static final String RUNTIME_FILTER_WAIT_MS = "runtimeFilterWaitMs";
+
         // Handle WINDOW Overflow
         public static final String MAX_ROWS_IN_WINDOW = "maxRowsInWindow";
         public static final String WINDOW_OVERFLOW_MODE = "windowOverflowMode";
 
+        // Max rows buffered in memory by the multi-stage sort operator. When the rows to sort go over the limit, the
+        // rows are sorted in runs spilled to local disk and merged (external sort). Sort in memory when not set.
+        public static final String MAX_ROWS_IN_SORT = "maxRowsInSort";
+
+        // Reorder the joins in the multi-stage query based on the table row counts (when tracked by the broker), and
+        // only use dynamic broadcast for the semi joins when the right side is estimated to be smaller
+        public static final String OPTIMIZE_JOIN_ORDER = "optimizeJoinOrder";
+
+        // Infer the table partition hint from the segment partition metadata (when tracked by the broker) for the
+        // multi-stage query, so that the joins and aggregates on the partition key can skip the data shuffle
+        public static final String INFER_PARTITION_HINT = "inferPartitionHint";
+
+        // Relative share of the multi-stage worker threads given to the query when the fair OpChain scheduler is
+        // enabled on the servers (default 1)
+        public static final String OPCHAIN_SCHEDULING_WEIGHT = "opChainSchedulingWeight";
+
         // Indicates the maximum length of the serialized response per server for a query.
         public static final String MAX_SERVER_RESPONSE_SIZE_BYTES = "maxServerResponseSizeBytes";
 
@@ -1156,9 +1214,15 @@ public class CommonConstants {
     public static final String KEY_OF_JOIN_OVERFLOW_MODE = "pinot.query.join.overflow.mode";
 
     public enum JoinOverFlowMode {
-      THROW, BREAK
+      THROW, BREAK, SPILL
     }
 
+    /**
+     * Directory for the files spilled by the multi-stage operators (e.g. join with SPILL overflow mode), default to
+     * 'pinot-multistage-spill' under the temporary directory ('java.io.tmpdir').
+     */
+    public static final String KEY_OF_SPILL_DIR = "pinot.query.runner.spill.dir";
+
     /**
      * Configuration for window overflow.
      */
@@ -1169,6 +1233,27 @@ public class CommonConstants {
       THROW, BREAK
     }
 
+    /**
+     * Configuration for the OpChain scheduler.
+     * <ul>
+     *   <li>default: each OpChain runs on its own thread from an unbounded thread pool until it finishes.</li>
+     *   <li>fair: OpChains run in time slices on a bounded work-stealing thread pool, and the slices are shared
+     *   between the queries based on their weights (see {@code opChainSchedulingWeight} query option). OpChains
+     *   waiting for input are suspended until new data arrives instead of holding a thread.</li>
+     * </ul>
+     */
+    public static final String KEY_OF_OPCHAIN_SCHEDULER_TYPE = "pinot.query.runner.opchain.scheduler.type";
+    public static final String DEFAULT_OPCHAIN_SCHEDULER_TYPE = "default";
+    public static final String FAIR_OPCHAIN_SCHEDULER_TYPE = "fair";
+    // Number of worker threads for the fair OpChain scheduler, default to the number of cores. Up to the same number of
+    // extra threads can be temporarily added while the OpChains are blocked on the sending mailbox backpressure.
+    public static final String KEY_OF_OPCHAIN_SCHEDULER_NUM_THREADS =
+        "pinot.query.runner.opchain.scheduler.num.threads";
+    // Time slice after which an OpChain is put back into the queue to let other OpChains run
+    public static final String KEY_OF_OPCHAIN_SCHEDULER_TIME_SLICE_MS =
+        "pinot.query.runner.opchain.scheduler.time.slice.ms";
+    public static final long DEFAULT_OPCHAIN_SCHEDULER_TIME_SLICE_MS = 100L;
+
     /**
      * Constants related to plan versions.
      */